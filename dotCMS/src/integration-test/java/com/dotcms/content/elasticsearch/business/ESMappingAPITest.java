@@ -0,0 +1,75 @@
+package com.dotcms.content.elasticsearch.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.IntegrationTestInitService;
+
+public class ESMappingAPITest {
+
+    @BeforeClass
+    public static void prepare() throws Exception{
+        //Setting web app environment
+        IntegrationTestInitService.getInstance().init();
+    }
+
+    final ESMappingAPIImpl instance = new ESMappingAPIImpl();
+
+    /**
+     * The documents built in batch by toMaps are the ones toMap builds one by
+     * one
+     */
+    @Test
+    public void toMapsMatchesToMap() throws Exception {
+        List<Contentlet> contentlets = findWorkingContentlets(50);
+        assertTrue(contentlets.size() > 1);
+
+        Map<String, Map<String, Object>> maps = instance.toMaps(contentlets);
+
+        assertEquals(contentlets.size(), maps.size());
+        List<String> inodes = new ArrayList<String>(maps.keySet());
+        for (int i = 0; i < contentlets.size(); i++) {
+            Contentlet con = contentlets.get(i);
+            assertEquals(con.getInode(), inodes.get(i));
+            assertEquals("Document of " + con.getInode(), instance.toMap(con), maps.get(con.getInode()));
+        }
+    }
+
+    /**
+     * A batch bigger than the IN clause size is loaded in several queries
+     */
+    @Test
+    public void toMapsSplitsTheQueries() throws Exception {
+        List<Contentlet> contentlets = findWorkingContentlets(ESMappingBatch.IN_CLAUSE_SIZE + 10);
+
+        Map<String, Map<String, Object>> maps = instance.toMaps(contentlets);
+
+        assertEquals(contentlets.size(), maps.size());
+        for (Contentlet con : contentlets) {
+            assertEquals(con.getIdentifier(), maps.get(con.getInode()).get("identifier"));
+        }
+    }
+
+    private List<Contentlet> findWorkingContentlets(int limit) throws Exception {
+        DotConnect dc = new DotConnect();
+        dc.setSQL("select working_inode from contentlet_version_info where deleted = ?");
+        dc.addParam(false);
+        dc.setMaxRows(limit);
+        List<String> inodes = new ArrayList<String>();
+        for (Map<String, Object> r : dc.loadObjectResults()) {
+            inodes.add((String) r.get("working_inode"));
+        }
+        return new ESContentFactoryImpl().findContentlets(inodes);
+    }
+
+}
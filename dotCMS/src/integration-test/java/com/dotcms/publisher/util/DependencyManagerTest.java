@@ -0,0 +1,216 @@
+package com.dotcms.publisher.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.dotcms.LicenseTestUtil;
+import com.dotcms.TestBase;
+import com.dotcms.datagen.ContainerDataGen;
+import com.dotcms.datagen.ContentletDataGen;
+import com.dotcms.datagen.FolderDataGen;
+import com.dotcms.datagen.HTMLPageDataGen;
+import com.dotcms.datagen.StructureDataGen;
+import com.dotcms.datagen.TemplateDataGen;
+import com.dotcms.publisher.business.PublishQueueElement;
+import com.dotcms.publisher.pusher.PushPublisherConfig;
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.beans.MultiTree;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.factories.MultiTreeFactory;
+import com.dotmarketing.portlets.containers.model.Container;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.folders.model.Folder;
+import com.dotmarketing.portlets.htmlpageasset.model.HTMLPageAsset;
+import com.dotmarketing.portlets.rules.RuleDataGen;
+import com.dotmarketing.portlets.rules.model.Rule;
+import com.dotmarketing.portlets.structure.factories.RelationshipFactory;
+import com.dotmarketing.portlets.structure.model.Relationship;
+import com.dotmarketing.portlets.structure.model.Structure;
+import com.dotmarketing.portlets.templates.model.Template;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.IntegrationTestInitService;
+import com.liferay.portal.model.User;
+
+/**
+ * Test for {@link DependencyManager}: the dependencies collected for a site
+ * don't depend on the number of threads the lookups run in, nor on the lookups
+ * shared by the bundles of a run.
+ */
+public class DependencyManagerTest extends TestBase {
+
+    private static User user;
+    private static Host host;
+    private static Structure parent;
+    private static Structure child;
+    private static Relationship relationship;
+    private static Container container;
+    private static Template template;
+    private static Folder folder;
+    private static HTMLPageAsset page;
+    private static Contentlet content;
+    private static MultiTree multiTree;
+    private static Rule rule;
+
+    @BeforeClass
+    public static void prepare() throws Exception {
+        IntegrationTestInitService.getInstance().init();
+        LicenseTestUtil.getLicense();
+
+        user = APILocator.getUserAPI().getSystemUser();
+        host = APILocator.getHostAPI().findDefaultHost(user, false);
+        final long time = System.currentTimeMillis();
+
+        HibernateUtil.startTransaction();
+        try {
+            parent = new StructureDataGen().name("parent" + time).velocityVarName("parent" + time).nextPersisted();
+            child = new StructureDataGen().name("child" + time).velocityVarName("child" + time).nextPersisted();
+            relationship = new Relationship(parent, child, "parent" + time, "child" + time, 0, false, false);
+            RelationshipFactory.saveRelationship(relationship);
+
+            container = new ContainerDataGen().withStructure(parent, "").nextPersisted();
+            template = new TemplateDataGen().withContainer(container).nextPersisted();
+            folder = new FolderDataGen().name("dependencies" + time).title("dependencies" + time).nextPersisted();
+            page = new HTMLPageDataGen(folder, template).languageId(1).nextPersisted();
+            content = new ContentletDataGen(parent.getInode()).languageId(1).nextPersisted();
+            multiTree = new MultiTree(page.getIdentifier(), container.getIdentifier(), content.getIdentifier());
+            MultiTreeFactory.saveMultiTree(multiTree, 1);
+
+            final RuleDataGen rules = new RuleDataGen().name("dependencies" + time);
+            rule = rules.next();
+            rule.setParent(page.getIdentifier());
+            rules.persist(rule);
+
+            HibernateUtil.commitTransaction();
+        } catch (Exception e) {
+            HibernateUtil.rollbackTransaction();
+            throw e;
+        }
+    }
+
+    @AfterClass
+    public static void cleanUp() throws Exception {
+        new RuleDataGen().remove(rule);
+        MultiTreeFactory.deleteMultiTree(multiTree);
+        ContentletDataGen.remove(content);
+        HTMLPageDataGen.remove(page);
+        TemplateDataGen.remove(template);
+        ContainerDataGen.remove(container);
+        FolderDataGen.remove(folder);
+        RelationshipFactory.deleteRelationship(relationship);
+        StructureDataGen.remove(child);
+        StructureDataGen.remove(parent);
+        Config.setProperty("PUSH_PUBLISHING_DEPENDENCY_THREADS", 4);
+    }
+
+    /**
+     * The folder brings its page, the page its template, containers,
+     * contents and rules, and the content types bring their relationships,
+     * as they always did.
+     */
+    @Test
+    public void collectsTheDependenciesOfTheSite() throws Exception {
+
+        final Map<String, Set<String>> found = dependencies(1);
+
+        assertTrue(found.get("hosts").contains(host.getIdentifier()));
+        assertTrue(found.get("folders").contains(folder.getInode()));
+        assertTrue(found.get("htmlpages").contains(page.getIdentifier()));
+        assertTrue(found.get("templates").contains(template.getIdentifier()));
+        assertTrue(found.get("containers").contains(container.getIdentifier()));
+        assertTrue(found.get("contents").contains(content.getIdentifier()));
+        assertTrue(found.get("structures").containsAll(Arrays.asList(parent.getInode(), child.getInode())));
+        assertTrue(found.get("relationships").contains(relationship.getInode()));
+        assertTrue(found.get("rules").contains(rule.getId()));
+    }
+
+    /**
+     * The lookups run in the publishing thread with one thread, and in the
+     * pool otherwise. The pool is created again when its size changes.
+     */
+    @Test
+    public void theThreadsDoNotChangeTheDependencies() throws Exception {
+
+        final Map<String, Set<String>> serial = dependencies(1);
+
+        assertEquals(serial, dependencies(4));
+        assertEquals(4, DependencyManager.getPool(4).getParallelism());
+        assertEquals(serial, dependencies(2));
+        assertEquals(2, DependencyManager.getPool(2).getParallelism());
+    }
+
+    @Test
+    public void theBundlesOfARunShareTheirLookups() throws Exception {
+
+        final Map<String, Set<String>> alone = dependencies(4);
+
+        ResolvedDependencies.startRun();
+        try {
+            assertEquals(alone, dependencies(4));
+            final int lookups = ResolvedDependencies.getInstance().size();
+            assertEquals(alone, dependencies(4));
+            assertEquals(lookups, ResolvedDependencies.getInstance().size());
+        } finally {
+            ResolvedDependencies.endRun();
+        }
+    }
+
+    /**
+     * Resolves the dependencies of a bundle with the site's folder and the
+     * parent content type, using the given number of threads
+     *
+     * @return the assets of the bundle, by type
+     */
+    private Map<String, Set<String>> dependencies(final int threads) throws Exception {
+        Config.setProperty("PUSH_PUBLISHING_DEPENDENCY_THREADS", threads);
+
+        final String bundleId = UUID.randomUUID().toString();
+        final List<PublishQueueElement> assets = new ArrayList<PublishQueueElement>();
+        assets.add(asset(bundleId, folder.getInode(), PusheableAsset.FOLDER));
+        assets.add(asset(bundleId, parent.getInode(), PusheableAsset.CONTENT_TYPE));
+
+        final PushPublisherConfig config = new PushPublisherConfig();
+        config.setId(bundleId);
+        config.setOperation(PushPublisherConfig.Operation.PUBLISH);
+        config.setDownloading(true);
+        config.setAssets(assets);
+        config.setUser(user);
+
+        new DependencyManager(user, config).setDependencies();
+
+        final Map<String, Set<String>> found = new LinkedHashMap<String, Set<String>>();
+        found.put("hosts", new HashSet<String>(config.getHostSet()));
+        found.put("folders", new HashSet<String>(config.getFolders()));
+        found.put("htmlpages", new HashSet<String>(config.getHTMLPages()));
+        found.put("templates", new HashSet<String>(config.getTemplates()));
+        found.put("containers", new HashSet<String>(config.getContainers()));
+        found.put("contents", new HashSet<String>(config.getContentlets()));
+        found.put("structures", new HashSet<String>(config.getStructures()));
+        found.put("relationships", new HashSet<String>(config.getRelationships()));
+        found.put("links", new HashSet<String>(config.getLinks()));
+        found.put("rules", new HashSet<String>(config.getRules()));
+        return found;
+    }
+
+    private PublishQueueElement asset(final String bundleId, final String id, final PusheableAsset type) {
+        final PublishQueueElement element = new PublishQueueElement();
+        element.setBundleId(bundleId);
+        element.setAsset(id);
+        element.setType(type.getType());
+        return element;
+    }
+
+}
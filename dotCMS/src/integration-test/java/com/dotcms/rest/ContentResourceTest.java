@@ -655,6 +655,50 @@ public class ContentResourceTest extends TestBase {
         
         Assert.assertEquals(working.getInode(), c2.getInode());
     }
+
+    @Test
+    public void conditionalGet() throws Exception {
+        Response response = webTarget.path("/justSave/1")
+                .request()
+                .header(authheader, authvalue).put(Entity.entity(
+                    new JSONObject()
+                        .put("stName", "webPageContent")
+                        .put("contentHost", "demo.dotcms.com")
+                        .put("title", "testing conditional get")
+                        .put("body", "just testing")
+                        .toString(), MediaType.APPLICATION_JSON_TYPE));
+        String identifier=(String)response.getHeaders().getFirst("identifier");
+
+        response = webTarget.path("/id/" + identifier + "/live/false").request()
+                .header(authheader, authvalue).get();
+        Assert.assertEquals(200, response.getStatus());
+        String eTag = response.getHeaderString("ETag");
+        Assert.assertNotNull(eTag);
+        Assert.assertTrue(response.readEntity(String.class).contains("testing conditional get"));
+
+        // same contentlet, not sent again
+        response = webTarget.path("/id/" + identifier + "/live/false").request()
+                .header(authheader, authvalue).header("If-None-Match", eTag).get();
+        Assert.assertEquals(304, response.getStatus());
+
+        // a new version changes the ETag
+        webTarget.path("/justSave/1")
+                .request()
+                .header(authheader, authvalue).put(Entity.entity(
+                    new JSONObject()
+                        .put("stName", "webPageContent")
+                        .put("contentHost", "demo.dotcms.com")
+                        .put("title", "testing conditional get 2")
+                        .put("body", "just testing 2")
+                        .put("identifier", identifier)
+                        .toString(), MediaType.APPLICATION_JSON_TYPE));
+
+        response = webTarget.path("/id/" + identifier + "/live/false").request()
+                .header(authheader, authvalue).header("If-None-Match", eTag).get();
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertNotEquals(eTag, response.getHeaderString("ETag"));
+        Assert.assertTrue(response.readEntity(String.class).contains("testing conditional get 2"));
+    }
 }
 
 
@@ -19,4 +19,14 @@ public interface SystemEventProcessor extends Serializable {
      */
     public SystemEvent process (SystemEvent event, Session session);
 
+    /**
+     * Returns true if the result of {@link #process(SystemEvent, Session)} depends on the user of the session.
+     * Otherwise the event is processed and encoded just once and shared by all the sessions.
+     * @return boolean
+     */
+    default boolean isUserDependent () {
+
+        return true;
+    }
+
 } // E:O:F:SystemEventProcessor.
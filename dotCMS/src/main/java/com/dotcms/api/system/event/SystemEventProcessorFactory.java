@@ -62,6 +62,11 @@ public class SystemEventProcessorFactory implements Serializable {
         public SystemEvent process(SystemEvent event, Session session) {
             return event;
         }
+
+        @Override
+        public boolean isUserDependent() {
+            return false;
+        }
     }
 
 } // E:O:F:SystemEventProcessorFactory.
@@ -0,0 +1,198 @@
+package com.dotcms.api.system.event;
+
+import com.dotcms.rest.api.v1.system.websocket.SystemEventsWebSocketEndPoint;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.ChainableCacheAdministratorImpl;
+import com.dotmarketing.business.DotCacheAdministrator;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.DotRunnable;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers the {@link SystemEvent}s to the {@link SystemEventsWebSocketEndPoint}.
+ * <p>
+ * The events pushed by this node are delivered right after they are stored,
+ * without waiting for the {@link com.dotcms.job.system.event.SystemEventsJob}.
+ * The other nodes of the cluster are notified through the cache transport so
+ * they read the new events from the database right away, the job is kept as a
+ * fallback for the nodes that could not be notified. An event is never
+ * delivered twice by the same node.
+ * <p>
+ * Events are delivered in order by a single thread so the caller of
+ * {@link SystemEventsAPI#push(SystemEvent)} is never blocked by the sessions.
+ */
+public class SystemEventsDispatcher {
+
+    /**
+     * Message sent through the cache transport when a node stores new events
+     */
+    public static final String CLUSTER_NOTIFICATION = "SystemEvents.new";
+
+    private final Map<String, Boolean> dispatchedEvents;
+    private final long pullOverlapMillis;
+    private final AtomicLong lastPull = new AtomicLong(System.currentTimeMillis());
+    private final AtomicBoolean pullScheduled = new AtomicBoolean(false);
+    private final ExecutorService executor;
+
+    private SystemEventsDispatcher() {
+
+        final int dispatchedEventsSize = Config.getIntProperty("SYSTEM_EVENTS_DISPATCHED_CACHE_SIZE", 5000);
+        this.dispatchedEvents  = new LinkedHashMap<String, Boolean>(dispatchedEventsSize, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+                return this.size() > dispatchedEventsSize;
+            }
+        };
+        this.pullOverlapMillis = Config.getIntProperty("SYSTEM_EVENTS_PULL_OVERLAP_MILLIS", 5000);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+
+            final Thread thread = new Thread(runnable, "SystemEventsDispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static class SingletonHolder {
+        private static final SystemEventsDispatcher INSTANCE = new SystemEventsDispatcher();
+    }
+
+    /**
+     * Get the instance.
+     * @return SystemEventsDispatcher
+     */
+    public static SystemEventsDispatcher getInstance() {
+
+        return SystemEventsDispatcher.SingletonHolder.INSTANCE;
+    } // getInstance.
+
+    /**
+     * Delivers an event just pushed by this node to the local sessions and
+     * notifies the other nodes of the cluster. If there is a transaction in
+     * progress this is done once it is committed.
+     *
+     * @param event {@link SystemEvent}
+     */
+    public void pushed(final SystemEvent event) {
+
+        final DotRunnable dispatchRunnable = new DotRunnable() {
+            @Override
+            public void run() {
+
+                dispatch(event);
+                notifyCluster();
+            }
+        };
+
+        try {
+            if (DbConnectionFactory.inTransaction()) {
+                HibernateUtil.addCommitListener(dispatchRunnable);
+                return;
+            }
+        } catch (Exception e) {
+            Logger.error(SystemEventsDispatcher.class, e.getMessage(), e);
+        }
+
+        dispatchRunnable.run();
+    } // pushed.
+
+    /**
+     * Delivers an event to the local sessions, unless it was already delivered.
+     *
+     * @param event {@link SystemEvent}
+     */
+    public void dispatch(final SystemEvent event) {
+
+        if (!this.markDispatched(event)) {
+            return;
+        }
+
+        this.executor.execute(() -> {
+
+            final SystemEventsWebSocketEndPoint webSocketEndPoint = APILocator.getWebSocketContainerAPI()
+                    .getEndpointInstance(SystemEventsWebSocketEndPoint.class);
+            if (null != webSocketEndPoint) {
+                webSocketEndPoint.sendSystemEvent(event);
+            }
+        });
+    } // dispatch.
+
+    /**
+     * Reads from the database the events created since the given date and
+     * delivers the ones that were not delivered yet.
+     *
+     * @param fromDate long
+     * @throws DotDataException
+     */
+    public void pull(final long fromDate) throws DotDataException {
+
+        this.lastPull.accumulateAndGet(System.currentTimeMillis(), Math::max);
+
+        final Collection<SystemEvent> newEvents =
+                APILocator.getSystemEventsAPI().getEventsSince(Math.max(1, fromDate));
+        for (SystemEvent event : newEvents) {
+            this.dispatch(event);
+        }
+    } // pull.
+
+    /**
+     * Called when another node of the cluster stored new events. Notifications
+     * received while a read is pending are merged into it.
+     */
+    public void clusterNotified() {
+
+        if (!this.pullScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        this.executor.execute(() -> {
+
+            this.pullScheduled.set(false);
+            try {
+                // the overlap covers the clock differences between the nodes, duplicates are dropped
+                this.pull(this.lastPull.get() - this.pullOverlapMillis);
+            } catch (DotDataException e) {
+                Logger.error(SystemEventsDispatcher.class, "Unable to read the new system events: " + e.getMessage(), e);
+            } finally {
+                DbConnectionFactory.closeSilently();
+            }
+        });
+    } // clusterNotified.
+
+    private void notifyCluster() {
+
+        try {
+            final DotCacheAdministrator cacheAdministrator = CacheLocator.getCacheAdministrator().getImplementationObject();
+            if (cacheAdministrator instanceof ChainableCacheAdministratorImpl
+                    && ((ChainableCacheAdministratorImpl) cacheAdministrator).isClusteringEnabled()) {
+                ((ChainableCacheAdministratorImpl) cacheAdministrator).send(CLUSTER_NOTIFICATION);
+            }
+        } catch (Exception e) {
+            Logger.warn(SystemEventsDispatcher.class, "Unable to notify the cluster about new system events: " + e.getMessage());
+        }
+    } // notifyCluster.
+
+    private boolean markDispatched(final SystemEvent event) {
+
+        if (!UtilMethods.isSet(event.getId())) {
+            return true;
+        }
+
+        synchronized (this.dispatchedEvents) {
+            return null == this.dispatchedEvents.put(event.getId(), Boolean.TRUE);
+        }
+    } // markDispatched.
+
+} // E:O:F:SystemEventsDispatcher.
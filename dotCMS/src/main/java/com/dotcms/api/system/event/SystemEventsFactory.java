@@ -91,6 +91,7 @@ public class SystemEventsFactory implements Serializable {
 
 		private SystemEventsDAO systemEventsDAO = getSystemEventsDAO();
 		private MarshalUtils marshalUtils = MarshalFactory.getInstance().getMarshalUtils();
+		private final SystemEventsDispatcher systemEventsDispatcher = SystemEventsDispatcher.getInstance();
 
 		@Override
 		public void push(final SystemEvent systemEvent) throws DotDataException {
@@ -99,14 +100,20 @@ public class SystemEventsFactory implements Serializable {
 				Logger.error(this, msg);
 				throw new IllegalArgumentException(msg);
 			}
+			// the ID is set here so the event delivered locally can be recognized when it is read from the database
+			final SystemEvent event = UtilMethods.isSet(systemEvent.getId()) ? systemEvent
+					: new SystemEvent(UUIDGenerator.generateUuid(), systemEvent.getEventType(), systemEvent.getPayload(),
+							systemEvent.getCreationDate());
 			try {
-				this.systemEventsDAO.add(new SystemEventDTO(systemEvent.getId(), systemEvent.getEventType().name(),
-						this.marshalUtils.marshal(systemEvent.getPayload()), systemEvent.getCreationDate().getTime()));
+				this.systemEventsDAO.add(new SystemEventDTO(event.getId(), event.getEventType().name(),
+						this.marshalUtils.marshal(event.getPayload()), event.getCreationDate().getTime()));
 			} catch (DotDataException e) {
-				final String msg = "An error occurred when saving a system event with ID: [" + systemEvent.getId() + "]";
+				final String msg = "An error occurred when saving a system event with ID: [" + event.getId() + "]";
 				Logger.error(this, msg, e);
 				throw new DotDataException(msg, e);
 			}
+
+			this.systemEventsDispatcher.pushed(event);
 		}
 
 		@Override
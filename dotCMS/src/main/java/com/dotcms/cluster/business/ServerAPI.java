@@ -54,4 +54,14 @@ public interface ServerAPI {
      */
     Server getCurrentServer();
 
+	/**
+	 * Tells if this server runs the tasks that have to run in a single server
+	 * of the cluster: the alive server with the lowest id is the leader. A
+	 * server that is not in a cluster is always the leader.
+	 *
+	 * @return true if this server is the leader
+	 * @throws DotDataException
+	 */
+	boolean isLeader() throws DotDataException;
+
 }
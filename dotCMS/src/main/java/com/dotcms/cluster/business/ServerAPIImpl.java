@@ -167,4 +167,19 @@ public class ServerAPIImpl implements ServerAPI {
 	public Server getCurrentServer() {
 		return getServer(readServerId());
 	}
+
+	@Override
+	public boolean isLeader() throws DotDataException {
+		String[] serverIds = getAliveServersIds();
+		if(serverIds == null || serverIds.length == 0) {
+			return true;
+		}
+		String lowest = null;
+		for(String serverId : serverIds) {
+			if(lowest == null || serverId.compareTo(lowest) < 0) {
+				lowest = serverId;
+			}
+		}
+		return ConfigUtils.getServerId().equals(lowest);
+	}
 }
@@ -61,13 +61,10 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.index.query.QueryStringQueryBuilder;
 import org.elasticsearch.index.query.functionscore.random.RandomScoreFunctionBuilder;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.internal.InternalSearchHits;
-import org.elasticsearch.search.sort.SortBuilders;
-import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.util.NumberUtils;
 
 import java.io.Serializable;
@@ -100,6 +97,7 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	private ContentletCache cc = CacheLocator.getContentletCache();
 	private ESClient client = null;
 	private LanguageAPI langAPI = APILocator.getLanguageAPI();
+	private final FatContentletConverter converter = FatContentletConverter.getInstance();
 
 	private static final Contentlet cache404Content= new Contentlet();
 	private static final String CACHE_404_CONTENTLET="CACHE_404_CONTENTLET";
@@ -203,25 +201,10 @@ public class ESContentFactoryImpl extends ContentletFactory {
         }catch (DotSecurityException e) {
 
         }
-        List<Field> fields = FieldsCache.getFieldsByStructureInode(cont.getStructureInode());
-        for (Field f : fields) {
-            if (f.getFieldType().equals(Field.FieldType.HOST_OR_FOLDER.toString())) {
-                continue;
-            }
-            if (f.getFieldType().equals(Field.FieldType.BINARY.toString())) {
-                continue;
-            }
-
-            if(!APILocator.getFieldAPI().valueSettable(f)){
-                continue;
-            }
-            Object value;
-            value = cont.get(f.getVelocityVarName());
-            try{
-                fatty.setField(f, value);
-            }catch (DotRuntimeException re) {
-                throw new DotDataException("Unable to set field value",re);
-            }
+        try{
+            converter.copyToFatContentlet(cont, fatty);
+        }catch (DotRuntimeException re) {
+            throw new DotDataException("Unable to set field value",re);
         }
         fatty.setInode(cont.getInode());
         fatty.setIdentifier(UtilMethods.isSet(cont.getIdentifier())?cont.getIdentifier():null);
@@ -253,18 +236,19 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	@Override
 	public Contentlet convertFatContentletToContentlet(com.dotmarketing.portlets.contentlet.business.Contentlet fatty)
 			throws DotDataException, DotStateException, DotSecurityException {
-	    Contentlet con = new Contentlet();
-
-
-        con.setStructureInode(fatty.getStructureInode());
-        Map<String, Object> contentletMap = fatty.getMap();
-
-        try {
-            APILocator.getContentletAPI().copyProperties(con, contentletMap);
-        } catch (Exception e) {
-            Logger.error(this,"Unable to copy contentlet properties",e);
-            throw new DotDataException("Unable to copy contentlet properties",e);
-        }
+	    Contentlet con;
+	    if(InodeUtils.isSet(fatty.getStructureInode())) {
+	        con = converter.newContentlet(fatty.getStructureInode());
+	        try {
+	            converter.copyToContentlet(fatty, con);
+	        } catch (Exception e) {
+	            Logger.error(this,"Unable to copy contentlet properties",e);
+	            throw new DotDataException("Unable to copy contentlet properties",e);
+	        }
+	    } else {
+	        Logger.warn(this,"Cannot copy properties to contentlet where structure inode < 1 : You must set the structure's inode");
+	        con = new Contentlet();
+	    }
         con.setInode(fatty.getInode());
         con.setStructureInode(fatty.getStructureInode());
         con.setIdentifier(fatty.getIdentifier());
@@ -319,6 +303,8 @@ public class ESContentFactoryImpl extends ContentletFactory {
             StringTokenizer st = new StringTokenizer(wysiwyg,",");
             while( st.hasMoreTokens() ) wysiwygFields.add(st.nextToken().trim());
             con.setDisabledWysiwyg(wysiwygFields);
+        } else {
+            con.setDisabledWysiwyg(new ArrayList<String>());
         }
         return con;
 	}
@@ -1160,7 +1146,12 @@ public class ESContentFactoryImpl extends ContentletFactory {
 
 	@Override
 	protected long indexCount(String query) {
-	    String qq=findAndReplaceQueryDates(translateQuery(query, null).getQuery());
+	    return indexCount(query, null, null);
+	}
+
+	@Override
+	protected long indexCount(String query, ESPermissionFilter permissionFilter, String userId) {
+	    ESQueryPlan queryPlan = getQueryPlan(query, null);
 
 	    // we check the query to figure out wich indexes to hit
         String indexToHit;
@@ -1172,15 +1163,16 @@ public class ESContentFactoryImpl extends ContentletFactory {
             Logger.fatal(this, "Can't get indicies information",ee);
             return 0;
         }
-        if(query.contains("+live:true") && !query.contains("+deleted:true"))
+        if(queryPlan.isLive())
             indexToHit=info.live;
         else
             indexToHit=info.working;
 
         Client client=new ESClient().getClient();
-        QueryStringQueryBuilder qb = QueryBuilders.queryString(qq);
         CountRequestBuilder crb = client.prepareCount();
-        crb.setQuery(qb);
+        // scores do not matter when counting
+        crb.setQuery(ESPermissionFilter.filter(useTermFilters() ? queryPlan.toQueryBuilder() : QueryBuilders.queryString(queryPlan.getFullQuery()),
+                permissionFilter, userId));
         crb.setIndices(indexToHit);
         return crb.execute().actionGet().getCount();
 	}
@@ -1197,37 +1189,102 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	}
 
     /**
+     * Builds the request for a compiled query, with its term clauses as filters when possible
      *
      * @param client
-     * @param query
+     * @param queryPlan
      * @param sortBy i.e. "random" or null object.
+     * @param permissionFilter the read permission constraint, may be null
+     * @param userId the user searching, may be null
      * @return
      */
-    private SearchRequestBuilder createRequest(Client client, String query, String sortBy) {
+    private SearchRequestBuilder createRequest(Client client, ESQueryPlan queryPlan, String sortBy,
+            ESPermissionFilter permissionFilter, String userId) {
+
+        // term filters do not score, so they are only used when the results are sorted by a field
+        if(useTermFilters() && UtilMethods.isSet(sortBy) && !sortBy.toLowerCase().startsWith("score") && !"random".equals(sortBy)
+                && !Config.getBooleanProperty("ELASTICSEARCH_USE_FILTERS_FOR_SEARCHING",false)) {
+            return client.prepareSearch().setQuery(ESPermissionFilter.filter(queryPlan.toQueryBuilder(), permissionFilter, userId));
+        }
+
+        return createRequest(client, queryPlan.getFullQuery(), sortBy, permissionFilter, userId);
+    }
+
+    private boolean useTermFilters() {
+        return Config.getBooleanProperty("ELASTICSEARCH_USE_TERM_FILTERS", true);
+    }
 
+    /**
+     * Returns the compiled plan of the query, the query is only translated
+     * and its dates resolved the first time it is seen
+     *
+     * @param query
+     * @param sortBy
+     * @return
+     */
+    private ESQueryPlan getQueryPlan(String query, String sortBy) {
+
+        final String key = query + " --- " + sortBy;
+        final ContentletCache contentletCache = CacheLocator.getContentletCache();
+        ESQueryPlan queryPlan = contentletCache.getQueryPlan(key);
+        if(queryPlan == null) {
+            queryPlan = new ESQueryPlan(findAndReplaceQueryDates(translateQuery(query, sortBy).getQuery()),
+                    query.contains("+live:true") && !query.contains("+deleted:true"), sortBy);
+            contentletCache.addQueryPlan(key, queryPlan);
+        }
+        return queryPlan;
+    }
 
+    /**
+     *
+     * @param client
+     * @param query
+     * @param sortBy i.e. "random" or null object.
+     * @return
+     */
+    private SearchRequestBuilder createRequest(Client client, String query, String sortBy) {
+        return createRequest(client, query, sortBy, null, null);
+    }
 
+    /**
+     *
+     * @param client
+     * @param query
+     * @param sortBy i.e. "random" or null object.
+     * @param permissionFilter the read permission constraint, may be null
+     * @param userId the user searching, may be null
+     * @return
+     */
+    private SearchRequestBuilder createRequest(Client client, String query, String sortBy,
+            ESPermissionFilter permissionFilter, String userId) {
 
         if(Config.getBooleanProperty("ELASTICSEARCH_USE_FILTERS_FOR_SEARCHING",false) && sortBy!=null && ! sortBy.toLowerCase().startsWith("score")) {
 
             if("random".equals(sortBy)){
                 return client.prepareSearch()
-                        .setQuery(QueryBuilders.functionScoreQuery(QueryBuilders.matchAllQuery(), new RandomScoreFunctionBuilder()))
+                        .setQuery(ESPermissionFilter.filter(QueryBuilders.functionScoreQuery(QueryBuilders.matchAllQuery(), new RandomScoreFunctionBuilder()),
+                                permissionFilter, userId))
                         .setPostFilter(FilterBuilders.queryFilter(QueryBuilders.queryString(query)).cache(true));
             } else {
                 return client.prepareSearch()
-                        .setQuery(QueryBuilders.matchAllQuery())
+                        .setQuery(ESPermissionFilter.filter(QueryBuilders.matchAllQuery(), permissionFilter, userId))
                         .setPostFilter(FilterBuilders.queryFilter(QueryBuilders.queryString(query)).cache(true));
             }
 
         } else {
-            return client.prepareSearch().setQuery(QueryBuilders.queryString(query));
+            return client.prepareSearch().setQuery(ESPermissionFilter.filter(QueryBuilders.queryString(query), permissionFilter, userId));
         }
     }
 
 	@Override
 	protected SearchHits indexSearch(String query, int limit, int offset, String sortBy) {
-	    String qq=findAndReplaceQueryDates(translateQuery(query, sortBy).getQuery());
+	    return indexSearch(query, limit, offset, sortBy, null, null);
+	}
+
+	@Override
+	protected SearchHits indexSearch(String query, int limit, int offset, String sortBy,
+			ESPermissionFilter permissionFilter, String userId) {
+	    ESQueryPlan queryPlan = getQueryPlan(query, sortBy);
 
 	    // we check the query to figure out wich indexes to hit
 	    String indexToHit;
@@ -1239,7 +1296,7 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	        Logger.fatal(this, "Can't get indicies information",ee);
 	        return null;
 	    }
-	    if(query.contains("+live:true") && !query.contains("+deleted:true"))
+	    if(queryPlan.isLive())
 	        indexToHit=info.live;
 	    else
 	        indexToHit=info.working;
@@ -1248,7 +1305,7 @@ public class ESContentFactoryImpl extends ContentletFactory {
 	    SearchResponse resp = null;
         try {
 
-        	SearchRequestBuilder srb = createRequest(client, qq, sortBy);
+        	SearchRequestBuilder srb = createRequest(client, queryPlan, sortBy, permissionFilter, userId);
 
         	srb.setIndices(indexToHit);
         	srb.addFields("inode","identifier");
@@ -1258,56 +1315,7 @@ public class ESContentFactoryImpl extends ContentletFactory {
             if(offset>0)
                 srb.setFrom(offset);
 
-            if(UtilMethods.isSet(sortBy) ) {
-            	sortBy = sortBy.toLowerCase();
-            	if(sortBy.endsWith("-order")) {
-            	    // related content ordering
-            	    int ind0=sortBy.indexOf('-'); // relationships tipicaly have a format stname1-stname2
-            	    int ind1=ind0>0 ? sortBy.indexOf('-',ind0+1) : -1;
-            	    if(ind1>0) {
-            	        String relName=sortBy.substring(0, ind1);
-            	        if((ind1+1)<sortBy.length()) {
-                	        String identifier=sortBy.substring(ind1+1, sortBy.length()-6);
-                	        if(UtilMethods.isSet(identifier)) {
-                	            srb.addSort(SortBuilders.scriptSort("related", "number")
-                	                                    .lang("native")
-                	                                    .param("relName", relName)
-                	                                    .param("identifier", identifier)
-                	                                    .order(SortOrder.ASC));
-                	        }
-            	        }
-            	    }
-            	}
-            	else if(sortBy.startsWith("score")){
-            		String[] test = sortBy.split("\\s+");
-            		String defualtSecondarySort = "moddate";
-            		SortOrder defaultSecondardOrder = SortOrder.DESC;
-
-            		if(test.length>2){
-            			if(test[2].equalsIgnoreCase("desc"))
-            				defaultSecondardOrder = SortOrder.DESC;
-            			else
-            				defaultSecondardOrder = SortOrder.ASC;
-            		}
-            		if(test.length>1){
-            			defualtSecondarySort= test[1];
-            		}
-
-            		srb.addSort("_score", SortOrder.DESC);
-            		srb.addSort(defualtSecondarySort, defaultSecondardOrder);
-            	}
-            	else if(!sortBy.startsWith("undefined") && !sortBy.startsWith("undefined_dotraw") && !sortBy.equals("random")) {
-            		String[] sortbyArr=sortBy.split(",");
-	            	for (String sort : sortbyArr) {
-	            		String[] x=sort.trim().split(" ");
-	            		srb.addSort(SortBuilders.fieldSort(x[0].toLowerCase() + "_dotraw").order(x.length>1 && x[1].equalsIgnoreCase("desc") ?
-	                                SortOrder.DESC : SortOrder.ASC));
-
-					}
-            	}
-            }
-
-
+            queryPlan.addSorts(srb);
 
             try{
             	resp = srb.execute().actionGet();
@@ -120,6 +120,7 @@ import com.dotmarketing.portlets.workflows.model.WorkflowComment;
 import com.dotmarketing.portlets.workflows.model.WorkflowHistory;
 import com.dotmarketing.portlets.workflows.model.WorkflowProcessor;
 import com.dotmarketing.portlets.workflows.model.WorkflowTask;
+import com.dotmarketing.quartz.job.PublishExpireScheduler;
 import com.dotmarketing.services.ContentletServices;
 import com.dotmarketing.services.PageServices;
 import com.dotmarketing.tag.business.TagAPI;
@@ -723,6 +724,31 @@ public class ESContentletAPIImpl implements ContentletAPI {
         buffy.append(")");
     }
 
+    /**
+     * Returns the read permission filter of the roles (plus the frontend roles when they are respected), it
+     * is built once per distinct set of roles and shared by all the users that have them
+     */
+    private ESPermissionFilter getPermissionFilter(User user, List<Role> roles, boolean respectFrontendRoles) throws DotDataException {
+        List<String> roleIds = new ArrayList<String>(roles.size() + 2);
+        for (Role role : roles) {
+            roleIds.add(role.getId());
+        }
+        if(respectFrontendRoles) {
+            roleIds.add(APILocator.getRoleAPI().loadCMSAnonymousRole().getId());
+            if (user != null && !user.getUserId().equals("anonymous")) {
+                roleIds.add(APILocator.getRoleAPI().loadLoggedinSiteRole().getId());
+            }
+        }
+        String key = ESPermissionFilter.keyOf(roleIds);
+        ContentletCache contentletCache = CacheLocator.getContentletCache();
+        ESPermissionFilter permissionFilter = contentletCache.getPermissionFilter(key);
+        if(permissionFilter == null) {
+            permissionFilter = new ESPermissionFilter(roleIds);
+            contentletCache.addPermissionFilter(key, permissionFilter);
+        }
+        return permissionFilter;
+    }
+
     @Override
     public List <ContentletSearch> searchIndex(String luceneQuery, int limit, int offset, String sortBy, User user, boolean respectFrontendRoles)throws DotSecurityException, DotDataException {
         boolean isAdmin = false;
@@ -740,8 +766,13 @@ public class ESContentletAPIImpl implements ContentletAPI {
         StringBuffer buffy = new StringBuffer(luceneQuery);
 
         // Permissions in the query
-        if (!isAdmin)
-            addPermissionsToQuery(buffy, user, roles, respectFrontendRoles);
+        ESPermissionFilter permissionFilter = null;
+        if (!isAdmin) {
+            if(ESPermissionFilter.isEnabled())
+                permissionFilter = getPermissionFilter(user, roles, respectFrontendRoles);
+            else
+                addPermissionsToQuery(buffy, user, roles, respectFrontendRoles);
+        }
 
         int originalLimit = limit;
         if(UtilMethods.isSet(sortBy) && sortBy.trim().equalsIgnoreCase("random")){
@@ -750,7 +781,8 @@ public class ESContentletAPIImpl implements ContentletAPI {
         if(limit>MAX_LIMIT || limit <=0){
             limit = MAX_LIMIT;
         }
-        SearchHits lc = conFac.indexSearch(buffy.toString(), limit, offset, sortBy);
+        SearchHits lc = conFac.indexSearch(buffy.toString(), limit, offset, sortBy, permissionFilter,
+                user != null ? user.getUserId() : null);
         PaginatedArrayList <ContentletSearch> list=new PaginatedArrayList<ContentletSearch>();
         list.setTotalResults(lc.getTotalHits());
 
@@ -3124,6 +3156,14 @@ public class ESContentletAPIImpl implements ContentletAPI {
 
     			            // publish/expire dates changed
     			            APILocator.getIdentifierAPI().save(ident);
+    			            final String scheduledId = ident.getId();
+    			            final Date scheduledPublish = ident.getSysPublishDate();
+    			            final Date scheduledExpire = ident.getSysExpireDate();
+    			            HibernateUtil.addCommitListener("publishExpire:" + scheduledId, new DotRunnable() {
+    			                public void run() {
+    			                    PublishExpireScheduler.schedule(scheduledId, scheduledPublish, scheduledExpire);
+    			                }
+    			            });
 
     			            // we take all inodes associated with that identifier
     			            // remove them from cache and then reindex them
@@ -3186,12 +3226,20 @@ public class ESContentletAPIImpl implements ContentletAPI {
 				            String desc = UtilMethods.getFileName(binFile.getName());
 				            contentlet.setProperty(FileAssetAPI.DESCRIPTION, desc);
 				        }
-				        Map<String, String> metaMap = APILocator.getFileAssetAPI().getMetaDataMap(contentlet, binFile);
+				        // big files are read (hashed and parsed) once the checkin is committed
+				        Map<String, String> metaMap = null;
+				        if(!FileMetadataQueue.isAsync(binFile)) {
+				            metaMap = APILocator.getFileAssetAPI().getMetaDataMap(contentlet, binFile);
+				        }
 
 				        if(metaMap!=null) {
 				            Gson gson = new GsonBuilder().disableHtmlEscaping().create();
 				            contentlet.setProperty(FileAssetAPI.META_DATA_FIELD, gson.toJson(metaMap));
 				            contentlet = conFac.save(contentlet);
+				        } else {
+				            contentlet.setProperty(FileAssetAPI.META_DATA_FIELD, null);
+				            contentlet = conFac.save(contentlet);
+				            FileMetadataQueue.extractLater(contentlet.getInode());
 				        }
 				    }
 
@@ -5446,10 +5494,15 @@ public class ESContentletAPIImpl implements ContentletAPI {
         StringBuffer buffy = new StringBuffer(luceneQuery);
 
         // Permissions in the query
-        if (!isAdmin)
-            addPermissionsToQuery(buffy, user, roles, respectFrontendRoles);
+        ESPermissionFilter permissionFilter = null;
+        if (!isAdmin) {
+            if(ESPermissionFilter.isEnabled())
+                permissionFilter = getPermissionFilter(user, roles, respectFrontendRoles);
+            else
+                addPermissionsToQuery(buffy, user, roles, respectFrontendRoles);
+        }
 
-        return conFac.indexCount(buffy.toString());
+        return conFac.indexCount(buffy.toString(), permissionFilter, user != null ? user.getUserId() : null);
     }
 
 	@Override
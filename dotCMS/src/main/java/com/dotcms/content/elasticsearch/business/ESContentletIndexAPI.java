@@ -340,14 +340,25 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
 		    Logger.debug(this.getClass(), "Indexing " + contentToIndex.size()  + " contents, starting with: " + contentToIndex.get(0).getTitle());
 		}
 
+		// the documents of the whole list are built with one query per batch
+		Map<String,Map<String,Object>> documents = null;
+		if(contentToIndex != null && contentToIndex.size() > 1) {
+		    try {
+		        documents = mappingAPI.toMaps(contentToIndex);
+		    } catch(DotMappingException ex) {
+		        // fall back to one by one so the failing contentlet gets reported
+		        Logger.debug(this, "Unable to map the contentlets in batch, mapping them one by one: " + ex.getMessage());
+		    }
+		}
+
+		IndiciesInfo info=APILocator.getIndiciesAPI().loadIndicies();
+		Gson gson=new Gson();
 		for(Contentlet con : contentToIndex) {
             String id=con.getIdentifier()+"_"+con.getLanguageId();
-            IndiciesInfo info=APILocator.getIndiciesAPI().loadIndicies();
-            Gson gson=new Gson();
             String mapping=null;
             try {
                 if(con.isWorking()) {
-                    mapping=gson.toJson(mappingAPI.toMap(con));
+                    mapping=gson.toJson(documents != null ? documents.get(con.getInode()) : mappingAPI.toMap(con));
                     
                     if(!reindexOnly)
                         req.add(new IndexRequest(info.working, "content", id)
@@ -359,7 +370,7 @@ public class ESContentletIndexAPI implements ContentletIndexAPI{
     
                 if(con.isLive()) {
                     if(mapping==null)
-                        mapping=gson.toJson(mappingAPI.toMap(con));
+                        mapping=gson.toJson(documents != null ? documents.get(con.getInode()) : mappingAPI.toMap(con));
                     
                     if(!reindexOnly)
                         req.add(new IndexRequest(info.live, "content", id)
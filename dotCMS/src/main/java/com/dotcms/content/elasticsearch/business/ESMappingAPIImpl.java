@@ -9,8 +9,10 @@ import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -32,16 +34,13 @@ import com.dotmarketing.beans.Permission;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotStateException;
-import com.dotmarketing.business.PermissionAPI;
 import com.dotmarketing.cache.FieldsCache;
 import com.dotmarketing.common.db.DotConnect;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotRuntimeException;
 import com.dotmarketing.exception.DotSecurityException;
-import com.dotmarketing.portlets.categories.model.Category;
 import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
-import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
 import com.dotmarketing.portlets.fileassets.business.FileAssetAPI;
 import com.dotmarketing.portlets.folders.model.Folder;
 import com.dotmarketing.portlets.structure.business.FieldAPI;
@@ -192,20 +191,61 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 	 * Jun 7, 2013 - 3:47:26 PM
 	 */
 	public Map<String,Object> toMap(Contentlet con) throws DotMappingException {
+		return toMap(con, null);
+	}
+
+	/**
+	 * Batch version of {@link #toMap(Contentlet)}. The categories, permissions,
+	 * workflow tasks, relationships, identifiers and version info of all the
+	 * contentlets are loaded with one query per batch instead of one query per
+	 * contentlet, and the documents are assembled in memory.
+	 *
+	 * @param contentlets the contentlets to map
+	 * @return the lowered maps keyed by contentlet inode, in the order of the
+	 *         given list
+	 * @throws DotMappingException if any of the contentlets could not be mapped
+	 */
+	public Map<String,Map<String,Object>> toMaps(List<Contentlet> contentlets) throws DotMappingException {
+		Map<String,Map<String,Object>> maps = new LinkedHashMap<String,Map<String,Object>>();
+		if(contentlets.size() == 1) {
+			// a single contentlet is cheaper to resolve through the caches
+			maps.put(contentlets.get(0).getInode(), toMap(contentlets.get(0), null));
+			return maps;
+		}
+
+		ESMappingBatch batch;
+		try {
+			batch = new ESMappingBatch(contentlets);
+		} catch (DotDataException e) {
+			throw new DotMappingException(e.getMessage(), e);
+		}
+		for(Contentlet con : contentlets) {
+			maps.put(con.getInode(), toMap(con, batch));
+		}
+		return maps;
+	}
+
+	private Map<String,Object> toMap(Contentlet con, ESMappingBatch batch) throws DotMappingException {
 		try {
 
 			Map<String,String> m = new HashMap<String,String>();
 			Map<String,Object> mlowered=new HashMap<String,Object>();
-			loadCategories(con, m);
+			loadCategories(con, m, batch);
 			loadFields(con, m);
-			loadPermissions(con, m);
-			loadRelationshipFields(con, m);
-
-			Identifier ident = APILocator.getIdentifierAPI().find(con);
-			ContentletVersionInfo cvi = APILocator.getVersionableAPI().getContentletVersionInfo(ident.getId(), con.getLanguageId());
+			loadPermissions(con, m, batch);
+			loadRelationshipFields(con, m, batch);
+
+			Identifier ident = batch != null ? batch.getIdentifier(con) : null;
+			if(ident == null)
+				ident = APILocator.getIdentifierAPI().find(con);
+			Date versionTs = batch != null ? batch.getVersionTs(ident.getId(), con.getLanguageId()) : null;
+			if(versionTs == null)
+				versionTs = APILocator.getVersionableAPI().getContentletVersionInfo(ident.getId(), con.getLanguageId()).getVersionTs();
 			Structure st=CacheLocator.getContentTypeCache().getStructureByInode(con.getStructureInode());
 
-			Folder conFolder=APILocator.getFolderAPI().findFolderByPath(ident.getParentPath(), ident.getHostId(), APILocator.getUserAPI().getSystemUser(), false);
+			Folder conFolder = batch != null
+					? batch.getFolder(ident.getParentPath(), ident.getHostId())
+					: APILocator.getFolderAPI().findFolderByPath(ident.getParentPath(), ident.getHostId(), APILocator.getUserAPI().getSystemUser(), false);
 
 			m.put("title", con.getTitle());
 			m.put("structureName", st.getVelocityVarName()); // marked for DEPRECATION
@@ -229,7 +269,7 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
             m.put("path", ident.getPath());
             
             try{
-            	WorkflowTask task = APILocator.getWorkflowAPI().findTaskByContentlet(con);
+            	WorkflowTask task = batch != null ? batch.getTask(con) : APILocator.getWorkflowAPI().findTaskByContentlet(con);
             	if(task!=null && task.getId()!=null){
             		m.put("wfcreatedBy", task.getCreatedBy());
                     m.put("wfassign", task.getAssignedTo());
@@ -247,14 +287,14 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
             if(UtilMethods.isSet(ident.getSysPublishDate()))
                 m.put("pubdate", datetimeFormat.format(ident.getSysPublishDate()));
             else
-                m.put("pubdate", datetimeFormat.format(cvi.getVersionTs()));
+                m.put("pubdate", datetimeFormat.format(versionTs));
 
             if(UtilMethods.isSet(ident.getSysExpireDate()))
                 m.put("expdate", datetimeFormat.format(ident.getSysExpireDate()));
             else
                 m.put("expdate", "29990101000000");
 
-            m.put("versionTs", datetimeFormat.format(cvi.getVersionTs()));
+            m.put("versionTs", datetimeFormat.format(versionTs));
 
             String urlMap = null;
             try{
@@ -306,8 +346,12 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 		return toJson(con);
 	}
 
-	@SuppressWarnings("unchecked")
 	protected void loadCategories(Contentlet con, Map<String,String> m) throws DotDataException, DotSecurityException {
+		loadCategories(con, m, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void loadCategories(Contentlet con, Map<String,String> m, ESMappingBatch batch) throws DotDataException, DotSecurityException {
 	    // first we check if there is a category field in the structure. We don't hit db if not needed
 	    boolean thereiscategory=false;
 	    Structure st=CacheLocator.getContentTypeCache().getStructureByInode(con.getStructureInode());
@@ -319,16 +363,20 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 	    String categoriesString="";
 
 	    if(thereiscategory) {
-    	    String categoriesSQL = "select category.category_velocity_var_name as cat_velocity_var "+
-                    " from  category join tree on (tree.parent = category.inode) join contentlet c on (c.inode = tree.child) " +
-                    " where c.inode = ?";
-    	    DotConnect db = new DotConnect();
-            db.setSQL(categoriesSQL);
-            db.addParam(con.getInode());
-            ArrayList<String> categories=new ArrayList<String>();
-    	    List<HashMap<String, String>> categoriesResults = db.loadResults();
-    	    for (HashMap<String, String> crow : categoriesResults)
-    	        categories.add(crow.get("cat_velocity_var"));
+            List<String> categories=new ArrayList<String>();
+            if(batch != null) {
+                categories.addAll(batch.getCategories(con));
+            } else {
+        	    String categoriesSQL = "select category.category_velocity_var_name as cat_velocity_var "+
+                        " from  category join tree on (tree.parent = category.inode) join contentlet c on (c.inode = tree.child) " +
+                        " where c.inode = ?";
+        	    DotConnect db = new DotConnect();
+                db.setSQL(categoriesSQL);
+                db.addParam(con.getInode());
+        	    List<HashMap<String, String>> categoriesResults = db.loadResults();
+        	    for (HashMap<String, String> crow : categoriesResults)
+        	        categories.add(crow.get("cat_velocity_var"));
+            }
 
     	    categoriesString=UtilMethods.join(categories, " ").trim();
 
@@ -338,18 +386,22 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
     	            if(!categories.isEmpty()) {
         	            String catId=f.getValues();
 
-        	            // we get all subcategories (recursive)
-        	            Category category=APILocator.getCategoryAPI().find(catId, APILocator.getUserAPI().getSystemUser(), false);
-        	            List<Category> childrens=APILocator.getCategoryAPI().getAllChildren(
-        	                    category, APILocator.getUserAPI().getSystemUser(), false);
-
         	            // we look for categories that match childrens for the
         	            // categoryId of the field
         	            ArrayList<String> fieldCategories=new ArrayList<String>();
-        	            for(String catvelvarname : categories)
-        	                for(Category chCat : childrens)
-        	                    if(chCat.getCategoryVelocityVarName().equals(catvelvarname))
+        	            if(batch != null) {
+        	                // the subcategories are resolved once per batch
+        	                Set<String> childrens=batch.getCategoryChildren(catId);
+        	                for(String catvelvarname : categories)
+        	                    if(childrens.contains(catvelvarname))
         	                        fieldCategories.add(catvelvarname);
+        	            } else {
+            	            // we get all subcategories (recursive)
+            	            Set<String> childrens=APILocator.getCategoryAPI().getAllChildrenVelocityVarNames(catId);
+            	            for(String catvelvarname : categories)
+            	                if(childrens.contains(catvelvarname))
+            	                    fieldCategories.add(catvelvarname);
+        	            }
 
         	            // after matching them we create the JSON field
         	            if(!fieldCategories.isEmpty())
@@ -363,20 +415,25 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
         m.put("categories", categoriesString);
 	}
 
-	@SuppressWarnings("unchecked")
 	protected void loadPermissions(Contentlet con, Map<String,String> m) throws DotDataException {
-        PermissionAPI permissionAPI = APILocator.getPermissionAPI();
-        List<Permission> permissions = permissionAPI.getPermissions(con, false, false, false);
+		loadPermissions(con, m, null);
+	}
+
+	private void loadPermissions(Contentlet con, Map<String,String> m, ESMappingBatch batch) throws DotDataException {
+        List<Permission> permissions = batch != null
+                ? batch.getPermissions(con)
+                : APILocator.getPermissionAPI().getPermissions(con, false, false, false);
         StringBuilder permissionsSt = new StringBuilder();
         boolean ownerCanRead = false;
         boolean ownerCanWrite = false;
         boolean ownerCanPub = false;
+        String ownerRoleId = APILocator.getRoleAPI().loadCMSOwnerRole().getId();
         for (Permission permission : permissions) {
             String str = "P" + permission.getRoleId() + "." + permission.getPermission() + "P ";
             if (permissionsSt.toString().indexOf(str) < 0) {
                 permissionsSt.append(str);
             }
-            if(APILocator.getRoleAPI().loadCMSOwnerRole().getId().equals(String.valueOf(permission.getRoleId()))){
+            if(ownerRoleId.equals(String.valueOf(permission.getRoleId()))){
                 if(permission.getPermission() == PERMISSION_READ){
                     ownerCanRead = true;
                 }else if(permission.getPermission() == PERMISSION_WRITE){
@@ -623,12 +680,22 @@ public class ESMappingAPIImpl implements ContentMappingAPI {
 	}
 
 	protected void loadRelationshipFields(Contentlet con, Map<String,String> m) throws DotStateException, DotDataException {
-	    DotConnect db = new DotConnect();
-        db.setSQL("select * from tree where parent = ? or child = ? order by tree_order asc");
-        db.addParam(con.getIdentifier());
-        db.addParam(con.getIdentifier());
+		loadRelationshipFields(con, m, null);
+	}
+
+	private void loadRelationshipFields(Contentlet con, Map<String,String> m, ESMappingBatch batch) throws DotStateException, DotDataException {
+        List<Map<String, Object>> relatedEntries;
+        if(batch != null) {
+            relatedEntries = batch.getRelationships(con);
+        } else {
+    	    DotConnect db = new DotConnect();
+            db.setSQL("select * from tree where parent = ? or child = ? order by tree_order asc");
+            db.addParam(con.getIdentifier());
+            db.addParam(con.getIdentifier());
+            relatedEntries = db.loadObjectResults();
+        }
 
-        for(Map<String, Object> relatedEntry : db.loadObjectResults()) {
+        for(Map<String, Object> relatedEntry : relatedEntries) {
 
             String childId = relatedEntry.get("child").toString();
             String parentId = relatedEntry.get("parent").toString();
@@ -0,0 +1,311 @@
+package com.dotcms.content.elasticsearch.business;
+
+import static com.dotcms.util.CollectionsUtils.partition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.beans.Permission;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.cache.FieldsCache;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotSecurityException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.folders.model.Folder;
+import com.dotmarketing.portlets.structure.model.Field;
+import com.dotmarketing.portlets.structure.model.Field.FieldType;
+import com.dotmarketing.portlets.workflows.model.WorkflowTask;
+import com.dotmarketing.util.UtilMethods;
+
+/**
+ * Holds the data needed by {@link ESMappingAPIImpl} to build the index
+ * documents of a list of contentlets. Everything that used to be resolved with
+ * one query per contentlet (categories, relationships, workflow tasks,
+ * identifiers, version info and permission references) is loaded here with one
+ * set-based query per {@link #IN_CLAUSE_SIZE} elements, and the lookups that
+ * are shared by many contentlets (category children, folders, inherited
+ * permissions) are resolved only once per batch.
+ */
+class ESMappingBatch {
+
+    /**
+     * Maximum number of elements in a single {@code IN (...)} clause, kept
+     * below the Oracle limit of 1000 expressions.
+     */
+    static final int IN_CLAUSE_SIZE = 500;
+
+    private final Map<String, Identifier> identifiers = new HashMap<String, Identifier>();
+    private final Map<String, Date> versionTimestamps = new HashMap<String, Date>();
+    private final Map<String, List<String>> categories = new HashMap<String, List<String>>();
+    private final Map<String, List<Map<String, Object>>> relationships = new HashMap<String, List<Map<String, Object>>>();
+    private final Map<String, WorkflowTask> tasks = new HashMap<String, WorkflowTask>();
+
+    private final Set<String> individualPermissions = new HashSet<String>();
+    private final Map<String, String> permissionReferences = new HashMap<String, String>();
+    private final Map<String, List<Permission>> inheritedPermissions = new HashMap<String, List<Permission>>();
+
+    private final Map<String, Set<String>> categoryChildren = new HashMap<String, Set<String>>();
+    private final Map<String, Folder> folders = new HashMap<String, Folder>();
+
+    ESMappingBatch(final List<Contentlet> contentlets) throws DotDataException {
+
+        final Set<String> ids = new LinkedHashSet<String>();
+        final Set<String> inodesWithCategories = new LinkedHashSet<String>();
+        for(Contentlet con : contentlets) {
+            ids.add(con.getIdentifier());
+            if(hasCategoryField(con)) {
+                inodesWithCategories.add(con.getInode());
+            }
+        }
+        final List<String> identifierList = new ArrayList<String>(ids);
+
+        for(List<String> chunk : partition(identifierList, IN_CLAUSE_SIZE)) {
+            loadIdentifiers(chunk);
+            loadVersionTimestamps(chunk);
+            loadRelationships(chunk);
+            loadWorkflowTasks(chunk);
+            loadPermissionReferences(chunk);
+        }
+        for(List<String> chunk : partition(new ArrayList<String>(inodesWithCategories), IN_CLAUSE_SIZE)) {
+            loadCategories(chunk);
+        }
+    }
+
+    /**
+     * Returns the identifier of the contentlet, or {@code null} if it was not
+     * found in the batch.
+     */
+    Identifier getIdentifier(final Contentlet con) {
+        return identifiers.get(con.getIdentifier());
+    }
+
+    /**
+     * Returns the version timestamp of the contentlet, or {@code null} if
+     * there is no version info for it.
+     */
+    Date getVersionTs(final String identifier, final long languageId) {
+        return versionTimestamps.get(identifier + "_" + languageId);
+    }
+
+    /**
+     * Returns the velocity var names of the categories of the contentlet.
+     */
+    List<String> getCategories(final Contentlet con) {
+        final List<String> cats = categories.get(con.getInode());
+        return cats != null ? cats : Collections.<String>emptyList();
+    }
+
+    /**
+     * Returns the velocity var names of all the children (recursive) of the
+     * given category. The tree is resolved only once per batch.
+     */
+    Set<String> getCategoryChildren(final String categoryId) throws DotDataException, DotSecurityException {
+        Set<String> children = categoryChildren.get(categoryId);
+        if(children == null) {
+            children = APILocator.getCategoryAPI().getAllChildrenVelocityVarNames(categoryId);
+            categoryChildren.put(categoryId, children);
+        }
+        return children;
+    }
+
+    /**
+     * Returns the {@code tree} rows where the contentlet is either parent or
+     * child, ordered by {@code tree_order}.
+     */
+    List<Map<String, Object>> getRelationships(final Contentlet con) {
+        final List<Map<String, Object>> rows = relationships.get(con.getIdentifier());
+        return rows != null ? rows : Collections.<Map<String, Object>>emptyList();
+    }
+
+    /**
+     * Returns the workflow task of the contentlet, or {@code null} if it
+     * has none.
+     */
+    WorkflowTask getTask(final Contentlet con) {
+        return tasks.get(con.getIdentifier());
+    }
+
+    /**
+     * Returns the folder for the given path. Folders are resolved only once
+     * per batch.
+     */
+    Folder getFolder(final String parentPath, final String hostId) throws DotDataException, DotSecurityException {
+        final String key = hostId + ":" + parentPath;
+        if(!folders.containsKey(key)) {
+            folders.put(key, APILocator.getFolderAPI().findFolderByPath(parentPath, hostId, APILocator.getUserAPI().getSystemUser(), false));
+        }
+        return folders.get(key);
+    }
+
+    /**
+     * Returns the permissions of the contentlet. Contentlets without
+     * individual permissions that inherit from the same permissionable share
+     * the same permission list, so it is loaded only once per batch.
+     */
+    List<Permission> getPermissions(final Contentlet con) throws DotDataException {
+        final String permissionId = con.getPermissionId();
+        final String reference = permissionReferences.get(permissionId);
+        if(reference == null || individualPermissions.contains(permissionId)) {
+            return APILocator.getPermissionAPI().getPermissions(con, false, false, false);
+        }
+        List<Permission> permissions = inheritedPermissions.get(reference);
+        if(permissions == null) {
+            permissions = APILocator.getPermissionAPI().getPermissions(con, false, false, false);
+            inheritedPermissions.put(reference, permissions);
+        }
+        return permissions;
+    }
+
+    private boolean hasCategoryField(final Contentlet con) {
+        for(Field f : FieldsCache.getFieldsByStructureInode(con.getStructureInode())) {
+            if(f.getFieldType().equals(FieldType.CATEGORY.toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadIdentifiers(final List<String> ids) throws DotDataException {
+        final List<String> missing = new ArrayList<String>();
+        for(String id : ids) {
+            final Identifier ident = APILocator.getIdentifierAPI().loadFromCache(id);
+            if(ident != null && UtilMethods.isSet(ident.getId())) {
+                identifiers.put(id, ident);
+            } else {
+                missing.add(id);
+            }
+        }
+        if(missing.isEmpty()) {
+            return;
+        }
+
+        final HibernateUtil hu = new HibernateUtil(Identifier.class);
+        hu.setQuery("from identifier in class com.dotmarketing.beans.Identifier where id in ("
+                + DotConnect.createParametersPlaceholder(missing.size()) + ")");
+        for(String id : missing) {
+            hu.setParam(id);
+        }
+        for(Identifier ident : (List<Identifier>) hu.list()) {
+            identifiers.put(ident.getId(), ident);
+        }
+    }
+
+    private void loadVersionTimestamps(final List<String> ids) throws DotDataException {
+        final DotConnect dc = new DotConnect();
+        dc.setSQL("select identifier,lang,version_ts from contentlet_version_info where identifier in ("
+                + DotConnect.createParametersPlaceholder(ids.size()) + ")");
+        for(String id : ids) {
+            dc.addParam(id);
+        }
+        for(Map<String, Object> row : dc.loadObjectResults()) {
+            versionTimestamps.put(row.get("identifier") + "_" + ((Number) row.get("lang")).longValue(),
+                    (Date) row.get("version_ts"));
+        }
+    }
+
+    private void loadRelationships(final List<String> ids) throws DotDataException {
+        final String placeholders = DotConnect.createParametersPlaceholder(ids.size());
+        final DotConnect dc = new DotConnect();
+        dc.setSQL("select * from tree where parent in (" + placeholders + ") or child in (" + placeholders
+                + ") order by tree_order asc");
+        for(String id : ids) {
+            dc.addParam(id);
+        }
+        for(String id : ids) {
+            dc.addParam(id);
+        }
+        for(Map<String, Object> row : dc.loadObjectResults()) {
+            addRelationship(row.get("parent").toString(), row);
+            final String child = row.get("child").toString();
+            if(!child.equals(row.get("parent").toString())) {
+                addRelationship(child, row);
+            }
+        }
+    }
+
+    private void addRelationship(final String identifier, final Map<String, Object> row) {
+        List<Map<String, Object>> rows = relationships.get(identifier);
+        if(rows == null) {
+            rows = new ArrayList<Map<String, Object>>();
+            relationships.put(identifier, rows);
+        }
+        rows.add(row);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadWorkflowTasks(final List<String> ids) throws DotDataException {
+        final HibernateUtil hu = new HibernateUtil(WorkflowTask.class);
+        hu.setQuery("from workflow_task in class com.dotmarketing.portlets.workflows.model.WorkflowTask where webasset in ("
+                + DotConnect.createParametersPlaceholder(ids.size()) + ")");
+        for(String id : ids) {
+            hu.setParam(id);
+        }
+        for(WorkflowTask task : (List<WorkflowTask>) hu.list()) {
+            if(task.getId() != null && !tasks.containsKey(task.getWebasset())) {
+                tasks.put(task.getWebasset(), task);
+            }
+        }
+    }
+
+    private void loadPermissionReferences(final List<String> ids) throws DotDataException {
+        final String placeholders = DotConnect.createParametersPlaceholder(ids.size());
+
+        DotConnect dc = new DotConnect();
+        dc.setSQL("select distinct inode_id from permission where inode_id in (" + placeholders + ")");
+        for(String id : ids) {
+            dc.addParam(id);
+        }
+        for(Map<String, Object> row : dc.loadObjectResults()) {
+            individualPermissions.add(row.get("inode_id").toString());
+        }
+
+        dc = new DotConnect();
+        dc.setSQL("select asset_id,reference_id,permission_type from permission_reference where asset_id in (" + placeholders + ")");
+        for(String id : ids) {
+            dc.addParam(id);
+        }
+        final Set<String> ambiguous = new HashSet<String>();
+        for(Map<String, Object> row : dc.loadObjectResults()) {
+            final String assetId = row.get("asset_id").toString();
+            final String reference = row.get("reference_id") + ":" + row.get("permission_type");
+            if(permissionReferences.containsKey(assetId) && !reference.equals(permissionReferences.get(assetId))) {
+                ambiguous.add(assetId);
+            }
+            permissionReferences.put(assetId, reference);
+        }
+        // assets with more than one reference are resolved one by one
+        for(String assetId : ambiguous) {
+            permissionReferences.remove(assetId);
+        }
+    }
+
+    private void loadCategories(final List<String> inodes) throws DotDataException {
+        final DotConnect dc = new DotConnect();
+        dc.setSQL("select tree.child as con_inode, category.category_velocity_var_name as cat_velocity_var "
+                + " from category join tree on (tree.parent = category.inode) where tree.child in ("
+                + DotConnect.createParametersPlaceholder(inodes.size()) + ")");
+        for(String inode : inodes) {
+            dc.addParam(inode);
+        }
+        for(Map<String, Object> row : dc.loadObjectResults()) {
+            final String inode = row.get("con_inode").toString();
+            List<String> cats = categories.get(inode);
+            if(cats == null) {
+                cats = new ArrayList<String>();
+                categories.put(inode, cats);
+            }
+            cats.add((String) row.get("cat_velocity_var"));
+        }
+    }
+}
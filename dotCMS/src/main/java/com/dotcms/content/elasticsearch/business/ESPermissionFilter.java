@@ -0,0 +1,130 @@
+package com.dotcms.content.elasticsearch.business;
+
+import com.dotcms.repackage.org.apache.commons.codec.digest.DigestUtils;
+import com.dotmarketing.util.Config;
+
+import org.elasticsearch.index.query.BoolFilterBuilder;
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * The read permission constraint of a search, for a set of roles. It is sent
+ * to Elasticsearch as a terms filter on the <code>permissions</code> field
+ * instead of being appended to the query text, so the content part of the
+ * query is the same for all the users and the filter is the same for all the
+ * users with the same roles.
+ * <p>
+ * The role ids are sorted, so the filter and its key only depend on the set of
+ * roles. Filters are cached by {@link ESContentletAPIImpl} in the
+ * <code>ESPermissionFilterCache</code> region of the
+ * {@link com.dotmarketing.portlets.contentlet.business.ContentletCache}, and
+ * Elasticsearch caches the documents they match under the same key.
+ * <p>
+ * With <code>ELASTICSEARCH_USE_PERMISSION_FILTERS=false</code> the permissions
+ * are appended to the query text as before, and no filter is used.
+ */
+public class ESPermissionFilter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String key;
+    private final String[] terms;
+
+    /**
+     * @param roleIds the ids of the roles that can read the content
+     */
+    public ESPermissionFilter(final Collection<String> roleIds) {
+
+        final TreeSet<String> sorted = new TreeSet<String>();
+        for (final String roleId : roleIds) {
+            sorted.add(roleId.toLowerCase());
+        }
+
+        this.terms = new String[sorted.size()];
+        int i = 0;
+        for (final String roleId : sorted) {
+            // the permissions are indexed as "p<role id>.<permission>p", lowercased
+            terms[i++] = "p" + roleId + ".1p";
+        }
+        this.key = keyOf(sorted);
+    }
+
+    /**
+     * @return false if the permissions must be appended to the query text instead
+     */
+    public static boolean isEnabled() {
+        return Config.getBooleanProperty("ELASTICSEARCH_USE_PERMISSION_FILTERS", true);
+    }
+
+    /**
+     * Restricts the query to the content the permission filter allows
+     *
+     * @param permissionFilter null to not restrict the query
+     * @param userId the user searching, may be null
+     * @return the query itself when there is no filter
+     */
+    public static QueryBuilder filter(final QueryBuilder query, final ESPermissionFilter permissionFilter, final String userId) {
+        return permissionFilter == null ? query : QueryBuilders.filteredQuery(query, permissionFilter.toFilterBuilder(userId));
+    }
+
+    /**
+     * @return the hash of the sorted role ids, the key of the filter for the roles
+     */
+    public static String keyOf(final Collection<String> roleIds) {
+        return "perm_" + DigestUtils.shaHex(canonical(roleIds));
+    }
+
+    private static String canonical(final Collection<String> roleIds) {
+
+        final TreeSet<String> sorted = new TreeSet<String>();
+        for (final String roleId : roleIds) {
+            sorted.add(roleId.toLowerCase());
+        }
+        final StringBuilder canonical = new StringBuilder();
+        for (final String roleId : sorted) {
+            canonical.append(roleId).append(',');
+        }
+        return canonical.toString();
+    }
+
+    /**
+     * @return the hash of the sorted role ids
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public String[] getTerms() {
+        return terms.clone();
+    }
+
+    /**
+     * Builds the filter, matching the content the roles can read or, when an
+     * user is given, the content it owns and its owner can read.
+     *
+     * @param userId the user searching, may be null
+     * @return FilterBuilder
+     */
+    public FilterBuilder toFilterBuilder(final String userId) {
+
+        final BoolFilterBuilder filter = FilterBuilders.boolFilter();
+        boolean empty = true;
+        if (terms.length > 0) {
+            filter.should(FilterBuilders.termsFilter("permissions", (Object[]) terms).cacheKey(key).cache(true));
+            empty = false;
+        }
+        if (userId != null) {
+            filter.should(FilterBuilders.boolFilter()
+                    .must(FilterBuilders.termFilter("owner", userId.toLowerCase()))
+                    .must(FilterBuilders.termFilter("ownercanread", "true")));
+            empty = false;
+        }
+        return empty ? FilterBuilders.notFilter(FilterBuilders.matchAllFilter()) : filter;
+    }
+}
@@ -0,0 +1,307 @@
+package com.dotcms.content.elasticsearch.business;
+
+import com.dotmarketing.util.UtilMethods;
+
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.index.query.BoolFilterBuilder;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The compiled form of a content query, the translated Lucene query with its
+ * dates already resolved, the index it has to hit and the parsed sort.
+ * <p>
+ * The top level clauses that just require or exclude a single term, like
+ * <code>+live:true +languageid:1 +structurename:news</code>, are moved out of
+ * the query string into term filters, which Elasticsearch caches and does not
+ * need to parse on every request. Clauses are only moved when every top level
+ * clause of the query is required or prohibited, so the remaining query string
+ * matches the same documents.
+ * <p>
+ * Plans are cached by {@link ESContentFactoryImpl} in the
+ * <code>ESQueryPlanCache</code> region of the {@link com.dotmarketing.portlets.contentlet.business.ContentletCache}.
+ */
+public class ESQueryPlan implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Pattern TERM_CLAUSE = Pattern.compile("[+-][a-z0-9_.]+:[a-z0-9_][a-z0-9_.\\-]*");
+
+    private final String fullQuery;
+    private final String query;
+    private final List<Term> mustTerms;
+    private final List<Term> mustNotTerms;
+    private final boolean live;
+    private final List<Sort> sorts;
+
+    /**
+     * @param fullQuery the translated query with its dates resolved
+     * @param live true if the query has to hit the live index
+     * @param sortBy the sort requested by the caller, may be null
+     */
+    public ESQueryPlan(final String fullQuery, final boolean live, final String sortBy) {
+
+        this.fullQuery = fullQuery;
+        this.live = live;
+        this.sorts = parseSort(sortBy);
+
+        final List<Term> must = new ArrayList<Term>();
+        final List<Term> mustNot = new ArrayList<Term>();
+        final StringBuilder remaining = new StringBuilder();
+        boolean requiredClause = false;
+        boolean splittable = true;
+
+        for (final String clause : splitClauses(fullQuery)) {
+
+            if (TERM_CLAUSE.matcher(clause).matches()) {
+                final int colon = clause.indexOf(':');
+                final Term term = new Term(clause.substring(1, colon), clause.substring(colon + 1));
+                if (clause.charAt(0) == '+') {
+                    must.add(term);
+                } else {
+                    mustNot.add(term);
+                }
+            } else if (clause.length() > 1 && (clause.charAt(0) == '+' || clause.charAt(0) == '-')) {
+                requiredClause |= clause.charAt(0) == '+';
+                remaining.append(clause).append(' ');
+            } else {
+                // an optional clause (or an operator) changes its meaning once it is left alone
+                splittable = false;
+                break;
+            }
+        }
+
+        // a query string with only prohibited clauses does not match anything
+        if (splittable && remaining.length() > 0 && !requiredClause) {
+            splittable = false;
+        }
+
+        if (splittable && (!must.isEmpty() || !mustNot.isEmpty())) {
+            this.query = remaining.toString().trim();
+            this.mustTerms = Collections.unmodifiableList(must);
+            this.mustNotTerms = Collections.unmodifiableList(mustNot);
+        } else {
+            this.query = fullQuery;
+            this.mustTerms = Collections.emptyList();
+            this.mustNotTerms = Collections.emptyList();
+        }
+    }
+
+    /**
+     * @return the whole query string, with no clauses moved to filters
+     */
+    public String getFullQuery() {
+        return fullQuery;
+    }
+
+    /**
+     * @return the query string left once the term clauses are moved to filters, empty if nothing is left
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    public boolean isLive() {
+        return live;
+    }
+
+    public boolean hasFilters() {
+        return !mustTerms.isEmpty() || !mustNotTerms.isEmpty();
+    }
+
+    public List<Term> getMustTerms() {
+        return mustTerms;
+    }
+
+    public List<Term> getMustNotTerms() {
+        return mustNotTerms;
+    }
+
+    /**
+     * Builds the query, with the term clauses as cached filters
+     *
+     * @return QueryBuilder
+     */
+    public QueryBuilder toQueryBuilder() {
+
+        if (!hasFilters()) {
+            return QueryBuilders.queryString(fullQuery);
+        }
+
+        final BoolFilterBuilder filter = FilterBuilders.boolFilter();
+        for (final Term term : mustTerms) {
+            filter.must(FilterBuilders.termFilter(term.getField(), term.getValue()).cache(true));
+        }
+        for (final Term term : mustNotTerms) {
+            filter.mustNot(FilterBuilders.termFilter(term.getField(), term.getValue()).cache(true));
+        }
+
+        return QueryBuilders.filteredQuery(UtilMethods.isSet(query)
+                ? QueryBuilders.queryString(query) : QueryBuilders.matchAllQuery(), filter);
+    }
+
+    /**
+     * Adds the parsed sort to the request
+     *
+     * @param srb SearchRequestBuilder
+     */
+    public void addSorts(final SearchRequestBuilder srb) {
+
+        for (final Sort sort : sorts) {
+            if (sort.relName != null) {
+                srb.addSort(SortBuilders.scriptSort("related", "number")
+                        .lang("native")
+                        .param("relName", sort.relName)
+                        .param("identifier", sort.identifier)
+                        .order(SortOrder.ASC));
+            } else {
+                srb.addSort(sort.field, sort.desc ? SortOrder.DESC : SortOrder.ASC);
+            }
+        }
+    }
+
+    /**
+     * Splits the query in its top level clauses, the ones separated by
+     * whitespace outside of any group, range or phrase
+     */
+    static List<String> splitClauses(final String query) {
+
+        final List<String> clauses = new ArrayList<String>();
+        final StringBuilder clause = new StringBuilder();
+        int depth = 0;
+        boolean quoted = false;
+
+        for (int i = 0; i < query.length(); i++) {
+
+            final char c = query.charAt(i);
+            if (c == '\\' && i + 1 < query.length()) {
+                clause.append(c).append(query.charAt(++i));
+                continue;
+            }
+
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (c == '(' || c == '[' || c == '{')) {
+                depth++;
+            } else if (!quoted && (c == ')' || c == ']' || c == '}')) {
+                depth--;
+            } else if (!quoted && depth <= 0 && Character.isWhitespace(c)) {
+                if (clause.length() > 0) {
+                    clauses.add(clause.toString());
+                    clause.setLength(0);
+                }
+                continue;
+            }
+            clause.append(c);
+        }
+
+        if (clause.length() > 0) {
+            clauses.add(clause.toString());
+        }
+        return clauses;
+    }
+
+    private static List<Sort> parseSort(String sortBy) {
+
+        if (!UtilMethods.isSet(sortBy)) {
+            return Collections.emptyList();
+        }
+
+        final List<Sort> sorts = new ArrayList<Sort>();
+        sortBy = sortBy.toLowerCase();
+        if (sortBy.endsWith("-order")) {
+            // related content ordering
+            int ind0 = sortBy.indexOf('-'); // relationships tipicaly have a format stname1-stname2
+            int ind1 = ind0 > 0 ? sortBy.indexOf('-', ind0 + 1) : -1;
+            if (ind1 > 0 && (ind1 + 1) < sortBy.length()) {
+                String identifier = sortBy.substring(ind1 + 1, sortBy.length() - 6);
+                if (UtilMethods.isSet(identifier)) {
+                    sorts.add(new Sort(sortBy.substring(0, ind1), identifier));
+                }
+            }
+        } else if (sortBy.startsWith("score")) {
+            String[] test = sortBy.split("\\s+");
+            String defualtSecondarySort = "moddate";
+            boolean defaultSecondardDesc = true;
+
+            if (test.length > 2) {
+                defaultSecondardDesc = test[2].equalsIgnoreCase("desc");
+            }
+            if (test.length > 1) {
+                defualtSecondarySort = test[1];
+            }
+
+            sorts.add(new Sort("_score", true));
+            sorts.add(new Sort(defualtSecondarySort, defaultSecondardDesc));
+        } else if (!sortBy.startsWith("undefined") && !sortBy.equals("random")) {
+            for (String sort : sortBy.split(",")) {
+                String[] x = sort.trim().split(" ");
+                sorts.add(new Sort(x[0].toLowerCase() + "_dotraw", x.length > 1 && x[1].equalsIgnoreCase("desc")));
+            }
+        }
+        return Collections.unmodifiableList(sorts);
+    }
+
+    /**
+     * A single term required or excluded by the query
+     */
+    public static class Term implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String field;
+        private final String value;
+
+        Term(final String field, final String value) {
+            this.field = field;
+            this.value = value;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return field + ":" + value;
+        }
+    }
+
+    private static class Sort implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String field;
+        private final boolean desc;
+        private final String relName;
+        private final String identifier;
+
+        Sort(final String field, final boolean desc) {
+            this.field = field;
+            this.desc = desc;
+            this.relName = null;
+            this.identifier = null;
+        }
+
+        Sort(final String relName, final String identifier) {
+            this.field = null;
+            this.desc = false;
+            this.relName = relName;
+            this.identifier = identifier;
+        }
+    }
+
+}
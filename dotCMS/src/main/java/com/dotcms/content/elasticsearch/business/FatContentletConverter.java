@@ -0,0 +1,362 @@
+package com.dotcms.content.elasticsearch.business;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.cache.FieldsCache;
+import com.dotmarketing.exception.DotRuntimeException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.contentlet.model.ContentletLayout;
+import com.dotmarketing.portlets.contentlet.model.ContentletSlotMap;
+import com.dotmarketing.portlets.structure.business.FieldAPI;
+import com.dotmarketing.portlets.structure.model.Field;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Copies the field values between the contentlets and the hibernate beans with
+ * the generic text1..25, date1..25, etc. columns.
+ *
+ * For every structure it keeps the {@link ContentletLayout} of its contentlets
+ * and the accessors of the columns used by its fields. The accessors are
+ * generated once per column with {@link LambdaMetafactory}, so copying a
+ * contentlet does not go through reflection. The structure is prepared again
+ * when its fields change, and forgotten when {@link FieldsCache} removes its
+ * fields. The layouts of the contentlets deserialized by the caches are
+ * replaced by the shared one, see {@link #share(ContentletLayout)}.
+ */
+public class FatContentletConverter {
+
+    private static final List<String> SYSTEM_KEYS = Collections.unmodifiableList(Arrays.asList(
+            Contentlet.INODE_KEY, Contentlet.IDENTIFIER_KEY, Contentlet.STRUCTURE_INODE_KEY,
+            Contentlet.LANGUAGEID_KEY, Contentlet.SORT_ORDER_KEY, Contentlet.MOD_DATE_KEY,
+            Contentlet.MOD_USER_KEY, Contentlet.OWNER_KEY, Contentlet.HOST_KEY, Contentlet.FOLDER_KEY,
+            Contentlet.LAST_REVIEW_KEY, Contentlet.NEXT_REVIEW_KEY, Contentlet.REVIEW_INTERNAL_KEY,
+            Contentlet.DISABLED_WYSIWYG_KEY, "title"));
+
+    private static final String[] COLUMN_TYPES = { "text", "date", "integer", "float", "bool", "binary" };
+
+    private static final Map<String, Column> columns = compileColumns();
+
+    private static final FatContentletConverter instance = new FatContentletConverter();
+
+    private final Map<String, StructureConverter> converters = new ConcurrentHashMap<String, StructureConverter>();
+
+    private final Map<String, ContentletLayout> layouts = new ConcurrentHashMap<String, ContentletLayout>();
+
+    /**
+     * @return The converter shared by the content factory and the caches, so
+     *         all the contentlets of a structure share its layout
+     */
+    public static FatContentletConverter getInstance() {
+        return instance;
+    }
+
+    private FatContentletConverter() {
+
+    }
+
+    /**
+     * Accessors of a column of the hibernate bean, the primitive values are boxed.
+     */
+    private static final class Column {
+
+        final Class<?> type;
+        final Function<Object, Object> getter;
+        final BiConsumer<Object, Object> setter;
+
+        Column(final Class<?> type, final Function<Object, Object> getter, final BiConsumer<Object, Object> setter) {
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    /**
+     * The fields of a structure and the columns they are read from and written to.
+     */
+    private static final class StructureConverter {
+
+        final List<Field> fields;
+        final ContentletLayout layout;
+
+        final Field[] readFields;
+        final int[] readSlots;
+        final Column[] readColumns;
+
+        final Field[] writeFields;
+        final Column[] writeColumns;
+
+        /**
+         * @param shared The layout the contentlets of the structure share, kept
+         *            if the fields still have the same keys
+         */
+        StructureConverter(final String structureInode, final List<Field> fields, final ContentletLayout shared) {
+
+            this.fields = fields;
+            final FieldAPI fieldAPI = APILocator.getFieldAPI();
+
+            final List<String> keys = new ArrayList<String>(SYSTEM_KEYS);
+            for (final Field field : fields) {
+                keys.add(field.getVelocityVarName());
+            }
+            final ContentletLayout layout = new ContentletLayout(structureInode, keys);
+            this.layout = layout.hasSameKeys(shared) ? shared : layout;
+
+            final List<Field> read = new ArrayList<Field>();
+            final List<Field> write = new ArrayList<Field>();
+            for (final Field field : fields) {
+                if (!fieldAPI.valueSettable(field)
+                        || Field.FieldType.HOST_OR_FOLDER.toString().equals(field.getFieldType())) {
+                    continue;
+                }
+                final String column = field.getFieldContentlet();
+                // the constant values are copied only to the text fields, as copyProperties does
+                if (column != null && columnType(column) != null
+                        && (!fieldAPI.isElementConstant(field) || column.startsWith("text"))) {
+                    read.add(field);
+                }
+                if (!Field.FieldType.BINARY.toString().equals(field.getFieldType())) {
+                    write.add(field);
+                }
+            }
+
+            this.readFields = read.toArray(new Field[read.size()]);
+            this.readSlots = new int[readFields.length];
+            this.readColumns = new Column[readFields.length];
+            for (int i = 0; i < readFields.length; i++) {
+                readSlots[i] = layout.slot(readFields[i].getVelocityVarName());
+                readColumns[i] = fieldAPI.isElementConstant(readFields[i]) ? null : columns.get(readFields[i].getFieldContentlet());
+            }
+
+            this.writeFields = write.toArray(new Field[write.size()]);
+            this.writeColumns = new Column[writeFields.length];
+            for (int i = 0; i < writeFields.length; i++) {
+                writeColumns[i] = columns.get(writeFields[i].getFieldContentlet());
+            }
+        }
+
+        /**
+         * @return true if the structure still has the same fields
+         */
+        boolean matches(final List<Field> current) {
+
+            if (current == fields) {
+                return true;
+            }
+            if (current.size() != fields.size()) {
+                return false;
+            }
+            for (int i = 0; i < current.size(); i++) {
+                final Field a = current.get(i);
+                final Field b = fields.get(i);
+                if (!equal(a.getVelocityVarName(), b.getVelocityVarName())
+                        || !equal(a.getFieldContentlet(), b.getFieldContentlet())
+                        || !equal(a.getFieldType(), b.getFieldType())
+                        || !equal(a.getValues(), b.getValues())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean equal(final String a, final String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    private StructureConverter getConverter(final String structureInode) {
+
+        final List<Field> fields = FieldsCache.getFieldsByStructureInode(structureInode);
+        StructureConverter converter = converters.get(structureInode);
+        if (converter == null || !converter.matches(fields)) {
+            converter = new StructureConverter(structureInode, fields, layouts.get(structureInode));
+            layouts.put(structureInode, converter.layout);
+            converters.put(structureInode, converter);
+        }
+        return converter;
+    }
+
+    /**
+     * Forgets the fields of a structure that changed or was deleted.
+     */
+    public void remove(final String structureInode) {
+        if (structureInode != null) {
+            converters.remove(structureInode);
+            layouts.remove(structureInode);
+        }
+    }
+
+    public void clear() {
+        converters.clear();
+        layouts.clear();
+    }
+
+    /**
+     * Used when a layout is deserialized, so the contentlets read from a cache
+     * don't get a copy of the layout each.
+     *
+     * @return The layout shared by the contentlets of its structure, or the
+     *         given one if it becomes the shared one or the structure changed
+     */
+    public ContentletLayout share(final ContentletLayout layout) {
+
+        final ContentletLayout shared = layouts.putIfAbsent(layout.getStructureInode(), layout);
+        return layout.hasSameKeys(shared) ? shared : layout;
+    }
+
+    /**
+     * @return A contentlet of the structure, backed by a {@link ContentletSlotMap}
+     */
+    public Contentlet newContentlet(final String structureInode) {
+
+        final Contentlet contentlet = new Contentlet(new ContentletSlotMap(getConverter(structureInode).layout));
+        contentlet.setStructureInode(structureInode);
+        return contentlet;
+    }
+
+    /**
+     * Copies the field values of the hibernate bean to the contentlet, which
+     * must be of the same structure.
+     */
+    public void copyToContentlet(final com.dotmarketing.portlets.contentlet.business.Contentlet fatty,
+            final Contentlet contentlet) {
+
+        final StructureConverter converter = getConverter(fatty.getStructureInode());
+        final Map<String, Object> map = contentlet.getMap();
+        for (int i = 0; i < converter.readFields.length; i++) {
+            final Field field = converter.readFields[i];
+            final Column column = converter.readColumns[i];
+            Object value;
+            if (column == null) {
+                value = field.getValues();
+            } else {
+                value = column.getter.apply(fatty);
+                if (value == null && column.type == java.io.File.class) {
+                    value = fatty.findBinaryFile(field);
+                }
+            }
+            if (value != null) {
+                map.put(field.getVelocityVarName(), value);
+            }
+        }
+    }
+
+    /**
+     * Copies the field values of the contentlet to the hibernate bean. The
+     * values that are not of the type of the column are converted by
+     * {@link com.dotmarketing.portlets.contentlet.business.Contentlet#setField(Field, Object)}
+     */
+    public void copyToFatContentlet(final Contentlet contentlet,
+            final com.dotmarketing.portlets.contentlet.business.Contentlet fatty) {
+
+        final StructureConverter converter = getConverter(contentlet.getStructureInode());
+        for (int i = 0; i < converter.writeFields.length; i++) {
+            final Field field = converter.writeFields[i];
+            final Column column = converter.writeColumns[i];
+            Object value = contentlet.get(field.getVelocityVarName());
+            if (value instanceof Timestamp) {
+                value = new Date(((Timestamp) value).getTime());
+            }
+            if (value instanceof String && ((String) value).indexOf("\\u") > -1) {
+                value = ((String) value).replace("\\u", "${esc.b}u");
+            }
+            if (column != null && column.type.isInstance(value)) {
+                column.setter.accept(fatty, value);
+            } else {
+                fatty.setField(field, value);
+            }
+        }
+    }
+
+    private static String columnType(final String column) {
+
+        for (final String type : COLUMN_TYPES) {
+            if (column.startsWith(type)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, Column> compileColumns() {
+
+        final Map<String, Column> columns = new HashMap<String, Column>();
+        final BeanInfo beanInfo;
+        try {
+            beanInfo = Introspector.getBeanInfo(com.dotmarketing.portlets.contentlet.business.Contentlet.class);
+        } catch (IntrospectionException e) {
+            throw new DotRuntimeException(e.getMessage(), e);
+        }
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (final PropertyDescriptor property : beanInfo.getPropertyDescriptors()) {
+            final String name = property.getName();
+            if (columnType(name) == null || !name.matches("[a-z_]+[0-9]+")
+                    || property.getReadMethod() == null || property.getWriteMethod() == null) {
+                continue;
+            }
+            columns.put(name, compile(lookup, property));
+        }
+        return columns;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Column compile(final MethodHandles.Lookup lookup, final PropertyDescriptor property) {
+
+        final Class<?> fat = com.dotmarketing.portlets.contentlet.business.Contentlet.class;
+        final Class<?> type = MethodType.methodType(property.getPropertyType()).wrap().returnType();
+        final Method read = property.getReadMethod();
+        final Method write = property.getWriteMethod();
+        try {
+            final MethodHandle getter = lookup.unreflect(read);
+            final MethodHandle setter = lookup.unreflect(write);
+            final Function<Object, Object> getterFunction = (Function<Object, Object>) LambdaMetafactory.metafactory(
+                    lookup, "apply", MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class), getter,
+                    MethodType.methodType(type, fat)).getTarget().invoke();
+            final BiConsumer<Object, Object> setterFunction = (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(
+                    lookup, "accept", MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class), setter,
+                    MethodType.methodType(void.class, fat, type)).getTarget().invoke();
+            return new Column(type, getterFunction, setterFunction);
+        } catch (Throwable e) {
+            Logger.warn(FatContentletConverter.class, "Unable to generate the accessors of " + property.getName()
+                    + ", using reflection: " + e.getMessage());
+            return new Column(type, new Function<Object, Object>() {
+                public Object apply(final Object bean) {
+                    try {
+                        return read.invoke(bean);
+                    } catch (Exception ex) {
+                        throw new DotRuntimeException("Unable to obtain contentlet property value for: " + property.getName(), ex);
+                    }
+                }
+            }, new BiConsumer<Object, Object>() {
+                public void accept(final Object bean, final Object value) {
+                    try {
+                        write.invoke(bean, value);
+                    } catch (Exception ex) {
+                        throw new DotRuntimeException("Unable to set the contentlet field.", ex);
+                    }
+                }
+            });
+        }
+    }
+}
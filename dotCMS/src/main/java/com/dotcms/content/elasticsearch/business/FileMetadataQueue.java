@@ -0,0 +1,293 @@
+package com.dotcms.content.elasticsearch.business;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
+import com.dotcms.repackage.com.google.gson.Gson;
+import com.dotcms.repackage.com.google.gson.GsonBuilder;
+import com.dotcms.tika.TikaUtils;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.DotRunnable;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.fileassets.business.FileAssetAPI;
+import com.dotmarketing.portlets.structure.factories.StructureFactory;
+import com.dotmarketing.portlets.structure.model.Field;
+import com.dotmarketing.portlets.structure.model.Structure;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+
+/**
+ * Extracts the metadata of file assets in a bounded pool of workers, so the
+ * checkin of a big file does not wait for it to be parsed. The file asset is
+ * saved without metadata and, once the checkin is committed, a worker parses
+ * the file, saves the metadata in the same version and reindexes it.
+ * <p>
+ * The versions waiting for their metadata are the ones with an empty metadata
+ * field, the database is the queue. The versions without binary or that can't
+ * be parsed get empty metadata, <code>{}</code>, so they leave the queue too.
+ * When every worker is busy and the queue is full the extraction is dropped,
+ * and {@link #recover()} queues it again. It runs on startup and every
+ * FILE_METADATA_RECOVER_INTERVAL_SECONDS, in the leader of the cluster only,
+ * and finds the versions without metadata, those dropped and those left behind
+ * by a restart.
+ */
+public class FileMetadataQueue {
+
+    /**
+     * Extracts and saves the metadata of a version
+     */
+    interface Extractor {
+
+        void extract(String inode) throws Exception;
+    }
+
+    /**
+     * Finds up to a number of versions waiting for their metadata
+     */
+    interface PendingFinder {
+
+        List<String> find(int limit) throws DotDataException;
+    }
+
+    /**
+     * Tells if this server is the one that recovers the pending versions
+     */
+    interface LeaderCheck {
+
+        boolean isLeader() throws DotDataException;
+    }
+
+    private static final FileMetadataQueue instance = new FileMetadataQueue(
+            Config.getIntProperty("FILE_METADATA_THREADS", 2), Config.getIntProperty("FILE_METADATA_QUEUE_SIZE", 1000),
+            FileMetadataQueue::extractMetadata, FileMetadataQueue::findPending,
+            () -> APILocator.getServerAPI().isLeader());
+
+    private static ScheduledExecutorService recoverer;
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicLong dropped = new AtomicLong();
+    private final ThreadPoolExecutor workers;
+    private final Extractor extractor;
+    private final PendingFinder finder;
+    private final LeaderCheck leaderCheck;
+
+    @VisibleForTesting
+    FileMetadataQueue(final int threads, final int queueSize, final Extractor extractor, final PendingFinder finder,
+            final LeaderCheck leaderCheck) {
+        this.extractor = extractor;
+        this.finder = finder;
+        this.leaderCheck = leaderCheck;
+        this.workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "FileMetadataWorker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return true if the metadata of the given file is extracted after the checkin
+     */
+    public static boolean isAsync(File binFile) {
+        return Config.getBooleanProperty("FILE_METADATA_ASYNC", true)
+                && binFile.length() >= Config.getLongProperty("FILE_METADATA_ASYNC_MIN_SIZE_KB", 1024) * 1024;
+    }
+
+    /**
+     * Queues the extraction of the metadata of a file asset version once the
+     * current transaction is committed.
+     */
+    public static void extractLater(final String inode) throws DotHibernateException {
+        HibernateUtil.addCommitListener("fileMetadata:" + inode, new DotRunnable() {
+            @Override
+            public void run() {
+                instance.submit(inode);
+            }
+        });
+    }
+
+    /**
+     * Starts recovering the versions without metadata, right away and then every
+     * FILE_METADATA_RECOVER_INTERVAL_SECONDS.
+     */
+    public static synchronized void start() {
+        if (recoverer != null || !Config.getBooleanProperty("FILE_METADATA_RECOVER", true)) {
+            return;
+        }
+        recoverer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FileMetadataRecoverer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        recoverer.scheduleWithFixedDelay(() -> {
+            try {
+                instance.recover();
+            } catch (Exception e) {
+                Logger.warn(FileMetadataQueue.class, "Unable to find the files waiting for their metadata: " + e.getMessage(), e);
+            } finally {
+                DbConnectionFactory.closeSilently();
+            }
+        }, 0, Config.getIntProperty("FILE_METADATA_RECOVER_INTERVAL_SECONDS", 300), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queues the versions without metadata, as many as fit in the queue. Only
+     * the leader of the cluster looks for them.
+     *
+     * @return the number of versions queued
+     */
+    @VisibleForTesting
+    int recover() throws DotDataException {
+        if (!leaderCheck.isLeader()) {
+            return 0;
+        }
+        final int limit = workers.getQueue().remainingCapacity();
+        if (limit <= 0) {
+            return 0;
+        }
+        int count = 0;
+        for (String inode : finder.find(limit)) {
+            if (submit(inode)) {
+                count++;
+            }
+        }
+        if (count > 0) {
+            Logger.info(FileMetadataQueue.class, "Queued the metadata extraction of " + count + " files");
+        }
+        return count;
+    }
+
+    /**
+     * Queues the extraction of a version, unless it is already queued or the
+     * queue is full. The ones dropped are queued again by {@link #recover()}.
+     *
+     * @return true if the extraction was queued
+     */
+    @VisibleForTesting
+    boolean submit(final String inode) {
+        if (!pending.add(inode)) {
+            return false;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    extractor.extract(inode);
+                } catch (Exception e) {
+                    Logger.warn(FileMetadataQueue.class, "Unable to extract the metadata of file " + inode + ": " + e.getMessage(), e);
+                } finally {
+                    pending.remove(inode);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.remove(inode);
+            dropped.incrementAndGet();
+            Logger.debug(FileMetadataQueue.class, "The metadata queue is full, file " + inode + " is left for the next recovery");
+            return false;
+        }
+    }
+
+    @VisibleForTesting
+    boolean isPending(final String inode) {
+        return pending.contains(inode);
+    }
+
+    @VisibleForTesting
+    long getDropped() {
+        return dropped.get();
+    }
+
+    @VisibleForTesting
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private static List<String> findPending(final int limit) throws DotDataException {
+        final List<String> inodes = new ArrayList<String>();
+        for (Structure structure : StructureFactory.getAllStructuresByType(Structure.STRUCTURE_TYPE_FILEASSET)) {
+            Field field = structure.getFieldVar(FileAssetAPI.META_DATA_FIELD);
+            if (field == null || !UtilMethods.isSet(field.getInode())) {
+                continue;
+            }
+            DotConnect dc = new DotConnect();
+            dc.setSQL("select contentlet.inode from contentlet join contentlet_version_info on (contentlet.identifier = contentlet_version_info.identifier"
+                    + " and (contentlet.inode = contentlet_version_info.working_inode or contentlet.inode = contentlet_version_info.live_inode))"
+                    + " where contentlet.structure_inode = ? and contentlet." + field.getFieldContentlet() + " is null");
+            dc.addParam(structure.getInode());
+            dc.setMaxRows(limit - inodes.size());
+            for (Map<String, Object> row : dc.loadObjectResults()) {
+                inodes.add((String) row.get("inode"));
+            }
+            if (inodes.size() >= limit) {
+                break;
+            }
+        }
+        return inodes;
+    }
+
+    private static void extractMetadata(String inode) throws Exception {
+        try {
+            ESContentFactoryImpl conFac = new ESContentFactoryImpl();
+            Contentlet contentlet = conFac.find(inode);
+            if (contentlet == null || !UtilMethods.isSet(contentlet.getInode())) {
+                // the version is gone, recovery won't find it again
+                return;
+            }
+
+            // a version without binary or that can't be parsed gets empty
+            // metadata, otherwise every recovery would pick it up again
+            Map<String, String> metaMap = null;
+            try {
+                File binFile = APILocator.getContentletAPI().getBinaryFile(inode, FileAssetAPI.BINARY_FIELD,
+                        APILocator.getUserAPI().getSystemUser());
+                if (binFile == null) {
+                    Logger.warn(FileMetadataQueue.class, "File " + inode + " has no binary, saving empty metadata");
+                } else {
+                    metaMap = new TikaUtils().getMetaDataMapOnce(inode, binFile);
+                }
+            } catch (Exception e) {
+                Logger.warn(FileMetadataQueue.class, "Unable to parse file " + inode + ", saving empty metadata: " + e.getMessage(), e);
+            }
+            if (metaMap == null) {
+                metaMap = new HashMap<String, String>();
+            }
+
+            HibernateUtil.startTransaction();
+            try {
+                Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+                contentlet.setProperty(FileAssetAPI.META_DATA_FIELD, gson.toJson(metaMap));
+                contentlet = conFac.save(contentlet);
+                APILocator.getContentletIndexAPI().addContentToIndex(contentlet, false);
+                HibernateUtil.commitTransaction();
+            } catch (Exception e) {
+                HibernateUtil.rollbackTransaction();
+                throw e;
+            }
+        } finally {
+            DbConnectionFactory.closeSilently();
+        }
+    }
+
+}
@@ -9,6 +9,7 @@ import com.dotcms.content.elasticsearch.business.ESContentletIndexAPI;
 import com.dotcms.content.elasticsearch.business.IndiciesAPI.IndiciesInfo;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.common.reindex.ReindexThread;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
@@ -69,6 +70,7 @@ public class ESReindexationProcessStatus implements Serializable {
 	            theMap.put("lastIndexationProgress", getLastIndexationProgress());
 	            theMap.put("currentIndexPath", currentIndexPath());
 	            theMap.put("newIndexPath", getNewIndexPath());
+	            theMap.put("reindexPipeline", ReindexThread.getInstance().getPipelineStats());
             }
             return theMap;
         }
@@ -1,17 +1,11 @@
 package com.dotcms.job.system.event.delegate;
 
-import com.dotcms.api.system.event.SystemEvent;
-import com.dotcms.api.system.event.SystemEventsAPI;
+import com.dotcms.api.system.event.SystemEventsDispatcher;
 import com.dotcms.job.system.event.AbstractJobDelegate;
 import com.dotcms.job.system.event.SystemEventsJob;
 import com.dotcms.job.system.event.delegate.bean.JobDelegateDataBean;
-import com.dotcms.rest.api.v1.system.websocket.SystemEventsWebSocketEndPoint;
-import com.dotcms.rest.api.v1.system.websocket.WebSocketContainerAPI;
-import com.dotmarketing.business.APILocator;
 import com.dotmarketing.exception.DotDataException;
 
-import java.util.List;
-
 /**
  * This delegate class is registered to the {@link SystemEventsJob}, which is
  * the Job that checks for incoming System Events every specified amount of
@@ -22,6 +16,10 @@ import java.util.List;
  * Querying the most recent events that entered the message queue is useful for
  * displaying notifications to the users in order to get synchronous updates on
  * new System Events generated either by dotCMS or custom code.
+ * <p>
+ * The events are usually delivered before by the {@link SystemEventsDispatcher},
+ * this delegate catches up with the events of other nodes that could not be
+ * notified through the cluster.
  * 
  * @author Jose Castro
  * @version 3.7
@@ -31,20 +29,12 @@ import java.util.List;
 @SuppressWarnings("serial")
 public class SystemEventsJobDelegate extends AbstractJobDelegate {
 
-	private final SystemEventsAPI systemEventsAPI = APILocator.getSystemEventsAPI();
-	private final WebSocketContainerAPI webSocketContainerAPI = APILocator.getWebSocketContainerAPI();
+	private final SystemEventsDispatcher systemEventsDispatcher = SystemEventsDispatcher.getInstance();
 
 	@Override
 	public void executeDelegate(final JobDelegateDataBean data) throws DotDataException {
-		final List<SystemEvent> newEvents = (List<SystemEvent>) this.systemEventsAPI.getEventsSince(data.getLastCallback());
-
-		if (!newEvents.isEmpty()) {
-			final SystemEventsWebSocketEndPoint webSocketEndPoint = this.webSocketContainerAPI
-					.getEndpointInstance(SystemEventsWebSocketEndPoint.class);
-			for (SystemEvent event : newEvents) {
-				webSocketEndPoint.sendSystemEvent(event);
-			}
-		}
+		// the events pushed by this node, or already read after a cluster notification, are not delivered again
+		this.systemEventsDispatcher.pull(data.getLastCallback());
 	}
 
 }
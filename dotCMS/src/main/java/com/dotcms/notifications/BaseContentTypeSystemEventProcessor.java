@@ -34,4 +34,9 @@ public class BaseContentTypeSystemEventProcessor  implements SystemEventProcesso
                 new Payload(contentTypeView, payload.getVisibility(), payload.getVisibilityId()),
                 event.getCreationDate());
     }
+
+    @Override
+    public boolean isUserDependent() {
+        return false;
+    }
 }
@@ -9,6 +9,7 @@ import com.dotcms.publisher.environment.bean.Environment;
 import com.dotcms.publisher.pusher.PushPublisher;
 import com.dotcms.publisher.pusher.PushPublisherConfig;
 import com.dotcms.publisher.pusher.PushUtils;
+import com.dotcms.publisher.util.BundleHashStore;
 import com.dotcms.publisher.util.PublisherUtil;
 import com.dotcms.publishing.*;
 import com.dotcms.rest.PublishThread;
@@ -297,10 +298,11 @@ public class RemotePublishAjaxAction extends AjaxAction {
 
             /*
             Verify if the bundle exist and was created correctly..., meaning, if there is not a .tar.gz file is because
-            something happened on the creation of the bundle.
+            something happened on the creation of the bundle. Bundles sent as deltas are only compressed when needed,
+            their manifest is written once they are created.
              */
             File bundleFile = new File( bundleRoot + File.separator + ".." + File.separator + basicConfig.getId() + ".tar.gz" );
-            if ( !bundleFile.exists() ) {
+            if ( !bundleFile.exists() && !new File( bundleRoot, BundleHashStore.MANIFEST ).exists() ) {
                 Logger.error( this.getClass(), "No Bundle with id: " + bundleId + " found." );
                 appendMessage( responseMessage, "publisher_retry.error.not.found", bundleId, true );
                 continue;
@@ -404,9 +406,7 @@ public class RemotePublishAjaxAction extends AjaxAction {
         config.setId( bid );
         File bundleRoot = BundlerUtil.getBundleRoot( config );
 
-        ArrayList<File> list = new ArrayList<File>( 1 );
-        list.add( bundleRoot );
-        File bundle = new File( bundleRoot + File.separator + ".." + File.separator + config.getId() + ".tar.gz" );
+        File bundle = PushUtils.getCompressedBundle( bundleRoot, config.getId() );
         if ( !bundle.exists() ) {
             response.sendError( 500, "No Bundle Found" );
             return;
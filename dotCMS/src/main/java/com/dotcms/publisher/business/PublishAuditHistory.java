@@ -3,6 +3,7 @@ package com.dotcms.publisher.business;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import com.dotmarketing.util.Logger;
@@ -23,6 +24,10 @@ public class PublishAuditHistory implements Serializable {
 	private Date publishEnd;
 	private int numTries = 0;
 	private Map<String, String> assets;
+	//time in milliseconds each handler took to publish the bundle
+	private Map<String, Long> handlerTimes;
+	//time in milliseconds the dependencies of each asset type took to resolve
+	private Map<String, Long> dependencyTimes;
 	
 	public PublishAuditHistory() {
 		assets = new HashMap<String, String>();
@@ -85,6 +90,34 @@ public class PublishAuditHistory implements Serializable {
 		this.assets = assets;
 	}
 	
+	public Map<String, Long> getHandlerTimes() {
+		return handlerTimes;
+	}
+	public void setHandlerTimes(Map<String, Long> handlerTimes) {
+		this.handlerTimes = handlerTimes;
+	}
+
+	public synchronized void addHandlerTime(String handler, long millis) {
+		if(handlerTimes == null) {
+			handlerTimes = new LinkedHashMap<String, Long>();
+		}
+		handlerTimes.put(handler, millis);
+	}
+
+	public Map<String, Long> getDependencyTimes() {
+		return dependencyTimes;
+	}
+	public void setDependencyTimes(Map<String, Long> dependencyTimes) {
+		this.dependencyTimes = dependencyTimes;
+	}
+
+	public synchronized void addDependencyTime(String assetType, long millis) {
+		if(dependencyTimes == null) {
+			dependencyTimes = new LinkedHashMap<String, Long>();
+		}
+		dependencyTimes.put(assetType, millis);
+	}
+	
 	public int getNumTries() {
 		return numTries;
 	}
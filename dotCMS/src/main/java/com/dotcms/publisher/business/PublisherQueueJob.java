@@ -23,6 +23,7 @@ import com.dotcms.publisher.environment.bean.Environment;
 import com.dotcms.publisher.pusher.PushPublisher;
 import com.dotcms.publisher.pusher.PushPublisherConfig;
 import com.dotcms.publisher.util.PublisherUtil;
+import com.dotcms.publisher.util.ResolvedDependencies;
 import com.dotcms.publishing.DotPublishingException;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.db.DbConnectionFactory;
@@ -84,6 +85,8 @@ public class PublisherQueueJob implements StatefulJob {
 				PublishAuditHistory historyPojo;
 				String tempBundleId;
 
+				//the bundles of this run share the dependencies they look up
+				ResolvedDependencies.startRun();
 				for ( Map<String, Object> bundle : bundles ) {
 					Date publishDate = (Date) bundle.get("publish_date");
 
@@ -161,6 +164,7 @@ public class PublisherQueueJob implements StatefulJob {
 		} catch (Exception e) {
 			Logger.error(PublisherQueueJob.class, e.getMessage(), e);
 		} finally {
+			ResolvedDependencies.endRun();
 			try {
 				HibernateUtil.closeSession();
 			} catch (DotHibernateException e) {
@@ -3,10 +3,15 @@ package com.dotcms.publisher.pusher;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.dotcms.enterprise.LicenseUtil;
 import com.dotcms.enterprise.publishing.remote.bundler.*;
@@ -20,6 +25,7 @@ import com.dotcms.publisher.business.PublishQueueElement;
 import com.dotcms.publisher.business.PublisherQueueJob;
 import com.dotcms.publisher.endpoint.bean.PublishingEndPoint;
 import com.dotcms.publisher.environment.bean.Environment;
+import com.dotcms.publisher.util.BundleHashStore;
 import com.dotcms.publisher.util.PusheableAsset;
 import com.dotcms.publishing.BundlerUtil;
 import com.dotcms.publishing.DotPublishingException;
@@ -34,6 +40,7 @@ import com.dotcms.repackage.javax.ws.rs.core.MediaType;
 import com.dotcms.repackage.javax.ws.rs.core.Response;
 import com.dotcms.repackage.org.apache.commons.httpclient.HttpStatus;
 import com.dotcms.repackage.org.apache.commons.io.FileUtils;
+import com.dotcms.repackage.org.apache.commons.lang.StringUtils;
 import com.dotcms.repackage.org.glassfish.jersey.media.multipart.FormDataMultiPart;
 import com.dotcms.repackage.org.glassfish.jersey.media.multipart.file.FileDataBodyPart;
 import com.dotcms.rest.RestClientBuilder;
@@ -91,14 +98,23 @@ public class PushPublisher extends Publisher {
         }
 
 	    PublishAuditHistory currentStatusHistory = null;
+	    // the delta bundles already compressed, by the hashes they carry
+	    Map<Set<String>, File> deltas = new HashMap<Set<String>, File>();
 		try {
-			//Compressing bundle
 			File bundleRoot = BundlerUtil.getBundleRoot(config);
-
-			ArrayList<File> list = new ArrayList<File>(1);
-			list.add(bundleRoot);
 			File bundle = new File(bundleRoot+File.separator+".."+File.separator+config.getId()+".tar.gz");
-			PushUtils.compressFiles(list, bundle, bundleRoot.getAbsolutePath());
+
+			Map<String, String> manifest = null;
+			if (BundleHashStore.isEnabled()) {
+				// the bundle is only compressed if an endpoint needs all of it
+				manifest = BundleHashStore.writeManifest(bundleRoot);
+				bundle.delete();
+			} else {
+				//Compressing bundle
+				ArrayList<File> list = new ArrayList<File>(1);
+				list.add(bundleRoot);
+				PushUtils.compressFiles(list, bundle, bundleRoot.getAbsolutePath());
+			}
 
 			List<Environment> environments = APILocator.getEnvironmentAPI().findEnvironmentsByBundleId(config.getId());
 			Client client = RestClientBuilder.newClient();
@@ -138,15 +154,16 @@ public class PushPublisher extends Publisher {
 					EndpointDetail detail = new EndpointDetail();
 	        		try {
 	        			FormDataMultiPart form = new FormDataMultiPart();
-	        			form.field("AUTH_TOKEN",
-	        					retriveKeyString(
-	        							PublicEncryptionFactory.decryptString(endpoint.getAuthKey().toString())));
+	        			String authToken = retriveKeyString(
+	        					PublicEncryptionFactory.decryptString(endpoint.getAuthKey().toString()));
+	        			form.field("AUTH_TOKEN", authToken);
 
 	        			form.field("GROUP_ID", UtilMethods.isSet(endpoint.getGroupId()) ? endpoint.getGroupId() : endpoint.getId());
 	        			Bundle b=APILocator.getBundleAPI().getBundleById(config.getId());
 	        			form.field("BUNDLE_NAME", b.getName());
 	        			form.field("ENDPOINT_ID", endpoint.getId());
-	        			form.bodyPart(new FileDataBodyPart("bundle", bundle, MediaType.MULTIPART_FORM_DATA_TYPE));
+	        			File bundleFile = getBundleFile(client, endpoint, authToken, bundleRoot, bundle, manifest, deltas);
+	        			form.bodyPart(new FileDataBodyPart("bundle", bundleFile, MediaType.MULTIPART_FORM_DATA_TYPE));
 
                         WebTarget webTarget = client.target(endpoint.toURL()+"/api/bundlePublisher/publish");
 
@@ -219,6 +236,88 @@ public class PushPublisher extends Publisher {
 			Logger.error(this.getClass(), e.getMessage(), e);
 			throw new DotPublishingException(e.getMessage());
 
+		} finally {
+			for (File delta : deltas.values()) {
+				FileUtils.deleteQuietly(delta.getParentFile());
+			}
+		}
+	}
+
+	/**
+	 * Returns the file to send to the endpoint. When the bundle is sent as a
+	 * delta, the endpoint is asked which files of the manifest it is missing
+	 * and only those are sent, with the manifest. Endpoints missing the same
+	 * files get the same delta. If the endpoint can't tell, the whole bundle is
+	 * sent.
+	 *
+	 * @param client The client to call the endpoint with
+	 * @param endpoint The endpoint the bundle is sent to
+	 * @param authToken The authentication token of the endpoint
+	 * @param bundleRoot The folder of the bundle
+	 * @param bundle The compressed bundle, that may not be compressed yet
+	 * @param manifest The hash of each file of the bundle, null if it is not sent as a delta
+	 * @param deltas The delta bundles compressed so far, by the hashes they carry
+	 * @return The file to send
+	 * @throws IOException
+	 */
+	private File getBundleFile(Client client, PublishingEndPoint endpoint, String authToken, File bundleRoot, File bundle,
+			Map<String, String> manifest, Map<Set<String>, File> deltas) throws IOException {
+
+		Set<String> missing = manifest != null ? findMissing(client, endpoint, authToken, manifest.values()) : null;
+		if (missing == null) {
+			return PushUtils.getCompressedBundle(bundleRoot, config.getId());
+		}
+
+		File delta = deltas.get(missing);
+		if (delta == null) {
+			List<String> paths = new ArrayList<String>();
+			paths.add(BundleHashStore.MANIFEST);
+			for (Map.Entry<String, String> entry : manifest.entrySet()) {
+				if (missing.contains(entry.getValue())) {
+					paths.add(entry.getKey());
+				}
+			}
+			// the receiver takes the bundle id from the file name, so it keeps it
+			File folder = new File(bundle.getParentFile(), config.getId() + "_delta" + deltas.size());
+			folder.mkdirs();
+			delta = PushUtils.compressFiles(bundleRoot, paths, new File(folder, bundle.getName()));
+			deltas.put(missing, delta);
+		}
+		PushPublishLogger.log(this.getClass(), "Sending the " + missing.size() + " missing contents of the " + manifest.size()
+				+ " files of the bundle to the endpoint " + endpoint.getAddress());
+		return delta;
+	}
+
+	/**
+	 * Asks the endpoint which of the hashes it is missing
+	 *
+	 * @return The missing hashes, or null if the endpoint doesn't receive delta bundles
+	 */
+	private Set<String> findMissing(Client client, PublishingEndPoint endpoint, String authToken, Collection<String> hashes) {
+		try {
+			FormDataMultiPart form = new FormDataMultiPart();
+			form.field("AUTH_TOKEN", authToken);
+			form.field("HASHES", StringUtils.join(new LinkedHashSet<String>(hashes), "\n"));
+
+			WebTarget webTarget = client.target(endpoint.toURL()+"/api/bundlePublisher/missing");
+			Response response = webTarget.request(MediaType.TEXT_PLAIN_TYPE).post(Entity.entity(form, form.getMediaType()));
+			if (response.getStatus() != HttpStatus.SC_OK) {
+				Logger.info(this.getClass(), "The endpoint " + endpoint.getAddress() + " returned " + response.getStatus()
+						+ " asking for the missing files, sending the whole bundle");
+				return null;
+			}
+
+			Set<String> missing = new HashSet<String>();
+			for (String hash : response.readEntity(String.class).split("\n")) {
+				if (hash.trim().length() > 0) {
+					missing.add(hash.trim());
+				}
+			}
+			return missing;
+		} catch (Exception e) {
+			Logger.warn(this.getClass(), "Unable to ask the endpoint " + endpoint.getAddress()
+					+ " for the missing files, sending the whole bundle: " + e.getMessage());
+			return null;
 		}
 	}
 
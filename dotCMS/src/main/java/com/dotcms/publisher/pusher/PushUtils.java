@@ -6,6 +6,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.zip.GZIPOutputStream;
 
@@ -13,6 +14,7 @@ import com.dotcms.repackage.org.apache.commons.compress.archivers.tar.TarArchive
 import com.dotcms.repackage.org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import com.dotcms.repackage.org.apache.commons.io.IOUtils;
 
+import com.dotcms.publisher.util.BundleHashStore;
 import com.dotmarketing.util.Logger;
 
 public class PushUtils {
@@ -51,7 +53,61 @@ public class PushUtils {
 		return output;
 	}
 	
-	
+	/**
+	 * Returns the compressed bundle. Bundles sent as deltas are only
+	 * compressed when an endpoint needs all of it, so it is compressed here if
+	 * the bundle has been generated but not compressed yet.
+	 *
+	 * @param bundleRoot The folder of the bundle
+	 * @param bundleId The id of the bundle
+	 * @return The .tar.gz file, that does not exist if the bundle was not generated
+	 * @throws IOException
+	 */
+	public static File getCompressedBundle(File bundleRoot, String bundleId)
+		throws IOException
+	{
+		File bundle = new File(bundleRoot + File.separator + ".." + File.separator + bundleId + ".tar.gz");
+		if (!bundle.exists() && new File(bundleRoot, BundleHashStore.MANIFEST).exists()) {
+			ArrayList<File> list = new ArrayList<File>(1);
+			list.add(bundleRoot);
+			compressFiles(list, bundle, bundleRoot.getAbsolutePath());
+		}
+		return bundle;
+	}
+
+	/**
+	 * Compress (tar.gz) some of the files of a folder to the output file,
+	 * keeping their paths relative to the folder
+	 *
+	 * @param root The folder the paths are relative to
+	 * @param paths The paths of the files to compress, separated by /
+	 * @param output The resulting output file (should end in .tar.gz)
+	 * @throws IOException
+	 */
+	public static File compressFiles(File root, Collection<String> paths, File output)
+		throws IOException
+	{
+		Logger.info(PushUtils.class, "Compressing "+paths.size() + " files of "+root.getAbsolutePath()+" to "+output.getAbsoluteFile());
+		TarArchiveOutputStream taos = new TarArchiveOutputStream(
+			new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(output))));
+		try {
+			taos.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
+			for (String path : paths) {
+				File file = new File(root, path);
+				taos.putArchiveEntry(new TarArchiveEntry(file, path));
+				BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file));
+				try {
+					IOUtils.copy(bis, taos);
+				} finally {
+					bis.close();
+				}
+				taos.closeArchiveEntry();
+			}
+		} finally {
+			taos.close();
+		}
+		return output;
+	}
 
 	/**
 	 * Does the work of compression and going recursive for nested directories
@@ -76,9 +132,12 @@ public class PushUtils {
 				if (file.isFile()) {
 			        // Add the file to the archive
 					BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file));
-					IOUtils.copy(new FileInputStream(file), taos);
+					try {
+						IOUtils.copy(bis, taos);
+					} finally {
+						bis.close();
+					}
 					taos.closeArchiveEntry();
-					bis.close();
 				} else if (file.isDirectory()) {
 					//Logger.info(this.getClass(),file.getPath().substring(bundleRoot.length()));
 			         // close the archive entry
@@ -1,5 +1,6 @@
 package com.dotcms.publisher.receiver;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -11,6 +12,13 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.tools.tar.TarEntry;
@@ -44,11 +52,13 @@ import com.dotcms.publisher.business.PublishQueueElement;
 import com.dotcms.publisher.business.PublisherAPIImpl;
 import com.dotcms.publisher.pusher.PushPublisherConfig;
 import com.dotcms.publisher.receiver.handler.IHandler;
+import com.dotcms.publisher.util.BundleHashStore;
 import com.dotcms.publishing.BundlerUtil;
 import com.dotcms.publishing.DotPublishingException;
 import com.dotcms.publishing.PublishStatus;
 import com.dotcms.publishing.Publisher;
 import com.dotcms.publishing.PublisherConfig;
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
 import com.dotcms.repackage.org.apache.commons.io.FileUtils;
 import com.dotcms.repackage.org.apache.commons.lang.exception.ExceptionUtils;
 import com.dotcms.rest.BundlePublisherResource;
@@ -83,33 +93,83 @@ public class BundlePublisher extends Publisher {
 
     private List<IHandler> handlers = new ArrayList<IHandler>();
 
+    //The handlers grouped by the assets they depend on, a level only depends on the previous ones
+    private List<List<IHandler>> levels = new ArrayList<List<IHandler>>();
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     @Override
     public PublisherConfig init ( PublisherConfig config ) throws DotPublishingException {
         if ( LicenseUtil.getLevel() < 200 ) {
             throw new RuntimeException( "need an enterprise licence to run this" );
         }
+        IHandler bundleXMLasc = new BundleXMLascHandler( config );
+        IHandler user = new UserHandler( config );
+        IHandler category = new CategoryHandler( config );
+        IHandler host = new HostHandler( config );
+        IHandler folder = new FolderHandler( config );
+        IHandler workflow = new WorkflowHandler( config );
+        IHandler structure = null;
+        IHandler relationship = null;
+        if ( Config.getBooleanProperty( "PUSH_PUBLISHING_PUSH_STRUCTURES", true) ) {
+            structure = new StructureHandler( config );
+            relationship = new RelationshipHandler( config );
+        }
+        IHandler container = new ContainerHandler( config );
+        IHandler template = new TemplateHandler( config );
+        IHandler htmlPage = new HTMLPageHandler( config );
+        IHandler language = new LanguageHandler( config );
+        IHandler languageVariables = new LanguageVariablesHandler( config );
+        IHandler content = new ContentHandler( config );
+        IHandler contentWorkflow = new ContentWorkflowHandler( config );
+        IHandler osgi = new OSGIHandler( config );
+        IHandler link = new LinkHandler( config );
+        IHandler rule = new RuleHandler( config );
+
         handlers = new ArrayList<IHandler>();
-        handlers.add(new BundleXMLascHandler( config ));
+        handlers.add( bundleXMLasc );
         //The order is really important
-        handlers.add( new UserHandler( config ) );
-        handlers.add( new CategoryHandler( config ) );
-        handlers.add( new HostHandler( config ) );
-        handlers.add( new FolderHandler( config ) );
-        handlers.add( new WorkflowHandler( config ) );
-        if ( Config.getBooleanProperty( "PUSH_PUBLISHING_PUSH_STRUCTURES", true) ) {
-            handlers.add( new StructureHandler( config ) );
-            handlers.add( new RelationshipHandler( config ) );
+        handlers.add( user );
+        handlers.add( category );
+        handlers.add( host );
+        handlers.add( folder );
+        handlers.add( workflow );
+        if ( structure != null ) {
+            handlers.add( structure );
+            handlers.add( relationship );
         }
-        handlers.add( new ContainerHandler( config ) );
-        handlers.add( new TemplateHandler( config ) );
-        handlers.add( new HTMLPageHandler( config ) );
-        handlers.add( new LanguageHandler( config ) );
-        handlers.add( new LanguageVariablesHandler( config ) );
-        handlers.add( new ContentHandler( config ) );
-        handlers.add( new ContentWorkflowHandler( config ) );
-        handlers.add( new OSGIHandler( config ) );
-        handlers.add( new LinkHandler( config ) );
-        handlers.add(new RuleHandler(config));
+        handlers.add( container );
+        handlers.add( template );
+        handlers.add( htmlPage );
+        handlers.add( language );
+        handlers.add( languageVariables );
+        handlers.add( content );
+        handlers.add( contentWorkflow );
+        handlers.add( osgi );
+        handlers.add( link );
+        handlers.add( rule );
+
+        //hosts -> folders -> structures -> content, used with PUSH_PUBLISHING_PARALLEL_INGESTION.
+        //The handlers of a level run at the same time, so they must not read what another handler of
+        //the same level writes:
+        // - user, category and language only write their own tables, nothing in the bundle refers to them yet
+        // - folder needs the hosts, workflow only needs the users and roles
+        // - structure needs the hosts and folders, and the workflow schemes it is bound to
+        // - relationship, container and language variables only need the structures
+        // - template needs the containers, pages need the templates and content needs everything before it
+        // - content workflow, osgi, link and rule only read what the previous levels wrote
+        //bundle.xml.asc, host, structure, template, htmlPage and content depend on the level before and run alone.
+        levels = new ArrayList<List<IHandler>>();
+        addLevel( bundleXMLasc );
+        addLevel( user, category, language );
+        addLevel( host );
+        addLevel( folder, workflow );
+        addLevel( structure );
+        addLevel( relationship, container, languageVariables );
+        addLevel( template );
+        addLevel( htmlPage );
+        addLevel( content );
+        addLevel( contentWorkflow, osgi, link, rule );
         auditAPI = PublishAuditAPI.getInstance();
         this.config = super.init( config );
         return this.config;
@@ -161,12 +221,40 @@ public class BundlePublisher extends Publisher {
         // Extract file to a directory
         InputStream bundleIS;
         try {
+            long start = System.currentTimeMillis();
             bundleIS = new FileInputStream( bundlePath + bundleName );
             untar( bundleIS, folderOut.getAbsolutePath() + File.separator + bundleName, bundleName );
+            addHandlerTime( currentStatusHistory, "untar", start );
         } catch ( FileNotFoundException e ) {
             throw new DotPublishingException( "Cannot extract the selected archive", e );
         }
 
+        //A bundle sent as a delta only carries the files this server didn't have
+        File manifest = new File( folderOut, BundleHashStore.MANIFEST );
+        if ( manifest.exists() && BundleHashStore.isEnabled() ) {
+            try {
+                long start = System.currentTimeMillis();
+                BundleHashStore store = BundleHashStore.getInstance();
+                store.restore( folderOut, BundleHashStore.readManifest( manifest ) );
+                store.evict();
+                addHandlerTime( currentStatusHistory, "restore", start );
+            } catch ( IOException e ) {
+                bundleSuccess = false;
+                Logger.error( BundlePublisher.class, "Unable to restore the files of the bundle: " + e.getMessage(), e );
+                try {
+                    detail.setStatus( PublishAuditStatus.Status.FAILED_TO_PUBLISH.getCode() );
+                    detail.setInfo( "Failed to publish because the bundle is incomplete: " + e.getMessage() );
+                    String endPointId = (String) currentStatusHistory.getEndpointsMap().keySet().toArray()[0];
+                    currentStatusHistory.addOrUpdateEndpoint(endPointId, endPointId, detail);
+                    currentStatusHistory.setPublishEnd( new Date() );
+                    auditAPI.updatePublishAuditStatus( bundleFolder, PublishAuditStatus.Status.FAILED_TO_PUBLISH, currentStatusHistory );
+                } catch ( Exception e1 ) {
+                    Logger.error( BundlePublisher.class, "Unable to update audit table : " + e1.getMessage(), e1 );
+                }
+                throw new DotPublishingException( "Cannot restore the files of the bundle: " + e.getMessage(), e );
+            }
+        }
+
         Map<String, String> assetsDetails = null;
 
         try {
@@ -189,16 +277,20 @@ public class BundlePublisher extends Publisher {
         }
 
         try {
-        	HibernateUtil.startTransaction();
+            if ( Config.getBooleanProperty( "PUSH_PUBLISHING_PARALLEL_INGESTION", false ) ) {
+                handleByLevel( folderOut, currentStatusHistory );
+            } else {
+            	HibernateUtil.startTransaction();
+
+                //Execute the handlers
+                for ( IHandler handler : handlers ) {
+                    long start = System.currentTimeMillis();
+                    handler.handle( folderOut );
+                    addHandlerTime( currentStatusHistory, handler.getName(), start );
+                }
 
-            //Execute the handlers
-            for ( IHandler handler : handlers ) {
-            	
-                handler.handle( folderOut );
-                
+                HibernateUtil.commitTransaction();
             }
-            
-            HibernateUtil.commitTransaction();
         } catch ( Exception e ) {
             bundleSuccess = false;
             try {
@@ -249,6 +341,152 @@ public class BundlePublisher extends Publisher {
         return config;
     }
 
+    private void addLevel ( IHandler... levelHandlers ) {
+        List<IHandler> level = new ArrayList<IHandler>();
+        for ( IHandler handler : levelHandlers ) {
+            if ( handler != null ) {
+                level.add( handler );
+            }
+        }
+        if ( !level.isEmpty() ) {
+            levels.add( level );
+        }
+    }
+
+    private void addHandlerTime ( PublishAuditHistory history, String name, long start ) {
+        long time = System.currentTimeMillis() - start;
+        Logger.info( this.getClass(), "Bundle " + config.getId() + ", " + name + " took " + time + "ms" );
+        if ( history != null ) {
+            history.addHandlerTime( name, time );
+        }
+    }
+
+	/**
+	 * Runs the handlers level by level, each one in its own transaction. The
+	 * content indexed by a handler is sent to the index in bulk requests of
+	 * PUSH_PUBLISHING_REINDEX_BATCH_SIZE contentlets when it commits.
+	 *
+	 * @param folderOut
+	 *            - The folder the bundle was extracted to.
+	 * @param history
+	 *            - The audit history the time of each handler is added to.
+	 * @throws Exception
+	 *             The first error of the failed level.
+	 */
+    private void handleByLevel ( final File folderOut, final PublishAuditHistory history ) throws Exception {
+        final int reindexBatchSize = Config.getIntProperty( "PUSH_PUBLISHING_REINDEX_BATCH_SIZE", 500 );
+        final int threads = Math.max( 1, Config.getIntProperty( "PUSH_PUBLISHING_INGESTION_THREADS", 4 ) );
+        final String bundleId = config.getId();
+
+        runLevels( levels, threads, bundleId, new HandlerRunner() {
+            @Override
+            public void run ( IHandler handler ) throws Exception {
+                long start = System.currentTimeMillis();
+                HibernateUtil.setCommitListenerBatchSize( reindexBatchSize );
+                try {
+                    HibernateUtil.startTransaction();
+                    handler.handle( folderOut );
+                    HibernateUtil.commitTransaction();
+                } catch ( Exception e ) {
+                    Logger.error( BundlePublisher.class, "Bundle " + bundleId + ", " + handler.getName() + " failed: " + e.getMessage(), e );
+                    try {
+                        HibernateUtil.rollbackTransaction();
+                    } catch ( DotHibernateException e1 ) {
+                        Logger.error( BundlePublisher.class, e1.getMessage(), e1 );
+                    }
+                    throw e;
+                } finally {
+                    HibernateUtil.setCommitListenerBatchSize( null );
+                    try {
+                        HibernateUtil.closeSession();
+                    } finally {
+                        DbConnectionFactory.closeConnection();
+                    }
+                }
+                addHandlerTime( history, handler.getName(), start );
+            }
+        } );
+    }
+
+    /**
+     * Runs a single handler of a level, in the thread of the level pool.
+     */
+    interface HandlerRunner {
+
+        void run ( IHandler handler ) throws Exception;
+    }
+
+	/**
+	 * Runs the given levels in order. The handlers of a level run in parallel,
+	 * and a level starts when all the handlers of the previous one have
+	 * finished.
+	 * <p>
+	 * If a handler fails the other handlers of its level still finish, the next
+	 * levels are not run and the first error of the level is thrown. The
+	 * handlers that already committed are not rolled back.
+	 *
+	 * @param levels
+	 *            - The handlers grouped by level.
+	 * @param threads
+	 *            - The size of the pool the handlers of a level run in.
+	 * @param bundleId
+	 *            - The bundle being published, for the logs.
+	 * @param runner
+	 *            - Runs each handler.
+	 * @throws Exception
+	 *             The first error of the failed level.
+	 */
+    @VisibleForTesting
+    static void runLevels ( final List<List<IHandler>> levels, final int threads, final String bundleId,
+            final HandlerRunner runner ) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool( threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread ( Runnable runnable ) {
+                Thread thread = new Thread( runnable, "BundlePublisher-" + count.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+
+        try {
+            for ( int i = 0; i < levels.size(); i++ ) {
+                List<Future<?>> running = new ArrayList<Future<?>>();
+                for ( final IHandler handler : levels.get( i ) ) {
+                    running.add( pool.submit( new Callable<Void>() {
+                        @Override
+                        public Void call () throws Exception {
+                            runner.run( handler );
+                            return null;
+                        }
+                    } ) );
+                }
+
+                //The whole level finishes before reporting its first error
+                Exception error = null;
+                for ( Future<?> future : running ) {
+                    try {
+                        future.get();
+                    } catch ( ExecutionException e ) {
+                        if ( error == null ) {
+                            error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                        }
+                    }
+                }
+                if ( error != null ) {
+                    if ( i > 0 ) {
+                        Logger.warn( BundlePublisher.class, "Bundle " + bundleId + " failed at level " + i
+                                + ", the handlers of the previous levels were already committed" );
+                    }
+                    throw error;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
     @SuppressWarnings ("rawtypes")
     @Override
     public List<Class> getBundlers () {
@@ -258,7 +496,8 @@ public class BundlePublisher extends Publisher {
     }
 
 	/**
-	 * Untars the given bundle file in order process its contents.
+	 * Untars the given bundle file in order process its contents. The entries
+	 * are written as they are read from the compressed stream, in a single pass.
 	 *
 	 * @param bundle
 	 *            - The {@link InputStream} containing the bundle.
@@ -280,30 +519,31 @@ public class BundlePublisher extends Publisher {
         		FileUtils.cleanDirectory(previousFolder);
         	}
             // get a stream to tar file
-            InputStream gstream = new GZIPInputStream( bundle );
+            InputStream gstream = new GZIPInputStream( new BufferedInputStream( bundle, BUFFER_SIZE ), BUFFER_SIZE );
             inputStream = new TarInputStream( gstream );
 
+            String pathWithoutName = path.substring( 0,
+                    path.indexOf( fileName ) );
+            byte[] buf = new byte[BUFFER_SIZE];
+
             // For each entry in the tar, extract and save the entry to the file
             // system
             while ( null != (entry = inputStream.getNextEntry()) ) {
                 // for each entry to be extracted
                 int bytesRead;
 
-                String pathWithoutName = path.substring( 0,
-                        path.indexOf( fileName ) );
-
                 // if the entry is a directory, create the directory
                 if ( entry.isDirectory() ) {
                     File fileOrDir = new File( pathWithoutName + entry.getName() );
-                    fileOrDir.mkdir();
+                    fileOrDir.mkdirs();
                     continue;
                 }
 
                 // write to file
-                byte[] buf = new byte[1024];
-                outputStream = new FileOutputStream( pathWithoutName
-                        + entry.getName() );
-                while ( (bytesRead = inputStream.read( buf, 0, 1024 )) > -1 )
+                File file = new File( pathWithoutName + entry.getName() );
+                file.getParentFile().mkdirs();
+                outputStream = new FileOutputStream( file );
+                while ( (bytesRead = inputStream.read( buf, 0, BUFFER_SIZE )) > -1 )
                     outputStream.write( buf, 0, bytesRead );
                 try {
                     if ( null != outputStream ) {
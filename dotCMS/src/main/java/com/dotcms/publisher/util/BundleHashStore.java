@@ -0,0 +1,342 @@
+package com.dotcms.publisher.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Content addressed store of the files received in push publishing bundles,
+ * used to send bundles as deltas.
+ * <p>
+ * The sender writes a manifest with the SHA-256 hash of every file of the
+ * bundle, the serialized assets and their binaries, and asks the receiver
+ * which of those hashes it is missing. Only the missing files are sent,
+ * together with the manifest. When the bundle is received the files it does
+ * not carry are restored from this store, so the handlers always find the
+ * complete bundle, and the files it carries are added to the store for the
+ * next bundles.
+ * <p>
+ * The files are kept in <code>&lt;root&gt;/&lt;first two chars of the
+ * hash&gt;/&lt;hash&gt;</code>, copied from and to the bundle files, and a
+ * received file is only stored once it is checked against its hash. The least recently used files are deleted when the store
+ * goes over its budget, except the ones used in the last hour, which may have
+ * just been reported as present to a sender.
+ */
+public class BundleHashStore {
+
+	public static final String MANIFEST = "bundle.manifest";
+
+	private static final long GRACE_MILLIS = 60 * 60 * 1000;
+
+	private static volatile BundleHashStore instance;
+
+	private final File root;
+	private final long maxBytes;
+
+	/**
+	 * @param root the folder of the store
+	 * @param maxBytes the size budget, 0 for no limit
+	 */
+	public BundleHashStore(File root, long maxBytes) {
+		this.root = root;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return true if bundles are sent and received as deltas, PUSH_PUBLISHING_DELTA
+	 */
+	public static boolean isEnabled() {
+		return Config.getBooleanProperty("PUSH_PUBLISHING_DELTA", true);
+	}
+
+	/**
+	 * The store in the bundle_store folder of the assets, with a budget of
+	 * PUSH_PUBLISHING_DELTA_STORE_MAX_MB megabytes
+	 */
+	public static BundleHashStore getInstance() {
+		BundleHashStore store = instance;
+		if (store == null) {
+			synchronized (BundleHashStore.class) {
+				store = instance;
+				if (store == null) {
+					File root = new File(APILocator.getFileAPI().getRealAssetsRootPath() + File.separator + "bundle_store");
+					long maxBytes = Config.getLongProperty("PUSH_PUBLISHING_DELTA_STORE_MAX_MB", 4096) * 1024 * 1024;
+					store = new BundleHashStore(root, maxBytes);
+					instance = store;
+				}
+			}
+		}
+		return store;
+	}
+
+	/**
+	 * Hashes all the files of the bundle and writes its manifest in it
+	 * @param bundleRoot the folder of the bundle
+	 * @return the hash of each file, by its path relative to the bundle
+	 * @throws IOException
+	 */
+	public static Map<String, String> writeManifest(File bundleRoot) throws IOException {
+
+		Map<String, String> manifest = new LinkedHashMap<String, String>();
+		hashFiles(bundleRoot, "", manifest);
+
+		File file = new File(bundleRoot, MANIFEST);
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+		try {
+			for (Map.Entry<String, String> entry : manifest.entrySet()) {
+				writer.write(entry.getValue());
+				writer.write(' ');
+				writer.write(entry.getKey());
+				writer.newLine();
+			}
+		} finally {
+			writer.close();
+		}
+		return manifest;
+	}
+
+	/**
+	 * @param file the manifest of a bundle
+	 * @return the hash of each file, by its path relative to the bundle
+	 * @throws IOException
+	 */
+	public static Map<String, String> readManifest(File file) throws IOException {
+
+		Map<String, String> manifest = new LinkedHashMap<String, String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int space = line.indexOf(' ');
+				if (space > 0) {
+					manifest.put(line.substring(space + 1), line.substring(0, space));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return manifest;
+	}
+
+	private static void hashFiles(File dir, String prefix, Map<String, String> manifest) throws IOException {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			// hidden files are not compressed in the bundle either
+			if (child.isHidden() || (prefix.isEmpty() && child.getName().equals(MANIFEST))) {
+				continue;
+			}
+			if (child.isDirectory()) {
+				hashFiles(child, prefix + child.getName() + "/", manifest);
+			} else {
+				manifest.put(prefix + child.getName(), hash(child));
+			}
+		}
+	}
+
+	/**
+	 * @return the SHA-256 of the file, in hexadecimal
+	 */
+	public static String hash(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		InputStream in = new BufferedInputStream(new FileInputStream(file), 65536);
+		try {
+			byte[] buf = new byte[65536];
+			int read;
+			while ((read = in.read(buf)) > -1) {
+				digest.update(buf, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		StringBuilder hex = new StringBuilder(64);
+		for (byte b : digest.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Returns the hashes that are not in the store. The ones that are in it are
+	 * marked as used, so they are not deleted before the bundle that relies on
+	 * them arrives.
+	 * @param hashes the hashes of the files of a bundle
+	 * @return the hashes of the files that have to be sent
+	 */
+	public Set<String> missing(Collection<String> hashes) {
+		Set<String> missing = new LinkedHashSet<String>();
+		long now = System.currentTimeMillis();
+		for (String hash : hashes) {
+			File file = fileOf(hash);
+			if (file == null || !file.setLastModified(now)) {
+				missing.add(hash);
+			}
+		}
+		return missing;
+	}
+
+	/**
+	 * Completes a received bundle with the files of the store and adds to the
+	 * store the files it carries. Nothing is stored nor restored unless every
+	 * path of the manifest is inside the bundle, every file the bundle carries
+	 * has the hash of the manifest and every other file is in the store.
+	 * @param bundleFolder the folder the bundle has been extracted to
+	 * @param manifest the hash of each file of the bundle
+	 * @throws IOException if a path is outside of the bundle, a file does not
+	 *             have its hash, or it is neither in the bundle nor in the store
+	 */
+	public void restore(File bundleFolder, Map<String, String> manifest) throws IOException {
+
+		// checks everything before changing anything
+		File folder = bundleFolder.getCanonicalFile();
+		Map<File, String> files = new LinkedHashMap<File, String>();
+		for (Map.Entry<String, String> entry : manifest.entrySet()) {
+			File file = new File(folder, entry.getKey()).getCanonicalFile();
+			if (!file.toPath().startsWith(folder.toPath()) || file.equals(folder)) {
+				throw new IOException("The file " + entry.getKey() + " is outside of the bundle");
+			}
+			File stored = fileOf(entry.getValue());
+			if (file.isFile()) {
+				if (stored == null || !hash(file).equals(entry.getValue())) {
+					throw new IOException("The file " + entry.getKey() + " does not have the hash " + entry.getValue());
+				}
+			} else if (stored == null || !stored.isFile()) {
+				throw new IOException("The file " + entry.getKey() + " is neither in the bundle nor stored with the hash "
+						+ entry.getValue());
+			}
+			files.put(file, entry.getValue());
+		}
+
+		int restored = 0;
+		int added = 0;
+		long now = System.currentTimeMillis();
+		for (Map.Entry<File, String> entry : files.entrySet()) {
+			File file = entry.getKey();
+			File stored = fileOf(entry.getValue());
+			if (file.isFile()) {
+				if (!stored.isFile()) {
+					stored.getParentFile().mkdirs();
+					copy(file, stored);
+					added++;
+				}
+			} else {
+				file.getParentFile().mkdirs();
+				copy(stored, file);
+				restored++;
+			}
+			stored.setLastModified(now);
+		}
+		Logger.info(this.getClass(), "Restored " + restored + " and stored " + added + " of the " + manifest.size()
+				+ " files of the bundle " + bundleFolder.getName());
+	}
+
+	/**
+	 * Deletes the least recently used files until the store is under its budget
+	 */
+	public void evict() {
+
+		if (maxBytes <= 0 || !root.isDirectory()) {
+			return;
+		}
+		List<File> files = new ArrayList<File>();
+		long total = 0;
+		File[] dirs = root.listFiles();
+		if (dirs != null) {
+			for (File dir : dirs) {
+				File[] children = dir.listFiles();
+				if (children != null) {
+					for (File child : children) {
+						files.add(child);
+						total += child.length();
+					}
+				}
+			}
+		}
+		if (total <= maxBytes) {
+			return;
+		}
+
+		final Map<File, Long> used = new LinkedHashMap<File, Long>();
+		for (File file : files) {
+			used.put(file, file.lastModified());
+		}
+		Collections.sort(files, new Comparator<File>() {
+			public int compare(File a, File b) {
+				return Long.compare(used.get(a), used.get(b));
+			}
+		});
+
+		long recent = System.currentTimeMillis() - GRACE_MILLIS;
+		int deleted = 0;
+		for (File file : files) {
+			if (total <= maxBytes || used.get(file) > recent) {
+				break;
+			}
+			long length = file.length();
+			if (file.delete()) {
+				total -= length;
+				deleted++;
+			} else {
+				Logger.warn(this.getClass(), "Unable to delete the stored file " + file.getAbsolutePath());
+			}
+		}
+		Logger.info(this.getClass(), "Deleted " + deleted + " files from the bundle store, " + (total / 1024 / 1024)
+				+ "MB left");
+	}
+
+	private File fileOf(String hash) {
+		if (hash == null || hash.length() < 3 || !hash.matches("[0-9a-f]+")) {
+			return null;
+		}
+		return new File(new File(root, hash.substring(0, 2)), hash);
+	}
+
+	/**
+	 * Copies the file, so the handlers writing to a bundle file never change
+	 * the stored one. Copies are written aside and moved, so a half written
+	 * file is never used.
+	 */
+	private static void copy(File from, File to) throws IOException {
+		File tmp = new File(to.getParentFile(), to.getName() + "." + UUID.randomUUID().toString() + ".tmp");
+		try {
+			Files.copy(from.toPath(), tmp.toPath());
+			Files.move(tmp.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			tmp.delete();
+		}
+	}
+
+}
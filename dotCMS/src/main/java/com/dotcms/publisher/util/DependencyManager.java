@@ -1,17 +1,33 @@
 package com.dotcms.publisher.util;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import com.dotcms.enterprise.rules.RulesAPI;
+import com.dotcms.publisher.business.DotPublisherException;
+import com.dotcms.publisher.business.PublishAuditAPI;
+import com.dotcms.publisher.business.PublishAuditHistory;
+import com.dotcms.publisher.business.PublishAuditStatus;
 import com.dotcms.publisher.business.PublishQueueElement;
 import com.dotcms.publisher.pusher.PushPublisherConfig;
 import com.dotcms.publisher.pusher.PushPublisherConfig.Operation;
 import com.dotcms.publishing.DotBundleException;
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
 import com.dotcms.repackage.org.apache.commons.lang.StringUtils;
 import com.dotmarketing.beans.ContainerStructure;
 import com.dotmarketing.beans.Host;
@@ -21,17 +37,17 @@ import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotIdentifierStateException;
 import com.dotmarketing.business.DotStateException;
-import com.dotmarketing.business.IdentifierAPI;
 import com.dotmarketing.cache.FieldsCache;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotHibernateException;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.factories.MultiTreeFactory;
 import com.dotmarketing.portlets.containers.model.Container;
 import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
 import com.dotmarketing.portlets.contentlet.business.DotContentletStateException;
-import com.dotmarketing.portlets.contentlet.business.HostAPI;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
-import com.dotmarketing.portlets.folders.business.FolderAPI;
 import com.dotmarketing.portlets.folders.model.Folder;
 import com.dotmarketing.portlets.htmlpageasset.model.IHTMLPage;
 import com.dotmarketing.portlets.htmlpages.business.HTMLPageAPI;
@@ -49,6 +65,7 @@ import com.dotmarketing.portlets.workflows.model.WorkflowScheme;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.InodeUtils;
 import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.PushPublishLogger;
 import com.dotmarketing.util.UtilMethods;
 import com.liferay.portal.model.User;
 
@@ -67,6 +84,15 @@ import com.liferay.portal.model.User;
  * The Dependency Manager analyzes the type of each asset to push and includes
  * dependent information in the bundle. This way, it can be seen by users
  * exactly the same in both the sender and receiver servers.
+ * <p>
+ * The dependencies are solved by asset type, in the same order as always. The
+ * lookups of the assets of a type, what each one depends on, run in parallel
+ * in a fork-join pool of PUSH_PUBLISHING_DEPENDENCY_THREADS threads, and
+ * identifiers, contents and multi-trees are loaded in batches. The lookups are kept in the
+ * {@link ResolvedDependencies} of the publishing run, so the bundles of a run
+ * don't look up the same assets again. Only the lookups run in parallel, the
+ * dependencies found are added to the bundle by the calling thread. The time
+ * each asset type took is added to the audit of the bundle.
  * 
  * @author Daniel Silva
  * @version 1.0
@@ -103,6 +129,15 @@ public class DependencyManager {
 
 	private PushPublisherConfig config;
 
+	private final ResolvedDependencies resolved;
+
+	//time in milliseconds the dependencies of each asset type took to resolve
+	private final Map<String, Long> times = new LinkedHashMap<String, Long>();
+
+	private static final int SEARCH_BATCH_SIZE = 200;
+
+	private static volatile ForkJoinPool pool;
+
 	/**
 	 * Initializes the list of dependencies that this manager needs to satisfy,
 	 * based on the {@link PushPublisherConfig} specified for the bundle.
@@ -143,6 +178,7 @@ public class DependencyManager {
 		solvedStructures = new HashSet<String>();
 
 		this.user = user;
+		this.resolved = ResolvedDependencies.getInstance();
 	}
 
 	/**
@@ -160,6 +196,7 @@ public class DependencyManager {
 	 *             An error occurred when generating the bundle data.
 	 */
 	public void setDependencies() throws DotSecurityException, DotDataException, DotBundleException {
+		long start = System.currentTimeMillis();
 		List<PublishQueueElement> assets = config.getAssets();
 
 		for (PublishQueueElement asset : assets) {
@@ -314,24 +351,34 @@ public class DependencyManager {
 
 		if(UtilMethods.isSet(config.getLuceneQueries())){
             List<String> contentIds = PublisherUtil.getContentIds( config.getLuceneQueries());
-            for(String id : contentIds){
-                List<Contentlet> contentlets = APILocator.getContentletAPI().search("+identifier:"+id, 0, 0, "moddate", user, false);
+            for(List<Contentlet> contentlets : findContentlets(contentIds).values()){
                 for(Contentlet con : contentlets){
-                    contents.add( con.getIdentifier(), con.getModDate()); 
+                    contents.add( con.getIdentifier(), con.getModDate());
                     contentsSet.add(con.getIdentifier());
                 }
             }
         }
-		
+		start = addTime("assets", start);
+
 		setHostDependencies();
+		start = addTime("host", start);
         setFolderDependencies();
+        start = addTime("folder", start);
         setHTMLPagesDependencies();
+        start = addTime("htmlpage", start);
         setTemplateDependencies();
+        start = addTime("template", start);
         setContainerDependencies();
+        start = addTime("container", start);
         setStructureDependencies();
+        start = addTime("structure", start);
         setLinkDependencies();
+        start = addTime("link", start);
         setContentDependencies();
+        start = addTime("content", start);
         setRuleDependencies();
+        addTime("rule", start);
+        addTimesToAudit();
 
 		config.setHostSet(hosts);
 		config.setFolders(folders);
@@ -355,46 +402,85 @@ public class DependencyManager {
 	 * </ul>
 	 */
 	private void setLinkDependencies() {
-		for(String linkId : linksSet) {
-			try {
-				Identifier ident=APILocator.getIdentifierAPI().find(linkId);
-				Folder ff = APILocator.getFolderAPI().findFolderByPath(ident.getParentPath(), ident.getHostId(), user, false);
-                folders.addOrClean( ff.getInode(), ff.getModDate());
-				foldersSet.add(ff.getInode());
-
-				Host hh=APILocator.getHostAPI().find(ident.getHostId(), user, false);
-                hosts.addOrClean( hh.getIdentifier(), hh.getModDate());
-				hostsSet.add(hh.getIdentifier());
-
-				Link link = APILocator.getMenuLinkAPI().findWorkingLinkById(linkId, user, false);
-
-				if(link!=null) {
+		List<String> ids = new ArrayList<String>(linksSet);
+		preloadIdentifiers(ids);
+		List<Future<LinkNode>> nodes = resolve("linknode", ids, linkId -> {
+			LinkNode node = new LinkNode();
+			Identifier ident = findIdentifier(linkId);
+			node.folder = findFolderByPath(ident.getParentPath(), ident.getHostId());
+			node.host = findHost(ident.getHostId());
+
+			Link link = APILocator.getMenuLinkAPI().findWorkingLinkById(linkId, user, false);
+
+			if(link!=null && link.getLinkType().equals(Link.LinkType.INTERNAL.toString())) {
+				node.internalLinkIdentifier = link.getInternalLinkIdentifier();
+			}
+			return node;
+		});
 
-					if(link.getLinkType().equals(Link.LinkType.INTERNAL.toString())) {
-						Identifier id = APILocator.getIdentifierAPI().find(link.getInternalLinkIdentifier());
+		// the identifiers the internal links point to, in batches
+		Set<String> internalIds = new HashSet<String>();
+		for (Future<LinkNode> future : nodes) {
+			try {
+				LinkNode node = get(future);
+				if (node.internalLinkIdentifier != null) {
+					internalIds.add(node.internalLinkIdentifier);
+				}
+			} catch (Exception e) {
+				// logged below, with the link
+			}
+		}
+		preloadIdentifiers(internalIds);
+		List<String> targetIds = new ArrayList<String>(internalIds);
+		List<Future<LinkTarget>> targets = resolve("linktarget", targetIds, targetId -> {
+			LinkTarget target = new LinkTarget();
+			Identifier id = findIdentifier(targetId);
+
+			// add file/content dependencies. will also work with htmlpages as content
+			if (InodeUtils.isSet(id.getInode()) && id.getAssetType().equals("contentlet")) {
+				target.contents = findContentlets(Collections.singleton(id.getId())).get(id.getId());
+
+			// add htmlpages dependencies
+			} else if(InodeUtils.isSet(id.getInode()) && id.getAssetType().equals("htmlpage")) {
+				HTMLPage page = APILocator.getHTMLPageAPI().loadLivePageById(id.getId(), user, false);
+
+				if(page==null) {
+					page = APILocator.getHTMLPageAPI().loadWorkingPageById(id.getId(), user, false);
+				}
 
-						// add file/content dependencies. will also work with htmlpages as content
-						if (InodeUtils.isSet(id.getInode()) && id.getAssetType().equals("contentlet")) {
-							List<Contentlet> contentList = APILocator.getContentletAPI().search("+identifier:"+id.getId(), 0, 0, "moddate", user, false);
+				target.pageId = id.getId();
+				target.page = page;
+			}
+			return target;
+		});
+		Map<String, Future<LinkTarget>> targetsById = new HashMap<String, Future<LinkTarget>>();
+		for (int i = 0; i < targetIds.size(); i++) {
+			targetsById.put(targetIds.get(i), targets.get(i));
+		}
 
-							for (Contentlet contentlet : contentList) {
-								contents.addOrClean(contentlet.getIdentifier(), contentlet.getModDate());
-								contentsSet.add(contentlet.getIdentifier());
-							}
+		for (int i = 0; i < ids.size(); i++) {
+			String linkId = ids.get(i);
+			try {
+				LinkNode node = get(nodes.get(i));
+				LinkTarget target = node.internalLinkIdentifier != null
+						? get(targetsById.get(node.internalLinkIdentifier)) : new LinkTarget();
 
-						// add htmlpages dependencies
-						} else if(InodeUtils.isSet(id.getInode()) && id.getAssetType().equals("htmlpage")) {
-							HTMLPage page = APILocator.getHTMLPageAPI().loadLivePageById(id.getId(), user, false);
+                folders.addOrClean( node.folder.getInode(), node.folder.getModDate());
+				foldersSet.add(node.folder.getInode());
 
-							if(page==null) {
-								page = APILocator.getHTMLPageAPI().loadWorkingPageById(id.getId(), user, false);
-							}
+                hosts.addOrClean( node.host.getIdentifier(), node.host.getModDate());
+				hostsSet.add(node.host.getIdentifier());
 
-							htmlPages.addOrClean(id.getId(), page.getModDate());
-							htmlPagesSet.add(id.getId());
-						}
+				if (target.contents != null) {
+					for (Contentlet contentlet : target.contents) {
+						contents.addOrClean(contentlet.getIdentifier(), contentlet.getModDate());
+						contentsSet.add(contentlet.getIdentifier());
 					}
 				}
+				if (target.pageId != null) {
+					htmlPages.addOrClean(target.pageId, target.page.getModDate());
+					htmlPagesSet.add(target.pageId);
+				}
 
 			} catch (Exception e) {
 				Logger.error(this, "can't load menuLink deps "+linkId,e);
@@ -416,49 +502,53 @@ public class DependencyManager {
 	 */
 	private void setHostDependencies () {
 		try {
-			for (String id : hostsSet) {
-				final Host h = APILocator.getHostAPI().find(id, user, false);
+			List<Future<HostNode>> nodes = resolve("hostnode", new ArrayList<String>(hostsSet), id -> {
+				final Host h = findHost(id);
+				HostNode node = new HostNode();
+				node.templates = APILocator.getTemplateAPI().findTemplatesAssignedTo(h);
+				node.containers = APILocator.getContainerAPI().findContainersUnder(h);
+				node.contents = APILocator.getContentletAPI().search("+conHost:" + h.getIdentifier(), 0, 0, null, user, false);
+				node.structures = StructureFactory.getStructuresUnderHost(h, user, false);
+				node.folders = APILocator.getFolderAPI().findFoldersByHost(h, user, false);
+				node.rules = APILocator.getRulesAPI().getAllRulesByParent(h, user, false);
+				return node;
+			});
+
+			for (Future<HostNode> future : nodes) {
+				final HostNode node = get(future);
 
 				// Template dependencies
-				final List<Template> templateList = APILocator.getTemplateAPI().findTemplatesAssignedTo(h);
-				for (Template template : templateList) {
+				for (Template template : node.templates) {
 					templates.addOrClean( template.getIdentifier(), template.getModDate());
 					templatesSet.add(template.getIdentifier());
 				}
 
 				// Container dependencies
-				final List<Container> containerList = APILocator.getContainerAPI().findContainersUnder(h);
-				for (Container container : containerList) {
+				for (Container container : node.containers) {
 					containers.addOrClean( container.getIdentifier(), container.getModDate());
 					containersSet.add(container.getIdentifier());
 				}
 
 				// Content dependencies
-				String luceneQuery = "+conHost:" + h.getIdentifier();
-
-				final List<Contentlet> contentList = APILocator.getContentletAPI().search(luceneQuery, 0, 0, null, user, false);
-				for (Contentlet contentlet : contentList) {
+				for (Contentlet contentlet : node.contents) {
 					contents.addOrClean( contentlet.getIdentifier(), contentlet.getModDate());
 					contentsSet.add(contentlet.getIdentifier());
 				}
 
 				// Structure dependencies
-				final List<Structure> structuresList = StructureFactory.getStructuresUnderHost(h, user, false);
-				for (Structure structure : structuresList) {
+				for (Structure structure : node.structures) {
 					structures.addOrClean( structure.getInode(), structure.getModDate());
 					structuresSet.add(structure.getInode());
 				}
 
 				// Folder dependencies
-				final List<Folder> folderList = APILocator.getFolderAPI().findFoldersByHost(h, user, false);
-				for (Folder folder : folderList) {
+				for (Folder folder : node.folders) {
 					folders.addOrClean( folder.getInode(), folder.getModDate());
 					foldersSet.add(folder.getInode());
 				}
-				
+
 				// Rule dependencies
-				final List<Rule> ruleList = APILocator.getRulesAPI().getAllRulesByParent(h, user, false);
-				for (final Rule rule : ruleList) {
+				for (final Rule rule : node.rules) {
 					this.rules.add(rule.getId());
 					this.ruleSet.add(rule.getId());
 				}
@@ -486,10 +576,15 @@ public class DependencyManager {
 
 			HashSet<String> parentFolders = new HashSet<String>();
 
-			for (String id : foldersSet) {
-				Folder f = APILocator.getFolderAPI().find(id, user, false);
+			List<Future<Folder[]>> found = resolve("folderparent", new ArrayList<String>(foldersSet), id -> {
+				Folder f = findFolder(id);
+				return new Folder[] { f, APILocator.getFolderAPI().findParentFolder(f, user, false) };
+			});
+			for (Future<Folder[]> future : found) {
+				Folder[] folderAndParent = get(future);
+				Folder f = folderAndParent[0];
 				// Parent folder
-				Folder parent = APILocator.getFolderAPI().findParentFolder(f, user, false);
+				Folder parent = folderAndParent[1];
 				if(UtilMethods.isSet(parent)) {
 					folders.addOrClean( parent.getInode(), parent.getModDate());
 					parentFolders.add(parent.getInode());
@@ -509,68 +604,84 @@ public class DependencyManager {
 	}
 
 	/**
-	 * 
+	 * Adds the folders, their contents and their sub-folders, level by level.
+	 * The folders of a level are looked up in parallel.
+	 *
 	 * @param folderList
 	 * @throws DotIdentifierStateException
 	 * @throws DotDataException
 	 * @throws DotSecurityException
 	 */
 	private void setFolderListDependencies(List<Folder> folderList) throws DotIdentifierStateException, DotDataException, DotSecurityException {
-		for (Folder f : folderList) {
-
-			// Add folder even if empty
-			folders.addOrClean( f.getInode(), f.getModDate());
-			foldersSet.add(f.getInode());
-
-			// Host dependency
-			Host h = APILocator.getHostAPI().find(f.getHostId(), user, false);
-			hosts.addOrClean( f.getHostId(), h.getModDate());
-			hostsSet.add(f.getHostId());
-
-			// Content dependencies
-			String luceneQuery = "+conFolder:" + f.getInode();
-
-			List<Contentlet> contentList = APILocator.getContentletAPI().search(luceneQuery, 0, 0, null, user, false);
-			for (Contentlet contentlet : contentList) {
-				contents.addOrClean( contentlet.getIdentifier(), contentlet.getModDate());
-				contentsSet.add(contentlet.getIdentifier());
+		List<Folder> level = folderList;
+		while (!level.isEmpty()) {
+			final Map<String, Folder> byInode = new LinkedHashMap<String, Folder>();
+			for (Folder f : level) {
+				byInode.put(f.getInode(), f);
 			}
+			List<Future<FolderNode>> nodes = resolve("foldernode", byInode.keySet(), inode -> {
+				Folder f = byInode.get(inode);
+				FolderNode node = new FolderNode();
+				node.host = findHost(f.getHostId());
+				node.contents = APILocator.getContentletAPI().search("+conFolder:" + f.getInode(), 0, 0, null, user, false);
+				node.links = APILocator.getMenuLinkAPI().findFolderMenuLinks(f);
+				node.structures = APILocator.getFolderAPI().getStructures(f, user, false);
+				if ( f.getDefaultFileType() != null ) {
+					node.defaultStructure = CacheLocator.getContentTypeCache().getStructureByInode( f.getDefaultFileType() );
+				}
+				node.pages = APILocator.getFolderAPI().getHTMLPages(f, user, false);
+				node.subFolders = APILocator.getFolderAPI().findSubFolders(f, user, false);
+				return node;
+			});
 
-			// Menu Link dependencies
+			List<Folder> next = new ArrayList<Folder>();
+			int i = 0;
+			for (Folder f : byInode.values()) {
+				FolderNode node = get(nodes.get(i++));
 
-			List<Link> linkList = APILocator.getMenuLinkAPI().findFolderMenuLinks(f);
-			for (Link link : linkList) {
-				links.addOrClean( link.getIdentifier(), link.getModDate());
-				linksSet.add(link.getIdentifier());
-			}
+				// Add folder even if empty
+				folders.addOrClean( f.getInode(), f.getModDate());
+				foldersSet.add(f.getInode());
 
-			// Structure dependencies
-			List<Structure> structureList = APILocator.getFolderAPI().getStructures(f, user, false);
+				// Host dependency
+				hosts.addOrClean( f.getHostId(), node.host.getModDate());
+				hostsSet.add(f.getHostId());
 
-			for (Structure structure : structureList) {
-				structures.addOrClean( structure.getInode(), structure.getModDate());
-				structuresSet.add(structure.getInode());
-			}
+				// Content dependencies
+				for (Contentlet contentlet : node.contents) {
+					contents.addOrClean( contentlet.getIdentifier(), contentlet.getModDate());
+					contentsSet.add(contentlet.getIdentifier());
+				}
 
-            //Add the default structure of this folder
-            if ( f.getDefaultFileType() != null ) {
-                Structure defaultStructure = CacheLocator.getContentTypeCache().getStructureByInode( f.getDefaultFileType() );
-                if ( (defaultStructure != null && InodeUtils.isSet( defaultStructure.getInode() ))
-                        && !structuresSet.contains( defaultStructure.getInode() ) ) {
-                    structures.addOrClean( defaultStructure.getInode(), defaultStructure.getModDate() );
-                    structuresSet.add( defaultStructure.getInode() );
-                }
-            }
+				// Menu Link dependencies
+				for (Link link : node.links) {
+					links.addOrClean( link.getIdentifier(), link.getModDate());
+					linksSet.add(link.getIdentifier());
+				}
+
+				// Structure dependencies
+				for (Structure structure : node.structures) {
+					structures.addOrClean( structure.getInode(), structure.getModDate());
+					structuresSet.add(structure.getInode());
+				}
 
-            // HTML Page dependencies
-			List<HTMLPage> pages = APILocator.getFolderAPI().getHTMLPages(f, user, false);
+	            //Add the default structure of this folder
+	            Structure defaultStructure = node.defaultStructure;
+	            if ( (defaultStructure != null && InodeUtils.isSet( defaultStructure.getInode() ))
+	                    && !structuresSet.contains( defaultStructure.getInode() ) ) {
+	                structures.addOrClean( defaultStructure.getInode(), defaultStructure.getModDate() );
+	                structuresSet.add( defaultStructure.getInode() );
+	            }
+
+	            // HTML Page dependencies
+				for (HTMLPage p : node.pages) {
+					htmlPages.addOrClean( p.getIdentifier(), p.getModDate());
+					htmlPagesSet.add(p.getIdentifier());
+				}
 
-			for (HTMLPage p : pages) {
-				htmlPages.addOrClean( p.getIdentifier(), p.getModDate());
-				htmlPagesSet.add(p.getIdentifier());
+				next.addAll(node.subFolders);
 			}
-
-			setFolderListDependencies(APILocator.getFolderAPI().findSubFolders(f, user, false));
+			level = next;
 		}
 
 	}
@@ -585,9 +696,10 @@ public class DependencyManager {
 
 			Set<String> idsToWork = new HashSet<>();
 			idsToWork.addAll(htmlPagesSet);
+			Map<String, List<Contentlet>> found = findContentlets(contentsSet);
 			for (String contId : contentsSet) {
 
-				List<Contentlet> c = APILocator.getContentletAPI().search("+identifier:" + contId, 0, 0, "moddate", user, false);
+				List<Contentlet> c = found.get(contId);
 
 				if (c != null && !c.isEmpty() && c.get(0).getStructure().getStructureType() == Structure.STRUCTURE_TYPE_HTMLPAGE) {
 					idsToWork.add(contId);
@@ -615,33 +727,28 @@ public class DependencyManager {
 	 * <li>Contentlets.</li>
 	 * <li>Rules.</li>
 	 * </ul>
-	 * 
+	 * The multi-trees of all the pages and the contents they point to are
+	 * loaded in batches.
+	 *
 	 * @param idsToWork
 	 */
 	private void setHTMLPagesDependencies(Set<String> idsToWork) {
 
 		try {
 
-			IdentifierAPI idenAPI = APILocator.getIdentifierAPI();
-			FolderAPI folderAPI = APILocator.getFolderAPI();
-			List<Container> containerList = new ArrayList<Container>();
-
-			for (String pageId : idsToWork) {
-				Identifier iden = idenAPI.find(pageId);
+			List<String> ids = new ArrayList<String>(idsToWork);
+			preloadIdentifiers(ids);
+			List<Future<PageNode>> nodes = resolve("pagenode", ids, pageId -> {
+				PageNode node = new PageNode();
+				Identifier iden = findIdentifier(pageId);
+				node.identifier = iden;
+				node.host = findHost(iden.getHostId());
+				node.folder = findFolderByPath(iden.getParentPath(), iden.getHostId());
 
-				// Host dependency
-				Host h = APILocator.getHostAPI().find(iden.getHostId(), user, false);
-				hosts.addOrClean( iden.getHostId(), h.getModDate());
-				hostsSet.add(iden.getHostId());
-				Folder folder = folderAPI.findFolderByPath(iden.getParentPath(), iden.getHostId(), user, false);
-				folders.addOrClean( folder.getInode(), folder.getModDate());
-				foldersSet.add(folder.getInode());
-				
-				
 				// looking for working version (must exists)
 				IHTMLPage workingPage = null;
-				
-				if(iden.getAssetType().equals("htmlpage")){ 
+
+				if(iden.getAssetType().equals("htmlpage")){
 					workingPage = APILocator.getHTMLPageAPI().loadWorkingPageById(pageId, user, false);
 				}else{
 					Contentlet contentlet = null;
@@ -654,10 +761,10 @@ public class DependencyManager {
 					if(contentlet != null)
 						workingPage = APILocator.getHTMLPageAssetAPI().fromContentlet(contentlet);
 				}
-				
+
 				// looking for live version (might not exists)
 				IHTMLPage livePage = null;
-				
+
 				if(iden.getAssetType().equals("htmlpage")){
 					livePage = APILocator.getHTMLPageAPI().loadLivePageById(pageId, user, false);
 				}else{
@@ -667,26 +774,23 @@ public class DependencyManager {
 						if(!result.isEmpty()) {
 							contentlet = result.get(0);
 						}
-						
+
 					} catch (DotContentletStateException e) {
 						// content not found message is already displayed on console
 						Logger.debug(this, e.getMessage(),e);
 					}
 					if(contentlet != null)
-						livePage = APILocator.getHTMLPageAssetAPI().fromContentlet(contentlet); 
+						livePage = APILocator.getHTMLPageAssetAPI().fromContentlet(contentlet);
 				}
-				            
-				// working template working page
-				Template workingTemplateWP = null;
+				node.workingPage = workingPage;
+				node.livePage = livePage;
+
 				// live template working page
 				Template liveTemplateWP = null;
 
 				if(workingPage!=null) {
-					workingTemplateWP = APILocator.getTemplateAPI().findWorkingTemplate(workingPage.getTemplateId(), user, false);
+					node.workingTemplate = APILocator.getTemplateAPI().findWorkingTemplate(workingPage.getTemplateId(), user, false);
 					liveTemplateWP = APILocator.getTemplateAPI().findLiveTemplate(workingPage.getTemplateId(), user, false);
-					// Templates dependencies
-					templates.addOrClean( workingPage.getTemplateId(), workingTemplateWP.getModDate());
-					templatesSet.add(workingPage.getTemplateId());
 				}
 
 				Template liveTemplateLP = null;
@@ -694,50 +798,85 @@ public class DependencyManager {
 				// live template live page
 				if(livePage!=null) {
 					liveTemplateLP = APILocator.getTemplateAPI().findLiveTemplate(livePage.getTemplateId(), user, false);
-					// Templates dependencies
-					templates.addOrClean( livePage.getTemplateId(), livePage.getModDate());
-					templatesSet.add(livePage.getTemplateId());
 				}
 
 				// Containers dependencies
-				containerList.clear();
-
-				if(workingTemplateWP!=null && InodeUtils.isSet(workingTemplateWP.getInode()))
-					containerList.addAll(APILocator.getTemplateAPI().getContainersInTemplate(workingTemplateWP, user, false));
+				node.containers = new ArrayList<Container>();
+				if(node.workingTemplate!=null && InodeUtils.isSet(node.workingTemplate.getInode()))
+					node.containers.addAll(APILocator.getTemplateAPI().getContainersInTemplate(node.workingTemplate, user, false));
 				if(liveTemplateWP!=null && InodeUtils.isSet(liveTemplateWP.getInode()))
-					containerList.addAll(APILocator.getTemplateAPI().getContainersInTemplate(liveTemplateWP, user, false));
+					node.containers.addAll(APILocator.getTemplateAPI().getContainersInTemplate(liveTemplateWP, user, false));
 				if(liveTemplateLP!=null && InodeUtils.isSet(liveTemplateLP.getInode()))
-					containerList.addAll(APILocator.getTemplateAPI().getContainersInTemplate(liveTemplateLP, user, false));
+					node.containers.addAll(APILocator.getTemplateAPI().getContainersInTemplate(liveTemplateLP, user, false));
+
+				node.containerStructures = new ArrayList<List<ContainerStructure>>();
+				for (Container container : node.containers) {
+					node.containerStructures.add(findContainerStructures(container));
+				}
+
+				node.rules = APILocator.getRulesAPI().getAllRulesByParent(workingPage, user, false);
+				return node;
+			});
 
-				for (Container container : containerList) {
+			// the contents of all the pages, with one query per batch of pages and contents
+			Map<String, List<MultiTree>> trees = findMultiTrees(ids);
+			Set<String> children = new HashSet<String>();
+			for (List<MultiTree> pageTrees : trees.values()) {
+				for (MultiTree mt : pageTrees) {
+					children.add(mt.getChild());
+				}
+			}
+			Map<String, List<Contentlet>> childContents = findContentlets(children);
+
+			for (int i = 0; i < ids.size(); i++) {
+				String pageId = ids.get(i);
+				PageNode node = get(nodes.get(i));
+				Identifier iden = node.identifier;
+
+				// Host dependency
+				hosts.addOrClean( iden.getHostId(), node.host.getModDate());
+				hostsSet.add(iden.getHostId());
+				folders.addOrClean( node.folder.getInode(), node.folder.getModDate());
+				foldersSet.add(node.folder.getInode());
+
+				if(node.workingPage!=null) {
+					// Templates dependencies
+					templates.addOrClean( node.workingPage.getTemplateId(), node.workingTemplate.getModDate());
+					templatesSet.add(node.workingPage.getTemplateId());
+				}
+
+				// live template live page
+				if(node.livePage!=null) {
+					// Templates dependencies
+					templates.addOrClean( node.livePage.getTemplateId(), node.livePage.getModDate());
+					templatesSet.add(node.livePage.getTemplateId());
+				}
+
+				for (int j = 0; j < node.containers.size(); j++) {
+					Container container = node.containers.get(j);
 					containers.addOrClean( container.getIdentifier(), container.getModDate());
 					containersSet.add(container.getIdentifier());
 					// Structure dependencies
-					List<ContainerStructure> csList = APILocator.getContainerAPI().getContainerStructures(container);
-
-					for (ContainerStructure containerStructure : csList) {
+					for (ContainerStructure containerStructure : node.containerStructures.get(j)) {
 						Structure st = CacheLocator.getContentTypeCache().getStructureByInode(containerStructure.getStructureId());
 						structures.addOrClean(containerStructure.getStructureId(), st.getModDate());
 						structuresSet.add(containerStructure.getStructureId());
 					}
 
-					List<MultiTree> treeList = MultiTreeFactory.getMultiTree(workingPage,container);
-
-					for (MultiTree mt : treeList) {
-						String contentIdentifier = mt.getChild();
+					for (MultiTree mt : trees.get(pageId)) {
+						if (!container.getIdentifier().equals(mt.getParent2())) {
+							continue;
+						}
 						// Contents dependencies
-
-                        List<Contentlet> contentList = APILocator.getContentletAPI().search( "+identifier:" + contentIdentifier, 0, 0, "moddate", user, false );
-                        for ( Contentlet contentlet : contentList ) {
+                        for ( Contentlet contentlet : childContents.get(mt.getChild()) ) {
                             contents.addOrClean( contentlet.getIdentifier(), contentlet.getModDate() );
                             contentsSet.add( contentlet.getIdentifier() );
                         }
                     }
 				}
-				
+
 				// Rule dependencies
-				final List<Rule> ruleList = APILocator.getRulesAPI().getAllRulesByParent(workingPage, user, false);
-				for (final Rule rule : ruleList) {
+				for (final Rule rule : node.rules) {
 					this.rules.add(rule.getId());
 					this.ruleSet.add(rule.getId());
 				}
@@ -758,48 +897,65 @@ public class DependencyManager {
 	 */
 	private void setTemplateDependencies() {
 		try {
-			List<Container> containerList = new ArrayList<Container>();
-			FolderAPI folderAPI = APILocator.getFolderAPI();
-			
-			for (String id : templatesSet) {
+			List<String> ids = new ArrayList<String>(templatesSet);
+			List<Future<TemplateNode>> nodes = resolve("templatenode", ids, id -> {
+				TemplateNode node = new TemplateNode();
 				Template wkT = APILocator.getTemplateAPI().findWorkingTemplate(id, user, false);
 				Template lvT = APILocator.getTemplateAPI().findLiveTemplate(id, user, false);
 
 				// Host dependency
-				Host h = APILocator.getHostAPI().find(APILocator.getTemplateAPI().getTemplateHost(wkT).getIdentifier(), user, false);
-				hosts.addOrClean( APILocator.getTemplateAPI().getTemplateHost( wkT ).getIdentifier(), h.getModDate());
+				node.hostId = APILocator.getTemplateAPI().getTemplateHost(wkT).getIdentifier();
+				node.host = findHost(node.hostId);
 
-				containerList.clear();
-				containerList.addAll(APILocator.getTemplateAPI().getContainersInTemplate(wkT, user, false));
+				node.containers = new ArrayList<Container>();
+				node.containers.addAll(APILocator.getTemplateAPI().getContainersInTemplate(wkT, user, false));
 
 				if(lvT!=null && InodeUtils.isSet(lvT.getInode())) {
-					containerList.addAll(APILocator.getTemplateAPI().getContainersInTemplate(lvT, user, false));
+					node.containers.addAll(APILocator.getTemplateAPI().getContainersInTemplate(lvT, user, false));
+				}
+
+				//Adding theme
+				if(UtilMethods.isSet(wkT.getTheme())){
+					try{
+						Folder themeFolder = findFolder(wkT.getTheme());
+						if(themeFolder != null &&  InodeUtils.isSet(themeFolder.getInode())){
+							node.themeParent = APILocator.getFolderAPI().findParentFolder(themeFolder, user, false);
+							node.themeFolder = themeFolder;
+						}
+					}catch(DotDataException e1){
+						Logger.error(DependencyManager.class, "Error trying to add theme folder for template Id: "+id+". Theme folder ignored because: "+e1.getMessage(),e1);
+					}
 				}
+				return node;
+			});
 
-				for (Container container : containerList) {
+			for (int i = 0; i < ids.size(); i++) {
+				String id = ids.get(i);
+				TemplateNode node = get(nodes.get(i));
+
+				// Host dependency
+				hosts.addOrClean( node.hostId, node.host.getModDate());
+
+				for (Container container : node.containers) {
 					// Container dependencies
 					containers.addOrClean( container.getIdentifier(), container.getModDate());
 					containersSet.add(container.getIdentifier());
 				}
-				
+
 				//Adding theme
-				if(UtilMethods.isSet(wkT.getTheme())){
+				if(node.themeFolder != null){
 					try{
-						Folder themeFolder = folderAPI.find(wkT.getTheme(), user, false);
-						if(themeFolder != null &&  InodeUtils.isSet(themeFolder.getInode())){
-							Folder parent = APILocator.getFolderAPI().findParentFolder(themeFolder, user, false);
-							if(UtilMethods.isSet(parent)) {
-								folders.addOrClean( parent.getInode(), parent.getModDate());
-								foldersSet.add(parent.getInode());
-							}
-							List<Folder> folderList = new ArrayList<Folder>();
-							folderList.add(themeFolder);
-							setFolderListDependencies(folderList);
+						if(UtilMethods.isSet(node.themeParent)) {
+							folders.addOrClean( node.themeParent.getInode(), node.themeParent.getModDate());
+							foldersSet.add(node.themeParent.getInode());
 						}
+						List<Folder> folderList = new ArrayList<Folder>();
+						folderList.add(node.themeFolder);
+						setFolderListDependencies(folderList);
 					}catch(DotDataException e1){
 						Logger.error(DependencyManager.class, "Error trying to add theme folder for template Id: "+id+". Theme folder ignored because: "+e1.getMessage(),e1);
 					}
-				}				
+				}
 			}
 
 		} catch (DotSecurityException e) {
@@ -823,36 +979,38 @@ public class DependencyManager {
 
 		try {
 
-			List<Container> containerList = new ArrayList<Container>();
-
-			for (String id : containersSet) {
+			List<Future<ContainerNode>> nodes = resolve("containernode", new ArrayList<String>(containersSet), id -> {
+				ContainerNode node = new ContainerNode();
 				Container c = APILocator.getContainerAPI().getWorkingContainerById(id, user, false);
 
 				// Host Dependency
-				Host h = APILocator.getContainerAPI().getParentHost(c, user, false);
-				hosts.addOrClean( APILocator.getContainerAPI().getParentHost( c, user, false ).getIdentifier(), h.getModDate());
+				node.host = APILocator.getContainerAPI().getParentHost(c, user, false);
 
-				containerList.clear();
+				node.structures = new ArrayList<ContainerStructure>();
 
                 Container workingContainer = (Container) APILocator.getVersionableAPI().findWorkingVersion(id, user, false);
                 if ( workingContainer != null ) {
-                    containerList.add( workingContainer );
+                    node.structures.addAll( findContainerStructures( workingContainer ) );
                 }
 
                 Container liveContainer = (Container) APILocator.getVersionableAPI().findLiveVersion(id, user, false);
                 if ( liveContainer != null ) {
-                    containerList.add( liveContainer );
+                    node.structures.addAll( findContainerStructures( liveContainer ) );
                 }
+				return node;
+			});
 
-				for (Container container : containerList) {
-					// Structure dependencies
-					List<ContainerStructure> csList = APILocator.getContainerAPI().getContainerStructures(container);
+			for (Future<ContainerNode> future : nodes) {
+				ContainerNode node = get(future);
 
-					for (ContainerStructure containerStructure : csList) {
-						Structure st = CacheLocator.getContentTypeCache().getStructureByInode(containerStructure.getStructureId());
-						structures.addOrClean(containerStructure.getStructureId(), st.getModDate());
-						structuresSet.add(containerStructure.getStructureId());
-					}
+				// Host Dependency
+				hosts.addOrClean( node.host.getIdentifier(), node.host.getModDate());
+
+				// Structure dependencies
+				for (ContainerStructure containerStructure : node.structures) {
+					Structure st = CacheLocator.getContentTypeCache().getStructureByInode(containerStructure.getStructureId());
+					structures.addOrClean(containerStructure.getStructureId(), st.getModDate());
+					structuresSet.add(containerStructure.getStructureId());
 				}
 
 			}
@@ -879,9 +1037,7 @@ public class DependencyManager {
 
 			  Set<String> s = new HashSet<String>();
 			  s.addAll(structuresSet);
-			  for (String inode : s) {
-			    structureDependencyHelper(inode);
-			  }
+			  structureDependencyHelper(s);
 
 		} catch (DotDataException e) {
 			Logger.error(this, e.getMessage(),e);
@@ -889,53 +1045,73 @@ public class DependencyManager {
 	}
 
 	/**
-	 * 
-	 * @param stInode
+	 * Adds the dependencies of the structures and, when publishing, the
+	 * structures they are related to, level by level. The structures of a level
+	 * are looked up in parallel.
+	 *
+	 * @param stInodes
 	 * @throws DotDataException
 	 * @throws DotSecurityException
 	 */
-	private void structureDependencyHelper(String stInode) throws DotDataException, DotSecurityException{
-		Structure st = CacheLocator.getContentTypeCache().getStructureByInode(stInode);
-		Host h = APILocator.getHostAPI().find(st.getHost(), user, false);
-		hosts.addOrClean(st.getHost(), h.getModDate()); // add the host dependency
-
-		Folder f = APILocator.getFolderAPI().find(st.getFolder(), user, false);
-		folders.addOrClean(st.getFolder(), f.getModDate()); // add the folder dependency
-
-		try {
-		  WorkflowScheme scheme = APILocator.getWorkflowAPI().findSchemeForStruct(st);
-		  workflows.addOrClean(scheme.getId(), scheme.getModDate());
-		} catch (DotDataException e) {
-			Logger.debug(getClass(), "Could not get the Workflow Scheme Dependency for Structure ID: " + st.getInode());
-		}
-
-		// Related structures
-		List<Relationship> relations = RelationshipFactory.getAllRelationshipsByStructure(st);
+	private void structureDependencyHelper(Collection<String> stInodes) throws DotDataException, DotSecurityException{
+		Set<String> visited = new HashSet<String>(stInodes);
+		List<String> level = new ArrayList<String>(visited);
+		while (!level.isEmpty()) {
+			List<Future<StructureNode>> nodes = resolve("structurenode", level, stInode -> {
+				StructureNode node = new StructureNode();
+				Structure st = CacheLocator.getContentTypeCache().getStructureByInode(stInode);
+				node.structure = st;
+				node.host = findHost(st.getHost());
+				node.folder = findFolder(st.getFolder());
+				try {
+				  node.scheme = APILocator.getWorkflowAPI().findSchemeForStruct(st);
+				} catch (DotDataException e) {
+					Logger.debug(getClass(), "Could not get the Workflow Scheme Dependency for Structure ID: " + st.getInode());
+				}
+				// Related structures
+				node.relationships = RelationshipFactory.getAllRelationshipsByStructure(st);
+				return node;
+			});
+
+			List<String> next = new ArrayList<String>();
+			for (int i = 0; i < level.size(); i++) {
+				String stInode = level.get(i);
+				StructureNode node = get(nodes.get(i));
+				Structure st = node.structure;
+				hosts.addOrClean(st.getHost(), node.host.getModDate()); // add the host dependency
+				folders.addOrClean(st.getFolder(), node.folder.getModDate()); // add the folder dependency
+
+				if (node.scheme != null) {
+					workflows.addOrClean(node.scheme.getId(), node.scheme.getModDate());
+				}
 
-		for (Relationship r : relations) {
-			relationships.addOrClean( r.getInode(), r.getModDate());
+				for (Relationship r : node.relationships) {
+					relationships.addOrClean( r.getInode(), r.getModDate());
 
-			if(!structures.contains(r.getChildStructureInode()) && config.getOperation().equals( Operation.PUBLISH) ){
-				Structure struct = CacheLocator.getContentTypeCache().getStructureByInode(r.getChildStructureInode());
-				solvedStructures.add(stInode);
-				structures.addOrClean( r.getChildStructureInode(), struct.getModDate());
+					if(!structures.contains(r.getChildStructureInode()) && config.getOperation().equals( Operation.PUBLISH) ){
+						Structure struct = CacheLocator.getContentTypeCache().getStructureByInode(r.getChildStructureInode());
+						solvedStructures.add(stInode);
+						structures.addOrClean( r.getChildStructureInode(), struct.getModDate());
 
-				if(!solvedStructures.contains(r.getChildStructureInode()))
-				    structureDependencyHelper( r.getChildStructureInode() );
-			}
-			if(!structures.contains(r.getParentStructureInode()) && config.getOperation().equals( Operation.PUBLISH) ){
-				Structure struct = CacheLocator.getContentTypeCache().getStructureByInode(r.getParentStructureInode());
-				solvedStructures.add(stInode);
-				structures.addOrClean( r.getParentStructureInode(), struct.getModDate());
+						if(!solvedStructures.contains(r.getChildStructureInode()) && visited.add(r.getChildStructureInode()))
+						    next.add( r.getChildStructureInode() );
+					}
+					if(!structures.contains(r.getParentStructureInode()) && config.getOperation().equals( Operation.PUBLISH) ){
+						Structure struct = CacheLocator.getContentTypeCache().getStructureByInode(r.getParentStructureInode());
+						solvedStructures.add(stInode);
+						structures.addOrClean( r.getParentStructureInode(), struct.getModDate());
 
-				if(!solvedStructures.contains(r.getParentStructureInode()))
-				    structureDependencyHelper( r.getParentStructureInode() );
+						if(!solvedStructures.contains(r.getParentStructureInode()) && visited.add(r.getParentStructureInode()))
+						    next.add( r.getParentStructureInode() );
+					}
+				}
 			}
+			level = next;
 		}
 	}
 
 	/**
-	 * 
+	 *
 	 * @param cons
 	 * @throws DotDataException
 	 * @throws DotSecurityException
@@ -946,13 +1122,26 @@ public class DependencyManager {
 
 		//Getting all related content
 
-		for (Contentlet con : cons) {
-			Host h = APILocator.getHostAPI().find(con.getHost(), user, false);
+		final List<Contentlet> conList = new ArrayList<Contentlet>(cons);
+		final Map<String, Contentlet> byInode = new HashMap<String, Contentlet>();
+		for (Contentlet con : conList) {
+			byInode.put(con.getInode(), con);
+		}
+		Map<String, Future<Map<Relationship, List<Contentlet>>>> related = new HashMap<String, Future<Map<Relationship, List<Contentlet>>>>();
+		List<String> inodes = new ArrayList<String>(byInode.keySet());
+		List<Future<Map<Relationship, List<Contentlet>>>> found = resolve("contentrelationships", inodes,
+				inode -> APILocator.getContentletAPI().findContentRelationships(byInode.get(inode), user));
+		for (int i = 0; i < inodes.size(); i++) {
+			related.put(inodes.get(i), found.get(i));
+		}
+		preloadHosts(conList);
+
+		for (Contentlet con : conList) {
+			Host h = findHost(con.getHost());
         	hosts.addOrClean( con.getHost(), h.getModDate()); // add the host dependency
 			contentsToProcess.add(con);
 
-			Map<Relationship, List<Contentlet>> contentRel =
-					APILocator.getContentletAPI().findContentRelationships(con, user);
+			Map<Relationship, List<Contentlet>> contentRel = get(related.get(con.getInode()));
 
 			for (Relationship rel : contentRel.keySet()) {
 				contentsToProcess.addAll(contentRel.get(rel));
@@ -967,8 +1156,10 @@ public class DependencyManager {
 			}
 		}
 
+		preloadHosts(contentsToProcess);
+		Set<String> fileIds = new HashSet<String>();
 		for (Contentlet con : contentsToProcess) {
-			Host h = APILocator.getHostAPI().find(con.getHost(), user, false);
+			Host h = findHost(con.getHost());
         	hosts.addOrClean( con.getHost(), h.getModDate()); // add the host dependency
 			contentsWithDependenciesToProcess.add(con);
 			//Copy asset files to bundle folder keeping original folders structure
@@ -983,12 +1174,7 @@ public class DependencyManager {
 						if(UtilMethods.isSet(APILocator.getContentletAPI().getFieldValue(con, ff))){
 							value = APILocator.getContentletAPI().getFieldValue(con, ff).toString();
 						}
-						Identifier id = APILocator.getIdentifierAPI().find(value);
-						if (InodeUtils.isSet(id.getInode()) && id.getAssetType().equals("contentlet")) {
-							contentsWithDependenciesToProcess.addAll(
-									APILocator.getContentletAPI()
-									.search("+identifier:"+id.getId(), 0, 0, "moddate", user, false));
-						}
+						fileIds.add(value);
 					} catch (Exception ex) {
 						Logger.debug(this, ex.toString());
 						throw new DotStateException("Problem occured while publishing file");
@@ -998,12 +1184,33 @@ public class DependencyManager {
 			}
 		}
 
+		// the file and image contents, in batches
+		try {
+			preloadIdentifiers(fileIds);
+			Set<String> fileContents = new HashSet<String>();
+			for (String value : fileIds) {
+				Identifier id = findIdentifier(value);
+				if (InodeUtils.isSet(id.getInode()) && id.getAssetType().equals("contentlet")) {
+					fileContents.add(id.getId());
+				}
+			}
+			for (List<Contentlet> files : findContentlets(fileContents).values()) {
+				contentsWithDependenciesToProcess.addAll(files);
+			}
+		} catch (Exception ex) {
+			Logger.debug(this, ex.toString());
+			throw new DotStateException("Problem occured while publishing file");
+		}
+
 		// Adding the Contents (including related) and adding filesAsContent
+		preloadHosts(contentsWithDependenciesToProcess);
+		preloadFolders(contentsWithDependenciesToProcess);
+		Set<String> structureInodes = new LinkedHashSet<String>();
 		for (Contentlet con : contentsWithDependenciesToProcess) {
-			Host h = APILocator.getHostAPI().find(con.getHost(), user, false);
+			Host h = findHost(con.getHost());
         	hosts.addOrClean( con.getHost(), h.getModDate()); // add the host dependency
         	contents.addOrClean( con.getIdentifier(), con.getModDate()); // adding the content (including related)
-			Folder f = APILocator.getFolderAPI().find(con.getFolder(), user, false);
+			Folder f = findFolder(con.getFolder());
         	folders.addOrClean( con.getFolder(), f.getModDate()); // adding content folder
 
         	languages.addOrClean(Long.toString(con.getLanguageId()), new Date()); // will be included only when hasn't been sent ever
@@ -1012,12 +1219,10 @@ public class DependencyManager {
 				if (Config.getBooleanProperty("PUSH_PUBLISHING_PUSH_ALL_FOLDER_PAGES", false)
 						&& con.getStructure().getStructureType() == Structure.STRUCTURE_TYPE_HTMLPAGE) {
 
-					Folder contFolder=APILocator.getFolderAPI().find(con.getFolder(), user, false);
-				    List<IHTMLPage> folderHtmlPages = new ArrayList<IHTMLPage>(); 
-					folderHtmlPages.addAll(APILocator.getHTMLPageAPI().findLiveHTMLPages(
-							APILocator.getFolderAPI().find(con.getFolder(), user, false)));
-					folderHtmlPages.addAll(APILocator.getHTMLPageAPI().findWorkingHTMLPages(
-							APILocator.getFolderAPI().find(con.getFolder(), user, false)));
+					Folder contFolder=findFolder(con.getFolder());
+				    List<IHTMLPage> folderHtmlPages = new ArrayList<IHTMLPage>();
+					folderHtmlPages.addAll(APILocator.getHTMLPageAPI().findLiveHTMLPages(contFolder));
+					folderHtmlPages.addAll(APILocator.getHTMLPageAPI().findWorkingHTMLPages(contFolder));
 					folderHtmlPages.addAll(APILocator.getHTMLPageAssetAPI().getHTMLPages(contFolder, false, false, user, false));
 					folderHtmlPages.addAll(APILocator.getHTMLPageAssetAPI().getHTMLPages(contFolder, true, false, user, false));
 
@@ -1047,9 +1252,10 @@ public class DependencyManager {
 			if(Config.getBooleanProperty("PUSH_PUBLISHING_PUSH_STRUCTURES", true)) {
 				Structure struct = CacheLocator.getContentTypeCache().getStructureByInode(con.getStructureInode());
             	structures.addOrClean( con.getStructureInode(), struct.getModDate());
-            	structureDependencyHelper(con.getStructureInode());
+            	structureInodes.add(con.getStructureInode());
             }
         }
+		structureDependencyHelper(structureInodes);
 
 	}
 
@@ -1071,8 +1277,8 @@ public class DependencyManager {
 
 			Set<Contentlet> allContents = new HashSet<Contentlet>(); // we will put here those already added and the ones from lucene queries
 
-			for(String id : cons){
-            	allContents.addAll(APILocator.getContentletAPI().search("+identifier:"+id, 0, 0, "moddate", user, false));
+			for(List<Contentlet> found : findContentlets(cons).values()){
+            	allContents.addAll(found);
             }
 
 			processList(allContents);
@@ -1095,19 +1301,31 @@ public class DependencyManager {
 	private void setRuleDependencies() {
 		String ruleToProcess = "";
 		final RulesAPI rulesAPI = APILocator.getRulesAPI();
-		final HostAPI hostAPI = APILocator.getHostAPI();
 		final ContentletAPI contentletAPI = APILocator.getContentletAPI();
 		try {
-			for (String ruleId : this.rules) {
-				final Rule rule = rulesAPI.getRuleById(ruleId, this.user, false);
-				ruleToProcess = ruleId;
+			List<String> ids = new ArrayList<String>(this.rules);
+			List<Future<RuleNode>> nodes = resolve("rulenode", ids, ruleId -> {
+				RuleNode node = new RuleNode();
+				node.rule = rulesAPI.getRuleById(ruleId, this.user, false);
 				final List<Contentlet> contentlets = contentletAPI.searchByIdentifier(
-						"+identifier:" + rule.getParent(), 1, 0, null, this.user, false);
+						"+identifier:" + node.rule.getParent(), 1, 0, null, this.user, false);
 				if (contentlets != null && contentlets.size() > 0) {
-					final Contentlet parent = contentlets.get(0);
+					node.parent = contentlets.get(0);
+					if (node.parent.isHost()) {
+						node.host = findHost(node.rule.getParent());
+					}
+				}
+				return node;
+			});
+			for (int i = 0; i < ids.size(); i++) {
+				ruleToProcess = ids.get(i);
+				final RuleNode node = get(nodes.get(i));
+				final Rule rule = node.rule;
+				if (node.parent != null) {
+					final Contentlet parent = node.parent;
 					// If the parent of the rule is a Site...
 					if (parent.isHost()) {
-						final Host host = hostAPI.find(rule.getParent(), this.user, false);
+						final Host host = node.host;
 						this.hosts.addOrClean(host.getIdentifier(), host.getModDate());
 						this.hostsSet.add(host.getIdentifier());
 					}
@@ -1129,4 +1347,379 @@ public class DependencyManager {
 		}
 	}
 
+	private long addTime(String assetType, long start) {
+		long now = System.currentTimeMillis();
+		times.put(assetType, now - start);
+		return now;
+	}
+
+	/**
+	 * Logs the time the dependencies of each asset type took to resolve and
+	 * adds them to the audit of the bundle, if it has one
+	 */
+	private void addTimesToAudit() {
+		StringBuilder message = new StringBuilder("Dependencies resolved:");
+		for (Map.Entry<String, Long> time : times.entrySet()) {
+			message.append(' ').append(time.getKey()).append(' ').append(time.getValue()).append("ms");
+		}
+		PushPublishLogger.log(getClass(), message.toString(), config.getId());
+
+		try {
+			PublishAuditAPI auditAPI = PublishAuditAPI.getInstance();
+			PublishAuditStatus status = auditAPI.getPublishAuditStatus(config.getId());
+			if (status != null && status.getStatusPojo() != null) {
+				PublishAuditHistory history = status.getStatusPojo();
+				for (Map.Entry<String, Long> time : times.entrySet()) {
+					history.addDependencyTime(time.getKey(), time.getValue());
+				}
+				auditAPI.updatePublishAuditStatus(config.getId(), status.getStatus(), history);
+			}
+		} catch (DotPublisherException e) {
+			Logger.warn(getClass(), "Unable to add the dependency times to the audit of the bundle " + config.getId() + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Looks up what the assets depend on
+	 */
+	private interface Lookup<T> {
+		T lookup(String id) throws Exception;
+	}
+
+	/**
+	 * Looks up the ids in parallel, keeping the results in the lookups of the
+	 * run under the type. Failed lookups are not kept, their error is thrown
+	 * when their result is read with {@link #get(Future)}.
+	 *
+	 * @return the results, in the order of the ids
+	 */
+	private <T> List<Future<T>> resolve(final String type, final Collection<String> ids, final Lookup<T> lookup) {
+		final List<FutureTask<T>> tasks = new ArrayList<FutureTask<T>>(ids.size());
+		for (final String id : ids) {
+			tasks.add(new FutureTask<T>(() -> resolved.get(key(type, id), () -> lookup.lookup(id))));
+		}
+		run(tasks);
+		return new ArrayList<Future<T>>(tasks);
+	}
+
+	/**
+	 * Runs the tasks in the pool, in chunks so each thread closes its session
+	 * once. Tasks started from the pool, and single tasks, run in the calling
+	 * thread.
+	 */
+	private static void run(final List<? extends Runnable> tasks) {
+		final int threads = Config.getIntProperty("PUSH_PUBLISHING_DEPENDENCY_THREADS", 4);
+		if (threads <= 1 || tasks.size() < 2 || ForkJoinTask.inForkJoinPool()) {
+			for (Runnable task : tasks) {
+				task.run();
+			}
+			return;
+		}
+
+		final int chunks = Math.min(tasks.size(), threads * 4);
+		List<Callable<Void>> workers = new ArrayList<Callable<Void>>(chunks);
+		for (int c = 0; c < chunks; c++) {
+			final int first = c;
+			workers.add(() -> {
+				try {
+					for (int i = first; i < tasks.size(); i += chunks) {
+						tasks.get(i).run();
+					}
+				} finally {
+					try {
+						HibernateUtil.closeSession();
+					} catch (DotHibernateException e) {
+						Logger.warn(DependencyManager.class, e.getMessage(), e);
+					} finally {
+						DbConnectionFactory.closeConnection();
+					}
+				}
+				return null;
+			});
+		}
+		getPool(threads).invokeAll(workers);
+	}
+
+	/**
+	 * The pool of the lookups, created again with the new size when
+	 * PUSH_PUBLISHING_DEPENDENCY_THREADS changes. The old pool is not shut
+	 * down, it finishes the lookups it is running and its threads end once
+	 * they are idle.
+	 */
+	@VisibleForTesting
+	static ForkJoinPool getPool(int threads) {
+		ForkJoinPool current = pool;
+		if (current == null || current.getParallelism() != threads) {
+			synchronized (DependencyManager.class) {
+				current = pool;
+				if (current == null || current.getParallelism() != threads) {
+					current = new ForkJoinPool(threads);
+					pool = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Returns the result of a lookup, throwing its error if it failed
+	 */
+	private static <T> T get(Future<T> future) throws DotDataException, DotSecurityException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DotDataException(e.getMessage(), e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof DotDataException) {
+				throw (DotDataException) cause;
+			}
+			if (cause instanceof DotSecurityException) {
+				throw (DotSecurityException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new DotDataException(cause.getMessage(), (Exception) cause);
+		}
+	}
+
+	private String key(String type, String id) {
+		return type + "/" + (user != null ? user.getUserId() : "") + "/" + id;
+	}
+
+	private <T> T memoized(String type, String id, Callable<T> loader) throws DotDataException, DotSecurityException {
+		try {
+			return resolved.get(key(type, id), loader);
+		} catch (DotDataException | DotSecurityException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new DotDataException(e.getMessage(), e);
+		}
+	}
+
+	private Host findHost(final String id) throws DotDataException, DotSecurityException {
+		return memoized("host", id, () -> APILocator.getHostAPI().find(id, user, false));
+	}
+
+	private Folder findFolder(final String inode) throws DotDataException, DotSecurityException {
+		return memoized("folder", inode, () -> APILocator.getFolderAPI().find(inode, user, false));
+	}
+
+	private Folder findFolderByPath(final String path, final String hostId) throws DotDataException, DotSecurityException {
+		return memoized("folderpath", hostId + ":" + path,
+				() -> APILocator.getFolderAPI().findFolderByPath(path, hostId, user, false));
+	}
+
+	private Identifier findIdentifier(final String id) throws DotDataException, DotSecurityException {
+		return memoized("identifier", id, () -> APILocator.getIdentifierAPI().find(id));
+	}
+
+	/**
+	 * Loads the identifiers that were not looked up yet with one query per
+	 * batch, so they are found when they are used. If the batch fails they are
+	 * looked up one by one.
+	 */
+	private void preloadIdentifiers(Collection<String> ids) {
+		List<String> toLoad = new ArrayList<String>();
+		for (String id : ids) {
+			if (id != null && !resolved.contains(key("identifier", id))) {
+				toLoad.add(id);
+			}
+		}
+		if (toLoad.isEmpty()) {
+			return;
+		}
+		try {
+			List<Identifier> loaded = APILocator.getIdentifierAPI().find(toLoad);
+			for (int i = 0; i < toLoad.size(); i++) {
+				resolved.put(key("identifier", toLoad.get(i)), loaded.get(i));
+			}
+		} catch (DotDataException e) {
+			Logger.warn(this, "Unable to load " + toLoad.size() + " identifiers: " + e.getMessage(), e);
+		}
+	}
+
+	private List<ContainerStructure> findContainerStructures(final Container container) throws DotDataException, DotSecurityException {
+		return memoized("containerstructures", container.getInode(),
+				() -> APILocator.getContainerAPI().getContainerStructures(container));
+	}
+
+	/**
+	 * Looks up the hosts of the contents in parallel, so they are found when
+	 * they are added
+	 */
+	private void preloadHosts(Collection<Contentlet> cons) {
+		Set<String> ids = new HashSet<String>();
+		for (Contentlet con : cons) {
+			if (!resolved.contains(key("host", con.getHost()))) {
+				ids.add(con.getHost());
+			}
+		}
+		resolve("host", ids, id -> APILocator.getHostAPI().find(id, user, false));
+	}
+
+	/**
+	 * Looks up the folders of the contents in parallel, so they are found
+	 * when they are added
+	 */
+	private void preloadFolders(Collection<Contentlet> cons) {
+		Set<String> inodes = new HashSet<String>();
+		for (Contentlet con : cons) {
+			if (!resolved.contains(key("folder", con.getFolder()))) {
+				inodes.add(con.getFolder());
+			}
+		}
+		resolve("folder", inodes, inode -> APILocator.getFolderAPI().find(inode, user, false));
+	}
+
+	/**
+	 * Searches the versions of many contents, sorted by mod date, with one
+	 * query per batch of identifiers. The batches are searched in parallel.
+	 *
+	 * @return the versions of each content, by identifier
+	 */
+	private Map<String, List<Contentlet>> findContentlets(Collection<String> identifiers) throws DotDataException, DotSecurityException {
+		final Map<String, List<Contentlet>> found = new HashMap<String, List<Contentlet>>();
+		final List<String> toSearch = new ArrayList<String>();
+		for (String id : identifiers) {
+			if (!UtilMethods.isSet(id)) {
+				found.put(id, new ArrayList<Contentlet>());
+			} else if (resolved.contains(key("contentlets", id))) {
+				found.put(id, resolved.<List<Contentlet>> getIfPresent(key("contentlets", id)));
+			} else if (!found.containsKey(id)) {
+				found.put(id, null);
+				toSearch.add(id);
+			}
+		}
+
+		List<FutureTask<Void>> batches = new ArrayList<FutureTask<Void>>();
+		for (int i = 0; i < toSearch.size(); i += SEARCH_BATCH_SIZE) {
+			final List<String> batch = toSearch.subList(i, Math.min(i + SEARCH_BATCH_SIZE, toSearch.size()));
+			batches.add(new FutureTask<Void>(() -> {
+				Map<String, List<Contentlet>> byId = new HashMap<String, List<Contentlet>>();
+				for (String id : batch) {
+					byId.put(id, new ArrayList<Contentlet>());
+				}
+				String query = "+identifier:(" + StringUtils.join(batch, " OR ") + ")";
+				for (Contentlet con : APILocator.getContentletAPI().search(query, 0, 0, "moddate", user, false)) {
+					List<Contentlet> versions = byId.get(con.getIdentifier());
+					if (versions != null) {
+						versions.add(con);
+					}
+				}
+				for (Map.Entry<String, List<Contentlet>> entry : byId.entrySet()) {
+					resolved.put(key("contentlets", entry.getKey()), entry.getValue());
+				}
+				return null;
+			}));
+		}
+		run(batches);
+		for (FutureTask<Void> batch : batches) {
+			get(batch);
+		}
+		for (String id : toSearch) {
+			found.put(id, resolved.<List<Contentlet>> getIfPresent(key("contentlets", id)));
+		}
+		return found;
+	}
+
+	/**
+	 * The multi-trees of the pages, loaded in batches of pages
+	 *
+	 * @return the multi-trees of each page, by page identifier
+	 */
+	private Map<String, List<MultiTree>> findMultiTrees(Collection<String> pageIds) {
+		Map<String, List<MultiTree>> found = new HashMap<String, List<MultiTree>>();
+		List<String> toLoad = new ArrayList<String>();
+		for (String id : pageIds) {
+			if (resolved.contains(key("multitrees", id))) {
+				found.put(id, resolved.<List<MultiTree>> getIfPresent(key("multitrees", id)));
+			} else {
+				toLoad.add(id);
+			}
+		}
+		if (!toLoad.isEmpty()) {
+			for (Map.Entry<String, List<MultiTree>> entry : MultiTreeFactory.getMultiTreesByPages(toLoad).entrySet()) {
+				resolved.put(key("multitrees", entry.getKey()), entry.getValue());
+				found.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return found;
+	}
+
+	private static class HostNode {
+		List<Template> templates;
+		List<Container> containers;
+		List<Contentlet> contents;
+		List<Structure> structures;
+		List<Folder> folders;
+		List<Rule> rules;
+	}
+
+	private static class FolderNode {
+		Host host;
+		List<Contentlet> contents;
+		List<Link> links;
+		List<Structure> structures;
+		Structure defaultStructure;
+		List<HTMLPage> pages;
+		List<Folder> subFolders;
+	}
+
+	private static class PageNode {
+		Identifier identifier;
+		Host host;
+		Folder folder;
+		IHTMLPage workingPage;
+		IHTMLPage livePage;
+		Template workingTemplate;
+		List<Container> containers;
+		List<List<ContainerStructure>> containerStructures;
+		List<Rule> rules;
+	}
+
+	private static class TemplateNode {
+		String hostId;
+		Host host;
+		List<Container> containers;
+		Folder themeFolder;
+		Folder themeParent;
+	}
+
+	private static class ContainerNode {
+		Host host;
+		List<ContainerStructure> structures;
+	}
+
+	private static class StructureNode {
+		Structure structure;
+		Host host;
+		Folder folder;
+		WorkflowScheme scheme;
+		List<Relationship> relationships;
+	}
+
+	private static class LinkNode {
+		Folder folder;
+		Host host;
+		String internalLinkIdentifier;
+	}
+
+	private static class LinkTarget {
+		List<Contentlet> contents;
+		String pageId;
+		HTMLPage page;
+	}
+
+	private static class RuleNode {
+		Rule rule;
+		Contentlet parent;
+		Host host;
+	}
+
 }
@@ -0,0 +1,101 @@
+package com.dotcms.publisher.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The lookups made by the {@link DependencyManager} to resolve the dependencies
+ * of the assets of a bundle: the assets themselves and what each one depends
+ * on. They are shared by the managers of all the bundles of a publishing run,
+ * so an asset that is a dependency of many bundles, like a site or a folder,
+ * is only looked up once per run.
+ * <p>
+ * A run is started and ended by the thread that builds its bundles, usually
+ * the {@link com.dotcms.publisher.business.PublisherQueueJob}. Outside of a
+ * run each manager keeps its own lookups.
+ */
+public class ResolvedDependencies {
+
+	private static final Object NULL = new Object();
+
+	private static final ThreadLocal<ResolvedDependencies> run = new ThreadLocal<ResolvedDependencies>();
+
+	private final ConcurrentHashMap<String, Object> resolved = new ConcurrentHashMap<String, Object>();
+
+	/**
+	 * Starts a publishing run in the current thread, the bundles built by this
+	 * thread until {@link #endRun()} share their lookups
+	 */
+	public static void startRun() {
+		run.set(new ResolvedDependencies());
+	}
+
+	/**
+	 * Ends the publishing run of the current thread, discarding its lookups
+	 */
+	public static void endRun() {
+		run.remove();
+	}
+
+	/**
+	 * @return the lookups of the run of the current thread, or new ones if it
+	 *         is not in a run
+	 */
+	public static ResolvedDependencies getInstance() {
+		ResolvedDependencies current = run.get();
+		return current != null ? current : new ResolvedDependencies();
+	}
+
+	/**
+	 * Returns the value of the key, loading it the first time. Values loaded
+	 * at the same time by different threads may be loaded twice, the first
+	 * one is kept.
+	 * @param key the key of the lookup
+	 * @param loader loads the value, that may be null
+	 * @return the value
+	 * @throws Exception the error of the loader, that is not kept
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(String key, Callable<T> loader) throws Exception {
+		Object value = resolved.get(key);
+		if (value == null) {
+			T loaded = loader.call();
+			value = resolved.putIfAbsent(key, loaded != null ? loaded : NULL);
+			if (value == null) {
+				return loaded;
+			}
+		}
+		return value == NULL ? null : (T) value;
+	}
+
+	/**
+	 * @return the value of the key, or null if it was not loaded or is null
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getIfPresent(String key) {
+		Object value = resolved.get(key);
+		return value == null || value == NULL ? null : (T) value;
+	}
+
+	/**
+	 * @return true if the key was loaded
+	 */
+	public boolean contains(String key) {
+		return resolved.containsKey(key);
+	}
+
+	/**
+	 * Keeps the value of a key loaded in bulk
+	 */
+	public void put(String key, Object value) {
+		resolved.putIfAbsent(key, value != null ? value : NULL);
+	}
+
+	/**
+	 * @return the number of lookups kept
+	 */
+	public int size() {
+		return resolved.size();
+	}
+
+}
@@ -7,14 +7,17 @@ import com.dotcms.publisher.business.PublishAuditStatus.Status;
 import com.dotcms.publisher.business.PublisherQueueJob;
 import com.dotcms.publisher.endpoint.bean.PublishingEndPoint;
 import com.dotcms.publisher.endpoint.business.PublishingEndPointAPI;
+import com.dotcms.publisher.util.BundleHashStore;
 import com.dotcms.repackage.javax.ws.rs.Consumes;
 import com.dotcms.repackage.javax.ws.rs.POST;
 import com.dotcms.repackage.javax.ws.rs.Path;
+import com.dotcms.repackage.javax.ws.rs.Produces;
 import com.dotcms.repackage.javax.ws.rs.core.Context;
 import com.dotcms.repackage.javax.ws.rs.core.MediaType;
 import com.dotcms.repackage.javax.ws.rs.core.Response;
 import com.dotcms.repackage.org.apache.commons.httpclient.HttpStatus;
 import com.dotcms.repackage.org.apache.commons.io.FileUtils;
+import com.dotcms.repackage.org.apache.commons.lang.StringUtils;
 import com.dotcms.repackage.org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import com.dotcms.repackage.org.glassfish.jersey.media.multipart.FormDataParam;
 import com.dotmarketing.business.APILocator;
@@ -28,9 +31,12 @@ import com.dotmarketing.util.UtilMethods;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 
 @Path("/bundlePublisher")
@@ -147,6 +153,69 @@ public class BundlePublisherResource {
 		return Response.status(HttpStatus.SC_INTERNAL_SERVER_ERROR).build();
 	}
 
+    /**
+     * Method that tells a sending server which files of a bundle it has to send.<br/>
+     * The sender posts the hashes of all the files of the bundle, the ones missing in the
+     * {@link BundleHashStore} of this end point are returned one per line, the others will be restored
+     * from the store when the bundle is received. Returns a 404 if bundles are not received as deltas.
+     *
+     * @param auth_token_enc Authentication token
+     * @param hashes         The hashes of the files of the bundle, one per line
+     * @param req            HttpRequest
+     * @return Returns a {@link Response} object with the missing hashes and a 200 status code if success
+     */
+    @POST
+    @Path ("/missing")
+    @Consumes (MediaType.MULTIPART_FORM_DATA)
+    @Produces (MediaType.TEXT_PLAIN)
+    public Response missing (
+            @FormDataParam ("AUTH_TOKEN") String auth_token_enc,
+            @FormDataParam ("HASHES") String hashes,
+            @Context HttpServletRequest req ) {
+
+        if ( !BundleHashStore.isEnabled() ) {
+            return Response.status( HttpStatus.SC_NOT_FOUND ).build();
+        }
+
+        String remoteIP = "";
+        try {
+            String auth_token = PublicEncryptionFactory.decryptString( auth_token_enc );
+            remoteIP = req.getRemoteHost();
+            if ( !UtilMethods.isSet( remoteIP ) )
+                remoteIP = req.getRemoteAddr();
+
+            PublishingEndPoint mySelf = endpointAPI.findEnabledSendingEndPointByAddress( remoteIP );
+            if ( !isValidToken( auth_token, remoteIP, mySelf ) ) {
+                return Response.status( HttpStatus.SC_UNAUTHORIZED ).build();
+            }
+
+            List<String> received = new ArrayList<String>();
+            if ( hashes != null ) {
+                for ( String hash : hashes.split( "\n" ) ) {
+                    if ( hash.trim().length() > 0 ) {
+                        received.add( hash.trim() );
+                    }
+                }
+            }
+            Set<String> missing = BundleHashStore.getInstance().missing( received );
+            Logger.info( this.getClass(), "Missing " + missing.size() + " of the " + received.size()
+                    + " contents of a bundle of " + remoteIP );
+
+            return Response.ok( StringUtils.join( missing, "\n" ), MediaType.TEXT_PLAIN_TYPE ).build();
+        } catch ( Exception e ) {
+            Logger.error( PublisherQueueJob.class, "Error caused by remote call of: " + remoteIP );
+            Logger.error( PublisherQueueJob.class, e.getMessage(), e );
+        } finally {
+            try {
+                HibernateUtil.closeSession();
+            } catch ( DotHibernateException e ) {
+                Logger.error( this, "error close session", e );
+            }
+        }
+
+        return Response.status( HttpStatus.SC_INTERNAL_SERVER_ERROR ).build();
+    }
+
     /**
      * Validates a received token
      *
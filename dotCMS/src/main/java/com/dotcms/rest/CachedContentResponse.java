@@ -0,0 +1,35 @@
+package com.dotcms.rest;
+
+import java.io.Serializable;
+
+/**
+ * The serialized contentlets of a {@link ContentResource} response and their
+ * ETag, kept in the {@link ContentResourceCache}
+ */
+public class CachedContentResponse implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final byte[] body;
+	private final String eTag;
+	private final long created;
+
+	public CachedContentResponse(byte[] body, String eTag) {
+		this.body = body;
+		this.eTag = eTag;
+		this.created = System.currentTimeMillis();
+	}
+
+	public byte[] getBody() {
+		return body;
+	}
+
+	public String getETag() {
+		return eTag;
+	}
+
+	public long getCreated() {
+		return created;
+	}
+
+}
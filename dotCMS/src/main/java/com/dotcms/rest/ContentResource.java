@@ -15,6 +15,7 @@ import com.dotcms.repackage.javax.ws.rs.Path;
 import com.dotcms.repackage.javax.ws.rs.PathParam;
 import com.dotcms.repackage.javax.ws.rs.Produces;
 import com.dotcms.repackage.javax.ws.rs.core.Context;
+import com.dotcms.repackage.javax.ws.rs.core.EntityTag;
 import com.dotcms.repackage.javax.ws.rs.core.MediaType;
 import com.dotcms.repackage.javax.ws.rs.core.Response;
 import com.dotcms.repackage.javax.ws.rs.core.Response.Status;
@@ -65,11 +66,15 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 import javax.servlet.http.Part;
 
 @Path("/content")
@@ -405,7 +410,6 @@ public class ContentResource {
 		String limitStr = paramsMap.get(RESTParams.LIMIT.getValue());
 		String offsetStr = paramsMap.get(RESTParams.OFFSET.getValue());
 		String inode = paramsMap.get(RESTParams.INODE.getValue());
-		String result = null;
 		type = UtilMethods.isSet(type)?type:"json";
 		orderBy = UtilMethods.isSet(orderBy)?orderBy:"modDate desc";
 		long language = APILocator.getLanguageAPI().getDefaultLanguage().getId();
@@ -440,6 +444,25 @@ public class ContentResource {
 
 		boolean live = (paramsMap.get(RESTParams.LIVE.getValue()) == null || ! "false".equals(paramsMap.get(RESTParams.LIVE.getValue())));
 
+		/* Anonymous requests don't get a session, their responses are cached for a few seconds */
+
+		HttpSession session = request.getSession(false);
+		String tmDate = session != null ? (String) session.getAttribute("tm_date") : null;
+		// rendered widgets depend on the request, they are neither tagged nor cached
+		boolean tagged = !"true".equals(render);
+		String cacheKey = tagged && tmDate == null && isAnonymous(user) ? params : null;
+
+		if(cacheKey != null) {
+			CachedContentResponse cached = CacheLocator.getContentResourceCache().get(cacheKey);
+			if(cached != null) {
+				if(isNotModified(request.getHeader("If-None-Match"), cached.getETag())) {
+					return Response.notModified(new EntityTag(cached.getETag())).build();
+				}
+				final byte[] body = cached.getBody();
+				return responseResource.response(output -> output.write(body), new EntityTag(cached.getETag()));
+			}
+		}
+
 		/* Fetching the content using a query if passed or an id */
 
 		List<Contentlet> cons = new ArrayList<Contentlet>();
@@ -453,7 +476,6 @@ public class ContentResource {
 			} else if(inodePassed = UtilMethods.isSet(inode)) {
 				cons.add(APILocator.getContentletAPI().find(inode, user, true));
 			} else if(queryPassed = UtilMethods.isSet(query)) {
-				String tmDate=(String)request.getSession().getAttribute("tm_date");
 				cons = ContentUtils.pull(query, offset, limit,orderBy,user,tmDate);
 			}
 		} catch (Exception e) {
@@ -465,54 +487,85 @@ public class ContentResource {
 				Logger.warn(this, "Error searching Content : "  + e.getMessage());
 			}
 		}
+		cons.removeIf(Objects::isNull);
 
-		/* Converting the Contentlet list to XML or JSON */
+		/* Conditional GET, the ETag changes when any of the contentlets does */
 
-		try {
-			if("xml".equals(type)) {
-				result = getXML(cons, request, response, render, user);
-			} else {
-				result = getJSON(cons, request, response, render, user);
+		String eTag = null;
+		if(tagged) {
+			eTag = getETag(cons, type, user);
+			if(isNotModified(request.getHeader("If-None-Match"), eTag)) {
+				return Response.notModified(new EntityTag(eTag)).build();
 			}
-		} catch (Exception e) {
-			Logger.warn(this, "Error converting result to XML/JSON");
 		}
 
-		return responseResource.response( result );
-	}
-
+		/* Writing the Contentlet list as XML or JSON to the response */
 
-	private String getXML(List<Contentlet> cons, HttpServletRequest request, HttpServletResponse response, String render, User user) throws DotDataException, IOException {
-		XStream xstream = new XStream(new DomDriver());
-		xstream.alias("content", Map.class);
-		xstream.registerConverter(new MapEntryConverter());
-		StringBuilder sb = new StringBuilder();
-		sb.append("<?xml version=\"1.0\" encoding='UTF-8'?>");
-		sb.append("<contentlets>");
+		ContentStreamingOutput output = new ContentStreamingOutput(cons, request, response, render, user, "xml".equals(type));
+		if(cacheKey != null) {
+			output.cacheAs(cacheKey, eTag);
+		}
 
-		for(Contentlet c : cons){
-			Map<String, Object> m = new HashMap<>();
-			Structure s = c.getStructure();
+		return responseResource.response(output, eTag != null ? new EntityTag(eTag) : null);
+	}
 
-			m.putAll(ContentletUtil.getContentPrintableMap(user, c));
+	/**
+	 * @return true if the user is the anonymous user
+	 */
+	private boolean isAnonymous(User user) {
+		try {
+			return user == null || user.getUserId().equals(APILocator.getUserAPI().getAnonymousUser().getUserId());
+		} catch (DotDataException e) {
+			Logger.debug(this, "Could not get Anonymous User.", e);
+			return false;
+		}
+	}
 
-			if(s.getStructureType() == Structure.STRUCTURE_TYPE_WIDGET && "true".equals(render)) {
-				m.put("parsedCode",  WidgetResource.parseWidget(request, response, c));
+	/**
+	 * Strong ETag of a response, from the identifiers, inodes and mod dates of
+	 * its contentlets, the format of the response and the user it is for
+	 */
+	static String getETag(List<Contentlet> cons, String type, User user) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(type).append('|').append(user != null ? user.getUserId() : "");
+		for(Contentlet con : cons) {
+			sb.append('|').append(con.getIdentifier())
+			  .append(':').append(con.getInode())
+			  .append(':').append(con.getModDate() != null ? con.getModDate().getTime() : 0);
+		}
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for(byte b : digest) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
 			}
-
-			Set<String> jsonFields=getJSONFields(s);
-			for(String key : m.keySet())
-				if(jsonFields.contains(key))
-					m.put(key, c.getKeyValueProperty(key));
-
-			sb.append(xstream.toXML(m));
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new DotStateException(e.getMessage(), e);
 		}
-
-		sb.append("</contentlets>");
-		return sb.toString();
 	}
 
-
+	/**
+	 * @param ifNoneMatch the If-None-Match header of the request
+	 * @param eTag the ETag of the response, without quotes
+	 * @return true if the client has the response already
+	 */
+	static boolean isNotModified(String ifNoneMatch, String eTag) {
+		if(!UtilMethods.isSet(ifNoneMatch) || eTag == null) {
+			return false;
+		}
+		String quoted = "\"" + eTag + "\"";
+		for(String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if(tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if(tag.equals("*") || tag.equals(quoted)) {
+				return true;
+			}
+		}
+		return false;
+	}
 
 	private String getXMLContentIds(Contentlet con) throws DotDataException, IOException {
 		XStream xstream = new XStream(new DomDriver());
@@ -541,29 +594,6 @@ public class ContentResource {
 		return json.toString();
 	}
 
-	private String getJSON(List<Contentlet> cons, HttpServletRequest request, HttpServletResponse response, String render, User user) throws IOException, DotDataException{
-		JSONObject json = new JSONObject();
-		JSONArray jsonCons = new JSONArray();
-
-		for(Contentlet c : cons){
-			try {
-				jsonCons.put(contentletToJSON(c, request, response, render, user));
-			} catch (Exception e) {
-				Logger.warn(this.getClass(), "unable JSON contentlet " + c.getIdentifier());
-				Logger.debug(this.getClass(), "unable to find contentlet", e);
-			}
-		}
-
-		try {
-			json.put("contentlets", jsonCons);
-		} catch (JSONException e) {
-			Logger.warn(this.getClass(), "unable to create JSONObject");
-			Logger.debug(this.getClass(), "unable to create JSONObject", e);
-		}
-
-		return json.toString();
-	}
-
 	public static Set<String> getJSONFields(Structure s) {
 		Set<String> jsonFields=new HashSet<String>();
 		for(Field f : FieldsCache.getFieldsByStructureInode(s.getInode()))
@@ -597,7 +627,7 @@ public class ContentResource {
 		return jo;
 	}
 
-	public class MapEntryConverter implements Converter{
+	public static class MapEntryConverter implements Converter{
 		public boolean canConvert(@SuppressWarnings("rawtypes") Class clazz) {
 			return AbstractMap.class.isAssignableFrom(clazz);
 		}
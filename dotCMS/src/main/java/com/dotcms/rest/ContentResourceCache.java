@@ -0,0 +1,20 @@
+package com.dotcms.rest;
+
+import com.dotmarketing.business.Cachable;
+
+/**
+ * Short lived cache of the responses of the {@link ContentResource} to
+ * anonymous requests, by request parameters. The entries expire after
+ * CONTENT_RESOURCE_CACHE_SECONDS seconds, they are not invalidated when the
+ * contents change.
+ */
+public interface ContentResourceCache extends Cachable {
+
+	/**
+	 * @return the response for the key, or null if it is not cached or it
+	 *         expired
+	 */
+	CachedContentResponse get(String key);
+
+	void put(String key, CachedContentResponse response);
+}
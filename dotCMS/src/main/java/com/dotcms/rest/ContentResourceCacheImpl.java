@@ -0,0 +1,62 @@
+package com.dotcms.rest;
+
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.DotCacheAdministrator;
+import com.dotmarketing.business.DotCacheException;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+
+public class ContentResourceCacheImpl implements ContentResourceCache {
+
+	public final String GROUP = "ContentResourceCache";
+
+	private DotCacheAdministrator cache;
+
+	public ContentResourceCacheImpl() {
+		cache = CacheLocator.getCacheAdministrator();
+	}
+
+	@Override
+	public String getPrimaryGroup() {
+		return GROUP;
+	}
+
+	@Override
+	public String[] getGroups() {
+		return new String[] { GROUP };
+	}
+
+	@Override
+	public void clearCache() {
+		cache.flushGroup(GROUP);
+	}
+
+	@Override
+	public CachedContentResponse get(String key) {
+		int seconds = Config.getIntProperty("CONTENT_RESOURCE_CACHE_SECONDS", 5);
+		if (seconds <= 0) {
+			return null;
+		}
+		try {
+			CachedContentResponse response = (CachedContentResponse) cache.get(key, GROUP);
+			if (response == null) {
+				return null;
+			}
+			if (response.getCreated() + (seconds * 1000L) > System.currentTimeMillis()) {
+				return response;
+			}
+			// each node expires its own, the entries not read again are dropped
+			// by the region after cache.contentresourcecache.seconds
+			cache.removeLocalOnly(key, GROUP);
+		} catch (DotCacheException e) {
+			Logger.debug(this, "Cache Entry not found", e);
+		}
+		return null;
+	}
+
+	@Override
+	public void put(String key, CachedContentResponse response) {
+		cache.put(key, response, GROUP);
+	}
+
+}
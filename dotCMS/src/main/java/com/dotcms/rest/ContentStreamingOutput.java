@@ -0,0 +1,299 @@
+package com.dotcms.rest;
+
+import com.dotcms.repackage.com.fasterxml.jackson.core.JsonEncoding;
+import com.dotcms.repackage.com.fasterxml.jackson.core.JsonFactory;
+import com.dotcms.repackage.com.fasterxml.jackson.core.JsonGenerator;
+import com.dotcms.repackage.com.thoughtworks.xstream.XStream;
+import com.dotcms.repackage.com.thoughtworks.xstream.io.xml.DomDriver;
+import com.dotcms.repackage.javax.ws.rs.WebApplicationException;
+import com.dotcms.repackage.javax.ws.rs.core.StreamingOutput;
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.contentlet.util.ContentletUtil;
+import com.dotmarketing.portlets.structure.model.Structure;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.liferay.portal.model.User;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Writes the contentlets of a {@link ContentResource} response straight to the
+ * output stream, as JSON or XML, one contentlet at a time, instead of building
+ * the whole response in memory.
+ * <p>
+ * The JSON and XML serializers are configured once and shared by all the
+ * requests. The fields written are the same as
+ * {@link ContentResource#contentletToJSON} writes, contentlets that can't be
+ * converted are skipped.
+ * <p>
+ * When it is given a cache key, the response is also kept in the
+ * {@link ContentResourceCache}, unless it is bigger than
+ * CONTENT_RESOURCE_CACHE_MAX_KB.
+ */
+public class ContentStreamingOutput implements StreamingOutput {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private static final XStream XSTREAM = new XStream(new DomDriver());
+
+	static {
+		XSTREAM.alias("content", Map.class);
+		XSTREAM.registerConverter(new ContentResource.MapEntryConverter());
+	}
+
+	private final List<Contentlet> cons;
+	private final HttpServletRequest request;
+	private final HttpServletResponse response;
+	private final String render;
+	private final User user;
+	private final boolean xml;
+
+	private String cacheKey;
+	private String eTag;
+
+	/**
+	 * @param cons the contentlets to write
+	 * @param request the request, to render widgets
+	 * @param response the response, to render widgets
+	 * @param render "true" to render the code of the widgets
+	 * @param user the user the contentlets are written for
+	 * @param xml true to write XML, false to write JSON
+	 */
+	public ContentStreamingOutput(List<Contentlet> cons, HttpServletRequest request, HttpServletResponse response,
+			String render, User user, boolean xml) {
+		this.cons = cons;
+		this.request = request;
+		this.response = response;
+		this.render = render;
+		this.user = user;
+		this.xml = xml;
+	}
+
+	/**
+	 * Keeps the response in the {@link ContentResourceCache} once it is
+	 * written
+	 * @param key the key of the request
+	 * @param eTag the ETag of the response
+	 * @return this output
+	 */
+	public ContentStreamingOutput cacheAs(String key, String eTag) {
+		this.cacheKey = key;
+		this.eTag = eTag;
+		return this;
+	}
+
+	@Override
+	public void write(OutputStream output) throws IOException, WebApplicationException {
+
+		CapturingOutputStream capture = null;
+		OutputStream out = output;
+		if (cacheKey != null) {
+			capture = new CapturingOutputStream(output, Config.getIntProperty("CONTENT_RESOURCE_CACHE_MAX_KB", 64) * 1024);
+			out = capture;
+		}
+
+		if (xml) {
+			writeXML(out);
+		} else {
+			writeJSON(out);
+		}
+
+		if (capture != null && capture.getCaptured() != null) {
+			CacheLocator.getContentResourceCache().put(cacheKey, new CachedContentResponse(capture.getCaptured(), eTag));
+		}
+	}
+
+	private void writeJSON(OutputStream out) throws IOException {
+
+		// flushed but not closed, the container closes the stream
+		JsonGenerator json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+		json.writeStartObject();
+		json.writeArrayFieldStart("contentlets");
+		for (Contentlet c : cons) {
+			Map<String, Object> values;
+			try {
+				values = toJSONMap(c);
+			} catch (Exception e) {
+				Logger.warn(this.getClass(), "unable JSON contentlet " + c.getIdentifier());
+				Logger.debug(this.getClass(), "unable to find contentlet", e);
+				continue;
+			}
+			writeValue(json, values);
+		}
+		json.writeEndArray();
+		json.writeEndObject();
+		json.flush();
+	}
+
+	private void writeXML(OutputStream out) throws IOException {
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		writer.write("<?xml version=\"1.0\" encoding='UTF-8'?>");
+		writer.write("<contentlets>");
+		for (Contentlet c : cons) {
+			Map<String, Object> values;
+			try {
+				values = toXMLMap(c);
+			} catch (Exception e) {
+				Logger.warn(this.getClass(), "unable XML contentlet " + c.getIdentifier());
+				Logger.debug(this.getClass(), "unable to find contentlet", e);
+				continue;
+			}
+			XSTREAM.toXML(values, writer);
+		}
+		writer.write("</contentlets>");
+		writer.flush();
+	}
+
+	/**
+	 * The fields of the contentlet, as {@link ContentResource#contentletToJSON}
+	 * puts them in its JSON object: null values are left out
+	 */
+	private Map<String, Object> toJSONMap(Contentlet con) throws IOException, DotDataException {
+
+		Structure s = con.getStructure();
+		Map<String, Object> map = ContentletUtil.getContentPrintableMap(user, con);
+		Set<String> jsonFields = ContentResource.getJSONFields(s);
+
+		Map<String, Object> values = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, Object> entry : map.entrySet()) {
+			String key = entry.getKey();
+			if (Arrays.binarySearch(ContentResource.ignoreFields, key) < 0) {
+				Object value = jsonFields.contains(key) ? con.getKeyValueProperty(key) : entry.getValue();
+				if (value != null) {
+					values.put(key, value);
+				}
+			}
+		}
+
+		if (s.getStructureType() == Structure.STRUCTURE_TYPE_WIDGET && "true".equals(render)) {
+			values.put("parsedCode", WidgetResource.parseWidget(request, response, con));
+		}
+		return values;
+	}
+
+	private Map<String, Object> toXMLMap(Contentlet con) throws IOException, DotDataException {
+
+		Map<String, Object> m = new HashMap<String, Object>();
+		Structure s = con.getStructure();
+
+		m.putAll(ContentletUtil.getContentPrintableMap(user, con));
+
+		if (s.getStructureType() == Structure.STRUCTURE_TYPE_WIDGET && "true".equals(render)) {
+			m.put("parsedCode", WidgetResource.parseWidget(request, response, con));
+		}
+
+		Set<String> jsonFields = ContentResource.getJSONFields(s);
+		for (String key : m.keySet())
+			if (jsonFields.contains(key))
+				m.put(key, con.getKeyValueProperty(key));
+		return m;
+	}
+
+	/**
+	 * Writes the value as the JSON objects of the resource did: numbers and
+	 * booleans as themselves, maps as objects, collections and arrays as
+	 * arrays, anything else as its string
+	 */
+	static void writeValue(JsonGenerator json, Object value) throws IOException {
+
+		if (value == null) {
+			json.writeNull();
+		} else if (value instanceof Map) {
+			json.writeStartObject();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				json.writeFieldName(String.valueOf(entry.getKey()));
+				writeValue(json, entry.getValue());
+			}
+			json.writeEndObject();
+		} else if (value instanceof Collection) {
+			json.writeStartArray();
+			for (Object item : (Collection<?>) value) {
+				writeValue(json, item);
+			}
+			json.writeEndArray();
+		} else if (value instanceof Object[]) {
+			json.writeStartArray();
+			for (Object item : (Object[]) value) {
+				writeValue(json, item);
+			}
+			json.writeEndArray();
+		} else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			json.writeNumber(((Number) value).longValue());
+		} else if (value instanceof BigInteger) {
+			json.writeNumber((BigInteger) value);
+		} else if (value instanceof BigDecimal) {
+			json.writeNumber((BigDecimal) value);
+		} else if (value instanceof Number) {
+			json.writeNumber(((Number) value).doubleValue());
+		} else if (value instanceof Boolean) {
+			json.writeBoolean((Boolean) value);
+		} else {
+			json.writeString(value.toString());
+		}
+	}
+
+	/**
+	 * Keeps a copy of what is written, until it goes over its limit
+	 */
+	static class CapturingOutputStream extends FilterOutputStream {
+
+		private final int maxBytes;
+		private ByteArrayOutputStream captured = new ByteArrayOutputStream();
+
+		CapturingOutputStream(OutputStream out, int maxBytes) {
+			super(out);
+			this.maxBytes = maxBytes;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			capture(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			capture(b, off, len);
+		}
+
+		private void capture(byte[] b, int off, int len) {
+			if (captured == null) {
+				return;
+			}
+			if (captured.size() + len > maxBytes) {
+				captured = null;
+			} else {
+				captured.write(b, off, len);
+			}
+		}
+
+		/**
+		 * @return what was written, or null if it went over the limit
+		 */
+		byte[] getCaptured() {
+			return captured != null ? captured.toByteArray() : null;
+		}
+	}
+
+}
@@ -4,9 +4,15 @@ import com.dotmarketing.util.UtilMethods;
 import com.dotmarketing.util.json.JSONException;
 import com.dotcms.repackage.org.apache.commons.httpclient.HttpStatus;
 
+import com.dotcms.repackage.javax.ws.rs.WebApplicationException;
 import com.dotcms.repackage.javax.ws.rs.core.CacheControl;
+import com.dotcms.repackage.javax.ws.rs.core.EntityTag;
 import com.dotcms.repackage.javax.ws.rs.core.MediaType;
 import com.dotcms.repackage.javax.ws.rs.core.Response;
+import com.dotcms.repackage.javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 /**
@@ -88,28 +94,12 @@ public class ResourceResponse {
 
     public Response response ( String response, CacheControl cacheControl ) {
 
-        String contentType = null;
-        if ( UtilMethods.isSet( getType() ) ) {
-            if ( getType().equalsIgnoreCase( "jsonp" ) ) {
-                contentType = "application/javascript";
-
-                /*
-                For jsonp we need to wrap the given response code into javascript.
-                But before that lets verify if we have a callback method set in the params
-                 */
-                String callback = getParamsMap().get( RESTParams.CALLBACK.getValue() );
-                if ( !UtilMethods.isSet( callback ) ) {
-                    callback = "dotJsonpCall";
-                }
-
-                response = callback + "(" + response + ")";
-            } else if ( getType().equalsIgnoreCase( "json" ) ) {
-                contentType = MediaType.APPLICATION_JSON;
-            } else if ( getType().equalsIgnoreCase( "xml" ) ) {
-                contentType = MediaType.APPLICATION_XML;
-            } else if ( getType().equalsIgnoreCase( "plain" ) ) {
-                contentType = MediaType.TEXT_PLAIN;
-            }
+        String contentType = getContentType();
+        if ( contentType != null && getType().equalsIgnoreCase( "jsonp" ) ) {
+            /*
+            For jsonp we need to wrap the given response code into javascript.
+             */
+            response = getCallback() + "(" + response + ")";
         }
 
         Response.ResponseBuilder responseBuilder;
@@ -130,6 +120,77 @@ public class ResourceResponse {
         return responseBuilder.build();
     }
 
+    /**
+     * Prepares a Response object that writes its entity straight to the output stream, with the same content type and
+     * <strong>jsonp</strong> handling than {@link #response(String)}.
+     *
+     * @param output Writes the data to response
+     * @param eTag   ETag of the response, may be null
+     * @return
+     */
+    public Response response ( final StreamingOutput output, EntityTag eTag ) {
+
+        final String contentType = getContentType();
+        StreamingOutput entity = output;
+        if ( contentType != null && getType().equalsIgnoreCase( "jsonp" ) ) {
+            final String callback = getCallback();
+            entity = new StreamingOutput() {
+                @Override
+                public void write ( OutputStream out ) throws IOException, WebApplicationException {
+                    out.write( (callback + "(").getBytes( StandardCharsets.UTF_8 ) );
+                    output.write( out );
+                    out.write( ')' );
+                }
+            };
+        }
+
+        Response.ResponseBuilder responseBuilder;
+        if ( contentType != null ) {
+            responseBuilder = Response.ok( entity, contentType );
+        } else {
+            responseBuilder = Response.ok( entity );
+        }
+
+        if ( eTag != null ) {
+            responseBuilder.tag( eTag );
+        }
+
+        return responseBuilder.build();
+    }
+
+    /**
+     * The content type for the <strong>"type"</strong> parameter, or null if it was not sent
+     */
+    private String getContentType () {
+
+        String contentType = null;
+        if ( UtilMethods.isSet( getType() ) ) {
+            if ( getType().equalsIgnoreCase( "jsonp" ) ) {
+                contentType = "application/javascript";
+            } else if ( getType().equalsIgnoreCase( "json" ) ) {
+                contentType = MediaType.APPLICATION_JSON;
+            } else if ( getType().equalsIgnoreCase( "xml" ) ) {
+                contentType = MediaType.APPLICATION_XML;
+            } else if ( getType().equalsIgnoreCase( "plain" ) ) {
+                contentType = MediaType.TEXT_PLAIN;
+            }
+        }
+        return contentType;
+    }
+
+    /**
+     * The name of the jsonp callback method, <strong>dotJsonpCall</strong> if the <strong>"callback"</strong>
+     * parameter was not sent
+     */
+    private String getCallback () {
+
+        String callback = getParamsMap().get( RESTParams.CALLBACK.getValue() );
+        if ( !UtilMethods.isSet( callback ) ) {
+            callback = "dotJsonpCall";
+        }
+        return callback;
+    }
+
     public Response responseError ( String response ) {
         return responseError( response, HttpStatus.SC_INTERNAL_SERVER_ERROR );
     }
@@ -4,6 +4,7 @@ import com.dotcms.api.system.event.Payload;
 import com.dotcms.api.system.event.SystemEvent;
 import com.dotcms.api.system.event.SystemEventProcessor;
 import com.dotcms.api.system.event.SystemEventProcessorFactory;
+import com.dotcms.api.system.event.Visibility;
 import com.dotcms.auth.providers.jwt.JsonWebTokenUtils;
 import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
 import com.dotmarketing.business.APILocator;
@@ -22,10 +23,12 @@ import javax.websocket.Session;
 import javax.websocket.server.ServerEndpoint;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This Websocket end-point allows other parts of the system (such as the User
@@ -45,42 +48,50 @@ public class SystemEventsWebSocketEndPoint implements Serializable {
 
 	public static final String ID = "userId";
 	public static final String USER = "user";
-	private final Queue<Session> queue;
+	// key of the sessions opened without a user
+	private static final String NO_USER = "";
+	// key of the event encoded once for all the users
+	private static final String ALL_USERS = "*";
+
+	// open sessions by user id and then by session id
+	private final ConcurrentMap<String, ConcurrentMap<String, Session>> sessionsByUser;
+	// user id of every open session, to remove the session when it is closed
+	private final ConcurrentMap<String, String> userBySession;
 	private final UserAPI userAPI;
 	private final SystemEventProcessorFactory systemEventProcessorFactory;
+	private final SystemEventEncoder systemEventEncoder;
 
 
 	public SystemEventsWebSocketEndPoint() {
 
-		this(new ConcurrentLinkedQueue<Session>(),
-				APILocator.getUserAPI(),
+		this(APILocator.getUserAPI(),
 				SystemEventProcessorFactory.getInstance());
 	}
 
 	@VisibleForTesting
-	public SystemEventsWebSocketEndPoint(final Queue<Session> queue,
-										 final UserAPI userAPI,
+	public SystemEventsWebSocketEndPoint(final UserAPI userAPI,
 										 final SystemEventProcessorFactory systemEventProcessorFactory) {
 
-		this.queue      = queue;
+		this.sessionsByUser = new ConcurrentHashMap<>();
+		this.userBySession  = new ConcurrentHashMap<>();
 		this.userAPI    = userAPI;
 		this.systemEventProcessorFactory =
 				systemEventProcessorFactory;
+		this.systemEventEncoder = new SystemEventEncoder();
 	}
 
 	@OnOpen
 	public void open(final Session session) {
 
 		User user = null;
-		boolean addToNormalSession = true;
+		Session sessionToAdd = session;
 
 		if (session.getUserProperties().containsKey(USER)) {
 
 			try {
 
 				user = (User) session.getUserProperties().get(USER);
-				this.queue.add(new SessionWrapper(session, user));
-				addToNormalSession = false; // not need to add the normal session, since the wrapper was added.
+				sessionToAdd = new SessionWrapper(session, user);
 			} catch (Exception e) {
 
 				if (Logger.isErrorEnabled(this.getClass())) {
@@ -90,65 +101,132 @@ public class SystemEventsWebSocketEndPoint implements Serializable {
 			}
 		}
 
-		if (addToNormalSession) {
-
-			this.queue.add(session);
-		}
+		final String userKey = (null != user && null != user.getUserId()) ? user.getUserId() : NO_USER;
+		this.userBySession.put(session.getId(), userKey);
+		this.sessionsByUser.computeIfAbsent(userKey, key -> new ConcurrentHashMap<>())
+				.put(session.getId(), sessionToAdd);
 	} // open.
 
 	@OnError
 	public void error(Session session, Throwable t) {
-		queue.remove(session);
+		this.removeSession(session.getId());
 	}
 
 	@OnClose
 	public void closedConnection(Session session) {
-		queue.remove(session);
+		this.removeSession(session.getId());
 	}
 
 	/**
 	 * Sends the specified {@link SystemEvent} object to all the clients
 	 * (front-end or back-end services) that are registered to this Websocket
 	 * end-point.
+	 * <p>
+	 * The visibility of the event is verified once per user, and the event is
+	 * processed and encoded once per user only if its processor depends on the
+	 * user, otherwise the same message is sent to all the sessions.
 	 * 
 	 * @param event
 	 *            - A new System Event that has been generated.
 	 */
 	public void sendSystemEvent(final SystemEvent event) {
 
-		final ArrayList<Session> closedSessions = new ArrayList<>();
+		final Payload payload = event.getPayload();
+		if (null == payload) {
 
+			return; // if the payload is null, must not send to the session.
+		}
 
-		try {
+		final SystemEventProcessor processor =
+				this.systemEventProcessorFactory.createProcessor(event.getEventType());
+		final Map<String, String> encodedEvents = new HashMap<>();
 
-			for (Session session : queue) {
+		for (String userKey : this.getTargetUsers(payload)) {
 
-				if (!session.isOpen()) {
+			final Map<String, Session> sessions = this.sessionsByUser.get(userKey);
+			final Session session = null != sessions ? this.getOpenSession(sessions) : null;
+
+			if (null == session) {
+
+				continue;
+			}
+
+			try {
 
-					closedSessions.add(session);
-				} else {
+				if (this.apply(event, session)) {
 
-					if (this.apply (event, session)) {
+					final String encodedKey = (null != processor && processor.isUserDependent()) ? userKey : ALL_USERS;
+					String encodedEvent = encodedEvents.get(encodedKey);
+					if (null == encodedEvent) {
 
-						session.getAsyncRemote().sendObject
-								(this.processEvent(session, event));
+						encodedEvent = this.systemEventEncoder.encode(this.processEvent(processor, session, event));
+						encodedEvents.put(encodedKey, encodedEvent);
+					}
+
+					for (Session userSession : sessions.values()) {
+
+						if (userSession.isOpen()) {
+
+							userSession.getAsyncRemote().sendText(encodedEvent);
+						}
 					}
 				}
+			} catch (Throwable e) {
+
+				Logger.error(this, "An error occurred when sending a message through the " + this.getClass().getName(), e);
+			}
+		}
+	} // sendSystemEvent.
+
+	/**
+	 * Returns the users whose sessions might receive the event: for a user
+	 * event just the sessions of that user, besides the sessions without user.
+	 */
+	private Collection<String> getTargetUsers(final Payload payload) {
+
+		if (Visibility.USER == payload.getVisibility() && null != payload.getVisibilityId()) {
+
+			return Arrays.asList(payload.getVisibilityId(), NO_USER);
+		}
+
+		return new ArrayList<>(this.sessionsByUser.keySet());
+	} // getTargetUsers.
+
+	/**
+	 * Returns an open session of the user, the closed ones found meanwhile are removed.
+	 */
+	private Session getOpenSession(final Map<String, Session> sessions) {
+
+		for (Session session : sessions.values()) {
+
+			if (session.isOpen()) {
+
+				return session;
 			}
 
-			this.queue.removeAll(closedSessions);
-		} catch (Throwable e) {
+			this.removeSession(session.getId());
+		}
+
+		return null;
+	} // getOpenSession.
+
+	private void removeSession(final String sessionId) {
+
+		final String userKey = this.userBySession.remove(sessionId);
+		if (null != userKey) {
+
+			final Map<String, Session> sessions = this.sessionsByUser.get(userKey);
+			if (null != sessions) {
 
-			Logger.error(this, "An error occurred when sending a message through the " + this.getClass().getName(), e);
+				sessions.remove(sessionId);
+			}
 		}
-	} // sendSystemEvent.
+	} // removeSession.
 
-	private SystemEvent processEvent(final Session session,
+	private SystemEvent processEvent(final SystemEventProcessor processor,
+									 final Session session,
 									 final SystemEvent event) {
 
-		final SystemEventProcessor processor =
-				this.systemEventProcessorFactory.createProcessor(event.getEventType());
-
 		return null != processor? processor.process(event, session): event;
 	} // processEvent.
 
@@ -0,0 +1,43 @@
+package com.dotcms.tika;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The metadata parsed from a binary file and the inode of the contentlet it was
+ * parsed for. The full text of the file is not kept here, it is copied from the
+ * content metadata file of that inode.
+ */
+public class BinaryMetadata implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String inode;
+	private final HashMap<String, String> metaData;
+	private final boolean hasContent;
+
+	public BinaryMetadata(String inode, Map<String, String> metaData, boolean hasContent) {
+		this.inode = inode;
+		this.metaData = new HashMap<String, String>(metaData);
+		this.hasContent = hasContent;
+	}
+
+	public String getInode() {
+		return inode;
+	}
+
+	/**
+	 * @return a copy of the metadata
+	 */
+	public Map<String, String> getMetaData() {
+		return new HashMap<String, String>(metaData);
+	}
+
+	/**
+	 * @return true if the full text of the file was written to the content metadata file of the inode
+	 */
+	public boolean hasContent() {
+		return hasContent;
+	}
+}
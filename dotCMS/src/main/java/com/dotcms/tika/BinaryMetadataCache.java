@@ -0,0 +1,16 @@
+package com.dotcms.tika;
+
+import com.dotmarketing.business.Cachable;
+
+/**
+ * Metadata extracted from binary files, keyed by the hash and size of the
+ * file, so a file uploaded again or kept by a new version is not parsed twice.
+ */
+public interface BinaryMetadataCache extends Cachable {
+
+	BinaryMetadata get(String key);
+
+	void put(String key, BinaryMetadata metadata);
+
+	void remove(String key);
+}
@@ -0,0 +1,53 @@
+package com.dotcms.tika;
+
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.DotCacheAdministrator;
+import com.dotmarketing.business.DotCacheException;
+import com.dotmarketing.util.Logger;
+
+public class BinaryMetadataCacheImpl implements BinaryMetadataCache {
+
+	public final String GROUP = "BinaryMetadataCache";
+
+	private DotCacheAdministrator cache;
+
+	public BinaryMetadataCacheImpl() {
+		cache = CacheLocator.getCacheAdministrator();
+	}
+
+	@Override
+	public String getPrimaryGroup() {
+		return GROUP;
+	}
+
+	@Override
+	public String[] getGroups() {
+		return new String[] { GROUP };
+	}
+
+	@Override
+	public void clearCache() {
+		cache.flushGroup(GROUP);
+	}
+
+	@Override
+	public BinaryMetadata get(String key) {
+		try {
+			return (BinaryMetadata) cache.get(key, GROUP);
+		} catch (DotCacheException e) {
+			Logger.debug(this, "Cache Entry not found", e);
+			return null;
+		}
+	}
+
+	@Override
+	public void put(String key, BinaryMetadata metadata) {
+		cache.put(key, metadata, GROUP);
+	}
+
+	@Override
+	public void remove(String key) {
+		cache.remove(key, GROUP);
+	}
+
+}
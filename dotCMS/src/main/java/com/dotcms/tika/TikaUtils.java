@@ -1,5 +1,6 @@
 package com.dotcms.tika;
 
+import com.dotcms.repackage.org.apache.commons.codec.digest.DigestUtils;
 import com.dotcms.repackage.org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 import com.dotcms.repackage.org.apache.commons.io.IOUtils;
 import com.dotcms.repackage.org.apache.commons.io.input.ReaderInputStream;
@@ -7,11 +8,13 @@ import com.dotcms.repackage.org.apache.tika.Tika;
 import com.dotcms.repackage.org.apache.tika.io.TikaInputStream;
 import com.dotcms.repackage.org.apache.tika.metadata.Metadata;
 import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.portlets.fileassets.business.FileAssetAPI;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.StringUtils;
 import com.dotmarketing.util.UtilMethods;
+import com.liferay.util.FileUtil;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -28,25 +31,74 @@ import java.util.zip.GZIPOutputStream;
 public class TikaUtils {
 
 
+    private static volatile Tika tika;
+
+    /**
+     * The Tika facade is shared, building it loads the parsers and detectors
+     * of every mime type. Its auto detect parser keeps one instance of each
+     * parser and they do not keep state between documents.
+     */
+    private static Tika getTika() {
+        if (tika == null) {
+            synchronized (TikaUtils.class) {
+                if (tika == null) {
+                    Tika t = new Tika();
+                    t.setMaxStringLength(-1);
+                    tika = t;
+                }
+            }
+        }
+        return tika;
+    }
+
     /**
      * Right now the method use the Tika facade directly for parse the document without any kind of restriction about the parser because the
      * new Tika().parse method use the AutoDetectParser by default.
+     * <p>
+     * Files bigger than FILE_METADATA_MAX_FILE_SIZE_MB only get their size and
+     * content type, and the full text stops being read after
+     * FILE_METADATA_PARSE_TIMEOUT_SECONDS or META_DATA_MAX_SIZE. The metadata of
+     * a file cut off this way has {@link FileAssetAPI#PARTIAL_META_DATA_FIELD} set.
      *
      * @author Graziano Aliberti - Engineering Ingegneria Informatica S.p.a
      *
      * May 31, 2013 - 12:27:19 PM
      */
     public Map<String, String> getMetaDataMap(String inode, File binFile, String mimeType, boolean forceMemory) {
+        return getMetaDataMap(inode, binFile, forceMemory, null);
+    }
+
+    /**
+     * Same as {@link #getMetaDataMap(String, File, boolean)}, but files with the
+     * same hash and size are parsed once, the metadata of the following ones is
+     * taken from the {@link BinaryMetadataCache}. Hashing reads the whole file,
+     * so this is meant for the {@link com.dotcms.content.elasticsearch.business.FileMetadataQueue}
+     * workers, not for request threads.
+     */
+    public Map<String, String> getMetaDataMapOnce(String inode, File binFile) {
+        String cacheKey = getCacheKey(binFile);
+        Map<String, String> cached = getCachedMetaDataMap(cacheKey, APILocator.getFileAssetAPI().getContentMetadataFile(inode));
+        if (cached != null) {
+            return cached;
+        }
+        return getMetaDataMap(inode, binFile, false, cacheKey);
+    }
+
+    private Map<String, String> getMetaDataMap(String inode, File binFile, boolean forceMemory, String cacheKey) {
         Map<String, String> metaMap = new HashMap<String, String>();
 
         // store content metadata on disk
         File contentM = APILocator.getFileAssetAPI().getContentMetadataFile(inode);
 
-        Tika t = new Tika();
+        long maxFileSize = Config.getLongProperty("FILE_METADATA_MAX_FILE_SIZE_MB", -1) * 1024 * 1024;
+        long timeout = Config.getLongProperty("FILE_METADATA_PARSE_TIMEOUT_SECONDS", 300) * 1000;
+
+        Tika t = getTika();
         Metadata met = new Metadata();
-        t.setMaxStringLength(-1);
         Reader fulltext = null;
         InputStream is = null;
+        boolean parsed = false;
+        boolean partial = false;
 
         char[] buf;
         byte[] bytes;
@@ -56,7 +108,13 @@ public class TikaUtils {
         // I can use the faster parseToString
         try {
 
-            if (forceMemory) {
+            if (maxFileSize > 0 && binFile.length() > maxFileSize) {
+                Logger.info(this.getClass(), "Not parsing the content of " + binFile.getAbsolutePath() + ", it is bigger than "
+                    + Config.getLongProperty("FILE_METADATA_MAX_FILE_SIZE_MB", -1) + "MB");
+                metaMap.put("contentType", t.detect(binFile));
+                parsed = true;
+                partial = true;
+            } else if (forceMemory) {
                 // no worry about the limit and less time to process.
                 String content = t.parseToString(new FileInputStream(binFile), met);
                 metaMap = new HashMap<String, String>();
@@ -71,8 +129,10 @@ public class TikaUtils {
                     }
                 }
                 metaMap.put(FileAssetAPI.CONTENT_FIELD, content);
+                parsed = true;
             } else {
 
+                long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
                 is = TikaInputStream.get(binFile);
                 fulltext = t.parse(is, met);
                 metaMap = new HashMap<String, String>();
@@ -90,6 +150,7 @@ public class TikaUtils {
                 buf = new char[1024];
                 bytes = new byte[1024];
                 count = fulltext.read(buf);
+                parsed = true;
                 if (count > 0 && !contentM.exists() && contentM.getParentFile().mkdirs() && contentM.createNewFile()) {
                     OutputStream out = new FileOutputStream(contentM);
 
@@ -116,7 +177,14 @@ public class TikaUtils {
                             bytes = lowered.getBytes(StandardCharsets.UTF_8);
                             out.write(bytes, 0, count);
                             numOfChunks--;
+                            if (System.currentTimeMillis() > deadline) {
+                                Logger.warn(this.getClass(), "Stopped reading the content of " + binFile.getAbsolutePath()
+                                    + " after " + (timeout / 1000) + " seconds");
+                                break;
+                            }
                         } while ((count = fulltext.read(buf)) > 0 && numOfChunks > 0);
+                        // a chunk read but not written, or the deadline, cut the text off
+                        partial = count > 0;
                     } catch (IOException ioExc) {
                         Logger.debug(this.getClass(), "Error Reading TikaParse Stream.", ioExc);
                     } finally {
@@ -153,6 +221,9 @@ public class TikaUtils {
             if (null != is) {
                 IOUtils.closeQuietly(is);
             }
+            if (partial) {
+                metaMap.put(FileAssetAPI.PARTIAL_META_DATA_FIELD, Boolean.TRUE.toString());
+            }
             try {
                 metaMap.put(FileAssetAPI.SIZE_FIELD, String.valueOf(binFile.length()));
             } catch (Exception ex) {
@@ -160,9 +231,59 @@ public class TikaUtils {
                     "Could not parse file metadata for file : " + binFile.getAbsolutePath() + ". " + ex.getMessage());
             }
         }
+        // metadata cut off by a timeout could be complete next time
+        if (parsed && !partial && cacheKey != null) {
+            CacheLocator.getBinaryMetadataCache().put(cacheKey, new BinaryMetadata(inode, metaMap, contentM.exists()));
+        }
         return metaMap;
     }
 
+    /**
+     * Returns the metadata of a file with the same hash and size parsed before,
+     * copying its full text to the given content metadata file.
+     *
+     * @return The metadata, or null if the file has to be parsed
+     */
+    private Map<String, String> getCachedMetaDataMap(String cacheKey, File contentM) {
+        if (cacheKey == null) {
+            return null;
+        }
+        BinaryMetadata cached = CacheLocator.getBinaryMetadataCache().get(cacheKey);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.hasContent() && !contentM.exists()) {
+            File source = APILocator.getFileAssetAPI().getContentMetadataFile(cached.getInode());
+            try {
+                if (!source.exists()) {
+                    return null;
+                }
+                contentM.getParentFile().mkdirs();
+                FileUtil.copyFile(source, contentM);
+            } catch (IOException e) {
+                Logger.warn(this.getClass(), "Unable to copy the content metadata of " + cached.getInode() + ": " + e.getMessage());
+                return null;
+            }
+        }
+        return cached.getMetaData();
+    }
+
+    private String getCacheKey(File binFile) {
+        if (binFile == null || !binFile.exists()) {
+            return null;
+        }
+        InputStream in = null;
+        try {
+            in = new FileInputStream(binFile);
+            return DigestUtils.md5Hex(in) + "-" + binFile.length();
+        } catch (IOException e) {
+            Logger.debug(this.getClass(), "Unable to hash " + binFile.getAbsolutePath(), e);
+            return null;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
 	/**
 	 * This method takes a file and uses tika to parse the metadata from it. It
 	 * returns a Map of the metadata
@@ -551,4 +551,24 @@ public class CollectionsUtils implements Serializable {
         map.put( key2, emailaddress);
     }
 
+    /**
+     * Splits the list in consecutive sublists of the given size, the last one
+     * may be smaller. The sublists are views of the original list.
+     * For instance:
+     * <pre>partition(list(1, 2, 3, 4, 5), 2)</pre>
+     * returns <pre>[[1, 2], [3, 4], [5]]</pre>
+     *
+     * @param list the list to split
+     * @param size the maximum size of every sublist
+     * @param <T>
+     * @return the sublists, empty if the list is empty
+     */
+    public static <T> List<List<T>> partition(final List<T> list, final int size) {
+        final List<List<T>> partitions = new ArrayList<>();
+        for (int init = 0; init < list.size(); init += size) {
+            partitions.add(list.subList(init, Math.min(init + size, list.size())));
+        }
+        return partitions;
+    }
+
 } // E:O:F:CollectionsUtils.
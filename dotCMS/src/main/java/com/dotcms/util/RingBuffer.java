@@ -0,0 +1,95 @@
+package com.dotcms.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded buffer that many threads add to and a single thread drains, without
+ * locks. When the buffer is full the element is not added and counted as
+ * dropped, so the threads adding to it never wait for the one draining it.
+ *
+ * @param <T> The type of the elements
+ */
+public class RingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity The maximum number of elements, rounded up to a power of two
+     */
+    public RingBuffer(final int capacity) {
+
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<T>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds an element, it can be called from any thread.
+     *
+     * @return false if the buffer was full and the element was dropped
+     */
+    public boolean offer(final T element) {
+
+        while (true) {
+            final long position = tail.get();
+            if (position - head.get() >= slots.length()) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (tail.compareAndSet(position, position + 1)) {
+                slots.lazySet((int) position & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves up to <code>max</code> elements, in the order they were added, to
+     * the given list. It must only be called from the draining thread.
+     *
+     * @return The number of elements moved
+     */
+    public int drainTo(final List<T> list, final int max) {
+
+        long position = head.get();
+        int count = 0;
+        while (count < max) {
+            final int index = (int) position & mask;
+            final T element = slots.get(index);
+            if (element == null) {
+                // empty, or a thread claimed the slot and did not publish it yet
+                break;
+            }
+            slots.lazySet(index, null);
+            list.add(element);
+            position++;
+            count++;
+        }
+        head.lazySet(position);
+        return count;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    /**
+     * @return The number of elements dropped because the buffer was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+}
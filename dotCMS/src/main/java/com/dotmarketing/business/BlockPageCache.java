@@ -1,5 +1,7 @@
 package com.dotmarketing.business;
 
+import java.util.Map;
+
 import com.dotcms.repackage.org.apache.commons.lang.StringUtils;
 import com.dotmarketing.portlets.htmlpageasset.model.IHTMLPage;
 
@@ -116,4 +118,14 @@ public abstract class BlockPageCache implements Cachable {
 	 */
 	abstract public void remove(IHTMLPage page);
 
+	/**
+	 * Returns the number of cached versions, hits and misses of a page along
+	 * with the totals of the cache.
+	 * 
+	 * @param page
+	 *            - The {@link IHTMLPage} object.
+	 * @return The usage counters of the page.
+	 */
+	abstract public Map<String, Object> getStats(IHTMLPage page);
+
 }
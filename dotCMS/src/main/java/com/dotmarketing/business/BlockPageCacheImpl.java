@@ -1,11 +1,13 @@
 package com.dotmarketing.business;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.io.Serializable;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.dotcms.enterprise.LicenseUtil;
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
 import com.dotmarketing.portlets.htmlpageasset.model.IHTMLPage;
 import com.dotmarketing.util.Logger;
 
@@ -32,6 +34,11 @@ import com.dotmarketing.util.Logger;
  * 		</ul>
  *  </li>
  * </ul>
+ * <p>
+ * The main key holds a {@link PageCacheEntry} with a concurrent map of the
+ * versions of the page, so reading and adding a version does not require any
+ * lock and removing the main key evicts all the versions in every node of the
+ * cluster.
  * 
  * @author Jose Castro
  * @version 1.0
@@ -40,16 +47,32 @@ import com.dotmarketing.util.Logger;
  */
 public class BlockPageCacheImpl extends BlockPageCache {
 
+	private static final int LOCK_STRIPES = 64;
+
 	private boolean canCache = false;
 	private DotCacheAdministrator cache = null;
 	private static String primaryCacheGroup = "BlockDirectiveHTMLPageCache";
 
+	// Only used to create the entry of a page, versions are added without locking
+	private final Object[] locks = new Object[LOCK_STRIPES];
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
 	/**
 	 * Default constructor. Initializes the internal caching structures.
 	 */
 	public BlockPageCacheImpl() {
-		this.cache = CacheLocator.getCacheAdministrator();
-		this.canCache = LicenseUtil.getLevel() > 99;
+		this(CacheLocator.getCacheAdministrator(), LicenseUtil.getLevel() > 99);
+	}
+
+	@VisibleForTesting
+	BlockPageCacheImpl(DotCacheAdministrator cache, boolean canCache) {
+		this.cache = cache;
+		this.canCache = canCache;
+		for (int i = 0; i < LOCK_STRIPES; i++) {
+			locks[i] = new Object();
+		}
 	}
 
 	@Override
@@ -71,103 +94,109 @@ public class BlockPageCacheImpl extends BlockPageCache {
 	@Override
 	public void add(IHTMLPage page, String value,
 			PageCacheParameters pageChacheParams) {
-		if (page == null || pageChacheParams == null
-				|| pageChacheParams == null) {
+		if (page == null || pageChacheParams == null) {
 			return;
 		}
-		StringBuilder key = new StringBuilder();
-		key.append(page.getInode());
-		key.append("_" + page.getModDate().getTime());
-		String subkey = pageChacheParams.getKey();
+		String key = getPageKey(page);
 		BlockDirectiveCacheObject cto = new BlockDirectiveCacheObject(value,
 				(int) page.getCacheTTL());
-		synchronized (cache) {
-			try {
-				// Lookup the cached versions of a page
-				List<Map<String, Object>> cachedPages = (List<Map<String, Object>>) this.cache
-						.get(key.toString(), primaryCacheGroup);
-				if (cachedPages != null) {
-					boolean updatedEntry = false;
-					// Update version of page based on userid, language and
-					// urlmap
-					for (Map<String, Object> pageInfo : cachedPages) {
-						if (pageInfo.containsKey(subkey)) {
-							pageInfo.put(subkey, cto);
-							updatedEntry = true;
-							break;
-						}
-					}
-					// Or add a new one
-					if (!updatedEntry) {
-						Map<String, Object> pageInfo = new HashMap<String, Object>();
-						pageInfo.put(subkey, cto);
-						cachedPages.add(pageInfo);
-					}
+
+		PageCacheEntry entry = getEntry(key);
+		if (entry == null) {
+			synchronized (locks[(key.hashCode() & 0x7fffffff) % LOCK_STRIPES]) {
+				entry = getEntry(key);
+				if (entry == null) {
+					entry = new PageCacheEntry();
+					this.cache.put(key, entry, primaryCacheGroup);
 				}
-			} catch (DotCacheException e) {
-				// Key does not exist in cache, then add it
 			}
-			List<Map<String, Object>> versions = new ArrayList<Map<String, Object>>();
-			Map<String, Object> pageInfo = new HashMap<String, Object>();
-			pageInfo.put(subkey, cto);
-			versions.add(pageInfo);
-			this.cache.put(key.toString(), versions, primaryCacheGroup);
 		}
+		entry.versions.put(pageChacheParams.getKey(), cto);
 	}
 
 	@Override
 	public String get(IHTMLPage page, PageCacheParameters pageChacheParams) {
-		if (!canCache || page == null || pageChacheParams == null
-				|| pageChacheParams == null) {
+		if (!canCache || page == null || pageChacheParams == null) {
 			return null;
 		}
-		StringBuilder key = new StringBuilder();
-		key.append(page.getInode());
-		key.append("_" + page.getModDate().getTime());
+		String key = getPageKey(page);
 		String subkey = pageChacheParams.getKey();
-		synchronized (cache) {
-			// Lookup the cached versions of the page based on inode and moddate
-			try {
-				List<Map<String, Object>> cachedPages = (List<Map<String, Object>>) this.cache
-						.get(key.toString(), primaryCacheGroup);
-				BlockDirectiveCacheObject cto = null;
-				if (cachedPages != null) {
-					for (Map<String, Object> pageInfo : cachedPages) {
-						// Lookup specific page with userid, language and urlmap
-						if (pageInfo.containsKey(subkey)) {
-							cto = (BlockDirectiveCacheObject) pageInfo
-									.get(subkey);
-							break;
-						}
-					}
-					if (cto != null
-							&& cto.getCreated()
-									+ ((int) page.getCacheTTL() * 1000) > System
-										.currentTimeMillis()) {
-						return cto.getValue();
-					} else {
-						// Remove page from cache if expired and get new version
-						remove(page);
-					}
-				}
-			} catch (DotCacheException e) {
-				Logger.error(this.getClass(), "cache entry :" + key.toString()
-						+ " not found");
-			}
+
+		// Lookup the cached versions of the page based on inode and moddate
+		PageCacheEntry entry = getEntry(key);
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+
+		// Lookup specific page with userid, language and urlmap
+		BlockDirectiveCacheObject cto = entry.versions.get(subkey);
+		if (cto != null
+				&& cto.getCreated() + ((int) page.getCacheTTL() * 1000) > System
+						.currentTimeMillis()) {
+			entry.hits.incrementAndGet();
+			hits.incrementAndGet();
+			return cto.getValue();
+		}
+
+		if (cto != null) {
+			// Remove only the expired version, a newer one may have been added meanwhile
+			entry.versions.remove(subkey, cto);
 		}
+		entry.misses.incrementAndGet();
+		misses.incrementAndGet();
 		return null;
 	}
 
 	@Override
 	public void remove(IHTMLPage page) {
 		try {
-			StringBuilder key = new StringBuilder();
-			key.append(page.getInode());
-			key.append("_" + page.getModDate().getTime());
-			this.cache.remove(key.toString(), primaryCacheGroup);
+			this.cache.remove(getPageKey(page), primaryCacheGroup);
 		} catch (Exception e) {
 			Logger.debug(this, "Cache not able to be removed", e);
 		}
 	}
 
+	@Override
+	public Map<String, Object> getStats(IHTMLPage page) {
+		Map<String, Object> stats = new LinkedHashMap<String, Object>();
+		if (page != null) {
+			PageCacheEntry entry = getEntry(getPageKey(page));
+			stats.put("versions", entry != null ? entry.versions.size() : 0);
+			stats.put("hits", entry != null ? entry.hits.get() : 0L);
+			stats.put("misses", entry != null ? entry.misses.get() : 0L);
+		}
+		stats.put("totalHits", hits.get());
+		stats.put("totalMisses", misses.get());
+		return stats;
+	}
+
+	private String getPageKey(IHTMLPage page) {
+		return page.getInode() + "_" + page.getModDate().getTime();
+	}
+
+	private PageCacheEntry getEntry(String key) {
+		try {
+			Object entry = this.cache.get(key, primaryCacheGroup);
+			// Entries of the former list based format are ignored and replaced
+			return entry instanceof PageCacheEntry ? (PageCacheEntry) entry : null;
+		} catch (DotCacheException e) {
+			Logger.error(this.getClass(), "cache entry :" + key + " not found");
+			return null;
+		}
+	}
+
+	/**
+	 * Cached versions of a page along with their usage counters.
+	 */
+	private static class PageCacheEntry implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ConcurrentHashMap<String, BlockDirectiveCacheObject> versions = new ConcurrentHashMap<String, BlockDirectiveCacheObject>();
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+
+	}
+
 }
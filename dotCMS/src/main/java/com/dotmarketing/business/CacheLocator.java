@@ -14,6 +14,10 @@ import com.dotcms.publisher.assets.business.PushedAssetsCache;
 import com.dotcms.publisher.assets.business.PushedAssetsCacheImpl;
 import com.dotcms.publisher.endpoint.business.PublishingEndPointCache;
 import com.dotcms.publisher.endpoint.business.PublishingEndPointCacheImpl;
+import com.dotcms.rest.ContentResourceCache;
+import com.dotcms.rest.ContentResourceCacheImpl;
+import com.dotcms.tika.BinaryMetadataCache;
+import com.dotcms.tika.BinaryMetadataCacheImpl;
 import com.dotmarketing.business.cache.transport.CacheTransport;
 import com.dotmarketing.business.jgroups.JGroupsCacheTransport;
 import com.dotmarketing.cache.ContentTypeCache;
@@ -24,6 +28,8 @@ import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.FlushCacheRunnable;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotRuntimeException;
+import com.dotmarketing.filters.CmsUrlCache;
+import com.dotmarketing.filters.CmsUrlCacheImpl;
 import com.dotmarketing.logConsole.model.LogMapperCache;
 import com.dotmarketing.logConsole.model.LogMapperCacheImpl;
 import com.dotmarketing.plugin.business.PluginCache;
@@ -275,6 +281,18 @@ public class CacheLocator extends Locator<CacheIndex>{
 	    return (NavToolCache)getInstance(CacheIndex.NavTool);
 	}
 
+	public static CmsUrlCache getCmsUrlCache() {
+	    return (CmsUrlCache)getInstance(CacheIndex.CmsUrl);
+	}
+
+	public static ContentResourceCache getContentResourceCache() {
+	    return (ContentResourceCache)getInstance(CacheIndex.ContentResource);
+	}
+
+	public static BinaryMetadataCache getBinaryMetadataCache() {
+	    return (BinaryMetadataCache)getInstance(CacheIndex.BinaryMetadata);
+	}
+
 	public static PublishingEndPointCache getPublishingEndPointCache() {
 		return (PublishingEndPointCache)getInstance(CacheIndex.PublishingEndPoint);
 	}
@@ -385,6 +403,9 @@ enum CacheIndex
 	Block_Page("Block Page"),
 	Indicies("Indicies"),
 	NavTool("Navigation Tool"),
+	CmsUrl("CMS URL"),
+	ContentResource("Content Resource"),
+	BinaryMetadata("Binary Metadata"),
 	PublishingEndPoint("PublishingEndPoint Cache"),
 	PushedAssets("PushedAssets Cache"),
 	CSSCache("Processed CSS Cache"),
@@ -427,6 +448,9 @@ enum CacheIndex
       	case VirtualLinkCache : return new VirtualLinkCacheImpl();
       	case Indicies: return new IndiciesCacheImpl();
       	case NavTool: return new NavToolCacheImpl();
+      	case CmsUrl: return new CmsUrlCacheImpl();
+      	case ContentResource: return new ContentResourceCacheImpl();
+      	case BinaryMetadata: return new BinaryMetadataCacheImpl();
       	case PublishingEndPoint: return new PublishingEndPointCacheImpl();
       	case PushedAssets: return new PushedAssetsCacheImpl();
       	case CSSCache: return new CSSCacheImpl();
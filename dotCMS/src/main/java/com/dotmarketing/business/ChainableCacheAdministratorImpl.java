@@ -10,6 +10,7 @@ import com.dotcms.enterprise.cache.provider.CacheProviderAPI;
 import com.dotcms.enterprise.cluster.ClusterFactory;
 import com.dotcms.repackage.com.google.common.cache.RemovalListener;
 import com.dotcms.repackage.com.google.common.cache.RemovalNotification;
+import com.dotmarketing.business.cache.transport.CacheInvalidationBatcher;
 import com.dotmarketing.business.cache.transport.CacheTransport;
 import com.dotmarketing.business.cache.transport.CacheTransportException;
 import com.dotmarketing.common.business.journal.DistributedJournalAPI;
@@ -40,6 +41,8 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 	private DistributedJournalAPI journalAPI;
 	private CacheProviderAPI cacheProviderAPI;
 	private boolean useTransportChannel = false;
+	private final boolean batchInvalidations = Config.getBooleanProperty("CACHE_INVALIDATION_BATCH_ENABLED", false);
+	private final CacheInvalidationBatcher invalidationBatcher = new CacheInvalidationBatcher();
 
 	public static final String TEST_MESSAGE = "HELLO CLUSTER!";
 	public static final String TEST_MESSAGE_NODE = "TESTNODE";
@@ -59,6 +62,7 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 		}
 
 		this.cacheTransport = transport;
+		invalidationBatcher.setTransport(transport);
 	}
 
 	public ChainableCacheAdministratorImpl () {
@@ -70,6 +74,7 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 		if ( transport != null ) {
 			useTransportChannel = true;
 			this.cacheTransport = transport;
+			invalidationBatcher.setTransport(transport);
 		} else {
 			useTransportChannel = false;
 		}
@@ -226,6 +231,9 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 
 		flushAlLocalOnly();
 
+		//Everything is going to be flushed, no need to send the pending invalidations
+		invalidationBatcher.clear();
+
 		try {
 			if (Config.getBooleanProperty("CACHE_CLUSTER_THROUGH_DB", false)) {
 				journalAPI.addCacheEntry("0", ROOT_GOUP);
@@ -267,6 +275,8 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 		try {
 			if (Config.getBooleanProperty("CACHE_CLUSTER_THROUGH_DB", false)) {
 				journalAPI.addCacheEntry("0", group);
+			} else if ( useTransportChannel && batchInvalidations ) {
+				invalidationBatcher.flushGroup(group);
 			} else if ( useTransportChannel ) {
 
 				try {
@@ -354,6 +364,8 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 				try {
 					if (Config.getBooleanProperty("CACHE_CLUSTER_THROUGH_DB", false)) {
 						journalAPI.addCacheEntry(k, g);
+					} else if ( useTransportChannel && batchInvalidations ) {
+						invalidationBatcher.remove(k, g);
 					} else if ( useTransportChannel ) {
 
 						if ( getTransport() != null ) {
@@ -416,6 +428,7 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 	public void shutdownChannel () {
 
 		if ( getTransport() != null ) {
+			invalidationBatcher.shutdown();
 			getTransport().shutdown();
 			useTransportChannel = false;
 		} else {
@@ -424,6 +437,13 @@ public class ChainableCacheAdministratorImpl implements DotCacheAdministrator {
 
 	}
 
+	/**
+	 * Returns the component that groups the invalidations sent to the cluster
+	 */
+	public CacheInvalidationBatcher getInvalidationBatcher () {
+		return invalidationBatcher;
+	}
+
 	public boolean isClusteringEnabled() {
 		return useTransportChannel;
 	}
@@ -1,5 +1,6 @@
 package com.dotmarketing.business;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -63,6 +64,16 @@ public interface IdentifierAPI {
 	 */
 	public Identifier find(String id) throws DotDataException;
 
+	/**
+	 * Will take the ids of many identifiers and return them from cache or db, the ones
+	 * that are not cached are loaded with one query per batch.
+	 * @param ids
+	 * @return the identifiers in the order of the ids, the ones that can't be found are empty
+	 * @throws DotDataException
+	 * @throws DotStateException if one of the ids is null
+	 */
+	public List<Identifier> find(Collection<String> ids) throws DotDataException;
+
 	/**
 	 * Will take a Versionable and return its identifier from cache or db. If cache miss
 	 * this will always hit the db
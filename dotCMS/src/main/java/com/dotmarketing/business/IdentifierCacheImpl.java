@@ -11,6 +11,7 @@ import java.util.List;
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.beans.VersionInfo;
+import com.dotmarketing.filters.CmsUrlCache;
 import com.dotmarketing.portlets.contentlet.model.ContentletVersionInfo;
 import com.dotmarketing.util.InodeUtils;
 import com.dotmarketing.util.Logger;
@@ -167,6 +168,7 @@ public class IdentifierCacheImpl extends IdentifierCache {
     		final String key = getPrimaryGroup() + id.getHostId() + "-" + uri;
     		cache.remove(key, getPrimaryGroup());
     		cache.remove(key, get404Group());
+    		CacheLocator.getCmsUrlCache().remove(id.getHostId(), uri);
 		}
 		
 		if(UtilMethods.isSet(id.getAssetType()) && id.getAssetType().equals("folder")) {
@@ -187,6 +189,7 @@ public class IdentifierCacheImpl extends IdentifierCache {
 		if(id==null){
 			id=new Identifier();
 			id.setId(ident);
+			removeCmsUrl(ident);
 		}
 		
 		removeFromCacheByIdentifier(id);
@@ -196,6 +199,7 @@ public class IdentifierCacheImpl extends IdentifierCache {
 
 
 	protected void removeFromCacheByURI(String hostId,String URI) {
+		CacheLocator.getCmsUrlCache().remove(hostId, URI);
 		Identifier id = getIdentifier(hostId,URI);
 		if(id==null) {
     		String key = getPrimaryGroup() + hostId + "-" + URI;
@@ -224,6 +228,30 @@ public class IdentifierCacheImpl extends IdentifierCache {
 	    for(String group : getGroups()) {
 	        cache.flushGroup(group);
 	    }
+	    CacheLocator.getCmsUrlCache().clearCache();
+	}
+
+	/**
+	 * Drops the {@link CmsUrlCache} entry of the given identifier, in every
+	 * node of the cluster. When the identifier is not in this node's cache its
+	 * host and URI are loaded from the db. Only when it is not in the db
+	 * either, this node's region is flushed, the other nodes are left alone.
+	 */
+	private void removeCmsUrl(String ident) {
+		Identifier id = getIdentifier(ident);
+		if(id==null || !UtilMethods.isSet(id.getHostId())) {
+		    try {
+		        id = FactoryLocator.getIdentifierFactory().loadFromDb(ident);
+		    } catch(Exception ex) {
+		        Logger.debug(this, "Unable to load identifier " + ident + ": " + ex.getMessage(), ex);
+		        id = null;
+		    }
+		}
+		if(id!=null && UtilMethods.isSet(id.getHostId())) {
+		    CacheLocator.getCmsUrlCache().remove(id.getHostId(), id.getURI());
+		} else {
+		    cache.flushGroupLocalOnly(CacheLocator.getCmsUrlCache().getPrimaryGroup());
+		}
 	}
 
     @Override
@@ -267,6 +295,7 @@ public class IdentifierCacheImpl extends IdentifierCache {
     public void removeContentletVersionInfoToCache(String identifier, long lang) {
         String key=identifier+"-lang:"+lang;
         cache.remove(getVersionInfoGroup()+key, getVersionInfoGroup());
+        removeCmsUrl(identifier);
     }
 
     @Override
@@ -1,5 +1,6 @@
 package com.dotmarketing.business;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -114,6 +115,12 @@ public abstract class IdentifierFactory {
 	 * @param versionable
 	 */
 	abstract protected Identifier find(String x) throws DotStateException, DotDataException;
+	/**
+	 * looks in cache first, then in db, with one query per batch of the ids that are not cached.  It will load the cache for future use
+	 * @param ids
+	 * @return the identifiers in the order of the ids, the ones not found are empty as in {@link #find(String)}
+	 */
+	abstract protected List<Identifier> find(Collection<String> ids) throws DotStateException, DotDataException;
 
 	abstract protected Identifier createNewIdentifier(Versionable webasset, Folder folder) throws DotDataException ;
 	abstract protected Identifier createNewIdentifier(Versionable webasset, Folder folder, String existingId) throws DotDataException ;
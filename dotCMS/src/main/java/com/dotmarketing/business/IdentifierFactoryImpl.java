@@ -29,7 +29,10 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -41,6 +44,8 @@ import java.util.Map;
 public class IdentifierFactoryImpl extends IdentifierFactory {
 
 	IdentifierCache ic = CacheLocator.getIdentifierCache();
+
+	private static final int LOAD_BATCH_SIZE = 500;
 	
 
 	@Override
@@ -468,6 +473,51 @@ public class IdentifierFactoryImpl extends IdentifierFactory {
 		return check404(id);
 	}
 
+	@SuppressWarnings("unchecked")
+	protected List<Identifier> find(Collection<String> ids) throws DotStateException, DotDataException {
+
+		Map<String, Identifier> found = new HashMap<String, Identifier>();
+		List<String> toLoad = new ArrayList<String>();
+		for (String x : new LinkedHashSet<String>(ids)) {
+			if (x == null) {
+				throw new DotStateException("identifier is null");
+			}
+			Identifier id = ic.getIdentifier(x);
+			if (id != null && UtilMethods.isSet(id.getId())) {
+				found.put(x, id);
+			} else {
+				toLoad.add(x);
+			}
+		}
+
+		for (int i = 0; i < toLoad.size(); i += LOAD_BATCH_SIZE) {
+			List<String> batch = toLoad.subList(i, Math.min(i + LOAD_BATCH_SIZE, toLoad.size()));
+			HibernateUtil dh = new HibernateUtil(Identifier.class);
+			dh.setQuery("from identifier in class com.dotmarketing.beans.Identifier where id in ("
+					+ DotConnect.createParametersPlaceholder(batch.size()) + ")");
+			for (String x : batch) {
+				dh.setParam(x);
+			}
+			for (Identifier id : (List<Identifier>) dh.list()) {
+				found.put(id.getId(), id);
+			}
+			for (String x : batch) {
+				Identifier id = found.get(x);
+				if (id == null || !InodeUtils.isSet(id.getId())) {
+					id = build404(x);
+					found.put(x, id);
+				}
+				ic.addIdentifierToCache(id);
+			}
+		}
+
+		List<Identifier> result = new ArrayList<Identifier>(ids.size());
+		for (String x : ids) {
+			result.add(check404(found.get(x)));
+		}
+		return result;
+	}
+
 	protected Identifier saveIdentifier(Identifier id) throws DotDataException {
 		Identifier loadedObject = id;
 		if ( id != null && UtilMethods.isSet(id.getId()) ) {
@@ -26,6 +26,7 @@ import com.dotmarketing.portlets.contentlet.business.HostAPI;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
 import com.dotmarketing.portlets.files.model.File;
 import com.dotmarketing.portlets.folders.model.Folder;
+import com.dotmarketing.portlets.form.business.FormAPI;
 import com.dotmarketing.portlets.htmlpageasset.model.IHTMLPage;
 import com.dotmarketing.portlets.htmlpages.factories.HTMLPageFactory;
 import com.dotmarketing.portlets.htmlpages.model.HTMLPage;
@@ -138,25 +139,6 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 	}
 
 
-	/**
-	 * This is not intended to be used to check permission because it doesn't check for cms administrator privileges
-	 * @param user
-	 * @param permissions
-	 * @param requiredPermissionType
-	 * @return If the user has the required permission for the collection of permissions passed in
-	 */
-	private boolean doRolesHavePermission(List<String> userRoleIDs, List<Permission> permissions, int requiredPermissionType){
-		
-		for (Permission permission : permissions) {
-			if(permission.matchesPermission(requiredPermissionType)
-					&& userRoleIDs.contains(permission.getRoleId())){
-				return true;
-			}
-		}
-		return false;
-	}
-
-
 	public boolean doesRoleHavePermission(Permissionable permissionable, int permissionType, Role role, boolean respectFrontendRoles) throws DotDataException {
 		return doesRoleHavePermission(permissionable, permissionType, role);
 	}
@@ -286,23 +268,24 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 	 */
 	public boolean doesUserHavePermission(Permissionable permissionable, int permissionType, User user, boolean respectFrontendRoles) throws DotDataException {
 
-		// if we have bad data
-		if ((permissionable == null) || (!InodeUtils.isSet(permissionable.getPermissionId()))) {
-			if(permissionable != null){
-				Logger.debug(this.getClass(), "Trying to get permissions on null inode of type :" + permissionable.getPermissionType()) ;
-				Logger.debug(this.getClass(), "Trying to get permissions on null inode of class :" + permissionable.getClass()) ;
-			}
-			if(permissionable == null){
-				Logger.error(this, "Permissionable object is null");
-				throw new NullPointerException("Permissionable object is null");
-			}
+		if(!isPermissionableSet(permissionable)) {
 			return false;
 		}
 
 		if(user!=null && user.getUserId().equals(APILocator.getUserAPI().getSystemUser().getUserId())){
 			return true;
 		}
-		
+
+		return doesUserHavePermission(permissionable, permissionType, user, loadRoleIdsForUser(user), respectFrontendRoles);
+	}
+
+	/**
+	 * Checks the permission against the role ids of the user, already loaded by the caller so
+	 * they can be reused when checking a whole collection of permissionables
+	 * @param userRoleIds ids of all the roles of the user, null if there is no user
+	 */
+	private boolean doesUserHavePermission(Permissionable permissionable, int permissionType, User user, Set<String> userRoleIds, boolean respectFrontendRoles) throws DotDataException {
+
 		// Folders do not have PUBLISH, use EDIT instead
 		if(PermissionableType.FOLDERS.getCanonicalName().equals(permissionable.getPermissionType()) && permissionType == PERMISSION_PUBLISH){
 			permissionType=PERMISSION_EDIT;
@@ -329,37 +312,32 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 			throw new DotRuntimeException(e1.getMessage(), e1);
 		}
 
-		if(user != null && APILocator.getRoleAPI().doesUserHaveRole(user, adminRole))
+		// if CMS Admin return true
+		if(userRoleIds != null && userRoleIds.contains(adminRole.getId()))
 			return true;
 
-		List<RelatedPermissionableGroup> permissionDependencies = permissionable.permissionDependencies(permissionType);
-
+		PermissionBitmap permissionBitmap = permissionFactory.getPermissionBitmap(permissionable);
 
-		List<Permission> perms =  getPermissions(permissionable, true);
+		if(respectFrontendRoles){
+			// if we are anonymous
+			if(permissionBitmap.roleHasPermission(anonRole.getId(), permissionType)){
+				return true;
+			//if logged in site user has permission
+			}else if(user != null && permissionBitmap.roleHasPermission(frontEndUserRole.getId(), permissionType)){
+				return true;
+			}
+		}
 
-		for(Permission p : perms){
-			if(p.matchesPermission(permissionType)){
-				if(respectFrontendRoles){
-					// if we are anonymous
-					if(p.getRoleId().equals(anonRole.getId())){
-						return true;
-						//if logged in site user has permission
-					}else if(user != null && p.getRoleId().equals(frontEndUserRole.getId())){
-						return true;
-					}
-				} 
-				// if owner and owner has required permission return true
-				try {
-					if(p.getRoleId().equals(cmsOwnerRole.getId()) && user != null &&
-							permissionable.getOwner() != null && permissionable.getOwner().equals(user.getUserId()) &&
-							checkRelatedPermissions(permissionDependencies, user)){
-						return true;
-					}
-				} catch (DotDataException e1) {
-					Logger.error(this, e1.getMessage(), e1);
-					throw new DotRuntimeException(e1.getMessage(), e1);
-				}
+		// if owner and owner has required permission return true
+		try {
+			if(user != null && permissionBitmap.roleHasPermission(cmsOwnerRole.getId(), permissionType) &&
+					permissionable.getOwner() != null && permissionable.getOwner().equals(user.getUserId()) &&
+					checkRelatedPermissions(permissionable.permissionDependencies(permissionType), user)){
+				return true;
 			}
+		} catch (DotDataException e1) {
+			Logger.error(this, e1.getMessage(), e1);
+			throw new DotRuntimeException(e1.getMessage(), e1);
 		}
 
 		// at this point, there is no anon, logged in site user and the owner do not have permissions
@@ -368,65 +346,23 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 			return false;
 		} 
 
-		List<Role> roles;
-		try {
-			roles = APILocator.getRoleAPI().loadRolesForUser(user.getUserId());
-		} catch (DotDataException e1) {
-			Logger.error(this, e1.getMessage(), e1);
-			throw new DotRuntimeException(e1.getMessage(), e1);
-		}
-		List<String> userRoleIds= new ArrayList<String>();
-		for (Role role : roles) {
-			try{
-				String roleID = role.getId();
-				userRoleIds.add(roleID);
-				if(roleID.equals(adminRole.getId())){
-					// if CMS Admin return true
+		// Form widgets are granted to anybody once a role has permissions over the form they point to
+		if(permissionable instanceof Contentlet) {
+			Object formId = ((Contentlet) permissionable).getMap().get(FormAPI.FORM_WIDGET_FORM_ID_FIELD_VELOCITY_VAR_NAME);
+			if(formId != null && UtilMethods.isSet(formId.toString())) {
+				List<Role> roles = getRoles(formId.toString(), PermissionAPI.PERMISSION_READ + PermissionAPI.PERMISSION_EDIT + PermissionAPI.PERMISSION_PUBLISH, "", 0, 10, true);
+				if(roles.size() > 0) {
 					return true;
 				}
-			}catch (Exception e) {
-				Logger.error(this, "Roleid should be a long : ",e);
 			}
 		}
-		String inode ="";
-        List<String> ids= new ArrayList<String>();
-        String s = permissionable.toString();
-        
-        if(s.contains("formId=")){
-                String[] st = s.split(",");
-                for(String str : st){
-                        str = str.trim();
-                        if(str.contains("formId=")){
-                                inode = str.substring(7);
-                        }
-                }
-        }
-        
-        if(inode != ""){
-                PermissionAPI pAPI;
-                pAPI = APILocator.getPermissionAPI();
-                List<Role> role = pAPI.getRoles(inode, PermissionAPI.PERMISSION_READ + PermissionAPI.PERMISSION_EDIT + PermissionAPI.PERMISSION_PUBLISH, "", 0, 10, true);
-                if(role.size() > 0){
-                        int i = 0;
-                        for (Role r : role) {
-                                ids.add(r.getId());
-                                i++;
-                        }
-                }
-        }
-        if(ids.size() > 0){
-                for(String sId : ids){
-                        userRoleIds.contains(sId);
-                        return true;
-                }
-        }
         
         if(!respectFrontendRoles) {
-			List<String> frontEndRoles = new ArrayList<String>(3);
+			Set<String> frontEndRoles = new HashSet<String>(3);
 	
 			try {
-				frontEndRoles.add(APILocator.getRoleAPI().loadCMSAnonymousRole().getId());
-				frontEndRoles.add(APILocator.getRoleAPI().loadLoggedinSiteRole().getId());
+				frontEndRoles.add(anonRole.getId());
+				frontEndRoles.add(frontEndUserRole.getId());
 				frontEndRoles.add(APILocator.getRoleAPI().loadRoleByKey("anonymous").getId());
 			} catch (DotDataException e1) {
 				Logger.error(this, e1.getMessage(), e1);
@@ -438,7 +374,42 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 			}
 		}
         
-		return doRolesHavePermission(userRoleIds,getPermissions(permissionable, true),permissionType);
+		return permissionBitmap.anyRoleHasPermission(userRoleIds, permissionType);
+	}
+
+	/**
+	 * Validates the permissionable before checking its permissions
+	 * @return false if the permissionable has no permission id
+	 * @throws NullPointerException if the permissionable is null
+	 */
+	private boolean isPermissionableSet(Permissionable permissionable) {
+
+		// if we have bad data
+		if ((permissionable == null) || (!InodeUtils.isSet(permissionable.getPermissionId()))) {
+			if(permissionable != null){
+				Logger.debug(this.getClass(), "Trying to get permissions on null inode of type :" + permissionable.getPermissionType()) ;
+				Logger.debug(this.getClass(), "Trying to get permissions on null inode of class :" + permissionable.getClass()) ;
+			}
+			if(permissionable == null){
+				Logger.error(this, "Permissionable object is null");
+				throw new NullPointerException("Permissionable object is null");
+			}
+			return false;
+		}
+		return true;
+	}
+
+	private Set<String> loadRoleIdsForUser(User user) {
+
+		if(user == null){
+			return null;
+		}
+		try {
+			return APILocator.getRoleAPI().loadRoleIdsForUser(user.getUserId());
+		} catch (DotDataException e1) {
+			Logger.error(this, e1.getMessage(), e1);
+			throw new DotRuntimeException(e1.getMessage(), e1);
+		}
 	}
 
 	/* (non-Javadoc)
@@ -1082,20 +1053,18 @@ public class PermissionBitAPIImpl implements PermissionAPI {
 		if ((user != null) && roleAPI.doesUserHaveRole(user, roleAPI.loadCMSAdminRole()))
 			return inputList;
 
-		List<P> permissionables = new ArrayList<P>(inputList);
-		if(permissionables.isEmpty()){
+		List<P> permissionables = new ArrayList<P>(inputList.size());
+		if(inputList.isEmpty()){
 			return permissionables;
 		}
 
-		Permissionable permissionable;
-		int i = 0;
+		// the roles of the user are loaded once for the whole collection
+		Set<String> userRoleIds = loadRoleIdsForUser(user);
 
-		while (i < permissionables.size()) {
-			permissionable = permissionables.get(i);
-			if(!doesUserHavePermission(permissionable, requiredTypePermission, user, respectFrontendRoles)){
-				permissionables.remove(i);
-			} else {
-				++i;
+		for (P permissionable : inputList) {
+			if(isPermissionableSet(permissionable)
+					&& doesUserHavePermission(permissionable, requiredTypePermission, user, userRoleIds, respectFrontendRoles)){
+				permissionables.add(permissionable);
 			}
 		}
 
@@ -1512,6 +1512,19 @@ public class PermissionBitFactoryImpl extends PermissionFactory {
 		return onlyIndividualPermissions?filterOnlyIndividualPermissions(bitPermissionsList, permissionable.getPermissionId()):bitPermissionsList;
 	}
 
+	@Override
+	PermissionBitmap getPermissionBitmap(Permissionable permissionable) throws DotDataException {
+
+		if (!InodeUtils.isSet(permissionable.getPermissionId())) return new PermissionBitmap(new ArrayList<Permission>());
+
+		PermissionBitmap permissionBitmap = permissionCache.getPermissionBitmapFromCache(permissionable.getPermissionId());
+		if (permissionBitmap == null) {
+			permissionBitmap = new PermissionBitmap(getPermissions(permissionable, true));
+			permissionCache.addToPermissionBitmapCache(permissionable.getPermissionId(), permissionBitmap);
+		}
+		return permissionBitmap;
+	}
+
 	@Override
 	protected void removePermissions(Permissionable permissionable) throws DotDataException {
 		removePermissions(permissionable, true);
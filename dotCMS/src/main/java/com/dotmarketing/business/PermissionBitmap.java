@@ -0,0 +1,105 @@
+package com.dotmarketing.business;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.dotmarketing.beans.Permission;
+
+/**
+ * The permissions of a permissionable compiled into the bitmask each role has
+ * on it, so checking a role is a map lookup and a bitwise AND instead of a
+ * walk over the whole permission list.
+ *
+ * It is kept in the {@link PermissionCache} next to the permission list it was
+ * built from and is removed along with it.
+ */
+final class PermissionBitmap implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Map<String, Integer> bitsByRole;
+
+	// Bits granted to any role, used to discard a check without any lookup
+	private final int allBits;
+
+	// Non bit permissions only match the exact permission type, see Permission.matchesPermission
+	private final List<Permission> nonBitPermissions;
+
+	PermissionBitmap(List<Permission> permissions) {
+
+		Map<String, Integer> bits = new HashMap<String, Integer>();
+		List<Permission> nonBit = new ArrayList<Permission>();
+		int all = 0;
+		for (Permission permission : permissions) {
+			if (permission.isBitPermission()) {
+				String roleId = permission.getRoleId().intern();
+				Integer roleBits = bits.get(roleId);
+				bits.put(roleId, (roleBits == null ? 0 : roleBits) | permission.getPermission());
+				all |= permission.getPermission();
+			} else {
+				nonBit.add(permission);
+			}
+		}
+
+		this.bitsByRole = bits;
+		this.allBits = all;
+		this.nonBitPermissions = nonBit.isEmpty() ? Collections.<Permission>emptyList() : nonBit;
+	}
+
+	/**
+	 * @param roleId
+	 * @param permissionType
+	 * @return If the given role has the required permission
+	 */
+	boolean roleHasPermission(String roleId, int permissionType) {
+
+		Integer roleBits = bitsByRole.get(roleId);
+		if (roleBits != null && (roleBits & permissionType) > 0) {
+			return true;
+		}
+		for (Permission permission : nonBitPermissions) {
+			if (permission.matchesPermission(permissionType) && permission.getRoleId().equals(roleId)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param roleIds
+	 * @param permissionType
+	 * @return If any of the given roles has the required permission
+	 */
+	boolean anyRoleHasPermission(Set<String> roleIds, int permissionType) {
+
+		if ((allBits & permissionType) > 0) {
+			// Walk the smaller side, users usually have more roles than an asset has permissions
+			if (bitsByRole.size() <= roleIds.size()) {
+				for (Map.Entry<String, Integer> roleBits : bitsByRole.entrySet()) {
+					if ((roleBits.getValue() & permissionType) > 0 && roleIds.contains(roleBits.getKey())) {
+						return true;
+					}
+				}
+			} else {
+				for (String roleId : roleIds) {
+					Integer roleBits = bitsByRole.get(roleId);
+					if (roleBits != null && (roleBits & permissionType) > 0) {
+						return true;
+					}
+				}
+			}
+		}
+		for (Permission permission : nonBitPermissions) {
+			if (permission.matchesPermission(permissionType) && roleIds.contains(permission.getRoleId())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
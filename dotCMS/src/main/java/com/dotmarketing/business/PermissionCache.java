@@ -12,6 +12,11 @@ public abstract class PermissionCache implements Cachable{
 
 	abstract protected List<Permission> getPermissionsFromCache(String key);
 
+	abstract protected PermissionBitmap addToPermissionBitmapCache(String key,
+			PermissionBitmap permissionBitmap);
+
+	abstract protected PermissionBitmap getPermissionBitmapFromCache(String key);
+
 	abstract public void clearCache();
 
 	abstract protected void remove(String key);
@@ -23,9 +23,10 @@ public class PermissionCacheImpl extends PermissionCache {
 	
 	private String primaryGroup = "PermissionCache";
 	private String secondaryGroup = "ParentPermissionableCache";
+	private String bitmapGroup = "PermissionBitmapCache";
 
 	// region's name for the cache
-    private String[] groupNames = {primaryGroup, secondaryGroup};
+    private String[] groupNames = {primaryGroup, secondaryGroup, bitmapGroup};
 
 	protected PermissionCacheImpl() {
         cache = CacheLocator.getCacheAdministrator();
@@ -57,6 +58,30 @@ public class PermissionCacheImpl extends PermissionCache {
         return perms;
     }
 
+    /* (non-Javadoc)
+	 * @see com.dotmarketing.business.PermissionCache#addToPermissionBitmapCache(java.lang.String, com.dotmarketing.business.PermissionBitmap)
+	 */
+	protected PermissionBitmap addToPermissionBitmapCache(String key, PermissionBitmap permissionBitmap) {
+        key = bitmapGroup + key;
+        cache.put(key, permissionBitmap, bitmapGroup);
+
+        return permissionBitmap;
+    }
+
+    /* (non-Javadoc)
+	 * @see com.dotmarketing.business.PermissionCache#getPermissionBitmapFromCache(java.lang.String)
+	 */
+	protected PermissionBitmap getPermissionBitmapFromCache(String key) {
+    	key = bitmapGroup + key;
+    	PermissionBitmap permissionBitmap = null;
+    	try{
+    		permissionBitmap = (PermissionBitmap) cache.get(key, bitmapGroup);
+    	}catch (DotCacheException e) {
+			Logger.debug(this,"Cache Entry not found", e);
+		}
+        return permissionBitmap;
+    }
+
     /* (non-Javadoc)
 	 * @see com.dotmarketing.business.PermissionCache#clearCache()
 	 */
@@ -64,12 +89,18 @@ public class PermissionCacheImpl extends PermissionCache {
         // clear the cache
         cache.flushGroup(primaryGroup);
         cache.flushGroup(secondaryGroup);
+        cache.flushGroup(bitmapGroup);
     }
 
     /* (non-Javadoc)
 	 * @see com.dotmarketing.business.PermissionCache#remove(java.lang.String)
 	 */
     protected void remove(String key){
+    	try{
+	        cache.remove(bitmapGroup + key,bitmapGroup);
+    	}catch (Exception e) {
+			Logger.debug(this,e.getMessage(), e);
+		} 
     	key = primaryGroup + key;
     	try{
 	        cache.remove(key,primaryGroup);
@@ -175,6 +175,16 @@ public abstract class PermissionFactory {
 	 */
 	abstract List<Permission> getPermissions(Permissionable permissionable, boolean bitPermissions, boolean onlyIndividualPermissions, boolean forceLoadFromDB) throws DotDataException;
 
+	/**
+	 * Returns the permissions of the permissionable, the same ones returned by getPermissions(permissionable, true),
+	 * compiled into the bitmask each role has on it. The result is cached until the permissions of the permissionable change
+	 * 
+	 * @param permissionable
+	 * @return
+	 * @throws DotDataException
+	 */
+	abstract PermissionBitmap getPermissionBitmap(Permissionable permissionable) throws DotDataException;
+
 	/**
 	 * This method saves or update the permission object in db
 	 * @param p permission
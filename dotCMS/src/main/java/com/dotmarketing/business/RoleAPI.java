@@ -1,6 +1,7 @@
 package com.dotmarketing.business;
 
 import java.util.List;
+import java.util.Set;
 
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotRuntimeException;
@@ -51,6 +52,16 @@ public interface RoleAPI {
 	 * @throws DotDataException
 	 */
 	public List<Role> loadRolesForUser(String userId, boolean includeImplicitRoles) throws DotDataException;
+
+	/**
+	 * Retrieves the ids of all the roles assigned to the user including the roles implicitly inherited.
+	 * The returned set is cached until the roles of the user change and must not be modified
+	 * 
+	 * @param userId
+	 * @return
+	 * @throws DotDataException
+	 */
+	public Set<String> loadRoleIdsForUser(String userId) throws DotDataException;
 	
 	/**
 	 * 
@@ -2,6 +2,7 @@ package com.dotmarketing.business;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
@@ -56,6 +57,10 @@ public class RoleAPIImpl implements RoleAPI {
 			throws DotDataException {
 		return rf.loadRolesForUser(userId,includeImplicitRoles);
 	}
+
+	public Set<String> loadRoleIdsForUser(String userId) throws DotDataException {
+		return rf.loadRoleIdsForUser(userId);
+	}
 	
     /* (non-Javadoc)
 	 * @see com.dotmarketing.business.RoleAPI#getRolesByName(java.lang.String, int, int)
@@ -2,6 +2,7 @@ package com.dotmarketing.business;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Set;
 
 public abstract class RoleCache implements Cachable{
 
@@ -25,6 +26,17 @@ public abstract class RoleCache implements Cachable{
 
 	abstract protected List<UserRoleCacheHelper> getRoleIdsForUser(String userId);
 
+	/**
+	 * Will add the ids of all the roles of the user, including the inherited ones.
+	 * They are removed along with the role list of the user
+	 * @param roleIds
+	 * @param userId
+	 * @return
+	 */
+	abstract protected Set<String> addRoleIdSetForUser(Set<String> roleIds, String userId);
+
+	abstract protected Set<String> getRoleIdSetForUser(String userId);
+
 	abstract protected List<String> getLayoutsForRole(String roleId);
 
 	abstract protected List<Role> getRootRoles();
@@ -2,6 +2,7 @@ package com.dotmarketing.business;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
@@ -16,6 +17,8 @@ public class RoleCacheImpl extends RoleCache {
 
 	private String userGroup = "dotCMSUserRoleCache";
 
+	private String userRoleIdsGroup = "dotCMSUserRoleIdsCache";
+
 	private String layoutGroup = "dotCMSLayoutCache";
 	
 	private String rootRolesGroup = "dotCMSRootRolesCache";
@@ -23,7 +26,7 @@ public class RoleCacheImpl extends RoleCache {
 	private final String rootRoleKey = "ROOT";
 
 	// region's name for the cache
-	private String[] groupNames = {primaryGroup,userGroup,layoutGroup, rootRolesGroup};
+	private String[] groupNames = {primaryGroup,userGroup,userRoleIdsGroup,layoutGroup, rootRolesGroup};
 
 	public RoleCacheImpl() {
 		cache = CacheLocator.getCacheAdministrator();
@@ -93,6 +96,7 @@ public class RoleCacheImpl extends RoleCache {
 		// clear the cache
 		cache.flushGroup(primaryGroup);
 		cache.flushGroup(userGroup);
+		cache.flushGroup(userRoleIdsGroup);
 		cache.flushGroup(keyGroup);
 		cache.flushGroup(layoutGroup);
 		cache.flushGroup(rootRolesGroup);
@@ -105,6 +109,7 @@ public class RoleCacheImpl extends RoleCache {
 		try{
 			cache.remove(primaryGroup + key,primaryGroup);
 			cache.remove(userGroup + key,userGroup);
+			cache.remove(userRoleIdsGroup + key,userRoleIdsGroup);
 			cache.remove(keyGroup + key,keyGroup);
 			cache.flushGroup(rootRolesGroup);
 		}catch (Exception e) {
@@ -132,6 +137,7 @@ public class RoleCacheImpl extends RoleCache {
 	@Override
 	protected void clearUserRoleCache() {
 		cache.flushGroup(userGroup);
+		cache.flushGroup(userRoleIdsGroup);
 	}
 
 	@Override
@@ -146,6 +152,25 @@ public class RoleCacheImpl extends RoleCache {
 		return l;
 	}
 
+	@Override
+	protected Set<String> getRoleIdSetForUser(String userId) {
+		String key = userRoleIdsGroup + userId;
+		Set<String> s = null;
+		try {
+			s = (Set<String>)cache.get(key, userRoleIdsGroup);
+		} catch (DotCacheException e) {
+			Logger.debug(this, "Cache not find roleIds for user in cache", e);
+		}
+		return s;
+	}
+
+	@Override
+	protected Set<String> addRoleIdSetForUser(Set<String> roleIds, String userId) {
+		String key = userRoleIdsGroup + userId;
+		cache.put(key, roleIds, userRoleIdsGroup);
+		return roleIds;
+	}
+
 	protected List<UserRoleCacheHelper> addRoleListForUser(List<UserRoleCacheHelper> roles, String userId){
 		String key = userGroup + userId;
 		cache.put(key, roles, userGroup);		
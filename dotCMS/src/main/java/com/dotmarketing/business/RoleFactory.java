@@ -4,6 +4,7 @@
 package com.dotmarketing.business;
 
 import java.util.List;
+import java.util.Set;
 
 import com.dotmarketing.exception.DotDataException;
 import com.liferay.portal.model.User;
@@ -31,6 +32,14 @@ public abstract class RoleFactory {
 	 * @throws DotDataException
 	 */
 	protected abstract List<Role> loadRolesForUser(String userId, boolean includeImplicitRoles) throws DotDataException;
+
+	/**
+	 * Retrieves the ids of all the roles assigned to the user including the implicitly inherited ones
+	 * @param userId
+	 * @return
+	 * @throws DotDataException
+	 */
+	protected abstract Set<String> loadRoleIdsForUser(String userId) throws DotDataException;
 	
 	protected abstract Role getRoleById(String roleId) throws DotDataException;
 	
@@ -6,6 +6,7 @@ package com.dotmarketing.business;
 import java.lang.reflect.InvocationTargetException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -152,6 +153,21 @@ public class RoleFactoryImpl extends RoleFactory {
 		}
 	}
 
+	@Override
+	protected Set<String> loadRoleIdsForUser(String userId) throws DotDataException {
+		Set<String> roleIds = rc.getRoleIdSetForUser(userId);
+		if(roleIds == null){
+			List<Role> roles = loadRolesForUser(userId, true);
+			Set<String> ids = new HashSet<String>(roles.size() * 2);
+			for (Role role : roles) {
+				// interned so the ids are shared between the sets of every user
+				ids.add(role.getId().intern());
+			}
+			roleIds = rc.addRoleIdSetForUser(Collections.unmodifiableSet(ids), userId);
+		}
+		return roleIds;
+	}
+
 
 	@Override
 	protected List<Role> getRolesByName(String filter, int start, int limit) throws DotDataException {
@@ -559,25 +575,8 @@ public class RoleFactoryImpl extends RoleFactory {
 		if("system".equals(user.getUserId())){
 			return true;
 		}
-		List<UserRoleCacheHelper> helpers = rc.getRoleIdsForUser(user.getUserId());
-		List<String> roleIds = null;
-		if(helpers != null){
-			for (UserRoleCacheHelper helper : helpers) {
-				if(roleIds == null){
-					roleIds = new ArrayList<String>();
-				}
-				roleIds.add(helper.getRoleId());
-			}
-		}
-		if(roleIds == null){
-			List<Role> roles = new ArrayList<Role>();
-		    roles=loadRolesForUser(user.getUserId(),true);
-		    roleIds= new ArrayList<String>();
-		    for (Role r : roles) {
-				roleIds.add(r.getId());
-			}
-		}
-		if(roleIds != null && roleIds.contains(role.getId())){
+		Set<String> roleIds = loadRoleIdsForUser(user.getUserId());
+		if(roleIds.contains(role.getId())){
 			return true;
 		}else{
 			Logger.debug(this,"User ("+user.getUserId()+") does not have the role ("+role.getId()+")");
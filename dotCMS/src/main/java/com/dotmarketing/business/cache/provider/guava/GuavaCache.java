@@ -12,6 +12,7 @@ import com.dotmarketing.util.Logger;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Jonathan Gamba
@@ -259,6 +260,11 @@ public class GuavaCache extends CacheProvider {
                                 .maximumSize(size)
                                 .concurrencyLevel(Config.getIntProperty("cache.concurrencylevel", 32));
 
+                        // the entries of a region with cache.<region>.seconds expire that long after they are put
+                        int seconds = Config.getIntProperty("cache." + cacheName + ".seconds", -1);
+                        if ( seconds > 0 ) {
+                            cb.expireAfterWrite(seconds, TimeUnit.SECONDS);
+                        }
 
                         cache = cb.build();
                         groups.put(cacheName, cache);
@@ -0,0 +1,617 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
+import com.dotcms.repackage.com.google.common.cache.CacheStats;
+import com.dotmarketing.business.cache.provider.CacheProvider;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.ConfigUtils;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Disk backed cache provider that keeps its entries in append only, memory
+ * mapped segment files and finds them through an off heap hash index, so a
+ * lookup is a hash probe and a copy out of the page cache instead of a
+ * database query.
+ * <p>
+ * Flushing a group just bumps the group generation, the entries written with
+ * an older generation are ignored and dropped the next time the index is
+ * rehashed. When there are more segments than <code>cache.mapped.max.segments</code>
+ * the oldest one is deleted along with the entries it holds.
+ * <p>
+ * Every change is written to the segments, so when dotCMS is restarted within
+ * <code>cache.mapped.recover.if.restarted.in.milliseconds</code> the index is
+ * rebuilt by reading them again, otherwise they are deleted. Recovery is off
+ * by default: the invalidations sent by the other nodes of a cluster while
+ * this one was down are lost, so in a cluster the recovered entries can be
+ * stale and it has to stay off.
+ * <p>
+ * This provider is not part of the default chains, add it to the
+ * <code>cache.*.chain</code> of the regions that should use it.
+ */
+public class MappedCache extends CacheProvider {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int segmentSize;
+
+    private final int maxSegments;
+
+    private final int initialSlots;
+
+    // try to recover the segments if within this time, off by default
+    private final long recoverOnRestart;
+
+    private final File root;
+
+    private final transient ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final transient MappedCacheSerializer serializer = new MappedCacheSerializer();
+    private final transient Map<String, GroupStats> stats = new ConcurrentHashMap<>();
+
+    // Everything below is guarded by the lock
+    private final transient List<MappedSegment> segments = new ArrayList<>();
+    private final transient Map<String, Integer> groupIds = new HashMap<>();
+    private final transient List<String> groupNames = new ArrayList<>();
+    private transient int[] generations = new int[16];
+    private transient int[] counts = new int[16];
+    private transient MappedIndex index;
+
+    private volatile boolean isInitialized = false;
+
+    public MappedCache(final String root) {
+        this(root,
+                Config.getIntProperty("cache.mapped.segment.size.mb", 64) * 1024 * 1024,
+                Config.getIntProperty("cache.mapped.max.segments", 16),
+                Config.getIntProperty("cache.mapped.index.initial.slots", 65536),
+                Config.getIntProperty("cache.mapped.recover.if.restarted.in.milliseconds", 0));
+    }
+
+    @VisibleForTesting
+    MappedCache(final String root, final int segmentSize, final int maxSegments, final int initialSlots,
+            final long recoverOnRestart) {
+        this.root = new File(root);
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(2, maxSegments);
+        this.initialSlots = initialSlots;
+        this.recoverOnRestart = recoverOnRestart;
+    }
+
+    public MappedCache() {
+        this(ConfigUtils.getDynamicContentPath() + File.separator + "mappedcache");
+    }
+
+    @Override
+    public String getName() {
+        return "Mapped Cache";
+    }
+
+    @Override
+    public String getKey() {
+        return "MappedCache";
+    }
+
+    @Override
+    public void init() throws Exception {
+
+        lock.writeLock().lock();
+        try {
+            root.mkdirs();
+            index = newIndex();
+
+            final List<File> files = segmentFiles();
+            final boolean recover = !files.isEmpty()
+                    && files.get(files.size() - 1).lastModified() + recoverOnRestart > System.currentTimeMillis();
+
+            if (recover) {
+                final long start = System.nanoTime();
+                for (final File file : files) {
+                    final MappedSegment segment = MappedSegment.open(file);
+                    segments.add(segment);
+                    segment.recover(this::replay);
+                }
+                int entries = 0;
+                for (int groupId = 0; groupId < groupNames.size(); groupId++) {
+                    entries += counts[groupId];
+                }
+                Logger.info(this.getClass(), "Recovered " + entries + " entries from " + segments.size() + " segments in "
+                        + TimeUnit.MILLISECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS) + "ms");
+            } else {
+                for (final File file : files) {
+                    if (!file.delete()) {
+                        Logger.warn(this.getClass(), "Unable to delete " + file);
+                    }
+                }
+            }
+
+            if (segments.isEmpty()) {
+                segments.add(MappedSegment.create(root, 1, segmentSize));
+            }
+            isInitialized = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isInitialized() throws Exception {
+        return isInitialized;
+    }
+
+    @Override
+    public void put(final String group, final String key, final Object content) {
+
+        if (!isInitialized || group == null || key == null || ONLY_MEMORY_GROUP.equalsIgnoreCase(group)) {
+            return;
+        }
+
+        final String cacheGroup = group.toLowerCase();
+        final long start = System.nanoTime();
+        final byte[] record;
+        try {
+            record = MappedSegment.record(MappedSegment.PUT, bytes(cacheGroup), bytes(key), serializer.serialize(content));
+        } catch (IOException e) {
+            Logger.debug(this.getClass(), "Unable to cache " + cacheGroup + ":" + key + " " + e.getMessage());
+            return;
+        }
+
+        if (record.length + 4 > segmentSize) {
+            Logger.debug(this.getClass(), "Not caching " + cacheGroup + ":" + key + ", " + record.length + " bytes do not fit in a segment");
+            return;
+        }
+
+        final long hash = MappedIndex.hash(cacheGroup, key);
+        lock.writeLock().lock();
+        try {
+            if (segments.isEmpty()) {
+                return;
+            }
+            final int groupId = groupId(cacheGroup);
+            MappedSegment.setGeneration(record, generations[groupId]);
+            final long location = append(record);
+
+            final int slot = index.find(hash);
+            if (slot >= 0 && isLive(slot)) {
+                counts[index.groupId(slot)]--;
+            }
+            counts[groupId]++;
+            index.put(hash, location, groupId, generations[groupId]);
+        } catch (IOException e) {
+            Logger.warn(this.getClass(), "Unable to cache " + cacheGroup + ":" + key + " " + e.getMessage());
+            return;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        stats(cacheGroup).write(record.length, System.nanoTime() - start);
+    }
+
+    @Override
+    public Object get(final String group, final String key) {
+
+        if (!isInitialized || group == null || key == null || ONLY_MEMORY_GROUP.equalsIgnoreCase(group)) {
+            return null;
+        }
+
+        final String cacheGroup = group.toLowerCase();
+        final long start = System.nanoTime();
+        final long hash = MappedIndex.hash(cacheGroup, key);
+        byte[] value = null;
+
+        lock.readLock().lock();
+        try {
+            final int slot = index.find(hash);
+            if (slot >= 0 && isLive(slot)) {
+                final long location = index.location(slot);
+                final MappedSegment segment = segment(MappedIndex.segmentId(location));
+                final int offset = MappedIndex.offset(location);
+                if (segment != null && segment.matches(offset, bytes(cacheGroup), bytes(key))) {
+                    value = segment.value(offset);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Object foundObject = null;
+        if (value != null) {
+            try {
+                foundObject = serializer.deserialize(value);
+            } catch (IOException e) {
+                Logger.warn(this.getClass(), "Unable to read " + cacheGroup + ":" + key + " " + e.getMessage());
+                remove(group, key);
+            }
+        }
+
+        stats(cacheGroup).read(foundObject, System.nanoTime() - start);
+        return foundObject;
+    }
+
+    @Override
+    public void remove(final String group, final String key) {
+
+        if (!isInitialized || group == null || key == null) {
+            return;
+        }
+
+        if (!UtilMethods.isSet(key)) {
+            Logger.warn(this, "Empty key passed in, clearing group " + group + " by mistake");
+        }
+
+        final String cacheGroup = group.toLowerCase();
+        final long hash = MappedIndex.hash(cacheGroup, key);
+        lock.writeLock().lock();
+        try {
+            final int slot = index.find(hash);
+            if (slot < 0) {
+                return;
+            }
+            if (isLive(slot)) {
+                counts[index.groupId(slot)]--;
+            }
+            index.remove(slot);
+
+            // written so the entry does not come back when the segments are recovered
+            append(MappedSegment.record(MappedSegment.REMOVE, bytes(cacheGroup), bytes(key), null));
+        } catch (IOException e) {
+            Logger.warn(this.getClass(), "Unable to remove " + cacheGroup + ":" + key + " " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(final String group) {
+
+        if (!isInitialized || group == null) {
+            return;
+        }
+
+        final String cacheGroup = group.toLowerCase();
+        lock.writeLock().lock();
+        try {
+            final Integer groupId = groupIds.get(cacheGroup);
+            if (groupId == null) {
+                return;
+            }
+            generations[groupId]++;
+            counts[groupId] = 0;
+
+            final byte[] record = MappedSegment.record(MappedSegment.FLUSH_GROUP, bytes(cacheGroup), new byte[0], null);
+            MappedSegment.setGeneration(record, generations[groupId]);
+            append(record);
+        } catch (IOException e) {
+            Logger.warn(this.getClass(), "Unable to flush " + cacheGroup + " " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        stats.remove(cacheGroup);
+    }
+
+    @Override
+    public void removeAll() {
+
+        Logger.info(this, "Start Full Cache Flush in mapped cache");
+        final long start = System.nanoTime();
+
+        lock.writeLock().lock();
+        try {
+            for (final MappedSegment segment : segments) {
+                segment.delete();
+            }
+            segments.clear();
+            groupIds.clear();
+            groupNames.clear();
+            generations = new int[16];
+            counts = new int[16];
+            index = newIndex();
+            if (isInitialized) {
+                segments.add(MappedSegment.create(root, 1, segmentSize));
+            }
+        } catch (IOException e) {
+            Logger.error(this.getClass(), "Unable to create a new segment, disabling the mapped cache: " + e.getMessage(), e);
+            isInitialized = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        stats.clear();
+        Logger.info(this, "End Full Cache Flush in mapped cache : "
+                + TimeUnit.MILLISECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS) + "ms");
+    }
+
+    @Override
+    public Set<String> getKeys(final String group) {
+
+        final Set<String> keys = new HashSet<>();
+        if (!isInitialized || group == null) {
+            return keys;
+        }
+
+        lock.readLock().lock();
+        try {
+            final Integer groupId = groupIds.get(group.toLowerCase());
+            if (groupId == null || counts[groupId] == 0) {
+                return keys;
+            }
+            for (int slot = 0; slot < index.capacity(); slot++) {
+                if (index.isUsed(slot) && index.groupId(slot) == groupId && isLive(slot)) {
+                    final long location = index.location(slot);
+                    final MappedSegment segment = segment(MappedIndex.segmentId(location));
+                    if (segment != null) {
+                        keys.add(new String(segment.key(MappedIndex.offset(location)), StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return keys;
+    }
+
+    @Override
+    public Set<String> getGroups() {
+
+        final Set<String> groups = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            for (int groupId = 0; groupId < groupNames.size(); groupId++) {
+                if (counts[groupId] > 0) {
+                    groups.add(groupNames.get(groupId));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return groups;
+    }
+
+    @Override
+    public List<Map<String, Object>> getStats() {
+
+        final List<Map<String, Object>> list = new ArrayList<>();
+        for (final String group : getGroups()) {
+
+            final GroupStats groupStats = stats(group);
+            final long hits = groupStats.hits.get();
+            final CacheStats googleStats = new CacheStats(hits, groupStats.misses.get(), hits, 0, groupStats.totalTimeReading.get(), 0);
+
+            final Map<String, Object> stats = new HashMap<>();
+            stats.put("CacheStats", googleStats);
+            stats.put("name", getName());
+            stats.put("key", getKey());
+            stats.put("region", group);
+            stats.put("toDisk", true);
+            stats.put("entrySize", groupStats.totalSize.get());
+            stats.put("isDefault", false);
+            stats.put("memory", -1);
+
+            // the size is limited by the number of segments, not by region
+            stats.put("configuredSize", -1);
+            stats.put("disk", groupCount(group));
+
+            list.add(stats);
+        }
+        return list;
+    }
+
+    @Override
+    public void shutdown() {
+
+        isInitialized = false;
+        lock.writeLock().lock();
+        try {
+            for (final MappedSegment segment : segments) {
+                segment.force();
+                segment.close();
+            }
+            segments.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends the record to the last segment, rolling to a new segment when it is full
+     *
+     * @return the location of the record
+     */
+    private long append(final byte[] record) throws IOException {
+
+        MappedSegment segment = segments.get(segments.size() - 1);
+        int offset = segment.append(record);
+        if (offset < 0) {
+            segment.force();
+            segment = MappedSegment.create(root, segment.getId() + 1, segmentSize);
+            segments.add(segment);
+            while (segments.size() > maxSegments) {
+                evictOldestSegment();
+            }
+            offset = segment.append(record);
+        }
+        return MappedIndex.location(segment.getId(), offset);
+    }
+
+    private void evictOldestSegment() {
+
+        final MappedSegment oldest = segments.remove(0);
+        for (int slot = 0; slot < index.capacity(); slot++) {
+            if (index.isUsed(slot) && MappedIndex.segmentId(index.location(slot)) == oldest.getId()) {
+                if (isLive(slot)) {
+                    counts[index.groupId(slot)]--;
+                }
+                index.remove(slot);
+            }
+        }
+        oldest.delete();
+        Logger.debug(this.getClass(), "Evicted mapped cache segment " + oldest.getId());
+    }
+
+    /**
+     * Applies a record read from disk to the index
+     */
+    private void replay(final MappedSegment segment, final int offset, final byte[] record) {
+
+        final ByteBuffer bytes = ByteBuffer.wrap(record);
+        final byte type = bytes.get(MappedSegment.TYPE);
+        final int generation = bytes.getInt(MappedSegment.GENERATION);
+
+        bytes.position(MappedSegment.HEADER_SIZE);
+        final byte[] groupBytes = new byte[bytes.getInt()];
+        bytes.get(groupBytes);
+        final byte[] keyBytes = new byte[bytes.getInt()];
+        bytes.get(keyBytes);
+
+        final String group = new String(groupBytes, StandardCharsets.UTF_8);
+        final String key = new String(keyBytes, StandardCharsets.UTF_8);
+        final int groupId = groupId(group);
+
+        if (type == MappedSegment.FLUSH_GROUP) {
+            if (generation > generations[groupId]) {
+                generations[groupId] = generation;
+                counts[groupId] = 0;
+            }
+            return;
+        }
+
+        final long hash = MappedIndex.hash(group, key);
+        final int slot = index.find(hash);
+        if (slot >= 0) {
+            if (isLive(slot)) {
+                counts[index.groupId(slot)]--;
+            }
+            index.remove(slot);
+        }
+
+        if (type == MappedSegment.PUT) {
+            if (generation > generations[groupId]) {
+                // the flush record was in a segment that is gone
+                generations[groupId] = generation;
+                counts[groupId] = 0;
+            }
+            if (generation == generations[groupId]) {
+                index.put(hash, MappedIndex.location(segment.getId(), offset), groupId, generation);
+                counts[groupId]++;
+            }
+        }
+    }
+
+    private boolean isLive(final int slot) {
+        return index.generation(slot) == generations[index.groupId(slot)];
+    }
+
+    private MappedSegment segment(final int segmentId) {
+
+        if (segments.isEmpty()) {
+            return null;
+        }
+        final int position = segmentId - segments.get(0).getId();
+        return position >= 0 && position < segments.size() ? segments.get(position) : null;
+    }
+
+    private int groupId(final String group) {
+
+        Integer groupId = groupIds.get(group);
+        if (groupId == null) {
+            groupId = groupNames.size();
+            groupNames.add(group);
+            groupIds.put(group, groupId);
+            if (groupId == generations.length) {
+                generations = Arrays.copyOf(generations, groupId * 2);
+                counts = Arrays.copyOf(counts, groupId * 2);
+            }
+        }
+        return groupId;
+    }
+
+    private int groupCount(final String group) {
+
+        lock.readLock().lock();
+        try {
+            final Integer groupId = groupIds.get(group);
+            return groupId == null ? 0 : counts[groupId];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private MappedIndex newIndex() {
+
+        return new MappedIndex(initialSlots, (groupId, generation) -> generation == generations[groupId]);
+    }
+
+    private List<File> segmentFiles() {
+
+        final File[] files = root.listFiles();
+        if (files == null) {
+            return Collections.emptyList();
+        }
+
+        final List<File> segmentFiles = new ArrayList<>();
+        for (final File file : files) {
+            if (MappedSegment.idOf(file) > 0) {
+                segmentFiles.add(file);
+            }
+        }
+        Collections.sort(segmentFiles, (a, b) -> Integer.compare(MappedSegment.idOf(a), MappedSegment.idOf(b)));
+        return segmentFiles;
+    }
+
+    private GroupStats stats(final String group) {
+
+        GroupStats groupStats = stats.get(group);
+        if (groupStats == null) {
+            stats.putIfAbsent(group, new GroupStats());
+            groupStats = stats.get(group);
+        }
+        return groupStats;
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class GroupStats {
+
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong totalTimeReading = new AtomicLong();
+        final AtomicLong totalTimeWriting = new AtomicLong();
+        final AtomicLong totalSize = new AtomicLong();
+        final AtomicLong writes = new AtomicLong();
+
+        void read(final Object found, final long nanos) {
+
+            if (found == null) {
+                misses.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+            totalTimeReading.addAndGet(nanos);
+        }
+
+        void write(final long size, final long nanos) {
+
+            writes.incrementAndGet();
+            totalSize.addAndGet(size);
+            totalTimeWriting.addAndGet(nanos);
+        }
+    }
+
+}
@@ -0,0 +1,389 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import com.dotcms.content.elasticsearch.business.FatContentletConverter;
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.beans.Permission;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Compact binary serializer used by the {@link MappedCache}.
+ * <p>
+ * Strings, boxed primitives, dates, byte arrays and the plain JDK collections
+ * are written with a one byte tag, the most cached dotCMS beans are written
+ * field by field by a registered {@link Codec}. Anything else falls back to
+ * Java serialization.
+ */
+public class MappedCacheSerializer {
+
+    /**
+     * Writes and reads the fields of a registered class
+     */
+    public interface Codec<T> {
+
+        void write(MappedCacheSerializer serializer, DataOutputStream out, T object) throws IOException;
+
+        T read(MappedCacheSerializer serializer, DataInputStream in) throws IOException;
+    }
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte INTEGER = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte DATE = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte BYTES = 8;
+    private static final byte ARRAY_LIST = 9;
+    private static final byte HASH_MAP = 10;
+    private static final byte HASH_SET = 11;
+    private static final byte REGISTERED = 20;
+    private static final byte JAVA = 127;
+
+    private final Map<Class<?>, Integer> registeredIds = new ConcurrentHashMap<>();
+    private final Map<Integer, Codec<?>> registeredCodecs = new ConcurrentHashMap<>();
+
+    public MappedCacheSerializer() {
+        this(structureInode -> FatContentletConverter.getInstance().newContentlet(structureInode));
+    }
+
+    /**
+     * @param contentlets creates the empty contentlet of a structure the
+     *                    cached contentlets are read into
+     */
+    @VisibleForTesting
+    MappedCacheSerializer(final Function<String, Contentlet> contentlets) {
+        register(1, Contentlet.class, new ContentletCodec(contentlets));
+        register(2, Identifier.class, new IdentifierCodec());
+        register(3, Permission.class, new PermissionCodec());
+    }
+
+    /**
+     * Registers the codec of a class, only instances of that exact class are
+     * written with it. The id is stored with every entry so it must never change.
+     *
+     * @param id    unique id of the codec
+     * @param clazz class written by the codec
+     * @param codec {@link Codec}
+     */
+    public <T> void register(final int id, final Class<T> clazz, final Codec<T> codec) {
+        registeredIds.put(clazz, id);
+        registeredCodecs.put(id, codec);
+    }
+
+    public byte[] serialize(final Object object) throws IOException {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        writeObject(out, object);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public Object deserialize(final byte[] data) throws IOException {
+        return readObject(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void writeObject(final DataOutputStream out, final Object object) throws IOException {
+
+        if (object == null) {
+            out.writeByte(NULL);
+            return;
+        }
+
+        final Class<?> clazz = object.getClass();
+        if (clazz == String.class) {
+            out.writeByte(STRING);
+            writeString(out, (String) object);
+        } else if (clazz == Long.class) {
+            out.writeByte(LONG);
+            out.writeLong((Long) object);
+        } else if (clazz == Integer.class) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) object);
+        } else if (clazz == Boolean.class) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) object);
+        } else if (clazz == Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) object).getTime());
+        } else if (clazz == Double.class) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) object);
+        } else if (clazz == Float.class) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) object);
+        } else if (clazz == byte[].class) {
+            out.writeByte(BYTES);
+            out.writeInt(((byte[]) object).length);
+            out.write((byte[]) object);
+        } else if (clazz == ArrayList.class) {
+            out.writeByte(ARRAY_LIST);
+            writeCollection(out, (List<Object>) object);
+        } else if (clazz == HashSet.class) {
+            out.writeByte(HASH_SET);
+            writeCollection(out, (Set<Object>) object);
+        } else if (clazz == HashMap.class) {
+            out.writeByte(HASH_MAP);
+            writeMap(out, (Map<Object, Object>) object);
+        } else if (registeredIds.containsKey(clazz)) {
+            final int id = registeredIds.get(clazz);
+            out.writeByte(REGISTERED);
+            out.writeInt(id);
+            ((Codec<Object>) registeredCodecs.get(id)).write(this, out, object);
+        } else if (object instanceof Serializable) {
+            out.writeByte(JAVA);
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                output.writeObject(object);
+            }
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        } else {
+            throw new NotSerializableException(clazz.getName());
+        }
+    }
+
+    public Object readObject(final DataInputStream in) throws IOException {
+
+        final byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case LONG:
+                return in.readLong();
+            case INTEGER:
+                return in.readInt();
+            case BOOLEAN:
+                return in.readBoolean();
+            case DATE:
+                return new Date(in.readLong());
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case BYTES:
+                final byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                return data;
+            case ARRAY_LIST:
+                return readCollection(in, new ArrayList<Object>());
+            case HASH_SET:
+                return readCollection(in, new HashSet<Object>());
+            case HASH_MAP:
+                return readMap(in, new HashMap<Object, Object>());
+            case REGISTERED:
+                final int id = in.readInt();
+                final Codec<?> codec = registeredCodecs.get(id);
+                if (codec == null) {
+                    throw new IOException("No codec registered with id " + id);
+                }
+                return codec.read(this, in);
+            case JAVA:
+                final byte[] serialized = new byte[in.readInt()];
+                in.readFully(serialized);
+                try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+                    return input.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            default:
+                throw new IOException("Unknown tag " + tag);
+        }
+    }
+
+    public void writeString(final DataOutputStream out, final String value) throws IOException {
+
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public String readString(final DataInputStream in) throws IOException {
+
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeCollection(final DataOutputStream out, final java.util.Collection<Object> collection) throws IOException {
+
+        out.writeInt(collection.size());
+        for (final Object element : collection) {
+            writeObject(out, element);
+        }
+    }
+
+    private Object readCollection(final DataInputStream in, final java.util.Collection<Object> collection) throws IOException {
+
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            collection.add(readObject(in));
+        }
+        return collection;
+    }
+
+    private void writeMap(final DataOutputStream out, final Map<?, ?> map) throws IOException {
+
+        out.writeInt(map.size());
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            writeObject(out, entry.getKey());
+            writeObject(out, entry.getValue());
+        }
+    }
+
+    private <M extends Map<Object, Object>> M readMap(final DataInputStream in, final M map) throws IOException {
+
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            map.put(readObject(in), readObject(in));
+        }
+        return map;
+    }
+
+    /**
+     * Writes the properties of a contentlet. They are read into a contentlet
+     * of the same structure created by the {@link FatContentletConverter}, so
+     * it keeps the layout the other contentlets of the structure share.
+     */
+    private static class ContentletCodec implements Codec<Contentlet> {
+
+        private final Function<String, Contentlet> contentlets;
+
+        ContentletCodec(final Function<String, Contentlet> contentlets) {
+            this.contentlets = contentlets;
+        }
+
+        @Override
+        public void write(final MappedCacheSerializer serializer, final DataOutputStream out, final Contentlet contentlet) throws IOException {
+
+            out.writeBoolean(contentlet.isLowIndexPriority());
+            serializer.writeMap(out, contentlet.getMap());
+        }
+
+        @Override
+        public Contentlet read(final MappedCacheSerializer serializer, final DataInputStream in) throws IOException {
+
+            final boolean lowIndexPriority = in.readBoolean();
+            final Map<String, Object> properties = new HashMap<>();
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                properties.put((String) serializer.readObject(in), serializer.readObject(in));
+            }
+
+            final Contentlet contentlet = newContentlet((String) properties.get(Contentlet.STRUCTURE_INODE_KEY));
+            contentlet.setLowIndexPriority(lowIndexPriority);
+            final Map<String, Object> map = contentlet.getMap();
+            map.clear();
+            for (final Map.Entry<String, Object> property : properties.entrySet()) {
+                if (property.getValue() != null) {
+                    map.put(property.getKey(), property.getValue());
+                }
+            }
+            return contentlet;
+        }
+
+        private Contentlet newContentlet(final String structureInode) {
+
+            if (structureInode != null && structureInode.length() > 0) {
+                try {
+                    return contentlets.apply(structureInode);
+                } catch (RuntimeException e) {
+                    // the structure is gone, the contentlet is still read
+                    Logger.debug(MappedCacheSerializer.class, "Unable to get the layout of structure " + structureInode + ": " + e.getMessage(), e);
+                }
+            }
+            return new Contentlet();
+        }
+    }
+
+    private static class IdentifierCodec implements Codec<Identifier> {
+
+        @Override
+        public void write(final MappedCacheSerializer serializer, final DataOutputStream out, final Identifier identifier) throws IOException {
+
+            serializer.writeString(out, identifier.getId());
+            serializer.writeString(out, identifier.getAssetName());
+            serializer.writeString(out, identifier.getAssetType());
+            serializer.writeString(out, identifier.getParentPath());
+            serializer.writeString(out, identifier.getHostId());
+            serializer.writeObject(out, identifier.getSysPublishDate());
+            serializer.writeObject(out, identifier.getSysExpireDate());
+        }
+
+        @Override
+        public Identifier read(final MappedCacheSerializer serializer, final DataInputStream in) throws IOException {
+
+            final Identifier identifier = new Identifier();
+            final String id = serializer.readString(in);
+            if (id != null && id.length() > 0) {
+                identifier.setId(id);
+            }
+            identifier.setAssetName(serializer.readString(in));
+            identifier.setAssetType(serializer.readString(in));
+            identifier.setParentPath(serializer.readString(in));
+            identifier.setHostId(serializer.readString(in));
+            identifier.setSysPublishDate((Date) serializer.readObject(in));
+            identifier.setSysExpireDate((Date) serializer.readObject(in));
+            return identifier;
+        }
+    }
+
+    private static class PermissionCodec implements Codec<Permission> {
+
+        @Override
+        public void write(final MappedCacheSerializer serializer, final DataOutputStream out, final Permission permission) throws IOException {
+
+            out.writeLong(permission.getId());
+            serializer.writeString(out, permission.getType());
+            serializer.writeString(out, permission.getInode());
+            serializer.writeString(out, permission.getRoleId());
+            out.writeInt(permission.getPermission());
+            out.writeBoolean(permission.isBitPermission());
+        }
+
+        @Override
+        public Permission read(final MappedCacheSerializer serializer, final DataInputStream in) throws IOException {
+
+            final long id = in.readLong();
+            final Permission permission = new Permission(serializer.readString(in), serializer.readString(in),
+                    serializer.readString(in), in.readInt(), in.readBoolean());
+            permission.setId(id);
+            return permission;
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Open addressing hash index of the {@link MappedCache}, kept in a direct
+ * buffer so millions of entries do not add a single object to the heap.
+ * <p>
+ * Every slot is 24 bytes: the 64 bit hash of the group and key, the location
+ * of the record (segment id in the high 32 bits, offset in the low 32 bits),
+ * the group id and the group generation the record was written with.
+ * <p>
+ * This class is not thread safe, the {@link MappedCache} guards it with its lock.
+ */
+final class MappedIndex {
+
+    /**
+     * Decides if a slot survives a rehash, stale group generations are dropped
+     */
+    interface LiveCheck {
+
+        boolean isLive(int groupId, int generation);
+    }
+
+    static final long EMPTY = 0L;
+    static final long DELETED = 1L;
+
+    private static final int SLOT_SIZE = 24;
+    private static final int LOCATION = 8;
+    private static final int GROUP = 16;
+    private static final int GENERATION = 20;
+
+    private final LiveCheck liveCheck;
+    private ByteBuffer slots;
+    private int capacity;
+    private int size;
+    private int used;
+
+    MappedIndex(final int initialCapacity, final LiveCheck liveCheck) {
+
+        this.liveCheck = liveCheck;
+        this.capacity = Integer.highestOneBit(Math.max(16, initialCapacity - 1)) << 1;
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+    }
+
+    /**
+     * Hashes a group and key, never returns one of the reserved {@link #EMPTY} or {@link #DELETED} values
+     */
+    static long hash(final String group, final String key) {
+
+        long h = 1125899906842597L;
+        for (int i = 0; i < group.length(); i++) {
+            h = 31 * h + group.charAt(i);
+        }
+        h = 31 * h + '|';
+        for (int i = 0; i < key.length(); i++) {
+            h = 31 * h + key.charAt(i);
+        }
+
+        // murmur3 finalizer, spreads the bits used to pick the slot
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == EMPTY || h == DELETED ? 2L : h;
+    }
+
+    static long location(final int segmentId, final int offset) {
+        return ((long) segmentId << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    static int segmentId(final long location) {
+        return (int) (location >>> 32);
+    }
+
+    static int offset(final long location) {
+        return (int) location;
+    }
+
+    /**
+     * @return the slot holding the given hash, -1 if there is none
+     */
+    int find(final long hash) {
+
+        final int mask = capacity - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (true) {
+            final long current = slots.getLong(slot * SLOT_SIZE);
+            if (current == EMPTY) {
+                return -1;
+            }
+            if (current == hash) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Adds or replaces the entry of the given hash
+     */
+    void put(final long hash, final long location, final int groupId, final int generation) {
+
+        if (used + 1 > capacity - (capacity >>> 2)) {
+            // grow only if there are live entries enough, otherwise the rehash just purges tombstones
+            rehash(size + 1 > (capacity >>> 1) ? capacity << 1 : capacity);
+        }
+
+        final int mask = capacity - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        int firstDeleted = -1;
+        while (true) {
+            final long current = slots.getLong(slot * SLOT_SIZE);
+            if (current == hash) {
+                write(slot, hash, location, groupId, generation);
+                return;
+            }
+            if (current == DELETED && firstDeleted < 0) {
+                firstDeleted = slot;
+            } else if (current == EMPTY) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (firstDeleted >= 0) {
+            slot = firstDeleted;
+        } else {
+            used++;
+        }
+        size++;
+        write(slot, hash, location, groupId, generation);
+    }
+
+    void remove(final int slot) {
+
+        slots.putLong(slot * SLOT_SIZE, DELETED);
+        size--;
+    }
+
+    boolean isUsed(final int slot) {
+
+        final long current = slots.getLong(slot * SLOT_SIZE);
+        return current != EMPTY && current != DELETED;
+    }
+
+    long location(final int slot) {
+        return slots.getLong(slot * SLOT_SIZE + LOCATION);
+    }
+
+    int groupId(final int slot) {
+        return slots.getInt(slot * SLOT_SIZE + GROUP);
+    }
+
+    int generation(final int slot) {
+        return slots.getInt(slot * SLOT_SIZE + GENERATION);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void write(final int slot, final long hash, final long location, final int groupId, final int generation) {
+
+        final int position = slot * SLOT_SIZE;
+        slots.putLong(position, hash);
+        slots.putLong(position + LOCATION, location);
+        slots.putInt(position + GROUP, groupId);
+        slots.putInt(position + GENERATION, generation);
+    }
+
+    private void rehash(final int newCapacity) {
+
+        final ByteBuffer oldSlots = slots;
+        final int oldCapacity = capacity;
+
+        slots = ByteBuffer.allocateDirect(newCapacity * SLOT_SIZE);
+        capacity = newCapacity;
+        size = 0;
+        used = 0;
+
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            final int position = slot * SLOT_SIZE;
+            final long hash = oldSlots.getLong(position);
+            if (hash == EMPTY || hash == DELETED) {
+                continue;
+            }
+            final int groupId = oldSlots.getInt(position + GROUP);
+            final int generation = oldSlots.getInt(position + GENERATION);
+            if (!liveCheck.isLive(groupId, generation)) {
+                continue;
+            }
+
+            final int mask = capacity - 1;
+            int newSlot = (int) (hash ^ (hash >>> 32)) & mask;
+            while (slots.getLong(newSlot * SLOT_SIZE) != EMPTY) {
+                newSlot = (newSlot + 1) & mask;
+            }
+            write(newSlot, hash, oldSlots.getLong(position + LOCATION), groupId, generation);
+            size++;
+            used++;
+        }
+    }
+
+}
@@ -0,0 +1,332 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import com.dotmarketing.util.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * An append only, memory mapped file of the {@link MappedCache}.
+ * <p>
+ * Records are laid out one after the other:
+ * <pre>
+ * [int length][int crc][byte type][int generation][int group length][group][int key length][key][value]
+ * </pre>
+ * The length counts every byte after itself and the crc covers everything after
+ * the generation. The length is written last, so a record torn by a crash reads
+ * as the end of the segment (the file is created zero filled).
+ * <p>
+ * This class is not thread safe, the {@link MappedCache} guards it with its lock.
+ */
+final class MappedSegment {
+
+    static final byte PUT = 1;
+    static final byte REMOVE = 2;
+    static final byte FLUSH_GROUP = 3;
+
+    static final int CRC = 4;
+    static final int TYPE = 8;
+    static final int GENERATION = 9;
+    static final int HEADER_SIZE = 13;
+
+    static final String PREFIX = "segment.";
+    static final String SUFFIX = ".dat";
+
+    private static final Unmapper UNMAPPER = findUnmapper();
+
+    private final int id;
+    private final File file;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer buffer;
+    private int position;
+
+    private MappedSegment(final int id, final File file, final RandomAccessFile raf, final MappedByteBuffer buffer) {
+
+        this.id = id;
+        this.file = file;
+        this.raf = raf;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates a new, empty segment file of the given size
+     */
+    static MappedSegment create(final File directory, final int id, final int size) throws IOException {
+
+        final File file = new File(directory, PREFIX + id + SUFFIX);
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(size);
+        return new MappedSegment(id, file, raf, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    /**
+     * Maps an existing segment file, {@link #recover(RecordVisitor)} has to be called before appending to it
+     */
+    static MappedSegment open(final File file) throws IOException {
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        return new MappedSegment(idOf(file), file, raf, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length()));
+    }
+
+    /**
+     * @return the id of the segment, from the file name when it is a segment file, -1 otherwise
+     */
+    static int idOf(final File file) {
+
+        final String name = file.getName();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Builds a record, its generation is set by {@link #setGeneration(byte[], int)} once the lock is held
+     */
+    static byte[] record(final byte type, final byte[] group, final byte[] key, final byte[] value) {
+
+        final int valueLength = value == null ? 0 : value.length;
+        final byte[] record = new byte[HEADER_SIZE + 4 + group.length + 4 + key.length + valueLength];
+        final ByteBuffer bytes = ByteBuffer.wrap(record);
+        bytes.putInt(record.length - 4);
+        bytes.putInt(0);
+        bytes.put(type);
+        bytes.putInt(0);
+        bytes.putInt(group.length);
+        bytes.put(group);
+        bytes.putInt(key.length);
+        bytes.put(key);
+        if (value != null) {
+            bytes.put(value);
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(record, HEADER_SIZE, record.length - HEADER_SIZE);
+        bytes.putInt(CRC, (int) crc.getValue());
+        return record;
+    }
+
+    static void setGeneration(final byte[] record, final int generation) {
+        ByteBuffer.wrap(record).putInt(GENERATION, generation);
+    }
+
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Appends the record
+     *
+     * @return the offset of the record, -1 if there is no room left in this segment
+     */
+    int append(final byte[] record) {
+
+        if (position + record.length + 4 > buffer.capacity()) {
+            return -1;
+        }
+
+        final int offset = position;
+        final ByteBuffer target = buffer.duplicate();
+        target.position(offset + 4);
+        target.put(record, 4, record.length - 4);
+        buffer.putInt(offset, record.length - 4);
+        position += record.length;
+        return offset;
+    }
+
+    /**
+     * @return true if the record at the given offset belongs to the given group and key
+     */
+    boolean matches(final int offset, final byte[] group, final byte[] key) {
+
+        int at = offset + HEADER_SIZE;
+        if (!matches(at, group)) {
+            return false;
+        }
+        at += 4 + group.length;
+        return matches(at, key);
+    }
+
+    /**
+     * @return a copy of the value of the record at the given offset
+     */
+    byte[] value(final int offset) {
+
+        final int end = offset + 4 + buffer.getInt(offset);
+        int at = offset + HEADER_SIZE;
+        at += 4 + buffer.getInt(at);
+        at += 4 + buffer.getInt(at);
+
+        final byte[] value = new byte[end - at];
+        final ByteBuffer source = buffer.duplicate();
+        source.position(at);
+        source.get(value);
+        return value;
+    }
+
+    /**
+     * @return the key of the record at the given offset
+     */
+    byte[] key(final int offset) {
+
+        int at = offset + HEADER_SIZE;
+        at += 4 + buffer.getInt(at);
+        final byte[] key = new byte[buffer.getInt(at)];
+        final ByteBuffer source = buffer.duplicate();
+        source.position(at + 4);
+        source.get(key);
+        return key;
+    }
+
+    /**
+     * Reads the records of the segment in order, stopping at the first empty or
+     * corrupt one, and leaves the segment ready to append after the last good record
+     */
+    void recover(final RecordVisitor visitor) {
+
+        final CRC32 crc = new CRC32();
+        position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+
+            final int length = buffer.getInt(position);
+            if (length < HEADER_SIZE - 4 || position + 4 + length > buffer.capacity()) {
+                break;
+            }
+
+            final byte[] record = new byte[length + 4];
+            final ByteBuffer source = buffer.duplicate();
+            source.position(position);
+            source.get(record);
+
+            crc.reset();
+            crc.update(record, HEADER_SIZE, record.length - HEADER_SIZE);
+            if ((int) crc.getValue() != buffer.getInt(position + CRC)) {
+                Logger.warn(this.getClass(), "Corrupt record in " + file + " at " + position + ", ignoring the rest of the segment");
+                break;
+            }
+
+            visitor.visit(this, position, record);
+            position += record.length;
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() {
+
+        try {
+            raf.close();
+        } catch (IOException e) {
+            Logger.warn(this.getClass(), "Unable to close " + file + ": " + e.getMessage());
+        }
+        unmap(buffer);
+    }
+
+    void delete() {
+
+        close();
+        if (!file.delete()) {
+            Logger.warn(this.getClass(), "Unable to delete " + file);
+        }
+    }
+
+    private boolean matches(final int at, final byte[] expected) {
+
+        if (buffer.getInt(at) != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(at + 4 + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the mappings of this JVM can be released before the
+     *         buffers are garbage collected
+     */
+    static boolean canUnmap() {
+        return UNMAPPER != null;
+    }
+
+    /**
+     * Releases the mapping right away instead of waiting for the buffer to be
+     * garbage collected, so the disk space of a deleted segment is given back.
+     * The buffer must not be read after this.
+     */
+    private static void unmap(final MappedByteBuffer buffer) {
+
+        if (UNMAPPER == null) {
+            return;
+        }
+        try {
+            UNMAPPER.unmap(buffer);
+        } catch (Exception e) {
+            Logger.warn(MappedSegment.class, "Unable to unmap the segment, it will be released by the GC: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Finds how the mappings are released in this JVM: through
+     * <code>sun.misc.Unsafe.invokeCleaner</code> on Java 9 and later, through
+     * the cleaner of the buffer on Java 8. When neither is available the
+     * mappings are released by the GC and a warning is logged once.
+     */
+    private static Unmapper findUnmapper() {
+
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            return buffer -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (Exception e) {
+            // not Java 9 or later
+        }
+
+        try {
+            final Method cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            final Method cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleanMethod.invoke(cleaner);
+                }
+            };
+        } catch (Exception e) {
+            Logger.warn(MappedSegment.class, "Mapped cache segments can not be unmapped in this JVM, "
+                    + "the disk space of deleted segments is given back when they are garbage collected: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private interface Unmapper {
+
+        void unmap(MappedByteBuffer buffer) throws Exception;
+    }
+
+    /**
+     * Receives the records read by {@link #recover(RecordVisitor)}
+     */
+    interface RecordVisitor {
+
+        void visit(MappedSegment segment, int offset, byte[] record);
+    }
+
+}
@@ -0,0 +1,213 @@
+package com.dotmarketing.business.cache.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A set of cache invalidations to be sent to the other nodes of the cluster
+ * in a single message. Duplicated keys are dropped and a group flush makes
+ * any pending key of that group redundant.
+ * <p>
+ * The batch is sent as a compact binary frame:
+ * <pre>
+ * int    magic ("DCIB")
+ * byte   version
+ * int    number of flushed groups, followed by each group name
+ * int    number of groups with keys, followed by each group name,
+ *        its number of keys and each key
+ * </pre>
+ * Every string is written as an int with its length in bytes followed by its
+ * UTF-8 bytes, so keys of any length can be sent. Version 1 frames, which
+ * used {@link DataOutputStream#writeUTF(String)}, can still be read.
+ */
+public class CacheInvalidationBatch {
+
+    static final int MAGIC = 0x44434942;
+    static final byte VERSION = 2;
+    private static final byte VERSION_MODIFIED_UTF = 1;
+
+    private final Map<String, Set<String>> keysByGroup = new LinkedHashMap<String, Set<String>>();
+    private final Set<String> flushedGroups = new LinkedHashSet<String>();
+    private int keyCount = 0;
+
+    /**
+     * Adds the removal of a key of a given group to the batch.
+     *
+     * @return <code>false</code> if the key or its whole group was already in the batch
+     */
+    public boolean addKey ( final String key, final String group ) {
+
+        if ( flushedGroups.contains(group) ) {
+            return false;
+        }
+
+        Set<String> keys = keysByGroup.get(group);
+        if ( keys == null ) {
+            keys = new LinkedHashSet<String>();
+            keysByGroup.put(group, keys);
+        }
+
+        if ( keys.add(key) ) {
+            keyCount++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the flush of a whole group to the batch, discarding the pending keys of that group.
+     *
+     * @return <code>false</code> if the group was already flushed in this batch
+     */
+    public boolean addGroupFlush ( final String group ) {
+
+        final Set<String> keys = keysByGroup.remove(group);
+        if ( keys != null ) {
+            keyCount -= keys.size();
+        }
+        return flushedGroups.add(group);
+    }
+
+    /**
+     * Returns the number of keys pending for a given group
+     */
+    public int getKeyCount ( final String group ) {
+        final Set<String> keys = keysByGroup.get(group);
+        return keys == null ? 0 : keys.size();
+    }
+
+    /**
+     * Returns the number of invalidations in the batch, counting a group flush as one
+     */
+    public int size () {
+        return keyCount + flushedGroups.size();
+    }
+
+    public boolean isEmpty () {
+        return size() == 0;
+    }
+
+    public Map<String, Set<String>> getKeysByGroup () {
+        return Collections.unmodifiableMap(keysByGroup);
+    }
+
+    public Set<String> getFlushedGroups () {
+        return Collections.unmodifiableSet(flushedGroups);
+    }
+
+    /**
+     * Encodes this batch as a binary frame
+     */
+    public byte[] toBytes () {
+
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + keyCount * 48);
+            final DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+
+            out.writeInt(flushedGroups.size());
+            for ( String group : flushedGroups ) {
+                writeString(out, group);
+            }
+
+            out.writeInt(keysByGroup.size());
+            for ( Map.Entry<String, Set<String>> entry : keysByGroup.entrySet() ) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for ( String key : entry.getValue() ) {
+                    writeString(out, key);
+                }
+            }
+
+            out.flush();
+            return bytes.toByteArray();
+        } catch ( IOException e ) {
+            //Writing to memory, this should never happen
+            throw new CacheTransportException("Unable to encode the cache invalidation batch", e);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the given buffer starts with the header of an invalidation batch frame
+     */
+    public static boolean isBatch ( final byte[] buffer ) {
+
+        return buffer != null && buffer.length > 4
+                && (((buffer[0] & 0xFF) << 24) | ((buffer[1] & 0xFF) << 16) | ((buffer[2] & 0xFF) << 8) | (buffer[3] & 0xFF)) == MAGIC;
+    }
+
+    /**
+     * Decodes a frame created with {@link #toBytes()}
+     *
+     * @throws CacheTransportException if the buffer is not a valid frame
+     */
+    public static CacheInvalidationBatch fromBytes ( final byte[] buffer ) throws CacheTransportException {
+
+        if ( !isBatch(buffer) ) {
+            throw new CacheTransportException("The message is not a cache invalidation batch");
+        }
+
+        try {
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer));
+            in.readInt();
+
+            final byte version = in.readByte();
+            if ( version != VERSION && version != VERSION_MODIFIED_UTF ) {
+                throw new CacheTransportException("Unsupported cache invalidation batch version: " + version);
+            }
+
+            final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+
+            final int flushes = in.readInt();
+            for ( int i = 0; i < flushes; i++ ) {
+                batch.addGroupFlush(readString(in, version));
+            }
+
+            final int groups = in.readInt();
+            for ( int i = 0; i < groups; i++ ) {
+                final String group = readString(in, version);
+                final int keys = in.readInt();
+                for ( int j = 0; j < keys; j++ ) {
+                    batch.addKey(readString(in, version), group);
+                }
+            }
+
+            return batch;
+        } catch ( IOException e ) {
+            throw new CacheTransportException("Unable to decode the cache invalidation batch", e);
+        }
+    }
+
+    private static void writeString ( final DataOutputStream out, final String value ) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString ( final DataInputStream in, final byte version ) throws IOException {
+
+        if ( version == VERSION_MODIFIED_UTF ) {
+            return in.readUTF();
+        }
+
+        final int length = in.readInt();
+        if ( length < 0 || length > in.available() ) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,274 @@
+package com.dotmarketing.business.cache.transport;
+
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the cache invalidations that must be propagated to the cluster and
+ * sends them through the {@link CacheTransport} as {@link CacheInvalidationBatch}
+ * frames instead of one message per key.
+ * <p>
+ * A batch is sent when the first invalidation it holds is older than
+ * <code>CACHE_INVALIDATION_BATCH_WINDOW_MILLIS</code> or when it reaches
+ * <code>CACHE_INVALIDATION_BATCH_MAX_KEYS</code> invalidations. Once a group
+ * collects <code>CACHE_INVALIDATION_GROUP_FLUSH_THRESHOLD</code> keys the
+ * other nodes are asked to flush the whole group instead.
+ */
+public class CacheInvalidationBatcher {
+
+    private final long windowMillis;
+    private final int maxKeys;
+    private final int groupFlushThreshold;
+
+    private final Object lock = new Object();
+    private CacheInvalidationBatch pending = new CacheInvalidationBatch();
+    private long pendingSince = 0;
+    private boolean flushScheduled = false;
+
+    private volatile CacheTransport transport;
+    private volatile ScheduledThreadPoolExecutor scheduler;
+
+    //Sender side stats
+    private final AtomicLong invalidationsRequested = new AtomicLong();
+    private final AtomicLong duplicatesDropped = new AtomicLong();
+    private final AtomicLong groupsCollapsed = new AtomicLong();
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong invalidationsSent = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong sendFailures = new AtomicLong();
+    private final AtomicLong batchLatencyMillis = new AtomicLong();
+    private final AtomicLong sendNanos = new AtomicLong();
+
+    //Receiver side stats
+    private final AtomicLong batchesReceived = new AtomicLong();
+    private final AtomicLong invalidationsApplied = new AtomicLong();
+    private final AtomicLong applyNanos = new AtomicLong();
+
+    public CacheInvalidationBatcher () {
+        this(Config.getIntProperty("CACHE_INVALIDATION_BATCH_WINDOW_MILLIS", 20),
+                Config.getIntProperty("CACHE_INVALIDATION_BATCH_MAX_KEYS", 1000),
+                Config.getIntProperty("CACHE_INVALIDATION_GROUP_FLUSH_THRESHOLD", 500));
+    }
+
+    public CacheInvalidationBatcher ( final long windowMillis, final int maxKeys, final int groupFlushThreshold ) {
+        this.windowMillis = Math.max(0, windowMillis);
+        this.maxKeys = Math.max(1, maxKeys);
+        this.groupFlushThreshold = groupFlushThreshold;
+    }
+
+    public void setTransport ( final CacheTransport transport ) {
+        this.transport = transport;
+    }
+
+    /**
+     * Queues the removal of a key of a given group
+     */
+    public void remove ( final String key, final String group ) {
+
+        invalidationsRequested.incrementAndGet();
+
+        CacheInvalidationBatch toSend = null;
+        synchronized ( lock ) {
+
+            if ( !pending.addKey(key, group) ) {
+                duplicatesDropped.incrementAndGet();
+                return;
+            }
+
+            if ( groupFlushThreshold > 0 && pending.getKeyCount(group) >= groupFlushThreshold ) {
+                pending.addGroupFlush(group);
+                groupsCollapsed.incrementAndGet();
+            }
+
+            toSend = afterAdd();
+        }
+
+        send(toSend);
+    }
+
+    /**
+     * Queues the flush of a whole group, any pending key of that group is discarded
+     */
+    public void flushGroup ( final String group ) {
+
+        invalidationsRequested.incrementAndGet();
+
+        CacheInvalidationBatch toSend = null;
+        synchronized ( lock ) {
+
+            if ( !pending.addGroupFlush(group) ) {
+                duplicatesDropped.incrementAndGet();
+                return;
+            }
+
+            toSend = afterAdd();
+        }
+
+        send(toSend);
+    }
+
+    /**
+     * Discards every pending invalidation, used when the whole cache is flushed
+     */
+    public void clear () {
+        synchronized ( lock ) {
+            duplicatesDropped.addAndGet(pending.size());
+            pending = new CacheInvalidationBatch();
+        }
+    }
+
+    /**
+     * Sends the pending invalidations right away
+     */
+    public void flush () {
+
+        CacheInvalidationBatch toSend;
+        synchronized ( lock ) {
+            toSend = takePending();
+        }
+
+        send(toSend);
+    }
+
+    /**
+     * Sends the pending invalidations and stops the flushing thread
+     */
+    public void shutdown () {
+
+        flush();
+
+        final ScheduledThreadPoolExecutor executor = scheduler;
+        if ( executor != null ) {
+            executor.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Registers the application of a batch received from another node
+     */
+    public void batchApplied ( final int invalidations, final long nanos ) {
+        batchesReceived.incrementAndGet();
+        invalidationsApplied.addAndGet(invalidations);
+        applyNanos.addAndGet(nanos);
+    }
+
+    public Map<String, Object> getStats () {
+
+        final long batches = batchesSent.get();
+        final long received = batchesReceived.get();
+
+        final Map<String, Object> stats = new LinkedHashMap<String, Object>();
+        stats.put("windowMillis", windowMillis);
+        stats.put("maxKeys", maxKeys);
+        stats.put("groupFlushThreshold", groupFlushThreshold);
+        stats.put("invalidationsRequested", invalidationsRequested.get());
+        stats.put("duplicatesDropped", duplicatesDropped.get());
+        stats.put("groupsCollapsed", groupsCollapsed.get());
+        stats.put("batchesSent", batches);
+        stats.put("invalidationsSent", invalidationsSent.get());
+        stats.put("bytesSent", bytesSent.get());
+        stats.put("sendFailures", sendFailures.get());
+        stats.put("avgInvalidationsPerBatch", batches > 0 ? (double) invalidationsSent.get() / batches : 0D);
+        stats.put("avgBatchLatencyMillis", batches > 0 ? (double) batchLatencyMillis.get() / batches : 0D);
+        stats.put("avgSendMillis", batches > 0 ? sendNanos.get() / 1000000D / batches : 0D);
+        stats.put("batchesReceived", received);
+        stats.put("invalidationsApplied", invalidationsApplied.get());
+        stats.put("avgApplyMillis", received > 0 ? applyNanos.get() / 1000000D / received : 0D);
+        return stats;
+    }
+
+    /**
+     * Must be called holding the lock after an invalidation was added, returns
+     * the batch to send right away if it is full
+     */
+    private CacheInvalidationBatch afterAdd () {
+
+        if ( pending.size() == 1 ) {
+            pendingSince = System.currentTimeMillis();
+        }
+
+        if ( pending.size() >= maxKeys || windowMillis == 0 ) {
+            return takePending();
+        }
+
+        if ( !flushScheduled ) {
+            flushScheduled = true;
+            getScheduler().schedule(new Runnable() {
+                public void run () {
+                    flush();
+                }
+            }, windowMillis, TimeUnit.MILLISECONDS);
+        }
+        return null;
+    }
+
+    private CacheInvalidationBatch takePending () {
+
+        flushScheduled = false;
+        if ( pending.isEmpty() ) {
+            return null;
+        }
+
+        final CacheInvalidationBatch batch = pending;
+        pending = new CacheInvalidationBatch();
+        batchLatencyMillis.addAndGet(System.currentTimeMillis() - pendingSince);
+        return batch;
+    }
+
+    private void send ( final CacheInvalidationBatch batch ) {
+
+        if ( batch == null ) {
+            return;
+        }
+
+        final CacheTransport cacheTransport = transport;
+        if ( cacheTransport == null ) {
+            Logger.warn(CacheInvalidationBatcher.class, "No Cache transport implementation is defined, dropping " + batch.size() + " invalidations");
+            sendFailures.incrementAndGet();
+            return;
+        }
+
+        final long start = System.nanoTime();
+        try {
+            final byte[] frame = batch.toBytes();
+            cacheTransport.send(frame);
+            batchesSent.incrementAndGet();
+            invalidationsSent.addAndGet(batch.size());
+            bytesSent.addAndGet(frame.length);
+        } catch ( Exception e ) {
+            sendFailures.incrementAndGet();
+            Logger.error(CacheInvalidationBatcher.class, "Unable to send invalidation to cluster : " + e.getMessage(), e);
+        } finally {
+            sendNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private ScheduledThreadPoolExecutor getScheduler () {
+
+        if ( scheduler == null ) {
+            synchronized ( this ) {
+                if ( scheduler == null ) {
+                    final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                        public Thread newThread ( Runnable runnable ) {
+                            final Thread thread = new Thread(runnable, "CacheInvalidationBatcher");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                    executor.setRemoveOnCancelPolicy(true);
+                    scheduler = executor;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+}
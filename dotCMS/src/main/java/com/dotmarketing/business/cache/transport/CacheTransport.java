@@ -20,6 +20,14 @@ public interface CacheTransport {
      */
     void send ( String message ) throws CacheTransportException;
 
+    /**
+     * Sends a binary message to the transport channel, used for the {@link CacheInvalidationBatch} frames
+     *
+     * @param message
+     * @throws CacheTransportException
+     */
+    void send ( byte[] message ) throws CacheTransportException;
+
     /**
      * Tests the cluster transport channel
      *
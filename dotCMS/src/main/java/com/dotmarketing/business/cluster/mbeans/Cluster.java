@@ -2,9 +2,15 @@ package com.dotmarketing.business.cluster.mbeans;
 
 import com.dotcms.enterprise.ClusterThreadProxy;
 import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.ChainableCacheAdministratorImpl;
+import com.dotmarketing.business.DotCacheAdministrator;
 import com.dotmarketing.common.business.journal.DistributedJournalAPI;
 import com.dotmarketing.util.Config;
 
+import java.util.Collections;
+import java.util.Map;
+
 public class Cluster implements ClusterMBean {
 
 	public void startCluster() {
@@ -26,4 +32,37 @@ public class Cluster implements ClusterMBean {
 
 	}
 
+	public Map<String, Object> getCacheTransportStats() {
+		DotCacheAdministrator cacheAdministrator = CacheLocator.getCacheAdministrator().getImplementationObject();
+		if(cacheAdministrator instanceof ChainableCacheAdministratorImpl) {
+			return ((ChainableCacheAdministratorImpl) cacheAdministrator).getInvalidationBatcher().getStats();
+		}
+		return Collections.emptyMap();
+	}
+
+	public long getCacheInvalidationBatchesSent() {
+		return getStat("batchesSent").longValue();
+	}
+
+	public long getCacheInvalidationsSent() {
+		return getStat("invalidationsSent").longValue();
+	}
+
+	public double getCacheInvalidationsPerBatch() {
+		return getStat("avgInvalidationsPerBatch").doubleValue();
+	}
+
+	public double getCacheInvalidationBatchLatencyMillis() {
+		return getStat("avgBatchLatencyMillis").doubleValue();
+	}
+
+	public long getCacheInvalidationBatchesReceived() {
+		return getStat("batchesReceived").longValue();
+	}
+
+	private Number getStat(String name) {
+		Object value = getCacheTransportStats().get(name);
+		return value instanceof Number ? (Number) value : 0;
+	}
+
 }
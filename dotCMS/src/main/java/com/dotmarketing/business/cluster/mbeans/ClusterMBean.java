@@ -1,8 +1,17 @@
 package com.dotmarketing.business.cluster.mbeans;
 
+import java.util.Map;
+
 public interface ClusterMBean {
 	public abstract void startCluster();
 	public abstract void startCluster(int sleep,int delay);
 	public abstract void stopCluster();
 
+	public abstract Map<String, Object> getCacheTransportStats();
+	public abstract long getCacheInvalidationBatchesSent();
+	public abstract long getCacheInvalidationsSent();
+	public abstract double getCacheInvalidationsPerBatch();
+	public abstract double getCacheInvalidationBatchLatencyMillis();
+	public abstract long getCacheInvalidationBatchesReceived();
+
 }
@@ -1,11 +1,13 @@
 package com.dotmarketing.business.jgroups;
 
+import com.dotcms.api.system.event.SystemEventsDispatcher;
 import com.dotcms.cluster.bean.Server;
 import com.dotcms.cluster.business.ServerAPI;
 import com.dotcms.repackage.org.apache.commons.collections.map.LRUMap;
 import com.dotcms.repackage.org.apache.struts.Globals;
 import com.dotcms.repackage.org.jgroups.*;
 import com.dotmarketing.business.*;
+import com.dotmarketing.business.cache.transport.CacheInvalidationBatch;
 import com.dotmarketing.business.cache.transport.CacheTransport;
 import com.dotmarketing.business.cache.transport.CacheTransportException;
 import com.dotmarketing.exception.DotRuntimeException;
@@ -13,12 +15,12 @@ import com.dotmarketing.menubuilders.RefreshMenus;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
-import com.dotmarketing.velocity.DotResourceCache;
 import com.liferay.portal.struts.MultiMessageResources;
 
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Jonathan Gamba
@@ -91,6 +93,18 @@ public class JGroupsCacheTransport extends ReceiverAdapter implements CacheTrans
         }
     }
 
+    @Override
+    public void send ( byte[] message ) throws CacheTransportException {
+
+        Message msg = new Message(null, null, message);
+        try {
+            channel.send(msg);
+        } catch ( Exception e ) {
+            Logger.error(JGroupsCacheTransport.class, "Unable to send message: " + e.getMessage(), e);
+            throw new CacheTransportException("Unable to send message", e);
+        }
+    }
+
     @Override
     public void testCluster () throws CacheTransportException {
 
@@ -140,6 +154,13 @@ public class JGroupsCacheTransport extends ReceiverAdapter implements CacheTrans
             return;
         }
 
+        //Invalidation batches are sent as raw frames, the rest of the messages as serialized strings
+        byte[] buffer = msg.getBuffer();
+        if ( CacheInvalidationBatch.isBatch(buffer) ) {
+            invalidateBatchFromCluster(buffer);
+            return;
+        }
+
         Object v = msg.getObject();
         if ( v == null ) {
             return;
@@ -206,6 +227,8 @@ public class JGroupsCacheTransport extends ReceiverAdapter implements CacheTrans
         } else if ( v.toString().equals("MultiMessageResources.reload") ) {
             MultiMessageResources messages = (MultiMessageResources) Config.CONTEXT.getAttribute(Globals.MESSAGES_KEY);
             messages.reloadLocally();
+        } else if ( v.toString().equals(SystemEventsDispatcher.CLUSTER_NOTIFICATION) ) {
+            SystemEventsDispatcher.getInstance().clusterNotified();
         } else if ( v.toString().equals(ChainableCacheAdministratorImpl.DUMMY_TEXT_TO_SEND) ) {
             //Don't do anything is we are only checking sending.
         } else {
@@ -215,9 +238,8 @@ public class JGroupsCacheTransport extends ReceiverAdapter implements CacheTrans
 
     private void invalidateCacheFromCluster ( String k ) {
 
-        boolean flushMenus = false;
-        DotResourceCache vc = CacheLocator.getVeloctyResourceCache();
-        String menuGroup = vc.getMenuGroup();
+        DotCacheAdministrator cacheAdministrator = CacheLocator.getCacheAdministrator();
+        String menuGroup = CacheLocator.getVeloctyResourceCache().getMenuGroup();
 
         int i = k.lastIndexOf(":");
         if ( i > 0 ) {
@@ -225,38 +247,85 @@ public class JGroupsCacheTransport extends ReceiverAdapter implements CacheTrans
             String key = k.substring(0, i);
             String group = k.substring(i + 1, k.length());
 
-            key = key.toLowerCase();
-            group = group.toLowerCase();
-
-            if ( key.contains("dynamic") ) {
-                if ( group.equals(menuGroup) ) {
-                    flushMenus = true;
-                }
-            }
-            if ( !flushMenus ) {
-                if ( key.equals("0") ) {
-
-                    if ( group.equalsIgnoreCase(DotCacheAdministrator.ROOT_GOUP) ) {
-                        CacheLocator.getCacheAdministrator().flushAlLocalOnly();
-                    } else if ( group.equalsIgnoreCase(menuGroup) ) {
-                        flushMenus = true;
-                    } else {
-                        CacheLocator.getCacheAdministrator().flushGroupLocalOnly(group);
-                    }
-
-                } else {
-                    CacheLocator.getCacheAdministrator().removeLocalOnly(key, group);
-                }
+            if ( invalidateLocally(cacheAdministrator, key.toLowerCase(), group.toLowerCase(), menuGroup) ) {
+                flushMenus(cacheAdministrator, menuGroup);
             }
         } else {
             Logger.error(this, "The cache to locally remove key is invalid. The value was " + k);
         }
 
+    }
+
+    /**
+     * Applies in one pass all the invalidations of a {@link CacheInvalidationBatch} sent by another node
+     */
+    private void invalidateBatchFromCluster ( byte[] frame ) {
+
+        final long start = System.nanoTime();
+
+        CacheInvalidationBatch batch;
+        try {
+            batch = CacheInvalidationBatch.fromBytes(frame);
+        } catch ( CacheTransportException e ) {
+            Logger.error(this, "Unable to read cache invalidation batch: " + e.getMessage(), e);
+            return;
+        }
+
+        DotCacheAdministrator cacheAdministrator = CacheLocator.getCacheAdministrator();
+        String menuGroup = CacheLocator.getVeloctyResourceCache().getMenuGroup();
+        boolean flushMenus = false;
+
+        for ( String group : batch.getFlushedGroups() ) {
+            flushMenus |= invalidateLocally(cacheAdministrator, "0", group, menuGroup);
+        }
+
+        for ( Map.Entry<String, Set<String>> entry : batch.getKeysByGroup().entrySet() ) {
+            for ( String key : entry.getValue() ) {
+                flushMenus |= invalidateLocally(cacheAdministrator, key, entry.getKey(), menuGroup);
+            }
+        }
+
         if ( flushMenus ) {
-            RefreshMenus.deleteMenusOnFileSystemOnly();
-            CacheLocator.getCacheAdministrator().flushGroupLocalOnly(menuGroup);
+            flushMenus(cacheAdministrator, menuGroup);
         }
 
+        DotCacheAdministrator implementation = cacheAdministrator.getImplementationObject();
+        if ( implementation instanceof ChainableCacheAdministratorImpl ) {
+            ((ChainableCacheAdministratorImpl) implementation).getInvalidationBatcher().batchApplied(batch.size(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Invalidates locally a key of a given group, a "0" key invalidates the whole group
+     *
+     * @return <code>true</code> if the menus must be flushed
+     */
+    private boolean invalidateLocally ( DotCacheAdministrator cacheAdministrator, String key, String group, String menuGroup ) {
+
+        if ( key.contains("dynamic") && group.equals(menuGroup) ) {
+            return true;
+        }
+
+        if ( key.equals("0") ) {
+
+            if ( group.equalsIgnoreCase(DotCacheAdministrator.ROOT_GOUP) ) {
+                cacheAdministrator.flushAlLocalOnly();
+            } else if ( group.equalsIgnoreCase(menuGroup) ) {
+                return true;
+            } else {
+                cacheAdministrator.flushGroupLocalOnly(group);
+            }
+
+        } else {
+            cacheAdministrator.removeLocalOnly(key, group);
+        }
+
+        return false;
+    }
+
+    private void flushMenus ( DotCacheAdministrator cacheAdministrator, String menuGroup ) {
+        RefreshMenus.deleteMenusOnFileSystemOnly();
+        cacheAdministrator.flushGroupLocalOnly(menuGroup);
     }
 
     public Map<String, Boolean> validateCacheInCluster ( String dateInMillis, int numberServers, int maxWaitSeconds ) throws CacheTransportException {
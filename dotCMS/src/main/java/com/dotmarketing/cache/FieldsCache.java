@@ -3,6 +3,7 @@ package com.dotmarketing.cache;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.dotcms.content.elasticsearch.business.FatContentletConverter;
 import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotCacheAdministrator;
 import com.dotmarketing.business.DotCacheException;
@@ -125,12 +126,14 @@ public class FieldsCache {
         cache.remove(getPrimaryGroup() + st.getVelocityVarName(), getPrimaryGroup());
         cache.remove(getPrimaryGroup() + st.getVelocityVarName(), getPrimaryGroup());
         CacheLocator.getContentTypeCache().clearURLMasterPattern();
+        FatContentletConverter.getInstance().remove(inode);
     }
 
 	public static void clearCache(){
 		DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
 	    cache.flushGroup(getPrimaryGroup());
 	    CacheLocator.getContentTypeCache().clearURLMasterPattern();
+	    FatContentletConverter.getInstance().clear();
 	}
     
 	public static String[] getGroups() {
@@ -61,8 +61,8 @@ public class VirtualLinksCache {
 
 		if(vl != null && InodeUtils.isSet(vl.getInode())) 
 		{
-
-			addPathToCache(vl);
+			// not through addPathToCache, a lazy load does not change what the urls resolve to
+			cache.put(sanitizeKey(vl.getUrl()), vl.getUri(), getPrimaryGroup());
 		} else {
 
             cache.put(sanitizeKey(url), WebKeys.Cache.CACHE_NOT_FOUND, getPrimaryGroup());
@@ -76,7 +76,8 @@ public class VirtualLinksCache {
     /**
      * This maps the given virtual link in the cache also sends 
      * a cache invalidation message to force the other peers in the 
-     * cluster to re-map the key as well
+     * cluster to re-map the key as well. The resolved urls of the
+     * CmsUrlCache are flushed, as a vanity url can shadow any of them
      * @param vl
      */
     public static void addPathToCache(VirtualLink vl){
@@ -85,6 +86,7 @@ public class VirtualLinksCache {
         {
         	Logger.info(VirtualLinksCache.class, "mapping: " + vl.getUrl() + " -> " + vl.getUri());     	
             cache.put(sanitizeKey(vl.getUrl())  , vl.getUri(), getPrimaryGroup());
+            CacheLocator.getCmsUrlCache().clearCache();
         }
     }
 
@@ -97,6 +99,7 @@ public class VirtualLinksCache {
     	DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
     	Logger.debug(VirtualLinksCache.class, "removePathFromCache: url = " + url);
     	cache.remove(sanitizeKey(url),getPrimaryGroup());
+    	CacheLocator.getCmsUrlCache().clearCache();
     } 
     
     public static void mapAllVirtualLinks() {
@@ -112,12 +115,14 @@ public class VirtualLinksCache {
                 cache.put(sanitizeKey(vl.getUrl()), vl.getUri(), getPrimaryGroup());
             }
         }
+        CacheLocator.getCmsUrlCache().clearCache();
     }   
 
     public static void clearCache(){
 		DotCacheAdministrator cache = CacheLocator.getCacheAdministrator();
 	    //clear the cache
 	    cache.flushGroup(getPrimaryGroup());
+	    CacheLocator.getCmsUrlCache().clearCache();
 	}
 	public static String[] getGroups() {
     	String[] groups = {getPrimaryGroup()};
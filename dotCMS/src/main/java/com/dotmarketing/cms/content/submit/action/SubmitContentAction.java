@@ -19,7 +19,8 @@ import com.dotcms.repackage.org.apache.struts.action.ActionMessage;
 import com.dotcms.repackage.org.apache.struts.action.ActionMessages;
 import com.dotcms.repackage.org.apache.struts.actions.DispatchAction;
 import com.dotcms.util.SecurityUtils;
-import com.dotmarketing.beans.Clickstream;
+import com.dotmarketing.factories.ClickstreamRecorder;
+import com.dotmarketing.factories.ClickstreamRecorder.SessionClicks;
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.CacheLocator;
@@ -456,7 +457,7 @@ public class SubmitContentAction extends DispatchAction{
 
 
 
-				Clickstream clickstream = (Clickstream) request.getSession().getAttribute("clickstream");
+				SessionClicks clickstream = ClickstreamRecorder.getSession(request.getSession().getId());
 				if(clickstream != null &&  UtilMethods.isSet(clickstream.getInitialReferrer())){
 					parameters.put("Initial Referer", clickstream.getInitialReferrer());
 				}
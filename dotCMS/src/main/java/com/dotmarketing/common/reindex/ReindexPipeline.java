@@ -0,0 +1,479 @@
+package com.dotmarketing.common.reindex;
+
+import static com.dotcms.util.CollectionsUtils.partition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.dotcms.concurrent.DotConcurrentException;
+import com.dotcms.concurrent.DotConcurrentFactory;
+import com.dotcms.concurrent.DotSubmitter;
+import com.dotcms.content.elasticsearch.util.ESClient;
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
+import com.dotmarketing.business.FactoryLocator;
+import com.dotmarketing.common.business.journal.IndexJournal;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+
+/**
+ * Staged processor used by the {@link ReindexThread} to index a batch of
+ * records taken from the {@code dist_reindex_journal} table.
+ * <p>
+ * A batch goes through the following stages:
+ * <ol>
+ * <li><b>Load:</b> the version info and the fat contentlets of every
+ * identifier in the batch are loaded with one {@code IN (...)} query per
+ * chunk of {@link #IN_CLAUSE_SIZE} elements, instead of one query per
+ * record.</li>
+ * <li><b>Map:</b> the batch is split in {@code reindex.thread.workers}
+ * partitions that are mapped to ES documents in parallel through the
+ * {@code reindex} {@link DotSubmitter}. Every partition is written to its own
+ * {@link BulkRequestBuilder}.</li>
+ * <li><b>Submit:</b> every bulk request is sent to ES asynchronously. The
+ * number of bulk requests in flight is bounded by
+ * {@code reindex.thread.bulk.inflight}; when the bound is reached the mapping
+ * workers block until ES catches up, so the reindex never gets ahead of the
+ * cluster.</li>
+ * </ol>
+ * The throughput of every stage is recorded and can be read through
+ * {@link #getStats()}.
+ * </p>
+ */
+public class ReindexPipeline {
+
+    /**
+     * Maximum number of elements in a single {@code IN (...)} clause, kept
+     * below the Oracle limit of 1000 expressions.
+     */
+    static final int IN_CLAUSE_SIZE = 500;
+
+    public static final String REINDEX_SUBMITTER_NAME = "reindex.";
+
+    /**
+     * Callback used by the pipeline to delegate the record-level decisions
+     * (how a record is written and what to do when it fails) to the
+     * {@link ReindexThread}.
+     */
+    public interface RecordHandler {
+
+        /**
+         * Adds the index (or delete) requests for the given contentlet to the
+         * bulk request.
+         */
+        void write(BulkRequestBuilder bulk, IndexJournal<String> record, Contentlet contentlet) throws Exception;
+
+        /**
+         * Adds the index (or delete) requests of all the given records to the
+         * bulk request at once, so the documents can be built in batch.
+         *
+         * @return the number of documents written
+         * @throws Exception if any of the records could not be written. The
+         *             bulk request is discarded and the records are written
+         *             one by one through
+         *             {@link #write(BulkRequestBuilder, IndexJournal, Contentlet)}
+         */
+        int writeBatch(BulkRequestBuilder bulk, List<IndexJournal<String>> records, Map<String, List<Contentlet>> contentlets) throws Exception;
+
+        /**
+         * Called once per partition with the records that could not be
+         * mapped, they will not be part of any bulk request.
+         *
+         * @param failures the error of every failed record, in the order of
+         *            the partition
+         */
+        void recordsFailed(Map<IndexJournal<String>, Throwable> failures);
+
+        /**
+         * Called when a partition produced no bulk actions, the records are
+         * considered processed.
+         */
+        void recordsProcessed(List<IndexJournal<String>> records);
+
+        /**
+         * Returns the listener that will handle the ES response for the bulk
+         * request built with the given records.
+         */
+        ActionListener<BulkResponse> bulkListener(List<IndexJournal<String>> records);
+
+        /**
+         * Called after every record is written to a bulk request, allows the
+         * caller to throttle the workers.
+         */
+        void afterRecord();
+    }
+
+    private final int workers;
+    private final Semaphore inFlightBulks;
+    private final int maxInFlightBulks;
+    private final Supplier<Client> clientSupplier;
+
+    private final AtomicLong recordsReceived   = new AtomicLong();
+    private final AtomicLong contentletsLoaded = new AtomicLong();
+    private final AtomicLong documentsMapped   = new AtomicLong();
+    private final AtomicLong recordsFailed     = new AtomicLong();
+    private final AtomicLong bulksSubmitted    = new AtomicLong();
+    private final AtomicLong bulksCompleted    = new AtomicLong();
+    private final AtomicLong actionsSubmitted  = new AtomicLong();
+    private final AtomicLong backpressureWaits = new AtomicLong();
+
+    private final AtomicLong loadNanos   = new AtomicLong();
+    private final AtomicLong mapNanos    = new AtomicLong();
+    private final AtomicLong submitNanos = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+
+    public ReindexPipeline() {
+        this(Config.getIntProperty("reindex.thread.workers", 1),
+                Config.getIntProperty("reindex.thread.bulk.inflight", 4));
+    }
+
+    public ReindexPipeline(final int workers, final int maxInFlightBulks) {
+        this(workers, maxInFlightBulks, () -> new ESClient().getClient());
+    }
+
+    @VisibleForTesting
+    ReindexPipeline(final int workers, final int maxInFlightBulks, final Supplier<Client> clientSupplier) {
+        this.workers = Math.max(1, workers);
+        this.maxInFlightBulks = Math.max(1, maxInFlightBulks);
+        this.inFlightBulks = new Semaphore(this.maxInFlightBulks);
+        this.clientSupplier = clientSupplier;
+    }
+
+    /**
+     * Loads the working and live versions of every identifier in the batch.
+     * The version info is resolved with one query per
+     * {@link #IN_CLAUSE_SIZE} identifiers and the fat contentlets with one
+     * query per {@link #IN_CLAUSE_SIZE} inodes.
+     *
+     * @param records the journal records to load
+     * @return the contentlets to index keyed by identifier. Identifiers
+     *         without version info are mapped to an empty list and
+     *         identifiers with a version that could not be loaded are mapped
+     *         to {@code null}.
+     * @throws DotDataException if any of the queries fail
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, List<Contentlet>> loadContentlets(final List<IndexJournal<String>> records) throws DotDataException {
+
+        final long start = System.nanoTime();
+        recordsReceived.addAndGet(records.size());
+
+        final Set<String> identifiers = new LinkedHashSet<String>();
+        for(IndexJournal<String> record : records) {
+            identifiers.add(record.getIdentToIndex());
+        }
+
+        final Map<String, List<Contentlet>> result = new HashMap<String, List<Contentlet>>();
+        final Map<String, String> inodeToIdentifier = new LinkedHashMap<String, String>();
+        for(String identifier : identifiers) {
+            result.put(identifier, new ArrayList<Contentlet>());
+        }
+
+        final List<String> identifierList = new ArrayList<String>(identifiers);
+        for(List<String> chunk : partition(identifierList, IN_CLAUSE_SIZE)) {
+            final DotConnect dc = new DotConnect();
+            dc.setSQL("select identifier,working_inode,live_inode from contentlet_version_info where identifier in ("
+                    + DotConnect.createParametersPlaceholder(chunk.size()) + ")");
+            for(String identifier : chunk) {
+                dc.addParam(identifier);
+            }
+            final List<Map<String, String>> rows = dc.loadResults();
+            for(Map<String, String> row : rows) {
+                final String identifier = row.get("identifier");
+                final String workingInode = row.get("working_inode");
+                final String liveInode = row.get("live_inode");
+                inodeToIdentifier.put(workingInode, identifier);
+                if(UtilMethods.isSet(liveInode) && !workingInode.equals(liveInode)) {
+                    inodeToIdentifier.put(liveInode, identifier);
+                }
+            }
+        }
+
+        final String sql = "select {contentlet.*} from contentlet join inode contentlet_1_ " +
+                "on contentlet_1_.inode = contentlet.inode and contentlet_1_.type = 'contentlet' where contentlet.inode in (";
+        final List<String> inodes = new ArrayList<String>(inodeToIdentifier.keySet());
+        final Set<String> loadedInodes = new HashSet<String>();
+        for(List<String> chunk : partition(inodes, IN_CLAUSE_SIZE)) {
+            final HibernateUtil hu = new HibernateUtil(com.dotmarketing.portlets.contentlet.business.Contentlet.class);
+            hu.setSQLQuery(sql + DotConnect.createParametersPlaceholder(chunk.size()) + ")");
+            for(String inode : chunk) {
+                hu.setParam(inode);
+            }
+            final List<com.dotmarketing.portlets.contentlet.business.Contentlet> fatties = hu.list();
+            for(com.dotmarketing.portlets.contentlet.business.Contentlet fatty : fatties) {
+                final Contentlet con = FactoryLocator.getContentletFactory().convertFatContentletToContentlet(fatty);
+                loadedInodes.add(fatty.getInode());
+                final List<Contentlet> versions = result.get(inodeToIdentifier.get(fatty.getInode()));
+                if(versions != null) {
+                    versions.add(con);
+                    contentletsLoaded.incrementAndGet();
+                }
+            }
+            HibernateUtil.getSession().clear();
+        }
+
+        // a version pointing to a missing contentlet leaves the record in a bad state
+        for(Map.Entry<String, String> entry : inodeToIdentifier.entrySet()) {
+            if(!loadedInodes.contains(entry.getKey())) {
+                Logger.warn(this, "Contentlet with inode [" + entry.getKey() + "] of identifier [" + entry.getValue() + "] could not be loaded");
+                result.put(entry.getValue(), null);
+            }
+        }
+
+        loadNanos.addAndGet(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Maps the records to ES documents in parallel and submits the resulting
+     * bulk requests. This method returns once every record has been mapped;
+     * the bulk requests may still be in flight, their outcome is reported
+     * through {@link RecordHandler#bulkListener(List)}.
+     *
+     * @param records the records to index
+     * @param contentlets the contentlets of the records, as returned by
+     *            {@link #loadContentlets(List)}
+     * @param handler the handler for the record-level decisions
+     * @throws InterruptedException if the caller is interrupted while
+     *             waiting for the workers
+     */
+    public void index(final List<IndexJournal<String>> records, final Map<String, List<Contentlet>> contentlets,
+            final RecordHandler handler) throws InterruptedException {
+
+        final int partitionSize = Math.max(1, (int) Math.ceil(records.size() / (double) workers));
+        final List<List<IndexJournal<String>>> partitions = partition(records, partitionSize);
+
+        if(partitions.size() == 1) {
+            // no need to hand a single partition to another thread
+            new MappingTask(partitions.get(0), contentlets, handler, false).run();
+            return;
+        }
+
+        final DotSubmitter submitter = DotConcurrentFactory.getInstance().getSubmitter(REINDEX_SUBMITTER_NAME);
+        final List<Future<?>> futures = new ArrayList<Future<?>>(partitions.size());
+        for(List<IndexJournal<String>> partition : partitions) {
+            final MappingTask task = new MappingTask(partition, contentlets, handler, true);
+            try {
+                futures.add(submitter.submit(task));
+            } catch(DotConcurrentException e) {
+                Logger.debug(this, "Reindex submitter is full, mapping partition on the reindex thread: " + e.getMessage());
+                task.run();
+            }
+        }
+
+        for(Future<?> future : futures) {
+            try {
+                future.get();
+            } catch(ExecutionException e) {
+                Logger.error(this, "Unexpected error mapping reindex partition", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Waits until every bulk request in flight has been answered by ES, or
+     * until the timeout expires.
+     *
+     * @return true if there are no more bulk requests in flight
+     */
+    public boolean awaitInFlightBulks(final long timeout, final TimeUnit unit) throws InterruptedException {
+        if(inFlightBulks.tryAcquire(maxInFlightBulks, timeout, unit)) {
+            inFlightBulks.release(maxInFlightBulks);
+            return true;
+        }
+        return false;
+    }
+
+    private void submit(final BulkRequestBuilder bulk, final List<IndexJournal<String>> records, final RecordHandler handler)
+            throws InterruptedException {
+
+        final long start = System.nanoTime();
+        if(!inFlightBulks.tryAcquire()) {
+            // backpressure: ES has not answered the previous bulk requests yet
+            backpressureWaits.incrementAndGet();
+            inFlightBulks.acquire();
+            blockedNanos.addAndGet(System.nanoTime() - start);
+        }
+
+        final ActionListener<BulkResponse> listener = handler.bulkListener(records);
+        final int actions = bulk.numberOfActions();
+        bulksSubmitted.incrementAndGet();
+        actionsSubmitted.addAndGet(actions);
+
+        try {
+            bulk.execute(new ActionListener<BulkResponse>() {
+
+                public void onResponse(BulkResponse response) {
+                    try {
+                        listener.onResponse(response);
+                    } finally {
+                        completed(start);
+                    }
+                }
+
+                public void onFailure(Throwable ex) {
+                    try {
+                        listener.onFailure(ex);
+                    } finally {
+                        completed(start);
+                    }
+                }
+            });
+        } catch(RuntimeException e) {
+            inFlightBulks.release();
+            throw e;
+        }
+    }
+
+    private void completed(final long start) {
+        bulksCompleted.incrementAndGet();
+        submitNanos.addAndGet(System.nanoTime() - start);
+        inFlightBulks.release();
+    }
+
+    /**
+     * Returns the counters of every stage of the pipeline since the server
+     * started.
+     */
+    public Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<String, Object>();
+        stats.put("workers", workers);
+        stats.put("maxInFlightBulks", maxInFlightBulks);
+        stats.put("inFlightBulks", maxInFlightBulks - inFlightBulks.availablePermits());
+        stats.put("recordsReceived", recordsReceived.get());
+        stats.put("recordsFailed", recordsFailed.get());
+        stats.put("contentletsLoaded", contentletsLoaded.get());
+        stats.put("documentsMapped", documentsMapped.get());
+        stats.put("bulksSubmitted", bulksSubmitted.get());
+        stats.put("bulksCompleted", bulksCompleted.get());
+        stats.put("actionsSubmitted", actionsSubmitted.get());
+        stats.put("backpressureWaits", backpressureWaits.get());
+        stats.put("loadMillis", TimeUnit.NANOSECONDS.toMillis(loadNanos.get()));
+        stats.put("mapMillis", TimeUnit.NANOSECONDS.toMillis(mapNanos.get()));
+        stats.put("submitMillis", TimeUnit.NANOSECONDS.toMillis(submitNanos.get()));
+        stats.put("blockedMillis", TimeUnit.NANOSECONDS.toMillis(blockedNanos.get()));
+        stats.put("contentletsLoadedPerSecond", perSecond(contentletsLoaded.get(), loadNanos.get()));
+        stats.put("documentsMappedPerSecond", perSecond(documentsMapped.get(), mapNanos.get()));
+        return stats;
+    }
+
+    private static long perSecond(final long count, final long nanos) {
+        return nanos > 0 ? (count * TimeUnit.SECONDS.toNanos(1)) / nanos : 0;
+    }
+
+    /**
+     * Maps one partition of the batch into its own bulk request and submits
+     * it.
+     */
+    private class MappingTask implements Runnable {
+
+        private final List<IndexJournal<String>> records;
+        private final Map<String, List<Contentlet>> contentlets;
+        private final RecordHandler handler;
+        private final boolean closeResources;
+
+        MappingTask(final List<IndexJournal<String>> records, final Map<String, List<Contentlet>> contentlets,
+                final RecordHandler handler, final boolean closeResources) {
+            this.records = records;
+            this.contentlets = contentlets;
+            this.handler = handler;
+            this.closeResources = closeResources;
+        }
+
+        public void run() {
+            final long start = System.nanoTime();
+            final Client client = clientSupplier.get();
+            BulkRequestBuilder bulk = client.prepareBulk();
+            final List<IndexJournal<String>> processed = new ArrayList<IndexJournal<String>>(records.size());
+            final Map<IndexJournal<String>, Throwable> failures = new LinkedHashMap<IndexJournal<String>, Throwable>();
+
+            try {
+                boolean mappedInBatch = false;
+                if(records.size() > 1) {
+                    // map the whole partition at once so the per document queries are done per batch
+                    try {
+                        documentsMapped.addAndGet(handler.writeBatch(bulk, records, contentlets));
+                        for(IndexJournal<String> record : records) {
+                            processed.add(record);
+                            handler.afterRecord();
+                        }
+                        mappedInBatch = true;
+                    } catch(Exception e) {
+                        // fall back to one by one so only the failing records are retried
+                        Logger.debug(this, "Unable to map the reindex partition in batch, mapping record by record: " + e.getMessage());
+                        bulk = client.prepareBulk();
+                        processed.clear();
+                    }
+                }
+
+                if(!mappedInBatch) {
+                    for(IndexJournal<String> record : records) {
+                        try {
+                            final List<Contentlet> versions = contentlets.get(record.getIdentToIndex());
+                            if(versions == null) {
+                                throw new DotDataException("Unable to load the versions of identifier " + record.getIdentToIndex());
+                            }
+                            for(Contentlet con : versions) {
+                                handler.write(bulk, record, con);
+                                documentsMapped.incrementAndGet();
+                            }
+                        } catch(Exception e) {
+                            recordsFailed.incrementAndGet();
+                            failures.put(record, e);
+                            continue;
+                        }
+                        processed.add(record);
+                        handler.afterRecord();
+                    }
+                }
+                mapNanos.addAndGet(System.nanoTime() - start);
+
+                if(!failures.isEmpty()) {
+                    // reported once so a failing partition is handled (and delayed) once, not per record
+                    handler.recordsFailed(failures);
+                }
+
+                if(bulk.numberOfActions() > 0) {
+                    submit(bulk, processed, handler);
+                } else if(!processed.isEmpty()) {
+                    handler.recordsProcessed(processed);
+                }
+            } catch(InterruptedException e) {
+                Logger.warn(this, "Reindex worker interrupted before submitting " + processed.size() + " records");
+                final Map<IndexJournal<String>, Throwable> interrupted = new LinkedHashMap<IndexJournal<String>, Throwable>();
+                for(IndexJournal<String> record : processed) {
+                    interrupted.put(record, e);
+                }
+                if(!interrupted.isEmpty()) {
+                    handler.recordsFailed(interrupted);
+                }
+                Thread.currentThread().interrupt();
+            } finally {
+                if(closeResources) {
+                    DbConnectionFactory.closeSilently();
+                }
+            }
+        }
+    }
+}
@@ -6,13 +6,13 @@ import java.sql.Statement;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.dotcms.content.elasticsearch.business.ContentletIndexAPI;
-import com.dotcms.content.elasticsearch.util.ESClient;
 import com.dotcms.content.elasticsearch.util.ESReindexationProcessStatus;
 import com.dotcms.notifications.bean.NotificationLevel;
 import com.dotcms.notifications.bean.NotificationType;
@@ -23,22 +23,17 @@ import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
-import org.elasticsearch.client.Client;
 import com.dotmarketing.business.APILocator;
-import com.dotmarketing.business.FactoryLocator;
 import com.dotmarketing.common.business.journal.DistributedJournalAPI;
 import com.dotmarketing.common.business.journal.DistributedJournalFactory;
 import com.dotmarketing.common.business.journal.IndexJournal;
-import com.dotmarketing.common.db.DotConnect;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotHibernateException;
-import com.dotmarketing.exception.DotSecurityException;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
 import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
-import com.dotmarketing.util.UtilMethods;
 import com.liferay.portal.language.LanguageException;
 import com.liferay.portal.language.LanguageUtil;
 import com.liferay.portal.model.User;
@@ -93,6 +88,8 @@ public class ReindexThread extends Thread {
     private final CopyOnWriteArrayList<String> notifiedFailingRecords = new CopyOnWriteArrayList<String>();
 	private final DistributedJournalAPI<String> jAPI;
 	private final NotificationAPI notificationAPI;
+	private final ReindexPipeline pipeline;
+	private final ReindexPipeline.RecordHandler recordHandler = new ReindexRecordHandler();
 
 	private static ReindexThread instance;
 
@@ -114,8 +111,17 @@ public class ReindexThread extends Thread {
 	public ReindexThread(final DistributedJournalAPI<String> jAPI,
 						 final NotificationAPI notificationAPI) {
 
+		this(jAPI, notificationAPI, new ReindexPipeline());
+	}
+
+	@VisibleForTesting
+	public ReindexThread(final DistributedJournalAPI<String> jAPI,
+						 final NotificationAPI notificationAPI,
+						 final ReindexPipeline pipeline) {
+
 		this.jAPI = jAPI;
 		this.notificationAPI = notificationAPI;
+		this.pipeline = pipeline;
 
 	}
 
@@ -271,216 +277,28 @@ public class ReindexThread extends Thread {
 					}
 					else if(!remoteQ.isEmpty()) {
 					    wait=false;
-					    Client client=new ESClient().getClient();
-						BulkRequestBuilder bulk=client.prepareBulk();
-						final ArrayList<IndexJournal<String>> recordsToDelete= new ArrayList<>();
-						while(!remoteQ.isEmpty()) {
-
-							IndexJournal<String> idx = remoteQ.removeFirst();
-
-							try {
-								writeDocumentToIndex(bulk, idx);
-							} catch ( Exception e ) {
-
-								Logger.error(this, "Unable to index record with id [" + idx.getIdentToIndex() + "]", e);
-
-								//Counts the failed attempts when indexing and handles error notifications
-								addIndexingFailedAttempt();
-
-								try {
-									/*
-									Reset to null the server id of the failed records in the reindex journal table
-									in order to make them available again for the reindex process.
-									 */
-									List<IndexJournal<String>> failedRecords = new ArrayList<>();
-									failedRecords.add(idx);
-									jAPI.resetServerForReindexEntry(failedRecords);
-								} catch ( DotDataException dataException ) {
-									Logger.error(this, "Error adding back failed records to reindex queue", dataException);
-								}
-								// The total number of re-tries minus 1 will
-								// indicate the last opportunity of a record to
-								// be re-indexed.
-								int totalAttempts = (DistributedJournalFactory.REINDEX_JOURNAL_PRIORITY_FAILED_FIRST_ATTEMPT + DistributedJournalFactory.RETRY_FAILED_INDEX_TIMES);
-								String identToIndex = idx.getIdentToIndex();
-								if (!this.notifiedFailingRecords.contains(identToIndex) && idx.getPriority() >= totalAttempts) {
-									// The record was not able to be re-indexed,
-									// so a notification will be generated and
-									// the record will not be processed anymore
-									final User systemUser = APILocator.getUserAPI().getSystemUser();
-									String msg = "Could not re-index record with the Identifier '"
-											+ identToIndex
-											+ "'. The record is in a bad state or can be associated to orphaned records. You can try running the Fix Assets Inconsistencies tool and re-start the reindex.";
-									sendNotification("notification.reindexing.error.processrecord", new Object[] { identToIndex }, msg, systemUser);
-									this.notifiedFailingRecords.add(identToIndex);
-								}
-
-								try {
-									Thread.sleep(delayOnError);
-								} catch ( InterruptedException ie ) {
-									Logger.error(this, ie.getMessage(), ie);
-								}
-
-								/*
-								This continue will avoid to remove this failed record from the index journal table so
-								can be grab it again in another iteration.
-								 */
-								continue;
-							}
-
-							recordsToDelete.add(idx);
-
-							//If the REINDEX_SLEEP_DURING_INDEX was set
-							if ( reindexSleepDuringIndex ) {
-								try {
-									int sleepTime = getReindexSleepDuringIndexTime();
-									Thread.sleep(sleepTime);
-								} catch ( InterruptedException e ) {
-									Logger.error(this, e.getMessage(), e);
-								}
-							}
-
-						}
-
-						HibernateUtil.closeSession();
-				        if(bulk.numberOfActions()>0) {
-				            bulk.execute(new ActionListener<BulkResponse>() {
-
-								void handleRecords (List<IndexJournal<String>> failedRecords) {
-
-									//List of records to delete from the reindex journal table
-									addRecordsToDelete(recordsToDelete);
-
-									try {
-										if ( failedRecords != null && !failedRecords.isEmpty() ) {
-											/*
-											Reset to null the server id of the failed records in the reindex journal table
-											in order to make them available again for the reindex process.
-											 */
-											jAPI.resetServerForReindexEntry(failedRecords);
-										}
-									} catch ( DotDataException e ) {
-										Logger.error(this, "Error adding back failed records to reindex queue", e);
-									}
-								}
-
-								public void onResponse ( BulkResponse resp ) {
-
-									//Handle failures on the re-index process if any
-									List<IndexJournal<String>> failedRecords = failureHandler(resp);
-
-									//Handle the processed records
-									handleRecords(failedRecords);
-								}
-
-								public void onFailure ( Throwable ex ) {
-
-									Logger.error(ReindexThread.class, "Indexing process failed", ex);
-
-									//Handle the processed records
-									handleRecords(null);
-
-									//Reset the failed attempts count as the onFailure will finish the indexing process
-									failedAttemptsCount = 0;
-								}
-
-								/**
-								 * Checks if we had failures when indexing, on failure we will retry the indexing process of the records that failed,
-								 * the process WON'T continue with failed records.
-								 *
-								 * @param resp
-								 */
-								private List<IndexJournal<String>> failureHandler ( BulkResponse resp ) {
-
-									//List of records that failed and will be added to the queue for more attempts
-									List<IndexJournal<String>> failedRecords = new ArrayList<>();
-
-									//Verify if we have failures to handle
-									if ( resp.hasFailures() && isWorking() ) {
-
-										Logger.error(this, "Error indexing content [" + resp.buildFailureMessage() + "]");
-
-										//Counts the failed attempts when indexing and handles error notifications
-										addIndexingFailedAttempt();
-
-										//Search for the failed items
-										for ( BulkItemResponse itemResponse : resp.getItems() ) {
-
-											//Check if the indexing process failed for this item
-											if ( itemResponse.isFailed() ) {
-
-												//Get the data of the failed record
-												String initialId = itemResponse.getId();
-												//Remove the language from the id in order to get just the inode/identifier
-												int languageIndex = initialId.lastIndexOf("_");
-												String failedId = initialId;
-												if ( languageIndex != -1 ) {
-													failedId = initialId.substring(0, languageIndex);
-												}
-
-												//Search the failed record into the list of records to delete
-												Iterator<IndexJournal<String>> toDeleteIterator = recordsToDelete.iterator();
-												while ( toDeleteIterator.hasNext() ) {
-
-													IndexJournal<String> indexToDelete = toDeleteIterator.next();
-													if ( indexToDelete.getInodeToIndex().equals(failedId) || indexToDelete.getIdentToIndex().equals(failedId) ) {
-
-														//Add it to the list of records that failed and needs to be added back to the reindex queue
-														if ( !exist(failedRecords, indexToDelete) ) {
-															failedRecords.add(indexToDelete);
-														}
-
-														/*
-														Remove the record from the list of contents to remove from the index journal table
-														as it indexing process failed and we want a re-try with those records.
-														 */
-														toDeleteIterator.remove();
-													}
-												}
-											}
-										}
-
-										if ( !failedRecords.isEmpty() ) {
-
-											Logger.error(this, "Reindex thread will try to re-index [" + String.valueOf(failedRecords.size()) + "] failed records.");
-
-											try {
-												Thread.sleep(delayOnError);
-											} catch ( InterruptedException e ) {
-												Logger.error(this, e.getMessage(), e);
-											}
-										}
-									}
-
-									return failedRecords;
-								}
-
-								/**
-								 * Checks if a given record already exist on a given list
-								 *
-								 * @param toRestore
-								 * @param toCompare
-								 * @return
-								 */
-								private boolean exist ( List<IndexJournal<String>> toRestore, IndexJournal<String> toCompare ) {
-
-									boolean exist = false;
-									for ( IndexJournal<String> current : toRestore ) {
-
-										if ( current.getId() == toCompare.getId() ) {
-											exist = true;
-											break;
-										}
-									}
-
-									return exist;
-								}
-
-							});
-				        }
-				        else if(recordsToDelete.size()>0) {
-				            addRecordsToDelete(recordsToDelete);
-				        }
+					    final List<IndexJournal<String>> batch = new ArrayList<IndexJournal<String>>(remoteQ);
+					    remoteQ.clear();
+
+					    // stage 1: bulk load the version info and contentlets of the whole batch
+					    Map<String, List<Contentlet>> contentlets = null;
+					    try {
+					        contentlets = pipeline.loadContentlets(batch);
+					    } catch ( Exception e ) {
+					        Logger.error(this, "Unable to load the contentlets of a batch of " + batch.size() + " records", e);
+					        final Map<IndexJournal<String>, Throwable> failures = new LinkedHashMap<IndexJournal<String>, Throwable>();
+					        for ( IndexJournal<String> idx : batch ) {
+					            failures.put(idx, e);
+					        }
+					        handleFailedRecords(failures);
+					    } finally {
+					        HibernateUtil.closeSession();
+					    }
+
+					    // stage 2 and 3: map the documents in parallel and feed the bulk requests
+					    if ( contentlets != null ) {
+					        pipeline.index(batch, contentlets, recordHandler);
+					    }
 					}
 					
 				} catch (Exception ex) {
@@ -664,40 +482,296 @@ public class ReindexThread extends Thread {
 	    }
 	}
 
-	@SuppressWarnings("unchecked")
-	private void writeDocumentToIndex(BulkRequestBuilder bulk, IndexJournal<String> idx) throws DotDataException, DotSecurityException {
+	/**
+	 * Adds the given version of the contentlet referenced by the journal record
+	 * to the bulk request, or removes it from the index if the record is a
+	 * delete.
+	 */
+	private void writeContentletToIndex(BulkRequestBuilder bulk, IndexJournal<String> idx, Contentlet con) throws DotDataException {
 	    Logger.debug(this, "Indexing document "+idx.getIdentToIndex());
 	    System.setProperty("IN_FULL_REINDEX", "true");
-	    
-	    String sql = "select working_inode,live_inode from contentlet_version_info where identifier=?";
-	    
-        DotConnect dc = new DotConnect();
-        dc.setSQL(sql);
-        dc.addParam(idx.getIdentToIndex());
-        List<Map<String,String>> ret = dc.loadResults();
-        List<String> inodes = new ArrayList<String>(); 
-        for(Map<String,String> m : ret) {
-        	String workingInode = m.get("working_inode");
-        	String liveInode = m.get("live_inode");
-        	inodes.add(workingInode);
-        	if(UtilMethods.isSet(liveInode) && !workingInode.equals(liveInode)){
-        		inodes.add(liveInode);
-        	}
-        }
-        for(String inode : inodes) {
-            Contentlet con = FactoryLocator.getContentletFactory().convertFatContentletToContentlet(
-                    (com.dotmarketing.portlets.contentlet.business.Contentlet)
-                        HibernateUtil.load(com.dotmarketing.portlets.contentlet.business.Contentlet.class, inode));
-            
-            if(idx.isDelete() && idx.getIdentToIndex().equals(con.getIdentifier()))
-                // we delete contentlets from the identifier pointed on index journal record
-                // its dependencies are reindexed in order to update its relationships fields
-                indexAPI.removeContentFromIndex(con);
-            else
-                indexAPI.addContentToIndex(con,false,true,indexAPI.isInFullReindex(),bulk);
-        }
+
+	    if(idx.isDelete() && idx.getIdentToIndex().equals(con.getIdentifier()))
+	        // we delete contentlets from the identifier pointed on index journal record
+	        // its dependencies are reindexed in order to update its relationships fields
+	        indexAPI.removeContentFromIndex(con);
+	    else
+	        indexAPI.addContentToIndex(con,false,true,indexAPI.isInFullReindex(),bulk);
 	}
-	
+
+	/**
+	 * Handles the records of a batch that could not be added to a bulk
+	 * request: the records are made available again for the reindex process
+	 * and, for the ones that already used all their attempts, a notification is
+	 * sent to the user. The thread waits for {@code reindex.thread.delayonerror}
+	 * once for the whole batch.
+	 */
+	private void handleFailedRecords(Map<IndexJournal<String>, Throwable> failures) {
+
+		for ( Map.Entry<IndexJournal<String>, Throwable> failure : failures.entrySet() ) {
+			Logger.error(this, "Unable to index record with id [" + failure.getKey().getIdentToIndex() + "]", failure.getValue());
+		}
+
+		//Counts the failed attempts when indexing and handles error notifications
+		addIndexingFailedAttempt();
+
+		try {
+			/*
+			Reset to null the server id of the failed records in the reindex journal table
+			in order to make them available again for the reindex process.
+			 */
+			jAPI.resetServerForReindexEntry(new ArrayList<IndexJournal<String>>(failures.keySet()));
+		} catch ( DotDataException dataException ) {
+			Logger.error(this, "Error adding back failed records to reindex queue", dataException);
+		}
+		// The total number of re-tries minus 1 will
+		// indicate the last opportunity of a record to
+		// be re-indexed.
+		int totalAttempts = (DistributedJournalFactory.REINDEX_JOURNAL_PRIORITY_FAILED_FIRST_ATTEMPT + DistributedJournalFactory.RETRY_FAILED_INDEX_TIMES);
+		for ( IndexJournal<String> idx : failures.keySet() ) {
+			String identToIndex = idx.getIdentToIndex();
+			if (!this.notifiedFailingRecords.contains(identToIndex) && idx.getPriority() >= totalAttempts) {
+				// The record was not able to be re-indexed,
+				// so a notification will be generated and
+				// the record will not be processed anymore
+				try {
+					final User systemUser = APILocator.getUserAPI().getSystemUser();
+					String msg = "Could not re-index record with the Identifier '"
+							+ identToIndex
+							+ "'. The record is in a bad state or can be associated to orphaned records. You can try running the Fix Assets Inconsistencies tool and re-start the reindex.";
+					sendNotification("notification.reindexing.error.processrecord", new Object[] { identToIndex }, msg, systemUser);
+					this.notifiedFailingRecords.addIfAbsent(identToIndex);
+				} catch ( DotDataException | LanguageException notificationException ) {
+					Logger.error(this, "Error creating a system notification for the record [" + identToIndex + "]", notificationException);
+				}
+			}
+		}
+
+		try {
+			Thread.sleep(delayOnError);
+		} catch ( InterruptedException ie ) {
+			Logger.error(this, ie.getMessage(), ie);
+		}
+	}
+
+	/**
+	 * Returns the throughput counters of the reindex pipeline stages.
+	 */
+	public Map<String, Object> getPipelineStats() {
+		return pipeline.getStats();
+	}
+
+	/**
+	 * Bridges the {@link ReindexPipeline} workers with the record handling of
+	 * this thread.
+	 */
+	private class ReindexRecordHandler implements ReindexPipeline.RecordHandler {
+
+		@Override
+		public void write(BulkRequestBuilder bulk, IndexJournal<String> record, Contentlet contentlet) throws Exception {
+			writeContentletToIndex(bulk, record, contentlet);
+		}
+
+		@Override
+		public int writeBatch(BulkRequestBuilder bulk, List<IndexJournal<String>> records,
+				Map<String, List<Contentlet>> contentlets) throws Exception {
+			final List<Contentlet> toIndex = new ArrayList<Contentlet>();
+			int written = 0;
+			for(IndexJournal<String> idx : records) {
+				final List<Contentlet> versions = contentlets.get(idx.getIdentToIndex());
+				if(versions == null) {
+					throw new DotDataException("Unable to load the versions of identifier " + idx.getIdentToIndex());
+				}
+				for(Contentlet con : versions) {
+					if(idx.isDelete() && idx.getIdentToIndex().equals(con.getIdentifier())) {
+						indexAPI.removeContentFromIndex(con);
+					} else {
+						toIndex.add(con);
+					}
+					written++;
+				}
+			}
+
+			System.setProperty("IN_FULL_REINDEX", "true");
+			if(!toIndex.isEmpty()) {
+				indexAPI.indexContentList(toIndex, bulk, indexAPI.isInFullReindex());
+			}
+			return written;
+		}
+
+		@Override
+		public void recordsFailed(Map<IndexJournal<String>, Throwable> failures) {
+			handleFailedRecords(failures);
+		}
+
+		@Override
+		public void recordsProcessed(List<IndexJournal<String>> records) {
+			addRecordsToDelete(records);
+		}
+
+		@Override
+		public ActionListener<BulkResponse> bulkListener(List<IndexJournal<String>> records) {
+			return new BulkIndexListener(new ArrayList<IndexJournal<String>>(records));
+		}
+
+		@Override
+		public void afterRecord() {
+			//If the REINDEX_SLEEP_DURING_INDEX was set
+			if ( reindexSleepDuringIndex ) {
+				try {
+					int sleepTime = getReindexSleepDuringIndexTime();
+					Thread.sleep(sleepTime);
+				} catch ( InterruptedException e ) {
+					Logger.error(this, e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Handles the response of a bulk request sent by the pipeline: the indexed
+	 * records are removed from the reindex journal and the failed ones are
+	 * made available again for a re-try.
+	 */
+	private class BulkIndexListener implements ActionListener<BulkResponse> {
+
+		private final List<IndexJournal<String>> recordsToDelete;
+
+		BulkIndexListener(List<IndexJournal<String>> recordsToDelete) {
+			this.recordsToDelete = recordsToDelete;
+		}
+
+		void handleRecords (List<IndexJournal<String>> failedRecords) {
+
+			//List of records to delete from the reindex journal table
+			addRecordsToDelete(recordsToDelete);
+
+			try {
+				if ( failedRecords != null && !failedRecords.isEmpty() ) {
+					/*
+					Reset to null the server id of the failed records in the reindex journal table
+					in order to make them available again for the reindex process.
+					 */
+					jAPI.resetServerForReindexEntry(failedRecords);
+				}
+			} catch ( DotDataException e ) {
+				Logger.error(this, "Error adding back failed records to reindex queue", e);
+			}
+		}
+
+		public void onResponse ( BulkResponse resp ) {
+
+			//Handle failures on the re-index process if any
+			List<IndexJournal<String>> failedRecords = failureHandler(resp);
+
+			//Handle the processed records
+			handleRecords(failedRecords);
+		}
+
+		public void onFailure ( Throwable ex ) {
+
+			Logger.error(ReindexThread.class, "Indexing process failed", ex);
+
+			//Handle the processed records
+			handleRecords(null);
+
+			//Reset the failed attempts count as the onFailure will finish the indexing process
+			failedAttemptsCount = 0;
+		}
+
+		/**
+		 * Checks if we had failures when indexing, on failure we will retry the indexing process of the records that failed,
+		 * the process WON'T continue with failed records.
+		 *
+		 * @param resp
+		 */
+		private List<IndexJournal<String>> failureHandler ( BulkResponse resp ) {
+
+			//List of records that failed and will be added to the queue for more attempts
+			List<IndexJournal<String>> failedRecords = new ArrayList<>();
+
+			//Verify if we have failures to handle
+			if ( resp.hasFailures() && isWorking() ) {
+
+				Logger.error(this, "Error indexing content [" + resp.buildFailureMessage() + "]");
+
+				//Counts the failed attempts when indexing and handles error notifications
+				addIndexingFailedAttempt();
+
+				//Search for the failed items
+				for ( BulkItemResponse itemResponse : resp.getItems() ) {
+
+					//Check if the indexing process failed for this item
+					if ( itemResponse.isFailed() ) {
+
+						//Get the data of the failed record
+						String initialId = itemResponse.getId();
+						//Remove the language from the id in order to get just the inode/identifier
+						int languageIndex = initialId.lastIndexOf("_");
+						String failedId = initialId;
+						if ( languageIndex != -1 ) {
+							failedId = initialId.substring(0, languageIndex);
+						}
+
+						//Search the failed record into the list of records to delete
+						Iterator<IndexJournal<String>> toDeleteIterator = recordsToDelete.iterator();
+						while ( toDeleteIterator.hasNext() ) {
+
+							IndexJournal<String> indexToDelete = toDeleteIterator.next();
+							if ( failedId.equals(indexToDelete.getInodeToIndex()) || failedId.equals(indexToDelete.getIdentToIndex()) ) {
+
+								//Add it to the list of records that failed and needs to be added back to the reindex queue
+								if ( !exist(failedRecords, indexToDelete) ) {
+									failedRecords.add(indexToDelete);
+								}
+
+								/*
+								Remove the record from the list of contents to remove from the index journal table
+								as it indexing process failed and we want a re-try with those records.
+								 */
+								toDeleteIterator.remove();
+							}
+						}
+					}
+				}
+
+				if ( !failedRecords.isEmpty() ) {
+
+					Logger.error(this, "Reindex thread will try to re-index [" + String.valueOf(failedRecords.size()) + "] failed records.");
+
+					try {
+						Thread.sleep(delayOnError);
+					} catch ( InterruptedException e ) {
+						Logger.error(this, e.getMessage(), e);
+					}
+				}
+			}
+
+			return failedRecords;
+		}
+
+		/**
+		 * Checks if a given record already exist on a given list
+		 *
+		 * @param toRestore
+		 * @param toCompare
+		 * @return
+		 */
+		private boolean exist ( List<IndexJournal<String>> toRestore, IndexJournal<String> toCompare ) {
+
+			boolean exist = false;
+			for ( IndexJournal<String> current : toRestore ) {
+
+				if ( current.getId() == toCompare.getId() ) {
+					exist = true;
+					break;
+				}
+			}
+
+			return exist;
+		}
+	}
+
 	int threadsPausing = 0;
 
 	public synchronized void pause() {
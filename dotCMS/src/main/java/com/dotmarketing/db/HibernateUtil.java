@@ -78,6 +78,8 @@ public class HibernateUtil {
         }
     };
 
+	private static final ThreadLocal<Integer> commitListenerBatchSize=new ThreadLocal<Integer>();
+
 	public HibernateUtil(Class c) {
 		setClass(c);
 	}
@@ -694,6 +696,18 @@ public class HibernateUtil {
 	    }
 	}
 
+	/**
+	 * Sets the number of contentlets indexed per bulk request when the transactions
+	 * of the current thread are committed, null to use INDEX_COMMIT_LISTENER_BATCH_SIZE
+	 * @param batchSize
+	 */
+	public static void setCommitListenerBatchSize(Integer batchSize) {
+	    if(batchSize==null)
+	        commitListenerBatchSize.remove();
+	    else
+	        commitListenerBatchSize.set(batchSize);
+	}
+
 	public static void addRollbackListener(DotRunnable listener) throws DotHibernateException{
         try {
             if(getSession().connection().getAutoCommit())
@@ -750,7 +764,8 @@ public class HibernateUtil {
 		
 		
 		List<List<Contentlet>> listOfLists = new ArrayList<List<Contentlet>>();
-		int batchSize = Config.getIntProperty("INDEX_COMMIT_LISTENER_BATCH_SIZE", 50);
+		int batchSize = commitListenerBatchSize.get()!=null ? commitListenerBatchSize.get()
+				: Config.getIntProperty("INDEX_COMMIT_LISTENER_BATCH_SIZE", 50);
 		
 		
 		for(DotRunnable runner : listeners){
@@ -5,7 +5,6 @@ import java.net.InetAddress;
 import java.net.URLDecoder;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
@@ -13,7 +12,6 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import com.dotcms.util.HttpRequestDataUtil;
-import com.dotmarketing.beans.BrowserSniffer;
 import com.dotmarketing.beans.Clickstream;
 import com.dotmarketing.beans.Clickstream404;
 import com.dotmarketing.beans.ClickstreamRequest;
@@ -24,6 +22,7 @@ import com.dotmarketing.business.DotStateException;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.factories.ClickstreamRecorder.SessionClicks;
 import com.dotmarketing.listeners.ClickstreamListener;
 import com.dotmarketing.loggers.DatabaseClickstreamLogger;
 import com.dotmarketing.util.BotChecker;
@@ -51,18 +50,19 @@ public class ClickstreamFactory {
 
 	/**
 	 * Adds a new request to the stream of clicks. The HttpServletRequest is
-	 * converted to a ClickstreamRequest object and added to the clickstream.
+	 * converted to a ClickstreamRequest object and queued in the
+	 * {@link ClickstreamRecorder}, which saves it in the background.
 	 *
 	 * @param request
 	 *            - The servlet request to be added to the clickstream.
 	 * @throws DotDataException
 	 *             An error occurred when interacting with the database.
 	 */
-	public static Clickstream addRequest(HttpServletRequest request, HttpServletResponse response,
+	public static void addRequest(HttpServletRequest request, HttpServletResponse response,
 			Host host) throws DotDataException {
 
 		if(request.getAttribute("CLICKSTREAM_RECORDED")!=null){
-			return (Clickstream) request.getSession().getAttribute("clickstream");
+			return;
 		}
 		request.setAttribute("CLICKSTREAM_RECORDED", true);
 
@@ -70,11 +70,10 @@ public class ClickstreamFactory {
 		if(pointer ==null)pointer=request.getRequestURI();
 
 		HttpSession session = request.getSession();
-		
-		Clickstream clickstream = (Clickstream) request.getSession(true).getAttribute("clickstream");
+
+		SessionClicks clickstream = ClickstreamRecorder.startSession(session.getId(), host.getIdentifier());
 		if (clickstream == null) {
-			clickstream = new Clickstream();
-			session.setAttribute("clickstream", clickstream);
+			return;
 		}
 
 		String associatedIdentifier = request.getParameter("id");
@@ -100,92 +99,47 @@ public class ClickstreamFactory {
 			associatedIdentifier = APILocator.getIdentifierAPI().find(host, uri).getInode();
 		}
 
-		if (UtilMethods.isSet(associatedIdentifier)) {
-			clickstream.setLastPageId(associatedIdentifier);
-			clickstream.setLastRequest(new Date());
-		}
-
-		if (clickstream.getHostname() == null) {
-			clickstream.setHostname(request.getRemoteHost());
-		}
-		if (clickstream.getRemoteAddress() == null) {
+		// the first request of the session sets up the visitor
+		boolean firstRequest = clickstream.getNumberOfRequests() == 0;
+		if (firstRequest) {
 			try {
 				InetAddress address = HttpRequestDataUtil.getIpAddress(request);
 				if (UtilMethods.isSet(address)) {
-					clickstream.setRemoteAddress(address.getHostAddress());
+					clickstream.remoteAddress = address.getHostAddress();
+					if (!clickstream.remoteAddress.equals(request.getRemoteHost())) {
+						clickstream.remoteHostname = request.getRemoteHost();
+					}
 				}
 			} catch (UnknownHostException e) {
 				Logger.debug(ClickstreamFactory.class, "Could not retrieve IP address from request.");
 			}
-		}
-		// Setup initial referrer
-		if (clickstream.getInitialReferrer() == null) {
-			if (request.getHeader("Referer") != null) {
-				clickstream.setInitialReferrer(request.getHeader("Referer"));
-			} else {
-				clickstream.setInitialReferrer("");
-			}
-		}
-		// if this is the first request in the click stream
-		if (clickstream.getClickstreamRequests().size() == Config.getIntProperty("MIN_CLICKSTREAM_REQUESTS_TO_SAVE", 2)) {
-			if (request.getHeader("User-Agent") != null) {
-				clickstream.setUserAgent(request.getHeader("User-Agent"));
-			} else {
-				clickstream.setUserAgent("");
-			}
-			BrowserSniffer bs = new BrowserSniffer(request.getHeader("User-Agent"));
-			session.setAttribute("browserSniffer", bs);
-			clickstream.setBrowserName(bs.getBrowserName());
-			clickstream.setOperatingSystem(bs.getOS());
-			clickstream.setBrowserVersion(bs.getBrowserVersion());
-			clickstream.setMobileDevice(bs.isMobile());
-			clickstream.setBot(BotChecker.isBot(request));
-			clickstream.setFirstPageId(associatedIdentifier);
-			clickstream.setHostId(host.getIdentifier());
-
+			clickstream.initialReferrer = request.getHeader("Referer") != null ? request.getHeader("Referer") : "";
+			clickstream.userAgent = request.getHeader("User-Agent") != null ? request.getHeader("User-Agent") : "";
+			clickstream.bot = BotChecker.isBot(request);
 		}
 
 		// Set the cookie id to the long lived cookie
 		if (!UtilMethods.isSet(clickstream.getCookieId())) {
 
-			String _dotCMSID = "";
 			if(!UtilMethods.isSet(UtilMethods.getCookieValue(request.getCookies(),
 					com.dotmarketing.util.WebKeys.LONG_LIVED_DOTCMS_ID_COOKIE))) {
 				CookieUtil.createCookie();
 
 			}
-			_dotCMSID = UtilMethods.getCookieValue(request.getCookies(),
+			clickstream.cookieId = UtilMethods.getCookieValue(request.getCookies(),
 					com.dotmarketing.util.WebKeys.LONG_LIVED_DOTCMS_ID_COOKIE);
-			clickstream.setCookieId(_dotCMSID);
 		}
 
 		// set the user if we have it
 		if (session.getAttribute(WebKeys.CMS_USER) != null && clickstream.getUserId() == null) {
 			User user = (User) session.getAttribute(WebKeys.CMS_USER);
-			setClickStreamUser(user.getUserId(), request);
+			clickstream.userId = user.getUserId();
 		}
 
-		ClickstreamRequest cr = ClickstreamRequestFactory.getClickstreamRequest(request, clickstream.getLastRequest());
-		clickstream.setNumberOfRequests(clickstream.getNumberOfRequests() + 1);
-		cr.setRequestOrder(clickstream.getNumberOfRequests());
-
-
+		ClickstreamRequest cr = ClickstreamRequestFactory.getClickstreamRequest(request, null);
 		cr.setHostId(host.getIdentifier());
 		cr.setAssociatedIdentifier(associatedIdentifier);
-
-
-		// prevent dupe entries into the clickstream table - just retun if the user is on the same page
-		if(clickstream.getClickstreamRequests() != null &&clickstream.getClickstreamRequests().size()>0){
-			ClickstreamRequest last = clickstream.getClickstreamRequests().get(clickstream.getClickstreamRequests().size()-1);
-			if(last != null && cr.getAssociatedIdentifier().equals( last.getAssociatedIdentifier())){
-				return clickstream;
-			}
-		}
-
-		clickstream.addClickstreamRequest(cr);
-		return clickstream;
-
-
+		ClickstreamRecorder.recordRequest(clickstream, cr);
 
 	}
 
@@ -264,19 +218,9 @@ public class ClickstreamFactory {
 		if (!UtilMethods.isSet(userId))
 			return;
 
-		HttpSession session = ((HttpServletRequest) request).getSession();
-		Clickstream clickstream = null;
-		if (session.getAttribute("clickstream") == null) {
-			clickstream = new Clickstream();
-		} else {
-			clickstream = (Clickstream) session.getAttribute("clickstream");
-		}
-
 		// overwrite if user is not already set
-		if (!UtilMethods.isSet(clickstream.getUserId())) {
-			clickstream.setUserId(userId);
-		}
-		session.setAttribute("clickstream", clickstream);
+		HttpSession session = ((HttpServletRequest) request).getSession();
+		ClickstreamRecorder.setUser(session.getId(), userId);
 	}
 
 	public static void add404Request(HttpServletRequest request, HttpServletResponse response,
@@ -319,15 +263,19 @@ public class ClickstreamFactory {
 			clickstream404.setQueryString(queryString);
 
 			clickstream404.setHostId(host.getIdentifier());
-			Clickstream clickstream = (Clickstream) request.getSession().getAttribute("clickstream");
+			SessionClicks clickstream = ClickstreamRecorder.getSession(request.getSession().getId());
+			if(clickstream==null){
+				addRequest(request, response, host);
+				clickstream = ClickstreamRecorder.getSession(request.getSession().getId());
+			}
 			if(clickstream==null){
-				clickstream = addRequest(request, response, host);
+				return;
 			}
 			if (user != null && clickstream.getUserId() == null) {
 				clickstream404.setUserId(user.getUserId());
 			}
 			clickstream404.setTimestamp(clickstream.getLastRequest());
-			clickstream.addClickstream404(clickstream404);
+			ClickstreamRecorder.record404(clickstream, clickstream404);
 		}
 
 	}
@@ -0,0 +1,650 @@
+package com.dotmarketing.factories;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
+import com.dotcms.util.RingBuffer;
+import com.dotmarketing.beans.BrowserSniffer;
+import com.dotmarketing.beans.Clickstream;
+import com.dotmarketing.beans.Clickstream404;
+import com.dotmarketing.beans.ClickstreamRequest;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.ConfigUtils;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+
+/**
+ * Records the clickstream of the site visitors off the request thread. The
+ * request thread only updates the small state the recorder keeps for the
+ * session and adds a {@link Click} to a lock-free ring buffer, a background
+ * writer drains the buffer and saves the clicks in a single transaction per
+ * batch, or appends them to a daily file when <code>CLICKSTREAM_WRITER</code>
+ * is <code>file</code>.
+ * <p>
+ * When the buffer is full the clicks are dropped and counted, so an overloaded
+ * database slows down the analytics and not the site. The session state is not
+ * stored in the HTTP session, it is removed when the session is destroyed or
+ * after <code>CLICKSTREAM_SESSION_IDLE_MINUTES</code> without requests. The
+ * rules engine reads the page views of a session from it.
+ */
+public class ClickstreamRecorder {
+
+    static final int REQUEST = 0;
+    static final int NOT_FOUND = 1;
+    static final int END = 2;
+
+    private static final RingBuffer<Click> buffer = new RingBuffer<Click>(Config.getIntProperty("CLICKSTREAM_BUFFER_SIZE", 16384));
+
+    private static final ConcurrentHashMap<String, SessionClicks> sessions = new ConcurrentHashMap<String, SessionClicks>();
+
+    private static final AtomicInteger untrackedSessions = new AtomicInteger();
+
+    private static volatile Thread writer;
+
+    private static volatile boolean running = true;
+
+    /**
+     * Returns the clickstream state of a session, or null if the session has
+     * not visited a page yet.
+     */
+    public static SessionClicks getSession(final String sessionId) {
+        return sessionId == null ? null : sessions.get(sessionId);
+    }
+
+    /**
+     * @return The number of pages, including repeated ones, the session has visited
+     */
+    public static int getPageViews(final String sessionId) {
+        final SessionClicks session = getSession(sessionId);
+        return session == null ? 0 : session.getNumberOfRequests();
+    }
+
+    /**
+     * Returns the state of a session, starting it on its first request.
+     *
+     * @return The state, or null if too many sessions are being tracked
+     */
+    static SessionClicks startSession(final String sessionId, final String hostId) {
+        SessionClicks session = sessions.get(sessionId);
+        if (session == null) {
+            if (sessions.size() >= Config.getIntProperty("CLICKSTREAM_MAX_SESSIONS", 50000)) {
+                untrackedSessions.incrementAndGet();
+                return null;
+            }
+            final SessionClicks created = new SessionClicks(sessionId, hostId);
+            session = sessions.putIfAbsent(sessionId, created);
+            if (session == null) {
+                session = created;
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Queues a request of a page. A request of the page the session is already
+     * on is counted but not recorded.
+     */
+    static void recordRequest(final SessionClicks session, final ClickstreamRequest request) {
+        final int order = session.requests.incrementAndGet();
+        session.lastRequest = System.currentTimeMillis();
+        final String identifier = request.getAssociatedIdentifier();
+        if (identifier != null && identifier.equals(session.lastPageId)) {
+            return;
+        }
+        if (UtilMethods.isSet(identifier)) {
+            if (session.firstPageId == null) {
+                session.firstPageId = identifier;
+            }
+            session.lastPageId = identifier;
+        }
+        request.setRequestOrder(order);
+        request.setTimestamp(new Date(session.lastRequest));
+        offer(new Click(REQUEST, session, request, null));
+    }
+
+    /**
+     * Queues a request of a page that does not exist.
+     */
+    static void record404(final SessionClicks session, final Clickstream404 notFound) {
+        offer(new Click(NOT_FOUND, session, null, notFound));
+    }
+
+    /**
+     * Sets the user of a session, the clicks already saved without a user are
+     * updated on the next batch.
+     */
+    public static void setUser(final String sessionId, final String userId) {
+        final SessionClicks session = getSession(sessionId);
+        if (session != null && !UtilMethods.isSet(session.userId)) {
+            session.userId = userId;
+        }
+    }
+
+    /**
+     * Removes the state of a session once its pending clicks are written.
+     */
+    public static void endSession(final String sessionId) {
+        final SessionClicks session = getSession(sessionId);
+        if (session != null && (writer == null || !buffer.offer(new Click(END, session, null, null)))) {
+            sessions.remove(sessionId, session);
+        }
+    }
+
+    /**
+     * @return The number of clicks dropped because the buffer was full
+     */
+    public static long getDropped() {
+        return buffer.getDropped();
+    }
+
+    /**
+     * Writes the pending clicks and stops the writer.
+     */
+    public static void shutdown() {
+        running = false;
+        final Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void offer(final Click click) {
+        if (writer == null) {
+            startWriter();
+        }
+        buffer.offer(click);
+    }
+
+    private static synchronized void startWriter() {
+        if (writer == null && running) {
+            final Thread thread = new Thread(new Writer(), "ClickstreamWriter");
+            thread.setDaemon(true);
+            thread.start();
+            writer = thread;
+        }
+    }
+
+    /**
+     * A click, with the request or the missing page it recorded.
+     */
+    static final class Click {
+
+        private final int type;
+        private final SessionClicks session;
+        private final ClickstreamRequest request;
+        private final Clickstream404 notFound;
+
+        Click(final int type, final SessionClicks session, final ClickstreamRequest request, final Clickstream404 notFound) {
+            this.type = type;
+            this.session = session;
+            this.request = request;
+            this.notFound = notFound;
+        }
+    }
+
+    /**
+     * The clickstream state of a session. The request threads of the session
+     * update the counters and pages, the writer keeps what it saved.
+     */
+    public static final class SessionClicks {
+
+        private final String sessionId;
+        private final long start = System.currentTimeMillis();
+        private final AtomicInteger requests = new AtomicInteger();
+        volatile String hostId;
+        volatile String cookieId;
+        volatile String userId;
+        volatile String remoteAddress;
+        volatile String remoteHostname;
+        volatile String initialReferrer;
+        volatile String userAgent;
+        volatile boolean bot;
+        volatile String firstPageId;
+        volatile String lastPageId;
+        volatile long lastRequest = start;
+
+        // only used by the writer
+        private long clickstreamId;
+        private String savedUserId;
+        private final List<ClickstreamRequest> held = new ArrayList<ClickstreamRequest>(2);
+
+        SessionClicks(final String sessionId, final String hostId) {
+            this.sessionId = sessionId;
+            this.hostId = hostId;
+        }
+
+        public int getNumberOfRequests() {
+            return requests.get();
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getCookieId() {
+            return cookieId;
+        }
+
+        public String getHostId() {
+            return hostId;
+        }
+
+        public String getInitialReferrer() {
+            return initialReferrer;
+        }
+
+        public String getFirstPageId() {
+            return firstPageId;
+        }
+
+        public String getLastPageId() {
+            return lastPageId;
+        }
+
+        public Date getStart() {
+            return new Date(start);
+        }
+
+        public Date getLastRequest() {
+            return new Date(lastRequest);
+        }
+    }
+
+    /**
+     * Where the writer saves the clicks.
+     */
+    interface Store {
+
+        void startTransaction() throws DotDataException;
+
+        void commitTransaction() throws DotDataException;
+
+        void rollbackTransaction() throws DotDataException;
+
+        void close();
+
+        /**
+         * @return The id of the saved clickstream
+         */
+        long save(Clickstream clickstream) throws DotDataException;
+
+        void save(ClickstreamRequest request) throws DotDataException;
+
+        void save(Clickstream404 notFound) throws DotDataException;
+
+        void update(long clickstreamId, Date lastRequest, String lastPageId, int numberOfRequests, String userId) throws DotDataException;
+
+        /**
+         * Gives a user to the older clickstreams of a long lived cookie that
+         * have no user.
+         */
+        void assignUser(String userId, String cookieId) throws DotDataException;
+    }
+
+    private static class DatabaseStore implements Store {
+
+        @Override
+        public void startTransaction() throws DotDataException {
+            HibernateUtil.startTransaction();
+        }
+
+        @Override
+        public void commitTransaction() throws DotDataException {
+            HibernateUtil.commitTransaction();
+        }
+
+        @Override
+        public void rollbackTransaction() throws DotDataException {
+            HibernateUtil.rollbackTransaction();
+        }
+
+        @Override
+        public void close() {
+            DbConnectionFactory.closeSilently();
+        }
+
+        @Override
+        public long save(final Clickstream clickstream) throws DotDataException {
+            HibernateUtil.save(clickstream);
+            return clickstream.getClickstreamId();
+        }
+
+        @Override
+        public void save(final ClickstreamRequest request) throws DotDataException {
+            HibernateUtil.save(request);
+        }
+
+        @Override
+        public void save(final Clickstream404 notFound) throws DotDataException {
+            HibernateUtil.save(notFound);
+        }
+
+        @Override
+        public void update(final long clickstreamId, final Date lastRequest, final String lastPageId, final int numberOfRequests,
+                final String userId) throws DotDataException {
+            final DotConnect dc = new DotConnect();
+            dc.setSQL("update clickstream set end_date = ?, last_page_id = ?, number_of_requests = ?, user_id = ? where clickstream_id = ?");
+            dc.addParam(lastRequest);
+            dc.addParam(lastPageId);
+            dc.addParam(numberOfRequests);
+            dc.addParam(userId);
+            dc.addParam(clickstreamId);
+            dc.loadResult();
+        }
+
+        @Override
+        public void assignUser(final String userId, final String cookieId) throws DotDataException {
+            final DotConnect dc = new DotConnect();
+            dc.setSQL("update clickstream set user_id = ? where cookie_id = ? and user_id is null");
+            dc.addParam(userId);
+            dc.addParam(cookieId);
+            dc.loadResult();
+        }
+    }
+
+    /**
+     * What the writer knows about a session before a transaction, to undo it
+     * if the transaction is rolled back.
+     */
+    private static final class SavedState {
+
+        private final long clickstreamId;
+        private final String savedUserId;
+        private final List<ClickstreamRequest> held;
+
+        private SavedState(final SessionClicks session) {
+            this.clickstreamId = session.clickstreamId;
+            this.savedUserId = session.savedUserId;
+            this.held = new ArrayList<ClickstreamRequest>(session.held);
+        }
+
+        private void restore(final SessionClicks session) {
+            session.clickstreamId = clickstreamId;
+            session.savedUserId = savedUserId;
+            session.held.clear();
+            session.held.addAll(held);
+        }
+    }
+
+    static class Writer implements Runnable {
+
+        private final Store store;
+        private final int batchSize;
+        private final long intervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, Config.getIntProperty("CLICKSTREAM_SAVE_INTERVAL", 5)));
+        private final long idleMillis = TimeUnit.MINUTES.toMillis(Config.getIntProperty("CLICKSTREAM_SESSION_IDLE_MINUTES", 30));
+        private final int minToSave;
+        private final boolean toFile = "file".equalsIgnoreCase(Config.getStringProperty("CLICKSTREAM_WRITER", "database"));
+        private final List<Click> batch = new ArrayList<Click>();
+        private long lastSweep = System.currentTimeMillis();
+        private long reportedDrops;
+
+        Writer() {
+            this(new DatabaseStore(), Config.getIntProperty("CLICKSTREAM_BATCH_SIZE", 500),
+                    Config.getIntProperty("MIN_CLICKSTREAM_REQUESTS_TO_SAVE", 2));
+        }
+
+        @VisibleForTesting
+        Writer(final Store store, final int batchSize, final int minToSave) {
+            this.store = store;
+            this.batchSize = batchSize;
+            this.minToSave = minToSave;
+        }
+
+        @Override
+        public void run() {
+            while (running || buffer.size() > 0) {
+                try {
+                    batch.clear();
+                    buffer.drainTo(batch, batchSize);
+                    if (!batch.isEmpty()) {
+                        if (toFile) {
+                            writeToFile(batch);
+                        } else {
+                            writeToDatabase(batch);
+                        }
+                    }
+                    if (batch.size() < batchSize && running) {
+                        sweep();
+                        LockSupport.parkNanos(intervalNanos);
+                    }
+                } catch (Throwable e) {
+                    Logger.error(ClickstreamRecorder.class, "Unable to write the clickstream: " + e.getMessage(), e);
+                }
+            }
+        }
+
+        /**
+         * Forgets the idle sessions and reports the dropped clicks.
+         */
+        private void sweep() {
+            final long now = System.currentTimeMillis();
+            if (now - lastSweep < TimeUnit.MINUTES.toMillis(1)) {
+                return;
+            }
+            lastSweep = now;
+            for (SessionClicks session : sessions.values()) {
+                if (now - session.lastRequest > idleMillis) {
+                    sessions.remove(session.sessionId, session);
+                }
+            }
+            final long dropped = buffer.getDropped();
+            if (dropped > reportedDrops) {
+                Logger.warn(ClickstreamRecorder.class, (dropped - reportedDrops) + " clicks were dropped because the clickstream buffer of "
+                        + buffer.capacity() + " was full, " + untrackedSessions.get() + " sessions were not tracked");
+                reportedDrops = dropped;
+            }
+        }
+
+        /**
+         * Saves the clicks in a single transaction. When the transaction fails
+         * the clicks are saved again one per transaction, so only the ones
+         * that can not be saved are lost.
+         */
+        void writeToDatabase(final List<Click> clicks) {
+            try {
+                Exception error = save(clicks);
+                int failed = error == null ? 0 : 1;
+                if (error != null && clicks.size() > 1) {
+                    failed = 0;
+                    for (Click click : clicks) {
+                        final Exception e = save(Collections.singletonList(click));
+                        if (e != null) {
+                            failed++;
+                            error = e;
+                        }
+                    }
+                }
+                if (failed > 0) {
+                    Logger.warn(ClickstreamRecorder.class, "Unable to save " + failed + " of " + clicks.size() + " clicks: "
+                            + error.getMessage(), error);
+                }
+            } finally {
+                for (Click click : clicks) {
+                    if (click.type == END) {
+                        sessions.remove(click.session.sessionId, click.session);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Saves the clicks in one transaction. A clickstream is saved once
+         * its session has <code>MIN_CLICKSTREAM_REQUESTS_TO_SAVE</code>
+         * requests, and updated once per transaction after that. The state
+         * the writer keeps for the sessions is restored if the transaction
+         * is rolled back.
+         *
+         * @return null if the clicks were saved, or the error that rolled
+         *         back the transaction
+         */
+        private Exception save(final List<Click> clicks) {
+            final Map<SessionClicks, SavedState> saved = new LinkedHashMap<SessionClicks, SavedState>();
+            final Set<SessionClicks> changed = new LinkedHashSet<SessionClicks>();
+            try {
+                store.startTransaction();
+                for (Click click : clicks) {
+                    final SessionClicks session = click.session;
+                    if (click.type == REQUEST) {
+                        if (!saved.containsKey(session)) {
+                            saved.put(session, new SavedState(session));
+                        }
+                        if (session.clickstreamId == 0) {
+                            session.held.add(click.request);
+                            if (session.held.size() >= minToSave) {
+                                saveClickstream(session);
+                            }
+                        } else {
+                            click.request.setClickstreamId(session.clickstreamId);
+                            store.save(click.request);
+                            changed.add(session);
+                        }
+                    } else if (click.type == NOT_FOUND) {
+                        store.save(click.notFound);
+                    }
+                }
+                for (SessionClicks session : changed) {
+                    updateClickstream(session);
+                }
+                store.commitTransaction();
+                return null;
+            } catch (Exception e) {
+                Logger.debug(ClickstreamRecorder.class, "Unable to save " + clicks.size() + " clicks: " + e.getMessage(), e);
+                try {
+                    store.rollbackTransaction();
+                } catch (Exception e1) {
+                    Logger.debug(ClickstreamRecorder.class, e1.getMessage(), e1);
+                }
+                for (Map.Entry<SessionClicks, SavedState> entry : saved.entrySet()) {
+                    entry.getValue().restore(entry.getKey());
+                }
+                return e;
+            } finally {
+                store.close();
+            }
+        }
+
+        private void saveClickstream(final SessionClicks session) throws DotDataException {
+            final Clickstream clickstream = new Clickstream();
+            clickstream.setStart(new Date(session.start));
+            clickstream.setLastRequest(new Date(session.lastRequest));
+            clickstream.setLastSaved(new Date());
+            clickstream.setCookieId(session.cookieId);
+            clickstream.setUserId(session.userId);
+            clickstream.setHostId(session.hostId);
+            clickstream.setRemoteAddress(session.remoteAddress);
+            clickstream.setRemoteHostname(session.remoteHostname);
+            clickstream.setInitialReferrer(UtilMethods.isSet(session.initialReferrer) ? session.initialReferrer : "");
+            clickstream.setUserAgent(UtilMethods.isSet(session.userAgent) ? session.userAgent : "");
+            final BrowserSniffer sniffer = new BrowserSniffer(session.userAgent);
+            clickstream.setBrowserName(sniffer.getBrowserName());
+            clickstream.setBrowserVersion(sniffer.getBrowserVersion());
+            clickstream.setOperatingSystem(sniffer.getOS());
+            clickstream.setMobileDevice(sniffer.isMobile());
+            clickstream.setBot(session.bot);
+            clickstream.setFirstPageId(session.firstPageId);
+            clickstream.setLastPageId(session.lastPageId);
+            clickstream.setNumberOfRequests(session.getNumberOfRequests());
+            session.clickstreamId = store.save(clickstream);
+            session.savedUserId = session.userId;
+            for (ClickstreamRequest request : session.held) {
+                request.setClickstreamId(session.clickstreamId);
+                store.save(request);
+            }
+            session.held.clear();
+            if (UtilMethods.isSet(session.userId) && UtilMethods.isSet(session.cookieId)) {
+                store.assignUser(session.userId, session.cookieId);
+            }
+        }
+
+        private void updateClickstream(final SessionClicks session) throws DotDataException {
+            store.update(session.clickstreamId, new Date(session.lastRequest), session.lastPageId, session.getNumberOfRequests(), session.userId);
+            if (UtilMethods.isSet(session.userId) && !session.userId.equals(session.savedUserId)) {
+                session.savedUserId = session.userId;
+                if (UtilMethods.isSet(session.cookieId)) {
+                    store.assignUser(session.userId, session.cookieId);
+                }
+            }
+        }
+
+        /**
+         * Appends the clicks, one tab separated line each, to the file of the day.
+         */
+        private void writeToFile(final List<Click> clicks) {
+            final File folder = new File(ConfigUtils.getDynamicContentPath() + File.separator + "clickstream");
+            folder.mkdirs();
+            final File file = new File(folder, "clickstream-" + new SimpleDateFormat("yyyy-MM-dd").format(new Date()) + ".log");
+            BufferedWriter out = null;
+            try {
+                out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+                for (Click click : clicks) {
+                    final SessionClicks session = click.session;
+                    if (click.type == REQUEST) {
+                        final ClickstreamRequest request = click.request;
+                        line(out, "request", request.getTimestamp().getTime(), session.sessionId, session.cookieId, session.userId,
+                                request.getHostId(), request.getAssociatedIdentifier(), request.getRequestURI(), request.getQueryString(),
+                                String.valueOf(request.getLanguageId()), String.valueOf(request.getRequestOrder()), session.remoteAddress,
+                                request.getRequestOrder() == 1 ? session.initialReferrer : null,
+                                request.getRequestOrder() == 1 ? session.userAgent : null);
+                    } else if (click.type == NOT_FOUND) {
+                        final Clickstream404 notFound = click.notFound;
+                        line(out, "404", notFound.getTimestamp() != null ? notFound.getTimestamp().getTime() : System.currentTimeMillis(),
+                                session != null ? session.sessionId : null, session != null ? session.cookieId : null, notFound.getUserId(),
+                                notFound.getHostId(), null, notFound.getRequestURI(), notFound.getQueryString(), null, null, null,
+                                notFound.getRefererURI(), null);
+                    } else {
+                        sessions.remove(session.sessionId, session);
+                    }
+                }
+            } catch (IOException e) {
+                Logger.warn(ClickstreamRecorder.class, "Unable to write " + clicks.size() + " clicks to " + file + ": " + e.getMessage(), e);
+            } finally {
+                if (out != null) {
+                    try {
+                        out.close();
+                    } catch (IOException e) {
+                        Logger.debug(ClickstreamRecorder.class, e.getMessage(), e);
+                    }
+                }
+            }
+        }
+
+        private void line(final BufferedWriter out, final String type, final long timestamp, final String... values) throws IOException {
+            out.write(type);
+            out.write('\t');
+            out.write(String.valueOf(timestamp));
+            for (String value : values) {
+                out.write('\t');
+                if (value != null) {
+                    out.write(value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' '));
+                }
+            }
+            out.newLine();
+        }
+    }
+}
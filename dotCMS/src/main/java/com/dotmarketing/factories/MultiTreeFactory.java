@@ -254,6 +254,49 @@ public class MultiTreeFactory {
 			throw new DotRuntimeException(e.toString());
 		}
 	}
+	/**
+	 * Returns the multi-trees of many pages, querying them in batches of
+	 * pages instead of one query per page and container.
+	 * 
+	 * @param pageIdentifiers
+	 *            - The identifiers of the Content Pages or Legacy Pages.
+	 * @return The multi-trees of each page, by page identifier. Pages without
+	 *         contents get an empty list.
+	 */
+	@SuppressWarnings("unchecked")
+	public static java.util.Map<String, java.util.List<MultiTree>> getMultiTreesByPages(java.util.Collection<String> pageIdentifiers) {
+		final int batchSize = 500;
+		java.util.List<String> ids = new java.util.ArrayList<String>(new java.util.LinkedHashSet<String>(pageIdentifiers));
+		java.util.Map<String, java.util.List<MultiTree>> trees = new java.util.HashMap<String, java.util.List<MultiTree>>();
+		for (String id : ids) {
+			trees.put(id, new java.util.ArrayList<MultiTree>());
+		}
+		try {
+			for (int i = 0; i < ids.size(); i += batchSize) {
+				java.util.List<String> batch = ids.subList(i, Math.min(i + batchSize, ids.size()));
+				StringBuilder params = new StringBuilder();
+				for (int j = 0; j < batch.size(); j++) {
+					params.append(j > 0 ? ",?" : "?");
+				}
+				HibernateUtil dh = new HibernateUtil(MultiTree.class);
+				dh.setQuery("from multi_tree in class com.dotmarketing.beans.MultiTree where parent1 in (" + params + ")");
+				for (String id : batch) {
+					dh.setParam(id);
+				}
+				for (MultiTree tree : (java.util.List<MultiTree>) dh.list()) {
+					java.util.List<MultiTree> pageTrees = trees.get(tree.getParent1());
+					if (pageTrees != null) {
+						pageTrees.add(tree);
+					}
+				}
+			}
+			return trees;
+		} catch (Exception e) {
+            Logger.error(MultiTreeFactory.class, "getMultiTreesByPages failed:" + e, e);
+			throw new DotRuntimeException(e.toString());
+		}
+	}
+
 	/**
 	 * Get the multi_tree by both parents given a containerId
 	 * 
@@ -26,7 +26,6 @@ import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.web.HostWebAPI;
 import com.dotmarketing.business.web.WebAPILocator;
-import com.dotmarketing.cache.VirtualLinksCache;
 import com.dotmarketing.db.DbConnectionFactory;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
@@ -118,13 +117,15 @@ public class CMSFilter implements Filter {
 
 
 
-		if (urlUtil.isFileAsset(uri, host, languageId)) {
+		// a single lookup tells what the uri is, see CmsUrlResolution
+		CmsUrlResolution resolution = urlUtil.resolve(uri, host);
+		if (urlUtil.isFileAsset(resolution, languageId)) {
 			iAm= IAm.FILE;
-		} else if (urlUtil.isVanityUrl(uri, host)) {
+		} else if (resolution.isVanityUrl()) {
 			iAm = IAm.VANITY_URL;
-		} else if (urlUtil.isPageAsset(uri, host, languageId)) {
+		} else if (urlUtil.isPageAsset(resolution)) {
 			iAm = IAm.PAGE;
-		} else if (urlUtil.isFolder(uri, host)) {
+		} else if (urlUtil.isFolder(resolution)) {
 			iAm = IAm.FOLDER;
 		}
 
@@ -133,11 +134,8 @@ public class CMSFilter implements Filter {
 		// if a vanity URL
 		if (iAm == IAm.VANITY_URL) {
 
-			rewrite = VirtualLinksCache.getPathFromCache(host.getHostname() + ":" + ("/".equals(uri) ? "/cmsHomePage" : uri.endsWith("/")?uri.substring(0, uri.length() - 1):uri));
+			rewrite = resolution.getVanityUrl();
 
-			if (!UtilMethods.isSet(rewrite)) {
-				rewrite = VirtualLinksCache.getPathFromCache(("/".equals(uri) ? "/cmsHomePage" : uri.endsWith("/")?uri.substring(0, uri.length() - 1):uri));
-			}
 			if (UtilMethods.isSet(rewrite) && rewrite.contains("//")) {
 				response.sendRedirect(rewrite);
 
@@ -152,11 +150,12 @@ public class CMSFilter implements Filter {
 						queryString= arr[1];
 					}
 				}
-				if (urlUtil.isFileAsset(rewrite, host, languageId)) {
+				CmsUrlResolution rewriteResolution = urlUtil.resolve(rewrite, host);
+				if (urlUtil.isFileAsset(rewriteResolution, languageId)) {
 					iAm= IAm.FILE;
-				} else if (urlUtil.isPageAsset(rewrite, host, languageId)) {
+				} else if (urlUtil.isPageAsset(rewriteResolution)) {
 					iAm = IAm.PAGE;
-				} else if (urlUtil.isFolder(rewrite, host)) {
+				} else if (urlUtil.isFolder(rewriteResolution)) {
 					iAm = IAm.FOLDER;
 				}
 			}
@@ -8,10 +8,25 @@ import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import com.dotmarketing.beans.Host;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.web.WebAPILocator;
+import com.dotmarketing.factories.ClickstreamFactory;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.WebKeys;
+import com.liferay.portal.model.User;
 
 /*
  * @depreciated - clickstreams should be explicity recorded by CMS Filter
  * by: Will 2007-08-02
+ *
+ * Records the pages when mapped, the clicks are queued in the
+ * ClickstreamRecorder so the request does not wait for them to be saved.
  */
 public class ClickstreamFilter implements Filter {
 
@@ -21,41 +36,35 @@ public class ClickstreamFilter implements Filter {
 
 	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
 	ServletException {
-/*
-		Logger.debug(ClickstreamFilter.class, "Into the ClickstreamFilter");
+
 		// Ensure that clickstream is recorded only once per request.
-		if (request.getAttribute(FILTER_APPLIED) == null) {
+		if (Config.getBooleanProperty("ENABLE_CLICKSTREAM_TRACKING", false) && request.getAttribute(FILTER_APPLIED) == null) {
 			request.setAttribute(FILTER_APPLIED, Boolean.TRUE);
 
 			//Log only when the path is a page
 			HttpServletRequest req = (HttpServletRequest) request;
 			String uri = req.getRequestURI().trim();
-			String pageExt = Config.getStringProperty("VELOCITY_PAGE_EXTENSION");
+			String pageExt = Config.getStringProperty("VELOCITY_PAGE_EXTENSION", "html");
 			String lastPath = uri.substring(uri.lastIndexOf("/"), uri.length());
-			
+
 			if(uri.endsWith("/") || uri.endsWith(pageExt) || lastPath.indexOf(".") == -1) {
-			
+
 				Logger.debug(ClickstreamFilter.class, "Recording Clickstream for uri: " + uri);
-				
-				HttpSession session = req.getSession(false);
-
-				if (session != null && session.getAttribute(WebKeys.CMS_USER) != null) {
-	
-					User user = (User) session.getAttribute(WebKeys.CMS_USER);
-					UserProxy userProxy = UserProxyFactory.getUserProxy(user);
-	
-					if(!userProxy.isNoclicktracking()){
-						ClickstreamFactory.addRequest((HttpServletRequest) request, ((HttpServletResponse) response));
-					} 
-		
-				} else {
-					ClickstreamFactory.addRequest((HttpServletRequest) request, ((HttpServletResponse) response));
+				try {
+					HttpSession session = req.getSession(false);
+					User user = session != null ? (User) session.getAttribute(WebKeys.CMS_USER) : null;
+					if (user == null || !APILocator.getUserProxyAPI().getUserProxy(user,
+							APILocator.getUserAPI().getSystemUser(), false).isNoclicktracking()) {
+						Host host = WebAPILocator.getHostWebAPI().getCurrentHost(req);
+						ClickstreamFactory.addRequest(req, (HttpServletResponse) response, host);
+					}
+				} catch (Exception e) {
+					Logger.debug(ClickstreamFilter.class, "Unable to record the clickstream of " + uri + ": " + e.getMessage(), e);
 				}
-
 			}
 
 		}
-*/
+
 		// pass the request on
 		chain.doFilter(request, response);
 	}
@@ -0,0 +1,21 @@
+package com.dotmarketing.filters;
+
+import com.dotmarketing.business.Cachable;
+
+/**
+ * Per host index of the URIs the {@link CMSFilter} has resolved.
+ * <p>
+ * A URI with and without its trailing slash are different entries, removing a
+ * URI removes both.
+ */
+public interface CmsUrlCache extends Cachable {
+
+	CmsUrlResolution get(String hostId, String uri);
+
+	void put(String hostId, String uri, CmsUrlResolution resolution);
+
+	/**
+	 * Removes the resolution of the given URI, in every node of the cluster.
+	 */
+	void remove(String hostId, String uri);
+}
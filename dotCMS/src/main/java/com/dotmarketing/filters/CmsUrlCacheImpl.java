@@ -0,0 +1,73 @@
+package com.dotmarketing.filters;
+
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
+import com.dotmarketing.business.CacheLocator;
+import com.dotmarketing.business.DotCacheAdministrator;
+import com.dotmarketing.business.DotCacheException;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+
+public class CmsUrlCacheImpl implements CmsUrlCache {
+
+	public final String GROUP = "CmsUrlCache";
+
+	private DotCacheAdministrator cache;
+
+	public CmsUrlCacheImpl() {
+		this(CacheLocator.getCacheAdministrator());
+	}
+
+	@VisibleForTesting
+	CmsUrlCacheImpl(DotCacheAdministrator cache) {
+		this.cache = cache;
+	}
+
+	@Override
+	public String getPrimaryGroup() {
+		return GROUP;
+	}
+
+	@Override
+	public String[] getGroups() {
+		return new String[] { GROUP };
+	}
+
+	protected static String key(String hostId, String uri) {
+		return hostId + ":" + uri;
+	}
+
+	@Override
+	public void clearCache() {
+		cache.flushGroup(GROUP);
+	}
+
+	@Override
+	public CmsUrlResolution get(String hostId, String uri) {
+		try {
+			return (CmsUrlResolution) cache.get(key(hostId, uri), GROUP);
+		} catch (DotCacheException e) {
+			Logger.debug(this, "Cache Entry not found", e);
+			return null;
+		}
+	}
+
+	@Override
+	public void put(String hostId, String uri, CmsUrlResolution resolution) {
+		cache.put(key(hostId, uri), resolution, GROUP);
+	}
+
+	@Override
+	public void remove(String hostId, String uri) {
+		if (!UtilMethods.isSet(hostId) || !UtilMethods.isSet(uri)) {
+			return;
+		}
+		while (uri.length() > 1 && uri.endsWith("/")) {
+			uri = uri.substring(0, uri.length() - 1);
+		}
+		cache.remove(key(hostId, uri), GROUP);
+		if (uri.length() > 1) {
+			cache.remove(key(hostId, uri + "/"), GROUP);
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.dotmarketing.filters;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * What a URI of a host points to, as {@link CmsUrlUtil#resolve(String, com.dotmarketing.beans.Host)}
+ * found it: a folder, a page, a file asset, something else or nothing at all,
+ * plus the vanity URL mapped to it, if any.
+ * <p>
+ * For contentlets the languages that have a working and a live version are
+ * kept, so the language of the request can be checked without fetching the
+ * version info again. Legacy pages and files are available in every language.
+ * <p>
+ * Resolutions are cached in the {@link CmsUrlCache}, which drops them when the
+ * identifier, its versions or the vanity URLs change.
+ */
+public class CmsUrlResolution implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public enum Type {
+		FOLDER,
+		PAGE,
+		FILE,
+		CONTENTLET,
+		NOTHING_IN_THE_CMS
+	}
+
+	private final Type type;
+	private final String identifier;
+	private final boolean anyLanguage;
+	private final Set<Long> workingLanguages;
+	private final Set<Long> liveLanguages;
+	private final String vanityUrl;
+
+	public CmsUrlResolution(Type type, String identifier, boolean anyLanguage, Set<Long> workingLanguages,
+			Set<Long> liveLanguages, String vanityUrl) {
+		this.type = type;
+		this.identifier = identifier;
+		this.anyLanguage = anyLanguage;
+		this.workingLanguages = workingLanguages != null ? workingLanguages : Collections.<Long> emptySet();
+		this.liveLanguages = liveLanguages != null ? liveLanguages : Collections.<Long> emptySet();
+		this.vanityUrl = vanityUrl;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return The id of the identifier the URI points to, null if there is none.
+	 */
+	public String getIdentifier() {
+		return identifier;
+	}
+
+	/**
+	 * @return The path the vanity URL mapped to the URI rewrites to, null if the URI is not a vanity URL.
+	 */
+	public String getVanityUrl() {
+		return vanityUrl;
+	}
+
+	public boolean isVanityUrl() {
+		return vanityUrl != null;
+	}
+
+	/**
+	 * @return If the asset has a working version in the given language.
+	 */
+	public boolean isWorking(long languageId) {
+		return anyLanguage || workingLanguages.contains(languageId);
+	}
+
+	/**
+	 * @return If the asset has a live version in the given language.
+	 */
+	public boolean isLive(long languageId) {
+		return anyLanguage || liveLanguages.contains(languageId);
+	}
+
+	/**
+	 * @return If the asset has a working version in any language.
+	 */
+	public boolean isWorkingInAnyLanguage() {
+		return anyLanguage || !workingLanguages.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "CmsUrlResolution [type=" + type + ", identifier=" + identifier + ", workingLanguages="
+				+ (anyLanguage ? "any" : workingLanguages) + ", liveLanguages=" + (anyLanguage ? "any" : liveLanguages)
+				+ ", vanityUrl=" + vanityUrl + "]";
+	}
+
+}
@@ -3,6 +3,7 @@ package com.dotmarketing.filters;
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotStateException;
 import com.dotmarketing.business.PermissionAPI;
 import com.dotmarketing.business.Versionable;
@@ -17,7 +18,8 @@ import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
 import com.liferay.portal.model.User;
 
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 public class CmsUrlUtil {
 	private static CmsUrlUtil urlUtil;
@@ -50,150 +52,148 @@ public class CmsUrlUtil {
 		}
 
 	}
-	public boolean isPageAsset(String uri, Host host, Long languageId) {
-		Identifier id;
-		if(!UtilMethods.isSet(uri)){
-			return false;
+	/**
+	 * Resolves what the given URI of the host points to, see {@link CmsUrlResolution}.
+	 * The resolution is kept in the {@link CmsUrlCache}, so the identifier and
+	 * version lookups of a URI only run once until it changes.
+	 */
+	public CmsUrlResolution resolve(String uri, Host host) {
+		if (host == null || !UtilMethods.isSet(uri)) {
+			return new CmsUrlResolution(CmsUrlResolution.Type.NOTHING_IN_THE_CMS, null, false, null, null, null);
 		}
-		try {
-			id = APILocator.getIdentifierAPI().find(host, uri);
-		} catch (Exception e) {
-			Logger.error(this.getClass(), "Unable to find" + uri);
-			return false;
+		String path = uri;
+		while (path.length() > 1 && path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
 		}
-		if (id == null || id.getId() == null)
-			return false;
-		if ("htmlpage".equals(id.getAssetType())) {
-			return true;
+		if (!path.startsWith("/")) {
+			path = "/" + path;
 		}
-		if ("contentlet".equals(id.getAssetType())) {
+		// Only folders can be requested with a trailing slash
+		boolean directory = !path.equals(uri) && !"/".equals(path);
+		String key = directory ? path + "/" : path;
+
+		CmsUrlCache cache = CacheLocator.getCmsUrlCache();
+		CmsUrlResolution resolution = cache.get(host.getIdentifier(), key);
+		if (resolution == null) {
+			String vanityUrl = findVanityUrl(path, host);
 			try {
-
-				//Get the list of languages use by the application
-				List<Language> languages = APILocator.getLanguageAPI().getLanguages();
-
-				//First try with the given language
-				ContentletVersionInfo cinfo = APILocator.getVersionableAPI().getContentletVersionInfo( id.getId(), languageId );
-				if ( cinfo == null || cinfo.getWorkingInode().equals( "NOTFOUND" ) ) {
-
-					for ( Language language : languages ) {
-						/*
-						If we found nothing with the given language it does not mean is not a page,
-						could be just a page but it does not exist for the given language.
-						Trying with the other languages use in the app.
-						 */
-						if ( languageId != language.getId() ) {
-							cinfo = APILocator.getVersionableAPI().getContentletVersionInfo( id.getId(), language.getId() );
-							if ( cinfo != null && !cinfo.getWorkingInode().equals( "NOTFOUND" ) ) {
-								//Found it
-								break;
-							}
-						}
-					}
-
-				}
-				if ( cinfo == null || cinfo.getWorkingInode().equals( "NOTFOUND" ) ) {
-					return false;//At this point we know is not a page
-				} else {
-					Contentlet c = APILocator.getContentletAPI().find( cinfo.getWorkingInode(), APILocator.getUserAPI().getSystemUser(), false );
-					return (c.getStructure().getStructureType() == Structure.STRUCTURE_TYPE_HTMLPAGE);
-				}
+				resolution = resolve(path, directory, host, vanityUrl);
 			} catch (Exception e) {
-				Logger.error(this.getClass(), "Unable to find" + uri);
-				return false;
+				// Not cached, the next request tries again
+				Logger.error(this.getClass(), "Unable to find" + path);
+				return new CmsUrlResolution(CmsUrlResolution.Type.NOTHING_IN_THE_CMS, null, false, null, null, vanityUrl);
 			}
+			cache.put(host.getIdentifier(), key, resolution);
 		}
-		return false;
+		return resolution;
 	}
 
-	public boolean isFileAsset(String uri, Host host, Long languageId) {
-		
-		// languageId is not used now, but will be used in future functionality. Issue #7141
-		
-		Identifier id;
-		try {
-			id = APILocator.getIdentifierAPI().find(host, uri);
-		} catch (Exception e) {
-			Logger.error(this.getClass(), "Unable to find" + uri);
-			return false;
+	private CmsUrlResolution resolve(String path, boolean directory, Host host, String vanityUrl) throws Exception {
+		if ("/".equals(path)) {
+			return new CmsUrlResolution(CmsUrlResolution.Type.FOLDER, null, true, null, null, vanityUrl);
+		}
+
+		Identifier id = APILocator.getIdentifierAPI().find(host, path);
+		if (id == null || id.getId() == null) {
+			return new CmsUrlResolution(CmsUrlResolution.Type.NOTHING_IN_THE_CMS, null, false, null, null, vanityUrl);
+		}
+		if ("folder".equals(id.getAssetType())) {
+			return new CmsUrlResolution(CmsUrlResolution.Type.FOLDER, id.getId(), true, null, null, vanityUrl);
+		}
+		if (directory) {
+			return new CmsUrlResolution(CmsUrlResolution.Type.NOTHING_IN_THE_CMS, id.getId(), false, null, null, vanityUrl);
+		}
+		if ("htmlpage".equals(id.getAssetType())) {
+			return new CmsUrlResolution(CmsUrlResolution.Type.PAGE, id.getId(), true, null, null, vanityUrl);
 		}
-		if (id == null || id.getId() == null)
-			return false;
 		if ("file_asset".equals(id.getAssetType())) {
-			return true;
+			return new CmsUrlResolution(CmsUrlResolution.Type.FILE, id.getId(), true, null, null, vanityUrl);
 		}
-		
-        if ("contentlet".equals(id.getAssetType())) {
-            try {
-                ContentletVersionInfo cinfo = APILocator.getVersionableAPI().getContentletVersionInfo(id.getId(), languageId);
-
-                if ( (cinfo == null || cinfo.getWorkingInode().equals( "NOTFOUND" )) && Config.getBooleanProperty("DEFAULT_FILE_TO_DEFAULT_LANGUAGE", false)) {
-                    //Get the Default Language
-                    Language defaultLang = APILocator.getLanguageAPI().getDefaultLanguage();
-                    //If the fallback to Default Language is set to true, let's see if the requested file is stored with Default Language 
-                    cinfo = APILocator.getVersionableAPI().getContentletVersionInfo( id.getId(), defaultLang.getId() );
-                }
-
-                if ( cinfo == null || cinfo.getWorkingInode().equals( "NOTFOUND" ) ) {
-                    return false;//At this point we know is not a File Asset
-                } else {
-                    Contentlet c = APILocator.getContentletAPI().find( cinfo.getWorkingInode(), APILocator.getUserAPI().getSystemUser(), false );
-                    return (c.getStructure().getStructureType() == Structure.STRUCTURE_TYPE_FILEASSET);
-                }
-            } catch (Exception e) {
-                Logger.error(this.getClass(), "Unable to find" + uri);
-                return false;
-            }
-        }
-		return false;
-	}
 
-	public boolean isFolder(String uri, Host host) {
-		Identifier id;
-		if("/".equals(uri)){
-			return true;
+		CmsUrlResolution.Type type = CmsUrlResolution.Type.NOTHING_IN_THE_CMS;
+		Set<Long> workingLanguages = new HashSet<Long>();
+		Set<Long> liveLanguages = new HashSet<Long>();
+		if ("contentlet".equals(id.getAssetType())) {
+			String workingInode = null;
+			for (Language language : APILocator.getLanguageAPI().getLanguages()) {
+				ContentletVersionInfo cinfo = APILocator.getVersionableAPI().getContentletVersionInfo(id.getId(), language.getId());
+				if (cinfo == null || cinfo.getWorkingInode().equals("NOTFOUND")) {
+					continue;
+				}
+				workingLanguages.add(language.getId());
+				if (UtilMethods.isSet(cinfo.getLiveInode())) {
+					liveLanguages.add(language.getId());
+				}
+				if (workingInode == null) {
+					workingInode = cinfo.getWorkingInode();
+				}
+			}
+			if (workingInode != null) {
+				Contentlet c = APILocator.getContentletAPI().find(workingInode, APILocator.getUserAPI().getSystemUser(), false);
+				int structureType = c.getStructure().getStructureType();
+				type = structureType == Structure.STRUCTURE_TYPE_HTMLPAGE ? CmsUrlResolution.Type.PAGE
+						: structureType == Structure.STRUCTURE_TYPE_FILEASSET ? CmsUrlResolution.Type.FILE
+								: CmsUrlResolution.Type.CONTENTLET;
+			}
 		}
-		while(uri.endsWith("/") && uri.length()>1){
-			uri = uri.substring(0,uri.length()-1);
+		return new CmsUrlResolution(type, id.getId(), false, workingLanguages, liveLanguages, vanityUrl);
+	}
+
+	private String findVanityUrl(String path, Host host) {
+		String vanityUrl = VirtualLinksCache.getPathFromCache(host.getHostname() + ":" + path);
+		if (!UtilMethods.isSet(vanityUrl)) {
+			vanityUrl = VirtualLinksCache.getPathFromCache(path);
 		}
-			
-		if(!uri.startsWith("/"))
-			uri = "/" + uri;
-		
-		try {
-			id = APILocator.getIdentifierAPI().find(host, uri);
-			if (id == null || id.getId() == null) {
-				return false;
-			}
-			if ("folder".equals(id.getAssetType())) {
-				return true;
+		// Still support legacy cmsHomePage
+		if ("/".equals(path) && !UtilMethods.isSet(vanityUrl)) {
+			vanityUrl = VirtualLinksCache.getPathFromCache(host.getHostname() + ":/cmsHomePage");
+			if (!UtilMethods.isSet(vanityUrl)) {
+				vanityUrl = VirtualLinksCache.getPathFromCache("/cmsHomePage");
 			}
-		} catch (Exception e) {
-			Logger.error(this.getClass(), "Unable to find" + uri);
 		}
+		return UtilMethods.isSet(vanityUrl) ? vanityUrl : null;
+	}
 
-		return false;
+	public boolean isPageAsset(String uri, Host host, Long languageId) {
+		if(!UtilMethods.isSet(uri)){
+			return false;
+		}
+		return isPageAsset(resolve(uri, host));
 	}
 
-	public boolean isVanityUrl(String uri, Host host) {
-		
-		if (uri.length()>1 && uri.endsWith("/"))
-            uri = uri.substring(0, uri.length() - 1);
+	/**
+	 * A page is served in every language as long as it has a working version in one of them.
+	 */
+	public boolean isPageAsset(CmsUrlResolution resolution) {
+		return resolution.getType() == CmsUrlResolution.Type.PAGE && resolution.isWorkingInAnyLanguage();
+	}
+
+	public boolean isFileAsset(String uri, Host host, Long languageId) {
+		return isFileAsset(resolve(uri, host), languageId);
+	}
 
-		boolean isVanityURL = UtilMethods.isSet(VirtualLinksCache.getPathFromCache(host.getHostname() + ":" + uri));
-		if (!isVanityURL) {
-			isVanityURL = UtilMethods.isSet(VirtualLinksCache.getPathFromCache(uri));
+	public boolean isFileAsset(CmsUrlResolution resolution, Long languageId) {
+		if (resolution.getType() != CmsUrlResolution.Type.FILE) {
+			return false;
 		}
-		// Still support legacy cmsHomePage
-		if("/".equals(uri) && !isVanityURL){
-			uri = "/cmsHomePage";
-			isVanityURL = UtilMethods.isSet(VirtualLinksCache.getPathFromCache(host.getHostname() + ":" + uri));
-			if (!isVanityURL) {
-				isVanityURL = UtilMethods.isSet(VirtualLinksCache.getPathFromCache(uri));
-			}
+		if (languageId != null && resolution.isWorking(languageId)) {
+			return true;
 		}
-		return isVanityURL;
+		//If the fallback to Default Language is set to true, let's see if the requested file is stored with Default Language
+		return Config.getBooleanProperty("DEFAULT_FILE_TO_DEFAULT_LANGUAGE", false)
+				&& resolution.isWorking(APILocator.getLanguageAPI().getDefaultLanguage().getId());
+	}
+
+	public boolean isFolder(String uri, Host host) {
+		return isFolder(resolve(uri, host));
+	}
+
+	public boolean isFolder(CmsUrlResolution resolution) {
+		return resolution.getType() == CmsUrlResolution.Type.FOLDER;
+	}
 
+	public boolean isVanityUrl(String uri, Host host) {
+		return resolve(uri, host).isVanityUrl();
 	}
 
 	public boolean canRead(Identifier ident, long languageId, User user) {
@@ -246,8 +246,9 @@ public class CmsUrlUtil {
 	}
 	
 	public boolean amISomething(String uri, Host host, Long languageId) {
-		return (urlUtil.isFileAsset(uri, host, languageId) || urlUtil.isVanityUrl(uri, host) 
-				|| urlUtil.isPageAsset(uri, host, languageId) || urlUtil.isFolder(uri, host));
+		CmsUrlResolution resolution = resolve(uri, host);
+		return (isFileAsset(resolution, languageId) || resolution.isVanityUrl()
+				|| isPageAsset(resolution) || isFolder(resolution));
 	}
 
 }
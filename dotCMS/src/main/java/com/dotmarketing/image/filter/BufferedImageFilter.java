@@ -0,0 +1,40 @@
+package com.dotmarketing.image.filter;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+
+/**
+ * An image filter that can run on an image in memory. When all the filters of
+ * a chain implement it, {@link ImageFilterChain} decodes the source once, runs
+ * the whole chain in memory and only encodes the final image.
+ */
+public interface BufferedImageFilter {
+
+	/**
+	 * Applies the filter to the image
+	 * @param src the image, it must not be modified
+	 * @param parameters the parameters of the request
+	 * @return the filtered image, or src when the filter does nothing
+	 */
+	public BufferedImage filter(BufferedImage src, Map<String, String[]> parameters);
+
+	/**
+	 * Returns the size this filter scales an image of the given size to, when
+	 * it scales it. It is used to decode big sources subsampled when the chain
+	 * scales them down.
+	 * @return the size of the scaled image, or null
+	 */
+	public default Dimension getScaledSize(int width, int height, Map<String, String[]> parameters) {
+		return null;
+	}
+
+	/**
+	 * @return true if the filter only changes the pixels of the image, not its
+	 *         size or geometry
+	 */
+	public default boolean isPointFilter() {
+		return false;
+	}
+
+}
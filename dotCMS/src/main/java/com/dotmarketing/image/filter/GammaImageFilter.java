@@ -10,22 +10,13 @@ import javax.imageio.ImageIO;
 import com.dotmarketing.util.Logger;
 import com.dotcms.repackage.com.dotmarketing.jhlabs.image.GammaFilter;
 
-public class GammaImageFilter extends ImageFilter {
+public class GammaImageFilter extends ImageFilter implements BufferedImageFilter {
 	public String[] getAcceptedParameters() {
 		return new String[] { "g (double)  between 0 and 3.0" };
 	}
 
 	public File runFilter(File file,   Map<String, String[]> parameters) {
-		double g = parameters.get(getPrefix() + "g") != null ? Double.parseDouble(parameters.get(getPrefix() + "g")[0])
-				: 0.0;
-		float f = new Double(g).floatValue();
-		
-		
 		File resultFile = getResultsFile(file, parameters);
-		
-
-		GammaFilter filter = new GammaFilter();
-		filter.setGamma(f);
 
 		if (!overwrite(resultFile, parameters)) {
 			return resultFile;
@@ -34,7 +25,7 @@ public class GammaImageFilter extends ImageFilter {
 		try {
 			BufferedImage src = ImageIO.read(file);
 
-			BufferedImage dst = filter.filter(src, null);
+			BufferedImage dst = filter(src, parameters);
 			ImageIO.write(dst, "png", resultFile);
 		} catch (IOException e) {
 			Logger.error(this.getClass(), e.getMessage());
@@ -43,4 +34,19 @@ public class GammaImageFilter extends ImageFilter {
 		return resultFile;
 	}
 
+	public BufferedImage filter(BufferedImage src, Map<String, String[]> parameters) {
+		double g = parameters.get(getPrefix() + "g") != null ? Double.parseDouble(parameters.get(getPrefix() + "g")[0])
+				: 0.0;
+		float f = new Double(g).floatValue();
+
+		GammaFilter filter = new GammaFilter();
+		filter.setGamma(f);
+		return filter.filter(src, null);
+	}
+
+	@Override
+	public boolean isPointFilter() {
+		return true;
+	}
+
 }
@@ -18,7 +18,7 @@ import javax.imageio.stream.ImageOutputStream;
 
 import com.dotmarketing.util.Logger;
 
-public class GifImageFilter extends ImageFilter {
+public class GifImageFilter extends ImageFilter implements BufferedImageFilter {
 	public String[] getAcceptedParameters(){
 		return  new String[] {
 				"q (int) specifies quality",
@@ -36,24 +36,8 @@ public class GifImageFilter extends ImageFilter {
 		resultFile.delete();
 
 		try {
-			Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("gif");
-			ImageWriter writer = iter.next();
-			ImageWriteParam iwp = writer.getDefaultWriteParam();
-
 			BufferedImage src = ImageIO.read(file);
-			BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
-			Graphics2D graphics = dst.createGraphics();  
-
-			graphics.setPaint ( new Color ( 255, 255, 255 ) );
-
-			graphics.fillRect(0, 0, src.getWidth(), src.getHeight());
-			graphics.drawImage(src, 0, 0, src.getWidth(), src.getHeight(),null);
-			ImageOutputStream ios = ImageIO.createImageOutputStream(resultFile);
-			writer.setOutput(ios);
-			writer.write(null,new IIOImage(dst,null,null),iwp);
-			ios.flush();
-			writer.dispose();
-			ios.close();
+			writeImage(filter(src, parameters), resultFile, parameters);
 			//writer.setOutput(output);
 
 		//	IIOImage image = new IIOImage(src, null, null);
@@ -73,6 +57,44 @@ public class GifImageFilter extends ImageFilter {
 		
 		return resultFile;
 	}
+
+	public BufferedImage filter(BufferedImage src, Map<String, String[]> parameters) {
+		BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
+		Graphics2D graphics = dst.createGraphics();  
+
+		graphics.setPaint ( new Color ( 255, 255, 255 ) );
+
+		graphics.fillRect(0, 0, src.getWidth(), src.getHeight());
+		graphics.drawImage(src, 0, 0, src.getWidth(), src.getHeight(),null);
+		graphics.dispose();
+		return dst;
+	}
+
+	@Override
+	public boolean isPointFilter() {
+		return true;
+	}
+
+	@Override
+	protected String getFileExtension() {
+		return "gif";
+	}
+
+	@Override
+	protected void writeImage(BufferedImage image, File file, Map<String, String[]> parameters) throws IOException {
+		Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("gif");
+		ImageWriter writer = iter.next();
+		ImageWriteParam iwp = writer.getDefaultWriteParam();
+		ImageOutputStream ios = ImageIO.createImageOutputStream(file);
+		try {
+			writer.setOutput(ios);
+			writer.write(null,new IIOImage(image,null,null),iwp);
+			ios.flush();
+		} finally {
+			writer.dispose();
+			ios.close();
+		}
+	}
 	
 
 }
@@ -10,7 +10,7 @@ import javax.imageio.ImageIO;
 import com.dotmarketing.util.Logger;
 import com.dotcms.repackage.com.dotmarketing.jhlabs.image.HSBAdjustFilter;
 
-public class HsbImageFilter extends ImageFilter {
+public class HsbImageFilter extends ImageFilter implements BufferedImageFilter {
 
 	public String[] getAcceptedParameters() {
 		return new String[] { 
@@ -24,30 +24,15 @@ public class HsbImageFilter extends ImageFilter {
 
 	public File runFilter(File file,  Map<String, String[]> parameters) {
 
-		Double h = parameters.get(getPrefix() + "h") != null ? Double.parseDouble(parameters.get(getPrefix()
-				+ "h")[0]) : 0.0;
-		Double s = parameters.get(getPrefix() + "s") != null ? Double.parseDouble(parameters.get(getPrefix()
-				+ "s")[0]) : 0.0;
-		Double b = parameters.get(getPrefix() + "b") != null ? Double.parseDouble(parameters.get(getPrefix()
-				+ "b")[0]) : 0.0;
-		
-		
 		File resultFile = getResultsFile(file, parameters);
 		if (!overwrite(resultFile, parameters)) {
 			return resultFile;
 		}
 
-
-		HSBAdjustFilter filter = new HSBAdjustFilter();
-		filter.setBFactor(b.floatValue());
-		filter.setHFactor(h.floatValue());
-		filter.setSFactor(s.floatValue());
-		
-		
 		try {
 			BufferedImage src = ImageIO.read(file);
 
-			BufferedImage dst = filter.filter(src, null);
+			BufferedImage dst = filter(src, parameters);
 			ImageIO.write(dst, "png", resultFile);
 		} catch (IOException e) {
 			Logger.error(this.getClass(), e.getMessage());
@@ -56,4 +41,26 @@ public class HsbImageFilter extends ImageFilter {
 		return resultFile;
 	}
 
+	public BufferedImage filter(BufferedImage src, Map<String, String[]> parameters) {
+
+		Double h = parameters.get(getPrefix() + "h") != null ? Double.parseDouble(parameters.get(getPrefix()
+				+ "h")[0]) : 0.0;
+		Double s = parameters.get(getPrefix() + "s") != null ? Double.parseDouble(parameters.get(getPrefix()
+				+ "s")[0]) : 0.0;
+		Double b = parameters.get(getPrefix() + "b") != null ? Double.parseDouble(parameters.get(getPrefix()
+				+ "b")[0]) : 0.0;
+
+
+		HSBAdjustFilter filter = new HSBAdjustFilter();
+		filter.setBFactor(b.floatValue());
+		filter.setHFactor(h.floatValue());
+		filter.setSFactor(s.floatValue());
+		return filter.filter(src, null);
+	}
+
+	@Override
+	public boolean isPointFilter() {
+		return true;
+	}
+
 }
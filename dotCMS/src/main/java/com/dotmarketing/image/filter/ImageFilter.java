@@ -1,5 +1,6 @@
 package com.dotmarketing.image.filter;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.security.MessageDigest;
@@ -10,6 +11,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.imageio.ImageIO;
+
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.DotStateException;
 import com.dotmarketing.exception.DotRuntimeException;
@@ -133,6 +136,25 @@ public abstract class ImageFilter implements ImageFilterIf {
 	}
 
 
+	/**
+	 * the extension of the files this filter writes
+	 * @return
+	 */
+	protected String getFileExtension() {
+		return FILE_EXT;
+	}
+
+	/**
+	 * writes the image to the file, in the format of this filter
+	 * @param image
+	 * @param file
+	 * @param parameters
+	 * @throws IOException
+	 */
+	protected void writeImage(BufferedImage image, File file, Map<String, String[]> parameters) throws IOException {
+		ImageIO.write(image, FILE_EXT, file);
+	}
+
 	/**
 	 * returns the file that can be used to store resutlts.
 	 * The heavy lifting is being in the getUniqueFileName() method
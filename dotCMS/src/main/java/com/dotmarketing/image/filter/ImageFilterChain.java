@@ -0,0 +1,275 @@
+package com.dotmarketing.image.filter;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import com.dotmarketing.business.DotStateException;
+import com.dotmarketing.exception.DotRuntimeException;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.WebKeys;
+
+/**
+ * Runs a chain of image filters as a single rendition: the source is decoded
+ * once, subsampled when the chain starts by scaling it down a lot, the filters
+ * are applied in memory and only the final image is written, with the format
+ * of the last filter.
+ *
+ * Concurrent requests for the same rendition wait for the one that is
+ * generating it instead of generating it again.
+ */
+public class ImageFilterChain {
+
+	/**
+	 * the decoded image is kept at least this many times bigger than the size
+	 * it is scaled to, so the resampling still has the pixels to filter
+	 */
+	private static final int SUBSAMPLING_MARGIN = 2;
+
+	private static final ConcurrentHashMap<String, FutureTask<File>> rendering = new ConcurrentHashMap<String, FutureTask<File>>();
+
+	private final List<ImageFilter> filters;
+	private final boolean subsampling;
+	private final ImageRenditionCache renditions;
+
+	/**
+	 * @param filters the filters of the chain, in order
+	 * @param subsampling whether big sources can be decoded subsampled
+	 * @param renditions the cache of the generated files, may be null
+	 */
+	public ImageFilterChain(List<ImageFilter> filters, boolean subsampling, ImageRenditionCache renditions) {
+		this.filters = new ArrayList<ImageFilter>(filters);
+		this.subsampling = subsampling;
+		this.renditions = renditions;
+	}
+
+	/**
+	 * @return true if all the filters of the chain can run in memory
+	 */
+	public boolean isFused() {
+		if (filters.isEmpty()) {
+			return false;
+		}
+		for (ImageFilter filter : filters) {
+			if (!(filter instanceof BufferedImageFilter)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the rendition of the file, generating it if needed
+	 * @param file the source image
+	 * @param parameters the parameters of the request
+	 * @return the generated file
+	 * @throws IOException
+	 */
+	public File run(final File file, final Map<String, String[]> parameters) throws IOException {
+
+		final ImageFilter last = filters.get(filters.size() - 1);
+		final File resultFile = getResultFile(file, parameters);
+		if (!last.overwrite(resultFile, parameters)) {
+			touch(resultFile);
+			return resultFile;
+		}
+
+		final String key = resultFile.getAbsolutePath();
+		final FutureTask<File> task = new FutureTask<File>(new Callable<File>() {
+			public File call() throws Exception {
+				// it may have been generated while waiting
+				if (!last.overwrite(resultFile, parameters)) {
+					touch(resultFile);
+					return resultFile;
+				}
+				return render(file, resultFile, parameters);
+			}
+		});
+		FutureTask<File> running = rendering.putIfAbsent(key, task);
+		if (running == null) {
+			running = task;
+			try {
+				task.run();
+			} finally {
+				rendering.remove(key, task);
+			}
+		} else {
+			Logger.debug(this.getClass(), "Waiting for the rendition " + key);
+		}
+
+		try {
+			return running.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for " + key);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new DotRuntimeException(e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * The file of the rendition, in the folder of the files of the last filter.
+	 * Its name is the hash of the whole chain, the filters in order and their
+	 * parameters, since the name of the last filter only takes into account
+	 * the filters up to the first one of its kind.
+	 */
+	File getResultFile(File file, Map<String, String[]> parameters) {
+
+		final ImageFilter last = filters.get(filters.size() - 1);
+		final File lastFile = last.getResultsFile(file, parameters, last.getFileExtension());
+
+		final StringBuilder chain = new StringBuilder(lastFile.getName());
+		final Set<String> names = new LinkedHashSet<String>();
+		for (ImageFilter filter : filters) {
+			chain.append(':').append(filter.getClass().getName());
+			names.add(filter.getFilterName());
+		}
+		for (Map.Entry<String, String[]> parameter : new TreeMap<String, String[]>(parameters).entrySet()) {
+			String key = parameter.getKey();
+			boolean used = key.equalsIgnoreCase("fieldVarName");
+			for (String name : names) {
+				used |= key.startsWith(name);
+			}
+			if (used && parameter.getValue() != null) {
+				chain.append(':').append(key).append('=').append(Arrays.toString(parameter.getValue()));
+			}
+		}
+
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new DotStateException(e.getMessage(), e);
+		}
+		final StringBuilder name = new StringBuilder(WebKeys.GENERATED_FILE).append("chain_");
+		for (byte b : digest.digest(chain.toString().getBytes(StandardCharsets.UTF_8))) {
+			name.append(String.format("%02x", b));
+		}
+		return new File(lastFile.getParentFile(), name.append('.').append(last.getFileExtension()).toString());
+	}
+
+	private File render(File file, File resultFile, Map<String, String[]> parameters) throws IOException {
+
+		BufferedImage image = decode(file, parameters);
+		for (ImageFilter filter : filters) {
+			image = ((BufferedImageFilter) filter).filter(image, parameters);
+		}
+
+		// written aside and moved, so the file is never served half written
+		File tmp = new File(resultFile.getParentFile(), resultFile.getName() + "." + UUID.randomUUID().toString() + ".tmp");
+		try {
+			filters.get(filters.size() - 1).writeImage(image, tmp, parameters);
+			try {
+				Files.move(tmp.toPath(), resultFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), resultFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			tmp.delete();
+		}
+
+		if (renditions != null) {
+			renditions.added(resultFile);
+		}
+		return resultFile;
+	}
+
+	private void touch(File resultFile) {
+		if (renditions != null) {
+			renditions.touch(resultFile);
+		}
+	}
+
+	/**
+	 * Decodes the first image of the file, subsampled when the chain starts by
+	 * scaling it down to less than half its size
+	 */
+	private BufferedImage decode(File file, Map<String, String[]> parameters) throws IOException {
+
+		ImageInputStream in = ImageIO.createImageInputStream(file);
+		if (in == null) {
+			throw new IOException("Unable to read " + file.getAbsolutePath());
+		}
+		try {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+			if (!readers.hasNext()) {
+				throw new IOException("No image reader for " + file.getAbsolutePath());
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(in, true, true);
+				ImageReadParam param = reader.getDefaultReadParam();
+				if (subsampling) {
+					int factor = getSubsampling(reader.getWidth(0), reader.getHeight(0), parameters);
+					if (factor > 1) {
+						Logger.debug(this.getClass(), "Decoding " + file.getName() + " subsampled by " + factor);
+						param.setSourceSubsampling(factor, factor, 0, 0);
+					}
+				}
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * The subsampling factor of the source, 1 unless the first filter that
+	 * changes the geometry of the image scales it down
+	 */
+	int getSubsampling(int width, int height, Map<String, String[]> parameters) {
+
+		for (ImageFilter filter : filters) {
+			BufferedImageFilter imageFilter = (BufferedImageFilter) filter;
+			Dimension scaled = imageFilter.getScaledSize(width, height, parameters);
+			if (scaled != null) {
+				if (scaled.width <= 0 || scaled.height <= 0) {
+					return 1;
+				}
+				int factor = Math.min(width / (scaled.width * SUBSAMPLING_MARGIN),
+						height / (scaled.height * SUBSAMPLING_MARGIN));
+				return Math.max(factor, 1);
+			}
+			if (!imageFilter.isPointFilter()) {
+				return 1;
+			}
+		}
+		return 1;
+	}
+
+}
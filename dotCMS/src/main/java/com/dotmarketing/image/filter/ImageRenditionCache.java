@@ -0,0 +1,190 @@
+package com.dotmarketing.image.filter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+
+/**
+ * Keeps the images generated by the image filters under a size budget. The
+ * generated files are kept in least recently used order, when their total
+ * size goes over the budget the least recently used ones are deleted, they
+ * are generated again the next time they are requested.
+ *
+ * The files generated before the cache was started are found by scanning the
+ * folder once, in the background, ordered by their modification date.
+ */
+public class ImageRenditionCache {
+
+	private static volatile ImageRenditionCache instance;
+
+	private final File root;
+	private final long maxBytes;
+	private final LinkedHashMap<String, Long> files = new LinkedHashMap<String, Long>(256, 0.75f, true);
+	private long totalBytes = 0;
+	private boolean scanned = false;
+
+	/**
+	 * @param root the folder of the generated files, may be null
+	 * @param maxBytes the size budget, 0 for no limit
+	 */
+	public ImageRenditionCache(File root, long maxBytes) {
+		this.root = root;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * The cache of the dotGenerated folder of the assets, with a budget of
+	 * IMAGE_RENDITION_CACHE_MAX_MB megabytes
+	 */
+	public static ImageRenditionCache getInstance() {
+		ImageRenditionCache cache = instance;
+		if (cache == null) {
+			synchronized (ImageRenditionCache.class) {
+				cache = instance;
+				if (cache == null) {
+					File root = new File(APILocator.getFileAPI().getRealAssetPath() + File.separator + "dotGenerated");
+					long maxBytes = Config.getLongProperty("IMAGE_RENDITION_CACHE_MAX_MB", 2048) * 1024 * 1024;
+					cache = new ImageRenditionCache(root, maxBytes);
+					instance = cache;
+				}
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Marks the file as the most recently used
+	 */
+	public void touch(File file) {
+		if (maxBytes <= 0) {
+			return;
+		}
+		scan();
+		synchronized (files) {
+			if (files.get(file.getPath()) == null) {
+				add(file.getPath(), file.length());
+			}
+		}
+	}
+
+	/**
+	 * Adds a file that has just been generated, deleting the least recently
+	 * used files if the budget is exceeded
+	 */
+	public void added(File file) {
+		if (maxBytes <= 0) {
+			return;
+		}
+		scan();
+		synchronized (files) {
+			add(file.getPath(), file.length());
+		}
+	}
+
+	/**
+	 * @return the total size of the files in the cache
+	 */
+	public long size() {
+		synchronized (files) {
+			return totalBytes;
+		}
+	}
+
+	private void add(String path, long length) {
+		Long previous = files.put(path, length);
+		totalBytes += length - (previous != null ? previous : 0);
+		evict(path);
+	}
+
+	private void evict(String keep) {
+		Iterator<Map.Entry<String, Long>> it = files.entrySet().iterator();
+		while (totalBytes > maxBytes && it.hasNext()) {
+			Map.Entry<String, Long> eldest = it.next();
+			if (eldest.getKey().equals(keep)) {
+				// never the file that is about to be served
+				continue;
+			}
+			File file = new File(eldest.getKey());
+			if (!file.delete() && file.exists()) {
+				Logger.warn(this.getClass(), "Unable to delete the generated file " + file.getAbsolutePath());
+			}
+			totalBytes -= eldest.getValue();
+			it.remove();
+		}
+	}
+
+	private void scan() {
+		synchronized (files) {
+			if (scanned) {
+				return;
+			}
+			scanned = true;
+		}
+		if (root == null || !root.isDirectory()) {
+			return;
+		}
+		Thread scanner = new Thread("ImageRenditionCacheScan") {
+			@Override
+			public void run() {
+				final long start = System.currentTimeMillis();
+				final List<File> found = new ArrayList<File>();
+				collect(root, found);
+				Collections.sort(found, new Comparator<File>() {
+					public int compare(File a, File b) {
+						return Long.compare(a.lastModified(), b.lastModified());
+					}
+				});
+				synchronized (files) {
+					// the files found go before the ones used since the cache started
+					LinkedHashMap<String, Long> used = new LinkedHashMap<String, Long>(files);
+					files.clear();
+					totalBytes = 0;
+					for (File file : found) {
+						if (!used.containsKey(file.getPath())) {
+							files.put(file.getPath(), file.length());
+							totalBytes += file.length();
+						}
+					}
+					for (Map.Entry<String, Long> entry : used.entrySet()) {
+						files.put(entry.getKey(), entry.getValue());
+						totalBytes += entry.getValue();
+					}
+					// evicts down to the budget, keeping the last used file
+					String last = null;
+					for (String path : used.keySet()) {
+						last = path;
+					}
+					evict(last);
+				}
+				Logger.info(ImageRenditionCache.class, "Found " + found.size() + " generated files in "
+						+ (System.currentTimeMillis() - start) + "ms");
+			}
+		};
+		scanner.setDaemon(true);
+		scanner.start();
+	}
+
+	private static void collect(File dir, List<File> found) {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			if (child.isDirectory()) {
+				collect(child, found);
+			} else {
+				found.add(child);
+			}
+		}
+	}
+
+}
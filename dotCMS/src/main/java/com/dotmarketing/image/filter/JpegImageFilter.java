@@ -18,7 +18,7 @@ import javax.imageio.stream.ImageOutputStream;
 
 import com.dotmarketing.util.Logger;
 
-public class JpegImageFilter extends ImageFilter {
+public class JpegImageFilter extends ImageFilter implements BufferedImageFilter {
 	public String[] getAcceptedParameters(){
 		return  new String[] {
 				"q (int) specifies quality",
@@ -26,12 +26,6 @@ public class JpegImageFilter extends ImageFilter {
 		};
 	}
 	public File runFilter(File file,   Map<String, String[]> parameters) {
-		int quality = parameters.get(getPrefix() +"q") != null?Integer.parseInt(parameters.get(getPrefix() +"q")[0]):85;
-
-		
-		Double q = new Double(quality);
-		q = q/100;
-		
 		File resultFile = getResultsFile(file, parameters, "jpg");
 
 		if(!overwrite(resultFile,parameters)){
@@ -41,25 +35,8 @@ public class JpegImageFilter extends ImageFilter {
 		resultFile.delete();
 
 		try {
-			Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("jpeg");
-			ImageWriter writer = iter.next();
-			ImageWriteParam iwp = writer.getDefaultWriteParam();
-			iwp.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-			iwp.setCompressionQuality(q.floatValue());   
 			BufferedImage src = ImageIO.read(file);
-			BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-			Graphics2D graphics = dst.createGraphics();  
-
-			graphics.setPaint ( new Color ( 255, 255, 255 ) );
-
-			graphics.fillRect(0, 0, src.getWidth(), src.getHeight());
-			graphics.drawImage(src, 0, 0, src.getWidth(), src.getHeight(),null);
-			ImageOutputStream ios = ImageIO.createImageOutputStream(resultFile);
-			writer.setOutput(ios);
-			writer.write(null,new IIOImage(dst,null,null),iwp);
-			ios.flush();
-			writer.dispose();
-			ios.close();
+			writeImage(filter(src, parameters), resultFile, parameters);
 			//writer.setOutput(output);
 
 		//	IIOImage image = new IIOImage(src, null, null);
@@ -79,6 +56,52 @@ public class JpegImageFilter extends ImageFilter {
 		
 		return resultFile;
 	}
+
+	public BufferedImage filter(BufferedImage src, Map<String, String[]> parameters) {
+		BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D graphics = dst.createGraphics();  
+
+		graphics.setPaint ( new Color ( 255, 255, 255 ) );
+
+		graphics.fillRect(0, 0, src.getWidth(), src.getHeight());
+		graphics.drawImage(src, 0, 0, src.getWidth(), src.getHeight(),null);
+		graphics.dispose();
+		return dst;
+	}
+
+	@Override
+	public boolean isPointFilter() {
+		return true;
+	}
+
+	@Override
+	protected String getFileExtension() {
+		return "jpg";
+	}
+
+	@Override
+	protected void writeImage(BufferedImage image, File file, Map<String, String[]> parameters) throws IOException {
+		int quality = parameters.get(getPrefix() +"q") != null?Integer.parseInt(parameters.get(getPrefix() +"q")[0]):85;
+
+		
+		Double q = new Double(quality);
+		q = q/100;
+
+		Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("jpeg");
+		ImageWriter writer = iter.next();
+		ImageWriteParam iwp = writer.getDefaultWriteParam();
+		iwp.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		iwp.setCompressionQuality(q.floatValue());   
+		ImageOutputStream ios = ImageIO.createImageOutputStream(file);
+		try {
+			writer.setOutput(ios);
+			writer.write(null,new IIOImage(image,null,null),iwp);
+			ios.flush();
+		} finally {
+			writer.dispose();
+			ios.close();
+		}
+	}
 	
 
 }
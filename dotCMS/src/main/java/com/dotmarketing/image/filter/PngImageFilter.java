@@ -18,7 +18,7 @@ import javax.imageio.stream.ImageOutputStream;
 
 import com.dotmarketing.util.Logger;
 
-public class PngImageFilter extends ImageFilter {
+public class PngImageFilter extends ImageFilter implements BufferedImageFilter {
 	public String[] getAcceptedParameters(){
 		return  new String[] {
 				
@@ -36,20 +36,7 @@ public class PngImageFilter extends ImageFilter {
 		resultFile.delete();
 		try{
 			BufferedImage src = ImageIO.read(file);
-			Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("png");
-			ImageWriter writer = iter.next();
-			ImageWriteParam iwp = writer.getDefaultWriteParam();
-			BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
-			Graphics2D graphics = dst.createGraphics();  
-
-			//graphics.fillRect(0, 0, src.getWidth(), src.getHeight());
-			graphics.drawImage(src, 0, 0, src.getWidth(), src.getHeight(),null);
-			ImageOutputStream ios = ImageIO.createImageOutputStream(resultFile);
-			writer.setOutput(ios);
-			writer.write(null,new IIOImage(dst,null,null),iwp);
-			ios.flush();
-			writer.dispose();
-			ios.close();
+			writeImage(filter(src, parameters), resultFile, parameters);
 		} catch (FileNotFoundException e) {
 			Logger.error(this.getClass(), e.getMessage());
 		} catch (IOException e) {
@@ -62,6 +49,41 @@ public class PngImageFilter extends ImageFilter {
 		
 		return resultFile;
 	}
+
+	public BufferedImage filter(BufferedImage src, Map<String, String[]> parameters) {
+		if(src.getType() == BufferedImage.TYPE_4BYTE_ABGR){
+			// drawing it again on a transparent image would not change it
+			return src;
+		}
+		BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
+		Graphics2D graphics = dst.createGraphics();  
+
+		//graphics.fillRect(0, 0, src.getWidth(), src.getHeight());
+		graphics.drawImage(src, 0, 0, src.getWidth(), src.getHeight(),null);
+		graphics.dispose();
+		return dst;
+	}
+
+	@Override
+	public boolean isPointFilter() {
+		return true;
+	}
+
+	@Override
+	protected void writeImage(BufferedImage image, File file, Map<String, String[]> parameters) throws IOException {
+		Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("png");
+		ImageWriter writer = iter.next();
+		ImageWriteParam iwp = writer.getDefaultWriteParam();
+		ImageOutputStream ios = ImageIO.createImageOutputStream(file);
+		try {
+			writer.setOutput(ios);
+			writer.write(null,new IIOImage(image,null,null),iwp);
+			ios.flush();
+		} finally {
+			writer.dispose();
+			ios.close();
+		}
+	}
 	
 
 }
@@ -1,5 +1,6 @@
 package com.dotmarketing.image.filter;
 
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.awt.image.BufferedImageOp;
 import java.io.File;
@@ -19,7 +20,7 @@ import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
 import com.twelvemonkeys.image.ResampleOp;
 
-public class ResizeImageFilter extends ImageFilter {
+public class ResizeImageFilter extends ImageFilter implements BufferedImageFilter {
 	public String[] getAcceptedParameters(){
 		return  new String[] {
 				"w (int) specifies width",
@@ -27,9 +28,6 @@ public class ResizeImageFilter extends ImageFilter {
 		};
 	}
 	public File runFilter(File file,    Map<String, String[]> parameters) {
-		double w = parameters.get(getPrefix() +"w") != null?Integer.parseInt(parameters.get(getPrefix() +"w")[0]):0;
-		double h = parameters.get(getPrefix() +"h") != null?Integer.parseInt(parameters.get(getPrefix() +"h")[0]):0;
-		
 		File resultFile = getResultsFile(file, parameters);
 		
 		if(!overwrite(resultFile,parameters)){
@@ -40,24 +38,10 @@ public class ResizeImageFilter extends ImageFilter {
 		try {
 			
 			BufferedImage src = ImageIO.read(file);
-			if(w ==0 && h ==0){
+			BufferedImage output = filter(src, parameters);
+			if(output == src){
 				return file;
 			}
-
-			
-			if(w ==0 && h >0){
-				w = Math.round(h * src.getWidth() / src.getHeight());
-			}
-			if(w >0 && h ==0){
-				h = Math.round(w * src.getHeight() / src.getWidth());
-			}
-			
-			int width    =      (int) w;    
-			int hieght     =     (int) h;
-
-
-			BufferedImageOp resampler = new ResampleOp(width, hieght, ResampleOp.FILTER_LANCZOS); // A good default filter, see class documentation for more info
-			BufferedImage output = resampler.filter(ImageIO.read(file), null);
 			ImageIO.write(output, "png", resultFile);
 			return resultFile;
 			
@@ -72,4 +56,29 @@ public class ResizeImageFilter extends ImageFilter {
 		return resultFile;
 	}
 
+	public BufferedImage filter(BufferedImage src, Map<String, String[]> parameters) {
+		Dimension size = getScaledSize(src.getWidth(), src.getHeight(), parameters);
+		if(size == null){
+			return src;
+		}
+		BufferedImageOp resampler = new ResampleOp(size.width, size.height, ResampleOp.FILTER_LANCZOS); // A good default filter, see class documentation for more info
+		return resampler.filter(src, null);
+	}
+
+	@Override
+	public Dimension getScaledSize(int width, int height, Map<String, String[]> parameters) {
+		double w = parameters.get(getPrefix() +"w") != null?Integer.parseInt(parameters.get(getPrefix() +"w")[0]):0;
+		double h = parameters.get(getPrefix() +"h") != null?Integer.parseInt(parameters.get(getPrefix() +"h")[0]):0;
+		if(w ==0 && h ==0){
+			return null;
+		}
+		if(w ==0 && h >0){
+			w = Math.round(h * width / height);
+		}
+		if(w >0 && h ==0){
+			h = Math.round(w * height / width);
+		}
+		return new Dimension((int) w, (int) h);
+	}
+
 }
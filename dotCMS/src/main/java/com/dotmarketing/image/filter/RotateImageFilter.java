@@ -10,7 +10,7 @@ import javax.imageio.ImageIO;
 import com.dotmarketing.util.Logger;
 import com.dotcms.repackage.com.dotmarketing.jhlabs.image.RotateFilter;
 
-public class RotateImageFilter extends ImageFilter {
+public class RotateImageFilter extends ImageFilter implements BufferedImageFilter {
 	public String[] getAcceptedParameters() {
 		return new String[] { "a for angle (double) 0.00-359.99 degrees to rotate",
 
@@ -18,28 +18,15 @@ public class RotateImageFilter extends ImageFilter {
 	}
 
 	public File runFilter(File file, Map<String, String[]> parameters) {
-		double a = parameters.get(getPrefix() + "a") != null ? Double.parseDouble(parameters.get(getPrefix() + "a")[0])
-				: 0.0;
-		a = a*-1;
 		File resultFile = getResultsFile(file, parameters);
 
 		if (!overwrite(resultFile, parameters)) {
 			return resultFile;
 		}
 
-		float x = new Double(java.lang.Math.toRadians(a)).floatValue();
-		RotateFilter filter = new RotateFilter(x, true);
-		filter.setEdgeAction(RotateFilter.ZERO);
-
 		try {
 			BufferedImage src = ImageIO.read(file);
-			// int w = java.lang.Math.c
-
-			BufferedImage testpass = filter.filter(src, null);
-
-			BufferedImage dst = new BufferedImage(testpass.getWidth(), testpass.getHeight(),
-					BufferedImage.TYPE_INT_ARGB);
-			dst = filter.filter(src, dst);
+			BufferedImage dst = filter(src, parameters);
 
 			/*
 			 * byte alpha =(byte)0; alpha %= 0xff; for (int cx=0;cx<dst.getWidth();cx++) { for (int
@@ -59,4 +46,20 @@ public class RotateImageFilter extends ImageFilter {
 		return resultFile;
 	}
 
+	public BufferedImage filter(BufferedImage src, Map<String, String[]> parameters) {
+		double a = parameters.get(getPrefix() + "a") != null ? Double.parseDouble(parameters.get(getPrefix() + "a")[0])
+				: 0.0;
+		a = a*-1;
+
+		float x = new Double(java.lang.Math.toRadians(a)).floatValue();
+		RotateFilter filter = new RotateFilter(x, true);
+		filter.setEdgeAction(RotateFilter.ZERO);
+
+		BufferedImage testpass = filter.filter(src, null);
+
+		BufferedImage dst = new BufferedImage(testpass.getWidth(), testpass.getHeight(),
+				BufferedImage.TYPE_INT_ARGB);
+		return filter.filter(src, dst);
+	}
+
 }
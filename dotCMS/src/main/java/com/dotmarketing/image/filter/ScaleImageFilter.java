@@ -1,5 +1,6 @@
 package com.dotmarketing.image.filter;
 
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -11,7 +12,7 @@ import javax.imageio.ImageIO;
 import com.dotmarketing.util.Logger;
 import com.dotcms.repackage.com.dotmarketing.jhlabs.image.ScaleFilter;
 
-public class ScaleImageFilter extends ImageFilter {
+public class ScaleImageFilter extends ImageFilter implements BufferedImageFilter {
 	public String[] getAcceptedParameters(){
 		return  new String[] {
 				"w (int) specifies width",
@@ -19,9 +20,6 @@ public class ScaleImageFilter extends ImageFilter {
 		};
 	}
 	public File runFilter(File file,    Map<String, String[]> parameters) {
-		int w = parameters.get(getPrefix() +"w") != null?Integer.parseInt(parameters.get(getPrefix() +"w")[0]):0;
-		int h = parameters.get(getPrefix() +"h") != null?Integer.parseInt(parameters.get(getPrefix() +"h")[0]):0;
-		
 		File resultFile = getResultsFile(file, parameters);
 
 		
@@ -36,28 +34,10 @@ public class ScaleImageFilter extends ImageFilter {
 		try {
 			
 			BufferedImage src = ImageIO.read(file);
-			if(w ==0 && h ==0){
+			BufferedImage dst = filter(src, parameters);
+			if(dst == src){
 				return file;
 			}
-			if(w ==0 && h >0){
-				w = h * src.getWidth() / src.getHeight();
-			}
-			if(w >0 && h ==0){
-				h =w * src.getHeight() / src.getWidth();
-			}
-			
-			
-			
-			
-			
-			
-			
-			ScaleFilter filter = new ScaleFilter(w,h);
-
-			BufferedImage dst = new BufferedImage(w, h,
-					BufferedImage.TYPE_INT_ARGB);
-
-			 dst = filter.filter(src, dst);
 			ImageIO.write(dst, "png", resultFile);
 			return resultFile;
 			
@@ -77,6 +57,35 @@ public class ScaleImageFilter extends ImageFilter {
 		
 		return resultFile;
 	}
+
+	public BufferedImage filter(BufferedImage src, Map<String, String[]> parameters) {
+		Dimension size = getScaledSize(src.getWidth(), src.getHeight(), parameters);
+		if(size == null){
+			return src;
+		}
+		ScaleFilter filter = new ScaleFilter(size.width, size.height);
+
+		BufferedImage dst = new BufferedImage(size.width, size.height,
+				BufferedImage.TYPE_INT_ARGB);
+
+		return filter.filter(src, dst);
+	}
+
+	@Override
+	public Dimension getScaledSize(int width, int height, Map<String, String[]> parameters) {
+		int w = parameters.get(getPrefix() +"w") != null?Integer.parseInt(parameters.get(getPrefix() +"w")[0]):0;
+		int h = parameters.get(getPrefix() +"h") != null?Integer.parseInt(parameters.get(getPrefix() +"h")[0]):0;
+		if(w ==0 && h ==0){
+			return null;
+		}
+		if(w ==0 && h >0){
+			w = h * width / height;
+		}
+		if(w >0 && h ==0){
+			h =w * height / width;
+		}
+		return new Dimension(w, h);
+	}
 	
 
 }
@@ -2,6 +2,7 @@ package com.dotmarketing.image.filter;
 
 import java.awt.Color;
 import java.awt.Container;
+import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.MediaTracker;
@@ -24,7 +25,7 @@ import com.dotmarketing.util.ImageResizeUtils;
 import com.dotmarketing.util.Logger;
 import com.twelvemonkeys.image.ResampleOp;
 
-public class ThumbnailImageFilter extends ImageFilter {
+public class ThumbnailImageFilter extends ImageFilter implements BufferedImageFilter {
 	public String[] getAcceptedParameters() {
 		return new String[] { "w (int) specifies width", "h (int) specifies height",
 				"bg (int) must be 9 digits of rgb (000000000=black, 255255255=white) for background color"
@@ -37,14 +38,6 @@ public class ThumbnailImageFilter extends ImageFilter {
 
 	public File runFilter(File file,  Map<String, String[]> parameters) {
 
-		int height = parameters.get(getPrefix() + "h") != null ? Integer.parseInt(parameters.get(getPrefix() + "h")[0])
-				: 0;
-		int width = parameters.get(getPrefix() + "w") != null ? Integer.parseInt(parameters.get(getPrefix() + "w")[0])
-				: 0;
-		String rgb = parameters.get(getPrefix() + "bg") != null ? parameters.get(getPrefix() + "bg")[0] : "255255255";
-		Color color = new Color(Integer.parseInt(rgb.substring(0, 3)), Integer.parseInt(rgb.substring(3, 6)),
-				Integer.parseInt(rgb.substring(6)));
-
 		File resultFile = getResultsFile(file, parameters);
 
 		if (!overwrite(resultFile, parameters)) {
@@ -54,68 +47,8 @@ public class ThumbnailImageFilter extends ImageFilter {
 		FileOutputStream fos = null;
 		try {
 			resultFile.delete();
-	        if (height <= 0 && width <= 0) {
-	            height = DEFAULT_HEIGHT;
-	            width = DEFAULT_WIDTH;
-	        }
-
-	        if (color == null){
-	            color = DEFAULT_BG_COLOR;
-	        }
-	        
-
-	        Image image = ImageIO.read(file);
-
-
 
-	        // determine thumbnail size from WIDTH and HEIGHT
-	        int imageWidth = image.getWidth(null);
-	        int imageHeight = image.getHeight(null);
-	        double imageRatio = (double) imageWidth / (double) imageHeight;
-
-	        int thumbWidth = width;
-	        int thumbHeight = height;
-	        if (thumbWidth <= 0)
-	            thumbWidth = (int) (thumbHeight * imageRatio);
-	        if (thumbHeight <= 0)
-	            thumbHeight = (int) (thumbWidth / imageRatio);
-	        double thumbRatio = (double) thumbWidth / (double) thumbHeight;
-
-	        if (thumbRatio < imageRatio) {
-	            thumbHeight = (int) Math.ceil((thumbWidth / imageRatio));
-	        } else {
-	            thumbWidth = (int) Math.ceil((thumbHeight * imageRatio));
-	        }
-
-	        if (thumbWidth == 0)
-	            thumbWidth = 1;
-	        if (thumbHeight == 0)
-	            thumbHeight = 1;
-
-	        if (width <= 0)
-	            width = (int) Math.ceil(height * imageRatio);
-	        if (height <= 0)
-	            height = (int) Math.ceil(width / imageRatio);
-
-	        // draw original image to thumbnail image object and
-	        // scale it to the new size on-the-fly
-	        BufferedImage bgImage = new BufferedImage(width, height, java.awt.image.BufferedImage.TYPE_INT_RGB);
-	        Graphics2D resultGraphics = bgImage.createGraphics();
-	        resultGraphics.setColor(color);
-	        resultGraphics.fillRect(0, 0, width, height);
-
-	        
-	        
-	        BufferedImageOp resampler = new ResampleOp(thumbWidth, thumbHeight, ResampleOp.FILTER_LANCZOS); // A good default filter, see class documentation for more info
-	        BufferedImage thumbImage = resampler.filter(ImageIO.read(file), null);
-
-
-	        // compute offsets to center image in its space
-	        int offsetX = (width - thumbImage.getWidth()) / 2;
-	        int offsetY = (height - thumbImage.getHeight()) / 2;
-
-	        resultGraphics.drawImage(thumbImage, null, offsetX, offsetY);
-	        resultGraphics.dispose();
+	        BufferedImage bgImage = filter(ImageIO.read(file), parameters);
 
 	        // save thumbnail image to OUTFILE
 	        BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(resultFile));
@@ -141,4 +74,100 @@ public class ThumbnailImageFilter extends ImageFilter {
 
 	}
 
+	public BufferedImage filter(BufferedImage image, Map<String, String[]> parameters) {
+
+		String rgb = parameters.get(getPrefix() + "bg") != null ? parameters.get(getPrefix() + "bg")[0] : "255255255";
+		Color color = new Color(Integer.parseInt(rgb.substring(0, 3)), Integer.parseInt(rgb.substring(3, 6)),
+				Integer.parseInt(rgb.substring(6)));
+
+        if (color == null){
+            color = DEFAULT_BG_COLOR;
+        }
+
+        int imageWidth = image.getWidth(null);
+        int imageHeight = image.getHeight(null);
+        Dimension size = getSize(parameters);
+        Dimension thumbSize = getThumbSize(size, imageWidth, imageHeight);
+        int width = size.width;
+        int height = size.height;
+
+        double imageRatio = (double) imageWidth / (double) imageHeight;
+        if (width <= 0)
+            width = (int) Math.ceil(height * imageRatio);
+        if (height <= 0)
+            height = (int) Math.ceil(width / imageRatio);
+
+        // draw original image to thumbnail image object and
+        // scale it to the new size on-the-fly
+        BufferedImage bgImage = new BufferedImage(width, height, java.awt.image.BufferedImage.TYPE_INT_RGB);
+        Graphics2D resultGraphics = bgImage.createGraphics();
+        resultGraphics.setColor(color);
+        resultGraphics.fillRect(0, 0, width, height);
+
+        
+        
+        BufferedImageOp resampler = new ResampleOp(thumbSize.width, thumbSize.height, ResampleOp.FILTER_LANCZOS); // A good default filter, see class documentation for more info
+        BufferedImage thumbImage = resampler.filter(image, null);
+
+
+        // compute offsets to center image in its space
+        int offsetX = (width - thumbImage.getWidth()) / 2;
+        int offsetY = (height - thumbImage.getHeight()) / 2;
+
+        resultGraphics.drawImage(thumbImage, null, offsetX, offsetY);
+        resultGraphics.dispose();
+
+        return bgImage;
+	}
+
+	@Override
+	public Dimension getScaledSize(int width, int height, Map<String, String[]> parameters) {
+		return getThumbSize(getSize(parameters), width, height);
+	}
+
+	/**
+	 * the size of the thumbnail, including the background
+	 */
+	private Dimension getSize(Map<String, String[]> parameters) {
+		int height = parameters.get(getPrefix() + "h") != null ? Integer.parseInt(parameters.get(getPrefix() + "h")[0])
+				: 0;
+		int width = parameters.get(getPrefix() + "w") != null ? Integer.parseInt(parameters.get(getPrefix() + "w")[0])
+				: 0;
+        if (height <= 0 && width <= 0) {
+            height = DEFAULT_HEIGHT;
+            width = DEFAULT_WIDTH;
+        }
+        return new Dimension(width, height);
+	}
+
+	/**
+	 * the size the image is scaled to, to fit in the thumbnail
+	 */
+	private Dimension getThumbSize(Dimension size, int imageWidth, int imageHeight) {
+
+        // determine thumbnail size from WIDTH and HEIGHT
+        double imageRatio = (double) imageWidth / (double) imageHeight;
+
+        int thumbWidth = size.width;
+        int thumbHeight = size.height;
+        if (thumbWidth <= 0)
+            thumbWidth = (int) (thumbHeight * imageRatio);
+        if (thumbHeight <= 0)
+            thumbHeight = (int) (thumbWidth / imageRatio);
+        double thumbRatio = (double) thumbWidth / (double) thumbHeight;
+
+        if (thumbRatio < imageRatio) {
+            thumbHeight = (int) Math.ceil((thumbWidth / imageRatio));
+        } else {
+            thumbWidth = (int) Math.ceil((thumbHeight * imageRatio));
+        }
+
+        if (thumbWidth == 0)
+            thumbWidth = 1;
+        if (thumbHeight == 0)
+            thumbHeight = 1;
+
+        return new Dimension(thumbWidth, thumbHeight);
+	}
+
 }
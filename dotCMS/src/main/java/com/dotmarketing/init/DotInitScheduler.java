@@ -40,6 +40,7 @@ import com.dotmarketing.quartz.job.DistReindexJournalCleanupThread;
 import com.dotmarketing.quartz.job.DistReindexJournalCleanupThread2;
 import com.dotmarketing.quartz.job.FreeServerFromClusterJob;
 import com.dotmarketing.quartz.job.PopBouncedMailThread;
+import com.dotmarketing.quartz.job.PublishExpireScheduler;
 import com.dotmarketing.quartz.job.ServerHeartbeatJob;
 import com.dotmarketing.quartz.job.TrashCleanupJob;
 import com.dotmarketing.quartz.job.UpdateRatingThread;
@@ -219,6 +220,12 @@ public class DotInitScheduler {
 				}
 			}
 
+			if(Config.getBooleanProperty("ENABLE_PUBLISH_EXPIRE_SCHEDULER", true)) {
+				PublishExpireScheduler.start();
+			} else {
+				Logger.info(DotInitScheduler.class, "Publish/expire scheduler disabled on this server");
+			}
+
 			//Bounces popper task
 			if(Config.getBooleanProperty("ENABLE_POP_BOUNCES_THREAD")) {
 				try {
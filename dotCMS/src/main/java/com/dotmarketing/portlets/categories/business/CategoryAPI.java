@@ -1,6 +1,7 @@
 package com.dotmarketing.portlets.categories.business;
 
 import java.util.List;
+import java.util.Set;
 
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotSecurityException;
@@ -405,6 +406,15 @@ public interface CategoryAPI {
 	 */
 	public List<Category> getAllChildren(Category category, User user, boolean respectFrontendRoles) throws DotDataException, DotSecurityException;
 
+	/**
+	 * Returns the velocity var names of all the categories under the given one,
+	 * at any depth. Permissions are not checked, it is intended for indexing
+	 * @param categoryId
+	 * @return
+	 * @throws DotDataException
+	 */
+	public Set<String> getAllChildrenVelocityVarNames(String categoryId) throws DotDataException;
+
 	/**
 	 * Retrieves a list all the line of parent categories of the given child category
 	 * a final fake top category is added at the beginning of the list to represent the top of
@@ -2,8 +2,10 @@ package com.dotmarketing.portlets.categories.business;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.CacheLocator;
@@ -453,6 +455,20 @@ public class CategoryAPIImpl implements CategoryAPI {
 
 	public List<Category> getAllChildren(Category category, User user, boolean respectFrontendRoles)
 			throws DotDataException, DotSecurityException {
+		// the system user reads every category, the whole tree is in the category graph
+		if (isSystemUser(user)) {
+			CategoryGraph graph = catFactory.getGraph();
+			if (graph.contains(category.getInode())) {
+				List<Category> categoryTree = new ArrayList<Category>();
+				for (String id : graph.getDescendantIds(category.getInode())) {
+					Category child = catFactory.find(id);
+					if (child != null) {
+						categoryTree.add(child);
+					}
+				}
+				return categoryTree;
+			}
+		}
 		List<Category> categoryTree = new ArrayList<Category>();
 		LinkedList<Category> children = new LinkedList<Category>(getChildren(category, user, respectFrontendRoles));
 		if (children != null) {
@@ -465,6 +481,29 @@ public class CategoryAPIImpl implements CategoryAPI {
 		return categoryTree;
 	}
 
+	private boolean isSystemUser(User user) throws DotDataException {
+		return user != null && user.getUserId().equals(APILocator.getUserAPI().getSystemUser().getUserId());
+	}
+
+	public Set<String> getAllChildrenVelocityVarNames(String categoryId) throws DotDataException {
+		CategoryGraph graph = catFactory.getGraph();
+		if (graph.contains(categoryId)) {
+			return graph.getDescendantVarNames(categoryId);
+		}
+		Set<String> varNames = new HashSet<String>();
+		Category category = catFactory.find(categoryId);
+		if (category != null) {
+			try {
+				for (Category child : getAllChildren(category, APILocator.getUserAPI().getSystemUser(), false)) {
+					varNames.add(child.getCategoryVelocityVarName());
+				}
+			} catch (DotSecurityException e) {
+				throw new DotDataException(e.getMessage(), e);
+			}
+		}
+		return varNames;
+	}
+
 	public void clearCache() {
 		catFactory.clearCache();
 	}
@@ -540,6 +579,14 @@ public class CategoryAPIImpl implements CategoryAPI {
 		List<Category> parents;
 
 		try {
+			// the graph is not filtered by permissions, only the system user reads every parent
+			if (isSystemUser(user)) {
+				CategoryGraph graph = catFactory.getGraph();
+				if (graph.contains(givenChild.getCategoryId()) && graph.contains(givenParent.getCategoryId())) {
+					return graph.isDescendant(givenChild.getCategoryId(), givenParent.getCategoryId());
+				}
+			}
+
 			parents = catAPI.getParents(givenChild, user, false);
 
 			if(parents==null || parents.isEmpty()) {
@@ -175,6 +175,24 @@ public abstract class CategoryCache implements Cachable{
 	 */
 	abstract protected void removeParent(Categorizable child, Category parent) throws DotDataException, DotCacheException;
 
+	/**
+	 * Returns the graph of all the categories, or null if it
+	 * is not in cache
+	 * @return
+	 */
+	abstract protected CategoryGraph getGraph();
+
+	/**
+	 * Puts the graph of all the categories in this server's cache
+	 * @param graph
+	 */
+	abstract protected void putGraph(CategoryGraph graph);
+
+	/**
+	 * Removes the graph of all the categories from the cache
+	 */
+	abstract protected void removeGraph();
+
 	/**
 	 * Removes all entries from cache
 	 */
@@ -25,9 +25,10 @@ public class CategoryCacheImpl extends CategoryCache {
 	private String categoryByKeyCacheGroup = "categoryByKeyCache";
     private String categoryChildrenCacheGroup = "categoryChildrenCache";
     private String categoryParentsCacheGroup = "categoryParentsCache";
+    private String categoryGraphCacheGroup = "categoryGraphCache";
 	
     // region's name for the cache
-    private String[] groupNames = {primaryGroup, categoryByKeyCacheGroup, categoryChildrenCacheGroup, categoryParentsCacheGroup};
+    private String[] groupNames = {primaryGroup, categoryByKeyCacheGroup, categoryChildrenCacheGroup, categoryParentsCacheGroup, categoryGraphCacheGroup};
     
     public CategoryCacheImpl() {
     	cache = CacheLocator.getCacheAdministrator();
@@ -294,12 +295,33 @@ public class CategoryCacheImpl extends CategoryCache {
     	}
 	}
 
+	@Override
+	protected CategoryGraph getGraph() {
+		try{
+			return (CategoryGraph) cache.get(categoryGraphCacheGroup, categoryGraphCacheGroup);
+		}catch (DotCacheException e) {
+			Logger.debug(this, "Cache Entry not found", e);
+			return null;
+		}
+	}
+
+	@Override
+	protected void putGraph(CategoryGraph graph) {
+		cache.put(categoryGraphCacheGroup, graph, categoryGraphCacheGroup);
+	}
+
+	@Override
+	protected void removeGraph() {
+		cache.remove(categoryGraphCacheGroup, categoryGraphCacheGroup);
+	}
+
 	@Override
 	public void clearCache() {
 		cache.flushGroup(primaryGroup);
 		cache.flushGroup(categoryChildrenCacheGroup);
 		cache.flushGroup(categoryByKeyCacheGroup);
-		cache.flushGroup(categoryParentsCacheGroup);		
+		cache.flushGroup(categoryParentsCacheGroup);
+		cache.flushGroup(categoryGraphCacheGroup);
 	}
 	
 	@Override
@@ -255,5 +255,13 @@ public abstract class CategoryFactory {
 	abstract void sortChildren(String inode)  throws DotDataException;
 
 	abstract protected  void clearCache();
+
+	/**
+	 * Returns the graph of all the categories and their parent/child relations,
+	 * loading it if it is not in cache
+	 * @return
+	 * @throws DotDataException
+	 */
+	abstract protected CategoryGraph getGraph() throws DotDataException;
 	
 }
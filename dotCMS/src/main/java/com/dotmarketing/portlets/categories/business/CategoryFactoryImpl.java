@@ -5,6 +5,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
+import java.util.function.UnaryOperator;
 
 import com.dotcms.repackage.net.sf.hibernate.ObjectNotFoundException;
 
@@ -18,6 +19,7 @@ import com.dotmarketing.business.PermissionAPI;
 import com.dotmarketing.common.db.DotConnect;
 import com.dotmarketing.common.util.SQLUtil;
 import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.DotRunnable;
 import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.exception.DotHibernateException;
@@ -37,6 +39,8 @@ public class CategoryFactoryImpl extends CategoryFactory {
 
 	CategoryCache catCache;
 
+	private static final Object graphLock = new Object();
+
 	public CategoryFactoryImpl () {
 		catCache = CacheLocator.getCategoryCache();
 	}
@@ -65,6 +69,8 @@ public class CategoryFactoryImpl extends CategoryFactory {
 		} catch (DotCacheException e) {
 			throw new DotDataException(e.getMessage(), e);
 		}
+		final String id = object.getInode();
+		updateGraph(graph -> graph.withoutNode(id));
 	}
 
 	@Override
@@ -162,6 +168,7 @@ public class CategoryFactoryImpl extends CategoryFactory {
 				throw new DotDataException(e.getMessage(), e);
 			}
 		}
+		updateGraphNode(object);
 	}
 
 
@@ -174,6 +181,7 @@ public class CategoryFactoryImpl extends CategoryFactory {
 		} catch (DotCacheException e) {
 			throw new DotDataException(e.getMessage(), e);
 		}
+		updateGraphNode(object);
 	}
 
 	@Override
@@ -193,6 +201,11 @@ public class CategoryFactoryImpl extends CategoryFactory {
 		} catch (DotCacheException e) {
 			throw new DotDataException(e.getMessage(), e);
 		}
+		if(parent instanceof Category) {
+			final String parentId = parent.getCategoryId();
+			final String childId = child.getInode();
+			updateGraph(graph -> graph.withEdge(parentId, childId));
+		}
 	}
 
 	@Override
@@ -211,6 +224,11 @@ public class CategoryFactoryImpl extends CategoryFactory {
 		} catch (DotCacheException e) {
 			throw new DotDataException(e.getMessage(), e);
 		}
+		if(child instanceof Category) {
+			final String parentId = parent.getInode();
+			final String childId = child.getCategoryId();
+			updateGraph(graph -> graph.withEdge(parentId, childId));
+		}
 
 	}
 	
@@ -358,6 +376,11 @@ public class CategoryFactoryImpl extends CategoryFactory {
 		} catch (DotCacheException e) {
 			throw new DotDataException(e.getMessage(), e);
 		}
+		if(parent instanceof Category) {
+			final String parentId = parent.getCategoryId();
+			final String childId = child.getInode();
+			updateGraph(graph -> graph.withoutEdge(parentId, childId));
+		}
 
 	}
 
@@ -373,6 +396,10 @@ public class CategoryFactoryImpl extends CategoryFactory {
 		} catch (DotCacheException e) {
 			throw new DotDataException(e.getMessage(), e);
 		}
+		if(parent instanceof Category) {
+			final String parentId = parent.getCategoryId();
+			updateGraph(graph -> graph.withChildren(parentId, Collections.<String>emptyList()));
+		}
 
 	}
 
@@ -389,6 +416,11 @@ public class CategoryFactoryImpl extends CategoryFactory {
 		} catch (DotCacheException e) {
 			throw new DotDataException(e.getMessage(), e);
 		}
+		if(child instanceof Category) {
+			final String parentId = parent.getInode();
+			final String childId = child.getCategoryId();
+			updateGraph(graph -> graph.withoutEdge(parentId, childId));
+		}
 
 	}
 
@@ -403,6 +435,10 @@ public class CategoryFactoryImpl extends CategoryFactory {
 		} catch (DotCacheException e) {
 			throw new DotDataException(e.getMessage(), e);
 		}
+		if(child instanceof Category) {
+			final String childId = child.getCategoryId();
+			updateGraph(graph -> graph.withParents(childId, Collections.<String>emptyList()));
+		}
 
 	}
 
@@ -423,6 +459,14 @@ public class CategoryFactoryImpl extends CategoryFactory {
 		} catch (DotCacheException e) {
 			throw new DotDataException(e.getMessage(), e);
 		}
+		if(parent instanceof Category) {
+			final String parentId = parent.getCategoryId();
+			final List<String> childIds = new ArrayList<String>();
+			for (Category cat : children) {
+				childIds.add(cat.getInode());
+			}
+			updateGraph(graph -> graph.withChildren(parentId, childIds));
+		}
 	}
 
 	@Override
@@ -442,6 +486,14 @@ public class CategoryFactoryImpl extends CategoryFactory {
 		} catch (DotCacheException e) {
 			throw new DotDataException(e.getMessage(), e);
 		}
+		if(child instanceof Category) {
+			final String childId = child.getCategoryId();
+			final List<String> parentIds = new ArrayList<String>();
+			for (Category cat : parents) {
+				parentIds.add(cat.getInode());
+			}
+			updateGraph(graph -> graph.withParents(childId, parentIds));
+		}
 	}
 
 	@Override
@@ -457,6 +509,7 @@ public class CategoryFactoryImpl extends CategoryFactory {
 			sql.append("inode category_1_ where tree.child is null and category_1_.inode = category.inode and category_1_.type = 'category' ");
 			s.executeUpdate(sql.toString());
 			conn.commit();
+			catCache.removeGraph();
 		} catch (SQLException e) {
 			try {
 				conn.rollback();
@@ -512,6 +565,7 @@ public class CategoryFactoryImpl extends CategoryFactory {
 			sql.append(" tree.parent = '").append(inode).append("' and category_1_.type = 'category' and cat.inode = c.inode ) ");
 			s.executeUpdate(sql.toString());
 			conn.commit();
+			catCache.removeGraph();
 		} catch (SQLException e) {
 			try {
 				conn.rollback();
@@ -606,6 +660,7 @@ public class CategoryFactoryImpl extends CategoryFactory {
 			s.executeUpdate(catSQL.getUpdateSort());
 			s.executeUpdate(catSQL.getDropSort());
 			conn.commit();
+			catCache.removeGraph();
 
 			rs = s.executeQuery(catSQL.getSortParents());
 
@@ -661,6 +716,7 @@ public class CategoryFactoryImpl extends CategoryFactory {
 			sql = catSQL.getDropSort();
 			s.executeUpdate(sql);
 			conn.commit();
+			catCache.removeGraph();
 			sql = catSQL.getSortedChildren(inode);
 			rs = s.executeQuery(sql);
 
@@ -700,6 +756,72 @@ public class CategoryFactoryImpl extends CategoryFactory {
 		}
 	}
 
+	@Override
+	protected CategoryGraph getGraph() throws DotDataException {
+		CategoryGraph graph = catCache.getGraph();
+		if(graph == null) {
+			synchronized (graphLock) {
+				graph = catCache.getGraph();
+				if(graph == null) {
+					graph = loadGraph();
+					// a transaction could still roll back the relations it sees
+					if(!DbConnectionFactory.inTransaction()) {
+						catCache.putGraph(graph);
+					}
+				}
+			}
+		}
+		return graph;
+	}
+
+	private CategoryGraph loadGraph() throws DotDataException {
+		long start = System.currentTimeMillis();
+		List<String> ids = new ArrayList<String>();
+		List<String> varNames = new ArrayList<String>();
+		DotConnect dc = new DotConnect();
+		dc.setSQL("select inode, category_velocity_var_name from category");
+		for(Map<String,Object> row : dc.loadObjectResults()) {
+			ids.add(row.get("inode").toString());
+			varNames.add(row.get("category_velocity_var_name") != null ? row.get("category_velocity_var_name").toString() : null);
+		}
+		List<String[]> edges = new ArrayList<String[]>();
+		dc.setSQL("select tree.parent, tree.child from tree join category parent_cat on (parent_cat.inode = tree.parent) " +
+				"join category child_cat on (child_cat.inode = tree.child) order by tree.parent, child_cat.sort_order, child_cat.category_name");
+		for(Map<String,Object> row : dc.loadObjectResults()) {
+			edges.add(new String[] { row.get("parent").toString(), row.get("child").toString() });
+		}
+		CategoryGraph graph = CategoryGraph.build(ids, varNames, edges);
+		Logger.debug(this, "Loaded the graph of " + ids.size() + " categories and " + edges.size() + " relations in "
+				+ (System.currentTimeMillis() - start) + "ms");
+		return graph;
+	}
+
+	private void updateGraphNode(Category category) throws DotDataException {
+		final String id = category.getInode();
+		final String varName = category.getCategoryVelocityVarName();
+		updateGraph(graph -> graph.withNode(id, varName));
+	}
+
+	/**
+	 * Once the current transaction is committed, removes the category graph
+	 * from the cache of every server and puts back in this one the graph with
+	 * the given change applied, so only this server does not load it again.
+	 */
+	private void updateGraph(final UnaryOperator<CategoryGraph> change) throws DotDataException {
+		HibernateUtil.addCommitListener(new DotRunnable() {
+			@Override
+			public void run() {
+				synchronized (graphLock) {
+					CategoryGraph graph = catCache.getGraph();
+					catCache.removeGraph();
+					if(graph != null) {
+						catCache.putGraph(change.apply(graph));
+					}
+				}
+			}
+		});
+	}
+
     /**
      * Cleans the parent and child cache for a given category
      *
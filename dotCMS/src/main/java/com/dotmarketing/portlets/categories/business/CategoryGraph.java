@@ -0,0 +1,415 @@
+package com.dotmarketing.portlets.categories.business;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable graph of the categories and their parent/child relations, with
+ * the descendants and ancestors of every category computed when it is built.
+ * Finding all the subcategories of a category or whether a category is under
+ * another one does not hit the database or walk the tree.
+ * <p>
+ * Categories are numbered in the order they are added. Every category keeps
+ * its children in the order they were loaded, its descendants breadth first
+ * like {@link CategoryAPI#getAllChildren} returns them, and its ancestors
+ * sorted so they can be binary searched. The <code>with*</code> methods return
+ * a copy with the change applied, recomputing only the categories it reaches.
+ */
+public class CategoryGraph implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int[] NONE = new int[0];
+
+	private final Map<String, Integer> index;
+	private String[] ids;
+	private String[] varNames;
+	private int[][] children;
+	private int[][] parents;
+	private int[][] descendants;
+	private int[][] ancestors;
+
+	private CategoryGraph(Map<String, Integer> index, String[] ids, String[] varNames, int[][] children, int[][] parents,
+			int[][] descendants, int[][] ancestors) {
+		this.index = index;
+		this.ids = ids;
+		this.varNames = varNames;
+		this.children = children;
+		this.parents = parents;
+		this.descendants = descendants;
+		this.ancestors = ancestors;
+	}
+
+	/**
+	 * @param ids The inodes of the categories
+	 * @param varNames The velocity var names of the categories, in the same order
+	 * @param edges The parent and child inodes of every relation, children in the order they are listed
+	 */
+	public static CategoryGraph build(List<String> ids, List<String> varNames, List<String[]> edges) {
+		int size = ids.size();
+		Map<String, Integer> index = new HashMap<String, Integer>(size * 2);
+		for (int i = 0; i < size; i++) {
+			index.put(ids.get(i), i);
+		}
+		List<List<Integer>> childLists = new ArrayList<List<Integer>>(size);
+		List<List<Integer>> parentLists = new ArrayList<List<Integer>>(size);
+		for (int i = 0; i < size; i++) {
+			childLists.add(new ArrayList<Integer>(0));
+			parentLists.add(new ArrayList<Integer>(0));
+		}
+		for (String[] edge : edges) {
+			Integer parent = index.get(edge[0]);
+			Integer child = index.get(edge[1]);
+			if (parent != null && child != null && !childLists.get(parent).contains(child)) {
+				childLists.get(parent).add(child);
+				parentLists.get(child).add(parent);
+			}
+		}
+		int[][] children = new int[size][];
+		int[][] parents = new int[size][];
+		for (int i = 0; i < size; i++) {
+			children[i] = toArray(childLists.get(i));
+			parents[i] = toArray(parentLists.get(i));
+		}
+		CategoryGraph graph = new CategoryGraph(index, ids.toArray(new String[size]), varNames.toArray(new String[size]),
+				children, parents, new int[size][], new int[size][]);
+		for (int i = 0; i < size; i++) {
+			graph.descendants[i] = graph.walk(i, graph.children);
+			graph.ancestors[i] = sorted(graph.walk(i, graph.parents));
+		}
+		return graph;
+	}
+
+	public boolean contains(String id) {
+		return index.containsKey(id);
+	}
+
+	public int size() {
+		return index.size();
+	}
+
+	public String getVelocityVarName(String id) {
+		Integer node = index.get(id);
+		return node == null ? null : varNames[node];
+	}
+
+	public List<String> getChildIds(String id) {
+		Integer node = index.get(id);
+		return node == null ? Collections.<String>emptyList() : toIds(children[node]);
+	}
+
+	public List<String> getParentIds(String id) {
+		Integer node = index.get(id);
+		return node == null ? Collections.<String>emptyList() : toIds(parents[node]);
+	}
+
+	/**
+	 * @return The inodes of every category under the given one, breadth first
+	 */
+	public List<String> getDescendantIds(String id) {
+		Integer node = index.get(id);
+		return node == null ? Collections.<String>emptyList() : toIds(descendants[node]);
+	}
+
+	/**
+	 * @return The velocity var names of every category under the given one
+	 */
+	public Set<String> getDescendantVarNames(String id) {
+		Integer node = index.get(id);
+		if (node == null) {
+			return Collections.emptySet();
+		}
+		Set<String> names = new HashSet<String>(descendants[node].length * 2);
+		for (int descendant : descendants[node]) {
+			names.add(varNames[descendant]);
+		}
+		return names;
+	}
+
+	/**
+	 * @return The inodes of every category the given one is under
+	 */
+	public List<String> getAncestorIds(String id) {
+		Integer node = index.get(id);
+		return node == null ? Collections.<String>emptyList() : toIds(ancestors[node]);
+	}
+
+	/**
+	 * @return true if the first category is under the second one, at any depth
+	 */
+	public boolean isDescendant(String id, String ancestorId) {
+		Integer node = index.get(id);
+		Integer ancestor = index.get(ancestorId);
+		return node != null && ancestor != null && Arrays.binarySearch(ancestors[node], ancestor) >= 0;
+	}
+
+	/**
+	 * Adds a category, or updates its velocity var name.
+	 */
+	public CategoryGraph withNode(String id, String varName) {
+		Integer node = index.get(id);
+		if (node != null && varName != null && varName.equals(varNames[node])) {
+			return this;
+		}
+		CategoryGraph graph = copy();
+		if (node == null) {
+			graph.add(id);
+			node = graph.index.get(id);
+		}
+		graph.varNames[node] = varName;
+		return graph;
+	}
+
+	/**
+	 * Removes a category and its relations.
+	 */
+	public CategoryGraph withoutNode(String id) {
+		Integer node = index.get(id);
+		if (node == null) {
+			return this;
+		}
+		CategoryGraph graph = copy();
+		Set<Integer> down = new HashSet<Integer>();
+		Set<Integer> up = new HashSet<Integer>();
+		for (int parent : parents[node]) {
+			graph.children[parent] = remove(graph.children[parent], node);
+			down.add(parent);
+		}
+		for (int child : children[node]) {
+			graph.parents[child] = remove(graph.parents[child], node);
+			up.add(child);
+		}
+		graph.children[node] = NONE;
+		graph.parents[node] = NONE;
+		graph.descendants[node] = NONE;
+		graph.ancestors[node] = NONE;
+		graph.ids[node] = null;
+		graph.varNames[node] = null;
+		graph.index.remove(id);
+		graph.recompute(down, up);
+		return graph;
+	}
+
+	/**
+	 * Adds a relation between two categories already in the graph.
+	 */
+	public CategoryGraph withEdge(String parentId, String childId) {
+		Integer parent = index.get(parentId);
+		Integer child = index.get(childId);
+		if (parent == null || child == null || contains(children[parent], child)) {
+			return this;
+		}
+		CategoryGraph graph = copy();
+		graph.children[parent] = append(children[parent], child);
+		graph.parents[child] = append(parents[child], parent);
+		graph.recompute(Collections.singleton(parent), Collections.singleton(child));
+		return graph;
+	}
+
+	/**
+	 * Removes the relation between two categories.
+	 */
+	public CategoryGraph withoutEdge(String parentId, String childId) {
+		Integer parent = index.get(parentId);
+		Integer child = index.get(childId);
+		if (parent == null || child == null || !contains(children[parent], child)) {
+			return this;
+		}
+		CategoryGraph graph = copy();
+		graph.children[parent] = remove(children[parent], child);
+		graph.parents[child] = remove(parents[child], parent);
+		graph.recompute(Collections.singleton(parent), Collections.singleton(child));
+		return graph;
+	}
+
+	/**
+	 * Replaces the children of a category, the ones not in the graph are ignored.
+	 */
+	public CategoryGraph withChildren(String parentId, Collection<String> childIds) {
+		Integer parent = index.get(parentId);
+		if (parent == null) {
+			return this;
+		}
+		CategoryGraph graph = copy();
+		Set<Integer> up = new HashSet<Integer>();
+		for (int child : children[parent]) {
+			graph.parents[child] = remove(graph.parents[child], parent);
+			up.add(child);
+		}
+		Set<Integer> newChildren = new LinkedHashSet<Integer>();
+		for (String childId : childIds) {
+			Integer child = index.get(childId);
+			if (child != null && newChildren.add(child)) {
+				graph.parents[child] = append(graph.parents[child], parent);
+				up.add(child);
+			}
+		}
+		graph.children[parent] = toArray(newChildren);
+		graph.recompute(Collections.singleton(parent), up);
+		return graph;
+	}
+
+	/**
+	 * Replaces the parents of a category, the ones not in the graph are ignored.
+	 */
+	public CategoryGraph withParents(String childId, Collection<String> parentIds) {
+		Integer child = index.get(childId);
+		if (child == null) {
+			return this;
+		}
+		CategoryGraph graph = copy();
+		Set<Integer> down = new HashSet<Integer>();
+		for (int parent : parents[child]) {
+			graph.children[parent] = remove(graph.children[parent], child);
+			down.add(parent);
+		}
+		Set<Integer> newParents = new LinkedHashSet<Integer>();
+		for (String parentId : parentIds) {
+			Integer parent = index.get(parentId);
+			if (parent != null && newParents.add(parent)) {
+				graph.children[parent] = append(graph.children[parent], child);
+				down.add(parent);
+			}
+		}
+		graph.parents[child] = toArray(newParents);
+		graph.recompute(down, Collections.singleton(child));
+		return graph;
+	}
+
+	private CategoryGraph copy() {
+		return new CategoryGraph(new HashMap<String, Integer>(index), ids.clone(), varNames.clone(), children.clone(),
+				parents.clone(), descendants.clone(), ancestors.clone());
+	}
+
+	private void add(String id) {
+		int node = ids.length;
+		index.put(id, node);
+		ids = Arrays.copyOf(ids, node + 1);
+		varNames = Arrays.copyOf(varNames, node + 1);
+		children = Arrays.copyOf(children, node + 1);
+		parents = Arrays.copyOf(parents, node + 1);
+		descendants = Arrays.copyOf(descendants, node + 1);
+		ancestors = Arrays.copyOf(ancestors, node + 1);
+		ids[node] = id;
+		children[node] = NONE;
+		parents[node] = NONE;
+		descendants[node] = NONE;
+		ancestors[node] = NONE;
+	}
+
+	/**
+	 * A relation changed under the <code>down</code> categories and above the
+	 * <code>up</code> ones: the descendants of those categories and their
+	 * ancestors change, and so do the ancestors of those categories and their
+	 * descendants.
+	 */
+	private void recompute(Collection<Integer> down, Collection<Integer> up) {
+		Set<Integer> changedDescendants = new HashSet<Integer>();
+		for (int node : down) {
+			changedDescendants.add(node);
+			for (int ancestor : walk(node, parents)) {
+				changedDescendants.add(ancestor);
+			}
+		}
+		Set<Integer> changedAncestors = new HashSet<Integer>();
+		for (int node : up) {
+			changedAncestors.add(node);
+			for (int descendant : walk(node, children)) {
+				changedAncestors.add(descendant);
+			}
+		}
+		for (int node : changedDescendants) {
+			descendants[node] = walk(node, children);
+		}
+		for (int node : changedAncestors) {
+			ancestors[node] = sorted(walk(node, parents));
+		}
+	}
+
+	/**
+	 * Every category reached from the given one following the given relations,
+	 * breadth first. Relations are a DAG but a cycle does not loop forever.
+	 */
+	private int[] walk(int node, int[][] relations) {
+		if (relations[node].length == 0) {
+			return NONE;
+		}
+		Set<Integer> visited = new LinkedHashSet<Integer>();
+		int[] queue = new int[Math.max(16, relations[node].length)];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = node;
+		while (head < tail) {
+			for (int next : relations[queue[head++]]) {
+				if (next != node && visited.add(next)) {
+					if (tail == queue.length) {
+						queue = Arrays.copyOf(queue, tail * 2);
+					}
+					queue[tail++] = next;
+				}
+			}
+		}
+		return toArray(visited);
+	}
+
+	private List<String> toIds(int[] nodes) {
+		List<String> list = new ArrayList<String>(nodes.length);
+		for (int node : nodes) {
+			list.add(ids[node]);
+		}
+		return list;
+	}
+
+	private static boolean contains(int[] nodes, int node) {
+		for (int n : nodes) {
+			if (n == node) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int[] append(int[] nodes, int node) {
+		int[] result = Arrays.copyOf(nodes, nodes.length + 1);
+		result[nodes.length] = node;
+		return result;
+	}
+
+	private static int[] remove(int[] nodes, int node) {
+		int[] result = new int[nodes.length];
+		int size = 0;
+		for (int n : nodes) {
+			if (n != node) {
+				result[size++] = n;
+			}
+		}
+		return size == 0 ? NONE : Arrays.copyOf(result, size);
+	}
+
+	private static int[] sorted(int[] nodes) {
+		int[] result = nodes.clone();
+		Arrays.sort(result);
+		return result;
+	}
+
+	private static int[] toArray(Collection<Integer> nodes) {
+		if (nodes.isEmpty()) {
+			return NONE;
+		}
+		int[] result = new int[nodes.size()];
+		int i = 0;
+		for (int node : nodes) {
+			result[i++] = node;
+		}
+		return result;
+	}
+}
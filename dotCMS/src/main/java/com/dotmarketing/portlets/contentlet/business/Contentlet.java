@@ -1667,23 +1667,7 @@ public class Contentlet extends WebAsset implements Serializable {
 					// http://jira.dotmarketing.net/browse/DOTCMS-3463
 					/*** THIS LOGIC IS DUPED IN THE CONTENTLETAPI.  IF YOU CHANGE HERE, CHANGE THERE **/
 					if(f.getFieldContentlet().startsWith("binary")&& value == null){
-						java.io.File binaryFile = null ;
-						java.io.File binaryFilefolder = new java.io.File(APILocator.getFileAPI().getRealAssetPath()
-								+ java.io.File.separator
-								+ getInode().charAt(0)
-								+ java.io.File.separator
-								+ getInode().charAt(1)
-								+ java.io.File.separator
-								+ getInode()
-								+ java.io.File.separator
-								+ f.getVelocityVarName());
-						if(binaryFilefolder.exists()){
-							java.io.File[] files = binaryFilefolder.listFiles(new BinaryFileFilter());
-							if(files.length > 0){
-								binaryFile = files[0];
-							}
-						}
-						value = binaryFile;
+						value = findBinaryFile(f);
 					}
 				} catch (Exception e) {
 					Logger.error(this, "Unable to obtain contentlet property value for: " + f.getFieldContentlet(), e);
@@ -1696,6 +1680,31 @@ public class Contentlet extends WebAsset implements Serializable {
 		return myMap;
 	}
 
+	/**
+	 * Returns the file stored in the assets folder for the given binary field
+	 * @param f the binary field
+	 * @return the file or null if there is none
+	 */
+	public File findBinaryFile(Field f) {
+		java.io.File binaryFile = null ;
+		java.io.File binaryFilefolder = new java.io.File(APILocator.getFileAPI().getRealAssetPath()
+				+ java.io.File.separator
+				+ getInode().charAt(0)
+				+ java.io.File.separator
+				+ getInode().charAt(1)
+				+ java.io.File.separator
+				+ getInode()
+				+ java.io.File.separator
+				+ f.getVelocityVarName());
+		if(binaryFilefolder.exists()){
+			java.io.File[] files = binaryFilefolder.listFiles(new BinaryFileFilter());
+			if(files.length > 0){
+				binaryFile = files[0];
+			}
+		}
+		return binaryFile;
+	}
+
 	/**
 	 * This method returns the value for any of the generic fields
 	 * of the contentlet, given a fieldName using reflection, invoking the
@@ -1,6 +1,8 @@
 package com.dotmarketing.portlets.contentlet.business;
 
 import com.dotcms.content.elasticsearch.business.ESContentFactoryImpl.TranslatedQuery;
+import com.dotcms.content.elasticsearch.business.ESPermissionFilter;
+import com.dotcms.content.elasticsearch.business.ESQueryPlan;
 import com.dotmarketing.business.Cachable;
 import com.dotmarketing.portlets.contentlet.model.Contentlet;
 
@@ -22,6 +24,14 @@ public abstract class ContentletCache implements Cachable {
     public abstract void addTranslatedQuery(String key, TranslatedQuery translatedQuery);
 
     public abstract TranslatedQuery getTranslatedQuery(String key);
+
+    public abstract void addQueryPlan(String key, ESQueryPlan queryPlan);
+
+    public abstract ESQueryPlan getQueryPlan(String key);
+
+    public abstract void addPermissionFilter(String key, ESPermissionFilter permissionFilter);
+
+    public abstract ESPermissionFilter getPermissionFilter(String key);
     
     public abstract String getMetadata(String key);
 
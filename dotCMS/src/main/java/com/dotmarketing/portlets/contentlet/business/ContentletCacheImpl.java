@@ -1,6 +1,8 @@
 package com.dotmarketing.portlets.contentlet.business;
 
 import com.dotcms.content.elasticsearch.business.ESContentFactoryImpl.TranslatedQuery;
+import com.dotcms.content.elasticsearch.business.ESPermissionFilter;
+import com.dotcms.content.elasticsearch.business.ESQueryPlan;
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.CacheLocator;
@@ -24,8 +26,10 @@ public class ContentletCacheImpl extends ContentletCache {
 	private String primaryGroup = "ContentletCache";
 	private String metadataGroup = "FileAssetMetadataCache";
 	private String translatedQueryGroup = "TranslatedQueryCache";
+	private String queryPlanGroup = "ESQueryPlanCache";
+	private String permissionFilterGroup = "ESPermissionFilterCache";
     // region's name for the cache
-    private String[] groupNames = {primaryGroup, HostCache.PRIMARY_GROUP, metadataGroup,translatedQueryGroup};
+    private String[] groupNames = {primaryGroup, HostCache.PRIMARY_GROUP, metadataGroup,translatedQueryGroup,queryPlanGroup,permissionFilterGroup};
 
 	public ContentletCacheImpl() {
         cache = CacheLocator.getCacheAdministrator();
@@ -51,6 +55,38 @@ public class ContentletCacheImpl extends ContentletCache {
 		} 
 	}
 	
+	@Override
+	public void addQueryPlan(String key, ESQueryPlan queryPlan) {
+		cache.put(key, queryPlan, queryPlanGroup);
+	}
+
+	@Override
+	public ESQueryPlan getQueryPlan(String key) {
+		Object o = null;
+		try {
+			o = cache.get(key, queryPlanGroup);
+		} catch (DotCacheException e) {
+			Logger.error(ContentletCacheImpl.class,e.getMessage(),e);
+		}
+		return (ESQueryPlan)o;
+	}
+
+	@Override
+	public void addPermissionFilter(String key, ESPermissionFilter permissionFilter) {
+		cache.put(key, permissionFilter, permissionFilterGroup);
+	}
+
+	@Override
+	public ESPermissionFilter getPermissionFilter(String key) {
+		Object o = null;
+		try {
+			o = cache.get(key, permissionFilterGroup);
+		} catch (DotCacheException e) {
+			Logger.error(ContentletCacheImpl.class,e.getMessage(),e);
+		}
+		return (ESPermissionFilter)o;
+	}
+
 	@Override
 	public void addMetadata(String key, String metadata) {
 	    key = metadataGroup + key;
@@ -1,6 +1,7 @@
 package com.dotmarketing.portlets.contentlet.business;
 
 import com.dotcms.content.business.DotMappingException;
+import com.dotcms.content.elasticsearch.business.ESPermissionFilter;
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.business.DotStateException;
 import com.dotmarketing.business.query.GenericQueryFactory.Query;
@@ -141,6 +142,20 @@ public abstract class ContentletFactory {
 	 * @return
 	 */
 	protected abstract SearchHits indexSearch(String luceneQuery, int limit, int offset, String sortBy);
+
+	/**
+	 * Searches the index as {@link #indexSearch(String, int, int, String)}, only returning the content the
+	 * permission filter allows
+	 * @param luceneQuery
+	 * @param limit
+	 * @param offset
+	 * @param sortBy
+	 * @param permissionFilter the read permission constraint, null to not check permissions
+	 * @param userId the user searching, to also return the content it owns, may be null
+	 * @return
+	 */
+	protected abstract SearchHits indexSearch(String luceneQuery, int limit, int offset, String sortBy,
+			ESPermissionFilter permissionFilter, String userId);
 	
 	/**
 	 * Returns the contentlets on a given page.  You can pass -1 for languageId if you don't want to query to pull based
@@ -357,6 +372,8 @@ public abstract class ContentletFactory {
     protected abstract Object loadField(String inode, String fieldContentlet) throws DotDataException;
     
     protected abstract long indexCount(String query);
+
+    protected abstract long indexCount(String query, ESPermissionFilter permissionFilter, String userId);
     
     /**
      * Gets the top viewed contents identifier and numberOfViews for a particular structure for a specified date interval
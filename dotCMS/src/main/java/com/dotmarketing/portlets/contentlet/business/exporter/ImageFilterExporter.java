@@ -9,9 +9,12 @@ import java.util.Map;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.UserAPI;
 import com.dotmarketing.image.filter.ImageFilter;
+import com.dotmarketing.image.filter.ImageFilterChain;
+import com.dotmarketing.image.filter.ImageRenditionCache;
 import com.dotmarketing.portlets.contentlet.business.BinaryContentExporter;
 import com.dotmarketing.portlets.contentlet.business.BinaryContentExporterException;
 import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
+import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
 
 /**
@@ -22,6 +25,10 @@ import com.dotmarketing.util.Logger;
  * You can chain filters so that you resize then crop to 
  * produce the resulting image
  * 
+ * When all the filters can run in memory the chain is run by
+ * an ImageFilterChain, decoding the image once and only writing
+ * the final image
+ * 
  * 
  */
 
@@ -53,13 +60,13 @@ public class ImageFilterExporter implements BinaryContentExporter {
 				
 			}
 
+			List<ImageFilter> filters = new ArrayList<ImageFilter>();
 			for(String s : filter){
 				String clazz =null;
 				try {
 					clazz ="com.dotmarketing.image.filter." + s + "ImageFilter";
 					Class<ImageFilter> iFilter = (Class<ImageFilter>) Class.forName( clazz );
-					ImageFilter i=	iFilter.newInstance();
-					file = i.runFilter(file,   parameters);
+					filters.add(iFilter.newInstance());
 				} catch (ClassNotFoundException e) {
 					Logger.error(ImageFilterExporter.class, "Unable to instanciate : " +  clazz );
 				} catch (InstantiationException e) {
@@ -72,6 +79,20 @@ public class ImageFilterExporter implements BinaryContentExporter {
 				}
 			}
 
+			ImageFilterChain chain = new ImageFilterChain(filters,
+					Config.getBooleanProperty("IMAGE_RENDITION_SUBSAMPLED_DECODING", true), ImageRenditionCache.getInstance());
+			if(Config.getBooleanProperty("IMAGE_RENDITION_FUSED_FILTERS", true) && chain.isFused()){
+				try {
+					file = chain.run(file, parameters);
+				} catch (Exception e) {
+					Logger.warn(ImageFilterExporter.class, "Unable to render " + file.getName() + " in memory, running the filters one by one: " + e.getMessage());
+					file = runFilters(file, filters, parameters);
+				}
+			}
+			else{
+				file = runFilters(file, filters, parameters);
+			}
+
 
 			data = new BinaryContentExporterData(file);
 			
@@ -83,6 +104,21 @@ public class ImageFilterExporter implements BinaryContentExporter {
 		return data;
 	}
 
+	/**
+	 * runs the filters one after the other, each one on the file written by the previous one
+	 */
+	private File runFilters(File file, List<ImageFilter> filters, Map<String, String[]> parameters) {
+		for(ImageFilter i : filters){
+			try {
+				file = i.runFilter(file,   parameters);
+			}
+			catch (Exception e) {
+				Logger.error(ImageFilterExporter.class, "Exception in " +  i.getClass().getName() + " :" + e.getMessage() );
+			}
+		}
+		return file;
+	}
+
 	public String getName() {
 		return "Image Filter Exporter";
 	}
@@ -0,0 +1,87 @@
+package com.dotmarketing.portlets.contentlet.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.dotcms.content.elasticsearch.business.FatContentletConverter;
+
+/**
+ * Assigns a slot to every property a contentlet of a structure usually has,
+ * its system properties and the velocity var names of its fields, so a
+ * {@link ContentletSlotMap} can keep the values in an array instead of a
+ * hash map per contentlet. One layout is shared by all the contentlets of
+ * the structure, also when they are read from a cache that serializes them.
+ */
+public final class ContentletLayout implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String structureInode;
+    private final String[] keys;
+    private final Map<String, Integer> slots;
+
+    /**
+     * @param keys The property names, the duplicated ones get a single slot
+     */
+    public ContentletLayout(final Collection<String> keys) {
+        this(null, keys);
+    }
+
+    /**
+     * @param structureInode The structure the layout is shared by
+     * @param keys The property names, the duplicated ones get a single slot
+     */
+    public ContentletLayout(final String structureInode, final Collection<String> keys) {
+
+        this.structureInode = structureInode;
+        this.slots = new HashMap<String, Integer>(keys.size() * 2);
+        for (final String key : keys) {
+            if (key != null && !slots.containsKey(key)) {
+                slots.put(key, slots.size());
+            }
+        }
+        this.keys = new String[slots.size()];
+        for (final Map.Entry<String, Integer> entry : slots.entrySet()) {
+            this.keys[entry.getValue()] = entry.getKey();
+        }
+    }
+
+    /**
+     * @return The slot of the property, or -1 if it is not part of the layout
+     */
+    public int slot(final Object key) {
+
+        final Integer slot = slots.get(key);
+        return slot == null ? -1 : slot;
+    }
+
+    public String key(final int slot) {
+        return keys[slot];
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public String getStructureInode() {
+        return structureInode;
+    }
+
+    /**
+     * @return true if the other layout puts every property in the same slot
+     */
+    public boolean hasSameKeys(final ContentletLayout other) {
+        return other != null && Arrays.equals(keys, other.keys);
+    }
+
+    /**
+     * A deserialized layout is replaced by the one shared by the contentlets
+     * of its structure
+     */
+    private Object readResolve() {
+        return structureInode == null ? this : FatContentletConverter.getInstance().share(this);
+    }
+}
@@ -0,0 +1,222 @@
+package com.dotmarketing.portlets.contentlet.model;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Contentlet map that keeps the properties of its {@link ContentletLayout} in
+ * an array indexed by slot, and only the other ones in a hash map created when
+ * the first of them is added. It behaves as the default contentlet map: it is
+ * safe to share between threads, its iterators are weakly consistent, null
+ * keys are not allowed and putting a null value removes the property.
+ */
+public class ContentletSlotMap extends AbstractMap<String, Object> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ContentletLayout layout;
+    private final AtomicReferenceArray<Object> values;
+    private volatile ConcurrentHashMap<String, Object> others;
+
+    public ContentletSlotMap(final ContentletLayout layout) {
+        this.layout = layout;
+        this.values = new AtomicReferenceArray<Object>(layout.size());
+    }
+
+    public ContentletLayout getLayout() {
+        return layout;
+    }
+
+    @Override
+    public Object get(final Object key) {
+
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        final int slot = layout.slot(key);
+        if (slot >= 0) {
+            return values.get(slot);
+        }
+        final Map<String, Object> others = this.others;
+        return others == null ? null : others.get(key);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Object put(final String key, final Object value) {
+
+        if (value == null) {
+            return remove(key);
+        }
+        final int slot = layout.slot(key);
+        return slot >= 0 ? values.getAndSet(slot, value) : others().put(key, value);
+    }
+
+    @Override
+    public Object remove(final Object key) {
+
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        final int slot = layout.slot(key);
+        if (slot >= 0) {
+            return values.getAndSet(slot, null);
+        }
+        final Map<String, Object> others = this.others;
+        return others == null ? null : others.remove(key);
+    }
+
+    @Override
+    public int size() {
+
+        int size = 0;
+        for (int i = 0; i < values.length(); i++) {
+            if (values.get(i) != null) {
+                size++;
+            }
+        }
+        final Map<String, Object> others = this.others;
+        return others == null ? size : size + others.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public void clear() {
+
+        for (int i = 0; i < values.length(); i++) {
+            values.set(i, null);
+        }
+        final Map<String, Object> others = this.others;
+        if (others != null) {
+            others.clear();
+        }
+    }
+
+    private ConcurrentHashMap<String, Object> others() {
+
+        ConcurrentHashMap<String, Object> others = this.others;
+        if (others == null) {
+            synchronized (this) {
+                others = this.others;
+                if (others == null) {
+                    others = new ConcurrentHashMap<String, Object>(4);
+                    this.others = others;
+                }
+            }
+        }
+        return others;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+
+        return new AbstractSet<Map.Entry<String, Object>>() {
+
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return ContentletSlotMap.this.size();
+            }
+
+            @Override
+            public void clear() {
+                ContentletSlotMap.this.clear();
+            }
+        };
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        private int slot = -1;
+        private Iterator<Map.Entry<String, Object>> othersIterator;
+        private Map.Entry<String, Object> next;
+        private Map.Entry<String, Object> last;
+
+        EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+
+            next = null;
+            while (othersIterator == null && ++slot < values.length()) {
+                final Object value = values.get(slot);
+                if (value != null) {
+                    next = new SlotEntry(layout.key(slot), value);
+                    return;
+                }
+            }
+            if (othersIterator == null) {
+                final Map<String, Object> others = ContentletSlotMap.this.others;
+                othersIterator = others == null ? null : others.entrySet().iterator();
+            }
+            if (othersIterator != null && othersIterator.hasNext()) {
+                next = othersIterator.next();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            ContentletSlotMap.this.remove(last.getKey());
+            last = null;
+        }
+    }
+
+    private final class SlotEntry extends SimpleEntry<String, Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        SlotEntry(final String key, final Object value) {
+            super(key, value);
+        }
+
+        @Override
+        public Object setValue(final Object value) {
+
+            if (value == null) {
+                throw new NullPointerException();
+            }
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
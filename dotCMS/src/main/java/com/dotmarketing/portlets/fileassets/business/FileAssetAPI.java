@@ -27,6 +27,8 @@ public interface FileAssetAPI {
 	String SHOW_ON_MENU = "showOnMenu";
 	String META_DATA_FIELD = "metaData";
 	String CONTENT_FIELD = "content";
+	/** Set to true in the metadata of a file cut off by a size limit or a timeout */
+	String PARTIAL_META_DATA_FIELD = "partialMetaData";
 	String TITLE_FIELD_NAME = "Title";
 	String FILE_NAME_FIELD_NAME = "File Name";
 	String DESCRIPTION_NAME = "Description";
@@ -0,0 +1,121 @@
+package com.dotmarketing.portlets.rules.business;
+
+import com.dotcms.repackage.com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.dotcms.util.GeoIp2CityDbUtil;
+import com.dotcms.util.HttpRequestDataUtil;
+import com.dotcms.visitor.business.VisitorAPI;
+import com.dotcms.visitor.domain.Visitor;
+import com.dotmarketing.portlets.rules.conditionlet.Location;
+import eu.bitwalker.useragentutils.UserAgent;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.Calendar;
+import java.util.Optional;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Holds the visitor data the conditionlets of every rule fired on a request have
+ * in common: the parsed user agent, the IP address and its GeoIP lookups and the
+ * {@link Visitor}. Each one is resolved the first time a conditionlet asks for it
+ * and reused by the rest of the rules fired on the same request.
+ * <p>
+ * The context lives in a request attribute, failed lookups are not kept so the
+ * next conditionlet gets the same error.
+ */
+public class RuleEvaluationContext {
+
+    private static final String REQUEST_ATTRIBUTE = RuleEvaluationContext.class.getName();
+
+    private final HttpServletRequest request;
+
+    private UserAgent userAgent;
+    private String ipAddress;
+    private String countryIsoCode;
+    private Location location;
+    private Calendar dateTime;
+    private Optional<Visitor> visitor;
+
+    private RuleEvaluationContext(HttpServletRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * Returns the context of the given request, creating it if this is the first rule evaluated on it.
+     *
+     * @param request
+     *            - The {@link HttpServletRequest} object.
+     * @return The {@link RuleEvaluationContext} of the request.
+     */
+    public static RuleEvaluationContext get(HttpServletRequest request) {
+        Object context = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (context instanceof RuleEvaluationContext) {
+            return (RuleEvaluationContext) context;
+        }
+        RuleEvaluationContext newContext = new RuleEvaluationContext(request);
+        request.setAttribute(REQUEST_ATTRIBUTE, newContext);
+        return newContext;
+    }
+
+    /**
+     * @return The {@code User-Agent} header of the request, parsed.
+     */
+    public UserAgent getUserAgent() {
+        if (userAgent == null) {
+            userAgent = UserAgent.parseUserAgentString(request.getHeader("User-Agent"));
+        }
+        return userAgent;
+    }
+
+    /**
+     * @return The IP address of the visitor, see {@link HttpRequestDataUtil#getIpAddress(HttpServletRequest)}
+     */
+    public String getIpAddress() throws UnknownHostException {
+        if (ipAddress == null) {
+            ipAddress = HttpRequestDataUtil.getIpAddress(request).getHostAddress();
+        }
+        return ipAddress;
+    }
+
+    /**
+     * @return The ISO code of the country of the visitor, see {@link GeoIp2CityDbUtil#getCountryIsoCode(String)}
+     */
+    public String getCountryIsoCode(GeoIp2CityDbUtil geoIp2Util) throws IOException, GeoIp2Exception {
+        if (countryIsoCode == null) {
+            countryIsoCode = geoIp2Util.getCountryIsoCode(getIpAddress());
+        }
+        return countryIsoCode;
+    }
+
+    /**
+     * @return The location of the visitor, see {@link GeoIp2CityDbUtil#getLocationByIp(String)}
+     */
+    public Location getLocation(GeoIp2CityDbUtil geoIp2Util) throws IOException, GeoIp2Exception {
+        if (location == null) {
+            location = geoIp2Util.getLocationByIp(getIpAddress());
+        }
+        return location;
+    }
+
+    /**
+     * @return The date and time of the visitor, see {@link GeoIp2CityDbUtil#getDateTime(String)}
+     */
+    public Calendar getDateTime(GeoIp2CityDbUtil geoIp2Util) throws IOException, GeoIp2Exception {
+        if (dateTime == null) {
+            dateTime = geoIp2Util.getDateTime(getIpAddress());
+        }
+        return dateTime;
+    }
+
+    /**
+     * @return The {@link Visitor} of the request, see {@link VisitorAPI#getVisitor(HttpServletRequest)}
+     */
+    public Optional<Visitor> getVisitor(VisitorAPI visitorAPI) {
+        if (visitor == null || !visitor.isPresent()) {
+            visitor = visitorAPI.getVisitor(request);
+        }
+        return visitor;
+    }
+
+}
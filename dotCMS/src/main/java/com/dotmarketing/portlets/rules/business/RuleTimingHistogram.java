@@ -0,0 +1,101 @@
+package com.dotmarketing.portlets.rules.business;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the distribution of the time a rule takes to be evaluated, in power of
+ * two buckets of microseconds, so the percentiles of a rule can be reported
+ * without keeping every sample.
+ * <p>
+ * Recording a sample is lock free, the {@link RulesEngine} records every
+ * evaluation of every rule.
+ */
+public class RuleTimingHistogram {
+
+	// Bucket i counts the samples under 2^i microseconds, the last one everything above
+	private static final int BUCKETS = 28;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+	private final AtomicLong lastWarning = new AtomicLong();
+
+	/**
+	 * Records the time an evaluation took.
+	 *
+	 * @param nanos
+	 *            - The duration in nanoseconds.
+	 */
+	public void record(long nanos) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+		int bucket = micros == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+		buckets.incrementAndGet(bucket);
+		count.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+
+		long max = maxNanos.get();
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getMeanMicros() {
+		long samples = count.get();
+		return samples == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.get() / samples);
+	}
+
+	public long getMaxMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+	}
+
+	/**
+	 * Returns the upper bound of the bucket the given percentile falls in.
+	 *
+	 * @param percentile
+	 *            - A value between 0 and 100.
+	 * @return The duration in microseconds that percentile of the evaluations did not exceed.
+	 */
+	public long getPercentileMicros(double percentile) {
+		long samples = count.get();
+		if (samples == 0) {
+			return 0;
+		}
+		long target = (long) Math.ceil(samples * percentile / 100d);
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS - 1; bucket++) {
+			seen += buckets.get(bucket);
+			if (seen >= target) {
+				return Math.min(1L << bucket, getMaxMicros());
+			}
+		}
+		return getMaxMicros();
+	}
+
+	/**
+	 * Allows a single warning per interval, so a rule that is always slow does
+	 * not flood the log.
+	 *
+	 * @param intervalMillis
+	 *            - The minimum time between two warnings.
+	 * @return If the caller should log the warning.
+	 */
+	boolean shouldWarn(long intervalMillis) {
+		long now = System.currentTimeMillis();
+		long last = lastWarning.get();
+		return now - last >= intervalMillis && lastWarning.compareAndSet(last, now);
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + getCount() + ", mean=" + getMeanMicros() + "us, p50<=" + getPercentileMicros(50)
+				+ "us, p99<=" + getPercentileMicros(99) + "us, max=" + getMaxMicros() + "us";
+	}
+
+}
@@ -8,6 +8,7 @@ import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotCacheAdministrator;
 import com.dotmarketing.business.DotCacheException;
 import com.dotmarketing.business.Ruleable;
+import com.dotmarketing.portlets.rules.exception.RuleEngineException;
 import com.dotmarketing.portlets.rules.model.*;
 import com.dotmarketing.util.Logger;
 
@@ -130,6 +131,15 @@ public class RulesCacheImpl extends RulesCache {
 
         fireOn = checkNotNull(fireOn, "FireOn is required.");
 
+        // Compile the conditions once, so the evaluation on every request walks the tree
+        for (Rule rule : rules) {
+            try {
+                rule.compile();
+            } catch (RuleEngineException e) {
+                Logger.error(RulesCacheImpl.class, "Rule could not be compiled. Rule ID: " + rule.getId(), e);
+            }
+        }
+
         cache.remove(parentIdentifier + ":" + fireOn, getPrimaryGroup());
         cache.put(parentIdentifier + ":" + fireOn, rules, getPrimaryGroup());
     }
@@ -16,6 +16,9 @@ import com.dotmarketing.util.WebKeys;
 import com.liferay.portal.model.User;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -39,6 +42,10 @@ import javax.servlet.http.HttpServletResponse;
 public final class RulesEngine {
 	
 	private static int SLOW_RULE_LOG_MIN=Config.getIntProperty("SLOW_RULE_LOG_MIN", 100);
+
+	private static long SLOW_RULE_LOG_INTERVAL=TimeUnit.SECONDS.toMillis(Config.getIntProperty("SLOW_RULE_LOG_INTERVAL_SECONDS", 60));
+
+	private static final ConcurrentMap<String, RuleTimingHistogram> RULE_TIMINGS = new ConcurrentHashMap<>();
 	
 	private static final String SKIP_RULES_EXECUTION = "skip"; 
 
@@ -112,8 +119,7 @@ public final class RulesEngine {
 					fireOn);
             for (Rule rule : rules) {
                 try {
-                	long before = System.currentTimeMillis();
-                    rule.checkValid(); // @todo ggranum: this should actually be done on writing to the DB, or at worst reading from.
+                	long before = System.nanoTime();
                     boolean evaled = rule.evaluate(req, res);
 
 					if (evaled) {
@@ -129,10 +135,13 @@ public final class RulesEngine {
 						
 						trackFiredRule(rCopy, req);
 					}
-                    long after = System.currentTimeMillis();
-        			if((after - before) > SLOW_RULE_LOG_MIN) {
+                    long elapsed = System.nanoTime() - before;
+                    RuleTimingHistogram timings = getRuleTimings(rule.getId());
+                    timings.record(elapsed);
+        			if(TimeUnit.NANOSECONDS.toMillis(elapsed) > SLOW_RULE_LOG_MIN && timings.shouldWarn(SLOW_RULE_LOG_INTERVAL)) {
 						Logger.warn(RulesEngine.class, "Rule ID: " + rule.getId()
-								+ " is running too slow. The rule is fired on: " + rule.getFireOn().name());
+								+ " is running too slow. The rule is fired on: " + rule.getFireOn().name()
+								+ ". Timings: " + timings);
         			}
                 } catch (RuleEngineException e) {
                     Logger.error(RulesEngine.class, "Rule could not be evaluated. Rule ID: " + rule.getId(), e);
@@ -144,6 +153,36 @@ public final class RulesEngine {
         }
     }
 
+	/**
+	 * Returns the evaluation timings of the specified rule, collected since the
+	 * server started.
+	 * 
+	 * @param ruleId
+	 *            - The ID of the {@link Rule}.
+	 * @return The {@link RuleTimingHistogram} of the rule.
+	 */
+	public static RuleTimingHistogram getRuleTimings(String ruleId) {
+		RuleTimingHistogram timings = RULE_TIMINGS.get(ruleId);
+		if (timings == null) {
+			RuleTimingHistogram newTimings = new RuleTimingHistogram();
+			timings = RULE_TIMINGS.putIfAbsent(ruleId, newTimings);
+			if (timings == null) {
+				timings = newTimings;
+			}
+		}
+		return timings;
+	}
+
+	/**
+	 * Returns the evaluation timings of every rule fired since the server
+	 * started, by rule ID.
+	 * 
+	 * @return An unmodifiable view of the timings.
+	 */
+	public static Map<String, RuleTimingHistogram> getRuleTimings() {
+		return Collections.unmodifiableMap(RULE_TIMINGS);
+	}
+
 	/**
 	 * Keeps track of the rules that have been fired for a given HTTP request.
 	 * This will allow Web developers to access the list of rules that were
@@ -8,7 +8,23 @@ public abstract class Conditionlet<T extends RuleComponentInstance> extends Rule
 
     public static final String COMPARISON_KEY = "comparison";
 
+    /**
+     * Relative costs of evaluating a conditionlet, see {@link #getEvaluationCost()}
+     */
+    protected static final int LOW_COST = 1;
+    protected static final int MEDIUM_COST = 5;
+    protected static final int HIGH_COST = 10;
+
     protected Conditionlet(String i18nKey, ParameterDefinition... parameterDefinitions) {
         super(i18nKey, parameterDefinitions);
     }
+
+    /**
+     * Relative cost of evaluating this conditionlet. The conditions of a compiled
+     * rule are evaluated cheaper first, so a condition that reads a request header
+     * can discard the rule before one that needs a GeoIP lookup runs.
+     */
+    public int getEvaluationCost() {
+        return LOW_COST;
+    }
 }
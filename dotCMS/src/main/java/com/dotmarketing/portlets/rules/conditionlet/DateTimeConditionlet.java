@@ -4,8 +4,8 @@ import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
 import com.dotcms.repackage.com.maxmind.geoip2.exception.GeoIp2Exception;
 import com.dotcms.repackage.org.apache.logging.log4j.util.Strings;
 import com.dotcms.util.GeoIp2CityDbUtil;
-import com.dotcms.util.HttpRequestDataUtil;
 import com.dotmarketing.portlets.rules.RuleComponentInstance;
+import com.dotmarketing.portlets.rules.business.RuleEvaluationContext;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotPresentException;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotSupportedException;
 import com.dotmarketing.portlets.rules.exception.RuleEvaluationFailedException;
@@ -19,7 +19,6 @@ import com.dotmarketing.util.Logger;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -94,16 +93,15 @@ public class DateTimeConditionlet extends Conditionlet<DateTimeConditionlet.Inst
 
     private LocalDateTime lookupDateTime(HttpServletRequest request) {
         LocalDateTime localDateTime = null;
-        InetAddress address;
+        RuleEvaluationContext context = RuleEvaluationContext.get(request);
         try {
-            address = HttpRequestDataUtil.getIpAddress(request);
+            context.getIpAddress();
         } catch (UnknownHostException e) {
             throw new RuleEvaluationFailedException(e, "Unknown host.");
         }
-        String ipAddress = address.getHostAddress();
         Calendar dateTime = null;
         try {
-            dateTime = geoIp2Util.getDateTime(ipAddress);
+            dateTime = context.getDateTime(geoIp2Util);
         } catch (IOException | GeoIp2Exception e) {
             Logger.error(this, "Could not look up country for request. Using 'unknown': " + request.getRequestURL());
         }
@@ -114,6 +112,11 @@ public class DateTimeConditionlet extends Conditionlet<DateTimeConditionlet.Inst
         return localDateTime;
     }
 
+    @Override
+    public int getEvaluationCost() {
+        return HIGH_COST;
+    }
+
     @Override
     public Instance instanceFrom(Map<String, ParameterModel> parameters) {
         return new Instance(this, parameters);
@@ -1,6 +1,6 @@
 package com.dotmarketing.portlets.rules.conditionlet;
 
-import com.dotmarketing.beans.Clickstream;
+import com.dotmarketing.factories.ClickstreamRecorder;
 import com.dotmarketing.portlets.rules.RuleComponentInstance;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotPresentException;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotSupportedException;
@@ -15,7 +15,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import static com.dotmarketing.factories.ClickstreamFactory.CLICKSTREAM_SESSION_ATTR_KEY;
 import static com.dotmarketing.portlets.rules.parameter.comparison.Comparison.NUMERIC_COMPARISONS;
 
 /**
@@ -38,13 +37,7 @@ public class PagesViewedConditionlet extends Conditionlet<PagesViewedConditionle
 
         HttpSession session = request.getSession(true);
 
-        Clickstream clickstream = (Clickstream)session.getAttribute(CLICKSTREAM_SESSION_ATTR_KEY);
-        if(clickstream == null) {
-            clickstream = new Clickstream();
-            session.setAttribute(CLICKSTREAM_SESSION_ATTR_KEY, clickstream);
-		}
-
-        int actualCount = clickstream.getNumberOfRequests();
+        int actualCount = ClickstreamRecorder.getPageViews(session.getId());
         return instance.comparison.perform(actualCount, instance.totalPageViewsCount);
     }
 
@@ -14,6 +14,7 @@ import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.portlets.personas.business.PersonaAPI;
 import com.dotmarketing.portlets.personas.model.Persona;
 import com.dotmarketing.portlets.rules.RuleComponentInstance;
+import com.dotmarketing.portlets.rules.business.RuleEvaluationContext;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotPresentException;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotSupportedException;
 import com.dotmarketing.portlets.rules.exception.RuleConstructionFailedException;
@@ -72,7 +73,7 @@ public class PersonaConditionlet extends Conditionlet<PersonaConditionlet.Instan
     public boolean evaluate(HttpServletRequest request, HttpServletResponse response, Instance instance) {
         boolean result;
         try {
-            Optional<Visitor> opt = visitorAPI.getVisitor(request);
+            Optional<Visitor> opt = RuleEvaluationContext.get(request).getVisitor(visitorAPI);
             if(opt.isPresent()){
                 Visitor visitor = opt.get();
                 Persona currentPersona = (Persona) visitor.getPersona();
@@ -98,6 +99,11 @@ public class PersonaConditionlet extends Conditionlet<PersonaConditionlet.Instan
         return result;
     }
 
+    @Override
+    public int getEvaluationCost() {
+        return MEDIUM_COST;
+    }
+
     @Override
     public Instance instanceFrom(Map<String, ParameterModel> parameters) {
         return new Instance(this, parameters);
@@ -3,6 +3,7 @@ package com.dotmarketing.portlets.rules.conditionlet;
 import eu.bitwalker.useragentutils.Browser;
 import eu.bitwalker.useragentutils.UserAgent;
 import com.dotmarketing.portlets.rules.RuleComponentInstance;
+import com.dotmarketing.portlets.rules.business.RuleEvaluationContext;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotPresentException;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotSupportedException;
 import com.dotmarketing.portlets.rules.model.ParameterModel;
@@ -80,8 +81,7 @@ public class UsersBrowserConditionlet extends Conditionlet<UsersBrowserCondition
     private String lookupBrowser(HttpServletRequest request, Instance instance) {
         String browser = "unknown";
         try {
-            String userAgentInfo = request.getHeader("User-Agent");
-            UserAgent agent = UserAgent.parseUserAgentString(userAgentInfo);
+            UserAgent agent = RuleEvaluationContext.get(request).getUserAgent();
             if (agent != null && agent.getBrowser() != null) {
                 browser = agent.getBrowser().getName().replaceAll("[0-9]*$", "").trim();//remove version number of the browser name e.g Firefox4
                 if(browser.toLowerCase().contains(instance.browser.toLowerCase())){// avoid issues with the device e.g Chrome_Mobile
@@ -94,6 +94,11 @@ public class UsersBrowserConditionlet extends Conditionlet<UsersBrowserCondition
         return browser;
     }
     
+    @Override
+    public int getEvaluationCost() {
+        return MEDIUM_COST;
+    }
+
     @Override
     public Instance instanceFrom(Map<String, ParameterModel> parameters) {
         return new Instance(this, parameters);
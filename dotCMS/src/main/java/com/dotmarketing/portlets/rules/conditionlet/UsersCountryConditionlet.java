@@ -3,8 +3,8 @@ package com.dotmarketing.portlets.rules.conditionlet;
 import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
 import com.dotcms.repackage.com.maxmind.geoip2.exception.GeoIp2Exception;
 import com.dotcms.util.GeoIp2CityDbUtil;
-import com.dotcms.util.HttpRequestDataUtil;
 import com.dotmarketing.portlets.rules.RuleComponentInstance;
+import com.dotmarketing.portlets.rules.business.RuleEvaluationContext;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotPresentException;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotSupportedException;
 import com.dotmarketing.portlets.rules.exception.RuleEvaluationFailedException;
@@ -15,7 +15,6 @@ import com.dotmarketing.portlets.rules.parameter.display.DropdownInput;
 import com.dotmarketing.portlets.rules.parameter.type.TextType;
 import com.dotmarketing.util.Logger;
 import java.io.IOException;
-import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
@@ -313,21 +312,25 @@ public class UsersCountryConditionlet extends Conditionlet<UsersCountryCondition
 
     private String lookupCountry(HttpServletRequest request) {
         String country = "unknown";
-        InetAddress address;
+        RuleEvaluationContext context = RuleEvaluationContext.get(request);
         try {
-            address = HttpRequestDataUtil.getIpAddress(request);
+            context.getIpAddress();
         } catch (UnknownHostException e) {
             throw new RuleEvaluationFailedException(e, "Unknown host.");
         }
-        String ipAddress = address.getHostAddress();
         try {
-            country = geoIp2Util.getCountryIsoCode(ipAddress);
+            country = context.getCountryIsoCode(geoIp2Util);
         } catch (IOException | GeoIp2Exception e) {
             Logger.error(this, "Could not look up country for request. Using 'unknown': " + request.getRequestURL());
         }
         return country;
     }
 
+    @Override
+    public int getEvaluationCost() {
+        return HIGH_COST;
+    }
+
     @Override
     public Instance instanceFrom(Map<String, ParameterModel> parameters) {
         return new Instance(this, parameters);
@@ -3,6 +3,7 @@ package com.dotmarketing.portlets.rules.conditionlet;
 import eu.bitwalker.useragentutils.DeviceType;
 import eu.bitwalker.useragentutils.UserAgent;
 import com.dotmarketing.portlets.rules.RuleComponentInstance;
+import com.dotmarketing.portlets.rules.business.RuleEvaluationContext;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotPresentException;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotSupportedException;
 import com.dotmarketing.portlets.rules.model.ParameterModel;
@@ -75,8 +76,7 @@ public class UsersPlatformConditionlet extends Conditionlet<UsersPlatformConditi
     private String lookupPlatform(HttpServletRequest request) {
         String platform = "unknown";
         try {
-            String userAgentInfo = request.getHeader("User-Agent");
-            UserAgent agent = UserAgent.parseUserAgentString(userAgentInfo);
+            UserAgent agent = RuleEvaluationContext.get(request).getUserAgent();
             if (agent.getOperatingSystem() != null) {
                 platform = agent.getOperatingSystem().getDeviceType().name();
             }
@@ -86,6 +86,11 @@ public class UsersPlatformConditionlet extends Conditionlet<UsersPlatformConditi
         return platform;
     }
 
+    @Override
+    public int getEvaluationCost() {
+        return MEDIUM_COST;
+    }
+
     @Override
     public Instance instanceFrom(Map<String, ParameterModel> parameters) {
         return new Instance(this, parameters);
@@ -3,6 +3,7 @@ package com.dotmarketing.portlets.rules.conditionlet;
 import eu.bitwalker.useragentutils.Browser;
 import eu.bitwalker.useragentutils.UserAgent;
 import com.dotmarketing.portlets.rules.RuleComponentInstance;
+import com.dotmarketing.portlets.rules.business.RuleEvaluationContext;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotPresentException;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotSupportedException;
 import com.dotmarketing.portlets.rules.model.ParameterModel;
@@ -11,7 +12,6 @@ import com.dotmarketing.portlets.rules.parameter.comparison.Comparison;
 import com.dotmarketing.portlets.rules.parameter.display.DropdownInput;
 import com.dotmarketing.portlets.rules.parameter.type.TextType;
 import com.dotmarketing.util.Logger;
-import com.dotmarketing.viewtools.UserAgentTool;
 import eu.bitwalker.useragentutils.OperatingSystem;
 
 import javax.servlet.http.HttpServletRequest;
@@ -24,7 +24,7 @@ import static com.dotmarketing.portlets.rules.parameter.comparison.Comparison.IS
 
 /**
  * This conditionlet will allow CMS users to check the SO name a user
- * request is issued from. The information is obtained by {@link com.dotmarketing.viewtools.UserAgentTool},
+ * request is issued from. The information is obtained by parsing the {@code User-Agent} header,
  * the list of possible values is in {@link eu.bitwalker.useragentutils.OperatingSystem}.
  * 
  *
@@ -57,14 +57,17 @@ public class VisitorOperatingSystemConditionlet extends Conditionlet<VisitorOper
 
     @Override
     public boolean evaluate(HttpServletRequest request, HttpServletResponse response, Instance instance) {
-        UserAgentTool userAgentTool = new UserAgentTool();
-        userAgentTool.init( request );
-        OperatingSystem os = userAgentTool.getOs();
+        OperatingSystem os = RuleEvaluationContext.get(request).getUserAgent().getOperatingSystem();
 
         return instance.comparison.perform(os.getName().toLowerCase(), instance.os.toLowerCase());
     }
 
     
+    @Override
+    public int getEvaluationCost() {
+        return MEDIUM_COST;
+    }
+
     @Override
     public Instance instanceFrom(Map<String, ParameterModel> parameters) {
         return new Instance(this, parameters);
@@ -3,8 +3,8 @@ package com.dotmarketing.portlets.rules.conditionlet;
 import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
 import com.dotcms.repackage.com.maxmind.geoip2.exception.GeoIp2Exception;
 import com.dotcms.util.GeoIp2CityDbUtil;
-import com.dotcms.util.HttpRequestDataUtil;
 import com.dotmarketing.portlets.rules.RuleComponentInstance;
+import com.dotmarketing.portlets.rules.business.RuleEvaluationContext;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotPresentException;
 import com.dotmarketing.portlets.rules.exception.ComparisonNotSupportedException;
 import com.dotmarketing.portlets.rules.exception.RuleEngineException;
@@ -21,7 +21,6 @@ import com.dotmarketing.portlets.rules.parameter.type.TextType;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Map;
 
@@ -109,9 +108,7 @@ public class VisitorsGeolocationConditionlet extends Conditionlet<VisitorsGeoloc
 
     private Location lookupLocation(HttpServletRequest request) {
         try {
-            InetAddress address = HttpRequestDataUtil.getIpAddress(request);
-            String ipAddress = address.getHostAddress();
-            return geoIp2Util.getLocationByIp(ipAddress);
+            return RuleEvaluationContext.get(request).getLocation(geoIp2Util);
         } catch (UnknownHostException e) {
             throw new RuleEvaluationFailedException(e, "Unknown host.");
         } catch (IOException | GeoIp2Exception e) {
@@ -119,6 +116,11 @@ public class VisitorsGeolocationConditionlet extends Conditionlet<VisitorsGeoloc
         }
     }
 
+    @Override
+    public int getEvaluationCost() {
+        return HIGH_COST;
+    }
+
     @Override
     public Instance instanceFrom(Map<String, ParameterModel> parameters) {
         return new Instance(this, parameters);
@@ -9,6 +9,7 @@ import com.dotmarketing.business.Permissionable;
 import com.dotmarketing.business.RelatedPermissionableGroup;
 import com.dotmarketing.exception.DotDataException;
 import com.dotmarketing.portlets.rules.exception.RuleEngineException;
+import com.dotmarketing.portlets.rules.util.ConditionTree;
 import com.dotmarketing.portlets.rules.util.LogicalCondition;
 import com.dotmarketing.portlets.rules.util.LogicalStatement;
 import com.dotmarketing.portlets.rules.util.RulePermissionableUtil;
@@ -71,6 +72,8 @@ public class Rule implements Permissionable, Serializable {
     private List<RuleAction> ruleActions;
     private Permissionable parentPermissionable;
 
+    private transient volatile ConditionTree conditionTree;
+
     public Rule(){
 
     }
@@ -188,6 +191,7 @@ public class Rule implements Permissionable, Serializable {
 
     public void setGroups(List<ConditionGroup> groups) {
         this.groups = groups;
+        this.conditionTree = null;
     }
 
     public List<RuleAction> getRuleActions() {
@@ -260,6 +264,17 @@ public class Rule implements Permissionable, Serializable {
         }
     }
 
+    /**
+     * Validates the rule and compiles its conditions into a {@link ConditionTree}, so
+     * they are not validated nor walked group by group again on every request. Rules
+     * are compiled when they are added to the RulesCache, otherwise on their first
+     * evaluation.
+     */
+    public synchronized void compile() {
+        checkValid();
+        conditionTree = ConditionTree.compile(getGroups());
+    }
+
 	/**
 	 * Evaluates the set of conditions that make up this rule based on the
 	 * issued HTTP request. If the final result of such an evaluation is true,
@@ -274,7 +289,12 @@ public class Rule implements Permissionable, Serializable {
 	 *         <code>true</code>. Otherwise, returns <code>false</code>.
 	 */
     public boolean evaluate(HttpServletRequest req, HttpServletResponse res) {
-        if(this.evaluateConditions(req, res, getGroups())) {
+        ConditionTree tree = conditionTree;
+        if(tree == null) {
+            compile();
+            tree = conditionTree;
+        }
+        if(tree.evaluate(req, res)) {
             this.evaluateActions(req, res, getRuleActions());
             return true;
         }
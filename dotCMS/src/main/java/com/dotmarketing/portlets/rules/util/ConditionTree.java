@@ -0,0 +1,197 @@
+package com.dotmarketing.portlets.rules.util;
+
+import com.dotcms.repackage.com.google.common.collect.Lists;
+import com.dotmarketing.portlets.rules.model.Condition;
+import com.dotmarketing.portlets.rules.model.ConditionGroup;
+import com.dotmarketing.portlets.rules.model.LogicalOperator;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The conditions of a rule compiled into an evaluation tree.
+ * <p>
+ * Groups and conditions are chained by their operators with the same precedence
+ * {@link LogicalStatement} uses, 'AND' binding tighter than 'OR', so the chain is
+ * an 'OR' of 'AND' terms: A || B && C ==> A || ( B && C ). Inside every term the
+ * cheaper conditions are evaluated first, as is the cheaper term of every 'OR',
+ * so the expensive ones (GeoIP lookups, user agent parsing...) only run when they
+ * can still change the result.
+ */
+public abstract class ConditionTree {
+
+    private static final ConditionTree TRUE = new ConditionTree() {
+
+        @Override
+        public boolean evaluate(HttpServletRequest req, HttpServletResponse res) {
+            return true;
+        }
+
+        @Override
+        public int getCost() {
+            return 0;
+        }
+    };
+
+    private static final Comparator<ConditionTree> BY_COST = new Comparator<ConditionTree>() {
+        @Override
+        public int compare(ConditionTree a, ConditionTree b) {
+            return Integer.compare(a.getCost(), b.getCost());
+        }
+    };
+
+    public abstract boolean evaluate(HttpServletRequest req, HttpServletResponse res);
+
+    /**
+     * Relative cost of evaluating this node, see {@link com.dotmarketing.portlets.rules.conditionlet.Conditionlet#getEvaluationCost()}
+     */
+    public abstract int getCost();
+
+    /**
+     * Compiles the condition groups of a rule. The conditions have to be valid already.
+     */
+    public static ConditionTree compile(List<ConditionGroup> groups) {
+        List<LogicalOperator> operators = Lists.newArrayList();
+        List<ConditionTree> nodes = Lists.newArrayList();
+        for (ConditionGroup group : groups) {
+            operators.add(group.getOperator());
+            nodes.add(compileConditions(group.getConditions()));
+        }
+        return combine(operators, nodes);
+    }
+
+    private static ConditionTree compileConditions(List<Condition> conditions) {
+        List<LogicalOperator> operators = Lists.newArrayList();
+        List<ConditionTree> nodes = Lists.newArrayList();
+        for (Condition condition : conditions) {
+            operators.add(condition.getOperator());
+            nodes.add(new ConditionNode(condition));
+        }
+        return combine(operators, nodes);
+    }
+
+    /**
+     * Chains the nodes, the operator of every node joins it to the previous one
+     * (the operator of the first node is ignored).
+     */
+    public static ConditionTree combine(List<LogicalOperator> operators, List<ConditionTree> nodes) {
+        List<ConditionTree> terms = Lists.newArrayList();
+        List<ConditionTree> term = Lists.newArrayList();
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i > 0 && operators.get(i) == LogicalOperator.OR) {
+                terms.add(allOf(term));
+                term = Lists.newArrayList();
+            }
+            term.add(nodes.get(i));
+        }
+        if (!term.isEmpty()) {
+            terms.add(allOf(term));
+        }
+        return anyOf(terms);
+    }
+
+    private static ConditionTree allOf(List<ConditionTree> nodes) {
+        if (nodes.size() == 1) {
+            return nodes.get(0);
+        }
+        Collections.sort(nodes, BY_COST);
+        return new AllOf(nodes);
+    }
+
+    private static ConditionTree anyOf(List<ConditionTree> nodes) {
+        if (nodes.isEmpty()) {
+            return TRUE;
+        }
+        if (nodes.size() == 1) {
+            return nodes.get(0);
+        }
+        Collections.sort(nodes, BY_COST);
+        return new AnyOf(nodes);
+    }
+
+    private static int sumCost(List<ConditionTree> nodes) {
+        int cost = 0;
+        for (ConditionTree node : nodes) {
+            cost += node.getCost();
+        }
+        return cost;
+    }
+
+    private static final class ConditionNode extends ConditionTree {
+
+        private final Condition condition;
+        private final int cost;
+
+        private ConditionNode(Condition condition) {
+            this.condition = condition;
+            this.cost = condition.getConditionlet().getEvaluationCost();
+        }
+
+        @Override
+        public boolean evaluate(HttpServletRequest req, HttpServletResponse res) {
+            return condition.evaluate(req, res);
+        }
+
+        @Override
+        public int getCost() {
+            return cost;
+        }
+    }
+
+    private static final class AllOf extends ConditionTree {
+
+        private final ConditionTree[] nodes;
+        private final int cost;
+
+        private AllOf(List<ConditionTree> nodes) {
+            this.nodes = nodes.toArray(new ConditionTree[nodes.size()]);
+            this.cost = sumCost(nodes);
+        }
+
+        @Override
+        public boolean evaluate(HttpServletRequest req, HttpServletResponse res) {
+            for (ConditionTree node : nodes) {
+                if (!node.evaluate(req, res)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int getCost() {
+            return cost;
+        }
+    }
+
+    private static final class AnyOf extends ConditionTree {
+
+        private final ConditionTree[] nodes;
+        private final int cost;
+
+        private AnyOf(List<ConditionTree> nodes) {
+            this.nodes = nodes.toArray(new ConditionTree[nodes.size()]);
+            this.cost = sumCost(nodes);
+        }
+
+        @Override
+        public boolean evaluate(HttpServletRequest req, HttpServletResponse res) {
+            for (ConditionTree node : nodes) {
+                if (node.evaluate(req, res)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int getCost() {
+            return cost;
+        }
+    }
+
+}
@@ -35,6 +35,10 @@ import com.liferay.portal.model.User;
  * and have made changes to it without republihsing, then the published
  * version will not get unpublished,. 
  * 
+ * When the {@link PublishExpireScheduler} is running it already handles the
+ * dates as they are reached, and sweeps the overdue content periodically, so
+ * this job does nothing.
+ * 
  * 
  */
 public class PublishExpireJob implements StatefulJob {
@@ -49,6 +53,10 @@ public class PublishExpireJob implements StatefulJob {
 	}
 
 	public void execute(JobExecutionContext ctx) throws JobExecutionException {
+	    if (PublishExpireScheduler.isRunning()) {
+	        Logger.debug(this, "Publish/expire scheduler running, skipping the search");
+	        return;
+	    }
 	    try {
     		ContentletAPI capi = APILocator.getContentletAPI();
     		User pubUser = null;
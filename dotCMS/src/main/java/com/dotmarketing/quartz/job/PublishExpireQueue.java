@@ -0,0 +1,167 @@
+package com.dotmarketing.quartz.job;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Time ordered queue of the publish and expire instants of the identifiers.
+ * Every identifier has at most one publish and one expire entry, scheduling it
+ * again replaces them. Only the instants up to the horizon are kept, the
+ * {@link PublishExpireScheduler} loads the following ones as time moves on.
+ */
+public class PublishExpireQueue {
+
+    public static final class Entry implements Comparable<Entry> {
+
+        private final long time;
+        private final String identifier;
+        private final boolean publish;
+
+        Entry(final long time, final String identifier, final boolean publish) {
+            this.time = time;
+            this.identifier = identifier;
+            this.publish = publish;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        public boolean isPublish() {
+            return publish;
+        }
+
+        @Override
+        public int compareTo(final Entry other) {
+            if (time != other.time) {
+                return time < other.time ? -1 : 1;
+            }
+            if (publish != other.publish) {
+                // expire the content before publishing new one due at the same time
+                return publish ? 1 : -1;
+            }
+            return identifier.compareTo(other.identifier);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            final Entry other = (Entry) o;
+            return time == other.time && publish == other.publish && identifier.equals(other.identifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Long.hashCode(time) + identifier.hashCode()) + (publish ? 1 : 0);
+        }
+
+        @Override
+        public String toString() {
+            return (publish ? "publish " : "expire ") + identifier + " at " + new Date(time);
+        }
+    }
+
+    private final TreeSet<Entry> entries = new TreeSet<Entry>();
+    private final Map<String, Entry> publishEntries = new HashMap<String, Entry>();
+    private final Map<String, Entry> expireEntries = new HashMap<String, Entry>();
+    private long horizon = Long.MAX_VALUE;
+
+    /**
+     * Replaces the instants of the identifier, a null date removes it.
+     *
+     * @return true if the earliest instant of the queue changed
+     */
+    public synchronized boolean schedule(final String identifier, final Date publishDate, final Date expireDate) {
+
+        final long first = nextTime();
+        remove(publishEntries.remove(identifier));
+        remove(expireEntries.remove(identifier));
+        add(publishEntries, identifier, publishDate, true);
+        add(expireEntries, identifier, expireDate, false);
+        return nextTime() != first;
+    }
+
+    public synchronized void unschedule(final String identifier) {
+        remove(publishEntries.remove(identifier));
+        remove(expireEntries.remove(identifier));
+    }
+
+    private void add(final Map<String, Entry> byIdentifier, final String identifier, final Date date, final boolean publish) {
+
+        if (date != null && date.getTime() <= horizon) {
+            final Entry entry = new Entry(date.getTime(), identifier, publish);
+            entries.add(entry);
+            byIdentifier.put(identifier, entry);
+        }
+    }
+
+    private void remove(final Entry entry) {
+        if (entry != null) {
+            entries.remove(entry);
+        }
+    }
+
+    /**
+     * Removes and returns, in time order, up to <code>max</code> entries due
+     * at the given time.
+     */
+    public synchronized List<Entry> pollDue(final long now, final int max) {
+
+        final List<Entry> due = new ArrayList<Entry>();
+        final Iterator<Entry> iterator = entries.iterator();
+        while (due.size() < max && iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (entry.time > now) {
+                break;
+            }
+            iterator.remove();
+            (entry.publish ? publishEntries : expireEntries).remove(entry.identifier);
+            due.add(entry);
+        }
+        return due;
+    }
+
+    /**
+     * @return The earliest instant in the queue, or Long.MAX_VALUE when it is empty
+     */
+    public synchronized long nextTime() {
+        return entries.isEmpty() ? Long.MAX_VALUE : entries.first().time;
+    }
+
+    /**
+     * Sets the latest instant to keep, the entries after it are removed.
+     */
+    public synchronized void setHorizon(final long horizon) {
+
+        this.horizon = horizon;
+        while (!entries.isEmpty() && entries.last().time > horizon) {
+            final Entry entry = entries.pollLast();
+            (entry.publish ? publishEntries : expireEntries).remove(entry.identifier);
+        }
+    }
+
+    public synchronized long getHorizon() {
+        return horizon;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        publishEntries.clear();
+        expireEntries.clear();
+    }
+}
@@ -0,0 +1,410 @@
+package com.dotmarketing.quartz.job;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
+import com.dotmarketing.business.APILocator;
+import com.dotmarketing.common.db.DotConnect;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.HibernateUtil;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.exception.DotHibernateException;
+import com.dotmarketing.portlets.contentlet.business.ContentletAPI;
+import com.dotmarketing.portlets.contentlet.business.DotContentletStateException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.util.Config;
+import com.dotmarketing.util.Logger;
+import com.dotmarketing.util.UtilMethods;
+import com.liferay.portal.model.User;
+
+/**
+ * Publishes and expires the content when the sysPublishDate and sysExpireDate
+ * of its identifier are reached, replacing the search of the
+ * {@link PublishExpireJob}.
+ *
+ * The upcoming instants are kept in a {@link PublishExpireQueue}, loaded from
+ * the indexed identifier dates and updated on checkin, and a single thread
+ * sleeps until the next one is due. The instants due together are handled in
+ * one transaction. In a cluster only the leader server fires them, the queue
+ * is reloaded every PUBLISH_EXPIRE_RESYNC_SECONDS to pick the dates saved in
+ * the other servers and the leader changes.
+ *
+ * The reload only looks back PUBLISH_EXPIRE_CATCHUP_MINUTES, so at startup,
+ * when becoming the leader and every PUBLISH_EXPIRE_SWEEP_MINUTES the
+ * content whose dates passed without being published or expired is queued
+ * too, whatever its dates are. That covers the time the servers were down
+ * and the content that failed to be published or expired before.
+ */
+public class PublishExpireScheduler implements Runnable {
+
+    /**
+     * Where the scheduler reads the dates from and publishes or expires the
+     * content.
+     */
+    interface Store {
+
+        /**
+         * @return The id, syspublish_date and sysexpire_date of the
+         *         identifiers with a date in the given range
+         */
+        List<Map<String, Object>> findDates(Date from, Date to) throws DotDataException;
+
+        /**
+         * @return The id, syspublish_date and sysexpire_date of the
+         *         identifiers that should have been published or expired by
+         *         the given instant and were not
+         */
+        List<Map<String, Object>> findOverdue(Date now, int limit) throws DotDataException;
+
+        void publishExpire(List<PublishExpireQueue.Entry> due, long now) throws DotDataException;
+
+        boolean isLeader() throws DotDataException;
+    }
+
+    private static PublishExpireScheduler instance;
+
+    private final PublishExpireQueue queue = new PublishExpireQueue();
+    private final Object signal = new Object();
+    private final Store store;
+
+    private Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean leader;
+    private boolean woken;
+
+    private final long resyncMillis;
+    private final long catchupMillis;
+    private final long horizonMillis;
+    private final long sweepMillis;
+    private final int sweepLimit = Config.getIntProperty("PUBLISH_EXPIRE_SWEEP_LIMIT", 10000);
+    private final int batchSize = Config.getIntProperty("PUBLISH_EXPIRE_BATCH_SIZE", 100);
+
+    // the instants already fired in the catch up window, so the resync does not fire them again
+    private final Map<String, Long> fired = new HashMap<String, Long>();
+    private long nextSweep;
+
+    private PublishExpireScheduler() {
+        this(new DatabaseStore(), Config.getIntProperty("PUBLISH_EXPIRE_RESYNC_SECONDS", 60) * 1000L,
+                Config.getIntProperty("PUBLISH_EXPIRE_CATCHUP_MINUTES", 60) * 60000L,
+                Config.getIntProperty("PUBLISH_EXPIRE_HORIZON_MINUTES", 60) * 60000L,
+                Config.getIntProperty("PUBLISH_EXPIRE_SWEEP_MINUTES", 15) * 60000L);
+    }
+
+    @VisibleForTesting
+    PublishExpireScheduler(final Store store, final long resyncMillis, final long catchupMillis, final long horizonMillis,
+            final long sweepMillis) {
+        this.store = store;
+        this.resyncMillis = resyncMillis;
+        this.catchupMillis = catchupMillis;
+        this.horizonMillis = horizonMillis;
+        this.sweepMillis = sweepMillis;
+    }
+
+    public static synchronized void start() {
+
+        if (instance != null) {
+            return;
+        }
+        instance = new PublishExpireScheduler();
+        instance.thread = new Thread(instance, "PublishExpireScheduler");
+        instance.thread.setDaemon(true);
+        instance.thread.start();
+        Logger.info(PublishExpireScheduler.class, "Publish/expire scheduler started");
+    }
+
+    public static synchronized void shutdown() {
+
+        if (instance == null) {
+            return;
+        }
+        instance.running = false;
+        instance.thread.interrupt();
+        instance.queue.clear();
+        instance = null;
+    }
+
+    public static synchronized boolean isRunning() {
+        return instance != null;
+    }
+
+    /**
+     * Replaces the publish and expire instants of the identifier. It must be
+     * called once the new dates are committed.
+     */
+    public static void schedule(final String identifier, final Date publishDate, final Date expireDate) {
+
+        final PublishExpireScheduler scheduler;
+        synchronized (PublishExpireScheduler.class) {
+            scheduler = instance;
+        }
+        if (scheduler != null) {
+            scheduler.add(identifier, publishDate, expireDate);
+        }
+    }
+
+    @VisibleForTesting
+    void add(final String identifier, final Date publishDate, final Date expireDate) {
+
+        if (running && leader && queue.schedule(identifier, publishDate, expireDate)) {
+            wake();
+        }
+    }
+
+    private void wake() {
+
+        synchronized (signal) {
+            woken = true;
+            signal.notifyAll();
+        }
+    }
+
+    @Override
+    public void run() {
+
+        long nextSync = 0;
+        while (running) {
+            try {
+                long now = System.currentTimeMillis();
+                if (now >= nextSync) {
+                    sync(now);
+                    nextSync = now + resyncMillis;
+                }
+                if (leader) {
+                    fireDue(now);
+                }
+
+                synchronized (signal) {
+                    final long wait = Math.min(nextSync, queue.nextTime()) - System.currentTimeMillis();
+                    if (!woken && wait > 0) {
+                        signal.wait(wait);
+                    }
+                    woken = false;
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                Logger.error(this, "Unable to publish/expire content: " + e.getMessage(), e);
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+            } finally {
+                try {
+                    HibernateUtil.closeSession();
+                } catch (DotHibernateException e) {
+                    Logger.warn(this, e.getMessage(), e);
+                } finally {
+                    DbConnectionFactory.closeConnection();
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void sync(final long now) throws DotDataException {
+
+        final boolean wasLeader = leader;
+        leader = !Config.getBooleanProperty("PUBLISH_EXPIRE_LEADER_ONLY", true) || store.isLeader();
+        if (!leader) {
+            queue.clear();
+            fired.clear();
+            return;
+        }
+
+        final Iterator<Long> firedTimes = fired.values().iterator();
+        while (firedTimes.hasNext()) {
+            if (firedTimes.next() < now - catchupMillis) {
+                firedTimes.remove();
+            }
+        }
+
+        final Date to = new Date(now + horizonMillis);
+        queue.setHorizon(to.getTime());
+
+        for (final Map<String, Object> row : store.findDates(new Date(now - catchupMillis), to)) {
+            final String identifier = (String) row.get("id");
+            queue.schedule(identifier, unfired(identifier, (Date) row.get("syspublish_date"), true),
+                    unfired(identifier, (Date) row.get("sysexpire_date"), false));
+        }
+
+        if (!wasLeader || now >= nextSweep) {
+            sweep(now);
+        }
+    }
+
+    /**
+     * Queues the content that should already be published or expired. The
+     * ones fired before are queued again, as they are still pending they
+     * failed.
+     */
+    private void sweep(final long now) throws DotDataException {
+
+        final List<Map<String, Object>> overdue = store.findOverdue(new Date(now), sweepLimit);
+        for (final Map<String, Object> row : overdue) {
+            queue.schedule((String) row.get("id"), (Date) row.get("syspublish_date"), (Date) row.get("sysexpire_date"));
+        }
+        // a full sweep leaves more to do, continue on the next resync
+        nextSweep = overdue.size() >= sweepLimit ? now : now + sweepMillis;
+        if (!overdue.isEmpty()) {
+            Logger.info(this, "Found " + overdue.size() + " identifiers to publish/expire that are overdue");
+        }
+    }
+
+    private Date unfired(final String identifier, final Date date, final boolean publish) {
+
+        if (date == null) {
+            return null;
+        }
+        final Long time = fired.get((publish ? "p:" : "e:") + identifier);
+        return time != null && time == date.getTime() ? null : date;
+    }
+
+    @VisibleForTesting
+    void fireDue(final long now) throws DotDataException {
+
+        List<PublishExpireQueue.Entry> due;
+        while (running && !(due = queue.pollDue(now, batchSize)).isEmpty()) {
+            store.publishExpire(due, now);
+            for (final PublishExpireQueue.Entry entry : due) {
+                fired.put((entry.isPublish() ? "p:" : "e:") + entry.getIdentifier(), entry.getTime());
+            }
+        }
+    }
+
+    private static class DatabaseStore implements Store {
+
+        @Override
+        public List<Map<String, Object>> findDates(final Date from, final Date to) throws DotDataException {
+
+            final DotConnect dc = new DotConnect();
+            dc.setSQL("select id, syspublish_date, sysexpire_date from identifier "
+                    + "where (syspublish_date > ? and syspublish_date <= ?) or (sysexpire_date > ? and sysexpire_date <= ?)");
+            dc.addParam(from);
+            dc.addParam(to);
+            dc.addParam(from);
+            dc.addParam(to);
+            return dc.loadObjectResults();
+        }
+
+        /**
+         * The same content the {@link PublishExpireJob} searches: a live
+         * version without a newer draft that is expired, or a working version
+         * that is not live with a passed publish date that is not expired.
+         */
+        @Override
+        public List<Map<String, Object>> findOverdue(final Date now, final int limit) throws DotDataException {
+
+            final DotConnect dc = new DotConnect();
+            dc.setSQL("select distinct i.id, i.syspublish_date, i.sysexpire_date from identifier i "
+                    + "join contentlet_version_info cvi on cvi.identifier = i.id where cvi.deleted = " + DbConnectionFactory.getDBFalse()
+                    + " and ((i.sysexpire_date <= ? and cvi.live_inode = cvi.working_inode)"
+                    + " or (i.syspublish_date <= ? and (i.sysexpire_date is null or i.sysexpire_date > ?)"
+                    + " and (cvi.live_inode is null or cvi.live_inode <> cvi.working_inode)))");
+            dc.addParam(now);
+            dc.addParam(now);
+            dc.addParam(now);
+            dc.setMaxRows(limit);
+            return dc.loadObjectResults();
+        }
+
+        @Override
+        public boolean isLeader() throws DotDataException {
+            return APILocator.getServerAPI().isLeader();
+        }
+
+        /**
+         * Publishes or expires the content of the given entries in one
+         * transaction, checking the dates again as they could have been
+         * changed in another server.
+         */
+        @Override
+        public void publishExpire(final List<PublishExpireQueue.Entry> due, final long now) throws DotDataException {
+
+            final List<String> identifiers = new ArrayList<String>();
+            for (final PublishExpireQueue.Entry entry : due) {
+                if (!identifiers.contains(entry.getIdentifier())) {
+                    identifiers.add(entry.getIdentifier());
+                }
+            }
+            final StringBuilder in = new StringBuilder();
+            for (int i = 0; i < identifiers.size(); i++) {
+                in.append(i == 0 ? "?" : ",?");
+            }
+
+            final ContentletAPI contentletAPI = APILocator.getContentletAPI();
+            final User user = APILocator.getUserAPI().getSystemUser();
+            boolean rollback = true;
+            try {
+                HibernateUtil.startTransaction();
+
+                final DotConnect dc = new DotConnect();
+                dc.setSQL("select id, syspublish_date, sysexpire_date from identifier where id in (" + in + ")");
+                for (final String identifier : identifiers) {
+                    dc.addParam(identifier);
+                }
+                final Map<String, Map<String, Object>> dates = new HashMap<String, Map<String, Object>>();
+                for (final Map<String, Object> row : dc.loadObjectResults()) {
+                    dates.put((String) row.get("id"), row);
+                }
+
+                dc.setSQL("select identifier, working_inode, live_inode from contentlet_version_info where deleted = "
+                        + DbConnectionFactory.getDBFalse() + " and identifier in (" + in + ")");
+                for (final String identifier : identifiers) {
+                    dc.addParam(identifier);
+                }
+
+                final List<Contentlet> toPublish = new ArrayList<Contentlet>();
+                final List<Contentlet> toExpire = new ArrayList<Contentlet>();
+                for (final Map<String, Object> version : dc.loadObjectResults()) {
+                    final Map<String, Object> row = dates.get(version.get("identifier"));
+                    if (row == null) {
+                        continue;
+                    }
+                    final Date publishDate = (Date) row.get("syspublish_date");
+                    final Date expireDate = (Date) row.get("sysexpire_date");
+                    final String working = (String) version.get("working_inode");
+                    final String live = (String) version.get("live_inode");
+
+                    final boolean expired = expireDate != null && expireDate.getTime() <= now;
+                    if (expired) {
+                        // a live version with a newer draft is not expired, as the job always did
+                        if (UtilMethods.isSet(live) && live.equals(working)) {
+                            toExpire.add(contentletAPI.find(live, user, false));
+                        }
+                    } else if (publishDate != null && publishDate.getTime() <= now && !working.equals(live)) {
+                        toPublish.add(contentletAPI.find(working, user, false));
+                    }
+                }
+
+                try {
+                    contentletAPI.unpublish(toExpire, user, false);
+                } catch (DotContentletStateException e) {
+                    Logger.warn(PublishExpireScheduler.class, e.getMessage());
+                }
+                try {
+                    contentletAPI.publish(toPublish, user, false);
+                } catch (DotContentletStateException e) {
+                    Logger.warn(PublishExpireScheduler.class, e.getMessage());
+                }
+
+                HibernateUtil.commitTransaction();
+                rollback = false;
+                Logger.debug(PublishExpireScheduler.class, "Published " + toPublish.size() + " and expired " + toExpire.size() + " contentlets");
+            } catch (DotDataException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new DotDataException(e.getMessage(), e);
+            } finally {
+                if (rollback) {
+                    HibernateUtil.rollbackTransaction();
+                }
+            }
+        }
+    }
+}
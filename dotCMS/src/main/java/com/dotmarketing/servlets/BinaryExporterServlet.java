@@ -3,10 +3,10 @@ package com.dotmarketing.servlets;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -31,7 +31,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import com.dotcms.repackage.com.google.common.io.Files;
 import com.dotcms.repackage.org.apache.commons.collections.LRUMap;
 import com.dotcms.util.DownloadUtil;
 import com.dotcms.uuid.shorty.ShortType;
@@ -220,8 +219,9 @@ public class BinaryExporterServlet extends HttpServlet {
 		ServletOutputStream out = null;
 		FileChannel from = null;
 		WritableByteChannel to = null;
-		RandomAccessFile input = null;
 		FileInputStream is = null;
+		String eTag = null;
+		String lastModifiedHeader = null;
 
         
         
@@ -527,6 +527,9 @@ public class BinaryExporterServlet extends HttpServlet {
 		            resp.setHeader("Content-Length", String.valueOf(_fileLength));
 		            resp.setHeader("ETag", _eTag);
 
+		            eTag = _eTag;
+		            lastModifiedHeader = httpDate.format(_lastModifiedDate);
+
                 /* if we are in ADMIN MODE, don't cache */
 				}else{
 				    GregorianCalendar expiration = new GregorianCalendar();
@@ -537,81 +540,88 @@ public class BinaryExporterServlet extends HttpServlet {
 			}
 
 			String rangeHeader = req.getHeader("range");
+			String ifRange = req.getHeader("If-Range");
+			// If the asset changed since the client got the validator the whole asset is sent instead of the range
+			if(UtilMethods.isSet(rangeHeader) && UtilMethods.isSet(ifRange)
+					&& !(ifRange.equals(eTag) || ifRange.equals(lastModifiedHeader))){
+				rangeHeader = null;
+			}
 			if(UtilMethods.isSet(rangeHeader)){
 
 				try {
 					out = resp.getOutputStream();
 					from = new FileInputStream(data.getDataFile()).getChannel();
 					to = Channels.newChannel(out);
-					//DOTCMS-5716
-					//32 MB at a time	
-					int maxTransferSize = (32 * 1024 * 1024) ;
-					long size = from.size();
-					long position = 0;
-					
-					boolean responseSent = false;
-					byte[] dataBytes = Files.toByteArray(data.getDataFile());
-		            //ServletOutputStream sos = resp.getOutputStream();
+					// the ranges are validated against the file length and copied straight from the file channel,
+					// the asset is never loaded in memory
+					long fileLength = from.size();
+					String mimeType = fileAPI.getMimeType(data.getDataFile().getName());
+
 					//extract range header
 					 resp.setHeader("Accept-Ranges", "bytes");
 					// Range header should match format "bytes=n-n,n-n,n-n...". If not, then return 416.
 					if (!rangeHeader.matches("^bytes=\\d*-\\d*(,\\d*-\\d*)*$")) {
-						resp.setHeader("Content-Range", "bytes */" + dataBytes.length); // Required in 416.
+						resp.setHeader("Content-Range", "bytes */" + fileLength); // Required in 416.
 						resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
 						return;
 					}
 					//parse multiple range bytes
-					ArrayList<SpeedyAssetServletUtil.ByteRange> ranges = SpeedyAssetServletUtil.parseRange(rangeHeader, dataBytes.length);
+					ArrayList<SpeedyAssetServletUtil.ByteRange> ranges = SpeedyAssetServletUtil.parseRange(rangeHeader, fileLength);
 					if (ranges != null){
-						SpeedyAssetServletUtil.ByteRange full = new SpeedyAssetServletUtil.ByteRange(0, data.getDataFile().length() - 1, data.getDataFile().length());
+						SpeedyAssetServletUtil.ByteRange full = new SpeedyAssetServletUtil.ByteRange(0, fileLength - 1, fileLength);
 						if (ranges.isEmpty() || ranges.get(0).equals(full)) {
 							// Return full file.
-							input = new RandomAccessFile(data.getDataFile(), "r");
 							SpeedyAssetServletUtil.ByteRange r = full;
-							resp.setContentType(fileAPI.getMimeType(data.getDataFile().getName()));
+							resp.setContentType(mimeType);
 							resp.setHeader("Content-Range", "bytes " + r.start + "-" + r.end + "/" + r.total);
 							resp.setHeader("Content-Length", String.valueOf(r.length));
 							// Copy full range.
-							SpeedyAssetServletUtil.copy(input, out, r.start, r.length);
+							SpeedyAssetServletUtil.copy(from, to, r.start, r.length);
 						} else if (ranges.size() == 1){
 							SpeedyAssetServletUtil.ByteRange range = ranges.get(0);
-							input = new RandomAccessFile(data.getDataFile(), "r");
 							// Check if Range is syntactically valid. If not, then return 416.
 							if (range.start > range.end) {
-								resp.setHeader("Content-Range", "bytes */" + dataBytes.length); // Required in 416.
+								resp.setHeader("Content-Range", "bytes */" + fileLength); // Required in 416.
 								resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
 								return;
 							}
-							resp.setContentType(fileAPI.getMimeType(data.getDataFile().getName()));
+							resp.setContentType(mimeType);
 							resp.setHeader("Content-Range", "bytes " + range.start + "-" + range.end + "/" + range.total);
 							resp.setHeader("Content-Length", String.valueOf(range.length));
 				            resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT); // 206.
-							SpeedyAssetServletUtil.copy(input, out, range.start, range.length);
+							SpeedyAssetServletUtil.copy(from, to, range.start, range.length);
 						}else{
-							resp.setContentType("multipart/byteranges; boundary=" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY);
-							resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
-						    input = new RandomAccessFile(data.getDataFile(), "r");
+							// Validate every range and compute the multipart headers before writing anything
+							List<byte[]> partHeaders = new ArrayList<byte[]>(ranges.size());
+							long contentLength = 0;
 							for (SpeedyAssetServletUtil.ByteRange r : ranges) {
 								if (r.start > r.end) {
-									resp.setHeader("Content-Range", "bytes */" + dataBytes.length); // Required in 416.
+									resp.setHeader("Content-Range", "bytes */" + fileLength); // Required in 416.
 									resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
 									return;
 								}
-								// Add multipart boundary and header fields for every range.
-								out.println();
-								out.println("--" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY);
-								out.println("Content-Type: " + fileAPI.getMimeType(data.getDataFile().getName()));
-								out.println("Content-Range: bytes " + r.start + "-" + r.end + "/" + r.total);
-								out.println();
+								// Multipart boundary and header fields for every range.
+								byte[] partHeader = ("\r\n--" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY + "\r\n"
+										+ "Content-Type: " + mimeType + "\r\n"
+										+ "Content-Range: bytes " + r.start + "-" + r.end + "/" + r.total + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+								partHeaders.add(partHeader);
+								contentLength += partHeader.length + r.length;
+							}
+							// End with multipart boundary.
+							byte[] closing = ("\r\n--" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+							contentLength += closing.length;
 
+							resp.setContentType("multipart/byteranges; boundary=" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY);
+							resp.setHeader("Content-Length", String.valueOf(contentLength));
+							resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+							for (int i = 0; i < ranges.size(); i++) {
+								SpeedyAssetServletUtil.ByteRange r = ranges.get(i);
+								out.write(partHeaders.get(i));
 								// Copy single part range of multi part range.
-								SpeedyAssetServletUtil.copy(input, out, r.start, r.length);
+								SpeedyAssetServletUtil.copy(from, to, r.start, r.length);
 							}
-							// End with multipart boundary.
-							out.println();
-							out.println("--" + SpeedyAssetServletUtil.MULTIPART_BOUNDARY + "--");
+							out.write(closing);
 						}
-						responseSent = true;
 					}
 				} catch (Exception e) {
 					Logger.warn(this, e + " Error for = " + req.getRequestURI() + (req.getQueryString() != null?"?"+req.getQueryString():"") );
@@ -689,15 +699,6 @@ public class BinaryExporterServlet extends HttpServlet {
 				}
 			}
 			
-			if(input!=null){
-				try{
-					input.close();
-				}
-				catch(Exception e){
-					Logger.debug(BinaryExporterServlet.class, e.getMessage());
-				}
-			}
-			
 			if(is!=null){
 				try{
 					is.close();
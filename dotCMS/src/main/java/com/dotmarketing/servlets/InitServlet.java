@@ -31,6 +31,7 @@ import com.dotmarketing.portlets.contentlet.action.ImportAuditUtil;
 import com.dotmarketing.portlets.contentlet.business.HostAPI;
 import com.dotmarketing.portlets.languagesmanager.business.LanguageAPI;
 import com.dotmarketing.portlets.languagesmanager.model.Language;
+import com.dotmarketing.quartz.job.PublishExpireScheduler;
 import com.dotmarketing.quartz.job.ShutdownHookThread;
 import com.dotmarketing.util.*;
 import com.liferay.portal.model.Company;
@@ -74,6 +75,7 @@ public class InitServlet extends HttpServlet {
     }
 
     public void destroy() {
+    	PublishExpireScheduler.shutdown();
     	new ESClient().shutDownNode();
         Logger.info(this, "dotCMS shutting down");
 
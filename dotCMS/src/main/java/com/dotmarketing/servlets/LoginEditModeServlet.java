@@ -7,7 +7,8 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import com.dotmarketing.beans.Clickstream;
+import com.dotmarketing.factories.ClickstreamRecorder;
+import com.dotmarketing.factories.ClickstreamRecorder.SessionClicks;
 import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.business.APILocator;
@@ -35,7 +36,7 @@ public class LoginEditModeServlet extends HttpServlet {
 			Identifier _edit_mode_id = new Identifier();
 			_edit_mode_id.setURI("/"); 
 			try{
-				Clickstream clickstream = (Clickstream) request.getSession().getAttribute("clickstream");
+				SessionClicks clickstream = ClickstreamRecorder.getSession(request.getSession().getId());
 				String pageId= clickstream.getLastPageId();
 				_edit_mode_id = (Identifier) HibernateUtil.load(Identifier.class, pageId);
 					
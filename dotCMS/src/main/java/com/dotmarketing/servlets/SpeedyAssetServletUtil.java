@@ -3,6 +3,8 @@ package com.dotmarketing.servlets;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 
 /**
@@ -14,6 +16,7 @@ public class SpeedyAssetServletUtil {
 	
 	protected static final String MULTIPART_BOUNDARY = "MULTIPART_BYTERANGES";
 	protected static final int DEFAULT_BUFFER_SIZE = 10240; // ..bytes = 10KB.
+	protected static final long MAX_TRANSFER_SIZE = 32 * 1024 * 1024; // ..bytes = 32MB per transfer, DOTCMS-5716
 	
 	/**
      * Returns a substring of the given string value from the given begin index to the given end
@@ -35,7 +38,7 @@ public class SpeedyAssetServletUtil {
 	 * @param dataLen length of the byte range
 	 * @return
 	 */
-	protected static ArrayList<ByteRange> parseRange(String rangeHeader, int length){
+	protected static ArrayList<ByteRange> parseRange(String rangeHeader, long length){
         ArrayList<ByteRange> ranges = null;
         if (rangeHeader != null && rangeHeader.startsWith("bytes")){            
             ranges = new ArrayList<ByteRange>(8);
@@ -46,7 +49,8 @@ public class SpeedyAssetServletUtil {
             long end = sublong(part, part.indexOf("-") + 1, part.length());
 
             if (start == -1) {
-                start = length - end;
+                // a suffix longer than the file means the whole file
+                start = Math.max(0, length - end);
                 end = length - 1;
             } else if (end == -1 || end > length - 1) {
                 end = length - 1;
@@ -93,6 +97,31 @@ public class SpeedyAssetServletUtil {
 	}
 
     
+	/**
+	 * Copy the given byte range of the given file channel to the given output channel
+	 * without loading it in memory.
+	 * @param input The file channel to copy the given range from.
+	 * @param output The channel to copy the given range to.
+	 * @param start Start of the byte range.
+	 * @param length Length of the byte range.
+	 * @throws IOException If something fails at I/O level.
+	 */
+	protected static void copy(FileChannel input, WritableByteChannel output, long start, long length)throws IOException{
+		long position = start;
+		long remaining = length;
+
+		while (remaining > 0) {
+			long transferred = input.transferTo(position, Math.min(remaining, MAX_TRANSFER_SIZE), output);
+			if (transferred <= 0) {
+				// The file is shorter than expected
+				break;
+			}
+			position += transferred;
+			remaining -= transferred;
+		}
+	}
+
+    
    protected static class ByteRange {
 	   long start;
        long end;
@@ -0,0 +1,218 @@
+package com.dotmarketing.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.portlets.structure.model.Field;
+import com.dotmarketing.portlets.structure.model.Structure;
+
+/**
+ * Index of the working contentlets of a structure by the values of the key
+ * fields of an import, so {@link ImportUtil} finds the contentlet a line updates
+ * without querying the content index for every line.
+ * <p>
+ * The index is loaded with a single streaming query and the contentlets the
+ * import checks in are added to it, it only supports key fields stored in a
+ * text, date or integer column of the contentlet table. Values are compared the
+ * way the import compares them: dates by day, times by second, date times by
+ * millisecond and anything else ignoring case.
+ */
+public class ImportKeyIndex {
+
+    private final List<Field> fields;
+    private final Map<String, List<Entry>> entries = new HashMap<String, List<Entry>>();
+
+    ImportKeyIndex(List<Field> fields) {
+        this.fields = new ArrayList<Field>(fields);
+    }
+
+    /**
+     * @return true if every key field can be read from a column of the contentlet table
+     */
+    public static boolean supports(Collection<Field> keyFields) {
+        if (keyFields == null || keyFields.isEmpty()) {
+            return false;
+        }
+        for (Field field : keyFields) {
+            String column = field.getFieldContentlet();
+            if (!UtilMethods.isSet(column) || column.startsWith("text_area")
+                    || !(column.startsWith("text") || column.startsWith("date") || column.startsWith("integer"))) {
+                return false;
+            }
+            if (column.startsWith("date") && !field.getFieldType().equals(Field.FieldType.DATE.toString())
+                    && !field.getFieldType().equals(Field.FieldType.DATE_TIME.toString())
+                    && !field.getFieldType().equals(Field.FieldType.TIME.toString())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Loads the key values of the working, not deleted, contentlets of a structure.
+     *
+     * @param structure The structure being imported
+     * @param keyFields The key fields, in the order their values are given to {@link #find(Object[])}
+     * @return The index, or null if the key fields are not supported
+     */
+    public static ImportKeyIndex load(Structure structure, List<Field> keyFields) throws DotDataException {
+        if (!supports(keyFields)) {
+            return null;
+        }
+        ImportKeyIndex index = new ImportKeyIndex(keyFields);
+        StringBuilder sql = new StringBuilder("select contentlet.identifier, contentlet.inode, contentlet.language_id");
+        for (Field field : keyFields) {
+            sql.append(", contentlet.").append(field.getFieldContentlet());
+        }
+        sql.append(" from contentlet join contentlet_version_info on (contentlet.inode = contentlet_version_info.working_inode)")
+           .append(" where contentlet.structure_inode = ? and contentlet_version_info.deleted = ?");
+
+        long start = System.currentTimeMillis();
+        Connection conn = DbConnectionFactory.getConnection();
+        PreparedStatement smt = null;
+        try {
+            smt = conn.prepareStatement(sql.toString());
+            smt.setFetchSize(1000);
+            smt.setString(1, structure.getInode());
+            smt.setBoolean(2, false);
+            ResultSet rs = smt.executeQuery();
+            Object[] values = new Object[keyFields.size()];
+            while (rs.next()) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = rs.getObject(4 + i);
+                }
+                index.put(values, rs.getString(1), rs.getString(2), rs.getLong(3));
+            }
+            rs.close();
+        } catch (SQLException e) {
+            throw new DotDataException("Unable to load the import keys of structure " + structure.getVelocityVarName(), e);
+        } finally {
+            if (smt != null) {
+                try {
+                    smt.close();
+                } catch (SQLException e) {
+                    Logger.debug(ImportKeyIndex.class, e.getMessage(), e);
+                }
+            }
+        }
+        Logger.info(ImportKeyIndex.class, "Loaded " + index.size() + " keys of structure " + structure.getVelocityVarName()
+                + " in " + (System.currentTimeMillis() - start) + "ms");
+        return index;
+    }
+
+    /**
+     * Returns the contentlets whose key fields have the given values, in any language.
+     */
+    public List<Entry> find(Object[] values) {
+        String key = key(values);
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        List<Entry> found = entries.get(key);
+        return found == null ? Collections.<Entry>emptyList() : Collections.unmodifiableList(found);
+    }
+
+    /**
+     * Adds a contentlet to the index, replacing the inode of the version it had
+     * in the same language.
+     */
+    public void put(Object[] values, String identifier, String inode, long languageId) {
+        String key = key(values);
+        if (key == null || !UtilMethods.isSet(identifier)) {
+            return;
+        }
+        List<Entry> found = entries.get(key);
+        if (found == null) {
+            found = new ArrayList<Entry>(1);
+            entries.put(key, found);
+        }
+        for (Iterator<Entry> it = found.iterator(); it.hasNext();) {
+            Entry entry = it.next();
+            if (entry.identifier.equals(identifier) && entry.languageId == languageId) {
+                it.remove();
+            }
+        }
+        found.add(new Entry(identifier, inode, languageId));
+    }
+
+    public int size() {
+        int size = 0;
+        for (List<Entry> found : entries.values()) {
+            size += found.size();
+        }
+        return size;
+    }
+
+    String key(Object[] values) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            String value = normalize(fields.get(i), values[i]);
+            if (value == null) {
+                return null;
+            }
+            key.append(value.length()).append(':').append(value);
+        }
+        return key.toString();
+    }
+
+    private static String normalize(Field field, Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Date) {
+            Date date = (Date) value;
+            if (field.getFieldType().equals(Field.FieldType.DATE.toString())) {
+                return new SimpleDateFormat("yyyyMMdd").format(date);
+            } else if (field.getFieldType().equals(Field.FieldType.TIME.toString())) {
+                return new SimpleDateFormat("HHmmss").format(date);
+            }
+            return String.valueOf(date.getTime());
+        }
+        if (value instanceof Number) {
+            return String.valueOf(((Number) value).longValue());
+        }
+        String text = value.toString();
+        return UtilMethods.isSet(text) ? text.toLowerCase() : null;
+    }
+
+    /**
+     * A working contentlet of the structure.
+     */
+    public static class Entry {
+
+        private final String identifier;
+        private final String inode;
+        private final long languageId;
+
+        Entry(String identifier, String inode, long languageId) {
+            this.identifier = identifier;
+            this.inode = inode;
+            this.languageId = languageId;
+        }
+
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        public String getInode() {
+            return inode;
+        }
+
+        public long getLanguageId() {
+            return languageId;
+        }
+    }
+}
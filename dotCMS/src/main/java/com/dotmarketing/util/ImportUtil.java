@@ -19,6 +19,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import com.dotcms.repackage.com.csvreader.CsvReader;
 import com.dotmarketing.beans.Host;
@@ -70,8 +71,10 @@ public class ImportUtil {
     private final static String languageCodeHeader = "languageCode";
     private final static String countryCodeHeader = "countryCode";
 
-    private final static int commitGranularity = 10;
-    private final static int sleepTime = 200;
+    private final static int commitGranularity = Config.getIntProperty("IMPORT_COMMIT_GRANULARITY", 10);
+    private final static int sleepTime = Config.getIntProperty("IMPORT_COMMIT_SLEEP_MILLIS", 200);
+    private final static int progressLogLines = Config.getIntProperty("IMPORT_PROGRESS_LOG_LINES", 1000);
+    private final static int keyIndexMinLines = Config.getIntProperty("IMPORT_KEY_INDEX_MIN_LINES", 50);
 
     public static final String[] IMP_DATE_FORMATS = new String[] { "d-MMM-yy", "MMM-yy", "MMMM-yy", "d-MMM", "dd-MMM-yyyy",
         "MM/dd/yy hh:mm aa", "MM/dd/yyyy hh:mm aa",	"MM/dd/yy HH:mm", "MM/dd/yyyy HH:mm", "MMMM dd, yyyy", "M/d/y", "M/d",
@@ -136,8 +139,18 @@ public class ImportUtil {
                 //Reading the whole file
                 if (headers.size() > 0) {
 
-                    if (!preview)
+                    //Imports updating content by key fields look the keys up in memory once they are past a few lines
+                    ImportKeyIndex keyIndex = null;
+                    boolean useKeyIndex = keyIndexMinLines >= 0 && results.get("identifiers").isEmpty()
+                            && ImportKeyIndex.supports(keyFields.values());
+                    long start = System.currentTimeMillis();
+
+                    if (!preview) {
+                        // the index listeners of the checkins are merged at commit, one bulk request per transaction
+                        HibernateUtil.setCommitListenerBatchSize(
+                                Math.max(commitGranularity, Config.getIntProperty("INDEX_COMMIT_LISTENER_BATCH_SIZE", 50)));
                         HibernateUtil.startTransaction();
+                    }
 
                     String[] csvLine;
                     while (csvreader.readRecord()) {
@@ -178,9 +191,18 @@ public class ImportUtil {
                                     }
                                 }
 
+                                if ( useKeyIndex && keyIndex == null && lines > keyIndexMinLines ) {
+                                    try {
+                                        keyIndex = ImportKeyIndex.load( st, keyFieldList( keyFields ) );
+                                    } catch ( DotDataException e ) {
+                                        Logger.warn( ImportUtil.class, "Unable to load the import keys, the content index will be searched instead: " + e.getMessage(), e );
+                                    }
+                                    useKeyIndex = keyIndex != null;
+                                }
+
                                 //Importing content record...
                                 importLine( csvLine, currentHostId, st, preview, isMultilingual, user, results, lineNumber, languageToImport, headers, keyFields, choosenKeyField,
-                                        counters, keyContentUpdated, structurePermissions, uniqueFieldBeans, uniqueFields, relationships, onlyChild, onlyParent, sameKeyBatchInsert );
+                                        counters, keyContentUpdated, structurePermissions, uniqueFieldBeans, uniqueFields, relationships, onlyChild, onlyParent, sameKeyBatchInsert, keyIndex );
 
                                 //Storing the record keys we just imported for a later reference...
                                 if ( keyFields != null && !keyFields.isEmpty() ) {
@@ -203,6 +225,11 @@ public class ImportUtil {
                                 HibernateUtil.startTransaction();
                             }
 
+                            if ( progressLogLines > 0 && lines % progressLogLines == 0 ) {
+                                Logger.info( ImportUtil.class, "Import of " + st.getVelocityVarName() + ": " + lines + " lines read, "
+                                        + linesPerSecond( lines, start ) + " lines/sec." );
+                            }
+
                         } catch ( DotRuntimeException ex ) {
 
                             String errorMessage = ex.getMessage();
@@ -221,8 +248,11 @@ public class ImportUtil {
                         results.get("counters").add("errors="+errors);
                         results.get("counters").add("newContent="+counters.getNewContentCounter());
                         results.get("counters").add("contentToUpdate="+counters.getContentToUpdateCounter());
+                        results.get("counters").add("linesPerSecond="+linesPerSecond(lines, start));
                         HibernateUtil.commitTransaction();
                     }
+                    Logger.info(ImportUtil.class, "Import of " + st.getVelocityVarName() + ": " + lines + " lines read in "
+                            + (System.currentTimeMillis() - start) + "ms, " + linesPerSecond(lines, start) + " lines/sec.");
 
                     results.get("messages").add(lines + " "+LanguageUtil.get(user, "lines-of-data-were-read" ));
                     if (errors > 0)
@@ -253,6 +283,8 @@ public class ImportUtil {
 
         } finally {
 
+            HibernateUtil.setCommitListenerBatchSize(null);
+
             if (reader != null)
                 try {
                     reader.close();
@@ -265,6 +297,31 @@ public class ImportUtil {
         return results;
     }
 
+    private static long linesPerSecond(int lines, long start) {
+        long millis = Math.max(1, System.currentTimeMillis() - start);
+        return lines * 1000L / millis;
+    }
+
+    /**
+     * Returns the key fields ordered by the column they are read from, the order
+     * their values are given to the {@link ImportKeyIndex}
+     */
+    private static List<Field> keyFieldList(HashMap<Integer, Field> keyFields) {
+        List<Field> fields = new ArrayList<Field>();
+        for (Integer column : new TreeSet<Integer>(keyFields.keySet())) {
+            fields.add(keyFields.get(column));
+        }
+        return fields;
+    }
+
+    private static Object[] keyValues(HashMap<Integer, Field> keyFields, HashMap<Integer, Object> values) {
+        List<Object> keyValues = new ArrayList<Object>();
+        for (Integer column : new TreeSet<Integer>(keyFields.keySet())) {
+            keyValues.add(values.get(column));
+        }
+        return keyValues.toArray();
+    }
+
     private static void importHeaders(String[] headerLine, Structure structure, String[] keyFieldsInodes, boolean preview, boolean isMultilingual, User user, HashMap<String, List<String>> results, HashMap<Integer, Field> headers, HashMap<Integer, Field> keyFields, List<Field> uniqueFields, HashMap<Integer, Relationship> relationships,HashMap<Integer,Boolean> onlyChild, HashMap<Integer,Boolean> onlyParent) throws Exception  {
 
         int importableFields = 0;
@@ -457,12 +514,13 @@ public class ImportUtil {
      * @param onlyParent
      * @param sameKeyBatchInsert Indicates if the keys for this row had been use them in this batch upload, help us to see if there is a batch content upload with multiple records
      *                           and the same key, mostly used for content with multiple languages.
+     * @param keyIndex The key values of the contentlets of the structure, the content index is searched when it is null
      * @throws DotRuntimeException
      */
     private static void importLine ( String[] line, String currentHostId, Structure structure, boolean preview, boolean isMultilingual, User user, HashMap<String, List<String>> results, int lineNumber, long language,
             HashMap<Integer, Field> headers, HashMap<Integer, Field> keyFields, StringBuffer choosenKeyField, Counters counters,
             HashSet<String> keyContentUpdated, List<Permission> structurePermissions, List<UniqueFieldBean> uniqueFieldBeans, List<Field> uniqueFields, HashMap<Integer, Relationship> relationships, HashMap<Integer, Boolean> onlyChild, HashMap<Integer, Boolean> onlyParent,
-            boolean sameKeyBatchInsert ) throws DotRuntimeException {
+            boolean sameKeyBatchInsert, ImportKeyIndex keyIndex ) throws DotRuntimeException {
 
         try {
 
@@ -850,109 +908,150 @@ public class ImportUtil {
 
                 }
 
-                String noLanguageQuery = buffy.toString();
-                if ( !isMultilingual && !UtilMethods.isSet( identifier ) ) {
-                    buffy.append( " +languageId:" ).append( language );
-                }
+                if ( keyIndex != null ) {
 
-                List<ContentletSearch> cons = conAPI.searchIndex( buffy.toString(), 0, -1, null, user, true );
-                /*
-                We need to handle the case when keys are used, we could have a contentlet already saved with the same keys but different language
-                so the above query is not going to find it.
-                 */
-                if ( cons == null || cons.isEmpty() ) {
-                    if ( choosenKeyField.length() > 1 ) {
-                        cons = conAPI.searchIndex( noLanguageQuery, 0, -1, null, user, true );
-                        if (cons != null && !cons.isEmpty()) {
-                            isMultilingual = true;
+                    /*
+                    Same lookups as the searches below, the contentlets in the language of the line first and in any
+                    language if none is found, the index also holds the contentlets already imported from this file.
+                     */
+                    List<ImportKeyIndex.Entry> entries = keyIndex.find( keyValues( keyFields, values ) );
+                    List<ImportKeyIndex.Entry> matches = entries;
+                    if ( !isMultilingual ) {
+                        matches = new ArrayList<ImportKeyIndex.Entry>();
+                        for ( ImportKeyIndex.Entry entry : entries ) {
+                            if ( entry.getLanguageId() == language ) {
+                                matches.add( entry );
+                            }
+                        }
+                        if ( matches.isEmpty() && !entries.isEmpty() ) {
+                            if ( choosenKeyField.length() > 1 ) {
+                                matches = entries;
+                                isMultilingual = true;
+                            } else if ( !preview && sameKeyBatchInsert ) {
+                                matches = entries.subList( 0, 1 );
+                                isMultilingual = true;
+                            }
                         }
                     }
-                }
 
-                Contentlet con;
-                for (ContentletSearch contentletSearch: cons) {
-                    con = conAPI.find(contentletSearch.getInode(), user, true);
-                    if ((con != null) && InodeUtils.isSet(con.getInode())) {
-                        boolean columnExists = false;
-                        for (Integer column : keyFields.keySet()) {
-                            Field field = keyFields.get(column);
-                            Object value = values.get(column);
-                            Object conValue = conAPI.getFieldValue(con, field);
-                            if(field.getFieldType().equals(Field.FieldType.DATE.toString())
-                                    || field.getFieldType().equals(Field.FieldType.DATE_TIME.toString())
-                                    || field.getFieldType().equals(Field.FieldType.TIME.toString())){
-                                if(field.getFieldType().equals(Field.FieldType.TIME.toString())){
-                                    DateFormat df = new SimpleDateFormat("HHmmss");
-                                    conValue = df.format((Date)conValue);
-                                    value = df.format((Date)value);
-                                }else if(field.getFieldType().equals(Field.FieldType.DATE.toString())){
-                                    value = DATE_FIELD_FORMAT.format((Date)value);
-                                    conValue = DATE_FIELD_FORMAT.format((Date)conValue);
-                                }else{
-                                    if(conValue instanceof java.sql.Timestamp){
-                                        value = new java.sql.Timestamp(((Date)value).getTime());
-                                    }else if(conValue instanceof Date){
-                                        DateFormat df = new SimpleDateFormat("MM/dd/yyyy");
+                    Contentlet con;
+                    for ( ImportKeyIndex.Entry entry : matches ) {
+                        try {
+                            con = conAPI.find( entry.getInode(), user, true );
+                        } catch ( DotSecurityException e ) {
+                            Logger.debug( ImportUtil.class, "Skipping contentlet " + entry.getInode() + ": " + e.getMessage() );
+                            continue;
+                        }
+                        if ( (con != null) && InodeUtils.isSet( con.getInode() ) ) {
+                            contentlets.add( con );
+                        }
+                    }
+                } else {
+
+                    String noLanguageQuery = buffy.toString();
+                    if ( !isMultilingual && !UtilMethods.isSet( identifier ) ) {
+                        buffy.append( " +languageId:" ).append( language );
+                    }
+
+                    List<ContentletSearch> cons = conAPI.searchIndex( buffy.toString(), 0, -1, null, user, true );
+                    /*
+                    We need to handle the case when keys are used, we could have a contentlet already saved with the same keys but different language
+                    so the above query is not going to find it.
+                     */
+                    if ( cons == null || cons.isEmpty() ) {
+                        if ( choosenKeyField.length() > 1 ) {
+                            cons = conAPI.searchIndex( noLanguageQuery, 0, -1, null, user, true );
+                            if (cons != null && !cons.isEmpty()) {
+                                isMultilingual = true;
+                            }
+                        }
+                    }
+
+                    Contentlet con;
+                    for (ContentletSearch contentletSearch: cons) {
+                        con = conAPI.find(contentletSearch.getInode(), user, true);
+                        if ((con != null) && InodeUtils.isSet(con.getInode())) {
+                            boolean columnExists = false;
+                            for (Integer column : keyFields.keySet()) {
+                                Field field = keyFields.get(column);
+                                Object value = values.get(column);
+                                Object conValue = conAPI.getFieldValue(con, field);
+                                if(field.getFieldType().equals(Field.FieldType.DATE.toString())
+                                        || field.getFieldType().equals(Field.FieldType.DATE_TIME.toString())
+                                        || field.getFieldType().equals(Field.FieldType.TIME.toString())){
+                                    if(field.getFieldType().equals(Field.FieldType.TIME.toString())){
+                                        DateFormat df = new SimpleDateFormat("HHmmss");
+                                        conValue = df.format((Date)conValue);
                                         value = df.format((Date)value);
+                                    }else if(field.getFieldType().equals(Field.FieldType.DATE.toString())){
+                                        value = DATE_FIELD_FORMAT.format((Date)value);
+                                        conValue = DATE_FIELD_FORMAT.format((Date)conValue);
+                                    }else{
+                                        if(conValue instanceof java.sql.Timestamp){
+                                            value = new java.sql.Timestamp(((Date)value).getTime());
+                                        }else if(conValue instanceof Date){
+                                            DateFormat df = new SimpleDateFormat("MM/dd/yyyy");
+                                            value = df.format((Date)value);
+                                        }
+                                    }
+                                    if(conValue.equals(value)){
+                                        columnExists = true;
+                                    }else{
+                                        columnExists = false;
+                                        break;
                                     }
-                                }
-                                if(conValue.equals(value)){
-                                    columnExists = true;
-                                }else{
-                                    columnExists = false;
-                                    break;
-                                }
-                            }else{
-                                if(conValue.toString().equalsIgnoreCase(value.toString())){
-                                    columnExists = true;
                                 }else{
-                                    columnExists = false;
-                                    break;
+                                    if(conValue.toString().equalsIgnoreCase(value.toString())){
+                                        columnExists = true;
+                                    }else{
+                                        columnExists = false;
+                                        break;
+                                    }
                                 }
                             }
+                            if(columnExists)
+                                contentlets.add(con);
                         }
-                        if(columnExists)
-                            contentlets.add(con);
                     }
-                }
 
-                if ( !preview ) {//Don't do unnecessary calls if it is not required
+                    if ( !preview ) {//Don't do unnecessary calls if it is not required
 
-                    /*
-                   We must use an alternative search for cases when we are using the same key for batch uploads,
-                   for example if we have multilingual inserts for new records, the search above (searchIndex)
-                   can manage multilingual inserts for already stored records but not for the case when the new record and its multilingual records
-                   came in the same import file. They are new, we will not find them in the index.
-                     */
-                    if ( sameKeyBatchInsert && contentlets.isEmpty() ) {
+                        /*
+                       We must use an alternative search for cases when we are using the same key for batch uploads,
+                       for example if we have multilingual inserts for new records, the search above (searchIndex)
+                       can manage multilingual inserts for already stored records but not for the case when the new record and its multilingual records
+                       came in the same import file. They are new, we will not find them in the index.
+                         */
+                        if ( sameKeyBatchInsert && contentlets.isEmpty() ) {
+
+                            //Searching for all the contentlets of this structure
+                            List<Contentlet> foundContentlets = conAPI.findByStructure( structure, user, true, 0, -1 );
 
-                        //Searching for all the contentlets of this structure
-                        List<Contentlet> foundContentlets = conAPI.findByStructure( structure, user, true, 0, -1 );
+                            for ( Contentlet contentlet : foundContentlets ) {
 
-                        for ( Contentlet contentlet : foundContentlets ) {
+                                boolean match = true;
+                                for ( Integer column : keyFields.keySet() ) {
 
-                            boolean match = true;
-                            for ( Integer column : keyFields.keySet() ) {
+                                    //Getting key values
+                                    Field field = keyFields.get( column );
+                                    Object value = values.get( column );
 
-                                //Getting key values
-                                Field field = keyFields.get( column );
-                                Object value = values.get( column );
+                                    //Ok, comparing our keys with the contentlets we found trying to see if there is a contentlet to update with the specified keys
+                                    Object conValue = conAPI.getFieldValue( contentlet, field );
+                                    if ( !conValue.equals( value ) ) {
+                                        match = false;
+                                    }
+                                }
 
-                                //Ok, comparing our keys with the contentlets we found trying to see if there is a contentlet to update with the specified keys
-                                Object conValue = conAPI.getFieldValue( contentlet, field );
-                                if ( !conValue.equals( value ) ) {
-                                    match = false;
+                                //Ok, we found our record
+                                if ( match ) {
+                                    contentlets.add( contentlet );
+                                    isMultilingual = true;
+                                    break;
                                 }
                             }
 
-                            //Ok, we found our record
-                            if ( match ) {
-                                contentlets.add( contentlet );
-                                isMultilingual = true;
-                                break;
-                            }
                         }
-
                     }
                 }
             }
@@ -1267,6 +1366,9 @@ public class ImportUtil {
                                 }
                             }
                         }
+                        if ( keyIndex != null ) {
+                            keyIndex.put( keyValues( keyFields, values ), cont.getIdentifier(), cont.getInode(), cont.getLanguageId() );
+                        }
                         results.get("lastInode").clear();
                         List<String> l = results.get("lastInode");
                         l.add(cont.getInode());
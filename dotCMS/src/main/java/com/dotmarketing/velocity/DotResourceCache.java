@@ -4,6 +4,10 @@
 package com.dotmarketing.velocity;
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.dotcms.repackage.com.google.common.annotations.VisibleForTesting;
 
 import com.dotcms.repackage.org.apache.oro.text.regex.MalformedPatternException;
 import com.dotcms.repackage.org.apache.oro.text.regex.MatchResult;
@@ -40,6 +44,14 @@ public class DotResourceCache implements ResourceCache,Cachable {
 	};
 
 	
+	// the menus checked or generated by this thread that the DotResourceLoader has not read yet
+	private static final ThreadLocal<Map<String, String>> menusInUse = new ThreadLocal<Map<String, String>>(){
+		protected Map<String, String> initialValue() {
+			return new HashMap<String, String>();
+		}
+	};
+	private static final int MAX_MENUS_IN_USE = 32;
+
 	private static com.dotcms.repackage.org.apache.oro.text.regex.Pattern assetPattern;
 	private static com.dotcms.repackage.org.apache.oro.text.regex.Pattern menuPattern;
 	
@@ -54,13 +66,19 @@ public class DotResourceCache implements ResourceCache,Cachable {
 	public static final String primaryOnlyMemoryGroup = "VelocityMemoryOnlyCache";
 	public static final String primaryUserVTLGroup = "VelocityUserVTLCache";
 	private String menuGroup = "VelocityMenuCache";
+	private String menuSourceGroup = "VelocityMenuSourceCache";
 	private String missGroup = "VelocityMissCache";
 
     // region's name for the cache
-    private String[] groupNames = {primaryGroup,menuGroup,missGroup};
+    private String[] groupNames = {primaryGroup,menuGroup,menuSourceGroup,missGroup};
     
     public DotResourceCache() {
-    	cache = CacheLocator.getCacheAdministrator();
+    	this(CacheLocator.getCacheAdministrator());
+    }
+
+    @VisibleForTesting
+    DotResourceCache(DotCacheAdministrator cache) {
+    	this.cache = cache;
     	Perl5Compiler c = new Perl5Compiler();
     	try{
 	    	assetPattern = c.compile("[/\\\\][0-9a-zA-Z][/\\\\][0-9a-zA-Z][/\\\\][0-9a-zA-Z-]*\\.[a-zA-Z]*",Perl5Compiler.READ_ONLY_MASK);
@@ -178,12 +196,76 @@ public class DotResourceCache implements ResourceCache,Cachable {
 	public void clearCache() {
         cache.flushGroup(primaryGroup);
         cache.flushGroup(menuGroup);
+        cache.flushGroup(menuSourceGroup);
         cache.flushGroup(missGroup);
+        menusInUse.get().clear();
     }
 
+	/**
+	 * Flushes the compiled menus and the menu code they are built from, in
+	 * every node of the cluster.
+	 */
 	public void clearMenuCache() {
+        cache.flushGroup(menuSourceGroup);
         cache.flushGroup(menuGroup);
+        menusInUse.get().clear();
     }
+
+	/**
+	 * Returns the velocity code of a menu the {@link com.dotmarketing.viewtools.NavigationWebAPI}
+	 * generated, it is kept in memory instead of being written to the
+	 * dynamic/menus folder.
+	 *
+	 * @param menuName the name of the menu, without the dynamic/menus/ prefix
+	 * @return the code of the menu or <code>null</code> if it has to be generated
+	 */
+	public String getMenuSource(String menuName) {
+		String source = null;
+		try {
+			source = (String) cache.get(menuName, menuSourceGroup);
+		} catch ( DotCacheException e ) {
+			Logger.debug(this, "Cache Entry not found", e);
+		}
+		if ( source != null ) {
+			pinMenuSource(menuName, source);
+		}
+		return source;
+	}
+
+	public void putMenuSource(String menuName, String source) {
+		cache.put(menuName, source, menuSourceGroup);
+		pinMenuSource(menuName, source);
+	}
+
+	/**
+	 * Returns the code of a menu for the {@link DotResourceLoader}. The code
+	 * this thread found or generated last is used first, so a menu flushed or
+	 * evicted after the {@link com.dotmarketing.viewtools.NavigationWebAPI}
+	 * checked it is still parsed.
+	 *
+	 * @param menuName the name of the menu, without the dynamic/menus/ prefix
+	 * @return the code of the menu or <code>null</code> if it has not been generated
+	 */
+	public String loadMenuSource(String menuName) {
+		String source = menusInUse.get().remove(menuName);
+		if ( source != null ) {
+			return source;
+		}
+		try {
+			return (String) cache.get(menuName, menuSourceGroup);
+		} catch ( DotCacheException e ) {
+			Logger.debug(this, "Cache Entry not found", e);
+			return null;
+		}
+	}
+
+	private void pinMenuSource(String menuName, String source) {
+		Map<String, String> menus = menusInUse.get();
+		if ( menus.size() >= MAX_MENUS_IN_USE && !menus.containsKey(menuName) ) {
+			menus.clear();
+		}
+		menus.put(menuName, source);
+	}
 	
 	public String[] getGroups() {
     	return groupNames;
@@ -167,6 +167,16 @@ public class DotResourceLoader extends ResourceLoader {
 	            	boolean serveFile = false;
 	            	Logger.debug(this, "Not a CMS Velocity File : " + arg0);
 
+	            	String menuName = getMenuName(arg0);
+	            	if (menuName != null) {
+	            		// menus are generated in memory, they are never on disk
+	            		String source = CacheLocator.getVeloctyResourceCache().loadMenuSource(menuName);
+	            		if (source == null) {
+	            			throw new ResourceNotFoundException("cannot find resource");
+	            		}
+	            		return new ByteArrayInputStream(source.getBytes(UtilMethods.getCharsetConfiguration()));
+	            	}
+
 	            	java.io.File f=null;
 	            	String lookingFor="";
 	            	if (arg0.startsWith("dynamic")) {
@@ -227,6 +237,19 @@ public class DotResourceLoader extends ResourceLoader {
         return result;
     }
 
+    /**
+     * @return the name of the menu if the key is one of the menus generated by
+     *         the NavigationWebAPI, <code>null</code> otherwise
+     */
+    private String getMenuName(String arg0) {
+        String key = arg0.replace('\\', '/');
+        if (!key.startsWith("dynamic/menus/")) {
+            return null;
+        }
+        String menuName = key.substring("dynamic/menus/".length());
+        return menuName.isEmpty() || menuName.contains("/") ? null : menuName;
+    }
+
     @SuppressWarnings("resource")
     private InputStream generateStream(String arg0) throws Exception {
     	User user=APILocator.getUserAPI().getSystemUser();
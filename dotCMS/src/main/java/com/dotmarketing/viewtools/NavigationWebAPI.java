@@ -1,8 +1,5 @@
 package com.dotmarketing.viewtools;
 
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -21,6 +18,7 @@ import com.dotmarketing.beans.Host;
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.beans.Inode;
 import com.dotmarketing.business.APILocator;
+import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotStateException;
 import com.dotmarketing.business.web.WebAPILocator;
 import com.dotmarketing.cache.LiveCache;
@@ -39,7 +37,6 @@ import com.dotmarketing.portlets.links.model.Link;
 import com.dotmarketing.portlets.links.model.Link.LinkType;
 import com.dotmarketing.util.AssetsComparator;
 import com.dotmarketing.util.Config;
-import com.dotmarketing.util.ConfigUtils;
 import com.dotmarketing.util.InodeUtils;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilHTML;
@@ -51,8 +48,6 @@ import com.liferay.portal.model.User;
 
 public class NavigationWebAPI implements ViewTool {
 
-	private static String MENU_VTL_PATH;
-	private static String SHORT_MENU_VTL_PATH;
 	private ContentletAPI conAPI = APILocator.getContentletAPI();
 	private HttpServletRequest request;
     private User user = null;
@@ -60,10 +55,12 @@ public class NavigationWebAPI implements ViewTool {
 
     public int formCount = 0;
 
-	static {
-		String velocityRootPath = ConfigUtils.getDynamicVelocityPath() + java.io.File.separator;
-		MENU_VTL_PATH = velocityRootPath + "menus" + java.io.File.separator;
-		SHORT_MENU_VTL_PATH = ConfigUtils.getDynamicContentPath()+java.io.File.separator+"velocity"+java.io.File.separator;
+	/**
+	 * The generated menus are kept in memory by the velocity resource cache,
+	 * which drops them in every node when the navigation changes.
+	 */
+	private static boolean menuExists(String menuName) {
+		return UtilMethods.isSet(CacheLocator.getVeloctyResourceCache().getMenuSource(menuName));
 	}
 
 	private String loadHomeTitle(HttpServletRequest request){
@@ -361,13 +358,11 @@ public class NavigationWebAPI implements ViewTool {
 			String fileName = "";
 			boolean fileExists = true;
 
-			java.io.File file = null;
 			String menuId = "";
 			if ("/".equals(startFromPath)) {
 				fileName = hostId + "_levels_" + numberOfLevels + paramsValues.hashCode() + "_static.vtl";
 				menuId = String.valueOf(hostId);
-				file = new java.io.File(MENU_VTL_PATH + fileName);
-				if (!file.exists() || file.length() == 0) {
+				if (!menuExists(fileName)) {
 					itemsList = APILocator.getFolderAPI().findSubFolders(host, true);
 					folderPath = startFromPath;
 					fileExists = false;
@@ -378,11 +373,9 @@ public class NavigationWebAPI implements ViewTool {
 
 				fileName = folder.getInode() + "_levels_" + numberOfLevels + paramsValues.hashCode() + "_static.vtl";
 				menuId = String.valueOf(folder.getInode());
-				file = new java.io.File(MENU_VTL_PATH + fileName);
-				Logger.debug(NavigationWebAPI.class, "NavigationWebAPI :: StaticMenuBuilder file=" + MENU_VTL_PATH + fileName);
+				Logger.debug(NavigationWebAPI.class, "NavigationWebAPI :: StaticMenuBuilder menu=" + fileName);
 
-				if (!file.exists() || file.length() == 0) {
-					file.createNewFile();
+				if (!menuExists(fileName)) {
 					itemsList = APILocator.getFolderAPI().findMenuItems(folder, user, true); 
 					folderPath = APILocator.getIdentifierAPI().find(folder).getPath();
 					fileExists = false;
@@ -492,14 +485,8 @@ public class NavigationWebAPI implements ViewTool {
 
 
 
-				if (stringbuf.toString().getBytes().length > 0) {
-					// Specifying explicitly a proper character set encoding
-					FileOutputStream fo = new FileOutputStream(file);
-					OutputStreamWriter out = new OutputStreamWriter(fo, UtilMethods.getCharsetConfiguration());
-					out.write(stringbuf.toString());
-					out.flush();
-					out.close();
-					fo.close();
+				if (stringbuf.length() > 0) {
+					CacheLocator.getVeloctyResourceCache().putMenuSource(fileName, stringbuf.toString());
 				} else {
 					Logger.debug(NavigationWebAPI.class, "NavigationWebAPI :: Error creating static menu!!!!!");
 				}
@@ -780,7 +767,6 @@ public class NavigationWebAPI implements ViewTool {
 		Host host = WebAPILocator.getHostWebAPI().getCurrentHost(request);
 		String hostId = host.getIdentifier();
 		StringBuffer stringbuf = new StringBuffer();
-		FileOutputStream fo = null;
 
 		int orderDirection = 1;
 		if(reverseOrder){
@@ -813,15 +799,11 @@ public class NavigationWebAPI implements ViewTool {
 			String fileName = "";
 			boolean fileExists = true;
 
-			java.io.File file = null;
 			String menuId = "";
 			if ("/".equals(startFromPath)) {
 				fileName = hostId + "_siteMapLevels_"+startFromLevel+"_" + numberOfLevels+"_"+reverseOrder+"_"+addHome + "_" + siteMapIdPrefix + "_static.vtl";
 				menuId = String.valueOf(hostId);
-				//file = new java.io.File(Config.CONTEXT.getRealPath(MENU_VTL_PATH + fileName));
-				String vpath = MENU_VTL_PATH + fileName;
-				file = new java.io.File(vpath);
-				if (!file.exists() || file.length() == 0) {
+				if (!menuExists(fileName)) {
 
 					itemsList = APILocator.getFolderAPI().findSubFolders(host, true);
 					Comparator comparator = new AssetsComparator(orderDirection);
@@ -848,12 +830,9 @@ public class NavigationWebAPI implements ViewTool {
 
 				fileName = folder.getInode() + "_siteMapLevels_"+startFromLevel+"_" + numberOfLevels+"_"+reverseOrder+"_"+addHome + "_" + siteMapIdPrefix+ "_static.vtl";
 				menuId = String.valueOf(folder.getInode());
-				String vpath = MENU_VTL_PATH + fileName;
-				file = new java.io.File(vpath);
-				//file = new java.io.File(Config.CONTEXT.getRealPath(MENU_VTL_PATH + fileName));
-				Logger.debug(StaticMenuBuilder.class, "StaticMenuBuilder file=" + MENU_VTL_PATH + fileName);
+				Logger.debug(StaticMenuBuilder.class, "StaticMenuBuilder menu=" + fileName);
 
-				if (!file.exists()) {
+				if (!menuExists(fileName)) {
 					itemsList = APILocator.getFolderAPI().findMenuItems(folder, orderDirection);
 					for(int i=1; i < startFromLevel;i++){
 						java.util.List<Inode> itemsList2 = new ArrayList<Inode>();
@@ -960,17 +939,11 @@ public class NavigationWebAPI implements ViewTool {
 				}
 
 
-				// Specifying explicitly a proper character set encoding
-				fo = new FileOutputStream(file);
-				OutputStreamWriter out = new OutputStreamWriter(fo, UtilMethods.getCharsetConfiguration());
-
 				if (stringbuf.length() == 0) {
 					stringbuf.append("#if($EDIT_MODE)No menu items found#{end}");
 				}
 
-				out.write(stringbuf.toString());
-				out.flush();
-				out.close();
+				CacheLocator.getVeloctyResourceCache().putMenuSource(fileName, stringbuf.toString());
 
 				Logger.debug(StaticMenuBuilder.class, "End of StaticMenuBuilder" + filePath);
 
@@ -983,13 +956,6 @@ public class NavigationWebAPI implements ViewTool {
 			// Ignore the embedded links.
 			stringbuf.delete(0, stringbuf.length());
 			Logger.error(NavigationWebAPI.class,e.getMessage(),e);
-		} finally {
-			if(fo != null)
-				try {
-					fo.close();
-				} catch (IOException e) {
-					Logger.error(NavigationWebAPI.class, e.getMessage(), e);
-				}
 		}
 		return "";
 	}
@@ -1170,27 +1136,17 @@ public class NavigationWebAPI implements ViewTool {
 			menuIdPrefix.toString();
 
 			String fileName = "";
-			java.io.File file = null;
 			if ("/".equals(startFromPath))
 			{
 
 				fileName = hostId + "_levels_" + numberOfLevels + paramsValues.hashCode() + "_static.vtl";
-				file = new java.io.File(MENU_VTL_PATH + fileName);
-				if (file.exists() && file.length() > 0)
-				{
-					fileExists = true;
-				}
 			}
 			else
 			{
 				Folder folder = APILocator.getFolderAPI().findFolderByPath(startFromPath, hostId, user, true);
 				fileName = folder.getInode() + "_levels_" + numberOfLevels + paramsValues.hashCode() +  "_static.vtl";
-				file = new java.io.File(MENU_VTL_PATH + fileName);
-				if (file.exists() && file.length() > 0)
-				{
-					fileExists = true;
-				}
 			}
+			fileExists = menuExists(fileName);
 		}
 		catch(Exception ex)
 		{
@@ -1263,9 +1219,7 @@ public class NavigationWebAPI implements ViewTool {
 		}
 
 		String menuString = (rightLevel ? buildMenuItems(myPath.toString(), maxDepth, request) : "");
-		java.io.File file;
-		file = new java.io.File(SHORT_MENU_VTL_PATH+menuString);
-		if(!file.exists()){
+		if(!menuExists(menuString.substring(menuString.lastIndexOf(java.io.File.separator) + 1))){
 			menuString = "";
 		}
 		return menuString;
@@ -1395,11 +1349,9 @@ public class NavigationWebAPI implements ViewTool {
 			String fileName = "";
 			boolean fileExists = true;
 
-			java.io.File file = null;
 			if ("/".equals(startFromPath)) {
 				fileName = hostId + "_levels" + startFromPath.replace("/", "_") + "_" + numberOfLevels + "_static.vtl";
-				file = new java.io.File(MENU_VTL_PATH + fileName);
-				if (!file.exists() || file.length() == 0) {
+				if (!menuExists(fileName)) {
 					itemsList = APILocator.getFolderAPI().findSubFolders(host, true);
 					folderPath = startFromPath;
 					fileExists = false;
@@ -1411,11 +1363,9 @@ public class NavigationWebAPI implements ViewTool {
                 }catch(Exception e){/*do Nothing*/}
 
 				fileName = folder.getInode() + "_levels" + startFromPath.replace("/", "_") + "_" + numberOfLevels + "_static.vtl";
-				file = new java.io.File(MENU_VTL_PATH + fileName);
-				Logger.debug(NavigationWebAPI.class, "NavigationWebAPI :: StaticMenuBuilder file=" + MENU_VTL_PATH + fileName);
+				Logger.debug(NavigationWebAPI.class, "NavigationWebAPI :: StaticMenuBuilder menu=" + fileName);
 
-				if (!file.exists() || file.length() == 0) {
-					file.createNewFile();
+				if (!menuExists(fileName)) {
 					itemsList = APILocator.getFolderAPI().findMenuItems(folder, APILocator.getUserAPI().getSystemUser(),false);
 					folderPath = APILocator.getIdentifierAPI().find(folder).getPath();
 					fileExists = false;
@@ -1525,14 +1475,8 @@ public class NavigationWebAPI implements ViewTool {
 					stringbuf.append("#set ($navigationItems = $contents.getEmptyList())");
 				}
 
-				if (stringbuf.toString().getBytes().length > 0) {
-					// Specifying explicitly a proper character set encoding
-					FileOutputStream fo = new FileOutputStream(file);
-					OutputStreamWriter out = new OutputStreamWriter(fo, UtilMethods.getCharsetConfiguration());
-					out.write(stringbuf.toString());
-					out.flush();
-					out.close();
-					fo.close();
+				if (stringbuf.length() > 0) {
+					CacheLocator.getVeloctyResourceCache().putMenuSource(fileName, stringbuf.toString());
 				} else {
 					Logger.debug(NavigationWebAPI.class, "NavigationWebAPI :: Error creating static menu!!!!!");
 				}
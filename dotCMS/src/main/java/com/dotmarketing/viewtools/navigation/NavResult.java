@@ -169,61 +169,43 @@ public class NavResult implements Iterable<NavResult>, Permissionable, Serializa
         return folderId!=null;
     }
     
-    public List<NavResult> getChildren() throws Exception {
+    /**
+     * Returns the node that holds the children of this one. The folders listed
+     * as children of another folder don't keep their own children, they are
+     * read from the cached node of the folder so a node shared by several
+     * requests is never changed.
+     */
+    private NavResult getNode() throws DotDataException, DotSecurityException {
         if(children==null && hostId!=null && folderId!=null) {
-            // lazy loadinge children
-            Host host=APILocator.getHostAPI().find(hostId, sysuser, true);
-            Folder folder=APILocator.getFolderAPI().find(folderId, sysuser, true);
-            Identifier ident=APILocator.getIdentifierAPI().find(folder);
-            NavResult lazyMe=NavTool.getNav(host, ident.getPath(), languageId, sysuser);
-            children=lazyMe.getChildren();
-            childrenFolderIds=lazyMe.getChildrenFolderIds();
+            NavResult node=NavTool.getNav(hostId, folderId, languageId, sysuser);
+            return node!=null ? node : this;
         }
-        if(children!=null) {
-            ArrayList<NavResult> list=new ArrayList<NavResult>();
-            for(NavResult nn : children) {
-                if(nn.isFolder()) {
-                    // for folders we avoid returning the same instance
-                    // it could be changed elsewhere and we need it to
-                    // load its children lazily
-                    NavResult ff=new NavResult(folderId,nn.hostId,nn.folderId,nn.languageId);
-                    ff.setTitle(nn.getTitle());
-                    ff.setHref(nn.getHref());
-                    ff.setOrder(nn.getOrder());
-                    ff.setType(nn.getType());
-                    ff.setPermissionId(nn.getPermissionId());
-                    ff.setShowOnMenu(nn.isShowOnMenu());
-                    list.add(ff);
-                }
-                else {
-                    list.add(nn);
-                }
-            }
-            
-            if(checkPermissions) {
-                // now filtering permissions
-                List<NavResult> allow=new ArrayList<NavResult>(list.size());
-                Context ctx=(VelocityContext) VelocityServlet.velocityCtx.get();
-                HttpServletRequest req=(HttpServletRequest) ctx.get("request");
-                User currentUser=WebAPILocator.getUserWebAPI().getLoggedInUser(req);
-                if(currentUser==null) currentUser=APILocator.getUserAPI().getAnonymousUser();
-                for(NavResult nv : list) {
-                    try {
-                    if(APILocator.getPermissionAPI().doesUserHavePermission(nv, PermissionAPI.PERMISSION_READ, currentUser)) {
-                        allow.add(nv);
-                    }
-                    }catch(Exception ex) {
-                        Logger.error(this, ex.getMessage(), ex);
-                    }
-                }
-                return allow;
-            }
-            else
-                return list;
-        }
-        else {
+        return this;
+    }
+
+    public List<NavResult> getChildren() throws Exception {
+        List<NavResult> list=getNode().children;
+        if(list==null) {
             return new ArrayList<NavResult>();
         }
+
+        if(checkPermissions) {
+            // the roles of the user are loaded once for the whole list
+            Context ctx=(VelocityContext) VelocityServlet.velocityCtx.get();
+            HttpServletRequest req=(HttpServletRequest) ctx.get("request");
+            User currentUser=WebAPILocator.getUserWebAPI().getLoggedInUser(req);
+            if(currentUser==null) currentUser=APILocator.getUserAPI().getAnonymousUser();
+            try {
+                // filterCollection returns the cached list itself to the admins
+                return new ArrayList<NavResult>(APILocator.getPermissionAPI().filterCollection(list, PermissionAPI.PERMISSION_READ, true, currentUser));
+            } catch(Exception ex) {
+                Logger.error(this, ex.getMessage(), ex);
+                return new ArrayList<NavResult>();
+            }
+        }
+        else
+            // a copy, the cached list is shared and can't be changed
+            return new ArrayList<NavResult>(list);
     }
     
     public String getParentPath() throws DotDataException, DotSecurityException {
@@ -258,7 +240,15 @@ public class NavResult implements Iterable<NavResult>, Permissionable, Serializa
     }    
     
     public List<String> getChildrenFolderIds() {
-        return childrenFolderIds!=null ? childrenFolderIds : new ArrayList<String>();
+        List<String> ids=childrenFolderIds;
+        if(ids==null) {
+            try {
+                ids=getNode().childrenFolderIds;
+            } catch (Exception e) {
+                Logger.warn(this, e.getMessage(), e);
+            }
+        }
+        return ids!=null ? ids : new ArrayList<String>();
     }
 
     public void setChildrenFolderIds(List<String> childrenFolderIds) {
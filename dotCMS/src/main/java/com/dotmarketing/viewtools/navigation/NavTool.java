@@ -1,6 +1,7 @@
 package com.dotmarketing.viewtools.navigation;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
@@ -94,8 +95,6 @@ public class NavTool implements ViewTool {
             result.setPermissionId(folder.getPermissionId());
             List<NavResult> children=new ArrayList<NavResult>();
             List<String> folderIds=new ArrayList<String>();
-            result.setChildren(children);
-            result.setChildrenFolderIds(folderIds);
             result.setShowOnMenu(folder.isShowOnMenu());
 
             List menuItems;
@@ -181,12 +180,41 @@ public class NavTool implements ViewTool {
                 }
             }
 
+            // the node is shared by every request once cached, it must not change
+            result.setChildren(Collections.unmodifiableList(children));
+            result.setChildrenFolderIds(Collections.unmodifiableList(folderIds));
+
             CacheLocator.getNavToolCache().putNav(host.getIdentifier(), folder.getInode(), result, languageId);
             
             return result;
         }
     }
     
+    /**
+     * Returns the node of a folder, looking it up by inode so a cached node
+     * is found without loading the folder.
+     */
+    protected static NavResult getNav(String hostId, String folderInode, long languageId, User systemUserParam) throws DotDataException, DotSecurityException {
+        NavResult result=CacheLocator.getNavToolCache().getNav(hostId, folderInode, languageId);
+        if(result!=null) {
+            return result;
+        }
+
+        Host host=APILocator.getHostAPI().find(hostId, systemUserParam, true);
+        if(host==null) {
+            return null;
+        }
+        String path="/";
+        if(!folderInode.equals(FolderAPI.SYSTEM_FOLDER)) {
+            Folder folder=APILocator.getFolderAPI().find(folderInode, systemUserParam, true);
+            if(folder==null || !UtilMethods.isSet(folder.getIdentifier())) {
+                return null;
+            }
+            path=APILocator.getIdentifierAPI().find(folder).getPath();
+        }
+        return getNav(host, path, languageId, systemUserParam);
+    }
+
     /**
      * Pass the level of the nav you wish to
      * retrieve, based on the current path, 
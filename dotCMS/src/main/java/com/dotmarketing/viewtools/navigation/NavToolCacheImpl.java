@@ -2,15 +2,23 @@ package com.dotmarketing.viewtools.navigation;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.dotmarketing.beans.Identifier;
 import com.dotmarketing.business.APILocator;
 import com.dotmarketing.business.CacheLocator;
 import com.dotmarketing.business.DotCacheAdministrator;
 import com.dotmarketing.business.DotCacheException;
+import com.dotmarketing.db.DbConnectionFactory;
+import com.dotmarketing.db.DotRunnable;
+import com.dotmarketing.db.HibernateUtil;
 import com.dotmarketing.portlets.folders.business.FolderAPI;
 import com.dotmarketing.portlets.folders.model.Folder;
 import com.dotmarketing.portlets.languagesmanager.model.Language;
+import com.dotmarketing.util.Config;
 import com.dotmarketing.util.Logger;
 import com.dotmarketing.util.UtilMethods;
 
@@ -18,6 +26,15 @@ public class NavToolCacheImpl implements NavToolCache {
 
     public final String GROUP="navCache";
 
+    // folders whose node was dropped and is waiting to be rebuilt in background
+    private static final Set<String> pendingRebuilds=ConcurrentHashMap.newKeySet();
+
+    private static final ExecutorService rebuilder=Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread=new Thread(runnable, "NavToolCacheRebuilder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private DotCacheAdministrator cache;
     
     public NavToolCacheImpl() {
@@ -96,7 +113,11 @@ public class NavToolCacheImpl implements NavToolCache {
                 }
             }
             
+            boolean cached=getNav(hostid, folderInode, languageId)!=null;
             cache.remove(key(hostid,folderInode, languageId), GROUP);
+            if(cached && Config.getBooleanProperty("NAVTOOL_REBUILD_IN_BACKGROUND", true)) {
+                rebuildLater(hostid, folderInode, languageId);
+            }
             
         } catch (Exception e) {
             Logger.warn(this, e.getMessage(), e);
@@ -104,6 +125,36 @@ public class NavToolCacheImpl implements NavToolCache {
         
     }
 
+    /**
+     * Builds again the node of a folder that was in use once the transaction
+     * that changed it is committed, so the next request finds it in cache
+     * instead of hitting the database. Only the node of the changed folder is
+     * built, its subfolders keep their own nodes.
+     */
+    private void rebuildLater(final String hostid, final String folderInode, final long languageId) throws Exception {
+        final String key=key(hostid, folderInode, languageId);
+        HibernateUtil.addCommitListener("navRebuild:"+key, new DotRunnable() {
+            @Override
+            public void run() {
+                if(pendingRebuilds.add(key)) {
+                    rebuilder.submit(() -> rebuild(hostid, folderInode, languageId));
+                }
+            }
+        });
+    }
+
+    private void rebuild(String hostid, String folderInode, long languageId) {
+        pendingRebuilds.remove(key(hostid, folderInode, languageId));
+        try {
+            NavTool.getNav(hostid, folderInode, languageId, APILocator.getUserAPI().getSystemUser());
+        } catch (Exception e) {
+            // it will be built by the next request that needs it
+            Logger.debug(this, "Unable to rebuild nav of folder "+folderInode+": "+e.getMessage(), e);
+        } finally {
+            DbConnectionFactory.closeSilently();
+        }
+    }
+
     @Override
     public void removeNavByPath(String hostid, String path) {
         List<Language> allLanguages = APILocator.getLanguageAPI().getLanguages();
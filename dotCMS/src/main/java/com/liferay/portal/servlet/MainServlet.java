@@ -43,6 +43,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.dotcms.cluster.common.ClusterServerActionThread;
+import com.dotcms.content.elasticsearch.business.FileMetadataQueue;
 import com.dotcms.enterprise.ClusterThreadProxy;
 import com.dotcms.repackage.com.httpbridge.webproxy.http.TaskController;
 import com.dotcms.repackage.org.apache.struts.Globals;
@@ -129,6 +130,9 @@ public class MainServlet extends ActionServlet {
 
 			ReindexThread.startThread(Config.getIntProperty("REINDEX_THREAD_SLEEP", 500), Config.getIntProperty("REINDEX_THREAD_INIT_DELAY", 5000));
 
+			// Queue the file metadata left to extract, now and periodically
+			FileMetadataQueue.start();
+
 			//Start Cluster Server Action Thread.
 			ClusterServerActionThread.startThread(Config.getIntProperty("CLUSTER_SERVER_THREAD_SLEEP", 2000));
 
@@ -22,6 +22,8 @@ package org.apache.velocity.runtime.parser.node;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
+import org.apache.velocity.util.introspection.MethodInvoker;
+
 
 /**
  * Abstract class that is used to execute an arbitrary
@@ -40,6 +42,11 @@ public abstract class AbstractExecutor
      */
     private Method method = null;
 
+    /**
+     * Invoker bound to the method.
+     */
+    private MethodInvoker invoker = null;
+
     /**
      * Execute method against context.
      * @param o
@@ -76,5 +83,21 @@ public abstract class AbstractExecutor
     protected void setMethod(final Method method)
     {
         this.method = method;
+        this.invoker = method != null ? MethodInvoker.forMethod(method) : null;
+    }
+
+    /**
+     * Invokes the method through the invoker bound to it.
+     *
+     * @param o The object to invoke the method on.
+     * @param params The arguments of the method.
+     * @return The resulting object.
+     * @throws IllegalAccessException
+     * @throws InvocationTargetException
+     */
+    protected Object invoke(final Object o, final Object[] params)
+        throws IllegalAccessException, InvocationTargetException
+    {
+        return invoker.invoke(o, params);
     }
 }
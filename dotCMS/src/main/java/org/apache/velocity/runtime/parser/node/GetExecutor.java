@@ -99,6 +99,6 @@ public class GetExecutor extends AbstractExecutor
     public Object execute(final Object o)
         throws IllegalAccessException,  InvocationTargetException
     {
-        return isAlive() ? getMethod().invoke(o, params) : null;
+        return isAlive() ? invoke(o, params) : null;
     }
 }
@@ -125,6 +125,6 @@ public class PropertyExecutor extends AbstractExecutor
     public Object execute(Object o)
         throws IllegalAccessException,  InvocationTargetException
     {
-        return isAlive() ? getMethod().invoke(o, ((Object []) null)) : null;
+        return isAlive() ? invoke(o, ((Object []) null)) : null;
     }
 }
@@ -19,10 +19,9 @@ package org.apache.velocity.util.introspection;
  * under the License.    
  */
 
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 import com.dotmarketing.util.Logger;
@@ -44,8 +43,10 @@ public final class IntrospectorCacheImpl implements IntrospectorCache
     
     /**
      * Holds the method maps for the classes we know about. Map: Class --&gt; ClassMap object.
+     * It is read without locking on every introspection, only a classloader change
+     * takes the lock.
      */
-    private final Map classMapCache = new HashMap();
+    private final Map<Class, ClassMap> classMapCache = new ConcurrentHashMap<Class, ClassMap>();
 
     /**
      * Keep the names of the classes in another map. This is needed for a multi-classloader environment where it is possible
@@ -53,7 +54,7 @@ public final class IntrospectorCacheImpl implements IntrospectorCache
      * two Class objects have the same name, a <code>classMethodMaps.get(Foo.class)</code> will return null. For that case, we
      * keep a set of class names to recognize this case.  
      */
-    private final Set classNameCache = new HashSet();
+    private final Set<String> classNameCache = ConcurrentHashMap.newKeySet();
 
     /**
      * C'tor
@@ -90,7 +91,7 @@ public final class IntrospectorCacheImpl implements IntrospectorCache
             throw new IllegalArgumentException("class is null!");
         }
 
-        ClassMap classMap = (ClassMap)classMapCache.get(c);
+        ClassMap classMap = classMapCache.get(c);
         if (classMap == null)
         {
             /*
@@ -99,11 +100,14 @@ public final class IntrospectorCacheImpl implements IntrospectorCache
              * name but loaded through a different class loader.
              * In that case, we will just dump the cache to be sure.
              */
-            synchronized (classMapCache)
+            if (classNameCache.contains(c.getName()))
             {
-                if (classNameCache.contains(c.getName()))
+                synchronized (classMapCache)
                 {
-                    clear();
+                    if (!classMapCache.containsKey(c) && classNameCache.contains(c.getName()))
+                    {
+                        clear();
+                    }
                 }
             }
         }
@@ -121,12 +125,9 @@ public final class IntrospectorCacheImpl implements IntrospectorCache
     public ClassMap put(final Class c)
     {
         final ClassMap classMap = new ClassMap(c);
-        synchronized (classMapCache)
-        {
-            classMapCache.put(c, classMap);
-            classNameCache.add(c.getName());
-        }
-        return classMap;
+        final ClassMap previous = classMapCache.putIfAbsent(c, classMap);
+        classNameCache.add(c.getName());
+        return previous != null ? previous : classMap;
     }
 
 }
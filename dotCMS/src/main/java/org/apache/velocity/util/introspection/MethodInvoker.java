@@ -0,0 +1,199 @@
+package org.apache.velocity.util.introspection;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.dotmarketing.util.Logger;
+
+/**
+ * Invokes a method found by the introspector. Getters and methods with a single
+ * object argument, which are most of the calls a template makes
+ * (<code>$content.title</code>, <code>$map.get('key')</code>), are bound once to
+ * a generated {@link Function} or {@link BiFunction} so they are called
+ * directly instead of through {@link Method#invoke(Object, Object...)}. Any
+ * other method is invoked by reflection.
+ * <p>
+ * Invokers are kept per declaring class in a {@link ClassValue}, so they are
+ * built once per method and dropped with the class when it is unloaded.
+ * Exceptions thrown by the method are wrapped in an
+ * {@link InvocationTargetException}, as reflection does, so callers handle both
+ * kinds of invokers the same way.
+ */
+public abstract class MethodInvoker
+{
+    private static final ClassValue<ConcurrentMap<Method, MethodInvoker>> invokers =
+        new ClassValue<ConcurrentMap<Method, MethodInvoker>>()
+        {
+            @Override
+            protected ConcurrentMap<Method, MethodInvoker> computeValue(Class<?> type)
+            {
+                return new ConcurrentHashMap<Method, MethodInvoker>();
+            }
+        };
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType ONE_ARG_TYPE = MethodType.methodType(Object.class, Object.class, Object.class);
+
+    /**
+     * @param o The object to invoke the method on.
+     * @param args The arguments, already adjusted to the method signature.
+     * @return The value returned by the method.
+     * @throws IllegalAccessException
+     * @throws InvocationTargetException When the method throws an exception.
+     */
+    public abstract Object invoke(Object o, Object[] args)
+        throws IllegalAccessException, InvocationTargetException;
+
+    /**
+     * Returns the invoker of a method, building it the first time the method
+     * is asked for.
+     *
+     * @param method The method to invoke.
+     * @return The invoker of the method.
+     */
+    public static MethodInvoker forMethod(final Method method)
+    {
+        ConcurrentMap<Method, MethodInvoker> byMethod = invokers.get(method.getDeclaringClass());
+        MethodInvoker invoker = byMethod.get(method);
+        if (invoker == null)
+        {
+            invoker = create(method);
+            MethodInvoker previous = byMethod.putIfAbsent(method, invoker);
+            if (previous != null)
+            {
+                invoker = previous;
+            }
+        }
+        return invoker;
+    }
+
+    static MethodInvoker create(final Method method)
+    {
+        if (canBind(method))
+        {
+            try
+            {
+                Class[] parameters = method.getParameterTypes();
+                if (parameters.length == 0)
+                {
+                    return new GetterInvoker((Function<Object, Object>)
+                        bind(method, Function.class, "apply", GETTER_TYPE));
+                }
+                if (parameters.length == 1 && !parameters[0].isPrimitive())
+                {
+                    return new OneArgInvoker((BiFunction<Object, Object, Object>)
+                        bind(method, BiFunction.class, "apply", ONE_ARG_TYPE));
+                }
+            }
+            catch (Throwable t)
+            {
+                Logger.debug(MethodInvoker.class, "Unable to bind " + method + ", it will be invoked by reflection", t);
+            }
+        }
+        return new ReflectiveInvoker(method);
+    }
+
+    /**
+     * Only public instance methods of public classes that return a value can
+     * be bound. The declaring class also has to be visible from the class
+     * loader of the velocity engine, the generated function is defined there.
+     */
+    private static boolean canBind(final Method method)
+    {
+        Class declaringClass = method.getDeclaringClass();
+        if (Modifier.isStatic(method.getModifiers()) || !Modifier.isPublic(method.getModifiers())
+            || !Modifier.isPublic(declaringClass.getModifiers()) || method.getReturnType() == Void.TYPE
+            || method.getParameterTypes().length > 1)
+        {
+            return false;
+        }
+        try
+        {
+            return Class.forName(declaringClass.getName(), false, MethodInvoker.class.getClassLoader()) == declaringClass;
+        }
+        catch (ClassNotFoundException e)
+        {
+            return false;
+        }
+    }
+
+    private static Object bind(final Method method, final Class functionalInterface, final String name,
+                               final MethodType erasedType) throws Throwable
+    {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle target = lookup.unreflect(method);
+        CallSite site = LambdaMetafactory.metafactory(lookup, name, MethodType.methodType(functionalInterface),
+            erasedType, target, target.type().wrap().changeReturnType(Object.class));
+        return site.getTarget().invoke();
+    }
+
+    private static final class GetterInvoker extends MethodInvoker
+    {
+        private final Function<Object, Object> getter;
+
+        private GetterInvoker(final Function<Object, Object> getter)
+        {
+            this.getter = getter;
+        }
+
+        public Object invoke(final Object o, final Object[] args) throws InvocationTargetException
+        {
+            try
+            {
+                return getter.apply(o);
+            }
+            catch (Throwable t)
+            {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    private static final class OneArgInvoker extends MethodInvoker
+    {
+        private final BiFunction<Object, Object, Object> function;
+
+        private OneArgInvoker(final BiFunction<Object, Object, Object> function)
+        {
+            this.function = function;
+        }
+
+        public Object invoke(final Object o, final Object[] args) throws InvocationTargetException
+        {
+            try
+            {
+                return function.apply(o, args[0]);
+            }
+            catch (Throwable t)
+            {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    private static final class ReflectiveInvoker extends MethodInvoker
+    {
+        private final Method method;
+
+        private ReflectiveInvoker(final Method method)
+        {
+            this.method = method;
+        }
+
+        public Object invoke(final Object o, final Object[] args)
+            throws IllegalAccessException, InvocationTargetException
+        {
+            return method.invoke(o, args);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.dotcms.content.elasticsearch.business;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.elasticsearch.index.query.FilteredQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Test;
+
+import com.dotmarketing.util.Config;
+
+/**
+ * Test for {@link ESPermissionFilter}
+ */
+public class ESPermissionFilterTest {
+
+    @Test
+    public void testKeyOnlyDependsOnTheSetOfRoles() {
+
+        final String key = ESPermissionFilter.keyOf(Arrays.asList("Role-B", "role-a"));
+
+        assertTrue(key.startsWith("perm_"));
+        assertEquals(key, ESPermissionFilter.keyOf(Arrays.asList("role-a", "ROLE-B", "role-a")));
+        assertEquals(key, new ESPermissionFilter(Arrays.asList("role-b", "Role-A")).getKey());
+        assertNotEquals(key, ESPermissionFilter.keyOf(Arrays.asList("role-a")));
+        assertNotEquals(key, ESPermissionFilter.keyOf(Arrays.asList("role-a", "role-b", "role-c")));
+    }
+
+    @Test
+    public void testTermsAreTheLowercasedReadPermissions() {
+
+        final ESPermissionFilter filter = new ESPermissionFilter(Arrays.asList("ROLE-B", "role-a", "Role-A"));
+
+        // as the permissions are indexed, P<role id>.1P lowercased
+        assertArrayEquals(new String[] { "prole-a.1p", "prole-b.1p" }, filter.getTerms());
+    }
+
+    @Test
+    public void testFilterMatchesTheRolesAndTheOwner() {
+
+        final ESPermissionFilter filter = new ESPermissionFilter(Arrays.asList("Role-A", "role-b"));
+
+        final String roles = filter.toFilterBuilder(null).toString();
+        assertTrue(roles.contains("\"permissions\""));
+        assertTrue(roles.contains("\"prole-a.1p\""));
+        assertTrue(roles.contains("\"prole-b.1p\""));
+        assertTrue(roles.contains(filter.getKey()));
+        assertFalse(roles.contains("ownercanread"));
+
+        final String owner = filter.toFilterBuilder("User-1").toString();
+        assertTrue(owner.contains("\"prole-a.1p\""));
+        assertTrue(owner.contains("\"user-1\""));
+        assertTrue(owner.contains("ownercanread"));
+    }
+
+    @Test
+    public void testFilterWithoutRolesOrUserMatchesNothing() {
+
+        final String filter = new ESPermissionFilter(Collections.<String> emptyList()).toFilterBuilder(null).toString();
+
+        assertTrue(filter.contains("\"not\""));
+        assertTrue(filter.contains("match_all"));
+    }
+
+    @Test
+    public void testQueryIsOnlyFilteredWithAFilter() {
+
+        final QueryBuilder query = QueryBuilders.queryString("+structurename:news");
+
+        assertSame(query, ESPermissionFilter.filter(query, null, "user-1"));
+        assertTrue(ESPermissionFilter.filter(query, new ESPermissionFilter(Arrays.asList("role-a")), "user-1")
+                instanceof FilteredQueryBuilder);
+    }
+
+    @Test
+    public void testFiltersCanBeTurnedOff() {
+
+        assertTrue(ESPermissionFilter.isEnabled());
+        Config.setProperty("ELASTICSEARCH_USE_PERMISSION_FILTERS", false);
+        try {
+            assertFalse(ESPermissionFilter.isEnabled());
+        } finally {
+            Config.setProperty("ELASTICSEARCH_USE_PERMISSION_FILTERS", true);
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.dotcms.content.elasticsearch.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link ESQueryPlan}
+ */
+public class ESQueryPlanTest {
+
+    @Test
+    public void testTermClausesAreMovedToFilters() {
+
+        final ESQueryPlan plan = new ESQueryPlan(
+                "+structurename:news +live:true +languageid:1 -deleted:true +news.title:dotcms*", true, "modDate desc");
+
+        assertTrue(plan.hasFilters());
+        assertEquals("+news.title:dotcms*", plan.getQuery());
+        assertEquals("[structurename:news, live:true, languageid:1]", plan.getMustTerms().toString());
+        assertEquals("[deleted:true]", plan.getMustNotTerms().toString());
+    }
+
+    @Test
+    public void testOnlyTermClauses() {
+
+        final ESQueryPlan plan = new ESQueryPlan("+structurename:news +live:true", true, null);
+
+        assertTrue(plan.hasFilters());
+        assertEquals("", plan.getQuery());
+        assertEquals(2, plan.getMustTerms().size());
+    }
+
+    @Test
+    public void testOptionalClausesKeepTheQueryWhole() {
+
+        final String query = "+structurename:news +live:true news.title:dotcms";
+        final ESQueryPlan plan = new ESQueryPlan(query, true, null);
+
+        assertFalse(plan.hasFilters());
+        assertEquals(query, plan.getQuery());
+    }
+
+    @Test
+    public void testOnlyProhibitedClausesLeftKeepTheQueryWhole() {
+
+        final String query = "+live:true -(news.title:dotcms news.title:cms)";
+        final ESQueryPlan plan = new ESQueryPlan(query, true, null);
+
+        assertFalse(plan.hasFilters());
+        assertEquals(query, plan.getQuery());
+    }
+
+    @Test
+    public void testSplitClauses() {
+
+        assertEquals(Arrays.asList("+live:true", "+(a:1 b:2)", "+news.date:[20160101000000 TO 20161231235959]",
+                "+news.title:\"dot cms\"", "+path:\\/home\\ page"),
+                ESQueryPlan.splitClauses(
+                        "+live:true  +(a:1 b:2) +news.date:[20160101000000 TO 20161231235959] +news.title:\"dot cms\" +path:\\/home\\ page"));
+    }
+
+}
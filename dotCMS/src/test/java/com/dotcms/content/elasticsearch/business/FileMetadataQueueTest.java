@@ -0,0 +1,135 @@
+package com.dotcms.content.elasticsearch.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test for {@link FileMetadataQueue}
+ */
+public class FileMetadataQueueTest {
+
+    private final List<String> extracted = new CopyOnWriteArrayList<String>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private FileMetadataQueue queue;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    public void extractsTheSubmittedVersionsOnce() throws Exception {
+        final CountDownLatch done = new CountDownLatch(2);
+        queue = new FileMetadataQueue(2, 10, inode -> {
+            extracted.add(inode);
+            done.countDown();
+        }, limit -> Collections.<String> emptyList(), () -> true);
+
+        assertTrue(queue.submit("inode1"));
+        assertTrue(queue.submit("inode2"));
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(2, extracted.size());
+        assertTrue(extracted.containsAll(Arrays.asList("inode1", "inode2")));
+    }
+
+    @Test
+    public void doesNotQueueAVersionTwice() throws Exception {
+        queue = new FileMetadataQueue(1, 10, blockingExtractor(), limit -> Collections.<String> emptyList(), () -> true);
+
+        assertTrue(queue.submit("inode1"));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        // being extracted
+        assertFalse(queue.submit("inode1"));
+        assertTrue(queue.submit("inode2"));
+        // waiting in the queue
+        assertFalse(queue.submit("inode2"));
+    }
+
+    /**
+     * A full queue drops the extraction, it does not run on the calling thread,
+     * and the recovery queues it again.
+     */
+    @Test
+    public void dropsTheOverflowAndRecoversIt() throws Exception {
+        final List<String> waiting = new ArrayList<String>(Arrays.asList("inode3"));
+        queue = new FileMetadataQueue(1, 1, blockingExtractor(), limit -> new ArrayList<String>(waiting), () -> true);
+
+        assertTrue(queue.submit("inode1"));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(queue.submit("inode2"));
+        assertFalse(queue.submit("inode3"));
+
+        assertEquals(1, queue.getDropped());
+        assertFalse(queue.isPending("inode3"));
+        assertFalse(extracted.contains("inode3"));
+        // no room left, the recovery waits
+        assertEquals(0, queue.recover());
+
+        release.countDown();
+        waitUntilIdle("inode1", "inode2");
+
+        assertEquals(1, queue.recover());
+        waitUntilIdle("inode3");
+        assertTrue(extracted.contains("inode3"));
+    }
+
+    @Test
+    public void recoversOnlyInTheLeader() throws Exception {
+        final List<Integer> limits = new ArrayList<Integer>();
+        queue = new FileMetadataQueue(1, 5, extracted::add, limit -> {
+            limits.add(limit);
+            return Arrays.asList("inode1", "inode2");
+        }, () -> false);
+
+        assertEquals(0, queue.recover());
+        assertTrue(limits.isEmpty());
+
+        FileMetadataQueue leader = new FileMetadataQueue(1, 5, extracted::add, limit -> {
+            limits.add(limit);
+            return Arrays.asList("inode1", "inode2");
+        }, () -> true);
+        try {
+            assertEquals(2, leader.recover());
+            // asks for no more than fits in the queue
+            assertEquals(Collections.singletonList(5), limits);
+        } finally {
+            leader.shutdown();
+        }
+    }
+
+    private FileMetadataQueue.Extractor blockingExtractor() {
+        return inode -> {
+            started.countDown();
+            release.await();
+            extracted.add(inode);
+        };
+    }
+
+    private void waitUntilIdle(String... inodes) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        for (String inode : inodes) {
+            while (queue.isPending(inode) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertFalse(queue.isPending(inode));
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.dotcms.publisher.receiver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.dotcms.publisher.receiver.handler.IHandler;
+
+/**
+ * Test for the parallel ingestion of {@link BundlePublisher}
+ */
+public class BundlePublisherTest {
+
+    private final List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+
+    @Test
+    public void runsEveryLevelInOrder() throws Exception {
+
+        final List<List<IHandler>> levels = Arrays.asList(
+                Arrays.asList(handler("host")),
+                Arrays.asList(handler("folder"), handler("workflow")),
+                Arrays.asList(handler("content")));
+
+        BundlePublisher.runLevels(levels, 4, "bundle1", runner());
+
+        assertEquals(4, handled.size());
+        assertEquals("host", handled.get(0));
+        assertTrue(handled.subList(1, 3).containsAll(Arrays.asList("folder", "workflow")));
+        assertEquals("content", handled.get(3));
+    }
+
+    /**
+     * A failed handler lets the rest of its level finish, stops the next levels
+     * and its error is the one reported.
+     */
+    @Test
+    public void aFailedLevelStopsTheNextOnes() throws Exception {
+
+        final Exception failure = new Exception("folder failed");
+        final List<List<IHandler>> levels = Arrays.asList(
+                Arrays.asList(handler("host")),
+                Arrays.asList(failing("folder", failure), handler("workflow")),
+                Arrays.asList(handler("structure")),
+                Arrays.asList(handler("content")));
+
+        try {
+            BundlePublisher.runLevels(levels, 4, "bundle1", runner());
+            fail("the error of the level should have been thrown");
+        } catch (Exception e) {
+            assertSame(failure, e);
+        }
+
+        assertTrue(handled.containsAll(Arrays.asList("host", "workflow")));
+        assertFalse(handled.contains("structure"));
+        assertFalse(handled.contains("content"));
+    }
+
+    @Test
+    public void aFailureInTheFirstLevelRunsNothingElse() throws Exception {
+
+        final Exception failure = new IllegalStateException("bad signature");
+        final List<List<IHandler>> levels = Arrays.asList(
+                Arrays.asList(failing("bundleXMLasc", failure)),
+                Arrays.asList(handler("user"), handler("category")));
+
+        try {
+            BundlePublisher.runLevels(levels, 1, "bundle1", runner());
+            fail("the error of the level should have been thrown");
+        } catch (Exception e) {
+            assertSame(failure, e);
+        }
+
+        assertTrue(handled.isEmpty());
+    }
+
+    private BundlePublisher.HandlerRunner runner() {
+        return new BundlePublisher.HandlerRunner() {
+            @Override
+            public void run(final IHandler handler) throws Exception {
+                handler.handle(null);
+            }
+        };
+    }
+
+    private IHandler handler(final String name) {
+        return failing(name, null);
+    }
+
+    private IHandler failing(final String name, final Exception failure) {
+        return new IHandler() {
+            @Override
+            public void handle(final File bundleFolder) throws Exception {
+                if (failure != null) {
+                    throw failure;
+                }
+                handled.add(name);
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+
+}
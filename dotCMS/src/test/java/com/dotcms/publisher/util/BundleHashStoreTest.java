@@ -0,0 +1,178 @@
+package com.dotcms.publisher.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * BundleHashStore unit test.
+ */
+public class BundleHashStoreTest {
+
+    @Test
+    public void restoresTheFilesNotSent() throws IOException {
+
+        final File dir = Files.createTempDirectory("bundleHashStoreTest").toFile();
+        try {
+            final BundleHashStore store = new BundleHashStore(new File(dir, "store"), 0);
+
+            // a first bundle, sent whole
+            final File first = new File(dir, "first");
+            write(new File(first, "bundle.xml"), "first");
+            write(new File(first, "live/1/page.html.xml"), "page");
+            write(new File(first, "live/1/image.png"), "image");
+            final Map<String, String> firstManifest = BundleHashStore.writeManifest(first);
+            assertEquals(3, firstManifest.size());
+            assertEquals(firstManifest, BundleHashStore.readManifest(new File(first, BundleHashStore.MANIFEST)));
+            assertEquals(3, store.missing(firstManifest.values()).size());
+            store.restore(first, firstManifest);
+
+            // a second one with the same image and a changed page
+            final File second = new File(dir, "second");
+            write(new File(second, "bundle.xml"), "second");
+            write(new File(second, "live/1/page.html.xml"), "changed page");
+            write(new File(second, "live/1/image.png"), "image");
+            final Map<String, String> manifest = BundleHashStore.writeManifest(second);
+            final Set<String> missing = store.missing(manifest.values());
+            assertEquals(2, missing.size());
+            assertFalse(missing.contains(manifest.get("live/1/image.png")));
+
+            // only the missing files and the manifest are received
+            final File received = new File(dir, "received");
+            write(new File(received, "bundle.xml"), "second");
+            write(new File(received, "live/1/page.html.xml"), "changed page");
+            store.restore(received, BundleHashStore.readManifest(new File(second, BundleHashStore.MANIFEST)));
+            assertEquals("image", new String(Files.readAllBytes(new File(received, "live/1/image.png").toPath()),
+                    StandardCharsets.UTF_8));
+            assertTrue(store.missing(manifest.values()).isEmpty());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void failsWhenAFileIsNotStored() throws IOException {
+
+        final File dir = Files.createTempDirectory("bundleHashStoreTest").toFile();
+        try {
+            final BundleHashStore store = new BundleHashStore(new File(dir, "store"), 0);
+            final File bundle = new File(dir, "bundle");
+            write(new File(bundle, "bundle.xml"), "bundle");
+            final Map<String, String> manifest = BundleHashStore.writeManifest(bundle);
+            manifest.put("live/1/image.png", "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef");
+            try {
+                store.restore(bundle, manifest);
+                fail("The bundle is incomplete");
+            } catch (IOException e) {
+                // expected, and nothing is stored
+                assertEquals(2, store.missing(manifest.values()).size());
+            }
+            assertFalse(new File(dir, "store").exists());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void failsWhenAFileDoesNotHaveItsHash() throws IOException {
+
+        final File dir = Files.createTempDirectory("bundleHashStoreTest").toFile();
+        try {
+            final BundleHashStore store = new BundleHashStore(new File(dir, "store"), 0);
+            final File bundle = new File(dir, "bundle");
+            write(new File(bundle, "bundle.xml"), "bundle");
+            write(new File(bundle, "live/1/image.png"), "image");
+            final Map<String, String> manifest = BundleHashStore.writeManifest(bundle);
+
+            // the image is truncated on the way
+            write(new File(bundle, "live/1/image.png"), "ima");
+            try {
+                store.restore(bundle, manifest);
+                fail("The image does not have its hash");
+            } catch (IOException e) {
+                // expected, and nothing is stored
+                assertEquals(2, store.missing(manifest.values()).size());
+            }
+            assertFalse(new File(dir, "store").exists());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void failsWhenAFileIsOutsideOfTheBundle() throws IOException {
+
+        final File dir = Files.createTempDirectory("bundleHashStoreTest").toFile();
+        try {
+            final BundleHashStore store = new BundleHashStore(new File(dir, "store"), 0);
+            final File bundle = new File(dir, "bundle");
+            write(new File(bundle, "bundle.xml"), "bundle");
+            write(new File(dir, "outside.xml"), "outside");
+            final Map<String, String> manifest = BundleHashStore.writeManifest(bundle);
+            manifest.put("../outside.xml", BundleHashStore.hash(new File(dir, "outside.xml")));
+            try {
+                store.restore(bundle, manifest);
+                fail("The file is outside of the bundle");
+            } catch (IOException e) {
+                // expected, and nothing is stored
+                assertEquals(2, store.missing(manifest.values()).size());
+            }
+            assertFalse(new File(dir, "store").exists());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void theStoredFilesAreCopies() throws IOException {
+
+        final File dir = Files.createTempDirectory("bundleHashStoreTest").toFile();
+        try {
+            final BundleHashStore store = new BundleHashStore(new File(dir, "store"), 0);
+            final File first = new File(dir, "first");
+            write(new File(first, "live/1/image.png"), "image");
+            final Map<String, String> manifest = BundleHashStore.writeManifest(first);
+            store.restore(first, manifest);
+
+            // a handler writing to the bundle file doesn't change the stored one
+            write(new File(first, "live/1/image.png"), "changed");
+            final File second = new File(dir, "second");
+            store.restore(second, manifest);
+            assertEquals("image", new String(Files.readAllBytes(new File(second, "live/1/image.png").toPath()),
+                    StandardCharsets.UTF_8));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        file.getParentFile().mkdirs();
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,78 @@
+package com.dotcms.publisher.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ResolvedDependenciesTest {
+
+	@Test
+	public void loadsEachKeyOnce() throws Exception {
+		ResolvedDependencies resolved = new ResolvedDependencies();
+		final AtomicInteger loads = new AtomicInteger();
+		Callable<String> loader = new Callable<String>() {
+			public String call() {
+				loads.incrementAndGet();
+				return "value";
+			}
+		};
+
+		assertEquals("value", resolved.get("key", loader));
+		assertEquals("value", resolved.get("key", loader));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void keepsNullValues() throws Exception {
+		ResolvedDependencies resolved = new ResolvedDependencies();
+		final AtomicInteger loads = new AtomicInteger();
+		Callable<String> loader = new Callable<String>() {
+			public String call() {
+				loads.incrementAndGet();
+				return null;
+			}
+		};
+
+		assertNull(resolved.get("key", loader));
+		assertNull(resolved.get("key", loader));
+		assertTrue(resolved.contains("key"));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void doesNotKeepErrors() throws Exception {
+		ResolvedDependencies resolved = new ResolvedDependencies();
+		try {
+			resolved.get("key", new Callable<String>() {
+				public String call() throws Exception {
+					throw new Exception("not found");
+				}
+			});
+			fail("the error should be thrown");
+		} catch (Exception e) {
+			assertEquals("not found", e.getMessage());
+		}
+		assertFalse(resolved.contains("key"));
+	}
+
+	@Test
+	public void sharesTheLookupsOfARun() {
+		ResolvedDependencies.startRun();
+		try {
+			assertSame(ResolvedDependencies.getInstance(), ResolvedDependencies.getInstance());
+		} finally {
+			ResolvedDependencies.endRun();
+		}
+		assertNotSame(ResolvedDependencies.getInstance(), ResolvedDependencies.getInstance());
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.dotcms.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.liferay.portal.model.User;
+
+/**
+ * Test for the conditional GET helpers of {@link ContentResource}
+ */
+public class ContentResourceETagTest {
+
+    private final User user = user("user1");
+
+    @Test
+    public void testETagIsStable() {
+
+        final String eTag = ContentResource.getETag(Arrays.asList(contentlet("id1", "inode1", 1000)), "json", user);
+
+        assertEquals(40, eTag.length());
+        assertTrue(eTag.matches("[0-9a-f]+"));
+        assertEquals(eTag, ContentResource.getETag(Arrays.asList(contentlet("id1", "inode1", 1000)), "json", user));
+    }
+
+    @Test
+    public void testETagChangesWithTheResponse() {
+
+        final List<Contentlet> cons = Arrays.asList(contentlet("id1", "inode1", 1000), contentlet("id2", "inode2", 2000));
+        final String eTag = ContentResource.getETag(cons, "json", user);
+
+        // a new version, a new mod date, another order of the contentlets
+        assertNotEquals(eTag, ContentResource.getETag(Arrays.asList(contentlet("id1", "inode3", 1000),
+                contentlet("id2", "inode2", 2000)), "json", user));
+        assertNotEquals(eTag, ContentResource.getETag(Arrays.asList(contentlet("id1", "inode1", 1001),
+                contentlet("id2", "inode2", 2000)), "json", user));
+        assertNotEquals(eTag, ContentResource.getETag(Arrays.asList(cons.get(1), cons.get(0)), "json", user));
+
+        // another format or user, or no contentlets
+        assertNotEquals(eTag, ContentResource.getETag(cons, "xml", user));
+        assertNotEquals(eTag, ContentResource.getETag(cons, "json", user("user2")));
+        assertNotEquals(eTag, ContentResource.getETag(cons, "json", null));
+        assertNotEquals(eTag, ContentResource.getETag(Collections.<Contentlet> emptyList(), "json", user));
+    }
+
+    @Test
+    public void testETagWithoutModDate() {
+
+        final Contentlet contentlet = contentlet("id1", "inode1", 1000);
+        contentlet.setModDate(null);
+
+        assertEquals(40, ContentResource.getETag(Arrays.asList(contentlet), "json", user).length());
+    }
+
+    @Test
+    public void testIsNotModified() {
+
+        assertTrue(ContentResource.isNotModified("\"abc\"", "abc"));
+        assertTrue(ContentResource.isNotModified("W/\"abc\"", "abc"));
+        assertTrue(ContentResource.isNotModified("\"xyz\", \"abc\"", "abc"));
+        assertTrue(ContentResource.isNotModified("*", "abc"));
+
+        assertFalse(ContentResource.isNotModified("\"xyz\"", "abc"));
+        assertFalse(ContentResource.isNotModified("abc", "abc"));
+        assertFalse(ContentResource.isNotModified("\"abcd\"", "abc"));
+        assertFalse(ContentResource.isNotModified("", "abc"));
+        assertFalse(ContentResource.isNotModified(null, "abc"));
+        assertFalse(ContentResource.isNotModified("\"abc\"", null));
+    }
+
+    private Contentlet contentlet(final String identifier, final String inode, final long modDate) {
+        final Contentlet contentlet = new Contentlet();
+        contentlet.setIdentifier(identifier);
+        contentlet.setInode(inode);
+        contentlet.setModDate(new Date(modDate));
+        return contentlet;
+    }
+
+    private User user(final String userId) {
+        final User user = mock(User.class);
+        when(user.getUserId()).thenReturn(userId);
+        return user;
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.dotcms.rest.api.v1.system.websocket;
+
+import com.dotcms.api.system.event.Payload;
+import com.dotcms.api.system.event.SystemEvent;
+import com.dotcms.api.system.event.SystemEventProcessorFactory;
+import com.dotcms.api.system.event.SystemEventType;
+import com.dotcms.api.system.event.Visibility;
+import com.dotmarketing.business.UserAPI;
+import com.liferay.portal.model.User;
+import org.junit.Test;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.Session;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test for {@link SystemEventsWebSocketEndPoint}
+ */
+public class SystemEventsWebSocketEndPointTest {
+
+    @Test
+    public void testGlobalEventIsSentToAllSessions() {
+
+        final SystemEventsWebSocketEndPoint endPoint =
+                new SystemEventsWebSocketEndPoint(mock(UserAPI.class), SystemEventProcessorFactory.getInstance());
+
+        final RemoteEndpoint.Async remote1 = this.openSession(endPoint, "1", "user1");
+        final RemoteEndpoint.Async remote2 = this.openSession(endPoint, "2", "user2");
+        final RemoteEndpoint.Async remote3 = this.openSession(endPoint, "3", "user2");
+
+        endPoint.sendSystemEvent(new SystemEvent("event1", SystemEventType.NOTIFICATION, new Payload("message"), null));
+
+        verify(remote1, times(1)).sendText(anyString());
+        verify(remote2, times(1)).sendText(anyString());
+        verify(remote3, times(1)).sendText(anyString());
+    }
+
+    @Test
+    public void testUserEventIsSentOnlyToTheUserSessions() {
+
+        final SystemEventsWebSocketEndPoint endPoint =
+                new SystemEventsWebSocketEndPoint(mock(UserAPI.class), SystemEventProcessorFactory.getInstance());
+
+        final RemoteEndpoint.Async remote1 = this.openSession(endPoint, "1", "user1");
+        final RemoteEndpoint.Async remote2 = this.openSession(endPoint, "2", "user2");
+
+        endPoint.sendSystemEvent(new SystemEvent("event1", SystemEventType.NOTIFICATION,
+                new Payload("message", Visibility.USER, "user2"), null));
+
+        verify(remote1, never()).sendText(anyString());
+        verify(remote2, times(1)).sendText(anyString());
+    }
+
+    @Test
+    public void testClosedSessionIsNotUsed() {
+
+        final SystemEventsWebSocketEndPoint endPoint =
+                new SystemEventsWebSocketEndPoint(mock(UserAPI.class), SystemEventProcessorFactory.getInstance());
+
+        final RemoteEndpoint.Async remote1 = this.openSession(endPoint, "1", "user1");
+        final Session session = mock(Session.class);
+        when(session.getId()).thenReturn("1");
+        endPoint.closedConnection(session);
+
+        endPoint.sendSystemEvent(new SystemEvent("event1", SystemEventType.NOTIFICATION, new Payload("message"), null));
+
+        verify(remote1, never()).sendText(anyString());
+    }
+
+    private RemoteEndpoint.Async openSession(final SystemEventsWebSocketEndPoint endPoint,
+                                             final String sessionId, final String userId) {
+
+        final User user = new User();
+        user.setUserId(userId);
+
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put(SystemEventsWebSocketEndPoint.USER, user);
+
+        final RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+        final Session session = mock(Session.class);
+        when(session.getId()).thenReturn(sessionId);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getUserProperties()).thenReturn(properties);
+        when(session.getAsyncRemote()).thenReturn(remote);
+
+        endPoint.open(session);
+        return remote;
+    }
+
+}
@@ -169,6 +169,18 @@ public class CollectionsUtilsTest {
         assertEquals( map.get("key2"), "value1");
     }
 
+    @Test
+    public void testPartition(){
+        final List<List<Integer>> partitions = CollectionsUtils.partition(list(1, 2, 3, 4, 5), 2);
+        assertEquals(3, partitions.size());
+        assertEquals(list(1, 2), partitions.get(0));
+        assertEquals(list(3, 4), partitions.get(1));
+        assertEquals(list(5), partitions.get(2));
+
+        assertEquals(1, CollectionsUtils.partition(list(1, 2), 500).size());
+        assertTrue(CollectionsUtils.partition(list(), 500).isEmpty());
+    }
+
     @Test
     public void testRemoveDontExistKey(){
         Map<String, String> map = new HashMap<>();
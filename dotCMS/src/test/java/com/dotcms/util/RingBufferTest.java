@@ -0,0 +1,62 @@
+package com.dotcms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * RingBuffer unit test.
+ */
+public class RingBufferTest {
+
+    @Test
+    public void dropsWhenFull()  {
+
+        final RingBuffer<Integer> buffer = new RingBuffer<Integer>(3);
+        assertEquals(4, buffer.capacity());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(1, buffer.getDropped());
+
+        final List<Integer> drained = new ArrayList<Integer>();
+        assertEquals(2, buffer.drainTo(drained, 2));
+        assertTrue(buffer.offer(5));
+        assertEquals(3, buffer.drainTo(drained, 10));
+        assertEquals("[0, 1, 2, 3, 5]", drained.toString());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void concurrentProducers() throws InterruptedException {
+
+        final RingBuffer<Integer> buffer = new RingBuffer<Integer>(1024);
+        final int producers = 4;
+        final int perProducer = 10000;
+        final CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        buffer.offer(i);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        final List<Integer> drained = new ArrayList<Integer>();
+        while (done.getCount() > 0 || buffer.size() > 0) {
+            buffer.drainTo(drained, 100);
+        }
+        assertEquals(producers * perProducer, drained.size() + buffer.getDropped());
+    }
+}
@@ -0,0 +1,166 @@
+package com.dotmarketing.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dotmarketing.business.BlockPageCache.PageCacheParameters;
+import com.dotmarketing.portlets.htmlpageasset.model.IHTMLPage;
+
+/**
+ * Test for {@link BlockPageCacheImpl}
+ */
+public class BlockPageCacheImplTest {
+
+    private final Map<String, Object> store = new ConcurrentHashMap<String, Object>();
+    private BlockPageCacheImpl cache;
+
+    @Before
+    public void setUp() throws Exception {
+        DotCacheAdministrator administrator = mock(DotCacheAdministrator.class);
+        doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            store.put(args[2] + ":" + args[0], args[1]);
+            return null;
+        }).when(administrator).put(anyString(), any(), anyString());
+        doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            store.remove(args[1] + ":" + args[0]);
+            return null;
+        }).when(administrator).remove(anyString(), anyString());
+        when(administrator.get(anyString(), anyString())).thenAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            return store.get(args[1] + ":" + args[0]);
+        });
+
+        cache = new BlockPageCacheImpl(administrator, true);
+    }
+
+    @Test
+    public void returnsTheVersionOfTheParameters() {
+        IHTMLPage page = page("inode1", 60);
+        PageCacheParameters english = new PageCacheParameters("user1", "1", null, null, null);
+        PageCacheParameters spanish = new PageCacheParameters("user1", "2", null, null, null);
+
+        assertNull(cache.get(page, english));
+        cache.add(page, "english page", english);
+        cache.add(page, "spanish page", spanish);
+
+        assertEquals("english page", cache.get(page, english));
+        assertEquals("spanish page", cache.get(page, spanish));
+        assertNull(cache.get(page, new PageCacheParameters("user2", "1", null, null, null)));
+
+        Map<String, Object> stats = cache.getStats(page);
+        assertEquals(2, stats.get("versions"));
+        assertEquals(2L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+        assertEquals(2L, stats.get("totalMisses"));
+    }
+
+    @Test
+    public void dropsOnlyTheExpiredVersion() {
+        IHTMLPage expiring = page("inode1", 0);
+        PageCacheParameters english = new PageCacheParameters("user1", "1", null, null, null);
+        PageCacheParameters spanish = new PageCacheParameters("user1", "2", null, null, null);
+        cache.add(expiring, "english page", english);
+        cache.add(expiring, "spanish page", spanish);
+
+        // a TTL of 0 expires the version on the first read
+        assertNull(cache.get(expiring, english));
+        assertEquals(1, cache.getStats(expiring).get("versions"));
+    }
+
+    @Test
+    public void removesEveryVersionOfThePage() {
+        IHTMLPage page = page("inode1", 60);
+        IHTMLPage other = page("inode2", 60);
+        PageCacheParameters english = new PageCacheParameters("user1", "1", null, null, null);
+        PageCacheParameters spanish = new PageCacheParameters("user1", "2", null, null, null);
+        cache.add(page, "english page", english);
+        cache.add(page, "spanish page", spanish);
+        cache.add(other, "other page", english);
+
+        cache.remove(page);
+
+        assertNull(cache.get(page, english));
+        assertNull(cache.get(page, spanish));
+        assertEquals("other page", cache.get(other, english));
+    }
+
+    @Test
+    public void aNewModDateIsANewPage() {
+        IHTMLPage page = page("inode1", 60);
+        PageCacheParameters english = new PageCacheParameters("user1", "1", null, null, null);
+        cache.add(page, "old page", english);
+
+        IHTMLPage saved = page("inode1", 60);
+        when(saved.getModDate()).thenReturn(new Date(page.getModDate().getTime() + 1000));
+        assertNull(cache.get(saved, english));
+    }
+
+    @Test
+    public void keepsTheVersionsAddedConcurrently() throws Exception {
+        final IHTMLPage page = page("inode1", 60);
+        final int threads = 8;
+        final int versionsPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() {
+                        for (int v = 0; v < versionsPerThread; v++) {
+                            cache.add(page, "page " + thread + "_" + v,
+                                    new PageCacheParameters("user" + thread, String.valueOf(v), null, null, null));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * versionsPerThread, cache.getStats(page).get("versions"));
+        assertEquals("page 3_7", cache.get(page, new PageCacheParameters("user3", "7", null, null, null)));
+    }
+
+    @Test
+    public void doesNotServePagesWithoutLicense() throws Exception {
+        BlockPageCacheImpl community = new BlockPageCacheImpl(mock(DotCacheAdministrator.class), false);
+        IHTMLPage page = page("inode1", 60);
+        PageCacheParameters english = new PageCacheParameters("user1", "1", null, null, null);
+        community.add(page, "english page", english);
+        assertNull(community.get(page, english));
+    }
+
+    private IHTMLPage page(String inode, long ttl) {
+        IHTMLPage page = mock(IHTMLPage.class);
+        when(page.getInode()).thenReturn(inode);
+        when(page.getModDate()).thenReturn(new Date(1000000L));
+        when(page.getCacheTTL()).thenReturn(ttl);
+        return page;
+    }
+
+}
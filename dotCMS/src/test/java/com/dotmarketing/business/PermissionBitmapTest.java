@@ -0,0 +1,69 @@
+package com.dotmarketing.business;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.dotmarketing.beans.Permission;
+
+/**
+ * Test for {@link PermissionBitmap}
+ */
+public class PermissionBitmapTest {
+
+    @Test
+    public void testBitsAreMergedByRole() {
+
+        final List<Permission> permissions = new ArrayList<Permission>();
+        permissions.add(new Permission("inode", "role1", PermissionAPI.PERMISSION_READ, true));
+        permissions.add(new Permission("inode", "role1", PermissionAPI.PERMISSION_PUBLISH, true));
+        permissions.add(new Permission("inode", "role2", PermissionAPI.PERMISSION_READ | PermissionAPI.PERMISSION_EDIT, true));
+
+        final PermissionBitmap bitmap = new PermissionBitmap(permissions);
+
+        assertTrue(bitmap.roleHasPermission("role1", PermissionAPI.PERMISSION_READ));
+        assertTrue(bitmap.roleHasPermission("role1", PermissionAPI.PERMISSION_PUBLISH));
+        assertFalse(bitmap.roleHasPermission("role1", PermissionAPI.PERMISSION_EDIT));
+        assertTrue(bitmap.roleHasPermission("role2", PermissionAPI.PERMISSION_EDIT));
+        assertFalse(bitmap.roleHasPermission("role3", PermissionAPI.PERMISSION_READ));
+    }
+
+    @Test
+    public void testAnyRoleHasPermission() {
+
+        final List<Permission> permissions = new ArrayList<Permission>();
+        permissions.add(new Permission("inode", "role1", PermissionAPI.PERMISSION_READ, true));
+        permissions.add(new Permission("inode", "role2", PermissionAPI.PERMISSION_EDIT, true));
+
+        final PermissionBitmap bitmap = new PermissionBitmap(permissions);
+
+        final Set<String> fewRoles = new HashSet<String>(Arrays.asList("role2"));
+        final Set<String> manyRoles = new HashSet<String>(Arrays.asList("role1", "role3", "role4", "role5"));
+
+        assertTrue(bitmap.anyRoleHasPermission(fewRoles, PermissionAPI.PERMISSION_EDIT));
+        assertFalse(bitmap.anyRoleHasPermission(fewRoles, PermissionAPI.PERMISSION_READ));
+        assertTrue(bitmap.anyRoleHasPermission(manyRoles, PermissionAPI.PERMISSION_READ));
+        assertFalse(bitmap.anyRoleHasPermission(manyRoles, PermissionAPI.PERMISSION_PUBLISH));
+    }
+
+    @Test
+    public void testNonBitPermissionsMatchTheExactType() {
+
+        final List<Permission> permissions = new ArrayList<Permission>();
+        permissions.add(new Permission("inode", "role1", PermissionAPI.PERMISSION_EDIT, false));
+
+        final PermissionBitmap bitmap = new PermissionBitmap(permissions);
+
+        assertTrue(bitmap.roleHasPermission("role1", PermissionAPI.PERMISSION_EDIT));
+        assertFalse(bitmap.roleHasPermission("role1", PermissionAPI.PERMISSION_EDIT | PermissionAPI.PERMISSION_READ));
+        assertTrue(bitmap.anyRoleHasPermission(new HashSet<String>(Arrays.asList("role1")), PermissionAPI.PERMISSION_EDIT));
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.dotmarketing.beans.Identifier;
+import com.dotmarketing.beans.Permission;
+import com.dotmarketing.business.PermissionAPI;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+import com.dotmarketing.portlets.contentlet.model.ContentletLayout;
+import com.dotmarketing.portlets.contentlet.model.ContentletSlotMap;
+
+/**
+ * Test for {@link MappedCacheSerializer}
+ */
+public class MappedCacheSerializerTest {
+
+    private final MappedCacheSerializer serializer = new MappedCacheSerializer();
+
+    private Object roundTrip(final Object object) throws Exception {
+        return serializer.deserialize(serializer.serialize(object));
+    }
+
+    @Test
+    public void testSimpleValues() throws Exception {
+
+        final Date date = new Date();
+        final Map<String, Object> map = new HashMap<String, Object>();
+        map.put("string", "value");
+        map.put("long", 1L);
+        map.put("int", 2);
+        map.put("boolean", true);
+        map.put("date", date);
+        map.put("null", null);
+        map.put("list", new ArrayList<Object>(Arrays.asList("a", 1.5d, 2.5f)));
+
+        assertEquals(map, roundTrip(map));
+        assertNull(roundTrip(null));
+        assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) roundTrip(new byte[] {1, 2, 3}));
+    }
+
+    @Test
+    public void testContentlet() throws Exception {
+
+        final Contentlet contentlet = new Contentlet();
+        contentlet.setInode("c5a4e1a5-9a4e-4b6b-8b5d-0e1b8b9e4b01");
+        contentlet.setIdentifier("a0f3c2d4-2d1e-4c5a-9e3f-7b6a5d4c3b21");
+        contentlet.setLanguageId(1);
+        contentlet.setStringProperty("title", "dotCMS");
+        contentlet.setLowIndexPriority(true);
+
+        final Contentlet copy = (Contentlet) roundTrip(contentlet);
+
+        assertEquals(Contentlet.class, copy.getClass());
+        assertEquals(contentlet.getMap(), copy.getMap());
+        assertTrue(copy.isLowIndexPriority());
+    }
+
+    /**
+     * A contentlet of a structure is read into a contentlet with the layout
+     * of the structure.
+     */
+    @Test
+    public void testContentletKeepsTheLayout() throws Exception {
+
+        final ContentletLayout layout = new ContentletLayout(Arrays.asList(Contentlet.INODE_KEY,
+                Contentlet.STRUCTURE_INODE_KEY, "title"));
+        final MappedCacheSerializer serializer = new MappedCacheSerializer(structureInode -> {
+            final Contentlet contentlet = new Contentlet(new ContentletSlotMap(layout));
+            contentlet.setStructureInode(structureInode);
+            return contentlet;
+        });
+
+        final Contentlet contentlet = new Contentlet(new ContentletSlotMap(layout));
+        contentlet.setInode("c5a4e1a5-9a4e-4b6b-8b5d-0e1b8b9e4b01");
+        contentlet.setStructureInode("2a3e91e4-fbbf-4876-8c5b-2233c1739b05");
+        contentlet.setStringProperty("title", "dotCMS");
+        contentlet.setStringProperty("other", "value");
+
+        final Contentlet copy = (Contentlet) serializer.deserialize(serializer.serialize(contentlet));
+
+        assertTrue(copy.getMap() instanceof ContentletSlotMap);
+        assertSame(layout, ((ContentletSlotMap) copy.getMap()).getLayout());
+        assertEquals(contentlet.getMap(), copy.getMap());
+    }
+
+    @Test
+    public void testIdentifier() throws Exception {
+
+        final Identifier identifier = new Identifier();
+        identifier.setId("a0f3c2d4-2d1e-4c5a-9e3f-7b6a5d4c3b21");
+        identifier.setAssetName("index.html");
+        identifier.setAssetType("htmlpage");
+        identifier.setParentPath("/about-us/");
+        identifier.setHostId("48190c8c-42c4-46af-8d1a-0cd5db894797");
+        identifier.setSysPublishDate(new Date());
+
+        final Identifier copy = (Identifier) roundTrip(identifier);
+
+        assertEquals(identifier.getId(), copy.getId());
+        assertEquals(identifier.getURI(), copy.getURI());
+        assertEquals(identifier.getHostId(), copy.getHostId());
+        assertEquals(identifier.getAssetType(), copy.getAssetType());
+        assertEquals(identifier.getSysPublishDate(), copy.getSysPublishDate());
+        assertNull(copy.getSysExpireDate());
+    }
+
+    @Test
+    public void testPermissionList() throws Exception {
+
+        final Permission permission = new Permission(PermissionAPI.INDIVIDUAL_PERMISSION_TYPE, "inode", "role",
+                PermissionAPI.PERMISSION_READ | PermissionAPI.PERMISSION_EDIT, true);
+        permission.setId(10);
+
+        @SuppressWarnings("unchecked")
+        final List<Permission> copy = (List<Permission>) roundTrip(new ArrayList<Permission>(Arrays.asList(permission)));
+
+        assertEquals(1, copy.size());
+        assertEquals(permission, copy.get(0));
+        assertEquals(10, copy.get(0).getId());
+    }
+
+    @Test
+    public void testJavaSerializationFallback() throws Exception {
+
+        boolean failed = false;
+        try {
+            serializer.serialize(new Object());
+        } catch (java.io.NotSerializableException e) {
+            failed = true;
+        }
+        assertTrue(failed);
+        assertEquals("java", roundTrip(new StringBuilder("java")).toString());
+    }
+
+}
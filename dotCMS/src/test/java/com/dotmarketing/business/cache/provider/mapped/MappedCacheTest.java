@@ -0,0 +1,154 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link MappedCache}
+ */
+public class MappedCacheTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    private File directory;
+    private MappedCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("mappedcache").toFile();
+        cache = newCache(0);
+    }
+
+    @After
+    public void tearDown() {
+        cache.shutdown();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testPutGetRemove() throws Exception {
+
+        cache.put("Group1", "key1", "value1");
+        cache.put("group1", "key2", "value2");
+        cache.put("group2", "key1", "other");
+        cache.put("group1", "key2", "value2b");
+
+        assertEquals("value1", cache.get("group1", "key1"));
+        assertEquals("value2b", cache.get("GROUP1", "key2"));
+        assertEquals("other", cache.get("group2", "key1"));
+        assertNull(cache.get("group1", "key3"));
+
+        cache.remove("group1", "key1");
+        assertNull(cache.get("group1", "key1"));
+        assertEquals("value2b", cache.get("group1", "key2"));
+
+        final Set<String> keys = new HashSet<>();
+        keys.add("key2");
+        assertEquals(keys, cache.getKeys("group1"));
+    }
+
+    @Test
+    public void testGroupFlush() throws Exception {
+
+        cache.put("group1", "key1", "value1");
+        cache.put("group2", "key1", "value2");
+
+        cache.remove("group1");
+
+        assertNull(cache.get("group1", "key1"));
+        assertEquals("value2", cache.get("group2", "key1"));
+        assertTrue(cache.getKeys("group1").isEmpty());
+        assertEquals(1, cache.getGroups().size());
+
+        // entries put after the flush are found
+        cache.put("group1", "key1", "value3");
+        assertEquals("value3", cache.get("group1", "key1"));
+    }
+
+    @Test
+    public void testEvictsTheOldestSegment() throws Exception {
+
+        // 3 segments of 4KB hold less than the 64KB written, the first entries are evicted
+        final String padding = String.format("%256s", "");
+        for (int i = 0; i < 200; i++) {
+            cache.put("group", "key" + i, "value" + i + padding);
+        }
+
+        assertNull(cache.get("group", "key0"));
+        assertEquals("value199" + padding, cache.get("group", "key199"));
+        assertTrue(segmentFiles() <= 3);
+        assertEquals(cache.getKeys("group").size(), (int) (Integer) cache.getStats().get(0).get("disk"));
+    }
+
+    @Test
+    public void testDiscardsTheSegmentsOnRestart() throws Exception {
+
+        cache.put("group", "key1", "value1");
+        cache.shutdown();
+
+        cache = newCache(0);
+        assertNull(cache.get("group", "key1"));
+        assertEquals(1, segmentFiles());
+    }
+
+    @Test
+    public void testRecoversTheSegmentsWhenEnabled() throws Exception {
+
+        cache.put("group", "key1", "value1");
+        cache.put("group", "key2", "value2");
+        cache.remove("group", "key2");
+        cache.put("flushed", "key1", "value1");
+        cache.remove("flushed");
+        cache.shutdown();
+
+        cache = newCache(60000);
+        assertEquals("value1", cache.get("group", "key1"));
+        assertNull(cache.get("group", "key2"));
+        assertNull(cache.get("flushed", "key1"));
+    }
+
+    @Test
+    public void testRemoveAll() throws Exception {
+
+        cache.put("group", "key1", "value1");
+        cache.removeAll();
+
+        assertNull(cache.get("group", "key1"));
+        assertTrue(cache.getGroups().isEmpty());
+        cache.put("group", "key1", "value1");
+        assertEquals("value1", cache.get("group", "key1"));
+    }
+
+    private MappedCache newCache(final long recoverOnRestart) throws Exception {
+        final MappedCache mappedCache = new MappedCache(directory.getAbsolutePath(), SEGMENT_SIZE, 3, 16, recoverOnRestart);
+        mappedCache.init();
+        return mappedCache;
+    }
+
+    private int segmentFiles() {
+        int count = 0;
+        for (final File file : directory.listFiles()) {
+            if (MappedSegment.idOf(file) > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link MappedIndex}
+ */
+public class MappedIndexTest {
+
+    @Test
+    public void testPutFindRemove() {
+
+        final MappedIndex index = new MappedIndex(16, (groupId, generation) -> true);
+        final long hash1 = MappedIndex.hash("group", "key1");
+        final long hash2 = MappedIndex.hash("group", "key2");
+
+        assertEquals(-1, index.find(hash1));
+        index.put(hash1, MappedIndex.location(3, 100), 1, 7);
+        index.put(hash2, MappedIndex.location(4, 200), 1, 7);
+
+        final int slot = index.find(hash1);
+        assertTrue(slot >= 0);
+        assertEquals(3, MappedIndex.segmentId(index.location(slot)));
+        assertEquals(100, MappedIndex.offset(index.location(slot)));
+        assertEquals(1, index.groupId(slot));
+        assertEquals(7, index.generation(slot));
+
+        // replacing keeps a single entry
+        index.put(hash1, MappedIndex.location(5, 300), 1, 7);
+        assertEquals(2, index.size());
+        assertEquals(5, MappedIndex.segmentId(index.location(index.find(hash1))));
+
+        index.remove(index.find(hash1));
+        assertEquals(-1, index.find(hash1));
+        assertTrue(index.find(hash2) >= 0);
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testGrowsKeepingTheEntries() {
+
+        final MappedIndex index = new MappedIndex(16, (groupId, generation) -> true);
+        for (int i = 0; i < 1000; i++) {
+            index.put(MappedIndex.hash("group", "key" + i), MappedIndex.location(1, i), 0, 0);
+        }
+
+        assertEquals(1000, index.size());
+        assertTrue(index.capacity() >= 1000);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, MappedIndex.offset(index.location(index.find(MappedIndex.hash("group", "key" + i)))));
+        }
+    }
+
+    @Test
+    public void testRehashDropsStaleGenerations() {
+
+        final int[] generations = new int[] { 0, 0 };
+        final MappedIndex index = new MappedIndex(16, (groupId, generation) -> generation == generations[groupId]);
+        for (int i = 0; i < 8; i++) {
+            index.put(MappedIndex.hash("flushed", "key" + i), MappedIndex.location(1, i), 0, 0);
+            index.put(MappedIndex.hash("kept", "key" + i), MappedIndex.location(1, i), 1, 0);
+        }
+
+        // flushing the group only bumps its generation, the rehash purges its entries
+        generations[0]++;
+        for (int i = 8; i < 64; i++) {
+            index.put(MappedIndex.hash("kept", "key" + i), MappedIndex.location(1, i), 1, 0);
+        }
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals(-1, index.find(MappedIndex.hash("flushed", "key" + i)));
+        }
+        for (int i = 0; i < 64; i++) {
+            assertTrue(index.find(MappedIndex.hash("kept", "key" + i)) >= 0);
+        }
+        assertEquals(64, index.size());
+    }
+
+    @Test
+    public void testHashNeverReturnsTheReservedValues() {
+
+        for (int i = 0; i < 10000; i++) {
+            final long hash = MappedIndex.hash("group" + i, "key" + i);
+            assertTrue(hash != MappedIndex.EMPTY && hash != MappedIndex.DELETED);
+        }
+    }
+
+}
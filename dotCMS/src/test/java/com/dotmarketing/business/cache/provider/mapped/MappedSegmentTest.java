@@ -0,0 +1,132 @@
+package com.dotmarketing.business.cache.provider.mapped;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link MappedSegment}
+ */
+public class MappedSegmentTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("mappedsegment").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testAppendAndRead() throws Exception {
+
+        final MappedSegment segment = MappedSegment.create(directory, 1, 4096);
+        try {
+            final int first = segment.append(record("group", "key1", "value1"));
+            final int second = segment.append(record("group", "key2", "value2"));
+
+            assertEquals(0, first);
+            assertTrue(second > first);
+            assertTrue(segment.matches(second, bytes("group"), bytes("key2")));
+            assertFalse(segment.matches(second, bytes("group"), bytes("key1")));
+            assertFalse(segment.matches(second, bytes("other"), bytes("key2")));
+            assertArrayEquals(bytes("value1"), segment.value(first));
+            assertArrayEquals(bytes("key2"), segment.key(second));
+        } finally {
+            segment.delete();
+        }
+    }
+
+    @Test
+    public void testAppendReturnsMinusOneWhenFull() throws Exception {
+
+        final MappedSegment segment = MappedSegment.create(directory, 1, 128);
+        try {
+            final byte[] record = record("group", "key", new String(new byte[40], StandardCharsets.UTF_8));
+            assertEquals(0, segment.append(record));
+            assertEquals(-1, segment.append(record));
+        } finally {
+            segment.delete();
+        }
+    }
+
+    @Test
+    public void testRecoverStopsAtACorruptRecord() throws Exception {
+
+        final MappedSegment segment = MappedSegment.create(directory, 7, 4096);
+        segment.append(record("group", "key1", "value1"));
+        final int corrupt = segment.append(record("group", "key2", "value2"));
+        segment.append(record("group", "key3", "value3"));
+        segment.force();
+        segment.close();
+
+        final File file = new File(directory, MappedSegment.PREFIX + 7 + MappedSegment.SUFFIX);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(corrupt + MappedSegment.HEADER_SIZE + 8);
+            raf.write('X');
+        }
+
+        final MappedSegment reopened = MappedSegment.open(file);
+        try {
+            assertEquals(7, reopened.getId());
+            final List<Integer> offsets = new ArrayList<>();
+            reopened.recover((s, offset, record) -> offsets.add(offset));
+            assertEquals(1, offsets.size());
+
+            // appends resume over the corrupt record
+            assertEquals(corrupt, reopened.append(record("group", "key4", "value4")));
+        } finally {
+            reopened.delete();
+        }
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+
+        final MappedSegment segment = MappedSegment.create(directory, 2, 4096);
+        final File file = new File(directory, MappedSegment.PREFIX + 2 + MappedSegment.SUFFIX);
+        assertTrue(file.exists());
+        assertEquals(2, MappedSegment.idOf(file));
+        assertEquals(-1, MappedSegment.idOf(new File(directory, "other.dat")));
+
+        segment.delete();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testCanUnmap() {
+        // every supported JVM has a way to release the mappings, see MappedSegment#findUnmapper
+        assertTrue(MappedSegment.canUnmap());
+    }
+
+    private static byte[] record(final String group, final String key, final String value) {
+        return MappedSegment.record(MappedSegment.PUT, bytes(group), bytes(key), bytes(value));
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
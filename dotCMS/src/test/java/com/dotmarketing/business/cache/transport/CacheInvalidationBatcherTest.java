@@ -0,0 +1,192 @@
+package com.dotmarketing.business.cache.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.dotcms.cluster.bean.Server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link CacheInvalidationBatcher} and {@link CacheInvalidationBatch}
+ */
+public class CacheInvalidationBatcherTest {
+
+    @Test
+    public void testBatchRoundTrip() {
+
+        final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+        assertTrue(batch.addKey("key1", "group1"));
+        assertTrue(batch.addKey("key2", "group1"));
+        assertFalse(batch.addKey("key1", "group1"));
+        assertTrue(batch.addKey("key1", "group2"));
+        assertTrue(batch.addGroupFlush("group3"));
+        assertFalse(batch.addKey("key1", "group3"));
+
+        final byte[] frame = batch.toBytes();
+        assertTrue(CacheInvalidationBatch.isBatch(frame));
+        assertFalse(CacheInvalidationBatch.isBatch("key1:group1".getBytes()));
+
+        final CacheInvalidationBatch decoded = CacheInvalidationBatch.fromBytes(frame);
+        assertEquals(4, decoded.size());
+        assertEquals(batch.getKeysByGroup(), decoded.getKeysByGroup());
+        assertEquals(batch.getFlushedGroups(), decoded.getFlushedGroups());
+    }
+
+    @Test
+    public void testBatchRoundTripWithLongKeys() {
+
+        // longer than the 64KB limit of DataOutputStream.writeUTF
+        final StringBuilder longKey = new StringBuilder();
+        while ( longKey.length() < 70000 ) {
+            longKey.append("\u00e9key");
+        }
+
+        final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+        batch.addKey(longKey.toString(), "group1");
+        batch.addKey("key2", "group1");
+
+        final CacheInvalidationBatch decoded = CacheInvalidationBatch.fromBytes(batch.toBytes());
+        assertEquals(2, decoded.size());
+        assertEquals(batch.getKeysByGroup(), decoded.getKeysByGroup());
+    }
+
+    @Test
+    public void testReadsVersionOneFrames() throws IOException {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(CacheInvalidationBatch.MAGIC);
+        out.writeByte(1);
+        out.writeInt(1);
+        out.writeUTF("group2");
+        out.writeInt(1);
+        out.writeUTF("group1");
+        out.writeInt(1);
+        out.writeUTF("key1");
+        out.flush();
+
+        final CacheInvalidationBatch decoded = CacheInvalidationBatch.fromBytes(bytes.toByteArray());
+        assertEquals(2, decoded.size());
+        assertTrue(decoded.getFlushedGroups().contains("group2"));
+        assertTrue(decoded.getKeysByGroup().get("group1").contains("key1"));
+    }
+
+    @Test(expected = CacheTransportException.class)
+    public void testRejectsTruncatedFrames() {
+
+        final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+        batch.addKey("key1", "group1");
+        final byte[] frame = batch.toBytes();
+        CacheInvalidationBatch.fromBytes(Arrays.copyOf(frame, frame.length - 2));
+    }
+
+    @Test
+    public void testGroupFlushDiscardsPendingKeys() {
+
+        final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+        batch.addKey("key1", "group1");
+        batch.addKey("key2", "group1");
+        batch.addKey("key1", "group2");
+        batch.addGroupFlush("group1");
+
+        assertEquals(2, batch.size());
+        assertEquals(0, batch.getKeyCount("group1"));
+        assertTrue(batch.getFlushedGroups().contains("group1"));
+    }
+
+    @Test
+    public void testBatcherSendsOnceFull() {
+
+        final RecordingTransport transport = new RecordingTransport();
+        final CacheInvalidationBatcher batcher = new CacheInvalidationBatcher(60000, 3, 0);
+        batcher.setTransport(transport);
+
+        batcher.remove("key1", "group1");
+        batcher.remove("key1", "group1");
+        batcher.remove("key2", "group1");
+        assertTrue(transport.frames.isEmpty());
+
+        batcher.remove("key3", "group2");
+        assertEquals(1, transport.frames.size());
+
+        final CacheInvalidationBatch sent = CacheInvalidationBatch.fromBytes(transport.frames.get(0));
+        assertEquals(3, sent.size());
+
+        final Map<String, Object> stats = batcher.getStats();
+        assertEquals(1L, stats.get("batchesSent"));
+        assertEquals(3L, stats.get("invalidationsSent"));
+        assertEquals(1L, stats.get("duplicatesDropped"));
+    }
+
+    @Test
+    public void testBatcherCollapsesKeysIntoGroupFlush() {
+
+        final RecordingTransport transport = new RecordingTransport();
+        final CacheInvalidationBatcher batcher = new CacheInvalidationBatcher(60000, 1000, 2);
+        batcher.setTransport(transport);
+
+        batcher.remove("key1", "group1");
+        batcher.remove("key2", "group1");
+        batcher.remove("key3", "group1");
+        batcher.flush();
+
+        assertEquals(1, transport.frames.size());
+        final CacheInvalidationBatch sent = CacheInvalidationBatch.fromBytes(transport.frames.get(0));
+        assertEquals(1, sent.size());
+        assertTrue(sent.getFlushedGroups().contains("group1"));
+    }
+
+    @Test
+    public void testClearDropsPendingInvalidations() {
+
+        final CacheTransport transport = mock(CacheTransport.class);
+        final CacheInvalidationBatcher batcher = new CacheInvalidationBatcher(60000, 1000, 0);
+        batcher.setTransport(transport);
+
+        batcher.remove("key1", "group1");
+        batcher.clear();
+        batcher.flush();
+        verify(transport, never()).send(any(byte[].class));
+
+        batcher.flushGroup("group1");
+        batcher.shutdown();
+        verify(transport, times(1)).send(any(byte[].class));
+    }
+
+    private static class RecordingTransport implements CacheTransport {
+
+        final List<byte[]> frames = new ArrayList<byte[]>();
+
+        public void init ( Server localServer ) {}
+
+        public void send ( String message ) {}
+
+        public void send ( byte[] message ) {
+            frames.add(message);
+        }
+
+        public void testCluster () {}
+
+        public Map<String, Boolean> validateCacheInCluster ( String dateInMillis, int numberServers, int maxWaitSeconds ) {
+            return null;
+        }
+
+        public void shutdown () {}
+    }
+
+}
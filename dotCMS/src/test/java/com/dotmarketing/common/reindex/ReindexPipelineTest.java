@@ -0,0 +1,137 @@
+package com.dotmarketing.common.reindex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.client.Client;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.dotmarketing.common.business.journal.IndexJournal;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.portlets.contentlet.model.Contentlet;
+
+/**
+ * Test for {@link ReindexPipeline}
+ */
+public class ReindexPipelineTest {
+
+    private Client client;
+    private BulkRequestBuilder bulk;
+    private ReindexPipeline.RecordHandler handler;
+    private ReindexPipeline pipeline;
+
+    private final IndexJournal<String> record1 = new IndexJournal<String>(1, "identifier1", 0);
+    private final IndexJournal<String> record2 = new IndexJournal<String>(2, "identifier2", 0);
+    private final IndexJournal<String> record3 = new IndexJournal<String>(3, "identifier3", 0);
+    private final Contentlet contentlet1 = mock(Contentlet.class);
+    private final Contentlet contentlet2 = mock(Contentlet.class);
+
+    private Map<String, List<Contentlet>> contentlets;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        client = mock(Client.class);
+        bulk = mock(BulkRequestBuilder.class);
+        handler = mock(ReindexPipeline.RecordHandler.class);
+        when(client.prepareBulk()).thenReturn(bulk);
+        when(handler.bulkListener(anyListOf(IndexJournal.class))).thenReturn(mock(ActionListener.class));
+
+        // a single worker maps on the calling thread
+        pipeline = new ReindexPipeline(1, 1, () -> client);
+
+        contentlets = new HashMap<String, List<Contentlet>>();
+        contentlets.put("identifier1", Collections.singletonList(contentlet1));
+        contentlets.put("identifier2", Collections.singletonList(contentlet2));
+        // identifier3 has a version that could not be loaded
+        contentlets.put("identifier3", null);
+    }
+
+    /**
+     * The whole partition is mapped with one writeBatch call and sent in a
+     * single bulk request.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void mapsThePartitionInBatch() throws Exception {
+        final List<IndexJournal<String>> records = Arrays.asList(record1, record2);
+        when(handler.writeBatch(bulk, records, contentlets)).thenReturn(2);
+        when(bulk.numberOfActions()).thenReturn(2);
+
+        pipeline.index(records, contentlets, handler);
+
+        verify(handler).writeBatch(bulk, records, contentlets);
+        verify(handler, never()).write(any(BulkRequestBuilder.class), any(IndexJournal.class), any(Contentlet.class));
+        verify(handler, never()).recordsFailed(anyMapOf(IndexJournal.class, Throwable.class));
+        verify(handler).bulkListener(records);
+        verify(bulk).execute(any(ActionListener.class));
+        assertEquals(2L, pipeline.getStats().get("documentsMapped"));
+    }
+
+    /**
+     * When the batch can't be mapped the records are mapped one by one, the
+     * ones that fail are reported together once and the others are still sent.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void reportsTheFailedRecordsOncePerPartition() throws Exception {
+        final List<IndexJournal<String>> records = Arrays.asList(record1, record2, record3);
+        final DotDataException error = new DotDataException("unable to map");
+        when(handler.writeBatch(bulk, records, contentlets)).thenThrow(new DotDataException("batch failed"));
+        doThrow(error).when(handler).write(bulk, record2, contentlet2);
+        when(bulk.numberOfActions()).thenReturn(1);
+
+        pipeline.index(records, contentlets, handler);
+
+        final ArgumentCaptor<Map> failures = ArgumentCaptor.forClass(Map.class);
+        verify(handler, times(1)).recordsFailed(failures.capture());
+        final List<IndexJournal<String>> failed = new ArrayList<IndexJournal<String>>(failures.getValue().keySet());
+        assertEquals(Arrays.asList(record2, record3), failed);
+        assertSame(error, failures.getValue().get(record2));
+
+        verify(handler).write(bulk, record1, contentlet1);
+        verify(handler).bulkListener(Collections.singletonList(record1));
+        verify(bulk).execute(any(ActionListener.class));
+        assertEquals(2L, pipeline.getStats().get("recordsFailed"));
+    }
+
+    /**
+     * Records that produce no bulk actions are processed without a request to
+     * ES.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void doesNotSubmitEmptyBulks() throws Exception {
+        final List<IndexJournal<String>> records = Arrays.asList(record1, record2);
+        when(handler.writeBatch(bulk, records, contentlets)).thenReturn(0);
+        when(bulk.numberOfActions()).thenReturn(0);
+
+        pipeline.index(records, contentlets, handler);
+
+        verify(handler).recordsProcessed(records);
+        verify(bulk, never()).execute(any(ActionListener.class));
+        verify(handler, never()).bulkListener(eq(records));
+    }
+
+}
@@ -0,0 +1,244 @@
+package com.dotmarketing.factories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.dotmarketing.beans.Clickstream;
+import com.dotmarketing.beans.Clickstream404;
+import com.dotmarketing.beans.ClickstreamRequest;
+import com.dotmarketing.exception.DotDataException;
+import com.dotmarketing.factories.ClickstreamRecorder.Click;
+import com.dotmarketing.factories.ClickstreamRecorder.SessionClicks;
+
+/**
+ * Test for {@link ClickstreamRecorder}
+ */
+public class ClickstreamRecorderTest {
+
+    private final RecordingStore store = new RecordingStore();
+    private final ClickstreamRecorder.Writer writer = new ClickstreamRecorder.Writer(store, 500, 2);
+
+    @Test
+    public void savesTheClickstreamOnceItHasEnoughRequests() {
+        final SessionClicks session = session("session1");
+        final ClickstreamRequest first = request(session);
+        final ClickstreamRequest second = request(session);
+
+        writer.writeToDatabase(Arrays.asList(click(session, first)));
+        assertTrue(store.clickstreams.isEmpty());
+        assertTrue(store.requests.isEmpty());
+
+        writer.writeToDatabase(Arrays.asList(click(session, second)));
+        assertEquals(1, store.clickstreams.size());
+        assertEquals(Arrays.asList(first, second), store.requests);
+        assertEquals(store.clickstreams.get(0).getClickstreamId(), first.getClickstreamId());
+        assertEquals(store.clickstreams.get(0).getClickstreamId(), second.getClickstreamId());
+
+        final ClickstreamRequest third = request(session);
+        writer.writeToDatabase(Arrays.asList(click(session, third)));
+        assertEquals(1, store.clickstreams.size());
+        assertEquals(first.getClickstreamId(), third.getClickstreamId());
+        assertEquals(1, store.updates);
+    }
+
+    /**
+     * A click that can not be saved is dropped, the other clicks of the batch
+     * are saved.
+     */
+    @Test
+    public void isolatesTheClicksThatCanNotBeSaved() {
+        final SessionClicks session1 = session("session1");
+        final SessionClicks session2 = session("session2");
+        final ClickstreamRequest request1 = request(session1);
+        final ClickstreamRequest request2 = request(session1);
+        final ClickstreamRequest request3 = request(session2);
+        final ClickstreamRequest request4 = request(session2);
+        final Clickstream404 notFound = new Clickstream404();
+        store.failing.add(notFound);
+
+        writer.writeToDatabase(Arrays.asList(click(session1, request1), click(session1, request2),
+                new Click(ClickstreamRecorder.NOT_FOUND, null, null, notFound), click(session2, request3), click(session2, request4)));
+
+        assertEquals(2, store.clickstreams.size());
+        assertEquals(Arrays.asList(request1, request2, request3, request4), store.requests);
+        assertTrue(store.notFound.isEmpty());
+        assertEquals(2, store.rollbacks);
+    }
+
+    /**
+     * A rolled back transaction does not leave the session with the id of a
+     * clickstream that was not saved.
+     */
+    @Test
+    public void restoresTheSessionStateOnRollback() {
+        final SessionClicks session = session("session1");
+        final ClickstreamRequest first = request(session);
+        final ClickstreamRequest bad = request(session);
+        store.failing.add(bad);
+
+        writer.writeToDatabase(Arrays.asList(click(session, first), click(session, bad)));
+        assertTrue(store.clickstreams.isEmpty());
+        assertTrue(store.requests.isEmpty());
+
+        final ClickstreamRequest third = request(session);
+        writer.writeToDatabase(Arrays.asList(click(session, third)));
+
+        assertEquals(1, store.clickstreams.size());
+        final long clickstreamId = store.clickstreams.get(0).getClickstreamId();
+        assertEquals(Arrays.asList(first, third), store.requests);
+        assertEquals(clickstreamId, first.getClickstreamId());
+        assertEquals(clickstreamId, third.getClickstreamId());
+    }
+
+    /**
+     * The user is given to the older clickstreams again when the transaction
+     * that did it is rolled back.
+     */
+    @Test
+    public void assignsTheUserAgainAfterARollback() {
+        final SessionClicks session = session("session1");
+        writer.writeToDatabase(Arrays.asList(click(session, request(session)), click(session, request(session))));
+        assertTrue(store.assignedUsers.isEmpty());
+
+        session.userId = "user1";
+        store.failedCommits = 1;
+        writer.writeToDatabase(Arrays.asList(click(session, request(session))));
+        assertTrue(store.assignedUsers.isEmpty());
+
+        writer.writeToDatabase(Arrays.asList(click(session, request(session))));
+        assertEquals(Arrays.asList("user1"), store.assignedUsers);
+    }
+
+    @Test
+    public void forgetsTheEndedSessions() {
+        final SessionClicks session = ClickstreamRecorder.startSession("session-ended", "host1");
+        assertNotNull(ClickstreamRecorder.getSession("session-ended"));
+
+        writer.writeToDatabase(Arrays.asList(new Click(ClickstreamRecorder.END, session, null, null)));
+
+        assertNull(ClickstreamRecorder.getSession("session-ended"));
+    }
+
+    private SessionClicks session(final String sessionId) {
+        final SessionClicks session = new SessionClicks(sessionId, "host1");
+        session.cookieId = "cookie-" + sessionId;
+        session.userAgent = "Mozilla/5.0";
+        return session;
+    }
+
+    private ClickstreamRequest request(final SessionClicks session) {
+        final ClickstreamRequest request = new ClickstreamRequest();
+        request.setHostId(session.hostId);
+        request.setTimestamp(new Date());
+        return request;
+    }
+
+    private Click click(final SessionClicks session, final ClickstreamRequest request) {
+        return new Click(ClickstreamRecorder.REQUEST, session, request, null);
+    }
+
+    /**
+     * Keeps what each transaction saves, and only what is committed.
+     */
+    private static class RecordingStore implements ClickstreamRecorder.Store {
+
+        final List<Clickstream> clickstreams = new ArrayList<Clickstream>();
+        final List<ClickstreamRequest> requests = new ArrayList<ClickstreamRequest>();
+        final List<Clickstream404> notFound = new ArrayList<Clickstream404>();
+        final List<String> assignedUsers = new ArrayList<String>();
+        final List<Object> failing = new ArrayList<Object>();
+        int updates;
+        int rollbacks;
+        int failedCommits;
+
+        private final List<Clickstream> pendingClickstreams = new ArrayList<Clickstream>();
+        private final List<ClickstreamRequest> pendingRequests = new ArrayList<ClickstreamRequest>();
+        private final List<Clickstream404> pendingNotFound = new ArrayList<Clickstream404>();
+        private final List<String> pendingUsers = new ArrayList<String>();
+        private int pendingUpdates;
+        private long lastId;
+
+        @Override
+        public void startTransaction() {
+            discard();
+        }
+
+        @Override
+        public void commitTransaction() throws DotDataException {
+            if (failedCommits > 0) {
+                failedCommits--;
+                throw new DotDataException("commit failed");
+            }
+            clickstreams.addAll(pendingClickstreams);
+            requests.addAll(pendingRequests);
+            notFound.addAll(pendingNotFound);
+            assignedUsers.addAll(pendingUsers);
+            updates += pendingUpdates;
+            discard();
+        }
+
+        @Override
+        public void rollbackTransaction() {
+            rollbacks++;
+            discard();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public long save(final Clickstream clickstream) {
+            clickstream.setClickstreamId(++lastId);
+            pendingClickstreams.add(clickstream);
+            return clickstream.getClickstreamId();
+        }
+
+        @Override
+        public void save(final ClickstreamRequest request) throws DotDataException {
+            fail(request);
+            pendingRequests.add(request);
+        }
+
+        @Override
+        public void save(final Clickstream404 notFound) throws DotDataException {
+            fail(notFound);
+            pendingNotFound.add(notFound);
+        }
+
+        @Override
+        public void update(final long clickstreamId, final Date lastRequest, final String lastPageId, final int numberOfRequests,
+                final String userId) {
+            pendingUpdates++;
+        }
+
+        @Override
+        public void assignUser(final String userId, final String cookieId) {
+            pendingUsers.add(userId);
+        }
+
+        private void fail(final Object record) throws DotDataException {
+            if (failing.contains(record)) {
+                throw new DotDataException("unable to save " + record);
+            }
+        }
+
+        private void discard() {
+            pendingClickstreams.clear();
+            pendingRequests.clear();
+            pendingNotFound.clear();
+            pendingUsers.clear();
+            pendingUpdates = 0;
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.dotmarketing.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dotmarketing.business.DotCacheAdministrator;
+import com.dotmarketing.filters.CmsUrlResolution.Type;
+
+/**
+ * Test for {@link CmsUrlCacheImpl}
+ */
+public class CmsUrlCacheImplTest {
+
+    private final Map<String, Object> store = new ConcurrentHashMap<String, Object>();
+    private CmsUrlCacheImpl cache;
+
+    @Before
+    public void setUp() throws Exception {
+        DotCacheAdministrator administrator = mock(DotCacheAdministrator.class);
+        doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            store.put(args[2] + ":" + args[0], args[1]);
+            return null;
+        }).when(administrator).put(anyString(), any(), anyString());
+        doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            store.remove(args[1] + ":" + args[0]);
+            return null;
+        }).when(administrator).remove(anyString(), anyString());
+        doAnswer(invocation -> {
+            String prefix = invocation.getArguments()[0] + ":";
+            store.keySet().removeIf(key -> key.startsWith(prefix));
+            return null;
+        }).when(administrator).flushGroup(anyString());
+        when(administrator.get(anyString(), anyString())).thenAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            return store.get(args[1] + ":" + args[0]);
+        });
+
+        cache = new CmsUrlCacheImpl(administrator);
+    }
+
+    @Test
+    public void returnsTheResolutionOfTheHost() {
+        CmsUrlResolution page = resolution(Type.PAGE, "identifier1");
+        CmsUrlResolution notFound = resolution(Type.NOTHING_IN_THE_CMS, null);
+
+        assertNull(cache.get("host1", "/about-us/index"));
+        cache.put("host1", "/about-us/index", page);
+        cache.put("host1", "/missing", notFound);
+
+        assertSame(page, cache.get("host1", "/about-us/index"));
+        assertSame(notFound, cache.get("host1", "/missing"));
+        assertNull(cache.get("host2", "/about-us/index"));
+    }
+
+    @Test
+    public void removesTheUriWithAndWithoutTrailingSlash() {
+        CmsUrlResolution folder = resolution(Type.FOLDER, "identifier1");
+        CmsUrlResolution other = resolution(Type.PAGE, "identifier2");
+        cache.put("host1", "/about-us", folder);
+        cache.put("host1", "/about-us/", folder);
+        cache.put("host1", "/about-us/index", other);
+        cache.put("host2", "/about-us", folder);
+
+        cache.remove("host1", "/about-us/");
+
+        assertNull(cache.get("host1", "/about-us"));
+        assertNull(cache.get("host1", "/about-us/"));
+        assertSame(other, cache.get("host1", "/about-us/index"));
+        assertSame(folder, cache.get("host2", "/about-us"));
+    }
+
+    @Test
+    public void removesTheRootAndIgnoresEmptyArguments() {
+        CmsUrlResolution root = resolution(Type.FOLDER, "SYSTEM_FOLDER");
+        cache.put("host1", "/", root);
+
+        cache.remove("host1", "/");
+        assertNull(cache.get("host1", "/"));
+
+        // removals without a host or uri are ignored
+        cache.put("host1", "/", root);
+        cache.remove(null, "/");
+        cache.remove("host1", "");
+        assertSame(root, cache.get("host1", "/"));
+    }
+
+    @Test
+    public void clearCacheDropsEveryHost() {
+        cache.put("host1", "/page", resolution(Type.PAGE, "identifier1"));
+        cache.put("host2", "/page", resolution(Type.PAGE, "identifier2"));
+
+        cache.clearCache();
+
+        assertNull(cache.get("host1", "/page"));
+        assertNull(cache.get("host2", "/page"));
+        assertEquals(0, store.size());
+    }
+
+    private static CmsUrlResolution resolution(Type type, String identifier) {
+        return new CmsUrlResolution(type, identifier, false, Collections.singleton(1L), Collections.singleton(1L), null);
+    }
+
+}
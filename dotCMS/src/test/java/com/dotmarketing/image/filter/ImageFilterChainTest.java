@@ -0,0 +1,106 @@
+package com.dotmarketing.image.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * ImageFilterChain and ImageRenditionCache unit test.
+ */
+public class ImageFilterChainTest {
+
+    @Test
+    public void subsamplesWhenTheChainStartsByScalingDown() {
+
+        final Map<String, String[]> parameters = new HashMap<String, String[]>();
+        parameters.put("resize_w", new String[] { "100" });
+
+        final ImageFilterChain resize = new ImageFilterChain(Arrays.<ImageFilter> asList(new PngImageFilter(),
+                new GrayscaleImageFilter(), new ResizeImageFilter()), true, null);
+        assertTrue(resize.isFused());
+        // 4000x3000 to 100x75, decoded at 200x150
+        assertEquals(20, resize.getSubsampling(4000, 3000, parameters));
+        assertEquals(1, resize.getSubsampling(300, 225, parameters));
+
+        final ImageFilterChain crop = new ImageFilterChain(Arrays.<ImageFilter> asList(new PngImageFilter(),
+                new CropImageFilter(), new ResizeImageFilter()), true, null);
+        assertEquals(1, crop.getSubsampling(4000, 3000, parameters));
+    }
+
+    /**
+     * The rendition of a chain with a repeated filter is not the one of the
+     * chain that stops at its first occurrence
+     */
+    @Test
+    public void theRenditionNameIncludesTheWholeChain() throws IOException {
+
+        final Map<String, String[]> parameters = new HashMap<String, String[]>();
+        parameters.put("resize_w", new String[] { "100" });
+        parameters.put("crop_w", new String[] { "50" });
+        parameters.put("crop_h", new String[] { "50" });
+        final File source = newFile(40);
+
+        final ImageFilterChain resize = new ImageFilterChain(Arrays.<ImageFilter> asList(new PngImageFilter(),
+                new ResizeImageFilter()), true, null);
+        final ImageFilterChain repeated = new ImageFilterChain(Arrays.<ImageFilter> asList(new PngImageFilter(),
+                new ResizeImageFilter(), new CropImageFilter(), new ResizeImageFilter()), true, null);
+
+        final File resizeFile = resize.getResultFile(source, parameters);
+        final File repeatedFile = repeated.getResultFile(source, parameters);
+        assertEquals(resizeFile, resize.getResultFile(source, parameters));
+        assertEquals(source.getParentFile(), repeatedFile.getParentFile());
+        assertTrue(repeatedFile.getName().startsWith("dotGenerated_"));
+        assertNotEquals(resizeFile, repeatedFile);
+
+        // and the parameters of every filter are part of it
+        parameters.put("crop_h", new String[] { "60" });
+        assertEquals(resizeFile, resize.getResultFile(source, parameters));
+        assertNotEquals(repeatedFile, repeated.getResultFile(source, parameters));
+
+        source.delete();
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedFiles() throws IOException {
+
+        final File a = newFile(40);
+        final File b = newFile(40);
+        final File c = newFile(40);
+        final ImageRenditionCache cache = new ImageRenditionCache(null, 100);
+
+        cache.added(a);
+        cache.added(b);
+        cache.touch(a);
+        cache.added(c);
+
+        assertTrue(a.exists());
+        assertFalse(b.exists());
+        assertTrue(c.exists());
+        assertEquals(80, cache.size());
+
+        a.delete();
+        c.delete();
+    }
+
+    private static File newFile(final int length) throws IOException {
+
+        final File file = File.createTempFile("dotGenerated_", ".png");
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[length]);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,88 @@
+package com.dotmarketing.portlets.categories.business;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link CategoryGraph}
+ */
+public class CategoryGraphTest {
+
+    /**
+     * root -> a -> a1, a2 ; root -> b -> a2
+     */
+    private CategoryGraph graph () {
+
+        final List<String[]> edges = new ArrayList<String[]>();
+        edges.add(new String[] { "root", "a" });
+        edges.add(new String[] { "root", "b" });
+        edges.add(new String[] { "a", "a1" });
+        edges.add(new String[] { "a", "a2" });
+        edges.add(new String[] { "b", "a2" });
+        return CategoryGraph.build(Arrays.asList("root", "a", "b", "a1", "a2"),
+                Arrays.asList("rootVar", "aVar", "bVar", "a1Var", "a2Var"), edges);
+    }
+
+    @Test
+    public void testClosure () {
+
+        final CategoryGraph graph = graph();
+
+        assertEquals(Arrays.asList("a", "b", "a1", "a2"), graph.getDescendantIds("root"));
+        assertEquals(Arrays.asList("a1", "a2"), graph.getChildIds("a"));
+        assertTrue(graph.isDescendant("a2", "root"));
+        assertTrue(graph.isDescendant("a2", "b"));
+        assertFalse(graph.isDescendant("a1", "b"));
+        assertFalse(graph.isDescendant("root", "a"));
+        assertEquals(3, graph.getAncestorIds("a2").size());
+        assertTrue(graph.getDescendantVarNames("a").containsAll(Arrays.asList("a1Var", "a2Var")));
+        assertTrue(graph.getDescendantIds("unknown").isEmpty());
+    }
+
+    @Test
+    public void testEdgeChangesKeepTheOriginalGraph () {
+
+        final CategoryGraph graph = graph();
+        final CategoryGraph changed = graph.withoutEdge("root", "a").withEdge("b", "a1");
+
+        assertFalse(changed.isDescendant("a", "root"));
+        assertTrue(changed.isDescendant("a1", "root"));
+        assertTrue(changed.isDescendant("a1", "b"));
+        assertEquals(Arrays.asList("b", "a2", "a1"), changed.getDescendantIds("root"));
+
+        assertTrue(graph.isDescendant("a", "root"));
+        assertFalse(graph.isDescendant("a1", "b"));
+    }
+
+    @Test
+    public void testNodeChanges () {
+
+        final CategoryGraph graph = graph().withNode("c", "cVar").withEdge("a1", "c");
+
+        assertTrue(graph.isDescendant("c", "root"));
+        assertTrue(graph.getDescendantVarNames("a").contains("cVar"));
+        assertEquals("newVar", graph.withNode("c", "newVar").getVelocityVarName("c"));
+
+        final CategoryGraph removed = graph.withoutNode("a1");
+        assertFalse(removed.contains("a1"));
+        assertFalse(removed.isDescendant("c", "root"));
+        assertEquals(Arrays.asList("a2"), removed.getDescendantIds("a"));
+    }
+
+    @Test
+    public void testReplaceRelations () {
+
+        final CategoryGraph graph = graph().withChildren("root", Collections.singletonList("a2")).withParents("a1", Arrays.asList("b"));
+
+        assertEquals(Arrays.asList("a2"), graph.getDescendantIds("root"));
+        assertEquals(Arrays.asList("a2", "a1"), graph.getDescendantIds("b"));
+        assertEquals(Arrays.asList("a2"), graph.getDescendantIds("a"));
+        assertFalse(graph.isDescendant("a1", "a"));
+    }
+}
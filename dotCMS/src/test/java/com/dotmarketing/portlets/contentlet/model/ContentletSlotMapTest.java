@@ -0,0 +1,125 @@
+package com.dotmarketing.portlets.contentlet.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * ContentletSlotMap unit test.
+ */
+public class ContentletSlotMapTest {
+
+    private final ContentletLayout layout = new ContentletLayout(Arrays.asList("inode", "title", "body", "title"));
+
+    @Test
+    public void behavesAsAMap() {
+
+        final ContentletSlotMap map = new ContentletSlotMap(layout);
+        assertEquals(3, layout.size());
+        assertTrue(map.isEmpty());
+
+        map.put("inode", "1234");
+        map.put("body", "text");
+        map.put("wfActionId", "action");
+        assertEquals(3, map.size());
+        assertEquals("1234", map.get("inode"));
+        assertEquals("action", map.get("wfActionId"));
+        assertNull(map.get("title"));
+        assertFalse(map.containsKey("title"));
+
+        final Map<String, Object> expected = new HashMap<String, Object>();
+        expected.put("inode", "1234");
+        expected.put("body", "text");
+        expected.put("wfActionId", "action");
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(expected, new HashMap<String, Object>(map));
+    }
+
+    @Test
+    public void nullValuesRemoveTheProperty() {
+
+        final ContentletSlotMap map = new ContentletSlotMap(layout);
+        map.put("body", "text");
+        map.put("other", 1L);
+
+        assertEquals("text", map.put("body", null));
+        assertEquals(1L, map.put("other", null));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void iteratorRemovesEntries() {
+
+        final ContentletSlotMap map = new ContentletSlotMap(layout);
+        map.put("inode", "1234");
+        map.put("title", "a title");
+        map.put("other", "value");
+
+        final Iterator<Map.Entry<String, Object>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Object> entry = iterator.next();
+            if (entry.getKey().equals("title")) {
+                iterator.remove();
+            } else if (entry.getKey().equals("other")) {
+                entry.setValue("changed");
+            }
+        }
+        assertEquals(2, map.size());
+        assertNull(map.get("title"));
+        assertEquals("changed", map.get("other"));
+        assertEquals("[inode, other]", map.keySet().toString());
+    }
+
+    /**
+     * The maps read from a cache that serializes them share the layout of
+     * their structure
+     */
+    @Test
+    public void deserializedMapsShareTheLayout() throws Exception {
+
+        final ContentletLayout structureLayout = new ContentletLayout(UUID.randomUUID().toString(),
+                Arrays.asList("inode", "title", "body"));
+        final ContentletSlotMap map = new ContentletSlotMap(structureLayout);
+        map.put("inode", "1234");
+        map.put("title", "a title");
+        map.put("other", "value");
+
+        final ContentletSlotMap first = copy(map);
+        final ContentletSlotMap second = copy(map);
+
+        assertEquals(map, first);
+        assertEquals(map, second);
+        assertNotSame(structureLayout, first.getLayout());
+        assertSame(first.getLayout(), second.getLayout());
+    }
+
+    private static ContentletSlotMap copy(final ContentletSlotMap map) throws Exception {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(map);
+        out.close();
+        final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        try {
+            return (ContentletSlotMap) in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.dotmarketing.portlets.rules.util;
+
+import com.dotcms.repackage.com.google.common.collect.Lists;
+import com.dotmarketing.portlets.rules.model.LogicalOperator;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static com.dotmarketing.portlets.rules.model.LogicalOperator.AND;
+import static com.dotmarketing.portlets.rules.model.LogicalOperator.OR;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class ConditionTreeTest {
+
+    private final List<String> evaluated = Lists.newArrayList();
+    private final List<LogicalOperator> operators = Lists.newArrayList();
+    private final List<ConditionTree> nodes = Lists.newArrayList();
+
+    @Test
+    public void testEmptyTreeIsTrue() throws Exception {
+        assertThat(evaluate(), is(true));
+    }
+
+    @Test
+    public void testAndBindsTighterThanOr() throws Exception {
+        // A || B && C ==> true || ( false && true )
+        withNode(AND, "A", true, 1);
+        withNode(OR, "B", false, 1);
+        withNode(AND, "C", true, 1);
+        assertThat(evaluate(), is(true));
+    }
+
+    @Test
+    public void testOrOfFalseTermsIsFalse() throws Exception {
+        // A && B || C ==> ( true && false ) || false
+        withNode(AND, "A", true, 1);
+        withNode(AND, "B", false, 1);
+        withNode(OR, "C", false, 1);
+        assertThat(evaluate(), is(false));
+    }
+
+    @Test
+    public void testCheaperConditionsAreEvaluatedFirst() throws Exception {
+        withNode(AND, "expensive", true, 10);
+        withNode(AND, "cheap", true, 1);
+        withNode(AND, "medium", true, 5);
+        assertThat(evaluate(), is(true));
+        assertThat(evaluated, contains("cheap", "medium", "expensive"));
+    }
+
+    @Test
+    public void testAndShortCircuitsOnCheapFalseCondition() throws Exception {
+        withNode(AND, "expensive", true, 10);
+        withNode(AND, "cheap", false, 1);
+        assertThat(evaluate(), is(false));
+        assertThat(evaluated, contains("cheap"));
+    }
+
+    @Test
+    public void testOrShortCircuitsOnCheapTrueTerm() throws Exception {
+        withNode(AND, "expensive", true, 10);
+        withNode(OR, "cheap", true, 1);
+        assertThat(evaluate(), is(true));
+        assertThat(evaluated, contains("cheap"));
+    }
+
+    private void withNode(LogicalOperator operator, String name, boolean result, int cost) {
+        operators.add(operator);
+        nodes.add(new ConditionTree() {
+            @Override
+            public boolean evaluate(HttpServletRequest req, HttpServletResponse res) {
+                evaluated.add(name);
+                return result;
+            }
+
+            @Override
+            public int getCost() {
+                return cost;
+            }
+        });
+    }
+
+    private boolean evaluate() {
+        return ConditionTree.combine(operators, nodes).evaluate(null, null);
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.dotmarketing.quartz.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * PublishExpireQueue unit test.
+ */
+public class PublishExpireQueueTest {
+
+    @Test
+    public void pollsDueEntriesInOrder() {
+
+        final PublishExpireQueue queue = new PublishExpireQueue();
+        assertTrue(queue.schedule("a", new Date(3000), new Date(9000)));
+        assertTrue(queue.schedule("b", new Date(1000), null));
+        assertFalse(queue.schedule("c", null, new Date(3000)));
+        assertEquals(1000, queue.nextTime());
+
+        final List<PublishExpireQueue.Entry> due = queue.pollDue(3000, 10);
+        assertEquals(3, due.size());
+        assertEquals("b", due.get(0).getIdentifier());
+        // expiring goes before publishing at the same instant
+        assertEquals("c", due.get(1).getIdentifier());
+        assertFalse(due.get(1).isPublish());
+        assertEquals("a", due.get(2).getIdentifier());
+        assertEquals(9000, queue.nextTime());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void reschedulingReplacesTheInstants() {
+
+        final PublishExpireQueue queue = new PublishExpireQueue();
+        queue.schedule("a", new Date(1000), new Date(2000));
+        queue.schedule("a", new Date(5000), null);
+        assertEquals(1, queue.size());
+        assertTrue(queue.pollDue(4000, 10).isEmpty());
+        assertEquals(1, queue.pollDue(5000, 10).size());
+
+        queue.schedule("b", new Date(1000), null);
+        queue.unschedule("b");
+        assertEquals(Long.MAX_VALUE, queue.nextTime());
+    }
+
+    @Test
+    public void keepsOnlyTheHorizon() {
+
+        final PublishExpireQueue queue = new PublishExpireQueue();
+        queue.schedule("a", new Date(1000), new Date(10000));
+        queue.setHorizon(5000);
+        assertEquals(1, queue.size());
+        queue.schedule("b", new Date(6000), null);
+        assertEquals(1, queue.size());
+        assertEquals(1, queue.pollDue(20000, 1).size());
+        assertEquals(0, queue.size());
+    }
+}
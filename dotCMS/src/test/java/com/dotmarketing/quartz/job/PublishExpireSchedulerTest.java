@@ -0,0 +1,184 @@
+package com.dotmarketing.quartz.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * PublishExpireScheduler unit test.
+ */
+public class PublishExpireSchedulerTest {
+
+    private static final long RESYNC = 60000;
+    private static final long CATCHUP = 3600000;
+    private static final long HORIZON = 3600000;
+    private static final long SWEEP = 900000;
+    private static final long NOW = 1000000000000L;
+
+    private final RecordingStore store = new RecordingStore();
+    private final PublishExpireScheduler scheduler = new PublishExpireScheduler(store, RESYNC, CATCHUP, HORIZON, SWEEP);
+
+    @Test
+    public void firesTheDatesAsTheyAreReached() throws Exception {
+
+        store.dates.add(row("a", NOW + 5000, null));
+        scheduler.sync(NOW);
+
+        scheduler.fireDue(NOW);
+        assertTrue(store.fired.isEmpty());
+
+        scheduler.add("b", null, new Date(NOW + 2000));
+        scheduler.fireDue(NOW + 5000);
+        assertEquals(2, store.fired.size());
+        assertEquals("expire b", store.fired.get(0));
+        assertEquals("publish a", store.fired.get(1));
+    }
+
+    @Test
+    public void doesNotFireAgainOnTheResync() throws Exception {
+
+        store.dates.add(row("a", NOW - 1000, null));
+        scheduler.sync(NOW);
+        scheduler.fireDue(NOW);
+
+        scheduler.sync(NOW + RESYNC);
+        scheduler.fireDue(NOW + RESYNC);
+
+        assertEquals(1, store.fired.size());
+    }
+
+    /**
+     * The content that should have been published before the catch up window,
+     * while no server was running, is still published at startup.
+     */
+    @Test
+    public void firesTheOverdueContentAtStartup() throws Exception {
+
+        store.overdue.add(row("old", NOW - 2 * 24 * 3600000L, null));
+        scheduler.sync(NOW);
+        scheduler.fireDue(NOW);
+
+        assertEquals(1, store.fired.size());
+        assertEquals("publish old", store.fired.get(0));
+    }
+
+    /**
+     * The content that is still overdue, because it failed or its dates were
+     * changed in a way the resync can't see, is picked by the next sweep.
+     */
+    @Test
+    public void sweepsTheOverdueContentPeriodically() throws Exception {
+
+        scheduler.sync(NOW);
+        assertEquals(1, store.sweeps);
+
+        store.overdue.add(row("failed", null, NOW - 2 * CATCHUP));
+        scheduler.sync(NOW + RESYNC);
+        scheduler.fireDue(NOW + RESYNC);
+        assertEquals(1, store.sweeps);
+        assertTrue(store.fired.isEmpty());
+
+        scheduler.sync(NOW + SWEEP);
+        scheduler.fireDue(NOW + SWEEP);
+        assertEquals(2, store.sweeps);
+        assertEquals(1, store.fired.size());
+        assertEquals("expire failed", store.fired.get(0));
+    }
+
+    @Test
+    public void sweepsAgainWhenTheSweepWasFull() throws Exception {
+
+        for (int i = 0; i < 10001; i++) {
+            store.overdue.add(row("id" + i, NOW - 2 * CATCHUP, null));
+        }
+        scheduler.sync(NOW);
+        scheduler.sync(NOW + RESYNC);
+
+        assertEquals(2, store.sweeps);
+    }
+
+    /**
+     * Only the leader fires the dates, and it sweeps once it becomes the
+     * leader.
+     */
+    @Test
+    public void onlyTheLeaderFires() throws Exception {
+
+        store.leader = false;
+        store.dates.add(row("a", NOW - 1000, null));
+        store.overdue.add(row("old", NOW - 2 * CATCHUP, null));
+        scheduler.sync(NOW);
+        scheduler.add("b", new Date(NOW - 1000), null);
+        scheduler.fireDue(NOW);
+        assertTrue(store.fired.isEmpty());
+        assertEquals(0, store.sweeps);
+
+        store.leader = true;
+        scheduler.sync(NOW + RESYNC);
+        scheduler.fireDue(NOW + RESYNC);
+        assertEquals(1, store.sweeps);
+        assertEquals(2, store.fired.size());
+    }
+
+    private Map<String, Object> row(final String identifier, final Long publishDate, final Long expireDate) {
+
+        final Map<String, Object> row = new HashMap<String, Object>();
+        row.put("id", identifier);
+        row.put("syspublish_date", publishDate == null ? null : new Date(publishDate));
+        row.put("sysexpire_date", expireDate == null ? null : new Date(expireDate));
+        return row;
+    }
+
+    private static class RecordingStore implements PublishExpireScheduler.Store {
+
+        final List<Map<String, Object>> dates = new ArrayList<Map<String, Object>>();
+        final List<Map<String, Object>> overdue = new ArrayList<Map<String, Object>>();
+        final List<String> fired = new ArrayList<String>();
+        boolean leader = true;
+        int sweeps;
+
+        @Override
+        public List<Map<String, Object>> findDates(final Date from, final Date to) {
+
+            final List<Map<String, Object>> found = new ArrayList<Map<String, Object>>();
+            for (final Map<String, Object> row : dates) {
+                if (in((Date) row.get("syspublish_date"), from, to) || in((Date) row.get("sysexpire_date"), from, to)) {
+                    found.add(row);
+                }
+            }
+            return found;
+        }
+
+        private boolean in(final Date date, final Date from, final Date to) {
+            return date != null && date.after(from) && !date.after(to);
+        }
+
+        @Override
+        public List<Map<String, Object>> findOverdue(final Date now, final int limit) {
+
+            sweeps++;
+            return new ArrayList<Map<String, Object>>(overdue.subList(0, Math.min(limit, overdue.size())));
+        }
+
+        @Override
+        public void publishExpire(final List<PublishExpireQueue.Entry> due, final long now) {
+
+            for (final PublishExpireQueue.Entry entry : due) {
+                fired.add((entry.isPublish() ? "publish " : "expire ") + entry.getIdentifier());
+                overdue.removeIf(row -> entry.getIdentifier().equals(row.get("id")));
+            }
+        }
+
+        @Override
+        public boolean isLeader() {
+            return leader;
+        }
+    }
+}
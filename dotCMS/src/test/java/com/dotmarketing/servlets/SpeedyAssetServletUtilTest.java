@@ -0,0 +1,66 @@
+package com.dotmarketing.servlets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link SpeedyAssetServletUtil}
+ */
+public class SpeedyAssetServletUtilTest {
+
+    @Test
+    public void testParseRange() {
+
+        final long length = 5L * 1024 * 1024 * 1024;
+        final ArrayList<SpeedyAssetServletUtil.ByteRange> ranges =
+                SpeedyAssetServletUtil.parseRange("bytes=0-99,4294967296-,-100", length);
+
+        assertEquals(3, ranges.size());
+        assertEquals(new SpeedyAssetServletUtil.ByteRange(0, 99, length), ranges.get(0));
+        assertEquals(new SpeedyAssetServletUtil.ByteRange(4294967296L, length - 1, length), ranges.get(1));
+        assertEquals(new SpeedyAssetServletUtil.ByteRange(length - 100, length - 1, length), ranges.get(2));
+    }
+
+    @Test
+    public void testParseRangeSuffixLongerThanFile() {
+
+        final ArrayList<SpeedyAssetServletUtil.ByteRange> ranges =
+                SpeedyAssetServletUtil.parseRange("bytes=-500", 100);
+
+        assertEquals(new SpeedyAssetServletUtil.ByteRange(0, 99, 100), ranges.get(0));
+    }
+
+    @Test
+    public void testCopyRangeFromChannel() throws Exception {
+
+        final byte[] content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+
+        final File file = File.createTempFile("speedy-asset", ".bin");
+        file.deleteOnExit();
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(content);
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (FileChannel from = new FileInputStream(file).getChannel()) {
+            SpeedyAssetServletUtil.copy(from, Channels.newChannel(out), 100, 250);
+        }
+
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 350), out.toByteArray());
+    }
+
+}
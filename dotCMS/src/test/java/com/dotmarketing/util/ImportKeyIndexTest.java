@@ -0,0 +1,88 @@
+package com.dotmarketing.util;
+
+import com.dotmarketing.portlets.structure.model.Field;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link ImportKeyIndex}
+ */
+public class ImportKeyIndexTest {
+
+    @Test
+    public void testTextKeysIgnoreCase () {
+
+        final ImportKeyIndex index = new ImportKeyIndex(Arrays.asList(field(Field.FieldType.TEXT, "text1")));
+        index.put(new Object[] { "SKU-1" }, "id1", "inode1", 1);
+
+        final List<ImportKeyIndex.Entry> found = index.find(new Object[] { "sku-1" });
+        assertEquals(1, found.size());
+        assertEquals("id1", found.get(0).getIdentifier());
+        assertTrue(index.find(new Object[] { "sku-2" }).isEmpty());
+    }
+
+    @Test
+    public void testSeveralKeys () {
+
+        final ImportKeyIndex index = new ImportKeyIndex(Arrays.asList(
+                field(Field.FieldType.TEXT, "text1"), field(Field.FieldType.TEXT, "integer1")));
+        index.put(new Object[] { "a", 12L }, "id1", "inode1", 1);
+
+        assertEquals(1, index.find(new Object[] { "A", "12" }).size());
+        assertTrue(index.find(new Object[] { "a1", "2" }).isEmpty());
+        assertTrue(index.find(new Object[] { "a", null }).isEmpty());
+    }
+
+    @Test
+    public void testDateKeys () throws Exception {
+
+        final SimpleDateFormat format = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
+        final ImportKeyIndex index = new ImportKeyIndex(Arrays.asList(
+                field(Field.FieldType.DATE, "date1"), field(Field.FieldType.DATE_TIME, "date2")));
+        final Date dateTime = format.parse("2016/02/01 10:20:30");
+        index.put(new Object[] { new Timestamp(format.parse("2016/02/01 00:00:00").getTime()), new Timestamp(dateTime.getTime()) },
+                "id1", "inode1", 1);
+
+        assertEquals(1, index.find(new Object[] { format.parse("2016/02/01 13:00:00"), dateTime }).size());
+        assertTrue(index.find(new Object[] { format.parse("2016/02/01 13:00:00"), format.parse("2016/02/01 10:20:31") }).isEmpty());
+    }
+
+    @Test
+    public void testNewVersionReplacesTheOldOne () {
+
+        final ImportKeyIndex index = new ImportKeyIndex(Arrays.asList(field(Field.FieldType.TEXT, "text1")));
+        index.put(new Object[] { "key" }, "id1", "inode1", 1);
+        index.put(new Object[] { "key" }, "id1", "inode2", 2);
+        index.put(new Object[] { "key" }, "id1", "inode3", 1);
+
+        final List<ImportKeyIndex.Entry> found = index.find(new Object[] { "key" });
+        assertEquals(2, found.size());
+        assertEquals("inode2", found.get(0).getInode());
+        assertEquals("inode3", found.get(1).getInode());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testSupportedFields () {
+
+        assertTrue(ImportKeyIndex.supports(Arrays.asList(field(Field.FieldType.TEXT, "text3"), field(Field.FieldType.DATE, "date1"))));
+        assertFalse(ImportKeyIndex.supports(Arrays.asList(field(Field.FieldType.TEXT_AREA, "text_area1"))));
+        assertFalse(ImportKeyIndex.supports(Arrays.asList(field(Field.FieldType.HOST_OR_FOLDER, "system_field"))));
+        assertFalse(ImportKeyIndex.supports(Arrays.asList(field(Field.FieldType.TEXT, "float1"))));
+    }
+
+    private Field field (final Field.FieldType type, final String column) {
+
+        final Field field = new Field();
+        field.setFieldType(type.toString());
+        field.setFieldContentlet(column);
+        return field;
+    }
+}
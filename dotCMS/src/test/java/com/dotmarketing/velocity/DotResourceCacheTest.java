@@ -0,0 +1,115 @@
+package com.dotmarketing.velocity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.velocity.runtime.resource.Resource;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dotmarketing.business.DotCacheAdministrator;
+
+/**
+ * Test for the menus kept by {@link DotResourceCache}
+ */
+public class DotResourceCacheTest {
+
+    private static final String MENU = "host1_levels_2_static.vtl";
+
+    private final Map<String, Object> store = new ConcurrentHashMap<String, Object>();
+    private DotResourceCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        DotCacheAdministrator administrator = mock(DotCacheAdministrator.class);
+        doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            store.put(args[2] + ":" + args[0], args[1]);
+            return null;
+        }).when(administrator).put(anyString(), any(), anyString());
+        doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            store.remove(args[1] + ":" + args[0]);
+            return null;
+        }).when(administrator).remove(anyString(), anyString());
+        doAnswer(invocation -> {
+            String prefix = invocation.getArguments()[0] + ":";
+            store.keySet().removeIf(key -> key.startsWith(prefix));
+            return null;
+        }).when(administrator).flushGroup(anyString());
+        when(administrator.get(anyString(), anyString())).thenAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            return store.get(args[1] + ":" + args[0]);
+        });
+
+        cache = new DotResourceCache(administrator);
+        // pins left by other tests of this thread
+        cache.clearMenuCache();
+    }
+
+    @Test
+    public void servesTheGeneratedMenu() {
+        assertNull(cache.getMenuSource(MENU));
+        assertNull(cache.loadMenuSource(MENU));
+
+        cache.putMenuSource(MENU, "#set($menu = 1)");
+
+        assertEquals("#set($menu = 1)", cache.getMenuSource(MENU));
+        assertEquals("#set($menu = 1)", cache.loadMenuSource(MENU));
+        assertEquals("#set($menu = 1)", cache.loadMenuSource(MENU));
+    }
+
+    /**
+     * A menu evicted between the check of the NavigationWebAPI and its parse is
+     * still served to the thread that checked it, once.
+     */
+    @Test
+    public void servesTheMenuCheckedByThisThreadAfterAnEviction() {
+        cache.putMenuSource(MENU, "#set($menu = 1)");
+        cache.clearMenuCache();
+        store.put("VelocityMenuSourceCache:" + MENU, "#set($menu = 2)");
+
+        // the thread checks the menu, then it is evicted before the parse
+        assertEquals("#set($menu = 2)", cache.getMenuSource(MENU));
+        store.clear();
+
+        assertEquals("#set($menu = 2)", cache.loadMenuSource(MENU));
+        assertNull(cache.loadMenuSource(MENU));
+    }
+
+    @Test
+    public void aNewVersionReplacesTheCheckedOne() {
+        cache.putMenuSource(MENU, "#set($menu = 1)");
+        cache.putMenuSource(MENU, "#set($menu = 2)");
+        store.clear();
+
+        assertEquals("#set($menu = 2)", cache.loadMenuSource(MENU));
+    }
+
+    @Test
+    public void clearMenuCacheDropsTheSourceAndTheCompiledMenus() {
+        Resource compiled = mock(Resource.class);
+        Resource page = mock(Resource.class);
+        cache.putMenuSource(MENU, "#set($menu = 1)");
+        cache.put("dynamic/menus/" + MENU, compiled);
+        cache.put("live/page.vtl", page);
+        assertSame(compiled, cache.get("dynamic/menus/" + MENU));
+
+        cache.clearMenuCache();
+
+        assertNull(cache.getMenuSource(MENU));
+        assertNull(cache.loadMenuSource(MENU));
+        assertNull(cache.get("dynamic/menus/" + MENU));
+        assertSame(page, cache.get("live/page.vtl"));
+    }
+
+}
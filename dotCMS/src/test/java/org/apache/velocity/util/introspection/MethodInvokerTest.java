@@ -0,0 +1,95 @@
+package org.apache.velocity.util.introspection;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+
+public class MethodInvokerTest {
+
+    @Test
+    public void testGetterIsInvoked() throws Exception {
+        Bean bean = new Bean("a title", 3);
+        assertThat(invoke(Bean.class.getMethod("getTitle"), bean), is((Object) "a title"));
+    }
+
+    @Test
+    public void testPrimitiveReturnIsBoxed() throws Exception {
+        Bean bean = new Bean("a title", 3);
+        assertThat(invoke(Bean.class.getMethod("getCount"), bean), is((Object) 3));
+    }
+
+    @Test
+    public void testMapGetIsInvoked() throws Exception {
+        Map<String, Object> map = new HashMap<>();
+        map.put("title", "a title");
+        Method get = Map.class.getMethod("get", Object.class);
+        assertThat(invoke(get, map, "title"), is((Object) "a title"));
+        assertThat(invoke(get, map, "missing"), nullValue());
+    }
+
+    @Test
+    public void testMethodsWithSeveralArgumentsAreInvoked() throws Exception {
+        Bean bean = new Bean("a title", 3);
+        Method method = Bean.class.getMethod("concat", String.class, int.class);
+        assertThat(invoke(method, bean, "x", 2), is((Object) "a titlex2"));
+    }
+
+    @Test
+    public void testExceptionsAreWrapped() throws Exception {
+        Bean bean = new Bean(null, 0);
+        try {
+            invoke(Bean.class.getMethod("getTitleLength"), bean);
+            fail("the exception of the method should be thrown");
+        } catch (InvocationTargetException e) {
+            assertThat(e.getTargetException(), instanceOf(NullPointerException.class));
+        }
+    }
+
+    @Test
+    public void testInvokerIsBuiltOncePerMethod() throws Exception {
+        Method method = Bean.class.getMethod("getTitle");
+        assertThat(MethodInvoker.forMethod(method), sameInstance(MethodInvoker.forMethod(method)));
+    }
+
+    private Object invoke(Method method, Object o, Object... args) throws Exception {
+        return MethodInvoker.forMethod(method).invoke(o, args);
+    }
+
+    public static class Bean {
+
+        private final String title;
+        private final int count;
+
+        public Bean(String title, int count) {
+            this.title = title;
+            this.count = count;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getTitleLength() {
+            return title.length();
+        }
+
+        public String concat(String value, int times) {
+            return title + value + times;
+        }
+    }
+
+}